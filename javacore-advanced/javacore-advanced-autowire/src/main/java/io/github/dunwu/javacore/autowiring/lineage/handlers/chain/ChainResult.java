@@ -0,0 +1,63 @@
+package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次链执行的结果：每个处理器一个 {@link HandlerResult}，按 @Order 排列
+ */
+public final class ChainResult {
+
+    private final List<HandlerResult> results;
+
+    private final HandlerResult terminal;
+
+    private final long elapsedNanos;
+
+    ChainResult(List<HandlerResult> results, HandlerResult terminal, long elapsedNanos) {
+        this.results = Collections.unmodifiableList(results);
+        this.terminal = terminal;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<HandlerResult> getResults() {
+        return results;
+    }
+
+    /**
+     * 结束链的处理器结果，没有处理器返回 {@link HandlerResult#terminal} 时为 null
+     */
+    public HandlerResult getTerminal() {
+        return terminal;
+    }
+
+    public boolean isShortCircuited() {
+        return terminal != null;
+    }
+
+    /**
+     * 是否所有执行了的处理器都成功完成
+     */
+    public boolean isSuccess() {
+        for (HandlerResult result : results) {
+            if (result.getStatus() == HandlerResult.Status.FAILED
+                    || result.getStatus() == HandlerResult.Status.TIMEOUT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 整条链的耗时，并行执行时小于各处理器耗时之和
+     */
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "ChainResult" + results + " (" + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) + "us)";
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 处理器在 {@link HandlerChain} 中的执行约束，可选，没有标注时表示没有依赖、不限时。
+ * <p>
+ * 执行顺序由依赖关系决定（有向无环图），@Order 只决定结果的排列顺序和同时就绪的处理器的提交顺序
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ChainStage {
+
+    /**
+     * 依赖的处理器，全部成功完成后才执行本处理器；任何一个失败、超时或被跳过，本处理器也被跳过
+     */
+    Class<? extends IHandler>[] dependsOn() default {};
+
+    /**
+     * 超时时间（毫秒），从提交到线程池开始计算，超时后中断处理器线程，0 表示不限时
+     */
+    long timeoutMillis() default 0;
+}
@@ -8,7 +8,7 @@ import org.springframework.stereotype.Component;
 public class FirstExampleHandler implements IHandler {
 
     @Override
-    public void handleRequest(String request, StringBuilder response) {
-        response.append("FirstTableSupplementHandler processed: ").append(request).append("\n");
+    public HandlerResult handleRequest(String request, HandlerContext context) {
+        return HandlerResult.of("FirstTableSupplementHandler processed: " + request);
     }
 }
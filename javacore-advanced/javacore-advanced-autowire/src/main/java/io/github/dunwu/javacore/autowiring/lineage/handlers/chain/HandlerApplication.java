@@ -11,6 +11,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * 【验证流程】
  * 启动项目，在浏览器中输入：http://localhost:8080/process?input=test_input，可以看到输出：
  * FirstTableSupplementHandler processed: test_input SecondExampleHandler processed: test_input
+ * SummaryExampleHandler processed: test_input, upstream output 91 chars
+ * 前两个处理器没有依赖，并行执行；SummaryExampleHandler 依赖它们，最后执行，见 {@link HandlerChain}
  */
 @SpringBootApplication
 public class HandlerApplication {
@@ -1,8 +1,30 @@
 package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 1. 测试流程
@@ -12,9 +34,9 @@ import java.util.List;
  * 2. 代码说明
  * 自动注册：
  *      @Component 标记了处理器，使其成为 Spring 管理的 Bean。
- *      @Order 控制了处理器的执行顺序。
+ *      @Order 控制了处理器结果的排列顺序，@ChainStage 声明依赖关系和超时。
  * 处理链：
- *      HandlerChain 自动收集实现 IHandler 接口的所有 Bean，并按 @Order 注解排序。
+ *      HandlerChain 自动收集实现 IHandler 接口的所有 Bean，并按 @Order 注解排序，按依赖关系建成有向无环图。
  * 可扩展性：
  *      添加新的处理器只需实现 IHandler 接口，并添加 @Component 注解，无需修改现有代码。
  * 3. 总结
@@ -72,11 +94,39 @@ import java.util.List;
  * ⑥、总结
  * 责任链模式非常适合像 SQL 解析这种任务链式处理的场景，它能帮助你更好地组织代码逻辑，同时保持扩展性和灵活性。
  *
+ * ⑦、并行执行
+ * 顺序执行时整条链的耗时是所有处理器耗时之和。血缘解析的很多处理器互不依赖、又比较耗时，所以链按依赖关系执行：
+ * 1). 依赖：处理器用 @ChainStage(dependsOn = ...) 声明依赖，没有依赖的处理器在线程池中并行执行，
+ *    依赖全部成功完成后才执行下游，启动时检查依赖是否存在、是否有环；
+ * 2). 不可变结果：每个处理器返回自己的 HandlerResult，下游通过 HandlerContext 读取依赖的结果，
+ *    不再共享一个 StringBuilder（并行执行时共享的可变对象既不安全、结果顺序也不确定）；
+ * 3). 提前结束：处理器返回 HandlerResult.terminal 时，未开始的处理器跳过，正在执行的被中断，链立即返回，
+ *    这就是 ⑤ 中说的中断机制；
+ * 4). 超时：@ChainStage(timeoutMillis = ...) 限制单个处理器的耗时，超时的处理器被中断，依赖它的处理器被跳过；
+ * 5). 统计：getMetrics 返回每个处理器的执行次数、失败和超时次数、平均和最大耗时。
  */
 @Component
-public class HandlerChain {
+public class HandlerChain implements AutoCloseable {
 
-    private final List<IHandler> handlerList;
+    private static final Logger log = LoggerFactory.getLogger(HandlerChain.class);
+
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    /**
+     * 按 @Order 排列
+     */
+    private final Stage[] stages;
+
+    private final List<HandlerMetrics> metrics;
+
+    /**
+     * 有处理器设置了超时才创建
+     */
+    private final ScheduledThreadPoolExecutor timer;
+
+    private volatile ExecutorService executor;
+
+    private boolean ownExecutor;
 
     /**
      * HandlerChain 初始化的时候会收集所有实现了IHandler的类，那么HandlerChain 初始化是在什么时候？
@@ -96,11 +146,407 @@ public class HandlerChain {
      * @param handlerList
      */
     public HandlerChain(List<IHandler> handlerList) {
-        this.handlerList = handlerList;
+        List<IHandler> handlers = new ArrayList<>(handlerList);
+        AnnotationAwareOrderComparator.sort(handlers);
+        stages = new Stage[handlers.size()];
+        List<HandlerMetrics> metricsList = new ArrayList<>();
+        boolean timeouts = false;
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Stage(i, handlers.get(i));
+            metricsList.add(stages[i].metrics);
+            timeouts |= stages[i].timeoutNanos > 0;
+        }
+        for (Stage stage : stages) {
+            stage.resolveDependencies(stages);
+        }
+        checkAcyclic();
+        metrics = Collections.unmodifiableList(metricsList);
+        if (timeouts) {
+            timer = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "handler-chain-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        } else {
+            timer = null;
+        }
     }
 
+    /**
+     * 执行处理器的线程池，默认是 max(4, CPU 核数 * 2) 个线程的固定大小线程池。
+     * 同时执行的链共用这个线程池，超时时间包括在队列中等待的时间
+     */
+    public synchronized HandlerChain setExecutor(ExecutorService executor) {
+        if (ownExecutor) {
+            this.executor.shutdown();
+            ownExecutor = false;
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    private ExecutorService executor() {
+        ExecutorService current = executor;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (executor == null) {
+                int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "handler-chain-" + THREAD_NUMBER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                pool.allowCoreThreadTimeOut(true);
+                executor = pool;
+                ownExecutor = true;
+            }
+            return executor;
+        }
+    }
+
+    /**
+     * 兼容原来的用法：执行整条链，把成功的处理器的结果按 @Order 顺序逐行追加到 response
+     */
     public void handle(String request, StringBuilder response) {
-        handlerList.forEach(handler -> handler.handleRequest(request, response));
+        for (HandlerResult result : execute(request).getResults()) {
+            if (result.isSuccess() && result.getValue() != null) {
+                response.append(result.getValue()).append("\n");
+            }
+        }
+    }
+
+    /**
+     * 执行整条链，等待所有处理器完成（或链被提前结束）
+     */
+    public ChainResult execute(String request) {
+        return executeAsync(request).join();
+    }
+
+    /**
+     * 异步执行整条链，调用线程不等待
+     */
+    public CompletableFuture<ChainResult> executeAsync(String request) {
+        Execution execution = new Execution(request);
+        execution.start();
+        return execution.done;
+    }
+
+    /**
+     * 每个处理器的累计执行统计，按 @Order 排列
+     */
+    public List<HandlerMetrics> getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * 拓扑排序检查依赖关系中没有环
+     */
+    private void checkAcyclic() {
+        int[] pending = new int[stages.length];
+        Deque<Stage> ready = new ArrayDeque<>();
+        for (Stage stage : stages) {
+            pending[stage.index] = stage.dependencies.length;
+            if (pending[stage.index] == 0) {
+                ready.add(stage);
+            }
+        }
+        int visited = 0;
+        while (!ready.isEmpty()) {
+            Stage stage = ready.poll();
+            visited++;
+            for (int dependent : stage.dependents) {
+                if (--pending[dependent] == 0) {
+                    ready.add(stages[dependent]);
+                }
+            }
+        }
+        if (visited < stages.length) {
+            List<String> cycle = new ArrayList<>();
+            for (Stage stage : stages) {
+                if (pending[stage.index] > 0) {
+                    cycle.add(stage.name);
+                }
+            }
+            throw new IllegalStateException("handler dependencies contain a cycle among " + cycle);
+        }
     }
-}
 
+    /**
+     * 链上的一个处理器及其依赖关系，启动时建好，之后不变
+     */
+    private static final class Stage {
+
+        private final int index;
+
+        private final IHandler handler;
+
+        private final Class<?> type;
+
+        private final String name;
+
+        private final long timeoutNanos;
+
+        private final Class<? extends IHandler>[] dependencyTypes;
+
+        private final HandlerMetrics metrics;
+
+        private int[] dependencies;
+
+        private int[] dependents = new int[0];
+
+        @SuppressWarnings("unchecked")
+        Stage(int index, IHandler handler) {
+            this.index = index;
+            this.handler = handler;
+            // 处理器可能被 AOP 代理，注解要从原始类上找
+            this.type = AopProxyUtils.ultimateTargetClass(handler);
+            this.name = type.getSimpleName();
+            ChainStage annotation = AnnotationUtils.findAnnotation(type, ChainStage.class);
+            this.timeoutNanos = annotation == null ? 0 : TimeUnit.MILLISECONDS.toNanos(annotation.timeoutMillis());
+            this.dependencyTypes = annotation == null ? new Class[0] : annotation.dependsOn();
+            this.metrics = new HandlerMetrics(name);
+        }
+
+        void resolveDependencies(Stage[] stages) {
+            dependencies = new int[dependencyTypes.length];
+            for (int i = 0; i < dependencyTypes.length; i++) {
+                Stage found = null;
+                for (Stage stage : stages) {
+                    if (dependencyTypes[i].isAssignableFrom(stage.type)) {
+                        if (found != null) {
+                            throw new IllegalStateException(name + " depends on " + dependencyTypes[i].getName()
+                                    + ", which matches both " + found.name + " and " + stage.name);
+                        }
+                        found = stage;
+                    }
+                }
+                if (found == null) {
+                    throw new IllegalStateException(name + " depends on " + dependencyTypes[i].getName()
+                            + ", which is not a registered handler");
+                }
+                dependencies[i] = found.index;
+                found.dependents = Arrays.copyOf(found.dependents, found.dependents.length + 1);
+                found.dependents[found.dependents.length - 1] = index;
+            }
+        }
+    }
+
+    /**
+     * 一次链执行的状态。处理器完成时在锁内更新结果、找出可以开始的下游，锁外提交到线程池
+     */
+    private final class Execution {
+
+        private final String request;
+
+        private final long startNanos = System.nanoTime();
+
+        private final HandlerResult[] results = new HandlerResult[stages.length];
+
+        private final int[] pending = new int[stages.length];
+
+        private final long[] submittedAt = new long[stages.length];
+
+        private final Future<?>[] running = new Future<?>[stages.length];
+
+        private final ScheduledFuture<?>[] timeouts = new ScheduledFuture<?>[stages.length];
+
+        private final CompletableFuture<ChainResult> done = new CompletableFuture<>();
+
+        private int completed;
+
+        private boolean finished;
+
+        Execution(String request) {
+            this.request = request;
+            for (Stage stage : stages) {
+                pending[stage.index] = stage.dependencies.length;
+            }
+        }
+
+        void start() {
+            if (stages.length == 0) {
+                done.complete(new ChainResult(Collections.<HandlerResult>emptyList(), null, 0));
+                return;
+            }
+            for (Stage stage : stages) {
+                if (stage.dependencies.length == 0) {
+                    launch(stage);
+                }
+            }
+        }
+
+        private void launch(Stage stage) {
+            HandlerContext context;
+            long submitted = System.nanoTime();
+            synchronized (this) {
+                if (finished || results[stage.index] != null) {
+                    return;
+                }
+                submittedAt[stage.index] = submitted;
+                Map<Class<?>, HandlerResult> visible = new HashMap<>();
+                for (int i = 0; i < stage.dependencies.length; i++) {
+                    visible.put(stage.dependencyTypes[i], results[stage.dependencies[i]]);
+                }
+                context = new HandlerContext(visible);
+            }
+            Future<?> future;
+            try {
+                future = executor().submit(() -> run(stage, context, submitted));
+            } catch (RejectedExecutionException e) {
+                complete(stage, HandlerResult.failed(stage.name, e, 0));
+                return;
+            }
+            ScheduledFuture<?> timeout = null;
+            if (stage.timeoutNanos > 0) {
+                timeout = timer.schedule(() -> complete(stage, HandlerResult.of(stage.name,
+                        HandlerResult.Status.TIMEOUT, System.nanoTime() - submitted)), stage.timeoutNanos,
+                        TimeUnit.NANOSECONDS);
+            }
+            boolean cancel;
+            synchronized (this) {
+                cancel = results[stage.index] != null;
+                if (!cancel) {
+                    running[stage.index] = future;
+                    timeouts[stage.index] = timeout;
+                }
+            }
+            if (cancel) {
+                // 提交之后、登记之前处理器已经完成、超时，或者链已经被提前结束
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                if (!results[stage.index].isSuccess()) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private void run(Stage stage, HandlerContext context, long submitted) {
+            HandlerResult result;
+            try {
+                HandlerResult returned = stage.handler.handleRequest(request, context);
+                result = (returned == null ? HandlerResult.of(null) : returned)
+                        .complete(stage.name, System.nanoTime() - submitted);
+            } catch (Exception e) {
+                // 被超时或提前结束中断时结果已经记录过，这里的结果会被忽略
+                result = HandlerResult.failed(stage.name, e, System.nanoTime() - submitted);
+            }
+            complete(stage, result);
+        }
+
+        /**
+         * 记录一个处理器的结果，重复的（例如超时之后处理器才返回）忽略
+         */
+        private void complete(Stage stage, HandlerResult result) {
+            List<Stage> ready = new ArrayList<>();
+            List<Future<?>> cancelled = new ArrayList<>();
+            ChainResult chainResult = null;
+            synchronized (this) {
+                if (results[stage.index] != null) {
+                    return;
+                }
+                record(stage, result, cancelled);
+                if (result.getStatus() == HandlerResult.Status.TIMEOUT && running[stage.index] != null) {
+                    cancelled.add(running[stage.index]);
+                }
+                if (result.isTerminal()) {
+                    finishEarly(cancelled);
+                } else {
+                    release(stage, result.isSuccess(), ready, cancelled);
+                }
+                if (completed == stages.length) {
+                    finished = true;
+                    HandlerResult terminal = null;
+                    for (HandlerResult r : results) {
+                        if (r.isTerminal()) {
+                            terminal = r;
+                        }
+                    }
+                    chainResult = new ChainResult(Arrays.asList(results.clone()), terminal,
+                            System.nanoTime() - startNanos);
+                }
+            }
+            for (Future<?> future : cancelled) {
+                future.cancel(true);
+            }
+            for (Stage next : ready) {
+                launch(next);
+            }
+            if (chainResult != null) {
+                done.complete(chainResult);
+            }
+        }
+
+        private void record(Stage stage, HandlerResult result, List<Future<?>> cancelled) {
+            results[stage.index] = result;
+            completed++;
+            if (timeouts[stage.index] != null) {
+                cancelled.add(timeouts[stage.index]);
+            }
+            if (result.getStatus() != HandlerResult.Status.SKIPPED) {
+                stage.metrics.record(result);
+            }
+            if (!result.isSuccess() && result.getStatus() != HandlerResult.Status.SKIPPED) {
+                log.warn("Handler {} {}", stage.name, result.getStatus(), result.getError());
+            }
+        }
+
+        /**
+         * 处理器完成后更新下游：成功则依赖计数减一，减到 0 的可以开始；失败则所有下游（传递地）跳过
+         */
+        private void release(Stage stage, boolean success, List<Stage> ready, List<Future<?>> cancelled) {
+            if (success) {
+                for (int dependent : stage.dependents) {
+                    if (results[dependent] == null && --pending[dependent] == 0) {
+                        ready.add(stages[dependent]);
+                    }
+                }
+                return;
+            }
+            Deque<Stage> skip = new ArrayDeque<>();
+            skip.push(stage);
+            while (!skip.isEmpty()) {
+                for (int dependent : skip.pop().dependents) {
+                    if (results[dependent] == null) {
+                        record(stages[dependent], HandlerResult.of(stages[dependent].name,
+                                HandlerResult.Status.SKIPPED, 0), cancelled);
+                        skip.push(stages[dependent]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 有处理器返回了 terminal：未开始的跳过，正在执行的中断
+         */
+        private void finishEarly(List<Future<?>> cancelled) {
+            long now = System.nanoTime();
+            for (Stage other : stages) {
+                if (results[other.index] != null) {
+                    continue;
+                }
+                if (running[other.index] != null) {
+                    cancelled.add(running[other.index]);
+                    record(other, HandlerResult.of(other.name, HandlerResult.Status.CANCELLED,
+                            now - submittedAt[other.index]), cancelled);
+                } else {
+                    record(other, HandlerResult.of(other.name, HandlerResult.Status.SKIPPED, 0), cancelled);
+                }
+            }
+        }
+    }
+}
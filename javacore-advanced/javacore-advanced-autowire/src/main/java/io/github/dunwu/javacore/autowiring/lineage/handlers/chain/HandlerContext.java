@@ -0,0 +1,36 @@
+package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
+
+import java.util.Map;
+
+/**
+ * 处理器执行时可见的上游结果，只包含 {@link ChainStage#dependsOn()} 中声明的处理器，它们都已成功完成。
+ * 其他处理器可能还在执行，结果不确定，所以不可见
+ */
+public final class HandlerContext {
+
+    private final Map<Class<?>, HandlerResult> dependencies;
+
+    HandlerContext(Map<Class<?>, HandlerResult> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * 依赖的处理器的结果
+     *
+     * @throws IllegalArgumentException handler 不是声明的依赖
+     */
+    public HandlerResult get(Class<? extends IHandler> handler) {
+        HandlerResult result = dependencies.get(handler);
+        if (result == null) {
+            throw new IllegalArgumentException(handler.getName() + " is not a declared dependency");
+        }
+        return result;
+    }
+
+    /**
+     * 依赖的处理器返回的值
+     */
+    public <T> T getValue(Class<? extends IHandler> handler, Class<T> type) {
+        return type.cast(get(handler).getValue());
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个处理器累计的执行统计，只统计实际执行了的（跳过的不算）
+ */
+public final class HandlerMetrics {
+
+    private final String handler;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    HandlerMetrics(String handler) {
+        this.handler = handler;
+    }
+
+    void record(HandlerResult result) {
+        long nanos = result.getElapsed(TimeUnit.NANOSECONDS);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (result.getStatus() == HandlerResult.Status.FAILED) {
+            failures.increment();
+        } else if (result.getStatus() == HandlerResult.Status.TIMEOUT) {
+            timeouts.increment();
+        }
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count=%d, failures=%d, timeouts=%d, mean=%.3fms, max=%.3fms", handler, getCount(),
+                getFailures(), getTimeouts(), getMeanMillis(), getMaxMillis());
+    }
+}
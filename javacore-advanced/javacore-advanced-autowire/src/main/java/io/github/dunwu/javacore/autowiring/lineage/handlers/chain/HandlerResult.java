@@ -0,0 +1,115 @@
+package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个处理器的执行结果，不可变。处理器用 {@link #of} / {@link #terminal} 返回值，
+ * 状态为失败、超时、跳过的结果由 {@link HandlerChain} 生成，并补上处理器名称和耗时
+ */
+public final class HandlerResult {
+
+    public enum Status {
+        /**
+         * 正常完成
+         */
+        OK,
+        /**
+         * 正常完成，并且已经得到最终结果，链上其余的处理器不再执行
+         */
+        TERMINAL,
+        /**
+         * 处理器抛出异常
+         */
+        FAILED,
+        /**
+         * 处理器超时，已被中断
+         */
+        TIMEOUT,
+        /**
+         * 没有执行：依赖的处理器没有成功完成，或者链已经被其他处理器结束
+         */
+        SKIPPED,
+        /**
+         * 执行中被中断，因为链已经被其他处理器结束
+         */
+        CANCELLED
+    }
+
+    private final String handler;
+
+    private final Status status;
+
+    private final Object value;
+
+    private final Throwable error;
+
+    private final long elapsedNanos;
+
+    private HandlerResult(String handler, Status status, Object value, Throwable error, long elapsedNanos) {
+        this.handler = handler;
+        this.status = status;
+        this.value = value;
+        this.error = error;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public static HandlerResult of(Object value) {
+        return new HandlerResult(null, Status.OK, value, null, 0);
+    }
+
+    public static HandlerResult terminal(Object value) {
+        return new HandlerResult(null, Status.TERMINAL, value, null, 0);
+    }
+
+    static HandlerResult failed(String handler, Throwable error, long elapsedNanos) {
+        return new HandlerResult(handler, Status.FAILED, null, error, elapsedNanos);
+    }
+
+    static HandlerResult of(String handler, Status status, long elapsedNanos) {
+        return new HandlerResult(handler, status, null, null, elapsedNanos);
+    }
+
+    /**
+     * 处理器返回的结果补上名称和耗时
+     */
+    HandlerResult complete(String handler, long elapsedNanos) {
+        return new HandlerResult(handler, status, value, error, elapsedNanos);
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * 处理器是否正常完成（OK 或 TERMINAL）
+     */
+    public boolean isSuccess() {
+        return status == Status.OK || status == Status.TERMINAL;
+    }
+
+    public boolean isTerminal() {
+        return status == Status.TERMINAL;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return handler + " " + status + (value != null ? ": " + value : error != null ? ": " + error : "") + " ("
+                + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) + "us)";
+    }
+}
@@ -1,6 +1,16 @@
 package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
 
+/**
+ * 链上的一个处理器。没有 {@link ChainStage#dependsOn()} 的处理器之间互不依赖，会在 {@link HandlerChain} 的线程池中并行执行，
+ * 所以实现需要线程安全，也不应该修改共享状态：每个处理器返回自己的 {@link HandlerResult}，
+ * 需要上游结果时声明依赖，再从 context 中读取
+ */
 public interface IHandler {
-    void handleRequest(String request, StringBuilder response);
-}
 
+    /**
+     * @param request 请求
+     * @param context 已完成的依赖处理器的结果
+     * @return 本处理器的结果，{@link HandlerResult#terminal} 表示已经得到最终结果，链上其余的处理器不再执行
+     */
+    HandlerResult handleRequest(String request, HandlerContext context) throws Exception;
+}
@@ -5,11 +5,11 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Order(2) // 优先级 2
+@ChainStage(timeoutMillis = 1000)
 public class SecondExampleHandler implements IHandler {
 
     @Override
-    public void handleRequest(String request, StringBuilder response) {
-        response.append("SecondExampleHandler processed: ").append(request).append("\n");
+    public HandlerResult handleRequest(String request, HandlerContext context) {
+        return HandlerResult.of("SecondExampleHandler processed: " + request);
     }
 }
-
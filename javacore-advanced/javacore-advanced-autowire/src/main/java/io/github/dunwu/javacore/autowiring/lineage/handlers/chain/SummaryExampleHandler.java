@@ -0,0 +1,21 @@
+package io.github.dunwu.javacore.autowiring.lineage.handlers.chain;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * 依赖前两个处理器的结果：它们并行执行，都完成后才执行这个处理器
+ */
+@Component
+@Order(3)
+@ChainStage(dependsOn = {FirstExampleHandler.class, SecondExampleHandler.class})
+public class SummaryExampleHandler implements IHandler {
+
+    @Override
+    public HandlerResult handleRequest(String request, HandlerContext context) {
+        int length = context.getValue(FirstExampleHandler.class, String.class).length()
+                + context.getValue(SecondExampleHandler.class, String.class).length();
+        return HandlerResult.of("SummaryExampleHandler processed: " + request + ", upstream output " + length
+                + " chars");
+    }
+}
@@ -4,6 +4,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 public class AppRunner implements CommandLineRunner {
 
@@ -19,6 +22,16 @@ public class AppRunner implements CommandLineRunner {
         // 触发消息处理器
         kafkaMessageListener.handleMessage(simulatedMessageSql);
         kafkaMessageListener.handleMessage(simulatedMessageXml);
+
+        // 模拟一次 poll 到的一批消息：同一个 key（表名）的消息按顺序处理，不同的 key、不同的类型并行处理
+        List<Message> batch = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            batch.add(new Message("SQL", "t_order", "t_order 的第 " + i + " 条 SQL"));
+            batch.add(new Message("SQL", "t_user", "t_user 的第 " + i + " 条 SQL"));
+            batch.add(new Message("XML", "mapper", "第 " + i + " 条 XML"));
+        }
+        batch.add(new Message("JSON", null, "没有处理器的消息"));
+        int handled = kafkaMessageListener.handle(batch);
+        System.out.println("Handled " + handled + " of " + batch.size() + " messages");
     }
 }
-
@@ -1,5 +1,22 @@
 package io.github.dunwu.javacore.autowiring.mq.consumer.handlers;
 
+import java.util.List;
+
+/**
+ * 消息处理器，用 {@link SourceHandler} 标注处理的消息类型。
+ * 同一类型的消息可能在多个线程中并发处理（见 {@link SourceHandler#concurrency()}），实现需要线程安全
+ */
 public interface BaseMessageHandler {
-    void handle();
+
+    void handle(Message message);
+
+    /**
+     * 批量处理同一类型的一批消息，批内同一个 key 的消息按到达顺序排列。
+     * 默认逐条处理，需要批量写库等场景可以覆盖这个方法
+     */
+    default void handle(List<Message> messages) {
+        for (Message message : messages) {
+            handle(message);
+        }
+    }
 }
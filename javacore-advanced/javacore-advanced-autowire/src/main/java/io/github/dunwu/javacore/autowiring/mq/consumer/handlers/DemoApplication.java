@@ -16,6 +16,8 @@ package io.github.dunwu.javacore.autowiring.mq.consumer.handlers;
  *      这将帮助您在没有实际的Kafka服务器的情况下验证逻辑。
  * 2. 编译并运行 DemoApplication 类，观察控制台输出。
  * 3. 可以看到结果，虽然 messageHandlerMap 没有显式的初始化，但仍然找到了具体的实现类
+ *      现在由 MessageDispatcher 注入 List<BaseMessageHandler>，按 @SourceHandler 的 value 建立映射，
+ *      每个类型在自己的线程上处理，同一个 key 的消息保持顺序
  *
  * src/
  * └── main/
@@ -2,41 +2,53 @@ package io.github.dunwu.javacore.autowiring.mq.consumer.handlers;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.util.List;
 
 @Component
 public class KafkaMessageListener {
 
     private static final Logger log = LoggerFactory.getLogger(KafkaMessageListener.class);
+
     /**
-     * 【待验证】
-     * 如果注入的是 Map 类型，key是bean名称（可能被注解的value方法覆盖），value是bean实例
-     * 如果注入的是 List 类型，元素是bean实例
-     * 如果注入的是 对象 类型，元素是接口的某一种实现，根据优先级选择
+     * 原来注入的是 Map<String, BaseMessageHandler>：key 是 bean 名称，value 是 bean 实例，
+     * 按消息类型查找处理器依赖 bean 名称恰好等于 @SourceHandler 的 value（见 {@link SourceHandler}）。
+     * 现在由 {@link MessageDispatcher} 在启动时直接读注解建立映射
      */
-    @Autowired
-    private Map<String, BaseMessageHandler> messageHandlerMap;
+    private final MessageDispatcher dispatcher;
+
+    public KafkaMessageListener(MessageDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
 
+    /**
+     * 处理一条消息，例如 "SQL:...消息内容..."，投递后立即返回，处理器繁忙时阻塞
+     */
     public void handleMessage(String message) {
         try {
-            log.info("Received message: {}", message);
-            // 假设message包含了消息类型信息，例如"SQL:...消息内容..."
-            String[] parts = message.split(":", 2);
-            String messageType = parts[0];
-            String messageContent = parts.length > 1 ? parts[1] : "";
-
-            BaseMessageHandler handler = messageHandlerMap.get(messageType);
-            if (handler != null) {
-                handler.handle();
-                log.info("Handled by: {}", handler.getClass().getSimpleName());
-            } else {
-                log.warn("No handler found for message type: {}", messageType);
-            }
+            log.debug("Received message: {}", message);
+            dispatcher.submit(Message.parse(message));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while dispatching message: {}", message);
         } catch (Exception e) {
             log.error("Error handling message: {}", message, e);
         }
     }
+
+    /**
+     * 批量消费：一次 poll 到的消息按类型并行处理，同一个 key 保持顺序，全部处理完才返回，之后可以提交 offset
+     *
+     * @return 成功处理的消息数
+     */
+    public int handle(List<Message> messages) {
+        try {
+            return dispatcher.dispatch(messages);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while dispatching {} messages", messages.size());
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package io.github.dunwu.javacore.autowiring.mq.consumer.handlers;
+
+/**
+ * 一条待处理的消息。type 决定由哪个 {@link SourceHandler} 处理，
+ * key 相同的消息按到达顺序依次处理（对应 Kafka 消息的 key），key 为 null 的消息之间不保证顺序
+ */
+public class Message {
+
+    private final String type;
+
+    private final String key;
+
+    private final String content;
+
+    public Message(String type, String key, String content) {
+        if (type == null) {
+            throw new IllegalArgumentException("type must not be null");
+        }
+        this.type = type;
+        this.key = key;
+        this.content = content;
+    }
+
+    /**
+     * 解析 "类型:内容" 格式的消息，例如 "SQL:select 1"，没有 key
+     */
+    public static Message parse(String message) {
+        return parse(null, message);
+    }
+
+    /**
+     * 解析 "类型:内容" 格式的消息，key 取自 Kafka 消息的 key
+     */
+    public static Message parse(String key, String message) {
+        int colon = message.indexOf(':');
+        return colon < 0 ? new Message(message, key, "")
+                : new Message(message.substring(0, colon), key, message.substring(colon + 1));
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    @Override
+    public String toString() {
+        return key == null ? type + ":" + content : type + "[" + key + "]:" + content;
+    }
+}
@@ -0,0 +1,353 @@
+package io.github.dunwu.javacore.autowiring.mq.consumer.handlers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 消息分发器：启动时把所有 {@link BaseMessageHandler} 按 {@link SourceHandler} 的 value 建成 类型 -> 处理器 的映射表，
+ * 运行时每个类型在自己的线程上并行处理，互不阻塞。
+ * <p>
+ * 1. 顺序：每个类型有 concurrency 个工作线程，每个线程一个有界队列，消息按 key 的哈希固定分到一个线程，
+ * 所以同一个 key 的消息严格按投递顺序处理；key 为 null 的消息轮流分配。不能用普通的线程池，线程池里的任务
+ * 可能被任意线程取走，同一个 key 的两条消息会并发执行、乱序；
+ * <p>
+ * 2. 批量：工作线程每次把队列里积压的消息（最多 maxBatchSize 条）一起交给 {@link BaseMessageHandler#handle(List)}，
+ * 积压越多批越大，处理器可以把逐条的 I/O 合并成批量操作；
+ * <p>
+ * 3. 背压：队列满时 {@link #submit} / {@link #dispatch} 阻塞调用方（消费线程），消费线程不再 poll，
+ * 消息积压在 broker 上而不是内存里。慢的类型只会拖慢投递到它的那部分消息。
+ * <p>
+ * {@link #dispatch} 等一批消息全部处理完才返回，调用方之后提交 offset 不会丢消息；
+ * {@link #close()} 之后还没处理的消息（不应出现，只是兜底）按处理失败通知 dispatch，不会让它永远等待
+ */
+@Component
+public class MessageDispatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageDispatcher.class);
+
+    private final Map<String, TypeLanes> lanes;
+
+    private final LongAdder unknown = new LongAdder();
+
+    /**
+     * 入队持读锁，close 持写锁：close 之后不会有消息排在 STOP 后面
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private volatile boolean closed;
+
+    public MessageDispatcher(List<BaseMessageHandler> handlers) {
+        Map<String, TypeLanes> map = new HashMap<>();
+        for (BaseMessageHandler handler : handlers) {
+            // 处理器可能被 AOP 代理，注解要从原始类上找
+            Class<?> type = AopProxyUtils.ultimateTargetClass(handler);
+            SourceHandler annotation = AnnotationUtils.findAnnotation(type, SourceHandler.class);
+            if (annotation == null) {
+                log.warn("{} has no @SourceHandler, ignored", type.getName());
+                continue;
+            }
+            TypeLanes existing = map.get(annotation.value());
+            if (existing != null) {
+                throw new IllegalStateException("duplicate handlers for message type " + annotation.value() + ": "
+                        + existing.handler.getClass().getName() + ", " + type.getName());
+            }
+            map.put(annotation.value(), new TypeLanes(annotation, handler));
+        }
+        this.lanes = Collections.unmodifiableMap(map);
+        for (TypeLanes typeLanes : lanes.values()) {
+            typeLanes.start();
+        }
+        log.info("Message handlers: {}", lanes.keySet());
+    }
+
+    /**
+     * 投递一条消息，不等待处理完成。对应类型的队列满时阻塞
+     *
+     * @return 消息类型没有对应的处理器时返回 false，消息被丢弃
+     */
+    public boolean submit(Message message) throws InterruptedException {
+        return enqueue(message, null);
+    }
+
+    /**
+     * 投递一批消息，等全部处理完成后返回。不同类型、不同 key 的消息并行处理，队列满时阻塞
+     *
+     * @return 成功处理的消息数，不包括没有处理器的和处理器抛出异常的消息
+     */
+    public int dispatch(List<Message> messages) throws InterruptedException {
+        Batch batch = new Batch(messages.size());
+        for (Message message : messages) {
+            if (!enqueue(message, batch)) {
+                batch.done(false);
+            }
+        }
+        batch.latch.await();
+        return batch.succeeded.get();
+    }
+
+    private boolean enqueue(Message message, Batch batch) throws InterruptedException {
+        TypeLanes typeLanes = lanes.get(message.getType());
+        if (typeLanes == null) {
+            unknown.increment();
+            log.warn("No handler found for message type: {}", message.getType());
+            return false;
+        }
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("dispatcher closed");
+            }
+            // 队列满时持锁阻塞，close 等它入队后再放 STOP，工作线程还在运行，不会死锁
+            typeLanes.laneFor(message.getKey()).queue.put(new Work(message, batch));
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * 已注册的消息类型
+     */
+    public Iterable<String> getTypes() {
+        return lanes.keySet();
+    }
+
+    /**
+     * 因没有处理器而丢弃的消息数
+     */
+    public long getUnknownCount() {
+        return unknown.sum();
+    }
+
+    /**
+     * 已处理的消息数，包括处理失败的
+     */
+    public long getProcessedCount(String type) {
+        TypeLanes typeLanes = lanes.get(type);
+        return typeLanes == null ? 0 : typeLanes.processed.sum();
+    }
+
+    /**
+     * 处理器抛出异常的消息数
+     */
+    public long getFailedCount(String type) {
+        TypeLanes typeLanes = lanes.get(type);
+        return typeLanes == null ? 0 : typeLanes.failed.sum();
+    }
+
+    /**
+     * 不再接受新消息，处理完队列中已有的消息后停止工作线程
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        for (TypeLanes typeLanes : lanes.values()) {
+            for (Lane lane : typeLanes.lanes) {
+                lane.queue.put(Work.STOP);
+            }
+        }
+        for (TypeLanes typeLanes : lanes.values()) {
+            for (Lane lane : typeLanes.lanes) {
+                lane.join(TimeUnit.SECONDS.toMillis(30));
+            }
+        }
+    }
+
+    /**
+     * dispatch 的一批消息，每条处理完计数减一
+     */
+    private static final class Batch {
+
+        private final CountDownLatch latch;
+
+        private final AtomicInteger succeeded = new AtomicInteger();
+
+        Batch(int size) {
+            latch = new CountDownLatch(size);
+        }
+
+        void done(boolean success) {
+            if (success) {
+                succeeded.incrementAndGet();
+            }
+            latch.countDown();
+        }
+    }
+
+    private static final class Work {
+
+        /**
+         * 停止工作线程的标记
+         */
+        static final Work STOP = new Work(null, null);
+
+        final Message message;
+
+        final Batch batch;
+
+        Work(Message message, Batch batch) {
+            this.message = message;
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * 一个消息类型的处理器和它的工作线程
+     */
+    private static final class TypeLanes {
+
+        private final BaseMessageHandler handler;
+
+        private final Lane[] lanes;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final LongAdder processed = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        TypeLanes(SourceHandler annotation, BaseMessageHandler handler) {
+            if (annotation.concurrency() < 1 || annotation.queueCapacity() < 1 || annotation.maxBatchSize() < 1) {
+                throw new IllegalArgumentException("invalid @SourceHandler on " + handler.getClass().getName()
+                        + ": concurrency, queueCapacity and maxBatchSize must be positive");
+            }
+            this.handler = handler;
+            this.lanes = new Lane[annotation.concurrency()];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane(this, "message-" + annotation.value() + "-" + i, annotation.queueCapacity(),
+                        annotation.maxBatchSize());
+            }
+        }
+
+        void start() {
+            for (Lane lane : lanes) {
+                lane.start();
+            }
+        }
+
+        Lane laneFor(String key) {
+            if (lanes.length == 1) {
+                return lanes[0];
+            }
+            if (key == null) {
+                return lanes[(next.getAndIncrement() & Integer.MAX_VALUE) % lanes.length];
+            }
+            int h = key.hashCode();
+            return lanes[((h ^ (h >>> 16)) & Integer.MAX_VALUE) % lanes.length];
+        }
+    }
+
+    /**
+     * 一个工作线程，按 FIFO 顺序处理自己队列中的消息
+     */
+    private static final class Lane extends Thread {
+
+        private final TypeLanes owner;
+
+        private final BlockingQueue<Work> queue;
+
+        private final int maxBatchSize;
+
+        Lane(TypeLanes owner, String name, int queueCapacity, int maxBatchSize) {
+            super(name);
+            this.owner = owner;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public void run() {
+            List<Work> works = new ArrayList<>(maxBatchSize);
+            List<Message> messages = new ArrayList<>(maxBatchSize);
+            while (true) {
+                try {
+                    works.add(queue.take());
+                } catch (InterruptedException e) {
+                    abandon(works);
+                    return;
+                }
+                queue.drainTo(works, maxBatchSize - 1);
+                int stopAt = works.indexOf(Work.STOP);
+                List<Work> batch = stopAt < 0 ? works : works.subList(0, stopAt);
+                for (Work work : batch) {
+                    messages.add(work.message);
+                }
+                if (!messages.isEmpty()) {
+                    process(batch, messages);
+                }
+                if (stopAt >= 0) {
+                    abandon(works.subList(stopAt + 1, works.size()));
+                    return;
+                }
+                works.clear();
+                messages.clear();
+            }
+        }
+
+        private void process(List<Work> works, List<Message> messages) {
+            boolean success = false;
+            try {
+                owner.handler.handle(messages);
+                success = true;
+            } catch (Throwable e) {
+                // Error 也不能让工作线程退出，否则之后投递到这个队列的调用方会永远阻塞
+                owner.failed.add(messages.size());
+                log.error("Error handling {} messages, first: {}", messages.size(), messages.get(0), e);
+            } finally {
+                owner.processed.add(messages.size());
+                for (Work work : works) {
+                    if (work.batch != null) {
+                        work.batch.done(success);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 工作线程退出时，把手上和队列中剩下的消息按处理失败通知 dispatch
+         */
+        private void abandon(List<Work> works) {
+            List<Work> rest = new ArrayList<>(works);
+            queue.drainTo(rest);
+            int abandoned = 0;
+            for (Work work : rest) {
+                if (work == Work.STOP) {
+                    continue;
+                }
+                abandoned++;
+                if (work.batch != null) {
+                    work.batch.done(false);
+                }
+            }
+            if (abandoned > 0) {
+                owner.failed.add(abandoned);
+                log.warn("{} stopped with {} unprocessed messages", getName(), abandoned);
+            }
+        }
+    }
+}
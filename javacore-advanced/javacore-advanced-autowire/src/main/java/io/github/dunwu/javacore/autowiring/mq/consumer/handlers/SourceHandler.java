@@ -8,17 +8,35 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * TODO 对注解的行为感到困惑
- * 1.为什么给 Handler 标记了此注解，bean 名称就变成了注解中的参数，例如"SQL"
- *      gpt说是加了显性的配置 HandlerConfig，但是我注掉了还是一样的结果，和项目中的现象符合
- * 2.如果直接把 Handler 的注解去掉，那么不会注册到 messageHandlerMap中，因为不再试一个bean
- *      因为注解 SourceHandler本身继承了@Component，所以要想不依赖注解还能成功注册，需要加上 @Component
- *      此时可以看到，bean的名称就是默认的类名了。
+ * 标注消息处理器处理的消息类型，{@link MessageDispatcher} 启动时按 value 建立 类型 -> 处理器 的映射。
+ * <p>
+ * 注解本身带 @Component，所以标注的类会注册成 bean。Spring 把带 @Component 元注解的注解的 value 属性当作 bean 名称
+ * （AnnotationBeanNameGenerator 的约定），这就是为什么标注后 bean 名称变成了 "SQL"、"XML"，
+ * 和有没有 HandlerConfig 无关。按 bean 名称查找处理器依赖这个巧合，换个注解或者显式指定 bean 名称就找不到了，
+ * 所以分发时直接读注解的 value
  */
 @Component
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface SourceHandler {
+
+    /**
+     * 消息类型，即消息 "类型:内容" 中的类型
+     */
     String value();
-}
 
+    /**
+     * 处理这个类型的线程数。消息按 key 的哈希分到固定的线程，同一个 key 的消息总是顺序处理
+     */
+    int concurrency() default 1;
+
+    /**
+     * 每个线程的待处理队列长度，队列满时投递消息的消费线程阻塞，不再继续拉取消息
+     */
+    int queueCapacity() default 1024;
+
+    /**
+     * 一次交给 {@link BaseMessageHandler#handle(java.util.List)} 的最大消息数
+     */
+    int maxBatchSize() default 256;
+}
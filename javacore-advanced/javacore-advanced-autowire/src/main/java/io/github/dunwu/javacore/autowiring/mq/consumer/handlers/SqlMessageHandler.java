@@ -1,13 +1,9 @@
 package io.github.dunwu.javacore.autowiring.mq.consumer.handlers;
 
-
-import org.springframework.stereotype.Component;
-
-//@SourceHandler("SQL")
-@Component
+@SourceHandler(value = "SQL", concurrency = 4)
 public class SqlMessageHandler implements BaseMessageHandler {
     @Override
-    public void handle() {
-        System.out.println("Handling SQL message.");
+    public void handle(Message message) {
+        System.out.println("Handling SQL message: " + message.getContent());
     }
 }
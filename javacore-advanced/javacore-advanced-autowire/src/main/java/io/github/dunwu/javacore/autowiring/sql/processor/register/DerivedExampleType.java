@@ -0,0 +1,7 @@
+package io.github.dunwu.javacore.autowiring.sql.processor.register;
+
+/**
+ * 示例类型的子类型，没有单独注册处理器，由 ExampleType 的处理器处理
+ */
+public class DerivedExampleType extends ExampleType {
+}
@@ -2,11 +2,12 @@ package io.github.dunwu.javacore.autowiring.sql.processor.register;
 
 
 /**
- * 示例处理器 - 处理类型为 ExampleType
+ * 示例处理器 - 处理类型为 ExampleType 及其子类型
  */
 @ObjectType(clazz = ExampleType.class)
-public class ExampleProcessor {
-    public void process(Object input) {
+public class ExampleProcessor implements Processor<ExampleType> {
+    @Override
+    public void process(ExampleType input) {
         System.out.println("Processing input of type: " + input.getClass().getSimpleName());
     }
 }
@@ -0,0 +1,13 @@
+package io.github.dunwu.javacore.autowiring.sql.processor.register;
+
+/**
+ * 类型化的处理器，配合 @ObjectType(clazz = T.class) 注册后，
+ * 通过 {@link ProcessorRegister#process} 分发 T 及其子类型的对象，调用方不需要强制类型转换
+ *
+ * @param <T> 处理的对象类型
+ */
+@FunctionalInterface
+public interface Processor<T> {
+
+    void process(T input);
+}
@@ -1,24 +1,190 @@
 package io.github.dunwu.javacore.autowiring.sql.processor.register;
 
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Processor 注册器
  * 根据 SQL 类型动态分发到对应处理器
+ * <p>
+ * 1. 按类型层次查找：对象的类没有注册处理器时，依次查找它的父类和接口，离得近的优先，见 {@link #resolve}。
+ * 所以为 SQLExpr 这样的基类或接口注册一个处理器就能处理所有子类型，不需要为每个具体类型都注册一遍；
+ * <p>
+ * 2. 缓存：查找结果缓存在 {@link ClassValue} 中，每个类只沿类型层次查找一次，之后的查找只是读 Class 对象上
+ * 挂着的一个小表，不需要加锁，也不会像共享的 ConcurrentHashMap 那样在多线程下争用；
+ * <p>
+ * 3. 线程安全：注册（启动时由 {@link ProcessorRegistrationInterceptor} 完成）在锁内进行，每次注册生成一个新的不可变快照，
+ * 通过 volatile 字段发布。读取只访问快照，任何线程都能在启动之后安全地读取，注册时缓存随快照一起失效。
  */
 public class ProcessorRegister {
 
-    private static final Map<Type, Object> PROCESSOR_MAP = new HashMap<>();
+    private static final Resolution NONE = new Resolution(null);
+
+    private static volatile Snapshot snapshot = new Snapshot(Collections.<Class<?>, Object>emptyMap());
 
     private ProcessorRegister() {}
 
-    public static void register(Class<?> clazz, Object processor) {
-        PROCESSOR_MAP.put(clazz, processor);
+    public static synchronized void register(Class<?> clazz, Object processor) {
+        if (clazz == null || processor == null) {
+            throw new IllegalArgumentException("clazz and processor must not be null");
+        }
+        Map<Class<?>, Object> processors = new LinkedHashMap<>(snapshot.processors);
+        Object previous = processors.put(clazz, processor);
+        if (previous != null && previous.getClass() != processor.getClass()) {
+            throw new IllegalStateException("duplicate processors for " + clazz.getName() + ": "
+                    + previous.getClass().getName() + ", " + processor.getClass().getName());
+        }
+        snapshot = new Snapshot(Collections.unmodifiableMap(processors));
+    }
+
+    public static <T> void register(Class<T> clazz, Processor<? super T> processor) {
+        register(clazz, (Object) processor);
     }
 
+    /**
+     * 查找处理器，找不到时返回 null。Class 按类型层次查找，其他 Type（例如参数化类型）按原始类型查找
+     */
     public static Object getProcessor(Type clazz) {
-        return PROCESSOR_MAP.get(clazz);
+        Class<?> raw = clazz instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) clazz).getRawType()
+                : clazz instanceof Class ? (Class<?>) clazz : null;
+        if (raw == null) {
+            return null;
+        }
+        return snapshot.resolutions.get(raw).bean;
+    }
+
+    /**
+     * 查找 clazz 类型对象的处理器
+     *
+     * @throws UnsupportedOperationException 没有注册处理器，或者注册的对象没有实现 {@link Processor}
+     */
+    public static <T> Processor<? super T> processorFor(Class<T> clazz) {
+        Resolution resolution = snapshot.resolutions.get(clazz);
+        if (resolution.bean == null) {
+            throw new UnsupportedOperationException("no processor for " + clazz.getName());
+        }
+        if (!(resolution.bean instanceof Processor)) {
+            throw new UnsupportedOperationException(resolution.bean.getClass().getName() + " registered for "
+                    + clazz.getName() + " does not implement Processor");
+        }
+        return resolution.processor;
+    }
+
+    /**
+     * 按 input 的实际类型分发到处理器，热点路径上只有一次 ClassValue 读取和一次接口调用，没有反射和强制类型转换
+     *
+     * @throws UnsupportedOperationException 没有注册处理器，或者注册的对象没有实现 {@link Processor}
+     */
+    public static void process(Object input) {
+        snapshot.resolutions.get(input.getClass()).processor.process(input);
+    }
+
+    /**
+     * 批量分发：连续相同类型的对象复用上一次查到的处理器
+     */
+    public static void processAll(Iterable<?> inputs) {
+        ClassValue<Resolution> resolutions = snapshot.resolutions;
+        Class<?> lastType = null;
+        Processor<Object> processor = null;
+        for (Object input : inputs) {
+            Class<?> type = input.getClass();
+            if (type != lastType) {
+                processor = resolutions.get(type).processor;
+                lastType = type;
+            }
+            processor.process(input);
+        }
+    }
+
+    /**
+     * 当前注册的 类型 -> 处理器，不可变
+     */
+    public static Map<Class<?>, Object> getProcessors() {
+        return snapshot.processors;
+    }
+
+    /**
+     * 按类型层次查找：沿父类链逐级向上，每一级先看类本身，再按广度优先看它声明的接口（及其父接口），
+     * 都没有时最后看 Object。同一距离有多个接口都注册了处理器时，取 implements 中声明在前的
+     */
+    static Object resolve(Map<Class<?>, Object> processors, Class<?> type) {
+        Set<Class<?>> visited = new HashSet<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            Object processor = processors.get(c);
+            if (processor != null) {
+                return processor;
+            }
+            Deque<Class<?>> interfaces = new ArrayDeque<>();
+            Collections.addAll(interfaces, c.getInterfaces());
+            while (!interfaces.isEmpty()) {
+                Class<?> i = interfaces.poll();
+                if (!visited.add(i)) {
+                    continue;
+                }
+                processor = processors.get(i);
+                if (processor != null) {
+                    return processor;
+                }
+                Collections.addAll(interfaces, i.getInterfaces());
+            }
+        }
+        return processors.get(Object.class);
+    }
+
+    /**
+     * 一次查找的结果。没有处理器或者处理器不是 {@link Processor} 时，processor 是一个抛出异常的占位实现，
+     * 分发时不需要判断 null
+     */
+    private static final class Resolution {
+
+        private final Object bean;
+
+        private final Processor<Object> processor;
+
+        @SuppressWarnings("unchecked")
+        Resolution(Object bean) {
+            this.bean = bean;
+            if (bean instanceof Processor) {
+                // 注册时保证了处理器能处理这个类型及其子类型，泛型参数在运行时已擦除
+                this.processor = (Processor<Object>) bean;
+            } else if (bean == null) {
+                this.processor = input -> {
+                    throw new UnsupportedOperationException("no processor for " + input.getClass().getName());
+                };
+            } else {
+                this.processor = input -> {
+                    throw new UnsupportedOperationException(bean.getClass().getName() + " registered for "
+                            + input.getClass().getName() + " does not implement Processor");
+                };
+            }
+        }
+    }
+
+    /**
+     * 不可变的注册表快照和它的查找缓存
+     */
+    private static final class Snapshot {
+
+        private final Map<Class<?>, Object> processors;
+
+        private final ClassValue<Resolution> resolutions;
+
+        Snapshot(Map<Class<?>, Object> processors) {
+            this.processors = processors;
+            this.resolutions = new ClassValue<Resolution>() {
+                @Override
+                protected Resolution computeValue(Class<?> type) {
+                    Object bean = resolve(processors, type);
+                    return bean == null ? NONE : new Resolution(bean);
+                }
+            };
+        }
     }
 }
@@ -4,6 +4,8 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Arrays;
+
 /**
  * 【背景描述】
  *  SQL处理器数量很多，显式注册逻辑复杂，可以通过bean拦截器BeanPostProcessor，在服务启动时注册所有的处理器
@@ -20,6 +22,10 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 
  * 三、无需手动注册：
  * 原本需要手动调用 ProcessorRegister.register 的逻辑，现在完全由 ProcessorRegistrationInterceptor 接管。
+
+ * 四、按类型层次分发：
+ * DerivedExampleType 没有注册处理器，ProcessorRegister.process 沿父类找到 ExampleType 的处理器，
+ * 查找结果按类缓存，分发时不需要强制类型转换。
  */
 @SpringBootApplication
 public class ProcessorRegisterApplication implements CommandLineRunner {
@@ -40,5 +46,9 @@ public class ProcessorRegisterApplication implements CommandLineRunner {
         } else {
             System.out.println("No processor found for type: " + ExampleType.class.getSimpleName());
         }
+
+        // 类型化分发：子类型也能找到处理器
+        ProcessorRegister.process(new DerivedExampleType());
+        ProcessorRegister.processAll(Arrays.asList(new ExampleType(), new DerivedExampleType()));
     }
 }
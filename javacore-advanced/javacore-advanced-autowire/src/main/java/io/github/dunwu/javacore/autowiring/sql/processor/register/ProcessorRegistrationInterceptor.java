@@ -1,6 +1,8 @@
 package io.github.dunwu.javacore.autowiring.sql.processor.register;
 
+import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
 
 /**
@@ -32,7 +34,8 @@ import org.springframework.stereotype.Component;
  * #### 注册流程
  *
  * 1. 定义存储容器：
- *    - 使用 Map<Type, Object> 分别存储：
+ *    - 使用不可变的 Map<Class, Object> 快照存储，注册时整体替换，查找结果按类缓存在 ClassValue 中；
+ *    - 原型系统中分别存储：
  *      - STATEMENT_PROCESSOR_MAP：SQL 语句处理器（如 SELECT、INSERT）。
  *      - SQL_SELECT_QUERY_PROCESSOR_MAP：查询语句处理器。
  *      - TABLE_SOURCE_PROCESSOR_MAP：表源处理器。
@@ -90,8 +93,9 @@ public class ProcessorRegistrationInterceptor implements BeanPostProcessor {
 
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) {
-        // 检查是否标注了 @SQLObjectType 注解
-        ObjectType annotation = bean.getClass().getAnnotation(ObjectType.class);
+        // 检查是否标注了 @SQLObjectType 注解，bean 可能已被代理，从原始类上找
+        ObjectType annotation = AnnotationUtils.findAnnotation(AopProxyUtils.ultimateTargetClass(bean),
+                ObjectType.class);
         if (annotation != null) {
             // 注册到 ProcessorRegister
             ProcessorRegister.register(annotation.clazz(), bean);
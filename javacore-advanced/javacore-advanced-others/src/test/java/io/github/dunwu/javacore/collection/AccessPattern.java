@@ -0,0 +1,54 @@
+package io.github.dunwu.javacore.collection;
+
+import java.util.Random;
+
+/**
+ * 基准测试中访问元素的顺序。访问序列在 Setup 阶段预先生成，测量时只做数组读取，不把随机数生成的开销算进去
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+public enum AccessPattern {
+
+    /**
+     * 按下标（或 key）从小到大依次访问，对 CPU 缓存和预取最友好
+     */
+    SEQUENTIAL,
+
+    /**
+     * 均匀随机访问
+     */
+    RANDOM,
+
+    /**
+     * 90% 的访问落在 10% 的元素上，接近真实业务中的热点数据
+     */
+    HOT;
+
+    /**
+     * 访问序列的长度，2 的幂，取下一个位置时用位与代替取模
+     */
+    static final int LENGTH = 1 << 16;
+
+    /**
+     * 生成长度为 {@link #LENGTH} 的访问序列，每个元素在 [0, size) 之间；种子固定，每次运行的序列相同
+     */
+    int[] indices(int size) {
+        int[] indices = new int[LENGTH];
+        Random random = new Random(42);
+        int hot = Math.max(1, size / 10);
+        for (int i = 0; i < LENGTH; i++) {
+            switch (this) {
+                case SEQUENTIAL:
+                    indices[i] = i % size;
+                    break;
+                case RANDOM:
+                    indices[i] = random.nextInt(size);
+                    break;
+                default:
+                    indices[i] = random.nextInt(10) < 9 ? random.nextInt(hot) : random.nextInt(size);
+                    break;
+            }
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.dunwu.javacore.collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List 实现的单线程基准测试：按下标读取、遍历、逐个追加。
+ * <p>
+ * 代替原来用 System.currentTimeMillis() 计时的 CollectionPerformanceTest：那种写法没有预热，测到的主要是解释执行和 JIT 编译的时间，
+ * 结果又没有被使用，循环可能被整个消除。这里由 JMH 负责预热、多次迭代和独立的 JVM 进程，结果交给 {@link Blackhole}。
+ * <p>
+ * 不是单元测试，通过 main 方法运行，同时输出 GC 分配速率（gc.alloc.rate.norm 即每次操作分配的字节数）：
+ * <pre>
+ * mvn -pl javacore-advanced/javacore-advanced-others test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=io.github.dunwu.javacore.collection.ListBenchmark
+ * </pre>
+ * 多线程下的对比见 javacore-concurrent-base 中的 ConcurrentListBenchmark。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+
+    @Param({"ArrayList", "LinkedList", "Vector", "SynchronizedList", "CopyOnWriteArrayList"})
+    private String type;
+
+    @Param({"16", "1024", "16384"})
+    private int size;
+
+    private Integer[] values;
+
+    private List<Integer> list;
+
+    @Setup
+    public void setUp() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        list = newList();
+        Collections.addAll(list, values);
+    }
+
+    private List<Integer> newList() {
+        switch (type) {
+            case "ArrayList":
+                return new ArrayList<>();
+            case "LinkedList":
+                return new LinkedList<>();
+            case "Vector":
+                return new Vector<>();
+            case "SynchronizedList":
+                return Collections.synchronizedList(new ArrayList<>());
+            case "CopyOnWriteArrayList":
+                return new CopyOnWriteArrayList<>();
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    /**
+     * 按访问模式读取一个元素，LinkedList 的随机读取是 O(n)
+     */
+    @Benchmark
+    public Integer get(Cursor cursor) {
+        return list.get(cursor.next());
+    }
+
+    /**
+     * 用迭代器遍历整个列表，与访问模式无关
+     */
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Integer value : list) {
+            blackhole.consume(value);
+        }
+    }
+
+    /**
+     * 新建列表并追加 size 个元素，包含扩容的开销；元素预先装箱，不计入装箱的开销
+     */
+    @Benchmark
+    public List<Integer> fill() {
+        List<Integer> target = newList();
+        for (Integer value : values) {
+            target.add(value);
+        }
+        return target;
+    }
+
+    /**
+     * 每个线程一份访问序列和读取位置。访问模式只对按下标读取有意义，放在单独的 State 中，遍历和追加不会因此多跑几轮
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        @Param({"SEQUENTIAL", "RANDOM", "HOT"})
+        private AccessPattern pattern;
+
+        private int[] indices;
+
+        private int position;
+
+        @Setup
+        public void setUp(ListBenchmark benchmark) {
+            indices = pattern.indices(benchmark.size);
+        }
+
+        int next() {
+            return indices[position++ & (AccessPattern.LENGTH - 1)];
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ListBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
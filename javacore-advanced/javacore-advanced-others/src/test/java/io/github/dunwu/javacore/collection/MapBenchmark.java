@@ -0,0 +1,161 @@
+package io.github.dunwu.javacore.collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map 实现的单线程基准测试：命中读取、未命中读取、覆盖写入、遍历。
+ * <p>
+ * key 是预先装箱的 Integer，从 {@link #KEY_OFFSET} 开始取值，避开 Integer 缓存（-128 ~ 127），
+ * 读取的 key 与存入的 key 是不同的实例，和真实场景一样需要调用 equals。
+ * 运行方式和 {@link ListBenchmark} 相同，多线程下的对比见 javacore-concurrent-base 中的 ConcurrentMapBenchmark。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+
+    /**
+     * 大于 Integer 缓存的上限，{@link Integer#valueOf(int)} 每次返回新的实例
+     */
+    static final int KEY_OFFSET = 1024;
+
+    @Param({"HashMap", "LinkedHashMap", "TreeMap", "Hashtable", "SynchronizedMap", "ConcurrentHashMap",
+        "ConcurrentSkipListMap"})
+    private String type;
+
+    @Param({"16", "1024", "65536"})
+    private int size;
+
+    private Map<Integer, Integer> map;
+
+    /**
+     * 与 map 中的 key 相等但不是同一个实例
+     */
+    private Integer[] hits;
+
+    /**
+     * map 中不存在的 key
+     */
+    private Integer[] misses;
+
+    @Setup
+    public void setUp() {
+        map = newMap();
+        hits = new Integer[size];
+        misses = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            map.put(Integer.valueOf(KEY_OFFSET + i), i);
+            hits[i] = Integer.valueOf(KEY_OFFSET + i);
+            misses[i] = Integer.valueOf(KEY_OFFSET + size + i);
+        }
+    }
+
+    private Map<Integer, Integer> newMap() {
+        switch (type) {
+            case "HashMap":
+                return new HashMap<>();
+            case "LinkedHashMap":
+                return new LinkedHashMap<>();
+            case "TreeMap":
+                return new TreeMap<>();
+            case "Hashtable":
+                return new Hashtable<>();
+            case "SynchronizedMap":
+                return Collections.synchronizedMap(new HashMap<>());
+            case "ConcurrentHashMap":
+                return new ConcurrentHashMap<>();
+            case "ConcurrentSkipListMap":
+                return new ConcurrentSkipListMap<>();
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public Integer getHit(Cursor cursor) {
+        return map.get(hits[cursor.next()]);
+    }
+
+    @Benchmark
+    public Integer getMiss(Cursor cursor) {
+        return map.get(misses[cursor.next()]);
+    }
+
+    /**
+     * 覆盖已有 key 的值，map 的结构不变
+     */
+    @Benchmark
+    public Integer putExisting(Cursor cursor) {
+        int index = cursor.next();
+        return map.put(hits[index], index);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    /**
+     * 每个线程一份访问序列和读取位置，只有按 key 访问的方法使用
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        @Param({"SEQUENTIAL", "RANDOM", "HOT"})
+        private AccessPattern pattern;
+
+        private int[] indices;
+
+        private int position;
+
+        @Setup
+        public void setUp(MapBenchmark benchmark) {
+            indices = pattern.indices(benchmark.size);
+        }
+
+        int next() {
+            return indices[position++ & (AccessPattern.LENGTH - 1)];
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MapBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
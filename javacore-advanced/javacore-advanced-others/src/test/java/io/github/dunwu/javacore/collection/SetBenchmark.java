@@ -0,0 +1,148 @@
+package io.github.dunwu.javacore.collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Set 实现的单线程基准测试：contains（一半命中一半未命中）、遍历、逐个添加。
+ * <p>
+ * CopyOnWriteArraySet 的 contains 和 add 都是线性扫描，只适合很小的集合，大小取到 4096 为止。
+ * 运行方式和 {@link ListBenchmark} 相同。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SetBenchmark {
+
+    @Param({"HashSet", "LinkedHashSet", "TreeSet", "ConcurrentHashMap.newKeySet", "ConcurrentSkipListSet",
+        "CopyOnWriteArraySet"})
+    private String type;
+
+    @Param({"16", "256", "4096"})
+    private int size;
+
+    private Set<Integer> set;
+
+    /**
+     * 偶数下标的元素在集合中，奇数下标的不在
+     */
+    private Integer[] probes;
+
+    private Integer[] values;
+
+    @Setup
+    public void setUp() {
+        set = newSet();
+        probes = new Integer[size];
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = Integer.valueOf(MapBenchmark.KEY_OFFSET + i * 2);
+            set.add(values[i]);
+            // 与集合中的元素不是同一个实例
+            probes[i] = Integer.valueOf(MapBenchmark.KEY_OFFSET + (i % 2 == 0 ? i : size * 2 + i));
+        }
+    }
+
+    private Set<Integer> newSet() {
+        switch (type) {
+            case "HashSet":
+                return new HashSet<>();
+            case "LinkedHashSet":
+                return new LinkedHashSet<>();
+            case "TreeSet":
+                return new TreeSet<>();
+            case "ConcurrentHashMap.newKeySet":
+                return ConcurrentHashMap.newKeySet();
+            case "ConcurrentSkipListSet":
+                return new ConcurrentSkipListSet<>();
+            case "CopyOnWriteArraySet":
+                return new CopyOnWriteArraySet<>();
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public boolean contains(Cursor cursor) {
+        return set.contains(probes[cursor.next()]);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Integer value : set) {
+            blackhole.consume(value);
+        }
+    }
+
+    /**
+     * 新建集合并添加 size 个元素，包含扩容（或树平衡）的开销
+     */
+    @Benchmark
+    public Set<Integer> fill() {
+        Set<Integer> target = newSet();
+        for (Integer value : values) {
+            target.add(value);
+        }
+        return target;
+    }
+
+    /**
+     * 每个线程一份访问序列和读取位置，只有 contains 使用
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        @Param({"SEQUENTIAL", "RANDOM", "HOT"})
+        private AccessPattern pattern;
+
+        private int[] indices;
+
+        private int position;
+
+        @Setup
+        public void setUp(SetBenchmark benchmark) {
+            indices = pattern.indices(benchmark.size);
+        }
+
+        int next() {
+            return indices[position++ & (AccessPattern.LENGTH - 1)];
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SetBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
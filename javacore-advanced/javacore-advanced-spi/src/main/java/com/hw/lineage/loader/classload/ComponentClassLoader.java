@@ -1,12 +1,24 @@
 package com.hw.lineage.loader.classload;
 
 import com.google.common.collect.Iterators;
+import com.hw.lineage.loader.utils.Preconditions;
 import com.hw.lineage.loader.utils.function.FunctionWithException;
 
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.security.CodeSigner;
+import java.security.CodeSource;
 import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * 一个继承自 {@link URLClassLoader} 的类加载器，用于在给定的类路径中加载类，并根据特定的包名策略
@@ -28,6 +40,10 @@ import java.util.*;
  * 从上图可看出，Owner、Bootstrap、Component之间的调用层次关系。
  *
  * 本类可根据指定的包前缀决定类和资源的加载顺序，从而实现模块级别的隔离和优先级控制。
+ * 包前缀在构造时预先建成 {@link PackagePrefixTrie}，每次加载类/资源时只需沿类名查找一次，与前缀个数无关。
+ *
+ * <p>如果提供了类路径的 {@link JarIndex}，component 中的类直接从索引指向的Jar中读取，
+ * 不在索引中的类直接判定为找不到，不再逐个扫描类路径中的Jar。
  *
  * @description: ComponentClassLoader
  * @author: HamaWhite
@@ -40,19 +56,27 @@ public class ComponentClassLoader extends URLClassLoader {
     // 用于指向"拥有者"的类加载器（ownerClassLoader），即可能是上层的类加载器
     private final ClassLoader ownerClassLoader;
 
-    // 指定需要以owner优先加载的包前缀列表
-    private final String[] ownerFirstPackages;
-    // 指定需要以component优先加载的包前缀列表
-    private final String[] componentFirstPackages;
+    // 需要以owner优先加载的包前缀树
+    private final PackagePrefixTrie<Boolean> ownerFirstClassTrie;
+    // 需要以component优先加载的包前缀树
+    private final PackagePrefixTrie<Boolean> componentFirstClassTrie;
 
-    // 对应资源加载顺序中，owner优先的资源前缀（通过将包名转换成路径前缀获得）
-    private final String[] ownerFirstResourcePrefixes;
-    // 对应资源加载顺序中，component优先的资源前缀（同上）
-    private final String[] componentFirstResourcePrefixes;
+    // 对应资源加载顺序中，owner优先的资源前缀树（通过将包名转换成路径前缀获得）
+    private final PackagePrefixTrie<Boolean> ownerFirstResourceTrie;
+    // 对应资源加载顺序中，component优先的资源前缀树（同上）
+    private final PackagePrefixTrie<Boolean> componentFirstResourceTrie;
 
     // 已知的包前缀与模块名称的映射关系，用于在找不到类时给出更清晰的错误提示。
     // 当尝试加载某个类失败时，如果该类的包前缀在此映射中，则提示用户可能需要引入对应的模块。
-    private final Map<String, String> knownPackagePrefixesModuleAssociation;
+    private final PackagePrefixTrie<String> knownPackagePrefixesModuleAssociation;
+
+    // 类路径的类索引，为 null 时按URLClassLoader的方式逐个Jar查找
+    @Nullable
+    private final JarIndex jarIndex;
+
+    // 按索引读取类时打开的Jar，与类路径一一对应，首次用到时打开，close时关闭
+    @Nullable
+    private final JarFile[] indexedJarFiles;
 
     /**
      * 构造方法
@@ -69,18 +93,55 @@ public class ComponentClassLoader extends URLClassLoader {
             String[] ownerFirstPackages,
             String[] componentFirstPackages,
             Map<String, String> knownPackagePrefixesModuleAssociation) {
+        this(
+                classpath,
+                ownerClassLoader,
+                ownerFirstPackages,
+                componentFirstPackages,
+                knownPackagePrefixesModuleAssociation,
+                null);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param classpath 类路径URL数组，用于指定component层需要加载类和资源的来源
+     * @param ownerClassLoader 指定owner类加载器，即上层类加载器
+     * @param ownerFirstPackages 需要优先从owner加载的包前缀列表
+     * @param componentFirstPackages 需要优先从component加载的包前缀列表
+     * @param knownPackagePrefixesModuleAssociation 已知包前缀到模块名的映射，用于异常提示
+     * @param jarIndex classpath的类索引，为 null 时逐个Jar查找类
+     */
+    public ComponentClassLoader(
+            URL[] classpath,
+            ClassLoader ownerClassLoader,
+            String[] ownerFirstPackages,
+            String[] componentFirstPackages,
+            Map<String, String> knownPackagePrefixesModuleAssociation,
+            @Nullable JarIndex jarIndex) {
         // 调用父类URLClassLoader构造方法，并以PLATFORM_OR_BOOTSTRAP_LOADER为父加载器
         super(classpath, PLATFORM_OR_BOOTSTRAP_LOADER);
+        Preconditions.checkArgument(
+                jarIndex == null || jarIndex.isFor(classpath),
+                "The jar index %s was not built for classpath %s.",
+                jarIndex,
+                Arrays.toString(classpath));
         this.ownerClassLoader = ownerClassLoader;
 
-        this.ownerFirstPackages = ownerFirstPackages;
-        this.componentFirstPackages = componentFirstPackages;
+        this.ownerFirstClassTrie = PackagePrefixTrie.of(ownerFirstPackages);
+        this.componentFirstClassTrie = PackagePrefixTrie.of(componentFirstPackages);
 
-        this.knownPackagePrefixesModuleAssociation = knownPackagePrefixesModuleAssociation;
+        this.knownPackagePrefixesModuleAssociation =
+                PackagePrefixTrie.of(knownPackagePrefixesModuleAssociation);
 
         // 将ownerFirstPackages和componentFirstPackages的包前缀转换成资源路径前缀（将'.'替换为'/'）
-        ownerFirstResourcePrefixes = convertPackagePrefixesToPathPrefixes(ownerFirstPackages);
-        componentFirstResourcePrefixes = convertPackagePrefixesToPathPrefixes(componentFirstPackages);
+        ownerFirstResourceTrie =
+                PackagePrefixTrie.of(convertPackagePrefixesToPathPrefixes(ownerFirstPackages));
+        componentFirstResourceTrie =
+                PackagePrefixTrie.of(convertPackagePrefixesToPathPrefixes(componentFirstPackages));
+
+        this.jarIndex = jarIndex;
+        this.indexedJarFiles = jarIndex == null ? null : new JarFile[classpath.length];
     }
 
     // ----------------------------------------------------------------------------------------------
@@ -123,17 +184,13 @@ public class ComponentClassLoader extends URLClassLoader {
                 return loadClassFromComponentOnly(name, resolve);
             } catch (ClassNotFoundException e) {
                 // 如果在此过程中未能找到类，那么检查knownPackagePrefixesModuleAssociation映射
-                // 如果类的包前缀在映射中存在，则提示用户可能需要添加相应模块到类路径
-                Optional<String> foundAssociatedModule =
-                        knownPackagePrefixesModuleAssociation.entrySet().stream()
-                                .filter(entry -> name.startsWith(entry.getKey()))
-                                .map(Map.Entry::getValue)
-                                .findFirst();
-                if (foundAssociatedModule.isPresent()) {
+                // 如果类的包前缀在映射中存在（取最长的前缀），则提示用户可能需要添加相应模块到类路径
+                String foundAssociatedModule = knownPackagePrefixesModuleAssociation.longestMatch(name);
+                if (foundAssociatedModule != null) {
                     throw new ClassNotFoundException(
                             String.format(
                                     "Class '%s' not found. Perhaps you forgot to add the module '%s' to the classpath?",
-                                    name, foundAssociatedModule.get()),
+                                    name, foundAssociatedModule),
                             e);
                 }
                 // 如果不存在任何匹配的包前缀，则直接抛出ClassNotFoundException
@@ -159,14 +216,14 @@ public class ComponentClassLoader extends URLClassLoader {
      * 判断给定类名是否应该owner优先加载（即类名是否以ownerFirstPackages中的任意前缀开始）
      */
     private boolean isOwnerFirstClass(final String name) {
-        return Arrays.stream(ownerFirstPackages).anyMatch(name::startsWith);
+        return ownerFirstClassTrie.matches(name);
     }
 
     /**
      * 判断给定类名是否应该component优先加载（即类名是否以componentFirstPackages中的任意前缀开始）
      */
     private boolean isComponentFirstClass(final String name) {
-        return Arrays.stream(componentFirstPackages).anyMatch(name::startsWith);
+        return componentFirstClassTrie.matches(name);
     }
 
     /**
@@ -217,6 +274,138 @@ public class ComponentClassLoader extends URLClassLoader {
         }
     }
 
+    // ----------------------------------------------------------------------------------------------
+    // Indexed class loading
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * 在component的类路径中查找类。有类索引时直接读取索引指向的Jar，不在索引中的类立即抛出异常；
+     * 没有类索引时由URLClassLoader按类路径顺序查找。
+     *
+     * @param name 类的全限定名
+     * @return 定义好的Class对象
+     * @throws ClassNotFoundException 类路径中没有该类
+     */
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        if (jarIndex == null) {
+            return super.findClass(name);
+        }
+        int jar = jarIndex.jarOf(name);
+        if (jar < 0) {
+            throw new ClassNotFoundException(name);
+        }
+        try {
+            return defineIndexedClass(name, jar);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    /**
+     * 从类路径中第jar个Jar读取并定义类，CodeSource与包定义都和URLClassLoader加载时一致。
+     * 索引建立之后Jar中的条目被删除时，回退到按类路径顺序查找。
+     */
+    private Class<?> defineIndexedClass(final String name, final int jar)
+            throws IOException, ClassNotFoundException {
+        JarFile jarFile = indexedJarFile(jar);
+        JarEntry entry = jarFile.getJarEntry(name.replace('.', '/').concat(".class"));
+        if (entry == null) {
+            return super.findClass(name);
+        }
+
+        byte[] bytes;
+        try (InputStream in = jarFile.getInputStream(entry)) {
+            bytes = readFully(in, entry.getSize());
+        }
+
+        URL jarUrl = jarIndex.getJar(jar);
+        int lastDot = name.lastIndexOf('.');
+        if (lastDot > 0) {
+            definePackageIfAbsent(name.substring(0, lastDot), jarFile.getManifest(), jarUrl);
+        }
+        return defineClass(name, bytes, 0, bytes.length, new CodeSource(jarUrl, (CodeSigner[]) null));
+    }
+
+    /**
+     * 返回类路径中第jar个Jar对应的JarFile，首次调用时打开
+     */
+    private JarFile indexedJarFile(final int jar) throws IOException {
+        synchronized (indexedJarFiles) {
+            JarFile jarFile = indexedJarFiles[jar];
+            if (jarFile == null) {
+                try {
+                    jarFile = new JarFile(new File(jarIndex.getJar(jar).toURI()), false);
+                } catch (URISyntaxException e) {
+                    throw new IOException(e);
+                }
+                indexedJarFiles[jar] = jarFile;
+            }
+            return jarFile;
+        }
+    }
+
+    /**
+     * 与URLClassLoader相同：包第一次出现时按Jar的清单定义包信息。
+     * 不同类的加载可以并行，两个线程同时定义同一个包时后定义的会失败，此时包已存在，忽略即可。
+     */
+    @SuppressWarnings("deprecation")
+    private void definePackageIfAbsent(String packageName, @Nullable Manifest manifest, URL jarUrl) {
+        if (getPackage(packageName) != null) {
+            return;
+        }
+        try {
+            if (manifest != null) {
+                definePackage(packageName, manifest, jarUrl);
+            } else {
+                definePackage(packageName, null, null, null, null, null, null, null);
+            }
+        } catch (IllegalArgumentException e) {
+            if (getPackage(packageName) == null) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 读取输入流的全部内容，size为条目大小，未知时为 -1
+     */
+    private static byte[] readFully(InputStream in, long size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size > 0 ? (int) size : 8192);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 关闭按索引读取类时打开的Jar，再关闭URLClassLoader自身
+     */
+    @Override
+    public void close() throws IOException {
+        IOException exception = null;
+        if (indexedJarFiles != null) {
+            synchronized (indexedJarFiles) {
+                for (int i = 0; i < indexedJarFiles.length; i++) {
+                    if (indexedJarFiles[i] != null) {
+                        try {
+                            indexedJarFiles[i].close();
+                        } catch (IOException e) {
+                            exception = e;
+                        }
+                        indexedJarFiles[i] = null;
+                    }
+                }
+            }
+        }
+        super.close();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
     // ----------------------------------------------------------------------------------------------
     // Resource loading
     // ----------------------------------------------------------------------------------------------
@@ -270,7 +459,7 @@ public class ComponentClassLoader extends URLClassLoader {
      * @param name 资源名称
      */
     private boolean isOwnerFirstResource(final String name) {
-        return Arrays.stream(ownerFirstResourcePrefixes).anyMatch(name::startsWith);
+        return ownerFirstResourceTrie.matches(name);
     }
 
     /**
@@ -279,7 +468,7 @@ public class ComponentClassLoader extends URLClassLoader {
      * @param name 资源名称
      */
     private boolean isComponentFirstResource(final String name) {
-        return Arrays.stream(componentFirstResourcePrefixes).anyMatch(name::startsWith);
+        return componentFirstResourceTrie.matches(name);
     }
 
     /**
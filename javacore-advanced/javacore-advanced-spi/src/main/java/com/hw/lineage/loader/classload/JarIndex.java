@@ -0,0 +1,323 @@
+package com.hw.lineage.loader.classload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * 一组Jar文件的类索引：类的全限定名 -> 包含该类的Jar在类路径中的位置。
+ *
+ * <p>{@link java.net.URLClassLoader} 查找一个类时会按类路径顺序依次打开并查找每个Jar，插件依赖较多时，
+ * 类在靠后的Jar中或根本不存在（owner-first、component-first 的回退都会走到这里）都要付出扫描全部Jar的代价。
+ * {@link ComponentClassLoader} 持有索引后，类直接从索引指向的Jar中读取，不在索引中的类立即抛出
+ * {@link ClassNotFoundException}，不再扫描。
+ *
+ * <p>索引可以持久化到文件（见 {@link #loadOrBuild}），文件中记录了每个Jar的路径、大小和修改时间，
+ * 重启时Jar没有变化就直接读取索引，不必再打开Jar列出条目；任何一个Jar变化都会重建索引。
+ *
+ * <p>只有URLClassLoader按Jar条目就能确定类来源时才能建立索引，以下情况返回 null，由类加载器按原方式查找：
+ * 类路径中有非本地文件或目录、Jar被签名、Jar是 Multi-Release 的、或者Jar清单中声明了 Class-Path。
+ *
+ * @description: JarIndex
+ * @author: HamaWhite
+ */
+public final class JarIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JarIndex.class);
+
+    // 索引文件头，"JIDX"
+    private static final int MAGIC = 0x4A494458;
+
+    private static final int VERSION = 1;
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    // 类路径，与创建类加载器时的URL数组一致，索引中的位置指向这里
+    private final URL[] jars;
+
+    // 建立索引时每个Jar的文件大小和修改时间，用于判断索引是否过期
+    private final long[] sizes;
+    private final long[] lastModified;
+
+    // 类的全限定名 -> Jar在jars中的位置，同名类以类路径中靠前的Jar为准，与URLClassLoader一致
+    private final Map<String, Integer> classToJar;
+
+    private JarIndex(URL[] jars, long[] sizes, long[] lastModified, Map<String, Integer> classToJar) {
+        this.jars = jars;
+        this.sizes = sizes;
+        this.lastModified = lastModified;
+        this.classToJar = classToJar;
+    }
+
+    /**
+     * 优先从indexFile读取索引，文件不存在、损坏或者与jars不一致时重新扫描Jar建立索引并写回indexFile。
+     * 读写索引文件失败只记录日志，不影响插件加载。
+     *
+     * @param jars 类路径
+     * @param indexFile 索引文件，为 null 时不持久化
+     * @return 索引，无法建立索引时返回 null
+     */
+    @Nullable
+    public static JarIndex loadOrBuild(URL[] jars, @Nullable Path indexFile) {
+        if (indexFile != null && Files.isRegularFile(indexFile)) {
+            try {
+                JarIndex index = read(indexFile);
+                if (index.isUpToDate(jars)) {
+                    return index;
+                }
+                LOG.debug("Jar index {} is out of date, rebuilding.", indexFile);
+            } catch (IOException e) {
+                LOG.warn("Failed to read jar index {}, rebuilding.", indexFile, e);
+            }
+        }
+
+        JarIndex index;
+        try {
+            index = build(jars);
+        } catch (IOException e) {
+            LOG.warn("Failed to build jar index for {}.", (Object) jars, e);
+            return null;
+        }
+        if (index != null && indexFile != null) {
+            try {
+                index.write(indexFile);
+            } catch (IOException e) {
+                LOG.warn("Failed to write jar index {}.", indexFile, e);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 扫描jars中每个Jar的条目建立索引
+     *
+     * @return 索引，类路径不满足建立索引的条件时返回 null
+     * @throws IOException 读取Jar失败
+     */
+    @Nullable
+    public static JarIndex build(URL[] jars) throws IOException {
+        int n = jars.length;
+        long[] sizes = new long[n];
+        long[] lastModified = new long[n];
+        Map<String, Integer> classToJar = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            File file = toJarFile(jars[i]);
+            if (file == null) {
+                return null;
+            }
+            // 先记录文件信息再读取，读取期间Jar被修改时，下次启动会认为索引过期
+            sizes[i] = file.length();
+            lastModified[i] = file.lastModified();
+
+            try (JarFile jarFile = new JarFile(file, false)) {
+                if (!isIndexable(jarFile)) {
+                    return null;
+                }
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    String entryName = entries.nextElement().getName();
+                    if (entryName.endsWith(CLASS_SUFFIX)
+                            && !entryName.startsWith("META-INF/")
+                            && !entryName.endsWith("module-info.class")) {
+                        String className = entryName
+                                .substring(0, entryName.length() - CLASS_SUFFIX.length())
+                                .replace('/', '.');
+                        classToJar.putIfAbsent(className, i);
+                    } else if (isSignatureFile(entryName)) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return new JarIndex(jars.clone(), sizes, lastModified, classToJar);
+    }
+
+    /**
+     * 返回包含className的Jar在类路径中的位置，不在任何Jar中时返回 -1
+     */
+    public int jarOf(String className) {
+        Integer jar = classToJar.get(className);
+        return jar == null ? -1 : jar;
+    }
+
+    /**
+     * 返回类路径中第position个Jar的URL
+     */
+    public URL getJar(int position) {
+        return jars[position];
+    }
+
+    /**
+     * 索引的类路径是否与jars相同
+     */
+    boolean isFor(URL[] jars) {
+        if (jars.length != this.jars.length) {
+            return false;
+        }
+        for (int i = 0; i < jars.length; i++) {
+            if (!jars[i].toString().equals(this.jars[i].toString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 索引的类路径与jars相同，并且每个Jar的大小和修改时间都没有变化
+     */
+    boolean isUpToDate(URL[] jars) {
+        if (!isFor(jars)) {
+            return false;
+        }
+        for (int i = 0; i < jars.length; i++) {
+            File file = toJarFile(jars[i]);
+            if (file == null || file.length() != sizes[i] || file.lastModified() != lastModified[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ----------------------------------------------------------------------------------------------
+    // Persistence
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * 将索引写入file。先写临时文件再重命名，其他进程不会读到写了一半的索引
+     */
+    void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out =
+                         new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(jars.length);
+                for (int i = 0; i < jars.length; i++) {
+                    out.writeUTF(jars[i].toString());
+                    out.writeLong(sizes[i]);
+                    out.writeLong(lastModified[i]);
+                }
+                out.writeInt(classToJar.size());
+                for (Map.Entry<String, Integer> entry : classToJar.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue());
+                }
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 从file读取索引
+     *
+     * @throws IOException 文件不是索引文件、版本不符或者内容损坏
+     */
+    static JarIndex read(Path file) throws IOException {
+        try (DataInputStream in =
+                     new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a jar index file or unsupported version: " + file);
+            }
+            int n = in.readInt();
+            URL[] jars = new URL[n];
+            long[] sizes = new long[n];
+            long[] lastModified = new long[n];
+            for (int i = 0; i < n; i++) {
+                jars[i] = new URL(in.readUTF());
+                sizes[i] = in.readLong();
+                lastModified[i] = in.readLong();
+            }
+            int classes = in.readInt();
+            Map<String, Integer> classToJar = new HashMap<>(classes * 4 / 3 + 1);
+            for (int i = 0; i < classes; i++) {
+                String className = in.readUTF();
+                int jar = in.readInt();
+                if (jar < 0 || jar >= n) {
+                    throw new IOException("Corrupted jar index file: " + file);
+                }
+                classToJar.put(className, jar);
+            }
+            return new JarIndex(jars, sizes, lastModified, classToJar);
+        }
+    }
+
+    // ----------------------------------------------------------------------------------------------
+    // Utils
+    // ----------------------------------------------------------------------------------------------
+
+    /**
+     * 将URL转换为本地Jar文件，不是本地的常规文件时返回 null
+     */
+    @Nullable
+    private static File toJarFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        File file;
+        try {
+            file = Paths.get(url.toURI()).toFile();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Jar的清单中声明了 Class-Path 时，URLClassLoader还会从引用的Jar中加载类；
+     * Multi-Release Jar中同一个类在不同Java版本下来自不同条目。这两种情况都不能只按条目名建立索引
+     */
+    private static boolean isIndexable(JarFile jarFile) throws IOException {
+        Manifest manifest = jarFile.getManifest();
+        if (manifest == null) {
+            return true;
+        }
+        Attributes attributes = manifest.getMainAttributes();
+        String classPath = attributes.getValue(Attributes.Name.CLASS_PATH);
+        return (classPath == null || classPath.trim().isEmpty())
+                && !"true".equalsIgnoreCase(attributes.getValue("Multi-Release"));
+    }
+
+    /**
+     * 签名Jar中的类需要校验签名，交给URLClassLoader加载
+     */
+    private static boolean isSignatureFile(String entryName) {
+        return entryName.startsWith("META-INF/") && entryName.endsWith(".SF");
+    }
+
+    @Override
+    public String toString() {
+        return "JarIndex{" + "jars=" + jars.length + ", classes=" + classToJar.size() + '}';
+    }
+}
@@ -0,0 +1,130 @@
+package com.hw.lineage.loader.classload;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 包前缀（或资源路径前缀）的字符前缀树，用于 {@link ComponentClassLoader} 在每次加载类/资源时
+ * 判断名称命中了哪个前缀。
+ *
+ * <p>与逐个前缀调用 {@code name.startsWith(prefix)} 相比，一次查找只需沿名称的字符向下走一遍树，
+ * 耗时只与命中的前缀长度有关，与前缀个数无关，也不会像 {@code Arrays.stream(...).anyMatch(...)}
+ * 那样在每次类加载时创建流对象。
+ *
+ * <p>树在构造时建好，之后只读，可以被多个线程同时查询。
+ *
+ * @description: PackagePrefixTrie
+ * @author: HamaWhite
+ */
+final class PackagePrefixTrie<V> {
+
+    private final Node<V> root = new Node<>();
+
+    private PackagePrefixTrie() {
+    }
+
+    /**
+     * 由前缀数组创建只用于判断是否命中的前缀树
+     *
+     * @param prefixes 前缀数组，例如：["com.example", "org.apache"]
+     */
+    static PackagePrefixTrie<Boolean> of(String[] prefixes) {
+        PackagePrefixTrie<Boolean> trie = new PackagePrefixTrie<>();
+        for (String prefix : prefixes) {
+            trie.put(prefix, Boolean.TRUE);
+        }
+        return trie;
+    }
+
+    /**
+     * 由 前缀 -> 值 的映射创建前缀树，查找时返回命中的最长前缀对应的值
+     */
+    static <V> PackagePrefixTrie<V> of(Map<String, V> prefixes) {
+        PackagePrefixTrie<V> trie = new PackagePrefixTrie<>();
+        prefixes.forEach(trie::put);
+        return trie;
+    }
+
+    private void put(String prefix, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.getOrAddChild(prefix.charAt(i));
+        }
+        node.value = value;
+    }
+
+    /**
+     * 判断 name 是否以任意一个前缀开头，等价于 {@code Arrays.stream(prefixes).anyMatch(name::startsWith)}
+     */
+    boolean matches(String name) {
+        Node<V> node = root;
+        if (node.value != null) {
+            return true;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            node = node.child(name.charAt(i));
+            if (node == null) {
+                return false;
+            }
+            if (node.value != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 返回 name 命中的最长前缀对应的值，没有命中时返回 null
+     */
+    V longestMatch(String name) {
+        Node<V> node = root;
+        V match = node.value;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.child(name.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                match = node.value;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * 树节点。包名中同一位置出现的字符种类很少，子节点用两个并行数组按插入顺序保存，线性查找即可
+     */
+    private static final class Node<V> {
+
+        private static final char[] NO_KEYS = new char[0];
+
+        private char[] keys = NO_KEYS;
+
+        private Node<V>[] children;
+
+        private V value;
+
+        private Node<V> child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Node<V> getOrAddChild(char c) {
+            Node<V> child = child(c);
+            if (child == null) {
+                int n = keys.length;
+                keys = Arrays.copyOf(keys, n + 1);
+                children = n == 0 ? new Node[1] : Arrays.copyOf(children, n + 1);
+                keys[n] = c;
+                children[n] = child = new Node<>();
+            }
+            return child;
+        }
+    }
+}
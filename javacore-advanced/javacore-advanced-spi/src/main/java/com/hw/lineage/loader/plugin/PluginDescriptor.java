@@ -1,5 +1,9 @@
 package com.hw.lineage.loader.plugin;
 
+import com.hw.lineage.loader.classload.JarIndex;
+
+import javax.annotation.Nullable;
+
 import java.net.URL;
 import java.util.Arrays;
 
@@ -10,6 +14,7 @@ import java.util.Arrays;
  * 1. 插件的唯一标识符（pluginId）
  * 2. 插件所需加载资源的URL数组（通常是JAR文件的URL）
  * 3. 一组排除加载的类名或模式（loaderExcludePatterns），用于控制类加载行为。
+ * 4. 可选的类索引（jarIndex），插件类加载器据此直接定位类所在的Jar。
  *
  * @description: PluginDescriptor为插件提供描述性元信息的类，使插件加载器（如PluginLoader）可以根据这些信息定位并加载插件的资源与类。
  * @author: HamaWhite
@@ -38,6 +43,12 @@ public class PluginDescriptor {
      */
     private final String[] loaderExcludePatterns;
 
+    /**
+     * pluginResourceURLs的类索引，为 null 时插件类加载器按URL顺序逐个Jar查找类。
+     */
+    @Nullable
+    private final JarIndex jarIndex;
+
     /**
      * 构造方法，用于创建一个插件描述符实例。
      *
@@ -47,9 +58,26 @@ public class PluginDescriptor {
      */
     public PluginDescriptor(
             String pluginId, URL[] pluginResourceURLs, String[] loaderExcludePatterns) {
+        this(pluginId, pluginResourceURLs, loaderExcludePatterns, null);
+    }
+
+    /**
+     * 构造方法，用于创建一个带类索引的插件描述符实例。
+     *
+     * @param pluginId 插件的唯一标识符
+     * @param pluginResourceURLs 插件资源URL数组（指向该插件的所有相关JAR文件和资源文件）
+     * @param loaderExcludePatterns 类加载排除模式数组，用于控制类的加载源
+     * @param jarIndex pluginResourceURLs的类索引，可以为 null
+     */
+    public PluginDescriptor(
+            String pluginId,
+            URL[] pluginResourceURLs,
+            String[] loaderExcludePatterns,
+            @Nullable JarIndex jarIndex) {
         this.pluginId = pluginId;
         this.pluginResourceURLs = pluginResourceURLs;
         this.loaderExcludePatterns = loaderExcludePatterns;
+        this.jarIndex = jarIndex;
     }
 
     /**
@@ -79,6 +107,16 @@ public class PluginDescriptor {
         return loaderExcludePatterns;
     }
 
+    /**
+     * 获取插件的类索引。
+     *
+     * @return pluginResourceURLs的类索引，没有时返回 null
+     */
+    @Nullable
+    public JarIndex getJarIndex() {
+        return jarIndex;
+    }
+
     /**
      * 返回该PluginDescriptor的字符串表示，包括插件ID、资源URL列表和排除模式列表，便于日志与调试。
      *
@@ -94,6 +132,8 @@ public class PluginDescriptor {
                 + Arrays.toString(pluginResourceURLs)
                 + ", loaderExcludePatterns="
                 + Arrays.toString(loaderExcludePatterns)
+                + ", jarIndex="
+                + jarIndex
                 + '}';
     }
 }
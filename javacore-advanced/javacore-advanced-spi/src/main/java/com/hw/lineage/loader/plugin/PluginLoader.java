@@ -1,6 +1,7 @@
 package com.hw.lineage.loader.plugin;
 
 import com.hw.lineage.loader.classload.ComponentClassLoader;
+import com.hw.lineage.loader.classload.JarIndex;
 import com.hw.lineage.loader.classload.TemporaryClassLoaderContext;
 import com.hw.lineage.loader.plugin.manager.PluginManager;
 
@@ -8,6 +9,8 @@ import com.hw.lineage.loader.utils.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -65,7 +68,7 @@ public class PluginLoader implements AutoCloseable {
      * <p>流程：
      * 1. 从pluginDescriptor中获取插件资源URL以及需要排除或优先父加载的类模式。
      * 2. 利用ArrayUtils.concat将始终父加载模式与插件自身排除模式合并为一组模式。
-     * 3. 使用合并后的模式创建PluginClassLoader实例。
+     * 3. 使用合并后的模式以及插件的类索引（如果有）创建PluginClassLoader实例。
      *
      * @param pluginDescriptor 插件描述符，包含插件资源URL和排除模式
      * @param parentClassLoader 父类加载器，用于在插件类加载器无法找到类时继续委派加载
@@ -80,7 +83,8 @@ public class PluginLoader implements AutoCloseable {
                 pluginDescriptor.getPluginResourceURLs(),
                 parentClassLoader,
                 ArrayUtils.concat(
-                        alwaysParentFirstPatterns, pluginDescriptor.getLoaderExcludePatterns()));
+                        alwaysParentFirstPatterns, pluginDescriptor.getLoaderExcludePatterns()),
+                pluginDescriptor.getJarIndex());
     }
 
     /**
@@ -217,18 +221,21 @@ public class PluginLoader implements AutoCloseable {
          * @param pluginResourceURLs    插件资源URL数组（通常是该插件的JAR文件路径）
          * @param flinkClassLoader      父类加载器（通常为Flink的类加载器或系统类加载器）
          * @param allowedFlinkPackages  允许从父类加载器加载的类前缀数组（白名单）
+         * @param jarIndex              插件资源URL的类索引，可以为 null
          */
         PluginClassLoader(
                 URL[] pluginResourceURLs,
                 ClassLoader flinkClassLoader,
-                String[] allowedFlinkPackages) {
-            // 调用父类ComponentClassLoader构造方法，传入插件URL、父类加载器、父优先包列表、组件优先包列表、以及空的已知模块映射
+                String[] allowedFlinkPackages,
+                @Nullable JarIndex jarIndex) {
+            // 调用父类ComponentClassLoader构造方法，传入插件URL、父类加载器、父优先包列表、组件优先包列表、空的已知模块映射以及类索引
             super(
                     pluginResourceURLs,
                     flinkClassLoader,
                     allowedFlinkPackages,
                     new String[0],
-                    Collections.emptyMap());
+                    Collections.emptyMap(),
+                    jarIndex);
         }
     }
 }
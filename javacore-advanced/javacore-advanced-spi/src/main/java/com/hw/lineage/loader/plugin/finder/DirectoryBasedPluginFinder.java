@@ -1,8 +1,11 @@
 package com.hw.lineage.loader.plugin.finder;
 
+import com.hw.lineage.loader.classload.JarIndex;
 import com.hw.lineage.loader.utils.function.FunctionUtils;
 import com.hw.lineage.loader.plugin.PluginDescriptor;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -11,6 +14,7 @@ import java.nio.file.PathMatcher;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -38,6 +42,12 @@ import java.util.stream.Stream;
  *            ... （其他插件的目录）
  * </pre>
  *
+ * <p>各插件子目录相互独立，查找时并行处理，返回结果按插件ID排序。
+ *
+ * <p>如果指定了索引目录（jarIndexDir），会为每个插件建立 {@link JarIndex} 并保存为
+ * {@code jarIndexDir/<插件ID>.idx}，重启时插件的Jar没有变化就直接读取索引，
+ * 插件类加载器按索引定位类，不再逐个扫描Jar。
+ *
  * @description: DirectoryBasedPluginFinder 通过扫描指定的插件根目录来查找插件子目录，并为每个子目录创建相应的
  * PluginDescriptor对象，描述该插件的Jar路径信息。
  *
@@ -63,24 +73,43 @@ public class DirectoryBasedPluginFinder implements PluginFinder {
      */
     private final PathMatcher jarFileMatcher;
 
+    /**
+     * 插件类索引文件的存放目录，为 null 时不建立类索引。
+     */
+    @Nullable
+    private final Path jarIndexDir;
+
     /**
      * 构造方法
      *
      * @param pluginsRootDir 插件根目录的Path实例。该目录下的子目录将被视为插件目录。
      */
     public DirectoryBasedPluginFinder(Path pluginsRootDir) {
+        this(pluginsRootDir, null);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param pluginsRootDir 插件根目录的Path实例。该目录下的子目录将被视为插件目录。
+     * @param jarIndexDir 插件类索引文件的存放目录，不存在时自动创建；为 null 时不建立类索引。
+     *                    不要放在pluginsRootDir下，否则会被当作插件目录。
+     */
+    public DirectoryBasedPluginFinder(Path pluginsRootDir, @Nullable Path jarIndexDir) {
         this.pluginsRootDir = pluginsRootDir;
         // 使用文件系统的PathMatcher，根据JAR_MATCHER_PATTERN创建一个匹配.jar文件的匹配器
         this.jarFileMatcher = pluginsRootDir.getFileSystem().getPathMatcher(JAR_MATCHER_PATTERN);
+        this.jarIndexDir = jarIndexDir;
     }
 
     /**
      * 从插件根目录中查找所有的插件。
      * 实现过程：
      * 1. 检查pluginsRootDir是否为一个有效的目录。
-     * 2. 列出该目录下的所有子目录，每个子目录代表一个插件。
-     * 3. 对每个子目录调用createPluginDescriptorForSubDirectory方法创建一个PluginDescriptor。
-     * 4. 将所有PluginDescriptor收集到一个集合中返回。
+     * 2. 列出该目录下的所有子目录，每个子目录代表一个插件，按目录名排序。
+     * 3. 并行地对每个子目录调用createPluginDescriptorForSubDirectory方法创建一个PluginDescriptor，
+     *    遍历目录和建立类索引都是IO密集的，插件较多时串行处理是启动耗时的主要来源。
+     * 4. 将所有PluginDescriptor按子目录的顺序收集到一个集合中返回。
      *
      * @return 包含所有已发现插件描述符的集合
      * @throws IOException 当pluginsRootDir不存在或无法访问时抛出
@@ -94,23 +123,31 @@ public class DirectoryBasedPluginFinder implements PluginFinder {
         }
 
         // 使用Files.list列出pluginsRootDir下的所有文件和子目录，并得到一个Stream<Path>
+        List<Path> subDirectories;
         try (Stream<Path> stream = Files.list(pluginsRootDir)) {
-            return stream
+            subDirectories = stream
                     // 仅保留子目录，因为每个子目录代表一个插件
                     .filter(Files::isDirectory)
-                    // 对每个子目录调用createPluginDescriptorForSubDirectory创建插件描述符
-                    // FunctionUtils.uncheckedFunction用于包装异常，使lambda中抛出的IOException能被安全处理
-                    .map(FunctionUtils.uncheckedFunction(this::createPluginDescriptorForSubDirectory))
-                    // 将结果收集为一个List
+                    // 按目录名排序，保证并行处理后结果顺序稳定
+                    .sorted()
                     .collect(Collectors.toList());
         }
+
+        // Files.list的流无法预知大小，并行拆分效果很差，先收集到List再并行处理
+        return subDirectories.parallelStream()
+                // 对每个子目录调用createPluginDescriptorForSubDirectory创建插件描述符
+                // FunctionUtils.uncheckedFunction用于包装异常，使lambda中抛出的IOException能被安全处理
+                .map(FunctionUtils.uncheckedFunction(this::createPluginDescriptorForSubDirectory))
+                // 将结果按子目录的顺序收集为一个List
+                .collect(Collectors.toList());
     }
 
     /**
      * 为给定的插件子目录创建一个PluginDescriptor。过程如下：
      * <p>1. 调用createJarURLsFromDirectory方法递归查找该目录中的所有jar文件，并转换为URL[]。
      * <p>2. 对URL进行排序（按URL字符串排序）以确保稳定和可重复的加载顺序。
-     * <p>3. 使用子目录名称作为插件ID构造PluginDescriptor对象。
+     * <p>3. 指定了索引目录时，读取或建立该插件的类索引。
+     * <p>4. 使用子目录名称作为插件ID构造PluginDescriptor对象。
      *
      * @param subDirectory 一个插件子目录的Path对象
      * @return 对应插件的PluginDescriptor对象
@@ -123,9 +160,16 @@ public class DirectoryBasedPluginFinder implements PluginFinder {
         // 按URL的字符串形式排序，以确保确定性
         Arrays.sort(urls, Comparator.comparing(URL::toString));
 
+        String pluginId = subDirectory.getFileName().toString();
+        // 索引文件以插件ID命名，Jar没有变化时直接读取，否则重新建立
+        JarIndex jarIndex =
+                jarIndexDir == null
+                        ? null
+                        : JarIndex.loadOrBuild(urls, jarIndexDir.resolve(pluginId + ".idx"));
+
         // 使用子目录名称作为插件ID创建PluginDescriptor
         // 这里的构造函数传入了"new String[0]"，表示此处没有额外的非jar资源
-        return new PluginDescriptor(subDirectory.getFileName().toString(), urls, new String[0]);
+        return new PluginDescriptor(pluginId, urls, new String[0], jarIndex);
     }
 
     /**
@@ -6,6 +6,8 @@ import com.hw.lineage.loader.plugin.PluginLoader;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 默认的 {@link PluginManager} 实现类。
@@ -13,6 +15,10 @@ import java.util.*;
  * <p>该类通过持有一组插件描述符（{@link PluginDescriptor}）对象，以及一个父类加载器（parentClassLoader），
  * 来为每个插件创建各自独立的类加载器（{@link PluginLoader}），从而实现插件的隔离加载。
  *
+ * <p>每个插件的PluginLoader在第一次 {@link #load} 时创建，之后的调用复用同一个类加载器，
+ * 已加载的类不会被重复加载，同一插件对不同SPI的实现也处于同一个类加载器中。
+ * 不再使用时调用 {@link #close()} 关闭所有插件的类加载器。
+ *
  * <p>此实现是线程安全的（@ThreadSafe注解表明该类的实例可安全地在多线程环境中使用），
  * 多线程同时调用其方法不会导致内部数据不一致。
  *
@@ -20,7 +26,7 @@ import java.util.*;
  * @author: HamaWhite
  */
 @ThreadSafe
-public class DefaultPluginManager implements PluginManager {
+public class DefaultPluginManager implements PluginManager, AutoCloseable {
 
     /**
      * parentClassLoader是所有插件类加载器的父加载器。
@@ -49,6 +55,17 @@ public class DefaultPluginManager implements PluginManager {
      */
     private final String[] alwaysParentFirstPatterns;
 
+    /**
+     * pluginLoaders缓存已经创建的插件加载器，键为插件ID。
+     * 每个插件只创建一次PluginLoader，由computeIfAbsent保证并发调用load时也不会重复创建。
+     */
+    private final ConcurrentMap<String, PluginLoader> pluginLoaders = new ConcurrentHashMap<>();
+
+    /**
+     * 是否已经关闭，关闭后不能再加载插件。
+     */
+    private volatile boolean closed;
+
     /**
      * 使用指定的插件描述符集合和父加载器模式初始化默认插件管理器。
      * 这里使用当前类的类加载器作为parentClassLoader。
@@ -85,7 +102,7 @@ public class DefaultPluginManager implements PluginManager {
      *
      * <p>该方法的流程：
      * 1. 创建一个Map，键为插件ID，值为Iterator<P>，其中P是服务接口类型。
-     * 2. 遍历所有插件描述符，为每个插件创建相应的PluginLoader。
+     * 2. 遍历所有插件描述符，获取每个插件的PluginLoader，第一次使用时创建，之后复用。
      * 3. 调用PluginLoader的load方法，为给定的service接口加载该插件中对service的所有实现类，并返回一个迭代器。
      * 4. 将插件ID与相应的实现类迭代器放入map中。
      *
@@ -97,15 +114,23 @@ public class DefaultPluginManager implements PluginManager {
      */
     @Override
     public <P> Map<String, Iterator<P>> load(Class<P> service) {
+        if (closed) {
+            throw new IllegalStateException("The plugin manager has been closed.");
+        }
         // 使用pluginDescriptors.size()初始化HashMap的容量，减少扩容，提高性能
         Map<String, Iterator<P>> pluginIteratorMap = new HashMap<>(pluginDescriptors.size());
 
         // 遍历所有插件描述符
         for (PluginDescriptor pluginDescriptor : pluginDescriptors) {
-            // 使用该插件的描述符、parentClassLoader以及alwaysParentFirstPatterns创建对应的PluginLoader
+            // 使用该插件的描述符、parentClassLoader以及alwaysParentFirstPatterns创建对应的PluginLoader，已创建过则直接复用
             PluginLoader pluginLoader =
-                    PluginLoader.create(
-                            pluginDescriptor, parentClassLoader, alwaysParentFirstPatterns);
+                    pluginLoaders.computeIfAbsent(
+                            pluginDescriptor.getPluginId(),
+                            pluginId ->
+                                    PluginLoader.create(
+                                            pluginDescriptor,
+                                            parentClassLoader,
+                                            alwaysParentFirstPatterns));
 
             // 调用pluginLoader的load方法，为给定service接口加载该插件中的所有实现
             // 将结果（一个Iterator<P>）与插件ID关联，存入pluginIteratorMap
@@ -115,6 +140,18 @@ public class DefaultPluginManager implements PluginManager {
         return pluginIteratorMap;
     }
 
+    /**
+     * 关闭所有已创建的插件类加载器。关闭后插件中的类和资源将无法再加载，load方法会抛出IllegalStateException。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Iterator<PluginLoader> iterator = pluginLoaders.values().iterator(); iterator.hasNext(); ) {
+            iterator.next().close();
+            iterator.remove();
+        }
+    }
+
     /**
      * 返回当前DefaultPluginManager的字符串表示，
      * 包括其parentClassLoader、pluginDescriptors和alwaysParentFirstPatterns信息，
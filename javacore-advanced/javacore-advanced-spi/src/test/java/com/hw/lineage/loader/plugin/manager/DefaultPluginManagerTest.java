@@ -35,6 +35,9 @@ public class DefaultPluginManagerTest extends PluginTestBase {
     // 用于存储由插件描述符（PluginDescriptor）构建的插件集合
     private Collection<PluginDescriptor> descriptors;
 
+    // 插件根目录
+    private Path pluginRootFolderPath;
+
     /**
      * 在测试开始前准备一个插件目录结构，并使用 DirectoryBasedPluginFinder 创建插件描述符。
      *
@@ -52,7 +55,7 @@ public class DefaultPluginManagerTest extends PluginTestBase {
     public void setup() throws Exception {
         // 创建临时插件根目录
         File pluginRootFolder = temporaryFolder.newFolder();
-        Path pluginRootFolderPath = pluginRootFolder.toPath();
+        pluginRootFolderPath = pluginRootFolder.toPath();
 
         // 在根目录下创建 plugin-a 和 plugin-b 子目录
         File pluginAFolder = new File(pluginRootFolder, PLUGIN_A);
@@ -128,7 +131,54 @@ public class DefaultPluginManagerTest extends PluginTestBase {
         OtherTestService otherTestServiceB = otherTestServiceListB.get(0);
         Assert.assertEquals("Other-B-hello", otherTestServiceB.otherSay("hello"));
 
-        // 验证 OtherTestServiceB 使用了唯一的类加载器
-        Assert.assertTrue(classLoaders.add(otherTestServiceB.getClass().getClassLoader()));
+        // 同一插件的类加载器只创建一次，OtherTestServiceB 与 TestServiceB 使用同一个类加载器
+        Assert.assertSame(testServiceB.getClass().getClassLoader(), otherTestServiceB.getClass().getClassLoader());
+
+        // 再次加载 TestService，复用已创建的类加载器，得到的实现类与第一次相同
+        TestService reloadedTestServiceA = pluginManager.load(TestService.class).get(PLUGIN_A).next();
+        Assert.assertSame(testServiceA.getClass(), reloadedTestServiceA.getClass());
+    }
+
+    /**
+     * 测试带类索引的插件加载：第一次查找插件时建立索引并写入索引目录，之后直接读取索引，插件的加载行为不变。
+     */
+    @Test
+    public void testLoadPluginWithJarIndex() throws Exception {
+        Path jarIndexDir = temporaryFolder.newFolder().toPath();
+
+        // 第一次查找插件，为每个插件建立类索引并写入索引目录
+        Collection<PluginDescriptor> indexedDescriptors =
+                new DirectoryBasedPluginFinder(pluginRootFolderPath, jarIndexDir).findPlugins();
+        Assert.assertTrue(Files.isRegularFile(jarIndexDir.resolve(PLUGIN_A + ".idx")));
+        Assert.assertTrue(Files.isRegularFile(jarIndexDir.resolve(PLUGIN_B + ".idx")));
+        for (PluginDescriptor descriptor : indexedDescriptors) {
+            Assert.assertNotNull(descriptor.getJarIndex());
+        }
+
+        // 再次查找插件，Jar没有变化，直接读取索引文件
+        long lastModified = Files.getLastModifiedTime(jarIndexDir.resolve(PLUGIN_A + ".idx")).toMillis();
+        indexedDescriptors = new DirectoryBasedPluginFinder(pluginRootFolderPath, jarIndexDir).findPlugins();
+        Assert.assertEquals(lastModified, Files.getLastModifiedTime(jarIndexDir.resolve(PLUGIN_A + ".idx")).toMillis());
+
+        String[] parentPatterns = {TestService.class.getName(), OtherTestService.class.getName()};
+        try (DefaultPluginManager pluginManager =
+                     new DefaultPluginManager(indexedDescriptors, PARENT_CLASS_LOADER, parentPatterns)) {
+            Map<String, Iterator<TestService>> pluginIteratorMap = pluginManager.load(TestService.class);
+
+            // 按索引加载的类与按类路径查找时的行为一致
+            TestService testServiceA = pluginIteratorMap.get(PLUGIN_A).next();
+            Assert.assertEquals("A-hello-Dynamic-A-hello", testServiceA.say("hello"));
+            Assert.assertEquals("B-hello", pluginIteratorMap.get(PLUGIN_B).next().say("hello"));
+            Assert.assertNotSame(PARENT_CLASS_LOADER, testServiceA.getClass().getClassLoader());
+
+            // 不在插件Jar中的类直接判定为找不到
+            try {
+                testServiceA.getClass().getClassLoader()
+                        .loadClass("com.hw.lineage.loader.service.impl.pluginb.TestServiceB");
+                Assert.fail("TestServiceB should not be visible to plugin-a");
+            } catch (ClassNotFoundException expected) {
+                // expected
+            }
+        }
     }
 }
@@ -0,0 +1,104 @@
+package io.github.dunwu.javacore.javaagent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个线程、单个方法的耗时直方图（纳秒）。小于 8 的值各占一个桶，之后每个 2 的幂区间再均分为 8 个桶，
+ * 相对误差不超过 12.5%，共 {@link #BUCKETS} 个桶。
+ * <p>
+ * 只有所属线程写入，写入用 lazySet 发布，不加锁也不需要 CAS；导出线程读取时可能略微滞后，但不会读到撕裂的值。
+ * 多个线程的直方图通过 {@link #mergeInto} 合并后再计算分位数。
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    private static final int COUNT = BUCKETS;
+
+    private static final int SUM = BUCKETS + 1;
+
+    private static final int MAX = BUCKETS + 2;
+
+    private final AtomicLongArray values = new AtomicLongArray(BUCKETS + 3);
+
+    /**
+     * 只能由所属线程调用
+     */
+    void record(long nanos) {
+        int bucket = bucket(nanos);
+        values.lazySet(bucket, values.get(bucket) + 1);
+        values.lazySet(COUNT, values.get(COUNT) + 1);
+        values.lazySet(SUM, values.get(SUM) + nanos);
+        if (nanos > values.get(MAX)) {
+            values.lazySet(MAX, nanos);
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return value <= 0 ? 0 : (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exp - SUB_BITS + 1) << SUB_BITS) | sub;
+    }
+
+    /**
+     * 桶内的最大值
+     */
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (exp - SUB_BITS);
+        return lower + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    void mergeInto(long[] target) {
+        for (int i = 0; i < BUCKETS + 2; i++) {
+            target[i] += values.get(i);
+        }
+        target[MAX] = Math.max(target[MAX], values.get(MAX));
+    }
+
+    static long[] newSnapshot() {
+        return new long[BUCKETS + 3];
+    }
+
+    static long count(long[] snapshot) {
+        return snapshot[COUNT];
+    }
+
+    static long max(long[] snapshot) {
+        return snapshot[MAX];
+    }
+
+    static double mean(long[] snapshot) {
+        return snapshot[COUNT] == 0 ? 0 : (double) snapshot[SUM] / snapshot[COUNT];
+    }
+
+    /**
+     * 分位数的近似值，返回所在桶的上界（纳秒）
+     */
+    static long percentile(long[] snapshot, double p) {
+        long count = snapshot[COUNT];
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * p);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), snapshot[MAX]);
+            }
+        }
+        return snapshot[MAX];
+    }
+
+}
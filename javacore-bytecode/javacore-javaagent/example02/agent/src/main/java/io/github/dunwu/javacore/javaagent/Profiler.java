@@ -0,0 +1,286 @@
+package io.github.dunwu.javacore.javaagent;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 采样探针的运行时入口：被增强的方法在开始和结束（包括抛出异常）时分别调用 {@link #enter} 和 {@link #exit}。
+ * <p>
+ * 1. 开销：计时用 {@link System#nanoTime()}，只在最外层调用上按采样率抽样，没被抽中的调用只读一次 ThreadLocal、
+ * 加减一个深度计数；被抽中的调用记录到所属线程自己的 {@link ThreadProfile}，不加锁也没有线程间共享的写入。
+ * <p>
+ * 2. 挂载和卸载：{@link #start} 注册 {@link RunTimeTransformer} 并重新转换已加载的目标类；{@link #stop} 移除转换器后
+ * 再次重新转换这些类，JVM 会恢复它们的原始字节码，停止后没有任何额外开销。
+ * <p>
+ * 3. 导出：{@link #dump} 合并所有线程的数据，将调用树写为 collapsed stacks（每行 "a;b;c 自身耗时微秒"，
+ * 可直接交给 flamegraph.pl），并打印每个方法的耗时分位数。方法按 "类名.方法名(参数类型)" 区分，重载的方法分开统计。
+ * <p>
+ * 4. 生命周期：每次 {@link #start} 清空上一次的数据；已结束线程的数据在导出时（以及每登记一批新线程时）
+ * 合并到汇总数据中，不再持有它的 {@link ThreadProfile}，线程池不断新建线程时也不会无限增长。
+ */
+public class Profiler {
+
+    private static final ThreadLocal<ThreadProfile> PROFILES = ThreadLocal.withInitial(Profiler::newProfile);
+
+    private static final Set<ThreadProfile> ALL_PROFILES = ConcurrentHashMap.newKeySet();
+
+    /** 每登记这么多个新线程，合并一次已结束线程的数据 */
+    private static final int RETIRE_INTERVAL = 64;
+
+    private static final AtomicInteger NEW_PROFILES = new AtomicInteger();
+
+    /** 已结束线程的数据，由 RETIRED_LOCK 保护 */
+    private static final Object RETIRED_LOCK = new Object();
+
+    private static final Map<String, Long> retiredStacks = new TreeMap<>();
+
+    private static long[][] retiredHistograms = new long[0][];
+
+    private static final Map<String, Integer> METHOD_IDS = new ConcurrentHashMap<>();
+
+    private static volatile String[] methodNames = new String[0];
+
+    private static volatile boolean running;
+
+    /** 每次 start 加一，线程数据的 generation 与之不同时视为过期 */
+    private static volatile int generation;
+
+    private static volatile int sampleRate = 1;
+
+    private static Instrumentation instrumentation;
+
+    private static RunTimeTransformer transformer;
+
+    private static ProfilerConfig config;
+
+    private Profiler() {}
+
+    // ------------------------------------------------------------------------------------------
+    // 被增强的方法调用
+    // ------------------------------------------------------------------------------------------
+
+    public static void enter(int methodId) {
+        ThreadProfile profile = PROFILES.get();
+        int gen = generation;
+        if (profile.getGeneration() != gen && profile.isIdle()) {
+            // start 之后第一次进入最外层方法，丢弃上一次的数据
+            profile.reset(gen);
+            ALL_PROFILES.add(profile);
+        }
+        int rate = sampleRate;
+        profile.enter(methodId, running && (rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0));
+    }
+
+    public static void exit(int methodId) {
+        PROFILES.get().exit(methodId);
+    }
+
+    private static ThreadProfile newProfile() {
+        ThreadProfile profile = new ThreadProfile(Thread.currentThread(), generation);
+        ALL_PROFILES.add(profile);
+        if (NEW_PROFILES.incrementAndGet() % RETIRE_INTERVAL == 0) {
+            retireFinishedThreads();
+        }
+        return profile;
+    }
+
+    /**
+     * 把已结束线程的数据合并到汇总数据中并不再持有，同时移除过期 generation 的数据
+     */
+    private static void retireFinishedThreads() {
+        synchronized (RETIRED_LOCK) {
+            String[] names = methodNames;
+            int gen = generation;
+            for (Iterator<ThreadProfile> it = ALL_PROFILES.iterator(); it.hasNext(); ) {
+                ThreadProfile profile = it.next();
+                if (profile.getGeneration() != gen) {
+                    it.remove();
+                } else if (!profile.isThreadAlive()) {
+                    if (retiredHistograms.length < names.length) {
+                        retiredHistograms = Arrays.copyOf(retiredHistograms, names.length);
+                    }
+                    mergeInto(profile, names, retiredStacks, retiredHistograms);
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static void mergeInto(ThreadProfile profile, String[] names, Map<String, Long> stacks, long[][] merged) {
+        profile.collapseInto(names, stacks);
+        LatencyHistogram[] histograms = profile.getHistograms();
+        for (int i = 0; i < Math.min(histograms.length, names.length); i++) {
+            if (histograms[i] != null) {
+                if (merged[i] == null) {
+                    merged[i] = LatencyHistogram.newSnapshot();
+                }
+                histograms[i].mergeInto(merged[i]);
+            }
+        }
+    }
+
+    /**
+     * 为方法分配 id，同一方法（类名.方法名(参数类型)）重复增强时返回同一个 id
+     */
+    static int register(String methodName) {
+        Integer id = METHOD_IDS.get(methodName);
+        if (id != null) {
+            return id;
+        }
+        synchronized (METHOD_IDS) {
+            id = METHOD_IDS.get(methodName);
+            if (id == null) {
+                String[] names = Arrays.copyOf(methodNames, methodNames.length + 1);
+                id = methodNames.length;
+                names[id] = methodName;
+                methodNames = names;
+                METHOD_IDS.put(methodName, id);
+            }
+            return id;
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // 挂载与卸载
+    // ------------------------------------------------------------------------------------------
+
+    public static synchronized void start(Instrumentation inst, ProfilerConfig profilerConfig) {
+        if (transformer != null) {
+            System.out.println("探针已在运行，忽略：" + profilerConfig);
+            return;
+        }
+        if (profilerConfig.getPackages().isEmpty()) {
+            throw new IllegalArgumentException("packages must not be empty");
+        }
+        // 清空上一次的数据：各线程的数据由所属线程在下一次进入时清空，这里只丢掉登记和汇总
+        generation++;
+        ALL_PROFILES.clear();
+        synchronized (RETIRED_LOCK) {
+            retiredStacks.clear();
+            retiredHistograms = new long[0][];
+        }
+        instrumentation = inst;
+        config = profilerConfig;
+        sampleRate = profilerConfig.getSampleRate();
+        transformer = new RunTimeTransformer(profilerConfig);
+        running = true;
+        inst.addTransformer(transformer, true);
+        retransform(inst, targetClasses(inst, profilerConfig));
+        System.out.println("探针已启动：" + profilerConfig);
+    }
+
+    public static synchronized void stop() {
+        if (transformer == null) {
+            System.out.println("探针未运行");
+            return;
+        }
+        running = false;
+        instrumentation.removeTransformer(transformer);
+        // 没有转换器时重新转换，JVM 使用类的原始字节码
+        Set<String> transformed = transformer.getTransformedClasses();
+        List<Class<?>> classes = new ArrayList<>();
+        for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+            if (transformed.contains(clazz.getName()) && instrumentation.isModifiableClass(clazz)) {
+                classes.add(clazz);
+            }
+        }
+        retransform(instrumentation, classes);
+        System.out.println("探针已停止，还原 " + classes.size() + " 个类");
+        transformer = null;
+        dump();
+    }
+
+    private static List<Class<?>> targetClasses(Instrumentation inst, ProfilerConfig profilerConfig) {
+        List<Class<?>> classes = new ArrayList<>();
+        for (Class<?> clazz : inst.getAllLoadedClasses()) {
+            if (clazz.getClassLoader() != null && inst.isModifiableClass(clazz)
+                && profilerConfig.includes(clazz.getName()) && !RunTimeTransformer.isAgentClass(clazz.getName())) {
+                classes.add(clazz);
+            }
+        }
+        return classes;
+    }
+
+    private static void retransform(Instrumentation inst, Iterable<Class<?>> classes) {
+        for (Class<?> clazz : classes) {
+            // 逐个转换，一个类失败不影响其他类
+            try {
+                inst.retransformClasses(clazz);
+            } catch (UnmodifiableClassException | RuntimeException | LinkageError e) {
+                System.out.println("重新转换 " + clazz.getName() + " 失败：" + e);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // 导出
+    // ------------------------------------------------------------------------------------------
+
+    public static synchronized void dump() {
+        if (config == null) {
+            System.out.println("探针从未启动，没有可导出的数据");
+            return;
+        }
+        retireFinishedThreads();
+        String[] names = methodNames;
+        Map<String, Long> stacks = new TreeMap<>();
+        long[][] merged = new long[names.length][];
+        synchronized (RETIRED_LOCK) {
+            stacks.putAll(retiredStacks);
+            for (int i = 0; i < retiredHistograms.length; i++) {
+                if (retiredHistograms[i] != null) {
+                    merged[i] = retiredHistograms[i].clone();
+                }
+            }
+        }
+        int gen = generation;
+        for (ThreadProfile profile : ALL_PROFILES) {
+            if (profile.getGeneration() == gen) {
+                mergeInto(profile, names, stacks, merged);
+            }
+        }
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(config.getOutput()),
+            StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Long> e : stacks.entrySet()) {
+                long micros = TimeUnit.NANOSECONDS.toMicros(e.getValue());
+                if (micros > 0) {
+                    out.println(e.getKey() + ' ' + micros);
+                }
+            }
+            System.out.println("collapsed stacks 已写入 " + Paths.get(config.getOutput()).toAbsolutePath());
+        } catch (IOException e) {
+            System.out.println("写入 " + config.getOutput() + " 失败：" + e);
+        }
+
+        System.out.println(String.format("%-60s %10s %12s %12s %12s %12s", "method", "samples", "mean(us)",
+            "p50(us)", "p99(us)", "max(us)"));
+        for (int i = 0; i < names.length; i++) {
+            long[] h = merged[i];
+            if (h == null || LatencyHistogram.count(h) == 0) {
+                continue;
+            }
+            System.out.println(String.format("%-60s %10d %12.1f %12.1f %12.1f %12.1f", names[i],
+                LatencyHistogram.count(h), LatencyHistogram.mean(h) / 1e3,
+                LatencyHistogram.percentile(h, 0.5) / 1e3, LatencyHistogram.percentile(h, 0.99) / 1e3,
+                LatencyHistogram.max(h) / 1e3));
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.dunwu.javacore.javaagent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 探针参数，由 agentmain 的参数解析而来，格式为以 ; 分隔的 key=value，例如：
+ *
+ * <pre>
+ * start;packages=io.github.dunwu.app,com.foo;annotation=com.foo.Profiled;sample=100;output=/tmp/app.collapsed
+ * stop
+ * </pre>
+ *
+ * <ul>
+ * <li>第一项为动作：start（默认）开始采样，stop 停止采样、导出结果并还原字节码，dump 只导出结果</li>
+ * <li>packages：需要增强的包前缀，多个用 , 分隔</li>
+ * <li>annotation：只增强带有该注解的方法（或类上带有该注解的所有方法），不指定则增强包内所有方法</li>
+ * <li>sample：采样率，每 sample 次最外层调用采样一次，默认 1 即全部采样</li>
+ * <li>output：collapsed stacks 输出文件，可直接用 flamegraph.pl 生成火焰图</li>
+ * </ul>
+ */
+public class ProfilerConfig {
+
+    public enum Action {
+        START, STOP, DUMP
+    }
+
+    private static final String DEFAULT_OUTPUT = "profile.collapsed";
+
+    private Action action = Action.START;
+
+    private List<String> packages = Collections.emptyList();
+
+    private String annotation;
+
+    private int sampleRate = 1;
+
+    private String output = DEFAULT_OUTPUT;
+
+    public static ProfilerConfig parse(String args) {
+        ProfilerConfig config = new ProfilerConfig();
+        if (args == null || args.trim().isEmpty()) {
+            return config;
+        }
+        for (String item : args.split(";")) {
+            item = item.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            int eq = item.indexOf('=');
+            if (eq < 0) {
+                config.action = Action.valueOf(item.toUpperCase());
+                continue;
+            }
+            String key = item.substring(0, eq).trim();
+            String value = item.substring(eq + 1).trim();
+            switch (key) {
+                case "packages":
+                    List<String> packages = new ArrayList<>();
+                    for (String p : value.split(",")) {
+                        if (!p.trim().isEmpty()) {
+                            packages.add(p.trim());
+                        }
+                    }
+                    config.packages = packages;
+                    break;
+                case "annotation":
+                    config.annotation = value.isEmpty() ? null : value;
+                    break;
+                case "sample":
+                    config.sampleRate = Integer.parseInt(value);
+                    if (config.sampleRate < 1) {
+                        throw new IllegalArgumentException("sample must be >= 1: " + value);
+                    }
+                    break;
+                case "output":
+                    config.output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown agent argument: " + key);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * 类是否在需要增强的包内，className 为 a.b.C 形式
+     */
+    public boolean includes(String className) {
+        for (String p : packages) {
+            if (className.startsWith(p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public List<String> getPackages() {
+        return packages;
+    }
+
+    public String getAnnotation() {
+        return annotation;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    @Override
+    public String toString() {
+        return "ProfilerConfig{action=" + action + ", packages=" + packages + ", annotation=" + annotation
+            + ", sample=" + sampleRate + ", output=" + output + '}';
+    }
+
+}
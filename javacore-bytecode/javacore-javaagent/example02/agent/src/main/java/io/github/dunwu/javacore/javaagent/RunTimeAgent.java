@@ -4,13 +4,33 @@ import java.lang.instrument.Instrumentation;
 
 /**
  * agentmain 在 main 函数开始运行后才启动（依赖于Attach机制）
+ * <p>
+ * 每次 Attach 都会调用 agentmain，探针的状态保存在 {@link Profiler} 的静态字段中，所以可以先用 start 参数挂载，
+ * 之后再 Attach 一次传入 stop 卸载，参数格式见 {@link ProfilerConfig}。
  */
 public class RunTimeAgent {
 
     public static void agentmain(String arg, Instrumentation instrumentation) {
         System.out.println("agentmain探针启动！！！");
         System.out.println("agentmain探针传入参数：" + arg);
-        instrumentation.addTransformer(new RunTimeTransformer());
+        if (!instrumentation.isRetransformClassesSupported()) {
+            System.out.println("当前 JVM 不支持重新转换类，探针无法挂载");
+            return;
+        }
+        ProfilerConfig config = ProfilerConfig.parse(arg);
+        switch (config.getAction()) {
+            case START:
+                Profiler.start(instrumentation, config);
+                break;
+            case STOP:
+                Profiler.stop();
+                break;
+            case DUMP:
+                Profiler.dump();
+                break;
+            default:
+                throw new IllegalArgumentException("unknown action: " + config.getAction());
+        }
     }
 
 }
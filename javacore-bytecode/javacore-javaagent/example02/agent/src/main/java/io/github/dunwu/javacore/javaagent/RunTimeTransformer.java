@@ -3,44 +3,128 @@ package io.github.dunwu.javacore.javaagent;
 import javassist.ClassPool;
 import javassist.CtClass;
 import javassist.CtMethod;
+import javassist.LoaderClassPath;
+import javassist.Modifier;
+import javassist.bytecode.AccessFlag;
 
+import java.io.ByteArrayInputStream;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 为 {@link ProfilerConfig} 选中的方法插入 {@link Profiler#enter} / {@link Profiler#exit} 调用。
+ * <p>
+ * 插入的代码只有两次静态方法调用，不增加局部变量，计时和采样都在 Profiler 中完成；exit 以 finally 的方式插入，
+ * 方法抛出异常时也会调用。增强基于 transform 传入的 classfileBuffer 而不是从类路径重新读取，
+ * 所以重新转换（retransform）时得到的是当前的字节码；被增强过的类名记录下来，卸载时据此还原。
+ * 方法以 {@link CtMethod#getLongName()}（类名.方法名(参数类型)）登记，重载的方法各自一个 id；
+ * 参数类型用 Java 写法而不是描述符，描述符中的 ';' 与 collapsed stacks 的分隔符冲突。
+ */
 public class RunTimeTransformer implements ClassFileTransformer {
 
-    private static final String INJECTED_CLASS = "io.github.dunwu.javacore.javaagent.AppInit";
+    private static final String PROFILER = Profiler.class.getName();
+
+    private static final String AGENT_PACKAGE = RunTimeTransformer.class.getPackage().getName() + ".";
+
+    private final ProfilerConfig config;
+
+    private final Set<String> transformedClasses = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    public RunTimeTransformer(ProfilerConfig config) {
+        this.config = config;
+    }
 
     @Override
     public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
         ProtectionDomain protectionDomain, byte[] classfileBuffer) throws IllegalClassFormatException {
+        if (loader == null || className == null) {
+            // 引导类加载器加载的类看不到 Profiler
+            return null;
+        }
         String realClassName = className.replace("/", ".");
-        if (realClassName.equals(INJECTED_CLASS)) {
-            System.out.println("拦截到的类名：" + realClassName);
-            CtClass ctClass;
-            try {
-                // 使用javassist,获取字节码类
-                ClassPool classPool = ClassPool.getDefault();
-                ctClass = classPool.get(realClassName);
-
-                // 得到该类所有的方法实例，也可选择方法，进行增强
-                CtMethod[] declaredMethods = ctClass.getDeclaredMethods();
-                for (CtMethod method : declaredMethods) {
-                    System.out.println(method.getName() + "方法被拦截");
-                    method.addLocalVariable("time", CtClass.longType);
-                    method.insertBefore("System.out.println(\"---开始执行---\");");
-                    method.insertBefore("time = System.currentTimeMillis();");
-                    method.insertAfter("System.out.println(\"---结束执行---\");");
-                    method.insertAfter("System.out.println(\"运行耗时: \" + (System.currentTimeMillis() - time));");
+        if (!config.includes(realClassName) || isAgentClass(realClassName)) {
+            return null;
+        }
+
+        CtClass ctClass = null;
+        try {
+            ClassPool classPool = new ClassPool(true);
+            classPool.appendClassPath(new LoaderClassPath(loader));
+            ctClass = classPool.makeClass(new ByteArrayInputStream(classfileBuffer), false);
+            if (ctClass.isInterface()) {
+                return null;
+            }
+
+            boolean classAnnotated = config.getAnnotation() != null && ctClass.hasAnnotation(config.getAnnotation());
+            int instrumented = 0;
+            for (CtMethod method : ctClass.getDeclaredMethods()) {
+                if (!shouldInstrument(method, classAnnotated)) {
+                    continue;
                 }
-                return ctClass.toBytecode();
-            } catch (Throwable e) { //这里要用Throwable，不要用Exception
-                System.out.println(e.getMessage());
-                e.printStackTrace();
+                int id = Profiler.register(method.getLongName());
+                method.insertBefore(PROFILER + ".enter(" + id + ");");
+                method.insertAfter(PROFILER + ".exit(" + id + ");", true);
+                instrumented++;
+            }
+            if (instrumented == 0) {
+                return null;
+            }
+            transformedClasses.add(realClassName);
+            return ctClass.toBytecode();
+        } catch (Throwable e) { //这里要用Throwable，不要用Exception
+            System.out.println("增强 " + realClassName + " 失败：" + e);
+            return null;
+        } finally {
+            if (ctClass != null) {
+                ctClass.detach();
             }
         }
-        return classfileBuffer;
+    }
+
+    private boolean shouldInstrument(CtMethod method, boolean classAnnotated) {
+        int modifiers = method.getModifiers();
+        if (Modifier.isAbstract(modifiers) || Modifier.isNative(modifiers) || method.isEmpty()) {
+            return false;
+        }
+        // 编译器生成的桥接方法、lambda 方法不单独统计
+        if ((method.getMethodInfo().getAccessFlags() & (AccessFlag.BRIDGE | AccessFlag.SYNTHETIC)) != 0 || method.getName().startsWith("lambda$")) {
+            return false;
+        }
+        return config.getAnnotation() == null || classAnnotated || method.hasAnnotation(config.getAnnotation());
+    }
+
+    /**
+     * 探针自身的类不能增强，否则 enter/exit 会递归
+     */
+    static boolean isAgentClass(String className) {
+        return className.startsWith(AGENT_PACKAGE) && className.indexOf('.', AGENT_PACKAGE.length()) < 0
+            && isProfilerClass(className.substring(AGENT_PACKAGE.length()));
+    }
+
+    private static boolean isProfilerClass(String simpleName) {
+        String outer = simpleName.contains("$") ? simpleName.substring(0, simpleName.indexOf('$')) : simpleName;
+        switch (outer) {
+            case "RunTimeAgent":
+            case "RunTimeTransformer":
+            case "Profiler":
+            case "ProfilerConfig":
+            case "ThreadProfile":
+            case "LatencyHistogram":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 被增强过的类名，包括重新转换的类和启动后首次加载时增强的类
+     */
+    public Set<String> getTransformedClasses() {
+        return transformedClasses;
     }
 
 }
@@ -0,0 +1,196 @@
+package io.github.dunwu.javacore.javaagent;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 一个线程的采样数据：被增强方法的调用树（用于导出 collapsed stacks）和每个方法的耗时直方图。
+ * <p>
+ * 只有所属线程写入，所以记录时不需要加锁。采样在最外层被增强的方法上决定：
+ * 最外层调用被采样时，它内部所有被增强方法的调用都会记录，调用树是完整的；没被采样时整个调用只维护一个深度计数。
+ * <p>
+ * 只弱引用所属线程，线程结束后由 {@link Profiler} 合并数据并移除；每次 {@link Profiler#start} 是一个新的 generation，
+ * 所属线程在下一次进入最外层方法时清空旧数据（{@link #reset}），清空也只由所属线程执行。
+ */
+class ThreadProfile {
+
+    private final WeakReference<Thread> thread;
+
+    private final String threadName;
+
+    /** 数据所属的 generation，见 {@link Profiler#start} */
+    private volatile int generation;
+
+    /** 调用树的根，reset 时整体替换 */
+    private volatile CallNode root = new CallNode(-1, null);
+
+    /** 当前所在的调用树节点 */
+    private CallNode current = root;
+
+    /** 各层被增强方法的开始时间，下标为 depth - 1 */
+    private long[] startNanos = new long[32];
+
+    /** 当前线程栈上被增强方法的层数 */
+    private int depth;
+
+    /** 当前最外层调用是否被采样 */
+    private boolean sampling;
+
+    /** 按方法 id 索引的直方图，由所属线程扩容，volatile 发布给导出线程 */
+    private volatile LatencyHistogram[] histograms = new LatencyHistogram[16];
+
+    ThreadProfile(Thread thread, int generation) {
+        this.thread = new WeakReference<>(thread);
+        this.threadName = thread.getName();
+        this.generation = generation;
+    }
+
+    /**
+     * 丢弃已有数据，开始记录新的 generation。只能由所属线程在栈上没有被增强方法时调用
+     */
+    void reset(int generation) {
+        root = new CallNode(-1, null);
+        current = root;
+        histograms = new LatencyHistogram[16];
+        this.generation = generation;
+    }
+
+    /**
+     * 当前线程栈上没有被增强的方法
+     */
+    boolean isIdle() {
+        return depth == 0;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    boolean isThreadAlive() {
+        Thread t = thread.get();
+        return t != null && t.isAlive();
+    }
+
+    void enter(int methodId, boolean sampleRoot) {
+        if (depth == 0) {
+            sampling = sampleRoot;
+        }
+        if (sampling) {
+            if (depth == startNanos.length) {
+                startNanos = Arrays.copyOf(startNanos, depth * 2);
+            }
+            current = current.child(methodId);
+            startNanos[depth] = System.nanoTime();
+        }
+        depth++;
+    }
+
+    void exit(int methodId) {
+        if (depth == 0) {
+            // 开始采样时方法已经在执行中（增强前的版本不会调用 enter），忽略
+            return;
+        }
+        depth--;
+        if (sampling) {
+            long elapsed = System.nanoTime() - startNanos[depth];
+            CallNode node = current;
+            node.calls++;
+            node.totalNanos += elapsed;
+            current = node.parent;
+            histogram(methodId).record(elapsed);
+        }
+    }
+
+    private LatencyHistogram histogram(int methodId) {
+        LatencyHistogram[] hs = histograms;
+        if (methodId >= hs.length) {
+            hs = Arrays.copyOf(hs, Math.max(methodId + 1, hs.length * 2));
+            histograms = hs;
+        }
+        LatencyHistogram h = hs[methodId];
+        if (h == null) {
+            h = new LatencyHistogram();
+            hs[methodId] = h;
+            // 重新写一次 volatile 字段，让导出线程看到新建的直方图
+            histograms = hs;
+        }
+        return h;
+    }
+
+    String getThreadName() {
+        return threadName;
+    }
+
+    LatencyHistogram[] getHistograms() {
+        return histograms;
+    }
+
+    /**
+     * 将调用树按 collapsed stacks 格式累加到 stacks：key 为 "a;b;c"，value 为 c 的自身耗时（纳秒）
+     */
+    void collapseInto(String[] methodNames, Map<String, Long> stacks) {
+        for (CallNode child : root.children) {
+            collapse(child, new StringBuilder(), methodNames, stacks);
+        }
+    }
+
+    private static void collapse(CallNode node, StringBuilder prefix, String[] methodNames, Map<String, Long> stacks) {
+        int length = prefix.length();
+        if (length > 0) {
+            prefix.append(';');
+        }
+        prefix.append(node.methodId < methodNames.length ? methodNames[node.methodId] : "method#" + node.methodId);
+
+        long self = node.totalNanos;
+        for (CallNode child : node.children) {
+            self -= child.totalNanos;
+            collapse(child, prefix, methodNames, stacks);
+        }
+        if (self > 0) {
+            stacks.merge(prefix.toString(), self, Long::sum);
+        }
+        prefix.setLength(length);
+    }
+
+    /**
+     * 调用树节点，同一调用路径上的同一方法共用一个节点。
+     * 子节点数组由所属线程复制后整体替换（volatile），导出线程遍历时不会看到不完整的数组；
+     * 计数是普通字段，导出时可能略有滞后
+     */
+    static final class CallNode {
+
+        private static final CallNode[] NO_CHILDREN = new CallNode[0];
+
+        final int methodId;
+
+        final CallNode parent;
+
+        volatile CallNode[] children = NO_CHILDREN;
+
+        long calls;
+
+        long totalNanos;
+
+        CallNode(int methodId, CallNode parent) {
+            this.methodId = methodId;
+            this.parent = parent;
+        }
+
+        CallNode child(int methodId) {
+            CallNode[] cs = children;
+            for (CallNode c : cs) {
+                if (c.methodId == methodId) {
+                    return c;
+                }
+            }
+            CallNode c = new CallNode(methodId, this);
+            CallNode[] grown = Arrays.copyOf(cs, cs.length + 1);
+            grown[cs.length] = c;
+            children = grown;
+            return c;
+        }
+
+    }
+
+}
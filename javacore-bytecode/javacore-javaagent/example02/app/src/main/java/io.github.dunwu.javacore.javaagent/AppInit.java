@@ -5,10 +5,19 @@ public class AppInit {
     public static void init() {
         try {
             System.out.println("APP初始化中...");
-            Thread.sleep(1000);
+            loadConfig();
+            connect();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
     }
 
+    private static void loadConfig() throws InterruptedException {
+        Thread.sleep(100);
+    }
+
+    private static void connect() throws InterruptedException {
+        Thread.sleep(200);
+    }
+
 }
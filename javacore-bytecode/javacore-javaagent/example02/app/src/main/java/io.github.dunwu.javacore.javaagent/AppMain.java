@@ -1,27 +1,44 @@
 package io.github.dunwu.javacore.javaagent;
 
 import com.sun.tools.attach.VirtualMachine;
-import com.sun.tools.attach.VirtualMachineDescriptor;
 
+import java.lang.management.ManagementFactory;
+
+/**
+ * 运行时挂载探针：先 Attach 当前进程开始采样，运行一段业务代码后再 Attach 一次停止采样，
+ * 停止时探针导出 collapsed stacks 并还原被增强的类。
+ * <p>
+ * 用法：java AppMain &lt;agent jar 路径&gt;，JDK 9 及以上需要加 -Djdk.attach.allowAttachSelf=true
+ */
 public class AppMain {
 
-    public static void main(String[] args) {
+    private static final String START_ARGS =
+        "start;packages=io.github.dunwu.javacore.javaagent;sample=1;output=app.collapsed";
+
+    public static void main(String[] args) throws Exception {
         System.out.println("APP 启动！！！");
-        for (VirtualMachineDescriptor vmd : VirtualMachine.list()) {
-            // 指定的VM才可以被代理
-            if (true) {
-                System.out.println("该VM为指定代理的VM");
-                System.out.println(vmd.displayName());
-                try {
-                    VirtualMachine vm = VirtualMachine.attach(vmd.id());
-                    vm.loadAgent("D:/Codes/zp/ztutorial/zp-java/javacore/codes/javaagent/example02/agent/target/javacore-javaagent-agent2-1.0.1.jar=hello");
-                    vm.detach();
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+        String agentJar = args.length > 0 ? args[0]
+            : "example02/agent/target/javacore-javaagent-agent2-1.0.1.jar";
+        // RuntimeMXBean 的名称格式为 pid@hostname
+        String pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+        attach(pid, agentJar, START_ARGS);
+        for (int i = 0; i < 5; i++) {
+            AppInit.init();
         }
+        attach(pid, agentJar, "stop");
+
+        // 停止后类已还原为原始字节码，这里的调用不再有探针开销
         AppInit.init();
     }
 
+    private static void attach(String pid, String agentJar, String agentArgs) throws Exception {
+        VirtualMachine vm = VirtualMachine.attach(pid);
+        try {
+            vm.loadAgent(agentJar, agentArgs);
+        } finally {
+            vm.detach();
+        }
+    }
+
 }
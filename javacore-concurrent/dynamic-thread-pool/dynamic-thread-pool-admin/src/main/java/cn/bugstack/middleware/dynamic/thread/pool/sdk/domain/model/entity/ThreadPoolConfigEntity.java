@@ -7,6 +7,11 @@ public class ThreadPoolConfigEntity {
      */
     private String appName;
 
+    /**
+     * 实例标识
+     */
+    private String instanceId;
+
     /**
      * 线程池名称
      */
@@ -59,6 +64,14 @@ public class ThreadPoolConfigEntity {
         return appName;
     }
 
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
     public String getThreadPoolName() {
         return threadPoolName;
     }
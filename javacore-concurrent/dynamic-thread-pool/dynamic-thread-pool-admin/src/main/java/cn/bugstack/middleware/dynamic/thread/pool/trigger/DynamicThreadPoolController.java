@@ -4,13 +4,15 @@ import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.Thread
 import cn.bugstack.middleware.dynamic.thread.pool.types.Response;
 import com.alibaba.fastjson.JSON;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RList;
+import org.redisson.api.RScoredSortedSet;
 import org.redisson.api.RTopic;
 import org.redisson.api.RedissonClient;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController()
@@ -18,6 +20,9 @@ import java.util.List;
 @RequestMapping("/api/v1/dynamic/thread/pool/")
 public class DynamicThreadPoolController {
 
+    /** 实例心跳超时时间，与 SDK 中实例哈希的过期时间保持一致 */
+    private static final long INSTANCE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
     @Resource
     public RedissonClient redissonClient;
 
@@ -29,11 +34,17 @@ public class DynamicThreadPoolController {
     @RequestMapping(value = "query_thread_pool_list", method = RequestMethod.GET)
     public Response<List<ThreadPoolConfigEntity>> queryThreadPoolList() {
         try {
-            RList<ThreadPoolConfigEntity> cacheList = redissonClient.getList("THREAD_POOL_CONFIG_LIST_KEY");
+            // 各实例按 应用+实例 写入独立哈希，通过实例索引找到仍在心跳的实例
+            RScoredSortedSet<String> instanceIndex = redissonClient.getScoredSortedSet("THREAD_POOL_CONFIG_INSTANCE_INDEX_KEY");
+            long aliveAfter = System.currentTimeMillis() - INSTANCE_TTL_MILLIS;
+            List<ThreadPoolConfigEntity> threadPoolList = new ArrayList<>();
+            for (String instanceKey : instanceIndex.valueRange(aliveAfter, true, Double.MAX_VALUE, true)) {
+                threadPoolList.addAll(redissonClient.<String, ThreadPoolConfigEntity>getMap(instanceKey).readAllValues());
+            }
             return Response.<List<ThreadPoolConfigEntity>>builder()
                     .code(Response.Code.SUCCESS.getCode())
                     .info(Response.Code.SUCCESS.getInfo())
-                    .data(cacheList.readAll())
+                    .data(threadPoolList)
                     .build();
         } catch (Exception e) {
             log.error("查询线程池数据异常", e);
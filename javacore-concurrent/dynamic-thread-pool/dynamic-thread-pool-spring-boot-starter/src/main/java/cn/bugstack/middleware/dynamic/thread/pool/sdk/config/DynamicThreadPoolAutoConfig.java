@@ -6,6 +6,7 @@ import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.IDynamicThreadPoolS
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.ThreadPoolConfigEntity;
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.valobj.RegistryEnumVO;
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.IRegistry;
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.local.LocalRegistry;
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.redis.RedisRegistry;
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.trigger.job.ThreadPoolDataReportJob;
 import org.apache.commons.lang.StringUtils;
@@ -16,15 +17,17 @@ import org.redisson.codec.JsonJacksonCodec;
 import org.redisson.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.lang.management.ManagementFactory;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author Fuzhengwei bugstack.cn @小傅哥
@@ -41,6 +44,7 @@ public class DynamicThreadPoolAutoConfig {
     private String applicationName;
 
     @Bean("dynamicThreadRedissonClient")
+    @ConditionalOnProperty(prefix = "dynamic.thread.pool.config", name = "registry", havingValue = "redis", matchIfMissing = true)
     public RedissonClient redissonClient(DynamicThreadPoolAutoProperties properties) {
         Config config = new Config();
         // 根据需要可以设定编解码器；https://github.com/redisson/redisson/wiki/4.-%E6%95%B0%E6%8D%AE%E5%BA%8F%E5%88%97%E5%8C%96
@@ -67,12 +71,20 @@ public class DynamicThreadPoolAutoConfig {
     }
 
     @Bean
+    @ConditionalOnProperty(prefix = "dynamic.thread.pool.config", name = "registry", havingValue = "redis", matchIfMissing = true)
     public IRegistry redisRegistry(RedissonClient dynamicThreadRedissonClient) {
         return new RedisRegistry(dynamicThreadRedissonClient);
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "dynamic.thread.pool.config", name = "registry", havingValue = "local")
+    public IRegistry localRegistry() {
+        logger.info("动态线程池，注册器（local）本地内存注册中心初始化完成。");
+        return new LocalRegistry();
+    }
+
     @Bean("dynamicThreadPollService")
-    public DynamicThreadPoolService dynamicThreadPollService(ApplicationContext applicationContext, Map<String, ThreadPoolExecutor> threadPoolExecutorMap, RedissonClient redissonClient) {
+    public DynamicThreadPoolService dynamicThreadPollService(ApplicationContext applicationContext, Map<String, ExecutorService> threadPoolExecutorMap, IRegistry registry, DynamicThreadPoolAutoProperties properties) {
         applicationName = applicationContext.getEnvironment().getProperty("spring.application.name");
 
         if (StringUtils.isBlank(applicationName)) {
@@ -80,17 +92,22 @@ public class DynamicThreadPoolAutoConfig {
             logger.warn("动态线程池，启动提示。SpringBoot 应用未配置 spring.application.name 无法获取到应用名称！");
         }
 
+        String instanceId = properties.getInstanceId();
+        if (StringUtils.isBlank(instanceId)) {
+            instanceId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+
+        DynamicThreadPoolService dynamicThreadPoolService = new DynamicThreadPoolService(applicationName, instanceId, threadPoolExecutorMap);
+
         // 获取缓存数据，设置本地线程池配置
         Set<String> threadPoolKeys = threadPoolExecutorMap.keySet();
         for (String threadPoolKey : threadPoolKeys) {
-            ThreadPoolConfigEntity threadPoolConfigEntity = redissonClient.<ThreadPoolConfigEntity>getBucket(RegistryEnumVO.THREAD_POOL_CONFIG_PARAMETER_LIST_KEY.getKey() + "_" + applicationName + "_" + threadPoolKey).get();
+            ThreadPoolConfigEntity threadPoolConfigEntity = registry.queryThreadPoolConfigParameter(applicationName, threadPoolKey);
             if (null == threadPoolConfigEntity) continue;
-            ThreadPoolExecutor threadPoolExecutor = threadPoolExecutorMap.get(threadPoolKey);
-            threadPoolExecutor.setCorePoolSize(threadPoolConfigEntity.getCorePoolSize());
-            threadPoolExecutor.setMaximumPoolSize(threadPoolConfigEntity.getMaximumPoolSize());
+            dynamicThreadPoolService.updateThreadPoolConfig(threadPoolConfigEntity);
         }
 
-        return new DynamicThreadPoolService(applicationName, threadPoolExecutorMap);
+        return dynamicThreadPoolService;
     }
 
     @Bean
@@ -104,6 +121,7 @@ public class DynamicThreadPoolAutoConfig {
     }
 
     @Bean(name = "dynamicThreadPoolRedisTopic")
+    @ConditionalOnProperty(prefix = "dynamic.thread.pool.config", name = "registry", havingValue = "redis", matchIfMissing = true)
     public RTopic threadPoolConfigAdjustListener(RedissonClient redissonClient, ThreadPoolConfigAdjustListener threadPoolConfigAdjustListener) {
         RTopic topic = redissonClient.getTopic(RegistryEnumVO.DYNAMIC_THREAD_POOL_REDIS_TOPIC.getKey() + "_" + applicationName);
         topic.addListener(ThreadPoolConfigEntity.class, threadPoolConfigAdjustListener);
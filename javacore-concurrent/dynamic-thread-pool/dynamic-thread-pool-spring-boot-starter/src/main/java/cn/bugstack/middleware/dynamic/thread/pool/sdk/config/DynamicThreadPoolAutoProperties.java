@@ -12,6 +12,10 @@ public class DynamicThreadPoolAutoProperties {
 
     /** 状态；open = 开启、close 关闭 */
     private boolean enable;
+    /** 注册中心类型；redis = Redis 注册中心、local = 本地内存注册中心（测试、本地运行） */
+    private String registry = "redis";
+    /** 实例标识，为空时使用 pid@hostname */
+    private String instanceId;
     /** redis host */
     private String host;
     /** redis port */
@@ -43,6 +47,22 @@ public class DynamicThreadPoolAutoProperties {
         this.enable = enable;
     }
 
+    public String getRegistry() {
+        return registry;
+    }
+
+    public void setRegistry(String registry) {
+        this.registry = registry;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
     public String getHost() {
         return host;
     }
@@ -9,7 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author Fuzhengwei bugstack.cn @小傅哥
@@ -21,10 +21,19 @@ public class DynamicThreadPoolService implements IDynamicThreadPoolService {
     private final Logger logger = LoggerFactory.getLogger(DynamicThreadPoolService.class);
 
     private final String applicationName;
-    private final Map<String, ThreadPoolExecutor> threadPoolExecutorMap;
+    private final String instanceId;
+    private final Map<String, ? extends ExecutorService> threadPoolExecutorMap;
 
-    public DynamicThreadPoolService(String applicationName, Map<String, ThreadPoolExecutor> threadPoolExecutorMap) {
+    public DynamicThreadPoolService(String applicationName, Map<String, ? extends ExecutorService> threadPoolExecutorMap) {
+        this(applicationName, null, threadPoolExecutorMap);
+    }
+
+    /**
+     * @param threadPoolExecutorMap 除 ThreadPoolExecutor 外也支持 ForkJoinPool 及提供同名属性的其他 ExecutorService
+     */
+    public DynamicThreadPoolService(String applicationName, String instanceId, Map<String, ? extends ExecutorService> threadPoolExecutorMap) {
         this.applicationName = applicationName;
+        this.instanceId = instanceId;
         this.threadPoolExecutorMap = threadPoolExecutorMap;
     }
 
@@ -33,15 +42,10 @@ public class DynamicThreadPoolService implements IDynamicThreadPoolService {
         Set<String> threadPoolBeanNames = threadPoolExecutorMap.keySet();
         List<ThreadPoolConfigEntity> threadPoolVOS = new ArrayList<>(threadPoolBeanNames.size());
         for (String beanName : threadPoolBeanNames) {
-            ThreadPoolExecutor threadPoolExecutor = threadPoolExecutorMap.get(beanName);
+            ExecutorService executor = threadPoolExecutorMap.get(beanName);
             ThreadPoolConfigEntity threadPoolConfigVO = new ThreadPoolConfigEntity(applicationName, beanName);
-            threadPoolConfigVO.setCorePoolSize(threadPoolExecutor.getCorePoolSize());
-            threadPoolConfigVO.setMaximumPoolSize(threadPoolExecutor.getMaximumPoolSize());
-            threadPoolConfigVO.setActiveCount(threadPoolExecutor.getActiveCount());
-            threadPoolConfigVO.setPoolSize(threadPoolExecutor.getPoolSize());
-            threadPoolConfigVO.setQueueType(threadPoolExecutor.getQueue().getClass().getSimpleName());
-            threadPoolConfigVO.setQueueSize(threadPoolExecutor.getQueue().size());
-            threadPoolConfigVO.setRemainingCapacity(threadPoolExecutor.getQueue().remainingCapacity());
+            threadPoolConfigVO.setInstanceId(instanceId);
+            ExecutorAccessor.fill(threadPoolConfigVO, executor);
             threadPoolVOS.add(threadPoolConfigVO);
         }
         return threadPoolVOS;
@@ -49,18 +53,13 @@ public class DynamicThreadPoolService implements IDynamicThreadPoolService {
 
     @Override
     public ThreadPoolConfigEntity queryThreadPoolConfigByName(String threadPoolName) {
-        ThreadPoolExecutor threadPoolExecutor = threadPoolExecutorMap.get(threadPoolName);
-        if (null == threadPoolExecutor) return new ThreadPoolConfigEntity(applicationName, threadPoolName);
+        ExecutorService executor = threadPoolExecutorMap.get(threadPoolName);
+        if (null == executor) return new ThreadPoolConfigEntity(applicationName, threadPoolName);
 
         // 线程池配置数据
         ThreadPoolConfigEntity threadPoolConfigVO = new ThreadPoolConfigEntity(applicationName, threadPoolName);
-        threadPoolConfigVO.setCorePoolSize(threadPoolExecutor.getCorePoolSize());
-        threadPoolConfigVO.setMaximumPoolSize(threadPoolExecutor.getMaximumPoolSize());
-        threadPoolConfigVO.setActiveCount(threadPoolExecutor.getActiveCount());
-        threadPoolConfigVO.setPoolSize(threadPoolExecutor.getPoolSize());
-        threadPoolConfigVO.setQueueType(threadPoolExecutor.getQueue().getClass().getSimpleName());
-        threadPoolConfigVO.setQueueSize(threadPoolExecutor.getQueue().size());
-        threadPoolConfigVO.setRemainingCapacity(threadPoolExecutor.getQueue().remainingCapacity());
+        threadPoolConfigVO.setInstanceId(instanceId);
+        ExecutorAccessor.fill(threadPoolConfigVO, executor);
 
         if (logger.isDebugEnabled()) {
             logger.info("动态线程池，配置查询 应用名:{} 线程名:{} 池化配置:{}", applicationName, threadPoolName, JSON.toJSONString(threadPoolConfigVO));
@@ -72,12 +71,13 @@ public class DynamicThreadPoolService implements IDynamicThreadPoolService {
     @Override
     public void updateThreadPoolConfig(ThreadPoolConfigEntity threadPoolConfigEntity) {
         if (null == threadPoolConfigEntity || !applicationName.equals(threadPoolConfigEntity.getAppName())) return;
-        ThreadPoolExecutor threadPoolExecutor = threadPoolExecutorMap.get(threadPoolConfigEntity.getThreadPoolName());
-        if (null == threadPoolExecutor) return;
+        ExecutorService executor = threadPoolExecutorMap.get(threadPoolConfigEntity.getThreadPoolName());
+        if (null == executor) return;
 
         // 设置参数 「调整核心线程数和最大线程数」
-        threadPoolExecutor.setCorePoolSize(threadPoolConfigEntity.getCorePoolSize());
-        threadPoolExecutor.setMaximumPoolSize(threadPoolConfigEntity.getMaximumPoolSize());
+        if (!ExecutorAccessor.update(executor, threadPoolConfigEntity.getCorePoolSize(), threadPoolConfigEntity.getMaximumPoolSize())) {
+            logger.warn("动态线程池，线程池不支持调整参数。线程池名称:{} 类型:{}", threadPoolConfigEntity.getThreadPoolName(), executor.getClass().getSimpleName());
+        }
     }
 
 }
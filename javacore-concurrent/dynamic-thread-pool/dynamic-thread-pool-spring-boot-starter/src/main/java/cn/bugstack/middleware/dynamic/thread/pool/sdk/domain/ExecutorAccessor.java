@@ -0,0 +1,152 @@
+package cn.bugstack.middleware.dynamic.thread.pool.sdk.domain;
+
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.ThreadPoolConfigEntity;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+
+import java.util.Collection;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * @description 线程池指标读取与参数调整
+ * <p>
+ * 1. ThreadPoolExecutor：读取队列指标，可调整核心、最大线程数；
+ * 2. ForkJoinPool：核心、最大线程数均为 parallelism，只读；
+ * 3. 组合 ExecutorService（如阻塞/CPU 任务分离的 HybridThreadPool）：提供 delegateExecutors 属性时汇总各内部 Executor 的指标，只读；
+ * 需要调整参数时把内部 Executor 分别注册；
+ * 4. 其他 ExecutorService（如每任务一个虚拟线程的 Executor）：按与 ThreadPoolExecutor 同名的 Bean 属性读写，不存在的属性忽略。
+ * @create 2026-10-19 14:05
+ */
+final class ExecutorAccessor {
+
+    private ExecutorAccessor() {
+    }
+
+    static void fill(ThreadPoolConfigEntity entity, ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executor;
+            entity.setCorePoolSize(threadPoolExecutor.getCorePoolSize());
+            entity.setMaximumPoolSize(threadPoolExecutor.getMaximumPoolSize());
+            entity.setActiveCount(threadPoolExecutor.getActiveCount());
+            entity.setPoolSize(threadPoolExecutor.getPoolSize());
+            entity.setQueueType(threadPoolExecutor.getQueue().getClass().getSimpleName());
+            entity.setQueueSize(threadPoolExecutor.getQueue().size());
+            entity.setRemainingCapacity(threadPoolExecutor.getQueue().remainingCapacity());
+            return;
+        }
+
+        if (executor instanceof ForkJoinPool) {
+            ForkJoinPool forkJoinPool = (ForkJoinPool) executor;
+            entity.setCorePoolSize(forkJoinPool.getParallelism());
+            entity.setMaximumPoolSize(forkJoinPool.getParallelism());
+            entity.setActiveCount(forkJoinPool.getActiveThreadCount());
+            entity.setPoolSize(forkJoinPool.getPoolSize());
+            entity.setQueueType(forkJoinPool.getAsyncMode() ? "ForkJoinPool(FIFO)" : "ForkJoinPool(LIFO)");
+            entity.setQueueSize(saturatedCast(forkJoinPool.getQueuedTaskCount() + forkJoinPool.getQueuedSubmissionCount()));
+            entity.setRemainingCapacity(Integer.MAX_VALUE);
+            return;
+        }
+
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(executor);
+        Collection<ExecutorService> delegates = readDelegates(wrapper);
+        if (delegates != null) {
+            fillAggregate(entity, executor, delegates);
+            return;
+        }
+        entity.setCorePoolSize(readInt(wrapper, "corePoolSize"));
+        entity.setMaximumPoolSize(readInt(wrapper, "maximumPoolSize"));
+        entity.setActiveCount(readInt(wrapper, "activeCount"));
+        entity.setPoolSize(readInt(wrapper, "poolSize"));
+        entity.setQueueType(executor.getClass().getSimpleName());
+        entity.setQueueSize(readInt(wrapper, "queueSize"));
+        entity.setRemainingCapacity(readInt(wrapper, "remainingCapacity"));
+    }
+
+    /**
+     * 调整线程池参数，返回是否支持调整
+     */
+    static boolean update(ExecutorService executor, int corePoolSize, int maximumPoolSize) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executor;
+            // 调大时先调最大线程数，调小时先调核心线程数，避免中间状态 core > max 抛出异常
+            if (maximumPoolSize >= threadPoolExecutor.getMaximumPoolSize()) {
+                threadPoolExecutor.setMaximumPoolSize(maximumPoolSize);
+                threadPoolExecutor.setCorePoolSize(corePoolSize);
+            } else {
+                threadPoolExecutor.setCorePoolSize(corePoolSize);
+                threadPoolExecutor.setMaximumPoolSize(maximumPoolSize);
+            }
+            return true;
+        }
+
+        if (executor instanceof ForkJoinPool) {
+            return false;
+        }
+
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(executor);
+        if (readDelegates(wrapper) != null) {
+            return false;
+        }
+        boolean updated = false;
+        if (wrapper.isWritableProperty("maximumPoolSize")) {
+            wrapper.setPropertyValue("maximumPoolSize", maximumPoolSize);
+            updated = true;
+        }
+        if (wrapper.isWritableProperty("corePoolSize")) {
+            wrapper.setPropertyValue("corePoolSize", corePoolSize);
+            updated = true;
+        }
+        return updated;
+    }
+
+    /**
+     * 各内部 Executor 的指标求和，队列类型记为 组合类名[内部类型,...]
+     */
+    private static void fillAggregate(ThreadPoolConfigEntity entity, ExecutorService executor, Collection<ExecutorService> delegates) {
+        long corePoolSize = 0, maximumPoolSize = 0, activeCount = 0, poolSize = 0, queueSize = 0, remainingCapacity = 0;
+        StringJoiner queueTypes = new StringJoiner(",", executor.getClass().getSimpleName() + "[", "]");
+        for (ExecutorService delegate : delegates) {
+            ThreadPoolConfigEntity part = new ThreadPoolConfigEntity();
+            fill(part, delegate);
+            corePoolSize += part.getCorePoolSize();
+            maximumPoolSize += part.getMaximumPoolSize();
+            activeCount += part.getActiveCount();
+            poolSize += part.getPoolSize();
+            queueSize += part.getQueueSize();
+            remainingCapacity += part.getRemainingCapacity();
+            queueTypes.add(part.getQueueType());
+        }
+        entity.setCorePoolSize(saturatedCast(corePoolSize));
+        entity.setMaximumPoolSize(saturatedCast(maximumPoolSize));
+        entity.setActiveCount(saturatedCast(activeCount));
+        entity.setPoolSize(saturatedCast(poolSize));
+        entity.setQueueType(queueTypes.toString());
+        entity.setQueueSize(saturatedCast(queueSize));
+        entity.setRemainingCapacity(saturatedCast(remainingCapacity));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<ExecutorService> readDelegates(BeanWrapper wrapper) {
+        if (!wrapper.isReadableProperty("delegateExecutors")) return null;
+        Object value = wrapper.getPropertyValue("delegateExecutors");
+        if (!(value instanceof Collection)) return null;
+        for (Object delegate : (Collection<?>) value) {
+            if (!(delegate instanceof ExecutorService)) return null;
+        }
+        return (Collection<ExecutorService>) value;
+    }
+
+    private static int readInt(BeanWrapper wrapper, String propertyName) {
+        if (!wrapper.isReadableProperty(propertyName)) return 0;
+        Object value = wrapper.getPropertyValue(propertyName);
+        return value instanceof Number ? saturatedCast(((Number) value).longValue()) : 0;
+    }
+
+    private static int saturatedCast(long value) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(Integer.MIN_VALUE, value));
+    }
+
+}
@@ -1,5 +1,7 @@
 package cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity;
 
+import java.util.Objects;
+
 /**
  * @author Fuzhengwei bugstack.cn @小傅哥
  * @description 线程池配置实体对象
@@ -12,6 +14,11 @@ public class ThreadPoolConfigEntity {
      */
     private String appName;
 
+    /**
+     * 实例标识
+     */
+    private String instanceId;
+
     /**
      * 线程池名称
      */
@@ -64,6 +71,14 @@ public class ThreadPoolConfigEntity {
         return appName;
     }
 
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
     public String getThreadPoolName() {
         return threadPoolName;
     }
@@ -124,4 +139,38 @@ public class ThreadPoolConfigEntity {
         this.remainingCapacity = remainingCapacity;
     }
 
+    /**
+     * 配置参数（核心线程数、最大线程数、队列类型）是否相同，不比较活跃线程数、队列任务数等运行时统计
+     */
+    public boolean sameConfig(ThreadPoolConfigEntity that) {
+        return that != null
+                && corePoolSize == that.corePoolSize
+                && maximumPoolSize == that.maximumPoolSize
+                && Objects.equals(appName, that.appName)
+                && Objects.equals(threadPoolName, that.threadPoolName)
+                && Objects.equals(queueType, that.queueType);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ThreadPoolConfigEntity that = (ThreadPoolConfigEntity) o;
+        return corePoolSize == that.corePoolSize
+                && maximumPoolSize == that.maximumPoolSize
+                && activeCount == that.activeCount
+                && poolSize == that.poolSize
+                && queueSize == that.queueSize
+                && remainingCapacity == that.remainingCapacity
+                && Objects.equals(appName, that.appName)
+                && Objects.equals(instanceId, that.instanceId)
+                && Objects.equals(threadPoolName, that.threadPoolName)
+                && Objects.equals(queueType, that.queueType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(appName, instanceId, threadPoolName, corePoolSize, maximumPoolSize, activeCount, poolSize, queueType, queueSize, remainingCapacity);
+    }
+
 }
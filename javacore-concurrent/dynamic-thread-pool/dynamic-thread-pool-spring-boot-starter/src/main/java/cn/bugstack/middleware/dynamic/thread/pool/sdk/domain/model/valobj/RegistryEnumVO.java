@@ -9,6 +9,8 @@ public enum RegistryEnumVO {
 
     THREAD_POOL_CONFIG_LIST_KEY("THREAD_POOL_CONFIG_LIST_KEY", "池化配置列表"),
     THREAD_POOL_CONFIG_PARAMETER_LIST_KEY("THREAD_POOL_CONFIG_PARAMETER_LIST_KEY", "池化配置参数"),
+    THREAD_POOL_CONFIG_HASH_KEY("THREAD_POOL_CONFIG_HASH_KEY", "池化配置哈希，按 应用+实例 分 key，线程池名称为 field"),
+    THREAD_POOL_CONFIG_INSTANCE_INDEX_KEY("THREAD_POOL_CONFIG_INSTANCE_INDEX_KEY", "池化配置实例索引，score 为最近一次上报时间"),
     DYNAMIC_THREAD_POOL_REDIS_TOPIC("DYNAMIC_THREAD_POOL_REDIS_TOPIC", "动态线程池监听主题配置");
 
     private final String key;
@@ -11,8 +11,25 @@ import java.util.List;
  */
 public interface IRegistry {
 
+    /**
+     * 上报当前实例的线程池列表，实现方按 应用+实例+线程池 存储，只需发送变化的部分
+     */
     void reportThreadPool(List<ThreadPoolConfigEntity> threadPoolEntities);
 
     void reportThreadPoolConfigParameter(ThreadPoolConfigEntity threadPoolConfigEntity);
 
+    /**
+     * 批量上报线程池配置参数，默认逐个上报；实现方可合并为一次批量写
+     */
+    default void reportThreadPoolConfigParameter(List<ThreadPoolConfigEntity> threadPoolConfigEntities) {
+        for (ThreadPoolConfigEntity threadPoolConfigEntity : threadPoolConfigEntities) {
+            reportThreadPoolConfigParameter(threadPoolConfigEntity);
+        }
+    }
+
+    /**
+     * 查询已上报的线程池配置参数，不存在时返回 null
+     */
+    ThreadPoolConfigEntity queryThreadPoolConfigParameter(String appName, String threadPoolName);
+
 }
@@ -0,0 +1,56 @@
+package cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.local;
+
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.ThreadPoolConfigEntity;
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.IRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @description 本地内存注册中心，用于单元测试和本地运行，不依赖 Redis
+ * <p>
+ * 存储结构与 {@link cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.redis.RedisRegistry} 一致：按 应用+实例 分组，线程池名称为 field。
+ * @create 2026-10-19 10:12
+ */
+public class LocalRegistry implements IRegistry {
+
+    /** 应用_实例 -> 线程池名称 -> 配置 */
+    private final Map<String, Map<String, ThreadPoolConfigEntity>> threadPools = new ConcurrentHashMap<>();
+
+    /** 应用_线程池名称 -> 配置参数 */
+    private final Map<String, ThreadPoolConfigEntity> parameters = new ConcurrentHashMap<>();
+
+    @Override
+    public void reportThreadPool(List<ThreadPoolConfigEntity> threadPoolEntities) {
+        Map<String, Map<String, ThreadPoolConfigEntity>> current = new ConcurrentHashMap<>();
+        for (ThreadPoolConfigEntity entity : threadPoolEntities) {
+            current.computeIfAbsent(entity.getAppName() + "_" + entity.getInstanceId(), k -> new ConcurrentHashMap<>())
+                    .put(entity.getThreadPoolName(), entity);
+        }
+        threadPools.putAll(current);
+    }
+
+    @Override
+    public void reportThreadPoolConfigParameter(ThreadPoolConfigEntity threadPoolConfigEntity) {
+        parameters.put(threadPoolConfigEntity.getAppName() + "_" + threadPoolConfigEntity.getThreadPoolName(), threadPoolConfigEntity);
+    }
+
+    @Override
+    public ThreadPoolConfigEntity queryThreadPoolConfigParameter(String appName, String threadPoolName) {
+        return parameters.get(appName + "_" + threadPoolName);
+    }
+
+    /**
+     * 查询所有实例上报的线程池列表
+     */
+    public List<ThreadPoolConfigEntity> queryThreadPoolList() {
+        List<ThreadPoolConfigEntity> list = new ArrayList<>();
+        for (Map<String, ThreadPoolConfigEntity> instance : threadPools.values()) {
+            list.addAll(instance.values());
+        }
+        return list;
+    }
+
+}
@@ -3,38 +3,196 @@ package cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.redis;
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.ThreadPoolConfigEntity;
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.valobj.RegistryEnumVO;
 import cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.IRegistry;
+import org.redisson.api.RBatch;
 import org.redisson.api.RBucket;
-import org.redisson.api.RList;
+import org.redisson.api.RFuture;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RScoredSortedSetAsync;
 import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Fuzhengwei bugstack.cn @小傅哥
  * @description Redis 注册中心
+ * <p>
+ * 每个实例写自己的哈希（key = 前缀_应用_实例，field = 线程池名称），不再整体删除重写共享列表；
+ * 与上次上报的快照比对，只发送有变化的线程池，所有命令合并为一次 {@link RBatch} 管道提交。
+ * 配置参数只比较配置字段（见 {@link ThreadPoolConfigEntity#sameConfig}），运行时统计的变化不会触发写入。
+ * 两类数据都每隔若干次上报做一次全量写入并续期，兜底 Redis 重启、主从切换或 key 过期后数据丢失。
+ * <p>
+ * 上报任务和配置变更监听会在不同线程调用，上报方法串行执行，避免快照与 Redis 中的数据不一致。
  * @create 2024-05-12 16:22
  */
 public class RedisRegistry implements IRegistry {
 
+    private final Logger logger = LoggerFactory.getLogger(RedisRegistry.class);
+
+    /** 实例哈希过期时间；每次上报都会续期，实例下线后由 Redis 自动清理 */
+    private static final Duration INSTANCE_TTL = Duration.ofMinutes(2);
+
+    /** 配置参数过期时间 */
+    private static final Duration PARAMETER_TTL = Duration.ofDays(30);
+
+    /** 每隔多少次上报做一次全量同步，兜底 Redis 重启、主从切换或数据被清理 */
+    private static final int DEFAULT_FULL_SYNC_INTERVAL = 15;
+
     private final RedissonClient redissonClient;
 
+    private final int fullSyncInterval;
+
+    private final AtomicLong reportCount = new AtomicLong();
+
+    private final AtomicLong parameterReportCount = new AtomicLong();
+
+    /** 上次上报成功的快照；key = 实例哈希 key，value = 线程池名称 -> 配置 */
+    private final Map<String, Map<String, ThreadPoolConfigEntity>> reportedThreadPools = new ConcurrentHashMap<>();
+
+    /** 上次上报成功的配置参数快照；key = 配置参数缓存 key */
+    private final Map<String, ThreadPoolConfigEntity> reportedParameters = new ConcurrentHashMap<>();
+
     public RedisRegistry(RedissonClient redissonClient) {
+        this(redissonClient, DEFAULT_FULL_SYNC_INTERVAL);
+    }
+
+    public RedisRegistry(RedissonClient redissonClient, int fullSyncInterval) {
         this.redissonClient = redissonClient;
+        this.fullSyncInterval = Math.max(1, fullSyncInterval);
     }
 
     @Override
-    public void reportThreadPool(List<ThreadPoolConfigEntity> threadPoolEntities) {
-        RList<ThreadPoolConfigEntity> list = redissonClient.getList(RegistryEnumVO.THREAD_POOL_CONFIG_LIST_KEY.getKey());
-        list.delete();
-        list.addAll(threadPoolEntities);
+    public synchronized void reportThreadPool(List<ThreadPoolConfigEntity> threadPoolEntities) {
+        boolean fullSync = reportCount.getAndIncrement() % fullSyncInterval == 0;
+        long now = System.currentTimeMillis();
+
+        // 按实例分组，一般只有当前实例一组
+        Map<String, Map<String, ThreadPoolConfigEntity>> current = new LinkedHashMap<>();
+        for (ThreadPoolConfigEntity entity : threadPoolEntities) {
+            current.computeIfAbsent(instanceKey(entity), k -> new LinkedHashMap<>()).put(entity.getThreadPoolName(), entity);
+        }
+
+        RBatch batch = redissonClient.createBatch();
+        RScoredSortedSetAsync<String> index = batch.getScoredSortedSet(RegistryEnumVO.THREAD_POOL_CONFIG_INSTANCE_INDEX_KEY.getKey());
+        Map<String, RFuture<Boolean>> expiries = new HashMap<>();
+        int changedCount = 0;
+        for (Map.Entry<String, Map<String, ThreadPoolConfigEntity>> entry : current.entrySet()) {
+            String instanceKey = entry.getKey();
+            Map<String, ThreadPoolConfigEntity> previous = fullSync ? Collections.emptyMap() : reportedThreadPools.getOrDefault(instanceKey, Collections.emptyMap());
+
+            Map<String, ThreadPoolConfigEntity> changed = new HashMap<>();
+            for (Map.Entry<String, ThreadPoolConfigEntity> pool : entry.getValue().entrySet()) {
+                if (!pool.getValue().equals(previous.get(pool.getKey()))) {
+                    changed.put(pool.getKey(), pool.getValue());
+                }
+            }
+            List<String> removed = new ArrayList<>();
+            for (String threadPoolName : reportedThreadPools.getOrDefault(instanceKey, Collections.emptyMap()).keySet()) {
+                if (!entry.getValue().containsKey(threadPoolName)) {
+                    removed.add(threadPoolName);
+                }
+            }
+
+            RMapAsync<String, ThreadPoolConfigEntity> map = batch.getMap(instanceKey);
+            if (!changed.isEmpty()) {
+                map.putAllAsync(changed);
+            }
+            if (!removed.isEmpty()) {
+                map.fastRemoveAsync(removed.toArray(new String[0]));
+            }
+            // 无变化时也续期，相当于实例心跳；返回 false 说明 key 已不存在（过期或 Redis 数据丢失）
+            expiries.put(instanceKey, map.expireAsync(INSTANCE_TTL));
+            index.addAsync(now, instanceKey);
+            changedCount += changed.size() + removed.size();
+        }
+        index.removeRangeByScoreAsync(0, true, now - INSTANCE_TTL.toMillis(), false);
+
+        try {
+            batch.execute();
+        } catch (RuntimeException e) {
+            // 写入结果未知，清空快照，下次全量上报
+            reportedThreadPools.clear();
+            throw e;
+        }
+        reportedThreadPools.putAll(current);
+        for (Map.Entry<String, RFuture<Boolean>> expiry : expiries.entrySet()) {
+            if (!Boolean.TRUE.equals(expiry.getValue().toCompletableFuture().getNow(null))) {
+                // key 丢失，丢弃该实例的快照，下次上报全量写入
+                reportedThreadPools.remove(expiry.getKey());
+            }
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("动态线程池，上报线程池信息。实例数:{} 变更数:{} 全量:{}", current.size(), changedCount, fullSync);
+        }
     }
 
     @Override
-    public void reportThreadPoolConfigParameter(ThreadPoolConfigEntity threadPoolConfigEntity) {
-        String cacheKey = RegistryEnumVO.THREAD_POOL_CONFIG_PARAMETER_LIST_KEY.getKey() + "_" + threadPoolConfigEntity.getAppName() + "_" + threadPoolConfigEntity.getThreadPoolName();
+    public synchronized void reportThreadPoolConfigParameter(ThreadPoolConfigEntity threadPoolConfigEntity) {
+        String cacheKey = parameterKey(threadPoolConfigEntity.getAppName(), threadPoolConfigEntity.getThreadPoolName());
         RBucket<ThreadPoolConfigEntity> bucket = redissonClient.getBucket(cacheKey);
-        bucket.set(threadPoolConfigEntity, Duration.ofDays(30));
+        try {
+            bucket.set(threadPoolConfigEntity, PARAMETER_TTL);
+        } catch (RuntimeException e) {
+            reportedParameters.remove(cacheKey);
+            throw e;
+        }
+        reportedParameters.put(cacheKey, threadPoolConfigEntity);
+    }
+
+    @Override
+    public synchronized void reportThreadPoolConfigParameter(List<ThreadPoolConfigEntity> threadPoolConfigEntities) {
+        boolean fullSync = parameterReportCount.getAndIncrement() % fullSyncInterval == 0;
+        Map<String, ThreadPoolConfigEntity> changed = new LinkedHashMap<>();
+        for (ThreadPoolConfigEntity entity : threadPoolConfigEntities) {
+            String cacheKey = parameterKey(entity.getAppName(), entity.getThreadPoolName());
+            if (fullSync || !entity.sameConfig(reportedParameters.get(cacheKey))) {
+                changed.put(cacheKey, entity);
+            }
+        }
+        if (changed.isEmpty()) return;
+
+        // 全量同步时重新写入并续期，Redis 中的 key 丢失或过期后最多一个同步周期即可恢复
+        RBatch batch = redissonClient.createBatch();
+        for (Map.Entry<String, ThreadPoolConfigEntity> entry : changed.entrySet()) {
+            batch.<ThreadPoolConfigEntity>getBucket(entry.getKey()).setAsync(entry.getValue(), PARAMETER_TTL.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        try {
+            batch.execute();
+        } catch (RuntimeException e) {
+            // 写入结果未知，清空快照并让下次上报做全量同步
+            reportedParameters.clear();
+            parameterReportCount.set(0);
+            throw e;
+        }
+        reportedParameters.putAll(changed);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("动态线程池，上报配置参数。变更数:{} 全量:{}", changed.size(), fullSync);
+        }
+    }
+
+    @Override
+    public ThreadPoolConfigEntity queryThreadPoolConfigParameter(String appName, String threadPoolName) {
+        return redissonClient.<ThreadPoolConfigEntity>getBucket(parameterKey(appName, threadPoolName)).get();
+    }
+
+    private String instanceKey(ThreadPoolConfigEntity entity) {
+        return RegistryEnumVO.THREAD_POOL_CONFIG_HASH_KEY.getKey() + "_" + entity.getAppName() + "_" + entity.getInstanceId();
+    }
+
+    private String parameterKey(String appName, String threadPoolName) {
+        return RegistryEnumVO.THREAD_POOL_CONFIG_PARAMETER_LIST_KEY.getKey() + "_" + appName + "_" + threadPoolName;
     }
 
 }
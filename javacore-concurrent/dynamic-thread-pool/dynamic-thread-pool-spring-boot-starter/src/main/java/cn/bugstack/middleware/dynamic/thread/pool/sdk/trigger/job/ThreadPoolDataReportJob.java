@@ -32,13 +32,11 @@ public class ThreadPoolDataReportJob {
     public void execReportThreadPoolList() {
         List<ThreadPoolConfigEntity> threadPoolConfigEntities = dynamicThreadPoolService.queryThreadPoolList();
         registry.reportThreadPool(threadPoolConfigEntities);
-        logger.info("动态线程池，上报线程池信息：{}", JSON.toJSONString(threadPoolConfigEntities));
+        registry.reportThreadPoolConfigParameter(threadPoolConfigEntities);
 
-        for (ThreadPoolConfigEntity threadPoolConfigEntity : threadPoolConfigEntities) {
-            registry.reportThreadPoolConfigParameter(threadPoolConfigEntity);
-            logger.info("动态线程池，上报线程池配置：{}", JSON.toJSONString(threadPoolConfigEntity));
+        if (logger.isDebugEnabled()) {
+            logger.debug("动态线程池，上报线程池信息：{}", JSON.toJSONString(threadPoolConfigEntities));
         }
-
     }
 
 }
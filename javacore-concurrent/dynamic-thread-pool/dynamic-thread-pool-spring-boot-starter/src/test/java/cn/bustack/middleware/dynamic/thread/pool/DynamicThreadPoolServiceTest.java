@@ -0,0 +1,92 @@
+package cn.bustack.middleware.dynamic.thread.pool;
+
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.DynamicThreadPoolService;
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.ThreadPoolConfigEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description 组合线程池（提供 delegateExecutors 属性）汇总内部 Executor 的指标，且不支持调整参数
+ * @create 2026-10-19 19:10
+ */
+public class DynamicThreadPoolServiceTest {
+
+    @Test
+    public void test_queryThreadPoolList_aggregatesDelegates() {
+        ThreadPoolExecutor io = new ThreadPoolExecutor(2, 4, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(10));
+        ThreadPoolExecutor cpu = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(5));
+        CompositeExecutor composite = new CompositeExecutor(io, cpu);
+        try {
+            DynamicThreadPoolService service = new DynamicThreadPoolService("app", "instance01", Collections.singletonMap("hybrid", composite));
+            ThreadPoolConfigEntity entity = service.queryThreadPoolList().get(0);
+            Assert.assertEquals(3, entity.getCorePoolSize());
+            Assert.assertEquals(5, entity.getMaximumPoolSize());
+            Assert.assertEquals(15, entity.getRemainingCapacity());
+            Assert.assertEquals("CompositeExecutor[LinkedBlockingQueue,LinkedBlockingQueue]", entity.getQueueType());
+
+            // 组合线程池只读，内部 Executor 不受影响
+            ThreadPoolConfigEntity update = new ThreadPoolConfigEntity("app", "hybrid");
+            update.setCorePoolSize(8);
+            update.setMaximumPoolSize(8);
+            service.updateThreadPoolConfig(update);
+            Assert.assertEquals(4, io.getMaximumPoolSize());
+            Assert.assertEquals(1, cpu.getMaximumPoolSize());
+        } finally {
+            composite.shutdown();
+        }
+    }
+
+    public static class CompositeExecutor extends AbstractExecutorService {
+
+        private final List<ExecutorService> delegateExecutors;
+
+        CompositeExecutor(ExecutorService... delegateExecutors) {
+            this.delegateExecutors = Arrays.asList(delegateExecutors);
+        }
+
+        public List<ExecutorService> getDelegateExecutors() {
+            return delegateExecutors;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegateExecutors.get(0).execute(command);
+        }
+
+        @Override
+        public void shutdown() {
+            delegateExecutors.forEach(ExecutorService::shutdown);
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegateExecutors.stream().allMatch(ExecutorService::isShutdown);
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegateExecutors.stream().allMatch(ExecutorService::isTerminated);
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+
+}
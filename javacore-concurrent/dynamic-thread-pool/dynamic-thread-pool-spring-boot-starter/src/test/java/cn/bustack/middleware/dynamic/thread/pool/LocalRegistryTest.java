@@ -0,0 +1,43 @@
+package cn.bustack.middleware.dynamic.thread.pool;
+
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.DynamicThreadPoolService;
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.ThreadPoolConfigEntity;
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.local.LocalRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @description 本地注册中心单元测试，多个实例上报同一应用的线程池互不覆盖
+ * @create 2026-10-19 10:30
+ */
+public class LocalRegistryTest {
+
+    @Test
+    public void test_reportThreadPool_perInstance() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(10));
+        try {
+            Map<String, ThreadPoolExecutor> executorMap = Collections.singletonMap("threadPoolExecutor01", executor);
+            LocalRegistry registry = new LocalRegistry();
+
+            List<ThreadPoolConfigEntity> instance01 = new DynamicThreadPoolService("app", "instance01", executorMap).queryThreadPoolList();
+            List<ThreadPoolConfigEntity> instance02 = new DynamicThreadPoolService("app", "instance02", executorMap).queryThreadPoolList();
+            registry.reportThreadPool(instance01);
+            registry.reportThreadPool(instance02);
+            registry.reportThreadPoolConfigParameter(instance01);
+
+            Assert.assertEquals(2, registry.queryThreadPoolList().size());
+            Assert.assertEquals(2, registry.queryThreadPoolConfigParameter("app", "threadPoolExecutor01").getMaximumPoolSize());
+            Assert.assertNull(registry.queryThreadPoolConfigParameter("app", "threadPoolExecutor02"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
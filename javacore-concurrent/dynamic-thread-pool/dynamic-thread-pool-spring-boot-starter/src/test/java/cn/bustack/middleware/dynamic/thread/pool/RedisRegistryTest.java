@@ -0,0 +1,144 @@
+package cn.bustack.middleware.dynamic.thread.pool;
+
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.domain.model.entity.ThreadPoolConfigEntity;
+import cn.bugstack.middleware.dynamic.thread.pool.sdk.registry.redis.RedisRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RFuture;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RedissonClient;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @description Redis 注册中心增量上报单元测试：只在配置变化时写入，定期全量同步，key 丢失后重写
+ * @create 2026-10-19 18:40
+ */
+@SuppressWarnings("unchecked")
+public class RedisRegistryTest {
+
+    private static final int FULL_SYNC_INTERVAL = 3;
+
+    private RedissonClient redissonClient;
+
+    private RBatch batch;
+
+    private RBucketAsync<Object> bucket;
+
+    private RMapAsync<Object, Object> map;
+
+    private RFuture<Boolean> expiry;
+
+    private RedisRegistry registry;
+
+    @Before
+    public void setUp() {
+        redissonClient = mock(RedissonClient.class);
+        batch = mock(RBatch.class);
+        bucket = mock(RBucketAsync.class);
+        map = mock(RMapAsync.class);
+        expiry = mock(RFuture.class);
+        when(redissonClient.createBatch()).thenReturn(batch);
+        when(batch.getBucket(anyString())).thenReturn(bucket);
+        when(batch.getMap(anyString())).thenReturn(map);
+        when(batch.getScoredSortedSet(anyString())).thenReturn(mock(RScoredSortedSetAsync.class));
+        when(map.expireAsync(any(Duration.class))).thenReturn(expiry);
+        when(expiry.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(true));
+        registry = new RedisRegistry(redissonClient, FULL_SYNC_INTERVAL);
+    }
+
+    @Test
+    public void test_reportThreadPoolConfigParameter_onlyConfigChanges() {
+        // 第一次上报是全量同步
+        registry.reportThreadPoolConfigParameter(Arrays.asList(entity("pool01", 1, 2, 0), entity("pool02", 2, 4, 0)));
+        verify(bucket, times(2)).setAsync(any(), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        // 只有运行时统计变化，不写入
+        clearInvocations(redissonClient, bucket);
+        registry.reportThreadPoolConfigParameter(Arrays.asList(entity("pool01", 1, 2, 5), entity("pool02", 2, 4, 7)));
+        verify(redissonClient, never()).createBatch();
+
+        // 配置变化，只写变化的线程池
+        registry.reportThreadPoolConfigParameter(Arrays.asList(entity("pool01", 1, 8, 5), entity("pool02", 2, 4, 7)));
+        verify(bucket, times(1)).setAsync(any(), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        // 到达全量同步周期，全部重写并续期
+        clearInvocations(bucket);
+        registry.reportThreadPoolConfigParameter(Arrays.asList(entity("pool01", 1, 8, 5), entity("pool02", 2, 4, 7)));
+        verify(bucket, times(2)).setAsync(any(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void test_reportThreadPoolConfigParameter_fullSyncAfterFailure() {
+        List<ThreadPoolConfigEntity> entities = Collections.singletonList(entity("pool01", 1, 2, 0));
+        registry.reportThreadPoolConfigParameter(entities);
+
+        doThrow(new IllegalStateException("redis down")).when(batch).execute();
+        try {
+            registry.reportThreadPoolConfigParameter(Collections.singletonList(entity("pool01", 1, 3, 0)));
+        } catch (IllegalStateException expected) {
+            // 写入失败
+        }
+
+        // 失败后快照作废，配置未变也要重写
+        doReturn(null).when(batch).execute();
+        clearInvocations(bucket);
+        registry.reportThreadPoolConfigParameter(entities);
+        verify(bucket, times(1)).setAsync(any(), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void test_reportThreadPool_rewriteWhenKeyMissing() {
+        // 拉长全量同步周期，确认重写来自 key 丢失的检测
+        registry = new RedisRegistry(redissonClient, 100);
+        List<ThreadPoolConfigEntity> entities = Collections.singletonList(entity("pool01", 1, 2, 0));
+        registry.reportThreadPool(entities);
+        verify(map, times(1)).putAllAsync(any(Map.class));
+
+        // 无变化，只续期
+        clearInvocations(map);
+        registry.reportThreadPool(entities);
+        verify(map, never()).putAllAsync(any(Map.class));
+
+        // 续期失败说明 key 已丢失，下次上报重写
+        when(expiry.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(false));
+        registry.reportThreadPool(entities);
+        when(expiry.toCompletableFuture()).thenReturn(CompletableFuture.completedFuture(true));
+        clearInvocations(map);
+        registry.reportThreadPool(entities);
+        verify(map, times(1)).putAllAsync(any(Map.class));
+    }
+
+    private static ThreadPoolConfigEntity entity(String threadPoolName, int corePoolSize, int maximumPoolSize, int activeCount) {
+        ThreadPoolConfigEntity entity = new ThreadPoolConfigEntity("app", threadPoolName);
+        entity.setInstanceId("instance01");
+        entity.setCorePoolSize(corePoolSize);
+        entity.setMaximumPoolSize(maximumPoolSize);
+        entity.setActiveCount(activeCount);
+        entity.setQueueType("LinkedBlockingQueue");
+        return entity;
+    }
+
+}
@@ -0,0 +1,61 @@
+package io.github.dunwu.javacore.concurrent.current.features.cache;
+
+/**
+ * 侵入式双向链表，节点自身保存 prev/next，入队出队不分配对象。头部是最久未访问的节点。
+ * <p>
+ * 非线程安全，只在持有 evictionLock 时使用。
+ */
+final class AccessOrderDeque<K, V> {
+
+    private Node<K, V> first;
+
+    private Node<K, V> last;
+
+    Node<K, V> peekFirst() {
+        return first;
+    }
+
+    boolean isEmpty() {
+        return first == null;
+    }
+
+    void addLast(Node<K, V> node) {
+        node.prev = last;
+        node.next = null;
+        if (last == null) {
+            first = node;
+        } else {
+            last.next = node;
+        }
+        last = node;
+    }
+
+    void remove(Node<K, V> node) {
+        Node<K, V> prev = node.prev;
+        Node<K, V> next = node.next;
+        if (prev == null) {
+            first = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            last = prev;
+        } else {
+            next.prev = prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    void moveToBack(Node<K, V> node) {
+        if (node != last) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    void clear() {
+        first = null;
+        last = null;
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.dunwu.javacore.concurrent.current.features.cache;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * {@link TinyLfuCache} 的构建器。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * TinyLfuCache&lt;String, List&lt;Instance&gt;&gt; cache = CacheBuilder.newBuilder()
+ *         .setMaximumSize(10_000)
+ *         .setExpireAfterWrite(30, TimeUnit.SECONDS)
+ *         .build();
+ * List&lt;Instance&gt; instances = cache.get(serviceName, registry::lookup);
+ * </pre>
+ * 不设置容量时缓存无界，只按过期时间清理。
+ */
+public class CacheBuilder<K, V> {
+
+    private long maximumWeight = -1L;
+
+    private ToIntBiFunction<? super K, ? super V> weigher;
+
+    private long expireAfterWriteNanos = -1L;
+
+    private long expireAfterAccessNanos = -1L;
+
+    private LongSupplier ticker = System::nanoTime;
+
+    public static <K, V> CacheBuilder<K, V> newBuilder() {
+        return new CacheBuilder<>();
+    }
+
+    /**
+     * 最多缓存的条目数，与 {@link #setMaximumWeight} 二选一
+     */
+    public CacheBuilder<K, V> setMaximumSize(long maximumSize) {
+        Validate.isTrue(maximumSize >= 0, "maximumSize must not be negative");
+        Validate.isTrue(weigher == null, "maximumSize can not be combined with weigher");
+        this.maximumWeight = maximumSize;
+        return this;
+    }
+
+    /**
+     * 所有条目权重之和的上限，需要同时设置 {@link #setWeigher}
+     */
+    public CacheBuilder<K, V> setMaximumWeight(long maximumWeight) {
+        Validate.isTrue(maximumWeight >= 0, "maximumWeight must not be negative");
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    /**
+     * 计算条目的权重，例如按字节数；权重必须非负，写入时计算一次。
+     * 设置后构建器的类型参数收窄为 weigher 能接受的类型
+     */
+    public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> setWeigher(
+            ToIntBiFunction<? super K1, ? super V1> weigher) {
+        Validate.notNull(weigher);
+        @SuppressWarnings("unchecked")
+        CacheBuilder<K1, V1> self = (CacheBuilder<K1, V1>) this;
+        self.weigher = weigher;
+        return self;
+    }
+
+    /**
+     * 写入（或覆盖）后经过 duration 过期
+     */
+    public CacheBuilder<K, V> setExpireAfterWrite(long duration, TimeUnit unit) {
+        Validate.isTrue(duration > 0, "duration must be positive");
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 最后一次读或写后经过 duration 过期
+     */
+    public CacheBuilder<K, V> setExpireAfterAccess(long duration, TimeUnit unit) {
+        Validate.isTrue(duration > 0, "duration must be positive");
+        this.expireAfterAccessNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 纳秒时钟，默认 System.nanoTime，测试时可以注入可控的时间
+     */
+    public CacheBuilder<K, V> setTicker(LongSupplier ticker) {
+        this.ticker = Validate.notNull(ticker);
+        return this;
+    }
+
+    public <K1 extends K, V1 extends V> TinyLfuCache<K1, V1> build() {
+        Validate.isTrue(weigher == null || maximumWeight >= 0, "weigher requires maximumWeight");
+        @SuppressWarnings("unchecked")
+        CacheBuilder<K1, V1> self = (CacheBuilder<K1, V1>) this;
+        return new TinyLfuCache<>(self);
+    }
+
+    long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    ToIntBiFunction<? super K, ? super V> getWeigher() {
+        return weigher;
+    }
+
+    long getExpireAfterWriteNanos() {
+        return expireAfterWriteNanos;
+    }
+
+    long getExpireAfterAccessNanos() {
+        return expireAfterAccessNanos;
+    }
+
+    LongSupplier getTicker() {
+        return ticker;
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.dunwu.javacore.concurrent.current.features.cache;
+
+/**
+ * 缓存条目。
+ * <p>
+ * volatile 字段由读写线程无锁访问；其余字段只在持有 evictionLock 时由维护线程访问，
+ * 包括所在的 LRU 队列、在淘汰策略中的权重以及时间轮中的位置。
+ */
+final class Node<K, V> {
+
+    static final byte WINDOW = 0;
+
+    static final byte PROBATION = 1;
+
+    static final byte PROTECTED = 2;
+
+    final K key;
+
+    volatile V value;
+
+    volatile int weight;
+
+    volatile long writeTime;
+
+    volatile long accessTime;
+
+    /**
+     * 已从 map 中删除，只在 map 的 compute 函数内置为 true，与删除本身是原子的
+     */
+    volatile boolean retired;
+
+    // ------------------------------------------------------------------ 以下字段由 evictionLock 保护
+
+    boolean inPolicy;
+
+    int policyWeight;
+
+    byte queue;
+
+    Node<K, V> prev;
+
+    Node<K, V> next;
+
+    long variableTime;
+
+    Node<K, V> prevInTimer;
+
+    Node<K, V> nextInTimer;
+
+    Node(K key, V value, int weight, long now) {
+        this.key = key;
+        this.value = value;
+        this.weight = weight;
+        this.writeTime = now;
+        this.accessTime = now;
+    }
+
+    /**
+     * 时间轮桶的哨兵节点
+     */
+    static <K, V> Node<K, V> sentinel() {
+        Node<K, V> sentinel = new Node<>(null, null, 0, 0L);
+        sentinel.prevInTimer = sentinel;
+        sentinel.nextInTimer = sentinel;
+        return sentinel;
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.dunwu.javacore.concurrent.current.features.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 记录读操作的有损环形缓冲区，按线程分成多个 stripe。
+ * <p>
+ * 读命中时只需把节点放进当前线程对应 stripe 的一个槽位，LRU 重排和频率统计延后到持有 evictionLock 时批量回放，
+ * 读路径上因此没有锁。stripe 满了或者 CAS 失败时直接丢弃这次记录：访问记录只用于估计热度，少量丢失不影响命中率。
+ * <p>
+ * 多个读线程并发写入（CAS 抢占写下标），只有持有 evictionLock 的线程读取。
+ */
+final class StripedReadBuffer<E> {
+
+    static final int BUFFER_SIZE = 16;
+
+    private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+
+    private static final int MAX_STRIPES = 64;
+
+    private final Stripe<E>[] stripes;
+
+    private final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    StripedReadBuffer() {
+        int count = Math.min(MAX_STRIPES, ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors()));
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        stripeMask = count - 1;
+    }
+
+    /**
+     * 记录一次读，返回 true 表示所在 stripe 已满，调用方应尽快回放
+     */
+    boolean offer(E e) {
+        return stripes[probe() & stripeMask].offer(e);
+    }
+
+    /**
+     * 回放所有 stripe 中的记录，只能在持有 evictionLock 时调用
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static int probe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << (32 - Integer.numberOfLeadingZeros(x - 1));
+    }
+
+    private static final class Stripe<E> {
+
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+
+        private final AtomicLong writeCounter = new AtomicLong();
+
+        private volatile long readCounter;
+
+        boolean offer(E e) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            long size = tail - head;
+            if (size >= BUFFER_SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) tail & BUFFER_MASK, e);
+                return size + 1 >= BUFFER_SIZE;
+            }
+            return false;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) head & BUFFER_MASK;
+                E e = buffer.get(index);
+                if (e == null) {
+                    // 写线程已抢到槽位但还没写入，下次再回放
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+            }
+            readCounter = head;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.dunwu.javacore.concurrent.current.features.cache;
+
+import java.util.function.Predicate;
+
+/**
+ * 分层时间轮，按条目的过期时间 {@link Node#variableTime} 组织，调度与取消都是 O(1)。
+ * <p>
+ * 1. 共 5 层，每层的桶跨度分别约为 1.07 秒、1.14 分钟、1.22 小时、1.63 天、6.5 天（都取 2 的幂纳秒，下标用移位计算），
+ * 过期时间离当前越远放在越粗的层；
+ * <p>
+ * 2. {@link #advance} 时逐层检查走过的桶，把桶中的节点整体摘下：已过期的交给 evictor 删除，
+ * 未过期的（较粗的层提前到期，或者过期时间被访问延后了）重新调度到更细的层；
+ * <p>
+ * 3. 桶内是以哨兵为头的侵入式双向循环链表，非线程安全，只在持有 evictionLock 时使用。
+ * <p>
+ * 时间是缓存内部的相对纳秒数，从 0 开始单调递增，不需要处理 System.nanoTime 的符号回绕。
+ */
+final class TimerWheel<K, V> {
+
+    static final int[] BUCKETS = {64, 64, 32, 4, 1};
+
+    static final long[] SPANS = {
+            1L << 30, // 1.07s
+            1L << 36, // 1.14m
+            1L << 42, // 1.22h
+            1L << 47, // 1.63d
+            4L << 47, // 6.5d
+            4L << 47,
+    };
+
+    static final long[] SHIFT = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final Node<K, V>[][] wheel;
+
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel() {
+        wheel = new Node[BUCKETS.length][];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Node[BUCKETS[i]];
+            for (int j = 0; j < wheel[i].length; j++) {
+                wheel[i][j] = Node.sentinel();
+            }
+        }
+    }
+
+    /**
+     * 推进到 currentTimeNanos，处理期间到期的桶
+     *
+     * @param evictor 删除过期节点，返回 false 表示节点并未过期（或已被其他操作删除），需要重新调度
+     */
+    void advance(long currentTimeNanos, Predicate<Node<K, V>> evictor) {
+        long previousTimeNanos = nanos;
+        if (currentTimeNanos - previousTimeNanos <= 0) {
+            return;
+        }
+        nanos = currentTimeNanos;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTimeNanos >>> SHIFT[i];
+            long currentTicks = currentTimeNanos >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, evictor);
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta, Predicate<Node<K, V>> evictor) {
+        Node<K, V>[] timerWheel = wheel[index];
+        int mask = timerWheel.length - 1;
+        // 包含 previousTicks 所在的桶：它在上次推进时可能还没有完全走完
+        int steps = (int) Math.min(1L + delta, timerWheel.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            Node<K, V> sentinel = timerWheel[i & mask];
+            Node<K, V> node = sentinel.nextInTimer;
+            sentinel.prevInTimer = sentinel;
+            sentinel.nextInTimer = sentinel;
+            while (node != sentinel) {
+                Node<K, V> next = node.nextInTimer;
+                node.prevInTimer = null;
+                node.nextInTimer = null;
+                if ((node.variableTime - nanos) > 0L || !evictor.test(node)) {
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * 按节点的 variableTime 放入对应的桶，节点原来在时间轮中时先移除
+     */
+    void schedule(Node<K, V> node) {
+        if (node.nextInTimer != null) {
+            unlink(node);
+        }
+        Node<K, V> sentinel = findBucket(node.variableTime);
+        link(sentinel, node);
+    }
+
+    void deschedule(Node<K, V> node) {
+        if (node.nextInTimer != null) {
+            unlink(node);
+        }
+    }
+
+    private Node<K, V> findBucket(long time) {
+        // 已经过期的节点放进当前桶，下一次推进时就会被处理，而不是落到一圈之后才会走到的旧桶里
+        time = Math.max(time, nanos);
+        long duration = time - nanos;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = time >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+
+    private static <K, V> void link(Node<K, V> sentinel, Node<K, V> node) {
+        node.prevInTimer = sentinel.prevInTimer;
+        node.nextInTimer = sentinel;
+        sentinel.prevInTimer.nextInTimer = node;
+        sentinel.prevInTimer = node;
+    }
+
+    private static <K, V> void unlink(Node<K, V> node) {
+        Node<K, V> next = node.nextInTimer;
+        Node<K, V> prev = node.prevInTimer;
+        next.prevInTimer = prev;
+        prev.nextInTimer = next;
+        node.nextInTimer = null;
+        node.prevInTimer = null;
+    }
+}
@@ -0,0 +1,665 @@
+package io.github.dunwu.javacore.concurrent.current.features.cache;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * 有容量上限的并发缓存，使用 W-TinyLFU 淘汰策略，设计参考 Caffeine。
+ * <p>
+ * 1. 数据存放在 {@link ConcurrentHashMap} 中，读命中是一次无锁的 get；LRU 重排、频率统计、淘汰、过期清理
+ * 都记录到读缓冲区 {@link StripedReadBuffer} / 写缓冲区后，由拿到 evictionLock 的线程批量回放（tryLock，拿不到就交给正在回放的线程），
+ * 读写线程之间不会因为维护淘汰顺序而互相阻塞；
+ * <p>
+ * 2. W-TinyLFU：新条目先进入占容量 1% 的 window LRU，被挤出 window 后与 main 区 probation 队列头部的条目比较
+ * {@link FrequencySketch} 估计的访问频率，频率高者留下。main 区是分段 LRU，probation 中再次被访问的条目晋升到占 main 80% 的 protected 队列。
+ * 一次性的扫描流量进不了 main 区，不会冲掉真正的热点；
+ * <p>
+ * 3. 过期：expireAfterWrite / expireAfterAccess 计算出每个条目的过期时间，挂在分层时间轮 {@link TimerWheel} 上，维护时 O(1) 地找出到期条目；
+ * 读到已过期但还没清理的条目按未命中处理并立即删除；
+ * <p>
+ * 4. 加载：{@link #get(Object, Function)} 与 {@link #getAsync(Object, Function, Executor)} 对同一个 key 的并发未命中只加载一次，
+ * 其他线程等待同一个 {@link CompletableFuture}；加载结果为 null 时不缓存；loader 中再次同步加载同一个 key 会抛出 IllegalStateException，
+ * 与 {@link ConcurrentHashMap#computeIfAbsent} 相同，而不是等待自己而死锁；
+ * <p>
+ * 5. 统计：命中、未命中、加载成功/失败及耗时、淘汰次数及权重，见 {@link #stats()}。
+ * <p>
+ * 与 Caffeine 相比做了简化：window 与 main 的比例固定不做爬山法自适应，写缓冲区无界（没有写入背压）。
+ *
+ * @param <K> key 类型
+ * @param <V> value 类型
+ * @see CacheBuilder
+ */
+public class TinyLfuCache<K, V> {
+
+    /**
+     * window 占总容量的比例
+     */
+    private static final double PERCENT_WINDOW = 0.01d;
+
+    /**
+     * protected 占 main 区的比例
+     */
+    private static final double PERCENT_MAIN_PROTECTED = 0.80d;
+
+    /**
+     * 候选者频率不高于受害者时，如果候选者频率达到这个阈值，以小概率放行，防止攻击者构造哈希冲突把热点条目的频率"抬高"后长期占位
+     */
+    private static final int ADMIT_HASHDOS_THRESHOLD = 6;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<K, LoadingFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final StripedReadBuffer<Node<K, V>> readBuffer = new StripedReadBuffer<>();
+
+    private final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+
+    private final StatsCounter stats = new StatsCounter();
+
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+
+    private final LongSupplier ticker;
+
+    private final long origin;
+
+    private final long expireAfterWriteNanos;
+
+    private final long expireAfterAccessNanos;
+
+    private final boolean evicts;
+
+    private final boolean expires;
+
+    // ------------------------------------------------------------------ 以下字段由 evictionLock 保护
+
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+
+    private final AccessOrderDeque<K, V> protectedQueue = new AccessOrderDeque<>();
+
+    private final FrequencySketch sketch;
+
+    private final TimerWheel<K, V> timerWheel;
+
+    private final long maximum;
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    private long weightedSize;
+
+    private long windowWeightedSize;
+
+    private long protectedWeightedSize;
+
+    TinyLfuCache(CacheBuilder<K, V> builder) {
+        this.evicts = builder.getMaximumWeight() >= 0;
+        this.maximum = evicts ? builder.getMaximumWeight() : Long.MAX_VALUE;
+        this.weigher = builder.getWeigher() == null ? (k, v) -> 1 : builder.getWeigher();
+        long mainMaximum = maximum - (long) (maximum * PERCENT_WINDOW);
+        this.windowMaximum = maximum - mainMaximum;
+        this.protectedMaximum = (long) (mainMaximum * PERCENT_MAIN_PROTECTED);
+        this.sketch = new FrequencySketch(16);
+        this.expireAfterWriteNanos = builder.getExpireAfterWriteNanos();
+        this.expireAfterAccessNanos = builder.getExpireAfterAccessNanos();
+        this.expires = expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0;
+        this.timerWheel = expires ? new TimerWheel<>() : null;
+        this.ticker = builder.getTicker();
+        this.origin = ticker.getAsLong();
+    }
+
+    // ------------------------------------------------------------------ 读
+
+    /**
+     * 返回缓存的值，不存在或已过期返回 null
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            stats.recordMiss();
+            return null;
+        }
+        long now = expires ? now() : 0L;
+        if (expires && isExpired(node, now)) {
+            stats.recordMiss();
+            evictExpired(node);
+            return null;
+        }
+        V value = node.value;
+        if (expireAfterAccessNanos > 0) {
+            node.accessTime = now;
+        }
+        stats.recordHit();
+        afterRead(node);
+        return value;
+    }
+
+    /**
+     * 返回缓存的值，未命中时用 loader 加载并缓存。同一个 key 的并发未命中只有一个线程执行 loader，
+     * 其他线程等待其结果；loader 抛出的异常原样抛给所有等待的线程
+     *
+     * @return 加载结果为 null 时返回 null 且不缓存
+     * @throws IllegalStateException loader 中再次加载同一个 key
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        LoadingFuture<V> future = new LoadingFuture<>(Thread.currentThread());
+        LoadingFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            if (inFlight.owner == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive load of key: " + key);
+            }
+            return join(inFlight);
+        }
+        try {
+            value = getQuietly(key);
+            if (value == null) {
+                value = load(key, loader);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 异步版本的 {@link #get(Object, Function)}，loader 在 executor 中执行。
+     * 同一个 key 的并发调用返回同一个 future，调用方不应 complete 或 cancel 它
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        LoadingFuture<V> future = new LoadingFuture<>(null);
+        LoadingFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        try {
+            executor.execute(() -> {
+                future.owner = Thread.currentThread();
+                try {
+                    V cached = getQuietly(key);
+                    future.complete(cached != null ? cached : load(key, loader));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    loading.remove(key, future);
+                }
+            });
+        } catch (RuntimeException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 正在加载的 future，记录执行 loader 的线程，用于发现 loader 中对同一个 key 的递归加载
+     */
+    private static final class LoadingFuture<V> extends CompletableFuture<V> {
+
+        /**
+         * getAsync 在 executor 开始执行时才设置
+         */
+        volatile Thread owner;
+
+        LoadingFuture(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * 不记录统计、不记录访问的读取，用于拿到加载权后再检查一次缓存
+     */
+    private V getQuietly(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null || (expires && isExpired(node, now()))) {
+            return null;
+        }
+        return node.value;
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        long start = System.nanoTime();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        long loadTime = System.nanoTime() - start;
+        if (value == null) {
+            stats.recordLoadFailure(loadTime);
+            return null;
+        }
+        stats.recordLoadSuccess(loadTime);
+        put(key, value);
+        return value;
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    // ------------------------------------------------------------------ 写
+
+    public void put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative: " + weight);
+        }
+        long now = expires ? now() : 0L;
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] added = new Node[1];
+        Node<K, V> node = data.compute(key, (k, prior) -> {
+            if (prior == null) {
+                added[0] = new Node<>(k, value, weight, now);
+                return added[0];
+            }
+            prior.value = value;
+            prior.weight = weight;
+            prior.writeTime = now;
+            prior.accessTime = now;
+            return prior;
+        });
+        if (added[0] != null) {
+            afterWrite(() -> onAdd(node));
+        } else {
+            afterWrite(() -> onUpdate(node));
+        }
+    }
+
+    /**
+     * 删除并返回旧值
+     */
+    public V remove(K key) {
+        @SuppressWarnings("unchecked")
+        Node<K, V>[] removed = new Node[1];
+        data.computeIfPresent(key, (k, node) -> {
+            node.retired = true;
+            removed[0] = node;
+            return null;
+        });
+        Node<K, V> node = removed[0];
+        if (node == null) {
+            return null;
+        }
+        afterWrite(() -> onRemove(node));
+        return node.value;
+    }
+
+    public void invalidateAll() {
+        for (K key : data.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * 条目数的估计值，可能包含已过期但尚未清理的条目
+     */
+    public long estimatedSize() {
+        return data.size();
+    }
+
+    /**
+     * 淘汰策略中的权重之和，未设置 weigher 时即条目数；只反映已回放的写操作
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        return stats.snapshot();
+    }
+
+    /**
+     * 立即执行一次维护：回放缓冲区、清理过期条目、按容量淘汰
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+        scheduleDrain();
+    }
+
+    // ------------------------------------------------------------------ 缓冲区与维护
+
+    private void afterRead(Node<K, V> node) {
+        if (readBuffer.offer(node)) {
+            scheduleDrain();
+        }
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        scheduleDrain();
+    }
+
+    /**
+     * tryLock 失败说明有线程正在回放；它释放锁后会再次检查写缓冲区，所以这里放进去的任务不会被遗漏
+     */
+    private void scheduleDrain() {
+        while (evictionLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+            if (writeBuffer.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private void maintenance() {
+        readBuffer.drainTo(this::onAccess);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+        if (expires) {
+            timerWheel.advance(now(), this::evictIfExpired);
+        }
+        if (evicts) {
+            // 计数表随条目数增长按需扩大，避免按最大容量一次性分配
+            sketch.ensureCapacity(Math.min(maximum, data.size()));
+            evictEntries();
+        }
+    }
+
+    private void onAdd(Node<K, V> node) {
+        if (node.retired || node.inPolicy) {
+            return;
+        }
+        node.inPolicy = true;
+        node.policyWeight = node.weight;
+        node.queue = Node.WINDOW;
+        window.addLast(node);
+        weightedSize += node.policyWeight;
+        windowWeightedSize += node.policyWeight;
+        sketch.increment(node.key);
+        if (expires) {
+            node.variableTime = expirationTime(node);
+            timerWheel.schedule(node);
+        }
+        if (evicts && node.policyWeight > maximum) {
+            evictEntry(node, false);
+        }
+    }
+
+    private void onUpdate(Node<K, V> node) {
+        if (!node.inPolicy) {
+            // 新增任务尚未回放，回放时会读取最新的权重
+            return;
+        }
+        int delta = node.weight - node.policyWeight;
+        node.policyWeight += delta;
+        weightedSize += delta;
+        if (node.queue == Node.WINDOW) {
+            windowWeightedSize += delta;
+        } else if (node.queue == Node.PROTECTED) {
+            protectedWeightedSize += delta;
+        }
+        onAccess(node);
+        if (expires && expireAfterAccessNanos <= 0) {
+            // 只配置了 expireAfterWrite 时 onAccess 不会重新调度
+            node.variableTime = expirationTime(node);
+            timerWheel.schedule(node);
+        }
+    }
+
+    private void onRemove(Node<K, V> node) {
+        unlink(node);
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (!node.inPolicy) {
+            return;
+        }
+        sketch.increment(node.key);
+        if (node.queue == Node.WINDOW) {
+            window.moveToBack(node);
+        } else if (node.queue == Node.PROBATION) {
+            promote(node);
+        } else {
+            protectedQueue.moveToBack(node);
+        }
+        if (expireAfterAccessNanos > 0) {
+            node.variableTime = expirationTime(node);
+            timerWheel.schedule(node);
+        }
+    }
+
+    /**
+     * probation 中被再次访问的条目晋升到 protected，protected 超出上限时把最久未访问的降回 probation
+     */
+    private void promote(Node<K, V> node) {
+        probation.remove(node);
+        node.queue = Node.PROTECTED;
+        protectedQueue.addLast(node);
+        protectedWeightedSize += node.policyWeight;
+        while (protectedWeightedSize > protectedMaximum) {
+            Node<K, V> demoted = protectedQueue.peekFirst();
+            protectedQueue.remove(demoted);
+            demoted.queue = Node.PROBATION;
+            probation.addLast(demoted);
+            protectedWeightedSize -= demoted.policyWeight;
+        }
+    }
+
+    // ------------------------------------------------------------------ 淘汰
+
+    private void evictEntries() {
+        Node<K, V> candidate = evictFromWindow();
+        evictFromMain(candidate);
+    }
+
+    /**
+     * 把超出 window 容量的条目移到 probation 尾部，返回第一个被移动的条目（即本轮的第一个候选者）
+     */
+    private Node<K, V> evictFromWindow() {
+        Node<K, V> first = null;
+        while (windowWeightedSize > windowMaximum) {
+            Node<K, V> node = window.peekFirst();
+            if (node == null) {
+                break;
+            }
+            window.remove(node);
+            node.queue = Node.PROBATION;
+            probation.addLast(node);
+            windowWeightedSize -= node.policyWeight;
+            if (first == null) {
+                first = node;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * 超出总容量时，候选者（刚从 window 挤出来的条目）依次与 probation 头部的受害者比较频率，频率低的一方被淘汰
+     */
+    private void evictFromMain(Node<K, V> candidate) {
+        while (weightedSize > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedQueue.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            if (victim == null) {
+                break;
+            }
+            if (candidate == null || !candidate.inPolicy || candidate.queue != Node.PROBATION) {
+                candidate = null;
+                evictEntry(victim, false);
+                continue;
+            }
+            Node<K, V> next = candidate.next;
+            if (victim == candidate) {
+                // probation 中只剩候选者
+                evictEntry(candidate, false);
+            } else if (candidate.policyWeight > maximum || !admit(candidate.key, victim.key)) {
+                evictEntry(candidate, false);
+            } else {
+                evictEntry(victim, false);
+            }
+            candidate = next;
+        }
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        int victimFreq = sketch.frequency(victimKey);
+        int candidateFreq = sketch.frequency(candidateKey);
+        if (candidateFreq > victimFreq) {
+            return true;
+        } else if (candidateFreq >= ADMIT_HASHDOS_THRESHOLD) {
+            return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+        }
+        return false;
+    }
+
+    private boolean evictIfExpired(Node<K, V> node) {
+        return evictEntry(node, true);
+    }
+
+    /**
+     * 从 map 与淘汰策略中删除条目
+     *
+     * @param expiredOnly 只在条目确实已过期时删除，未过期时刷新其过期时间
+     * @return false 表示条目未过期需要重新调度
+     */
+    private boolean evictEntry(Node<K, V> node, boolean expiredOnly) {
+        long now = expires ? now() : 0L;
+        boolean[] removed = new boolean[1];
+        data.computeIfPresent(node.key, (k, n) -> {
+            if (n != node || (expiredOnly && !isExpired(n, now))) {
+                return n;
+            }
+            n.retired = true;
+            removed[0] = true;
+            return null;
+        });
+        if (!removed[0] && !node.retired) {
+            node.variableTime = expirationTime(node);
+            return false;
+        }
+        if (removed[0]) {
+            stats.recordEviction(node.policyWeight);
+        }
+        // 被其他线程删除的节点，删除任务稍后回放时 inPolicy 已为 false，不会重复处理
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * 读到已过期条目时立即删除，不必等时间轮走到
+     */
+    private void evictExpired(Node<K, V> node) {
+        long now = now();
+        boolean[] removed = new boolean[1];
+        data.computeIfPresent(node.key, (k, n) -> {
+            if (n != node || !isExpired(n, now)) {
+                return n;
+            }
+            n.retired = true;
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            afterWrite(() -> {
+                if (node.inPolicy) {
+                    stats.recordEviction(node.policyWeight);
+                }
+                unlink(node);
+            });
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (!node.inPolicy) {
+            return;
+        }
+        if (node.queue == Node.WINDOW) {
+            window.remove(node);
+            windowWeightedSize -= node.policyWeight;
+        } else if (node.queue == Node.PROBATION) {
+            probation.remove(node);
+        } else {
+            protectedQueue.remove(node);
+            protectedWeightedSize -= node.policyWeight;
+        }
+        weightedSize -= node.policyWeight;
+        if (expires) {
+            timerWheel.deschedule(node);
+        }
+        node.inPolicy = false;
+    }
+
+    // ------------------------------------------------------------------ 时间
+
+    private long now() {
+        return ticker.getAsLong() - origin;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private long expirationTime(Node<K, V> node) {
+        long time = Long.MAX_VALUE;
+        if (expireAfterWriteNanos > 0) {
+            time = Math.min(time, node.writeTime + expireAfterWriteNanos);
+        }
+        if (expireAfterAccessNanos > 0) {
+            time = Math.min(time, node.accessTime + expireAfterAccessNanos);
+        }
+        return time;
+    }
+}
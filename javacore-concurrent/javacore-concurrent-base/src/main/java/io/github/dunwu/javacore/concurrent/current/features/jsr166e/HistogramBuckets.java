@@ -0,0 +1,73 @@
+package io.github.dunwu.javacore.concurrent.current.features.jsr166e;
+
+import java.util.Arrays;
+
+/**
+ * 固定桶直方图的公共计算：边界校验、桶定位和分位数估计。
+ * <p>
+ * 桶的约定与 {@link StripedHistogram} 相同：bounds 严格递增，第 i 个桶统计 (bounds[i-1], bounds[i]] 范围内的值，
+ * 最后一个桶（下标 bounds.length）统计大于最大边界的值。计数的存储方式（LongAdder 或 long[]）由调用方决定。
+ */
+public final class HistogramBuckets {
+
+	private HistogramBuckets() {
+	}
+
+	/**
+	 * 校验边界严格递增，返回边界的副本
+	 */
+	public static long[] checkBounds(long[] bounds) {
+		if (bounds.length == 0) {
+			throw new IllegalArgumentException("bounds must not be empty");
+		}
+		for (int i = 1; i < bounds.length; i++) {
+			if (bounds[i] <= bounds[i - 1]) {
+				throw new IllegalArgumentException("bounds must be strictly increasing: " + Arrays.toString(bounds));
+			}
+		}
+		return bounds.clone();
+	}
+
+	/**
+	 * 第一个 bounds[i] >= value 的下标，都小于 value 时返回 bounds.length
+	 */
+	public static int bucketIndex(long[] bounds, long value) {
+		int low = 0;
+		int high = bounds.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (bounds[mid] < value) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * 分位数的估计值：返回所在桶的上边界（不超过 max），落在溢出桶时返回 max
+	 *
+	 * @param counts   各桶计数，长度为 bounds.length + 1
+	 * @param count    总次数，即 counts 之和
+	 * @param max      记录到的最大值，未知时传 {@link Long#MAX_VALUE}
+	 * @param quantile 0 ~ 1 之间，例如 0.99
+	 */
+	public static long valueAtQuantile(long[] bounds, long[] counts, long count, long max, double quantile) {
+		if (quantile < 0.0 || quantile > 1.0) {
+			throw new IllegalArgumentException("quantile must be in [0, 1]: " + quantile);
+		}
+		if (count == 0) {
+			return 0L;
+		}
+		long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+		long seen = 0L;
+		for (int i = 0; i < bounds.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(bounds[i], max);
+			}
+		}
+		return max;
+	}
+}
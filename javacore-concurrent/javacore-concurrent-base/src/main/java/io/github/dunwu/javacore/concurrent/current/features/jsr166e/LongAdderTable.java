@@ -0,0 +1,121 @@
+package io.github.dunwu.javacore.concurrent.current.features.jsr166e;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按 key 分组的计数器集合，参考 jsr166e 的 LongAdderTable，每个 key 对应一个 {@link LongAdder}。
+ * <p>
+ * 适合 RPC 方法调用次数、熔断器按结果分类的统计、线程池按状态分类的计数等场景：
+ * 计数的热路径是一次 {@link ConcurrentHashMap#get} 加一次 {@link LongAdder#add}，
+ * 竞争时各线程落到不同的 Cell 上，不会像单个 AtomicLong 那样让同一缓存行在所有核之间来回传递。
+ * <p>
+ * 只有第一次出现某个 key 时才走 computeIfAbsent（JDK 8 的 computeIfAbsent 即使命中也会对桶加锁）。
+ *
+ * @param <K> key 类型
+ */
+public class LongAdderTable<K> implements Serializable {
+	private static final long serialVersionUID = 7249369246863182397L;
+
+	private final ConcurrentHashMap<K, LongAdder> map = new ConcurrentHashMap<>();
+
+	/**
+	 * 如果 key 不存在则创建计数为 0 的计数器，返回该 key 对应的计数器
+	 */
+	public LongAdder install(K key) {
+		LongAdder a = map.get(key);
+		if (a == null) {
+			a = map.computeIfAbsent(key, k -> new LongAdder());
+		}
+		return a;
+	}
+
+	/**
+	 * 给 key 对应的计数加 x，key 不存在时先创建
+	 */
+	public void add(K key, long x) {
+		install(key).add(x);
+	}
+
+	public void increment(K key) {
+		add(key, 1L);
+	}
+
+	public void decrement(K key) {
+		add(key, -1L);
+	}
+
+	/**
+	 * key 当前的计数，key 不存在返回 0
+	 */
+	public long sum(K key) {
+		LongAdder a = map.get(key);
+		return a == null ? 0L : a.sum();
+	}
+
+	/**
+	 * 所有 key 的计数之和
+	 */
+	public long sumAll() {
+		long sum = 0L;
+		for (LongAdder a : map.values()) {
+			sum += a.sum();
+		}
+		return sum;
+	}
+
+	/**
+	 * 读取并清零 key 的计数，计数器本身保留
+	 */
+	public long sumThenReset(K key) {
+		LongAdder a = map.get(key);
+		return a == null ? 0L : a.sumThenReset();
+	}
+
+	/**
+	 * 所有计数清零，计数器保留，key 集合不变
+	 */
+	public void resetAll() {
+		for (LongAdder a : map.values()) {
+			a.reset();
+		}
+	}
+
+	/**
+	 * 删除 key 对应的计数器
+	 */
+	public void remove(K key) {
+		map.remove(key);
+	}
+
+	public Set<K> keySet() {
+		return Collections.unmodifiableSet(map.keySet());
+	}
+
+	/**
+	 * 各 key 当前计数的快照，非原子
+	 */
+	public Map<K, Long> snapshot() {
+		Map<K, Long> result = new LinkedHashMap<>(map.size() * 2);
+		map.forEach((k, a) -> result.put(k, a.sum()));
+		return result;
+	}
+
+	/**
+	 * 各 key 的计数快照并清零，适合按固定周期上报增量
+	 */
+	public Map<K, Long> snapshotThenReset() {
+		Map<K, Long> result = new LinkedHashMap<>(map.size() * 2);
+		map.forEach((k, a) -> result.put(k, a.sumThenReset()));
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+}
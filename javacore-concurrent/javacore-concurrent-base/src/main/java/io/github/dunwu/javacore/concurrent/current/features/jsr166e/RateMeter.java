@@ -0,0 +1,121 @@
+package io.github.dunwu.javacore.concurrent.current.features.jsr166e;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 滑动窗口速率计，统计最近一段时间内的事件数和每秒速率。
+ * <p>
+ * 1. 时间被切成长度为 windowMillis 的小窗口，环形数组保存最近 windowCount 个窗口，每个窗口一个 {@link LongAdder}；
+ * <p>
+ * 2. 窗口翻转无锁：发现槽位中是过期窗口时，用 CAS 换上一个新的空窗口对象，CAS 失败说明其他线程已经换好，
+ * 直接重读即可。不在原窗口上清零，也就不存在"清零与计数并发"的问题，迟到的线程最多把计数记到已经过期的旧对象上；
+ * <p>
+ * 3. 时间戳落后于槽位中窗口的线程（取完时间后被挂起过久）直接计入较新的窗口，不会回退窗口。
+ */
+public class RateMeter {
+
+	private final int windowCount;
+
+	private final long windowMillis;
+
+	private final AtomicReferenceArray<Window> windows;
+
+	private final LongSupplier clock;
+
+	/**
+	 * @param windowCount 环形数组中的窗口个数
+	 * @param windowMillis 每个窗口的长度，统计区间为 windowCount * windowMillis
+	 */
+	public RateMeter(int windowCount, long windowMillis) {
+		this(windowCount, windowMillis, System::currentTimeMillis);
+	}
+
+	/**
+	 * 统计最近 interval 时间、按 windowCount 个窗口滑动
+	 */
+	public RateMeter(long interval, TimeUnit unit, int windowCount) {
+		this(windowCount, unit.toMillis(interval) / windowCount);
+	}
+
+	/**
+	 * @param clock 毫秒时钟，测试时可以注入可控的时间
+	 */
+	public RateMeter(int windowCount, long windowMillis, LongSupplier clock) {
+		if (windowCount <= 0 || windowMillis <= 0) {
+			throw new IllegalArgumentException("windowCount and windowMillis must be positive");
+		}
+		this.windowCount = windowCount;
+		this.windowMillis = windowMillis;
+		this.windows = new AtomicReferenceArray<>(windowCount);
+		this.clock = clock;
+	}
+
+	public void mark() {
+		mark(1L);
+	}
+
+	public void mark(long n) {
+		currentWindow(clock.getAsLong()).adder.add(n);
+	}
+
+	/**
+	 * 统计区间内的事件总数，当前尚未结束的窗口也计算在内
+	 */
+	public long count() {
+		long now = clock.getAsLong();
+		long oldest = windowStart(now) - (long) (windowCount - 1) * windowMillis;
+		long count = 0L;
+		for (int i = 0; i < windowCount; i++) {
+			Window w = windows.get(i);
+			if (w != null && w.start >= oldest) {
+				count += w.adder.sum();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 统计区间内的平均每秒事件数
+	 */
+	public double ratePerSecond() {
+		return count() * 1000.0 / intervalMillis();
+	}
+
+	public long intervalMillis() {
+		return windowCount * windowMillis;
+	}
+
+	private Window currentWindow(long now) {
+		long start = windowStart(now);
+		int index = (int) ((now / windowMillis) % windowCount);
+		for (; ; ) {
+			Window w = windows.get(index);
+			if (w != null && w.start >= start) {
+				return w;
+			}
+			if (windows.compareAndSet(index, w, new Window(start))) {
+				return windows.get(index);
+			}
+		}
+	}
+
+	private long windowStart(long now) {
+		return now - now % windowMillis;
+	}
+
+	/**
+	 * 一个时间窗口，创建后 start 不变
+	 */
+	private static final class Window {
+
+		final long start;
+
+		final LongAdder adder = new LongAdder();
+
+		Window(long start) {
+			this.start = start;
+		}
+	}
+}
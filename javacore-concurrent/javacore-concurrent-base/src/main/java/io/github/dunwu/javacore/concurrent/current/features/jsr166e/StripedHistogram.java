@@ -0,0 +1,164 @@
+package io.github.dunwu.javacore.concurrent.current.features.jsr166e;
+
+/**
+ * 固定桶的分段直方图，用于记录耗时等非负数值的分布。
+ * <p>
+ * 1. 桶边界在构造时确定且不可变，第 i 个桶统计 (bounds[i-1], bounds[i]] 范围内的值，最后一个桶统计大于最大边界的值；
+ * <p>
+ * 2. 每个桶、总和、最大/最小值各自是一个 {@link Striped64} 子类：无竞争时只有一次 base 上的 CAS，
+ * 竞争时自动扩展 Cell，记录路径上没有锁，也没有所有线程共享的单个计数器；
+ * <p>
+ * 3. {@link #snapshot()} 不是原子快照，并发记录时各桶之和可能与总次数有少量出入，对于监控上报可以接受。
+ */
+public class StripedHistogram {
+
+	private final long[] bounds;
+
+	private final LongAdder[] buckets;
+
+	private final LongAdder sum = new LongAdder();
+
+	private final LongMaxUpdater max = new LongMaxUpdater();
+
+	private final LongMinUpdater min = new LongMinUpdater();
+
+	/**
+	 * @param bounds 严格递增的桶上边界（包含），实际桶数为 bounds.length + 1
+	 */
+	public StripedHistogram(long... bounds) {
+		this.bounds = HistogramBuckets.checkBounds(bounds);
+		this.buckets = new LongAdder[bounds.length + 1];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * 按指数增长的桶边界：first, first * factor, first * factor^2 ...，共 count 个边界。
+	 * 例如 exponential(1, 2, 20) 以毫秒为单位覆盖 1ms ~ 524s 的耗时
+	 */
+	public static StripedHistogram exponential(long first, double factor, int count) {
+		if (first <= 0 || factor <= 1.0 || count <= 0) {
+			throw new IllegalArgumentException("first > 0, factor > 1, count > 0 required");
+		}
+		long[] bounds = new long[count];
+		double bound = first;
+		for (int i = 0; i < count; i++) {
+			// 取整后可能与上一个边界相同，至少加 1 保证严格递增
+			bounds[i] = i == 0 ? first : Math.max(bounds[i - 1] + 1, Math.round(bound));
+			bound *= factor;
+		}
+		return new StripedHistogram(bounds);
+	}
+
+	/**
+	 * 记录一个值
+	 */
+	public void record(long value) {
+		buckets[HistogramBuckets.bucketIndex(bounds, value)].increment();
+		sum.add(value);
+		max.update(value);
+		min.update(value);
+	}
+
+	public Snapshot snapshot() {
+		long[] counts = new long[buckets.length];
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return new Snapshot(bounds, counts, sum.sum(), max.max(), min.min());
+	}
+
+	/**
+	 * 读取快照并清零，适合按固定周期上报区间分布。与 {@link LongAdder#sumThenReset()} 一样，
+	 * 与之并发的记录可能被计入下一次快照，也可能少量丢失
+	 */
+	public Snapshot snapshotThenReset() {
+		long[] counts = new long[buckets.length];
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sumThenReset();
+		}
+		return new Snapshot(bounds, counts, sum.sumThenReset(), max.maxThenReset(), min.minThenReset());
+	}
+
+	/**
+	 * 直方图快照，不可变
+	 */
+	public static final class Snapshot {
+
+		private final long[] bounds;
+
+		private final long[] counts;
+
+		private final long count;
+
+		private final long sum;
+
+		private final long max;
+
+		private final long min;
+
+		Snapshot(long[] bounds, long[] counts, long sum, long max, long min) {
+			this.bounds = bounds;
+			this.counts = counts;
+			long c = 0L;
+			for (long n : counts) {
+				c += n;
+			}
+			this.count = c;
+			this.sum = sum;
+			this.max = c == 0 ? 0L : max;
+			this.min = c == 0 ? 0L : min;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getMin() {
+			return min;
+		}
+
+		public double getMean() {
+			return count == 0 ? 0.0 : (double) sum / count;
+		}
+
+		/**
+		 * 第 i 个桶的计数
+		 */
+		public long getBucketCount(int i) {
+			return counts[i];
+		}
+
+		public long[] getBounds() {
+			return bounds.clone();
+		}
+
+		public long[] getCounts() {
+			return counts.clone();
+		}
+
+		/**
+		 * 分位数的估计值：返回所在桶的上边界（不超过记录到的最大值），落在溢出桶时返回最大值
+		 *
+		 * @param quantile 0 ~ 1 之间，例如 0.99
+		 */
+		public long getValueAtQuantile(double quantile) {
+			return HistogramBuckets.valueAtQuantile(bounds, counts, count, max, quantile);
+		}
+
+		@Override
+		public String toString() {
+			return "Snapshot{count=" + count + ", mean=" + getMean() + ", min=" + min + ", max=" + max
+					+ ", p50=" + getValueAtQuantile(0.5) + ", p99=" + getValueAtQuantile(0.99) + '}';
+		}
+	}
+}
@@ -0,0 +1,543 @@
+package io.github.dunwu.javacore.concurrent.current.features.limiter;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 多租户分层限流器：全局 → 租户 → API key，每一层都是无锁的 {@link TokenBucket}。
+ * <p>
+ * 每个节点有两个桶，思路与 Linux HTB（Hierarchical Token Bucket）相同：
+ * <p>
+ * 1. 保证桶：按 {@link Quota#getRate()} 补充。有令牌就放行，同时无条件扣减各级上级（上级可能因此欠账），兄弟节点用得再多也拿不走这部分；
+ * <p>
+ * 2. 借用桶：按"上级总速率 × 本节点权重 / 上级所有活跃子节点的权重之和"补充，借用桶有令牌且上级也能给出令牌时放行，
+ * 这就是按权重公平分享；上级没有令牌时把借用桶的令牌退回去。
+ * <p>
+ * 此外上级的令牌超过容量的 1/16 时，说明兄弟节点没有用完各自的份额，子节点借用桶耗尽后还可以直接从上级取，空闲容量不会浪费；
+ * 留下的 1/16 给兄弟节点应付突发。
+ * <p>
+ * 全局桶是所有请求都要经过的热点，按 CPU 数分成多个条带，每个条带一次从全局桶批量领取一小批令牌，
+ * 大部分请求只 CAS 自己条带上的计数，代价是最多有 条带数 × 批量 个令牌暂时停在条带中。
+ * <p>
+ * 租户和 API key 第一次出现时创建节点，长时间没有请求的节点在创建新节点时顺带淘汰，不使用后台线程；
+ * 淘汰由 CAS 标志保护，同一时刻只有一个线程扫描，其他线程直接跳过，任何路径上都没有全局锁。
+ * 节点数达到上限时先淘汰，仍然满时拒绝新租户（或新 key）的请求，内存因此有界。
+ *
+ * @see HierarchicalRateLimiterBuilder
+ */
+public class HierarchicalRateLimiter {
+
+    /**
+     * 每创建这么多子节点，顺带扫描一次空闲节点
+     */
+    private static final int SWEEP_INTERVAL = 1024;
+
+    /**
+     * 一次扫描最多检查的节点数，避免单个请求的延迟过大
+     */
+    private static final int SWEEP_BUDGET = 4096;
+
+    /**
+     * 上级的令牌超过容量的 1/SURPLUS_RESERVE 时才允许借用桶耗尽的子节点直接取
+     */
+    private static final int SURPLUS_RESERVE = 16;
+
+    private static final AtomicLongFieldUpdater<Node> ACTIVE_WEIGHT =
+        AtomicLongFieldUpdater.newUpdater(Node.class, "activeWeight");
+
+    private final LongSupplier ticker;
+
+    private final StripedBucket global;
+
+    private final Node root;
+
+    private final Function<String, Quota> tenantQuota;
+
+    private final HierarchicalRateLimiterBuilder builder;
+
+    private final long idleTimeoutNanos;
+
+    private final long touchGranularityNanos;
+
+    /**
+     * 借用桶的容量按"速率 × burstWindow"计算，burstWindow 取全局桶容量对应的时长
+     */
+    private final double burstWindowSeconds;
+
+    private final LongAdder allowed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    HierarchicalRateLimiter(HierarchicalRateLimiterBuilder builder) {
+        this.builder = builder;
+        this.ticker = builder.getTicker();
+        this.tenantQuota = builder.getTenantQuota();
+        this.idleTimeoutNanos = builder.getIdleTimeoutNanos();
+        this.touchGranularityNanos = Math.max(1, idleTimeoutNanos / 16);
+        this.burstWindowSeconds = builder.getGlobalBurst() / builder.getGlobalRate();
+        long now = ticker.getAsLong();
+        Quota globalQuota = Quota.of(builder.getGlobalRate(), builder.getGlobalBurst(), 1);
+        this.root = new Node(null, null, globalQuota, now, true);
+        this.global = new StripedBucket(globalQuota, now);
+    }
+
+    // ------------------------------------------------------------------ 获取许可
+
+    /**
+     * 尝试为租户获取一个许可，不等待
+     */
+    public boolean tryAcquire(String tenant) {
+        return tryAcquire(tenant, null, 1);
+    }
+
+    /**
+     * 尝试为租户下的 API key 获取一个许可，不等待
+     */
+    public boolean tryAcquire(String tenant, String key) {
+        return tryAcquire(tenant, key, 1);
+    }
+
+    /**
+     * 尝试获取 permits 个许可，不等待。key 为 null 时只按租户和全局限流
+     */
+    public boolean tryAcquire(String tenant, String key, int permits) {
+        checkPermits(permits);
+        long now = ticker.getAsLong();
+        Node node = lookup(tenant, key, now);
+        if (node != null && take(node, permits, now)) {
+            allowed.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 获取 permits 个许可，不能立即获取时最多等待 timeout。
+     * <p>
+     * 等待时在离请求最近的保证桶（API key、租户或全局）上预约未来的令牌，然后睡到预约的时刻，
+     * 预约之后上级照常扣减，等待期间不占用任何锁，也不轮询。被中断时抛出 {@link InterruptedException}，已预约的许可不归还。
+     *
+     * @return 在 timeout 内获取到许可时返回 true
+     */
+    public boolean acquire(String tenant, String key, int permits, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkPermits(permits);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        long now = ticker.getAsLong();
+        Node node = lookup(tenant, key, now);
+        if (node == null) {
+            rejected.increment();
+            return false;
+        }
+        if (take(node, permits, now)) {
+            allowed.increment();
+            return true;
+        }
+        long wait = reserve(node, permits, now, unit.toNanos(timeout));
+        if (wait < 0) {
+            rejected.increment();
+            return false;
+        }
+        long remaining;
+        while ((remaining = now + wait - ticker.getAsLong()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        allowed.increment();
+        return true;
+    }
+
+    private static void checkPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be positive: " + permits);
+        }
+    }
+
+    // ------------------------------------------------------------------ 分层扣减
+
+    private boolean take(Node node, long n, long now) {
+        if (node == root) {
+            return global.tryTake(n, now);
+        }
+        if (node.own != null && node.own.tryTake(n, node.interval, node.quota.getBurst(), now)) {
+            forceAncestors(node.parent, n, now);
+            return true;
+        }
+        double share = shareRate(node);
+        long interval = TokenBucket.interval(share);
+        long burst = borrowBurst(share);
+        if (node.borrow.tryTake(n, interval, burst, now)) {
+            if (take(node.parent, n, now)) {
+                return true;
+            }
+            node.borrow.refund(n, interval);
+            return false;
+        }
+        // 借用桶用完了，上级还有富余，说明兄弟节点没有用满各自的份额
+        return hasSurplus(node.parent, now) && take(node.parent, n, now);
+    }
+
+    /**
+     * 从 node 开始向上，在第一个有保证速率的节点上预约，路径上没有保证速率的节点按份额欠账，上级无条件扣减
+     */
+    private long reserve(Node node, long n, long now, long maxWait) {
+        Node guaranteed = node;
+        while (guaranteed != root && guaranteed.own == null) {
+            guaranteed = guaranteed.parent;
+        }
+        long wait;
+        if (guaranteed == root) {
+            wait = global.reserve(n, now, maxWait);
+        } else {
+            wait = guaranteed.own.reserve(n, guaranteed.interval, guaranteed.quota.getBurst(), now, maxWait);
+            if (wait >= 0) {
+                forceAncestors(guaranteed.parent, n, now);
+            }
+        }
+        if (wait >= 0) {
+            for (Node p = node; p != guaranteed; p = p.parent) {
+                double share = shareRate(p);
+                p.borrow.force(n, TokenBucket.interval(share), borrowBurst(share), now);
+            }
+        }
+        return wait;
+    }
+
+    private void forceAncestors(Node node, long n, long now) {
+        for (Node p = node; p != root; p = p.parent) {
+            if (p.own != null) {
+                p.own.force(n, p.interval, p.quota.getBurst(), now);
+            }
+        }
+        global.force(n, now);
+    }
+
+    private boolean hasSurplus(Node node, long now) {
+        if (node == root) {
+            return global.hasSurplus(now);
+        }
+        if (node.own != null) {
+            long burst = node.quota.getBurst();
+            return node.own.available(node.interval, burst, now) > burst / SURPLUS_RESERVE;
+        }
+        double share = shareRate(node);
+        long burst = borrowBurst(share);
+        return node.borrow.available(TokenBucket.interval(share), burst, now) > burst / SURPLUS_RESERVE;
+    }
+
+    /**
+     * 节点的总速率上限：保证速率加上借用份额
+     */
+    private double ceilingRate(Node node) {
+        return node == root ? node.quota.getRate() : node.quota.getRate() + shareRate(node);
+    }
+
+    /**
+     * 节点按权重分到的上级速率。被淘汰后仍在使用的节点已经不计入 activeWeight，比例最多按 1 计算
+     */
+    private double shareRate(Node node) {
+        Node parent = node.parent;
+        long weight = node.quota.getWeight();
+        long active = Math.max(weight, parent.activeWeight);
+        return ceilingRate(parent) * weight / active;
+    }
+
+    private long borrowBurst(double share) {
+        return Math.max(1, (long) (share * burstWindowSeconds));
+    }
+
+    // ------------------------------------------------------------------ 节点管理
+
+    private Node lookup(String tenant, String key, long now) {
+        Node t = child(root, tenant, now, builder.getMaximumTenants(), tenantQuota);
+        if (t == null || key == null) {
+            return t;
+        }
+        return child(t, key, now, builder.getMaximumKeysPerTenant(), k -> builder.getKeyQuota().apply(tenant, k));
+    }
+
+    private Node child(Node parent, String name, long now, int maximum, Function<String, Quota> quotaOf) {
+        ConcurrentHashMap<String, Node> children = parent.children;
+        Node node = children.get(name);
+        if (node != null) {
+            node.touch(now, touchGranularityNanos);
+            return node;
+        }
+        if (children.size() >= maximum) {
+            sweep(parent, now, SWEEP_BUDGET, false);
+            if (children.size() >= maximum) {
+                return null;
+            }
+        }
+        // 配额函数在 computeIfAbsent 中调用，只锁住这个 key 所在的桶
+        boolean[] created = new boolean[1];
+        node = children.computeIfAbsent(name, k -> {
+            Node child = new Node(parent, k, quotaOf.apply(k), now, parent == root);
+            ACTIVE_WEIGHT.getAndAdd(parent, child.quota.getWeight());
+            created[0] = true;
+            return child;
+        });
+        if (!created[0]) {
+            node.touch(now, touchGranularityNanos);
+        } else if (parent.creations.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep(parent, now, SWEEP_BUDGET, false);
+        }
+        return node;
+    }
+
+    /**
+     * 淘汰 parent 下空闲的子节点，已经有线程在扫描时直接返回。扫描从上次停下的位置继续（fromStart 时从头开始），
+     * 多次调用后覆盖全部子节点
+     */
+    private void sweep(Node parent, long now, int budget, boolean fromStart) {
+        if (!parent.sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Iterator<Node> cursor = fromStart ? null : parent.sweepCursor;
+            boolean restarted = false;
+            for (int i = 0; i < budget; i++) {
+                if (cursor == null || !cursor.hasNext()) {
+                    // 每次调用最多从头开始一轮
+                    if (restarted) {
+                        break;
+                    }
+                    restarted = true;
+                    cursor = parent.children.values().iterator();
+                    if (!cursor.hasNext()) {
+                        break;
+                    }
+                }
+                Node node = cursor.next();
+                if (now - node.lastAccess > idleTimeoutNanos && parent.children.remove(node.name, node)) {
+                    ACTIVE_WEIGHT.getAndAdd(parent, -node.quota.getWeight());
+                }
+            }
+            parent.sweepCursor = cursor;
+        } finally {
+            parent.sweeping.set(false);
+        }
+    }
+
+    /**
+     * 扫描所有租户和 API key，立即淘汰空闲节点。正常情况下不需要调用，淘汰会在创建新节点时顺带进行
+     */
+    public void cleanUp() {
+        long now = ticker.getAsLong();
+        for (Node tenant : root.children.values()) {
+            sweep(tenant, now, Integer.MAX_VALUE, true);
+        }
+        sweep(root, now, Integer.MAX_VALUE, true);
+    }
+
+    // ------------------------------------------------------------------ 统计
+
+    /**
+     * 当前保留的租户数
+     */
+    public int tenantCount() {
+        return root.children.size();
+    }
+
+    /**
+     * 租户当前保留的 API key 数，租户不存在时返回 0
+     */
+    public int keyCount(String tenant) {
+        Node node = root.children.get(tenant);
+        return node == null ? 0 : node.children.size();
+    }
+
+    public long allowedCount() {
+        return allowed.sum();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "HierarchicalRateLimiter{tenants=" + tenantCount() + ", allowed=" + allowedCount()
+            + ", rejected=" + rejectedCount() + '}';
+    }
+
+    // ------------------------------------------------------------------ 内部类
+
+    private static final class Node {
+
+        final Node parent;
+
+        final String name;
+
+        final Quota quota;
+
+        /**
+         * 保证桶，没有保证速率时为 null
+         */
+        final TokenBucket own;
+
+        final long interval;
+
+        final TokenBucket borrow;
+
+        /**
+         * 子节点，API key 节点为 null
+         */
+        final ConcurrentHashMap<String, Node> children;
+
+        final AtomicInteger creations;
+
+        final AtomicBoolean sweeping;
+
+        /**
+         * 只在持有 sweeping 时读写
+         */
+        Iterator<Node> sweepCursor;
+
+        /**
+         * 所有子节点的权重之和
+         */
+        volatile long activeWeight;
+
+        /**
+         * 最近一次请求的时间，只在过时超过 touchGranularity 时才写，避免每个请求都写同一条缓存行
+         */
+        volatile long lastAccess;
+
+        Node(Node parent, String name, Quota quota, long now, boolean hasChildren) {
+            this.parent = parent;
+            this.name = name;
+            this.quota = quota;
+            this.lastAccess = now;
+            if (parent != null && quota.getRate() > 0) {
+                this.interval = TokenBucket.interval(quota.getRate());
+                this.own = new TokenBucket(interval, quota.getBurst(), now);
+            } else {
+                this.interval = 0;
+                this.own = null;
+            }
+            // 借用桶的速率每次都按当前份额计算，初始是满的
+            this.borrow = TokenBucket.full();
+            this.children = hasChildren ? new ConcurrentHashMap<>() : null;
+            this.creations = hasChildren ? new AtomicInteger() : null;
+            this.sweeping = hasChildren ? new AtomicBoolean() : null;
+        }
+
+        void touch(long now, long granularity) {
+            if (now - lastAccess > granularity) {
+                lastAccess = now;
+            }
+        }
+    }
+
+    /**
+     * 分条带的全局桶，条带计数放在 {@link AtomicLongArray} 中，相邻条带间隔 16 个 long（128 字节），避免伪共享
+     */
+    private static final class StripedBucket {
+
+        private static final int PAD_SHIFT = 4;
+
+        private final TokenBucket bucket;
+
+        private final long interval;
+
+        private final long burst;
+
+        /**
+         * 条带每次从全局桶领取的令牌数
+         */
+        private final long batch;
+
+        private final AtomicLongArray permits;
+
+        private final int mask;
+
+        StripedBucket(Quota quota, long now) {
+            this.interval = TokenBucket.interval(quota.getRate());
+            this.burst = quota.getBurst();
+            this.bucket = new TokenBucket(interval, burst, now);
+            int cpus = Runtime.getRuntime().availableProcessors();
+            int stripes = cpus == 1 ? 1 : Integer.highestOneBit(cpus - 1) << 1;
+            if (stripes > 1 && burst < stripes * 16L) {
+                // 容量太小时条带里滞留的令牌占比过高，退化为单条带
+                stripes = 1;
+            }
+            this.mask = stripes - 1;
+            this.batch = stripes == 1 ? 0 : Math.max(1, burst / (stripes * 16L));
+            this.permits = new AtomicLongArray(stripes << PAD_SHIFT);
+        }
+
+        boolean tryTake(long n, long now) {
+            if (batch == 0) {
+                return bucket.tryTake(n, interval, burst, now);
+            }
+            int i = stripe();
+            for (;;) {
+                long current = permits.get(i);
+                if (current >= n) {
+                    // 只在扣减后不小于 0 时扣减，条带不会被 tryTake 扣成负数
+                    if (permits.compareAndSet(i, current, current - n)) {
+                        return true;
+                    }
+                    continue;
+                }
+                // 条带不够，向全局桶领取缺的部分（条带因 force 欠账为负时连同欠账），多领一批留给后续请求；
+                // 全局不够一批时只领缺的部分。领到的令牌先放回条带，再回到上面用 CAS 扣减，被其他线程抢先用掉时重新领取
+                long need = n - current;
+                if (bucket.tryTake(need + batch, interval, burst, now)) {
+                    permits.getAndAdd(i, need + batch);
+                } else if (bucket.tryTake(need, interval, burst, now)) {
+                    permits.getAndAdd(i, need);
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        void force(long n, long now) {
+            if (batch == 0) {
+                bucket.force(n, interval, burst, now);
+                return;
+            }
+            int i = stripe();
+            long left = permits.addAndGet(i, -n);
+            if (left < 0) {
+                // 每个线程只补自己造成的那部分欠账，不会重复补
+                long debt = Math.min(n, -left);
+                bucket.force(debt, interval, burst, now);
+                permits.getAndAdd(i, debt);
+            }
+        }
+
+        long reserve(long n, long now, long maxWait) {
+            return bucket.reserve(n, interval, burst, now, maxWait);
+        }
+
+        boolean hasSurplus(long now) {
+            return bucket.available(interval, burst, now) > burst / SURPLUS_RESERVE;
+        }
+
+        private int stripe() {
+            if (mask == 0) {
+                return 0;
+            }
+            long id = Thread.currentThread().getId();
+            int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+            return ((h >>> 16) & mask) << PAD_SHIFT;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.dunwu.javacore.concurrent.current.features.limiter;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link HierarchicalRateLimiter} 的构建器。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * HierarchicalRateLimiter limiter = HierarchicalRateLimiterBuilder.newBuilder()
+ *         .setGlobalQuota(100_000, 20_000)
+ *         .setTenantQuota(tenant -&gt; tenantConfig.quotaOf(tenant))
+ *         .setIdleTimeout(10, TimeUnit.MINUTES)
+ *         .setMaximumTenants(1_000_000)
+ *         .build();
+ * if (limiter.tryAcquire(tenantId, apiKey)) { ... }
+ * </pre>
+ * 不设置租户和 API key 的配额时，它们都没有保证速率，按相同权重平分上级的容量。
+ */
+public class HierarchicalRateLimiterBuilder {
+
+    private double globalRate = -1;
+
+    private long globalBurst;
+
+    private Function<String, Quota> tenantQuota = tenant -> Quota.FAIR_SHARE;
+
+    private BiFunction<String, String, Quota> keyQuota = (tenant, key) -> Quota.FAIR_SHARE;
+
+    private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(5);
+
+    private int maximumTenants = 1_000_000;
+
+    private int maximumKeysPerTenant = 10_000;
+
+    private LongSupplier ticker = System::nanoTime;
+
+    public static HierarchicalRateLimiterBuilder newBuilder() {
+        return new HierarchicalRateLimiterBuilder();
+    }
+
+    /**
+     * 全局每秒许可数和桶容量，必须设置
+     */
+    public HierarchicalRateLimiterBuilder setGlobalQuota(double rate, long burst) {
+        Validate.isTrue(rate > 0, "rate must be positive");
+        Validate.isTrue(burst > 0, "burst must be positive");
+        this.globalRate = rate;
+        this.globalBurst = burst;
+        return this;
+    }
+
+    /**
+     * 租户的配额，租户第一次出现（或被淘汰后再次出现）时调用一次
+     */
+    public HierarchicalRateLimiterBuilder setTenantQuota(Function<String, Quota> tenantQuota) {
+        this.tenantQuota = Validate.notNull(tenantQuota);
+        return this;
+    }
+
+    /**
+     * API key 的配额，参数依次是租户和 key，key 第一次出现时调用一次
+     */
+    public HierarchicalRateLimiterBuilder setKeyQuota(BiFunction<String, String, Quota> keyQuota) {
+        this.keyQuota = Validate.notNull(keyQuota);
+        return this;
+    }
+
+    /**
+     * 租户或 API key 超过 duration 没有请求就可以被淘汰，淘汰后不再参与分享上级的容量
+     */
+    public HierarchicalRateLimiterBuilder setIdleTimeout(long duration, TimeUnit unit) {
+        Validate.isTrue(duration > 0, "duration must be positive");
+        this.idleTimeoutNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 同时保留的租户数上限，达到上限且没有可淘汰的空闲租户时拒绝新租户的请求
+     */
+    public HierarchicalRateLimiterBuilder setMaximumTenants(int maximumTenants) {
+        Validate.isTrue(maximumTenants > 0, "maximumTenants must be positive");
+        this.maximumTenants = maximumTenants;
+        return this;
+    }
+
+    /**
+     * 每个租户同时保留的 API key 数上限，含义同 {@link #setMaximumTenants}
+     */
+    public HierarchicalRateLimiterBuilder setMaximumKeysPerTenant(int maximumKeysPerTenant) {
+        Validate.isTrue(maximumKeysPerTenant > 0, "maximumKeysPerTenant must be positive");
+        this.maximumKeysPerTenant = maximumKeysPerTenant;
+        return this;
+    }
+
+    /**
+     * 纳秒时钟，默认 System.nanoTime，测试时可以注入可控的时间
+     */
+    public HierarchicalRateLimiterBuilder setTicker(LongSupplier ticker) {
+        this.ticker = Validate.notNull(ticker);
+        return this;
+    }
+
+    public HierarchicalRateLimiter build() {
+        Validate.isTrue(globalRate > 0, "globalQuota must be set");
+        return new HierarchicalRateLimiter(this);
+    }
+
+    double getGlobalRate() {
+        return globalRate;
+    }
+
+    long getGlobalBurst() {
+        return globalBurst;
+    }
+
+    Function<String, Quota> getTenantQuota() {
+        return tenantQuota;
+    }
+
+    BiFunction<String, String, Quota> getKeyQuota() {
+        return keyQuota;
+    }
+
+    long getIdleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
+
+    int getMaximumTenants() {
+        return maximumTenants;
+    }
+
+    int getMaximumKeysPerTenant() {
+        return maximumKeysPerTenant;
+    }
+
+    LongSupplier getTicker() {
+        return ticker;
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.dunwu.javacore.concurrent.current.features.limiter;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * {@link HierarchicalRateLimiter} 中一个节点（租户或 API key）的配额，不可变。
+ * <p>
+ * rate 是保证速率：在这个速率以内的请求只要本节点有令牌就放行，不受兄弟节点影响（上级照常扣减，可能欠账）；
+ * weight 是借用权重：超出保证速率的部分按权重分享上级的空闲容量。rate 为 0 表示没有保证速率，完全按权重分享。
+ */
+public final class Quota {
+
+    /**
+     * 没有保证速率、权重为 1，即与兄弟节点平分上级的容量
+     */
+    public static final Quota FAIR_SHARE = new Quota(0, 0, 1);
+
+    private final double rate;
+
+    private final long burst;
+
+    private final int weight;
+
+    private Quota(double rate, long burst, int weight) {
+        this.rate = rate;
+        this.burst = burst;
+        this.weight = weight;
+    }
+
+    /**
+     * @param rate   每秒的保证许可数，0 表示没有保证速率
+     * @param burst  桶容量，即允许的最大突发许可数，rate 为 0 时忽略
+     * @param weight 借用上级空闲容量时的权重
+     */
+    public static Quota of(double rate, long burst, int weight) {
+        Validate.isTrue(rate >= 0, "rate must not be negative");
+        Validate.isTrue(rate == 0 || burst > 0, "burst must be positive");
+        Validate.isTrue(weight > 0, "weight must be positive");
+        return new Quota(rate, rate == 0 ? 0 : burst, weight);
+    }
+
+    /**
+     * 容量为一秒的许可数，权重为 1
+     */
+    public static Quota of(double rate) {
+        return of(rate, Math.max(1, (long) rate), 1);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public long getBurst() {
+        return burst;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "Quota{rate=" + rate + ", burst=" + burst + ", weight=" + weight + '}';
+    }
+}
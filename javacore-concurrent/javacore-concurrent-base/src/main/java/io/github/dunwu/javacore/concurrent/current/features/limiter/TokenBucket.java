@@ -0,0 +1,114 @@
+package io.github.dunwu.javacore.concurrent.current.features.limiter;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 无锁令牌桶，按 GCRA（Generic Cell Rate Algorithm）只用一个 long 表示状态。
+ * <p>
+ * 状态是"桶中令牌数为 0 的时刻" zeroTime，当前令牌数为 {@code min(burst, (now - zeroTime) / interval)}，
+ * 取 n 个令牌就是把 zeroTime 推后 n * interval。补充和消费在同一次 CAS 中完成，
+ * 不像 {@code original.atomic.RateLimiter} 那样分成两个原子变量，两步之间可能被其他线程插入。
+ * <p>
+ * 速率和容量不保存在桶里，由调用方每次传入，同一个桶可以随时改变速率（{@link HierarchicalRateLimiter} 的借用额度就是动态的）。
+ * 时间单位都是纳秒，interval 是生成一个令牌需要的纳秒数。
+ */
+public final class TokenBucket {
+
+    private static final AtomicLongFieldUpdater<TokenBucket> ZERO_TIME =
+        AtomicLongFieldUpdater.newUpdater(TokenBucket.class, "zeroTime");
+
+    private volatile long zeroTime;
+
+    /**
+     * 创建一个满的桶
+     */
+    public TokenBucket(long interval, long burst, long now) {
+        this.zeroTime = now - interval * burst;
+    }
+
+    private TokenBucket() {
+        this.zeroTime = Long.MIN_VALUE / 2;
+    }
+
+    /**
+     * 创建一个无论之后按什么速率和容量使用都是满的桶，用于速率不固定的场景
+     */
+    public static TokenBucket full() {
+        return new TokenBucket();
+    }
+
+    /**
+     * 令牌足够时取走 n 个并返回 true，否则不做任何修改并返回 false
+     */
+    public boolean tryTake(long n, long interval, long burst, long now) {
+        for (;;) {
+            long current = zeroTime;
+            long next = Math.max(current, now - interval * burst) + interval * n;
+            if (next > now) {
+                return false;
+            }
+            if (ZERO_TIME.compareAndSet(this, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 预约 n 个令牌：令牌不足时向未来借，只要需要等待的时间不超过 maxWait 就预约成功。
+     *
+     * @return 需要等待的纳秒数，0 表示立即可用，-1 表示等待时间超过 maxWait，桶不变
+     */
+    public long reserve(long n, long interval, long burst, long now, long maxWait) {
+        for (;;) {
+            long current = zeroTime;
+            long next = Math.max(current, now - interval * burst) + interval * n;
+            long wait = Math.max(0, next - now);
+            if (wait > maxWait) {
+                return -1;
+            }
+            if (ZERO_TIME.compareAndSet(this, current, next)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * 无条件取走 n 个令牌，令牌不足时欠账，之后的请求要等欠账还清
+     */
+    public void force(long n, long interval, long burst, long now) {
+        for (;;) {
+            long current = zeroTime;
+            long next = Math.max(current, now - interval * burst) + interval * n;
+            if (ZERO_TIME.compareAndSet(this, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 归还 n 个令牌，用于多级扣减中上一级失败时的回滚
+     */
+    public void refund(long n, long interval) {
+        ZERO_TIME.getAndAdd(this, -interval * n);
+    }
+
+    /**
+     * 当前可用的令牌数，欠账时为负数
+     */
+    public long available(long interval, long burst, long now) {
+        if (interval == 0) {
+            return burst;
+        }
+        return Math.min(burst, (now - zeroTime) / interval);
+    }
+
+    /**
+     * 每秒 rate 个令牌对应的 interval，速率超过每纳秒一个时按每纳秒一个计算
+     */
+    public static long interval(double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("rate must be positive: " + rate);
+        }
+        return Math.max(1, Math.round(1_000_000_000d / rate));
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * 描述:
@@ -13,6 +14,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * ReentrantReadWriteLock 只支持锁的降级 不支持锁升级 并且只有写锁可以创建条件变量
  * 读写锁允许多个线程同时读共享变量，当一个线程在写共享变量的时候，是不允许其他线程执行写操作和读操作。
  *
+ * 这里只演示读写锁的用法：整个 map 共用一把锁、没有容量上限，也不会过期。
+ * 实际使用的缓存见 {@link io.github.dunwu.javacore.concurrent.current.features.cache.TinyLfuCache}
+ *
  *
  * @author zed
  * @since 2019-06-17 5:00 PM
@@ -36,7 +40,7 @@ public class CacheByReadWriteLock<K,V> {
      * @param v v
      * @return v
      */
-    V put(K key, V v) {
+    public V put(K key, V v) {
         writeLock.lock();
         try {
             return m.put(key, v);
@@ -50,7 +54,7 @@ public class CacheByReadWriteLock<K,V> {
      * @param key key
      * @return v
      */
-    V get1(K key) {
+    public V get1(K key) {
         readLock.lock();
         try {
             return m.get(key);
@@ -63,9 +67,10 @@ public class CacheByReadWriteLock<K,V> {
     /**
      * 按需加载
      * @param key key
+     * @param loader 缓存未命中时查询数据库
      * @return v
      */
-    V get2(K key) {
+    public V get2(K key, Function<? super K, ? extends V> loader) {
         V v = null;
         // 读缓存
         readLock.lock();
@@ -85,8 +90,11 @@ public class CacheByReadWriteLock<K,V> {
             // 并发情况下其他线程可能已经查询过数据库
             v = m.get(key);
             if(v == null){
-                // 查询数据库
-                m.put(key, v);
+                // 查询数据库，查不到时不缓存 null
+                v = loader.apply(key);
+                if (v != null) {
+                    m.put(key, v);
+                }
             }
         } finally{
             writeLock.unlock();
@@ -0,0 +1,104 @@
+package io.github.dunwu.javacore.concurrent.current.features.threadPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 阻塞IO任务与CPU任务分开执行的线程池.
+ *
+ * 1. executeBlocking/submitBlocking提交的任务在{@link VirtualThreadPerTaskExecutor}上每任务一个虚拟线程执行, 受并发上限保护.
+ *
+ * 2. execute/submit提交的任务视为CPU任务, 在线程数有界(默认为CPU核数)的平台线程池上执行, 避免CPU任务抢占过多线程.
+ *
+ * 两个内部Executor可以分别注册到动态线程池注册中心; 整体注册时注册中心通过{@link #getDelegateExecutors()}汇总两者的指标.
+ *
+ * @see ThreadPoolBuilder#hybridPool()
+ */
+public class HybridThreadPool extends AbstractExecutorService {
+
+	private final VirtualThreadPerTaskExecutor blockingExecutor;
+
+	private final ThreadPoolExecutor cpuExecutor;
+
+	public HybridThreadPool(VirtualThreadPerTaskExecutor blockingExecutor, ThreadPoolExecutor cpuExecutor) {
+		this.blockingExecutor = blockingExecutor;
+		this.cpuExecutor = cpuExecutor;
+	}
+
+	/**
+	 * 执行CPU任务
+	 */
+	@Override
+	public void execute(Runnable command) {
+		cpuExecutor.execute(command);
+	}
+
+	/**
+	 * 执行阻塞IO任务
+	 */
+	public void executeBlocking(Runnable command) {
+		blockingExecutor.execute(command);
+	}
+
+	public <T> Future<T> submitBlocking(Callable<T> task) {
+		return blockingExecutor.submit(task);
+	}
+
+	public Future<?> submitBlocking(Runnable task) {
+		return blockingExecutor.submit(task);
+	}
+
+	public VirtualThreadPerTaskExecutor getBlockingExecutor() {
+		return blockingExecutor;
+	}
+
+	public ThreadPoolExecutor getCpuExecutor() {
+		return cpuExecutor;
+	}
+
+	/**
+	 * 内部的阻塞IO和CPU两个Executor, 供监控汇总指标
+	 */
+	public List<ExecutorService> getDelegateExecutors() {
+		return Arrays.asList(blockingExecutor, cpuExecutor);
+	}
+
+	@Override
+	public void shutdown() {
+		blockingExecutor.shutdown();
+		cpuExecutor.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> pending = new ArrayList<>(cpuExecutor.shutdownNow());
+		pending.addAll(blockingExecutor.shutdownNow());
+		return pending;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return blockingExecutor.isShutdown() && cpuExecutor.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return blockingExecutor.isTerminated() && cpuExecutor.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (!blockingExecutor.awaitTermination(timeout, unit)) {
+			return false;
+		}
+		return cpuExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+}
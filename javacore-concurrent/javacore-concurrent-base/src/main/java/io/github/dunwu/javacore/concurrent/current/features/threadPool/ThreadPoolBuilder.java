@@ -4,6 +4,7 @@ import org.apache.commons.lang3.Validate;
 
 import java.util.concurrent.*;
 import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author zed
@@ -11,7 +12,7 @@ import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
  * 
  * 对比JDK Executors中的newFixedThreadPool(), newCachedThreadPool(),newScheduledThreadPool, 提供更多有用的配置项.
  * 
- * 另包含了移植自Tomcat的QueuableCachedPool.
+ * 另包含了移植自Tomcat的QueuableCachedPool, 以及每任务一个虚拟线程的Executor, ForkJoinPool和阻塞/CPU任务分离的混合线程池.
  * 
  * 使用示例如下：
  * 
@@ -49,6 +50,27 @@ public class ThreadPoolBuilder {
 		return new QueueAbleCachedThreadPoolBuilder();
 	}
 
+	/**
+	 * @see VirtualThreadPerTaskBuilder
+	 */
+	public static VirtualThreadPerTaskBuilder virtualThreadPerTask() {
+		return new VirtualThreadPerTaskBuilder();
+	}
+
+	/**
+	 * @see ForkJoinPoolBuilder
+	 */
+	public static ForkJoinPoolBuilder forkJoinPool() {
+		return new ForkJoinPoolBuilder();
+	}
+
+	/**
+	 * @see HybridThreadPoolBuilder
+	 */
+	public static HybridThreadPoolBuilder hybridPool() {
+		return new HybridThreadPoolBuilder();
+	}
+
 	/**
 	 * 创建FixedThreadPool.建议必须设置queueSize保证有界。
 	 * 
@@ -69,6 +91,7 @@ public class ThreadPoolBuilder {
 
 		private int poolSize = 1;
 		private int queueSize = -1;
+		private BlockingQueue<Runnable> workQueue;
 
 		private ThreadFactory threadFactory;
 		private String threadNamePrefix;
@@ -95,6 +118,18 @@ public class ThreadPoolBuilder {
 			return this;
 		}
 
+		/**
+		 * 自定义工作队列, 设置后忽略queueSize.
+		 * 
+		 * 例如有界无锁环形队列MpmcArrayBlockingQueue, 入队出队不加锁也不创建节点.
+		 * 
+		 * 工作队列必须支持多个线程同时出队: 即使poolSize为1, shutdownNow也会在调用线程中drainTo, 不能使用MpscArrayBlockingQueue/SpscArrayBlockingQueue.
+		 */
+		public FixedThreadPoolBuilder setWorkQueue(BlockingQueue<Runnable> workQueue) {
+			this.workQueue = workQueue;
+			return this;
+		}
+
 		/**
 		 * 与threadNamePrefix互斥, 优先使用ThreadFactory
 		 */
@@ -128,7 +163,9 @@ public class ThreadPoolBuilder {
 
 		public ThreadPoolExecutor build() {
 			BlockingQueue<Runnable> queue = null;
-			if (queueSize < 1) {
+			if (workQueue != null) {
+				queue = workQueue;
+			} else if (queueSize < 1) {
 				queue = new LinkedBlockingQueue<Runnable>();
 			} else {
 				queue = new ArrayBlockingQueue<Runnable>(queueSize);
@@ -360,6 +397,216 @@ public class ThreadPoolBuilder {
 		}
 	}
 
+	/**
+	 * 创建每任务一个虚拟线程的Executor, 用Semaphore限制并发数.
+	 * 
+	 * 1. 不复用线程也没有任务队列, 并发数达到maxConcurrency后, 提交线程在Semaphore上等待.
+	 * 
+	 * acquireTimeoutMillis默认为-1即一直等待(天然的背压), 为0时立即拒绝, 为正数时等待超时后抛出RejectedExecutionException.
+	 * 
+	 * 2. 运行时不支持虚拟线程(JDK 21以下)时退化为daemon平台线程, 启动时打印告警, 并发上限(包括之后动态调整的值)
+	 * 不超过{@link VirtualThreadPerTaskExecutor#PLATFORM_THREAD_MAX_CONCURRENCY}; 自定义threadFactory时不做限制.
+	 * 
+	 * 3. 适用于大部分时间阻塞在IO上的任务, 并发上限用来保护下游(连接池, 数据库)而不是线程数.
+	 */
+	public static class VirtualThreadPerTaskBuilder {
+
+		private int maxConcurrency = 10000;
+		private long acquireTimeoutMillis = -1;
+
+		private ThreadFactory threadFactory;
+		private String threadNamePrefix = "virtual";
+
+		/**
+		 * 同时运行的任务数上限, 默认10000
+		 */
+		public VirtualThreadPerTaskBuilder setMaxConcurrency(int maxConcurrency) {
+			Validate.isTrue(maxConcurrency >= 1);
+			this.maxConcurrency = maxConcurrency;
+			return this;
+		}
+
+		/**
+		 * 达到并发上限时提交线程的等待时间, 默认-1一直等待, 0为立即拒绝
+		 */
+		public VirtualThreadPerTaskBuilder setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+			this.acquireTimeoutMillis = acquireTimeoutMillis;
+			return this;
+		}
+
+		/**
+		 * 与threadNamePrefix互斥, 优先使用ThreadFactory
+		 */
+		public VirtualThreadPerTaskBuilder setThreadFactory(ThreadFactory threadFactory) {
+			this.threadFactory = threadFactory;
+			return this;
+		}
+
+		/**
+		 * 与threadFactory互斥, 优先使用ThreadFactory, 默认为virtual
+		 */
+		public VirtualThreadPerTaskBuilder setThreadNamePrefix(String threadNamePrefix) {
+			this.threadNamePrefix = threadNamePrefix;
+			return this;
+		}
+
+		public VirtualThreadPerTaskExecutor build() {
+			int maxConcurrencyLimit = Integer.MAX_VALUE;
+			if (threadFactory == null) {
+				threadFactory = ThreadPoolUtil.buildVirtualThreadFactory(threadNamePrefix);
+				if (!ThreadPoolUtil.isVirtualThreadSupported()) {
+					maxConcurrencyLimit = VirtualThreadPerTaskExecutor.PLATFORM_THREAD_MAX_CONCURRENCY;
+				}
+			}
+			return new VirtualThreadPerTaskExecutor(maxConcurrency, acquireTimeoutMillis, threadFactory,
+					maxConcurrencyLimit);
+		}
+	}
+
+	/**
+	 * 创建ForkJoinPool, 默认asyncMode为true.
+	 * 
+	 * 1. 每个工作线程有自己的双端队列, 空闲线程从其他线程的队列尾部窃取任务.
+	 * 
+	 * 2. asyncMode为true时本地队列按FIFO执行, 适合只提交不join的事件/消息类任务; 分治计算(fork/join)时设为false按LIFO执行.
+	 * 
+	 * parallelism默认为CPU核数.
+	 * 
+	 * 3. 任务通过ForkJoinPool.managedBlock阻塞时会补偿创建线程, 总线程数不超过maxPoolSize, 默认为parallelism + 256(与JDK commonPool的默认值一致;
+	 * 普通ForkJoinPool构造函数的默认上限是32767, 阻塞任务多时线程数几乎不受限, 这里沿用commonPool的较小上限).
+	 */
+	public static class ForkJoinPoolBuilder {
+
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+		private int maxPoolSize = -1;
+		private int keepAliveSecs = 60;
+		private boolean asyncMode = true;
+
+		private String threadNamePrefix;
+		private Boolean daemon;
+		private Thread.UncaughtExceptionHandler uncaughtExceptionHandler;
+
+		public ForkJoinPoolBuilder setParallelism(int parallelism) {
+			Validate.isTrue(parallelism >= 1);
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * 补偿阻塞时允许的最大线程数, 默认parallelism + 256(commonPool的默认值, 不是普通ForkJoinPool构造函数的32767)
+		 */
+		public ForkJoinPoolBuilder setMaxPoolSize(int maxPoolSize) {
+			this.maxPoolSize = maxPoolSize;
+			return this;
+		}
+
+		public ForkJoinPoolBuilder setKeepAliveSecs(int keepAliveSecs) {
+			this.keepAliveSecs = keepAliveSecs;
+			return this;
+		}
+
+		/**
+		 * 默认为true, 本地队列FIFO
+		 */
+		public ForkJoinPoolBuilder setAsyncMode(boolean asyncMode) {
+			this.asyncMode = asyncMode;
+			return this;
+		}
+
+		public ForkJoinPoolBuilder setThreadNamePrefix(String threadNamePrefix) {
+			this.threadNamePrefix = threadNamePrefix;
+			return this;
+		}
+
+		/**
+		 * 默认为NULL，不进行设置，使用JDK的默认值(daemon).
+		 */
+		public ForkJoinPoolBuilder setDaemon(Boolean daemon) {
+			this.daemon = daemon;
+			return this;
+		}
+
+		public ForkJoinPoolBuilder setUncaughtExceptionHandler(Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+			this.uncaughtExceptionHandler = uncaughtExceptionHandler;
+			return this;
+		}
+
+		public ForkJoinPool build() {
+			int max = maxPoolSize > 0 ? Math.max(maxPoolSize, parallelism) : parallelism + 256;
+			return new ForkJoinPool(parallelism, createForkJoinWorkerThreadFactory(threadNamePrefix, daemon),
+					uncaughtExceptionHandler, asyncMode, 0, max, 1, null, keepAliveSecs, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * 创建阻塞IO任务与CPU任务分离的混合线程池.
+	 * 
+	 * 1. 阻塞IO任务(executeBlocking/submitBlocking)每任务一个虚拟线程, 并发上限为maxBlockingConcurrency, 默认10000;
+	 * 不支持虚拟线程时与VirtualThreadPerTaskBuilder一样退化为平台线程并限制并发上限.
+	 * 
+	 * 2. CPU任务(execute/submit)在固定大小的平台线程池上执行, 线程数默认为CPU核数, 队列默认有界1024, 满了之后调用RejectHandler.
+	 */
+	public static class HybridThreadPoolBuilder {
+
+		private int maxBlockingConcurrency = 10000;
+		private long blockingAcquireTimeoutMillis = -1;
+		private int cpuPoolSize = Runtime.getRuntime().availableProcessors();
+		private int cpuQueueSize = 1024;
+
+		private String threadNamePrefix = "hybrid";
+
+		private RejectedExecutionHandler rejectHandler;
+
+		public HybridThreadPoolBuilder setMaxBlockingConcurrency(int maxBlockingConcurrency) {
+			this.maxBlockingConcurrency = maxBlockingConcurrency;
+			return this;
+		}
+
+		/**
+		 * @see VirtualThreadPerTaskBuilder#setAcquireTimeoutMillis(long)
+		 */
+		public HybridThreadPoolBuilder setBlockingAcquireTimeoutMillis(long blockingAcquireTimeoutMillis) {
+			this.blockingAcquireTimeoutMillis = blockingAcquireTimeoutMillis;
+			return this;
+		}
+
+		public HybridThreadPoolBuilder setCpuPoolSize(int cpuPoolSize) {
+			this.cpuPoolSize = cpuPoolSize;
+			return this;
+		}
+
+		public HybridThreadPoolBuilder setCpuQueueSize(int cpuQueueSize) {
+			this.cpuQueueSize = cpuQueueSize;
+			return this;
+		}
+
+		/**
+		 * 阻塞线程名为prefix-io-N, CPU线程名为prefix-cpu-N, 默认为hybrid
+		 */
+		public HybridThreadPoolBuilder setThreadNamePrefix(String threadNamePrefix) {
+			this.threadNamePrefix = threadNamePrefix;
+			return this;
+		}
+
+		/**
+		 * CPU线程池的拒绝策略
+		 */
+		public HybridThreadPoolBuilder setRejectHanlder(RejectedExecutionHandler rejectHandler) {
+			this.rejectHandler = rejectHandler;
+			return this;
+		}
+
+		public HybridThreadPool build() {
+			VirtualThreadPerTaskExecutor blockingExecutor = new VirtualThreadPerTaskBuilder()
+					.setMaxConcurrency(maxBlockingConcurrency).setAcquireTimeoutMillis(blockingAcquireTimeoutMillis)
+					.setThreadNamePrefix(threadNamePrefix + "-io").build();
+			ThreadPoolExecutor cpuExecutor = new FixedThreadPoolBuilder().setPoolSize(cpuPoolSize)
+					.setQueueSize(cpuQueueSize).setThreadNamePrefix(threadNamePrefix + "-cpu").setDaemon(Boolean.TRUE)
+					.setRejectHanlder(rejectHandler).build();
+			return new HybridThreadPool(blockingExecutor, cpuExecutor);
+		}
+	}
+
 	/**
 	 * 优先使用threadFactory，否则如果threadNamePrefix不为空则使用自建ThreadFactory，否则使用defaultThreadFactory
 	 */
@@ -379,4 +626,25 @@ public class ThreadPoolBuilder {
 
 		return Executors.defaultThreadFactory();
 	}
+
+	/**
+	 * threadNamePrefix与daemon都为空时使用JDK默认的ForkJoinWorkerThreadFactory
+	 */
+	private static ForkJoinPool.ForkJoinWorkerThreadFactory createForkJoinWorkerThreadFactory(String threadNamePrefix,
+			Boolean daemon) {
+		if (threadNamePrefix == null && daemon == null) {
+			return ForkJoinPool.defaultForkJoinWorkerThreadFactory;
+		}
+		AtomicInteger index = new AtomicInteger();
+		return pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			if (threadNamePrefix != null) {
+				thread.setName(threadNamePrefix + "-" + index.getAndIncrement());
+			}
+			if (daemon != null) {
+				thread.setDaemon(daemon);
+			}
+			return thread;
+		};
+	}
 }
@@ -7,6 +7,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.Nullable;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -20,6 +23,8 @@ import java.util.concurrent.TimeUnit;
  * 
  * 3. 防止第三方Runnable未捕捉异常导致线程跑飞
  * 
+ * 4. 创建虚拟线程的ThreadFactory(JDK 21+, 低版本退化为daemon平台线程并在启动时打印告警)
+ * 
  * @author calvin
  *
  */
@@ -72,6 +77,34 @@ public class ThreadPoolUtil {
 		return new ThreadFactoryBuilder().setNameFormat(threadNamePrefix + "-%d").setDaemon(daemon).build();
 	}
 
+	/**
+	 * 创建虚拟线程的ThreadFactory, 线程名为threadNamePrefix-0, threadNamePrefix-1...
+	 * 
+	 * 本模块按JDK 17编译, 通过MethodHandle调用Thread.ofVirtual(); 运行时不支持虚拟线程时退化为daemon平台线程,
+	 * 此时每个任务都占用一个操作系统线程, 调用方要自行限制并发数(见{@link VirtualThreadPerTaskExecutor#PLATFORM_THREAD_MAX_CONCURRENCY}).
+	 * 
+	 * @see #isVirtualThreadSupported()
+	 */
+	public static ThreadFactory buildVirtualThreadFactory(String threadNamePrefix) {
+		if (VirtualThreadSupport.OF_VIRTUAL == null) {
+			return buildThreadFactory(threadNamePrefix, true);
+		}
+		try {
+			Object builder = VirtualThreadSupport.OF_VIRTUAL.invoke();
+			builder = VirtualThreadSupport.NAME.invoke(builder, threadNamePrefix + "-", 0L);
+			return (ThreadFactory) VirtualThreadSupport.FACTORY.invoke(builder);
+		} catch (Throwable e) {
+			throw new IllegalStateException("Failed to create virtual thread factory", e);
+		}
+	}
+
+	/**
+	 * 当前运行时是否支持虚拟线程(JDK 21+, 或JDK 19/20开启--enable-preview)
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return VirtualThreadSupport.OF_VIRTUAL != null;
+	}
+
 	/**
 	 * 防止用户没有捕捉异常导致中断了线程池中的线程, 使得SchedulerService无法继续执行.
 	 * 
@@ -105,4 +138,42 @@ public class ThreadPoolUtil {
 			}
 		}
 	}
+
+	/**
+	 * 启动时解析一次Thread.ofVirtual()相关方法句柄, 不支持时均为null.
+	 */
+	private static class VirtualThreadSupport {
+
+		private static final Logger logger = LoggerFactory.getLogger(VirtualThreadSupport.class);
+
+		private static final MethodHandle OF_VIRTUAL;
+		private static final MethodHandle NAME;
+		private static final MethodHandle FACTORY;
+
+		static {
+			MethodHandle ofVirtual = null;
+			MethodHandle name = null;
+			MethodHandle factory = null;
+			try {
+				Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+				Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+				name = lookup.findVirtual(ofVirtualClass, "name", MethodType.methodType(ofVirtualClass, String.class, long.class));
+				factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+				// JDK 19/20未开启preview时调用会抛UnsupportedOperationException
+				ofVirtual.invoke();
+			} catch (Throwable e) {
+				ofVirtual = null;
+			}
+			OF_VIRTUAL = ofVirtual;
+			NAME = name;
+			if (ofVirtual == null) {
+				logger.warn("Virtual threads are not supported by this runtime ({}), falling back to platform threads;"
+						+ " per-task executors are capped at {} concurrent tasks", System.getProperty("java.version"),
+						VirtualThreadPerTaskExecutor.PLATFORM_THREAD_MAX_CONCURRENCY);
+			}
+			FACTORY = factory;
+		}
+	}
 }
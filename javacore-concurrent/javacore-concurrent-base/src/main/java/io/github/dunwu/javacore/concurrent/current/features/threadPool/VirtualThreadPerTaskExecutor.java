@@ -0,0 +1,281 @@
+package io.github.dunwu.javacore.concurrent.current.features.threadPool;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 每个任务一个线程(默认为虚拟线程)的Executor, 用Semaphore限制同时运行的任务数.
+ *
+ * 与ThreadPoolExecutor不同, 没有任务队列也不复用线程: 达到并发上限时提交线程在Semaphore上等待,
+ * 等待超过acquireTimeout后抛出RejectedExecutionException. 适合大量阻塞IO的任务, 并发上限用来保护下游资源而不是平台线程数.
+ *
+ * getMaximumPoolSize/setMaximumPoolSize/getActiveCount等方法与ThreadPoolExecutor同名, 动态线程池注册中心可以按Bean属性读写并发上限.
+ *
+ * 线程工厂创建的是平台线程时(例如运行时不支持虚拟线程), 每个任务占用一个操作系统线程, 应通过maxConcurrencyLimit限制并发上限,
+ * {@link ThreadPoolBuilder#virtualThreadPerTask()}退化时使用{@link #PLATFORM_THREAD_MAX_CONCURRENCY}.
+ *
+ * @see ThreadPoolBuilder#virtualThreadPerTask()
+ */
+public class VirtualThreadPerTaskExecutor extends AbstractExecutorService {
+
+	/**
+	 * 退化为平台线程时的并发上限
+	 */
+	public static final int PLATFORM_THREAD_MAX_CONCURRENCY = 256;
+
+	private final ThreadFactory threadFactory;
+
+	private final ResizableSemaphore permits;
+
+	/**
+	 * 小于0为一直等待, 0为拿不到许可立即拒绝
+	 */
+	private final long acquireTimeoutMillis;
+
+	private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 已拿到许可的任务数, 先于线程启动递增, 用于判断是否终止
+	 */
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final AtomicLong completedTaskCount = new AtomicLong();
+
+	private final ReentrantLock mainLock = new ReentrantLock();
+
+	private final Condition termination = mainLock.newCondition();
+
+	private volatile int maxConcurrency;
+
+	/**
+	 * maxConcurrency允许的最大值, setMaximumPoolSize超过时取该值
+	 */
+	private final int maxConcurrencyLimit;
+
+	private volatile boolean shutdown;
+
+	public VirtualThreadPerTaskExecutor(int maxConcurrency, long acquireTimeoutMillis, ThreadFactory threadFactory) {
+		this(maxConcurrency, acquireTimeoutMillis, threadFactory, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxConcurrencyLimit 并发上限的最大值, maxConcurrency超过时取该值
+	 */
+	public VirtualThreadPerTaskExecutor(int maxConcurrency, long acquireTimeoutMillis, ThreadFactory threadFactory,
+			int maxConcurrencyLimit) {
+		if (maxConcurrency < 1 || maxConcurrencyLimit < 1) {
+			throw new IllegalArgumentException(
+					"maxConcurrency and maxConcurrencyLimit must be positive: " + maxConcurrency + ", " + maxConcurrencyLimit);
+		}
+		this.maxConcurrencyLimit = maxConcurrencyLimit;
+		maxConcurrency = Math.min(maxConcurrency, maxConcurrencyLimit);
+		this.maxConcurrency = maxConcurrency;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		this.threadFactory = threadFactory;
+		this.permits = new ResizableSemaphore(maxConcurrency);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException();
+		}
+		if (shutdown) {
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+		acquirePermit();
+
+		// 先计数再检查shutdown, 保证awaitTermination不会漏掉正在启动的任务
+		activeCount.incrementAndGet();
+		if (shutdown) {
+			finishTask(false);
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+
+		Thread thread = threadFactory.newThread(() -> {
+			try {
+				command.run();
+			} finally {
+				threads.remove(Thread.currentThread());
+				finishTask(true);
+			}
+		});
+		if (thread == null) {
+			finishTask(false);
+			throw new RejectedExecutionException("ThreadFactory returned null");
+		}
+		threads.add(thread);
+		try {
+			thread.start();
+		} catch (Throwable e) {
+			threads.remove(thread);
+			finishTask(false);
+			throw new RejectedExecutionException(e);
+		}
+	}
+
+	private void acquirePermit() {
+		try {
+			if (acquireTimeoutMillis < 0) {
+				permits.acquire();
+			} else if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new RejectedExecutionException(
+						"Concurrency limit reached: " + maxConcurrency + ", waited " + acquireTimeoutMillis + "ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RejectedExecutionException(e);
+		}
+	}
+
+	private void finishTask(boolean completed) {
+		if (completed) {
+			completedTaskCount.incrementAndGet();
+		}
+		permits.release();
+		if (activeCount.decrementAndGet() == 0 && shutdown) {
+			signalTermination();
+		}
+	}
+
+	private void signalTermination() {
+		mainLock.lock();
+		try {
+			termination.signalAll();
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		if (activeCount.get() == 0) {
+			signalTermination();
+		}
+	}
+
+	/**
+	 * 没有任务队列, 返回值总是空列表; 正在运行的线程会被中断.
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown();
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+		return Collections.emptyList();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && activeCount.get() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		mainLock.lock();
+		try {
+			while (!isTerminated()) {
+				if (nanos <= 0L) {
+					return false;
+				}
+				nanos = termination.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			mainLock.unlock();
+		}
+	}
+
+	/**
+	 * 调整并发上限, 调小时已运行的任务不受影响, 新任务要等运行数降到新上限以下. 超过maxConcurrencyLimit时取maxConcurrencyLimit.
+	 */
+	public void setMaximumPoolSize(int maximumPoolSize) {
+		if (maximumPoolSize < 1) {
+			throw new IllegalArgumentException("maximumPoolSize must be positive: " + maximumPoolSize);
+		}
+		maximumPoolSize = Math.min(maximumPoolSize, maxConcurrencyLimit);
+		synchronized (permits) {
+			int delta = maximumPoolSize - maxConcurrency;
+			if (delta > 0) {
+				permits.release(delta);
+			} else if (delta < 0) {
+				permits.reducePermits(-delta);
+			}
+			maxConcurrency = maximumPoolSize;
+		}
+	}
+
+	public int getMaximumPoolSize() {
+		return maxConcurrency;
+	}
+
+	public int getMaxConcurrencyLimit() {
+		return maxConcurrencyLimit;
+	}
+
+	/**
+	 * 没有核心线程的概念, 与并发上限相同
+	 */
+	public int getCorePoolSize() {
+		return maxConcurrency;
+	}
+
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	public int getPoolSize() {
+		return activeCount.get();
+	}
+
+	/**
+	 * 在Semaphore上等待的提交线程数(估算值)
+	 */
+	public int getQueueSize() {
+		return permits.getQueueLength();
+	}
+
+	public int getRemainingCapacity() {
+		return Math.max(0, permits.availablePermits());
+	}
+
+	public long getCompletedTaskCount() {
+		return completedTaskCount.get();
+	}
+
+	/**
+	 * 开放reducePermits, 用于调小并发上限
+	 */
+	private static class ResizableSemaphore extends Semaphore {
+
+		private static final long serialVersionUID = -2387519574357284372L;
+
+		ResizableSemaphore(int permits) {
+			super(permits);
+		}
+
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+}
@@ -3,5 +3,7 @@
  * 2.QueueAbleCachedThreadPool 复制来源Tomcat 8.5.6中的线程池
  * 3.ThreadPoolBuilder 线程池创建工具类
  * 4.ThreadPoolUtil 线程池操作相关工具类 @author calvin 摘自vjtools
+ * 5.VirtualThreadPerTaskExecutor 每任务一个虚拟线程、Semaphore限制并发的Executor
+ * 6.HybridThreadPool 阻塞IO任务走虚拟线程、CPU任务走有界平台线程池的混合线程池
  */
 package io.github.dunwu.javacore.concurrent.current.features.threadPool;
\ No newline at end of file
@@ -0,0 +1,406 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue;
+
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于数组环形缓冲区的有界阻塞队列基类。
+ * <p>
+ * 1. 容量向上取整为 2 的幂，下标用 {@code index & mask} 计算，数组预先分配，入队出队不创建节点对象；
+ * <p>
+ * 2. 非阻塞的 offer/poll 由子类无锁实现，本类只在队列满/空需要等待时才使用锁：
+ * 先自旋 {@link #SPIN_TRIES} 次，仍不满足条件再登记为等待者并在 Condition 上等待；
+ * 另一端操作成功后只有存在等待者时才加锁唤醒，快路径上没有锁。
+ * <p>
+ * 3. 登记等待者与发布元素都是 写 -> 全屏障 -> 读 的顺序（Dekker 式），保证不会丢失唤醒。
+ * <p>
+ * 4. 迭代器是弱一致的快照，迭代器的 remove 按引用删除该元素；{@link #remove(Object)} 由子类实现，
+ * MPMC/MPSC 把元素所在槽位标记为已取消，由出队方跳过，因此可以作为 ThreadPoolExecutor 的工作队列（remove、purge、shutdownNow）。
+ *
+ * @param <E> 元素类型
+ */
+public abstract class AbstractRingBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /**
+     * 进入等待前的自旋次数
+     */
+    protected static final int SPIN_TRIES = 64;
+
+    protected final int capacity;
+
+    protected final int mask;
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition notEmpty = waitLock.newCondition();
+
+    private final Condition notFull = waitLock.newCondition();
+
+    /**
+     * 只在 waitLock 内修改，快路径上无锁读取
+     */
+    private volatile int takeWaiters;
+
+    private volatile int putWaiters;
+
+    protected AbstractRingBlockingQueue(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        if (capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity is too large: " + capacity);
+        }
+        this.capacity = 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+        this.mask = this.capacity - 1;
+    }
+
+    // ------------------------------------------------------------------ 子类实现的无锁操作
+
+    /**
+     * 无锁入队，队列满时返回 false
+     */
+    protected abstract boolean doOffer(E e);
+
+    /**
+     * 无锁出队，队列空时返回 null
+     */
+    protected abstract E doPoll();
+
+    /**
+     * 批量入队 elements[from, to)，返回实际入队数量
+     */
+    protected abstract int doOfferAll(Object[] elements, int from, int to);
+
+    /**
+     * 批量出队最多 maxElements 个到 c，返回实际出队数量
+     */
+    protected abstract int doDrainTo(Collection<? super E> c, int maxElements);
+
+    /**
+     * 弱一致地读取当前队列中的元素
+     */
+    protected abstract void snapshot(List<E> into);
+
+    /**
+     * 删除一个与 o 相等（identity 为 true 时为同一引用）的元素，默认不支持
+     */
+    protected boolean doRemove(Object o, boolean identity) {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    // ------------------------------------------------------------------ Queue
+
+    @Override
+    public boolean offer(E e) {
+        checkNotNull(e);
+        if (doOffer(e)) {
+            signalNotEmpty(false);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public E poll() {
+        E e = doPoll();
+        if (e != null) {
+            signalNotFull(false);
+        }
+        return e;
+    }
+
+    /**
+     * 尽可能多地批量入队，返回实际入队数量；满了之后剩余元素不入队
+     */
+    public int offerAll(Collection<? extends E> elements) {
+        Object[] array = elements.toArray();
+        for (Object element : array) {
+            checkNotNull(element);
+        }
+        int offered = 0;
+        while (offered < array.length) {
+            int n = doOfferAll(array, offered, array.length);
+            if (n == 0) {
+                break;
+            }
+            offered += n;
+        }
+        if (offered > 0) {
+            signalNotEmpty(offered > 1);
+        }
+        return offered;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int drained = 0;
+        while (drained < maxElements) {
+            int n = doDrainTo(c, maxElements - drained);
+            if (n == 0) {
+                break;
+            }
+            drained += n;
+        }
+        if (drained > 0) {
+            signalNotFull(drained > 1);
+        }
+        return drained;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o != null && removeElement(o, false);
+    }
+
+    private boolean removeElement(Object o, boolean identity) {
+        if (doRemove(o, identity)) {
+            signalNotFull(false);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        List<E> elements = new ArrayList<>();
+        snapshot(elements);
+        return new Iterator<E>() {
+
+            private int cursor;
+
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < elements.size();
+            }
+
+            @Override
+            public E next() {
+                if (cursor >= elements.size()) {
+                    throw new NoSuchElementException();
+                }
+                return last = elements.get(cursor++);
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                // 元素可能已被出队，此时什么也不做
+                removeElement(last, true);
+                last = null;
+            }
+        };
+    }
+
+    // ------------------------------------------------------------------ 阻塞操作
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (offer(e)) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        waitLock.lockInterruptibly();
+        try {
+            putWaiters++;
+            VarHandle.fullFence();
+            try {
+                while (!doOffer(e)) {
+                    notFull.await();
+                }
+            } finally {
+                putWaiters--;
+            }
+        } finally {
+            waitLock.unlock();
+        }
+        signalNotEmpty(false);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        checkNotNull(e);
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (offer(e)) {
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        long nanos = unit.toNanos(timeout);
+        waitLock.lockInterruptibly();
+        try {
+            putWaiters++;
+            VarHandle.fullFence();
+            try {
+                while (!doOffer(e)) {
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            } finally {
+                putWaiters--;
+            }
+        } finally {
+            waitLock.unlock();
+        }
+        signalNotEmpty(false);
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            Thread.onSpinWait();
+        }
+        E e;
+        waitLock.lockInterruptibly();
+        try {
+            takeWaiters++;
+            VarHandle.fullFence();
+            try {
+                while ((e = doPoll()) == null) {
+                    notEmpty.await();
+                }
+            } finally {
+                takeWaiters--;
+            }
+        } finally {
+            waitLock.unlock();
+        }
+        signalNotFull(false);
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+            Thread.onSpinWait();
+        }
+        long nanos = unit.toNanos(timeout);
+        E e;
+        waitLock.lockInterruptibly();
+        try {
+            takeWaiters++;
+            VarHandle.fullFence();
+            try {
+                while ((e = doPoll()) == null) {
+                    if (nanos <= 0L) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                takeWaiters--;
+            }
+        } finally {
+            waitLock.unlock();
+        }
+        signalNotFull(false);
+        return e;
+    }
+
+    // ------------------------------------------------------------------ 唤醒
+
+    private void signalNotEmpty(boolean all) {
+        // 与等待方的 登记 -> 全屏障 -> 检查 配对，元素发布后必须先屏障再读等待者数量
+        VarHandle.fullFence();
+        if (takeWaiters > 0) {
+            waitLock.lock();
+            try {
+                if (all) {
+                    notEmpty.signalAll();
+                } else {
+                    notEmpty.signal();
+                }
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+
+    private void signalNotFull(boolean all) {
+        VarHandle.fullFence();
+        if (putWaiters > 0) {
+            waitLock.lock();
+            try {
+                if (all) {
+                    notFull.signalAll();
+                } else {
+                    notFull.signal();
+                }
+            } finally {
+                waitLock.unlock();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ 工具方法
+
+    /**
+     * 先读消费者序号再读生产者序号，两次读取之间消费者序号未变化时结果一致
+     */
+    protected int size(Sequence producerIndex, Sequence consumerIndex) {
+        long after = consumerIndex.get();
+        for (; ; ) {
+            long before = after;
+            long producer = producerIndex.get();
+            after = consumerIndex.get();
+            if (before == after) {
+                long size = producer - after;
+                return (int) Math.max(0, Math.min(capacity, size));
+            }
+        }
+    }
+
+    protected static void checkNotNull(Object e) {
+        if (e == null) {
+            throw new NullPointerException("The null element not allow");
+        }
+    }
+}
@@ -10,6 +10,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 
+/**
+ * 基于链表节点的无界无锁队列，用于演示 CAS 的用法。
+ * <p>
+ * 每个元素分配一个节点，且 size 是所有线程争用的原子计数器；生产环境请使用有界的环形队列
+ * {@link MpmcArrayBlockingQueue}、{@link MpscArrayBlockingQueue}、{@link SpscArrayBlockingQueue}。
+ */
 public class LockFreeQueue<E> {
     //定义头和尾的原子性节点
     private AtomicReference<Node<E>> head, last;
@@ -64,12 +70,11 @@ public class LockFreeQueue<E> {
         } while (valueNode != null && !head.compareAndSet(headNode, valueNode));
 
         E result = valueNode != null ? valueNode.element : null;
-        //valueNode的元素被拿走了，所有将其置为null
+        //valueNode的元素被拿走了，所有将其置为null，队列长度-1；队列为空时没有元素被拿走，长度不变
         if (valueNode != null) {
             valueNode.element = null;
+            size.decrementAndGet();
         }
-        //队列长度-1
-        size.decrementAndGet();
         return result;
     }
 
@@ -0,0 +1,272 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 多生产者多消费者（MPMC）有界无锁环形队列，Dmitry Vyukov 的 bounded MPMC queue。
+ * <p>
+ * 每个槽位有一个序号 sequence，初始为槽位下标：
+ * <ul>
+ * <li>sequence == pos：槽位空闲，生产者 CAS 生产者序号抢到 pos 后写入元素，再把 sequence 置为 pos + 1 发布；</li>
+ * <li>sequence == pos + 1：元素已发布，消费者 CAS 消费者序号抢到 pos 后取出元素，再把 sequence 置为 pos + capacity 归还给下一圈的生产者。</li>
+ * </ul>
+ * 与 {@link LockFreeQueue} 相比：不为每个元素分配节点，没有共享的 size 计数器（size 由两个序号相减得到），
+ * 生产者序号与消费者序号各自独占缓存行。批量操作一次 CAS 抢占多个连续槽位。
+ * <p>
+ * {@link #remove(Object)} 不移动元素：找到元素后把槽位中的元素 CAS 为 {@link #CANCELLED}，出队方抢到槽位后用 getAndSet 取出元素，
+ * 取到 CANCELLED 就归还槽位继续取下一个，元素只会被删除或出队其中一方拿到。取消的槽位在出队前仍计入 size。
+ * <p>
+ * 可以作为 {@link java.util.concurrent.ThreadPoolExecutor} 的工作队列：
+ * {@code ThreadPoolBuilder.fixedPool().setWorkQueue(new MpmcArrayBlockingQueue<>(1024))}
+ *
+ * @param <E> 元素类型
+ */
+public class MpmcArrayBlockingQueue<E> extends AbstractRingBlockingQueue<E> {
+
+    protected static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    protected static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    /**
+     * 被 remove 取消的槽位中的占位元素，出队时跳过
+     */
+    protected static final Object CANCELLED = new Object();
+
+    protected final Object[] buffer;
+
+    protected final long[] sequences;
+
+    protected final Sequence producerIndex = new Sequence(0);
+
+    protected final Sequence consumerIndex = new Sequence(0);
+
+    public MpmcArrayBlockingQueue(int capacity) {
+        super(capacity);
+        this.buffer = new Object[this.capacity];
+        this.sequences = new long[this.capacity];
+        for (int i = 0; i < this.capacity; i++) {
+            SEQUENCE.setRelease(sequences, i, (long) i);
+        }
+    }
+
+    @Override
+    protected boolean doOffer(E e) {
+        long pos = producerIndex.get();
+        for (; ; ) {
+            int index = (int) pos & mask;
+            long seq = (long) SEQUENCE.getAcquire(sequences, index);
+            long dif = seq - pos;
+            if (dif == 0) {
+                if (producerIndex.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = e;
+                    SEQUENCE.setRelease(sequences, index, pos + 1);
+                    return true;
+                }
+                pos = producerIndex.get();
+            } else if (dif < 0) {
+                // 槽位还没被上一圈的消费者归还，队列已满
+                return false;
+            } else {
+                // 其他生产者已抢到 pos
+                pos = producerIndex.get();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E doPoll() {
+        long pos = consumerIndex.get();
+        for (; ; ) {
+            int index = (int) pos & mask;
+            long seq = (long) SEQUENCE.getAcquire(sequences, index);
+            long dif = seq - (pos + 1);
+            if (dif == 0) {
+                if (consumerIndex.compareAndSet(pos, pos + 1)) {
+                    Object e = ELEMENT.getAndSet(buffer, index, null);
+                    SEQUENCE.setRelease(sequences, index, pos + capacity);
+                    if (e != CANCELLED) {
+                        return (E) e;
+                    }
+                    // 元素已被 remove 取消，继续取下一个
+                }
+                pos = consumerIndex.get();
+            } else if (dif < 0) {
+                // 元素还没发布，队列为空
+                return null;
+            } else {
+                pos = consumerIndex.get();
+            }
+        }
+    }
+
+    @Override
+    protected int doOfferAll(Object[] elements, int from, int to) {
+        int limit = Math.min(to - from, capacity);
+        long pos = producerIndex.get();
+        int n;
+        for (; ; ) {
+            n = 0;
+            long seq = pos;
+            while (n < limit) {
+                seq = (long) SEQUENCE.getAcquire(sequences, (int) (pos + n) & mask);
+                if (seq != pos + n) {
+                    break;
+                }
+                n++;
+            }
+            if (n == 0) {
+                if (seq - pos < 0) {
+                    return 0;
+                }
+                pos = producerIndex.get();
+                continue;
+            }
+            if (producerIndex.compareAndSet(pos, pos + n)) {
+                break;
+            }
+            pos = producerIndex.get();
+        }
+        for (int i = 0; i < n; i++) {
+            int index = (int) (pos + i) & mask;
+            buffer[index] = elements[from + i];
+            SEQUENCE.setRelease(sequences, index, pos + i + 1);
+        }
+        return n;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected int doDrainTo(Collection<? super E> c, int maxElements) {
+        int limit = Math.min(maxElements, capacity);
+        for (; ; ) {
+            long pos = consumerIndex.get();
+            int n = 0;
+            long seq = pos + 1;
+            while (n < limit) {
+                seq = (long) SEQUENCE.getAcquire(sequences, (int) (pos + n) & mask);
+                if (seq != pos + n + 1) {
+                    break;
+                }
+                n++;
+            }
+            if (n == 0) {
+                if (seq - (pos + 1) < 0) {
+                    return 0;
+                }
+                continue;
+            }
+            if (!consumerIndex.compareAndSet(pos, pos + n)) {
+                continue;
+            }
+            int drained = 0;
+            for (int i = 0; i < n; i++) {
+                int index = (int) (pos + i) & mask;
+                Object e = ELEMENT.getAndSet(buffer, index, null);
+                SEQUENCE.setRelease(sequences, index, pos + i + capacity);
+                if (e != CANCELLED) {
+                    c.add((E) e);
+                    drained++;
+                }
+            }
+            // 抢到的槽位全部已取消时继续，避免调用方误以为队列已空
+            if (drained > 0) {
+                return drained;
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (; ; ) {
+            long pos = consumerIndex.get();
+            int index = (int) pos & mask;
+            long seq = (long) SEQUENCE.getAcquire(sequences, index);
+            if (seq - (pos + 1) < 0) {
+                return null;
+            }
+            Object e = ELEMENT.getAcquire(buffer, index);
+            if (e == CANCELLED) {
+                skipCancelled();
+                continue;
+            }
+            // 读取期间元素未被取走才有效
+            if (seq == pos + 1 && consumerIndex.get() == pos && e != null) {
+                return (E) e;
+            }
+        }
+    }
+
+    /**
+     * peek 会跳过已取消的槽位，比按序号相减的 size 更准确
+     */
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    protected boolean doRemove(Object o, boolean identity) {
+        long producer = producerIndex.get();
+        for (long pos = consumerIndex.get(); pos < producer; pos++) {
+            int index = (int) pos & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) != pos + 1) {
+                continue;
+            }
+            Object e = ELEMENT.getAcquire(buffer, index);
+            if (e == null || e == CANCELLED || !(identity ? e == o : o.equals(e))) {
+                continue;
+            }
+            // CAS 失败说明元素刚被出队，继续查找后面相等的元素
+            if (ELEMENT.compareAndSet(buffer, index, e, CANCELLED)) {
+                skipCancelled();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 归还队头已取消的槽位，使 size 及时减少、生产者可以复用
+     */
+    protected void skipCancelled() {
+        for (; ; ) {
+            long pos = consumerIndex.get();
+            int index = (int) pos & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) != pos + 1
+                    || ELEMENT.getAcquire(buffer, index) != CANCELLED) {
+                return;
+            }
+            // 取消的元素不会再变化，抢到序号即可归还
+            if (consumerIndex.compareAndSet(pos, pos + 1)) {
+                ELEMENT.setRelease(buffer, index, null);
+                SEQUENCE.setRelease(sequences, index, pos + capacity);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(producerIndex, consumerIndex);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void snapshot(List<E> into) {
+        long consumer = consumerIndex.get();
+        long producer = producerIndex.get();
+        for (long pos = consumer; pos < producer; pos++) {
+            int index = (int) pos & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) == pos + 1) {
+                Object e = ELEMENT.getAcquire(buffer, index);
+                if (e != null && e != CANCELLED) {
+                    into.add((E) e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue;
+
+import java.util.Collection;
+
+/**
+ * 多生产者单消费者（MPSC）有界无锁环形队列。
+ * <p>
+ * 生产者一侧与 {@link MpmcArrayBlockingQueue} 相同；只有一个消费者线程，消费者序号由它独占，出队不需要 CAS，
+ * 用有序写更新即可。适合多个线程向单个事件循环/写线程投递任务的场景。
+ * <p>
+ * poll/take/drainTo/peek 只能在同一个消费者线程中调用，多个线程同时出队的结果是未定义的。
+ * 因此不能作为 ThreadPoolExecutor 的工作队列：即使只有一个工作线程，shutdownNow 也会在调用线程中 drainTo。
+ * {@link #remove(Object)} 可以在任意线程调用，只标记槽位为已取消，由消费者出队时跳过。
+ *
+ * @param <E> 元素类型
+ */
+public class MpscArrayBlockingQueue<E> extends MpmcArrayBlockingQueue<E> {
+
+    public MpscArrayBlockingQueue(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E doPoll() {
+        for (; ; ) {
+            long pos = consumerIndex.getPlain();
+            int index = (int) pos & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) != pos + 1) {
+                return null;
+            }
+            Object e = ELEMENT.getAndSet(buffer, index, null);
+            consumerIndex.setRelease(pos + 1);
+            SEQUENCE.setRelease(sequences, index, pos + capacity);
+            if (e != CANCELLED) {
+                return (E) e;
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected int doDrainTo(Collection<? super E> c, int maxElements) {
+        int limit = Math.min(maxElements, capacity);
+        long pos = consumerIndex.getPlain();
+        int n = 0;
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) (pos + n) & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) != pos + n + 1) {
+                break;
+            }
+            Object e = ELEMENT.getAndSet(buffer, index, null);
+            SEQUENCE.setRelease(sequences, index, pos + n + capacity);
+            n++;
+            if (e != CANCELLED) {
+                c.add((E) e);
+                drained++;
+            }
+        }
+        if (n > 0) {
+            consumerIndex.setRelease(pos + n);
+        }
+        return drained;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (; ; ) {
+            long pos = consumerIndex.getPlain();
+            int index = (int) pos & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) != pos + 1) {
+                return null;
+            }
+            Object e = ELEMENT.getAcquire(buffer, index);
+            if (e != CANCELLED) {
+                return (E) e;
+            }
+            // peek 只在消费者线程调用，可以直接归还已取消的队头
+            ELEMENT.setRelease(buffer, index, null);
+            consumerIndex.setRelease(pos + 1);
+            SEQUENCE.setRelease(sequences, index, pos + capacity);
+        }
+    }
+
+    /**
+     * peek 只能在消费者线程调用，这里按序号相减，已取消但未跳过的槽位也计入
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * remove 可能在任意线程调用，不能修改消费者序号，已取消的槽位留给消费者出队时跳过
+     */
+    @Override
+    protected void skipCancelled() {
+    }
+}
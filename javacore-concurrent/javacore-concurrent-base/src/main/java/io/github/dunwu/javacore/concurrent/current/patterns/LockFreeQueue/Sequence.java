@@ -0,0 +1,79 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 左侧缓存行填充
+ */
+abstract class SequenceLhsPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+/**
+ * 序号值
+ */
+abstract class SequenceValue extends SequenceLhsPadding {
+    protected volatile long value;
+}
+
+/**
+ * 右侧缓存行填充
+ */
+abstract class SequenceRhsPadding extends SequenceValue {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+}
+
+/**
+ * 带缓存行填充的序号，参考 LMAX Disruptor 的 Sequence。
+ * <p>
+ * 父类字段总是排在子类字段之前，前后各 7 个 long 保证 value 独占一条 64 字节缓存行，
+ * 生产者序号和消费者序号分别被不同线程频繁写入，放在同一缓存行会互相失效（伪共享）。
+ */
+public class Sequence extends SequenceRhsPadding {
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public Sequence(long initialValue) {
+        VALUE.setRelease(this, initialValue);
+    }
+
+    public long get() {
+        return value;
+    }
+
+    /**
+     * 只被拥有者线程写入时，拥有者自己读可以不加内存屏障
+     */
+    public long getPlain() {
+        return (long) VALUE.get(this);
+    }
+
+    public void set(long newValue) {
+        value = newValue;
+    }
+
+    /**
+     * 有序写（lazySet），只保证之前的写先于本次写可见，不带 StoreLoad 屏障
+     */
+    public void setRelease(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    public boolean compareAndSet(long expectedValue, long newValue) {
+        return VALUE.compareAndSet(this, expectedValue, newValue);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 单生产者单消费者（SPSC）有界无锁环形队列，FastFlow 风格。
+ * <p>
+ * 不需要槽位序号和 CAS：槽位为 null 表示空闲，非 null 表示已发布，生产者和消费者各自独占自己的序号，
+ * 所有同步都通过对槽位的 release 写 / acquire 读完成。批量入队时只检查最远的槽位是否空闲
+ * （消费者按顺序释放槽位，最远的空闲则中间的都空闲），先写后面的元素，最后发布第一个。
+ * <p>
+ * 入队只能在同一个生产者线程、出队只能在同一个消费者线程中调用。
+ *
+ * @param <E> 元素类型
+ */
+public class SpscArrayBlockingQueue<E> extends AbstractRingBlockingQueue<E> {
+
+    private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final Object[] buffer;
+
+    private final Sequence producerIndex = new Sequence(0);
+
+    private final Sequence consumerIndex = new Sequence(0);
+
+    public SpscArrayBlockingQueue(int capacity) {
+        super(capacity);
+        this.buffer = new Object[this.capacity];
+    }
+
+    @Override
+    protected boolean doOffer(E e) {
+        long pos = producerIndex.getPlain();
+        int index = (int) pos & mask;
+        if (ELEMENT.getAcquire(buffer, index) != null) {
+            return false;
+        }
+        ELEMENT.setRelease(buffer, index, e);
+        producerIndex.setRelease(pos + 1);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected E doPoll() {
+        long pos = consumerIndex.getPlain();
+        int index = (int) pos & mask;
+        E e = (E) ELEMENT.getAcquire(buffer, index);
+        if (e == null) {
+            return null;
+        }
+        ELEMENT.setRelease(buffer, index, null);
+        consumerIndex.setRelease(pos + 1);
+        return e;
+    }
+
+    @Override
+    protected int doOfferAll(Object[] elements, int from, int to) {
+        long pos = producerIndex.getPlain();
+        int n = Math.min(to - from, capacity);
+        // 最远的槽位不空闲时减半重试
+        while (n > 0 && ELEMENT.getAcquire(buffer, (int) (pos + n - 1) & mask) != null) {
+            n >>= 1;
+        }
+        if (n == 0) {
+            return 0;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            buffer[(int) (pos + i) & mask] = elements[from + i];
+        }
+        ELEMENT.setRelease(buffer, (int) pos & mask, elements[from]);
+        producerIndex.setRelease(pos + n);
+        return n;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected int doDrainTo(Collection<? super E> c, int maxElements) {
+        long pos = consumerIndex.getPlain();
+        int limit = Math.min(maxElements, capacity);
+        int n = 0;
+        while (n < limit) {
+            int index = (int) (pos + n) & mask;
+            E e = (E) ELEMENT.getAcquire(buffer, index);
+            if (e == null) {
+                break;
+            }
+            ELEMENT.setRelease(buffer, index, null);
+            c.add(e);
+            n++;
+        }
+        if (n > 0) {
+            consumerIndex.setRelease(pos + n);
+        }
+        return n;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return (E) ELEMENT.getAcquire(buffer, (int) consumerIndex.getPlain() & mask);
+    }
+
+    @Override
+    public int size() {
+        return size(producerIndex, consumerIndex);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void snapshot(List<E> into) {
+        long consumer = consumerIndex.get();
+        long producer = producerIndex.get();
+        for (long pos = consumer; pos < producer; pos++) {
+            E e = (E) ELEMENT.getAcquire(buffer, (int) pos & mask);
+            if (e != null) {
+                into.add(e);
+            }
+        }
+    }
+}
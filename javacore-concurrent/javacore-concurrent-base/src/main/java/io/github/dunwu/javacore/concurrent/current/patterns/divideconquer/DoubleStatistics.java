@@ -0,0 +1,111 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.divideconquer;
+
+/**
+ * double 的个数、和、最小值、最大值，实现了 {@link DoubleAccumulation}。
+ * <p>
+ * 求和使用 Kahan 补偿求和，合并时同时合并补偿项：数亿个数累加时，朴素求和的舍入误差会随元素个数线性增长，
+ * 且并行与串行的结果不同；补偿求和的误差与元素个数基本无关。
+ */
+public class DoubleStatistics implements DoubleAccumulation<DoubleStatistics> {
+
+    private long count;
+
+    private double sum;
+
+    /**
+     * 低位的补偿项，真实的和约为 sum - compensation
+     */
+    private double compensation;
+
+    /**
+     * 朴素求和，只用于判断 NaN 是否由无穷大相减产生
+     */
+    private double simpleSum;
+
+    private double min = Double.POSITIVE_INFINITY;
+
+    private double max = Double.NEGATIVE_INFINITY;
+
+    @Override
+    public void accept(double value) {
+        count++;
+        simpleSum += value;
+        sumWithCompensation(value);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    @Override
+    public void acceptRange(double[] values, int from, int to) {
+        double s = sum;
+        double c = compensation;
+        double simple = simpleSum;
+        double mn = min;
+        double mx = max;
+        for (int i = from; i < to; i++) {
+            double v = values[i];
+            simple += v;
+            double y = v - c;
+            double t = s + y;
+            c = (t - s) - y;
+            s = t;
+            mn = Math.min(mn, v);
+            mx = Math.max(mx, v);
+        }
+        sum = s;
+        compensation = c;
+        simpleSum = simple;
+        min = mn;
+        max = mx;
+        count += to - from;
+    }
+
+    @Override
+    public DoubleStatistics merge(DoubleStatistics other) {
+        count += other.count;
+        simpleSum += other.simpleSum;
+        sumWithCompensation(other.sum);
+        sumWithCompensation(-other.compensation);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    private void sumWithCompensation(double value) {
+        double y = value - compensation;
+        double t = sum + y;
+        compensation = (t - sum) - y;
+        sum = t;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        double tmp = sum - compensation;
+        if (Double.isNaN(tmp) && Double.isInfinite(simpleSum)) {
+            // 补偿项在有无穷大参与时会变成 NaN，此时朴素求和的结果才是正确的
+            return simpleSum;
+        }
+        return tmp;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return count > 0 ? getSum() / count : 0.0d;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleStatistics{count=" + count + ", sum=" + getSum() + ", min=" + min + ", max=" + max
+                + ", average=" + getAverage() + '}';
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.divideconquer;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 可合并的 long 累加器，{@link ParallelAggregator} 为每个叶子任务创建一个实例，各自累加后两两合并。
+ * <p>
+ * 同时是一个 {@link LongConsumer}，可以直接传给 {@code Spliterator.OfLong#forEachRemaining}。
+ * 实现不需要线程安全：一个实例只会被一个任务使用，合并发生在 join 之后。
+ *
+ * @param <A> 实现类自身
+ */
+public interface LongAccumulation<A extends LongAccumulation<A>> extends LongConsumer {
+
+    /**
+     * 累加 values[from, to)。实现类应覆盖此方法，用局部变量写一个紧凑的循环，避免逐个元素的接口调用
+     */
+    default void acceptRange(long[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            accept(values[i]);
+        }
+    }
+
+    /**
+     * 把 other 合并进当前累加器并返回当前累加器
+     */
+    A merge(A other);
+}
@@ -0,0 +1,83 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.divideconquer;
+
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.HistogramBuckets;
+
+import java.util.Arrays;
+
+/**
+ * 固定桶的 long 直方图，实现了 {@link LongAccumulation}。
+ * <p>
+ * 第 i 个桶统计 (bounds[i-1], bounds[i]] 范围内的值，最后一个桶统计大于最大边界的值。
+ * 同一次聚合的所有累加器使用相同的边界，合并时逐桶相加。
+ * 桶定位和分位数估计与 {@link io.github.dunwu.javacore.concurrent.current.features.jsr166e.StripedHistogram}
+ * 共用 {@link HistogramBuckets}。
+ */
+public class LongHistogram implements LongAccumulation<LongHistogram> {
+
+    private final long[] bounds;
+
+    private final long[] counts;
+
+    /**
+     * @param bounds 严格递增的桶上边界（包含），实际桶数为 bounds.length + 1
+     */
+    public LongHistogram(long... bounds) {
+        this.bounds = HistogramBuckets.checkBounds(bounds);
+        this.counts = new long[bounds.length + 1];
+    }
+
+    @Override
+    public void accept(long value) {
+        counts[HistogramBuckets.bucketIndex(bounds, value)]++;
+    }
+
+    @Override
+    public void acceptRange(long[] values, int from, int to) {
+        long[] b = bounds;
+        long[] c = counts;
+        for (int i = from; i < to; i++) {
+            c[HistogramBuckets.bucketIndex(b, values[i])]++;
+        }
+    }
+
+    @Override
+    public LongHistogram merge(LongHistogram other) {
+        if (other.counts.length != counts.length) {
+            throw new IllegalArgumentException("histograms have different buckets");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        return this;
+    }
+
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * 分位数的估计值：返回所在桶的上边界，落在溢出桶时返回 {@link Long#MAX_VALUE}
+     *
+     * @param quantile 0 ~ 1 之间，例如 0.99
+     */
+    public long getValueAtQuantile(double quantile) {
+        return HistogramBuckets.valueAtQuantile(bounds, counts, getTotalCount(), Long.MAX_VALUE, quantile);
+    }
+
+    @Override
+    public String toString() {
+        return "LongHistogram{bounds=" + Arrays.toString(bounds) + ", counts=" + Arrays.toString(counts) + '}';
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.divideconquer;
+
+/**
+ * long 的个数、和、最小值、最大值，与 {@link java.util.LongSummaryStatistics} 相同但实现了 {@link LongAccumulation}。
+ * 和溢出时按 long 回绕，不做检查
+ */
+public class LongStatistics implements LongAccumulation<LongStatistics> {
+
+    private long count;
+
+    private long sum;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max = Long.MIN_VALUE;
+
+    @Override
+    public void accept(long value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    @Override
+    public void acceptRange(long[] values, int from, int to) {
+        long s = sum;
+        long mn = min;
+        long mx = max;
+        for (int i = from; i < to; i++) {
+            long v = values[i];
+            s += v;
+            mn = Math.min(mn, v);
+            mx = Math.max(mx, v);
+        }
+        sum = s;
+        min = mn;
+        max = mx;
+        count += to - from;
+    }
+
+    @Override
+    public LongStatistics merge(LongStatistics other) {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * 没有元素时返回 Long.MAX_VALUE
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * 没有元素时返回 Long.MIN_VALUE
+     */
+    public long getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return count > 0 ? (double) sum / count : 0.0d;
+    }
+
+    @Override
+    public String toString() {
+        return "LongStatistics{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max
+                + ", average=" + getAverage() + '}';
+    }
+}
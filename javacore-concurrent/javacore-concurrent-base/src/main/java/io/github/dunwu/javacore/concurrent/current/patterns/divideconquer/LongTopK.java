@@ -0,0 +1,112 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.divideconquer;
+
+import java.util.Arrays;
+
+/**
+ * 保留最大的 k 个 long，实现了 {@link LongAccumulation}。
+ * <p>
+ * 内部是容量为 k 的小顶堆，堆顶是当前第 k 大的值：新值不大于堆顶时直接丢弃，只比较一次，
+ * 大量数据中取 top-k 时绝大多数元素走的都是这条路径。合并时把另一个堆中的元素逐个加入。
+ */
+public class LongTopK implements LongAccumulation<LongTopK> {
+
+    private final long[] heap;
+
+    private int size;
+
+    public LongTopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.heap = new long[k];
+    }
+
+    @Override
+    public void accept(long value) {
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        } else if (value > heap[0]) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    @Override
+    public void acceptRange(long[] values, int from, int to) {
+        int i = from;
+        while (i < to && size < heap.length) {
+            accept(values[i++]);
+        }
+        long[] h = heap;
+        for (; i < to; i++) {
+            long v = values[i];
+            if (v > h[0]) {
+                h[0] = v;
+                siftDown(0);
+            }
+        }
+    }
+
+    @Override
+    public LongTopK merge(LongTopK other) {
+        for (int i = 0; i < other.size; i++) {
+            accept(other.heap[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 从大到小排列的结果，元素个数为 min(k, 累加的元素个数)
+     */
+    public long[] toSortedArray() {
+        long[] result = Arrays.copyOf(heap, size);
+        Arrays.sort(result);
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            long tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int i) {
+        long v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= v) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = v;
+    }
+
+    private void siftDown(int i) {
+        long v = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right] < heap[child]) {
+                child = right;
+            }
+            if (v <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = v;
+    }
+
+    @Override
+    public String toString() {
+        return "LongTopK" + Arrays.toString(toSortedArray());
+    }
+}
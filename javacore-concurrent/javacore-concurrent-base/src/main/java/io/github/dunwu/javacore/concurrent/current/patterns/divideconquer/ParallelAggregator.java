@@ -0,0 +1,313 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.divideconquer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 基于 fork/join 工作窃取的并行聚合，{@link ParallelDivideAndConquer.ParallelSum} 的通用版本。
+ * <p>
+ * 1. 直接在原始类型数组（long[] / double[]）或 {@link Spliterator} 上切分，不装箱，不创建 subList 视图；
+ * <p>
+ * 2. 每次切分只 fork 一半，另一半在当前线程中继续计算（fork-one / compute-other），
+ * 当前线程不会在 join 上空等，fork 出去的一半如果还没被其他线程窃取，join 时会被当前线程直接执行；
+ * <p>
+ * 3. 切分阈值由数据量和线程池并行度决定：目标是每个工作线程约 {@link #LEAF_TASKS_PER_THREAD} 个叶子任务，
+ * 足以让窃取平衡负载，又不至于让任务调度的开销超过计算本身；同时不小于 {@link #MIN_LEAF_SIZE}。
+ * 并行度为 1 或数据量不超过阈值时直接在调用线程中串行计算；
+ * <p>
+ * 4. 累加器是可合并的（{@link LongAccumulation} / {@link DoubleAccumulation}），每个叶子任务一个实例，无共享状态，
+ * 自带 {@link LongStatistics}、{@link DoubleStatistics}、{@link LongHistogram}、{@link LongTopK}。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * LongStatistics stats = ParallelAggregator.common().aggregate(values, LongStatistics::new);
+ * long[] top = ParallelAggregator.common().aggregate(values, () -&gt; new LongTopK(100)).toSortedArray();
+ * </pre>
+ */
+public class ParallelAggregator {
+
+    /**
+     * 叶子任务的最小元素个数，再小的话任务调度开销会超过求和这类简单计算本身
+     */
+    static final int MIN_LEAF_SIZE = 1 << 13;
+
+    /**
+     * 每个工作线程的目标叶子任务数
+     */
+    static final int LEAF_TASKS_PER_THREAD = 8;
+
+    private static final ParallelAggregator COMMON = new ParallelAggregator(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+
+    public ParallelAggregator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 使用 {@link ForkJoinPool#commonPool()} 的实例
+     */
+    public static ParallelAggregator common() {
+        return COMMON;
+    }
+
+    /**
+     * 按数据量和并行度计算切分阈值，数据量未知（{@code Long.MAX_VALUE}）时取最小值
+     */
+    long threshold(long size) {
+        if (size == Long.MAX_VALUE) {
+            return MIN_LEAF_SIZE;
+        }
+        long leaves = (long) pool.getParallelism() * LEAF_TASKS_PER_THREAD;
+        return Math.max(MIN_LEAF_SIZE, size / leaves);
+    }
+
+    // ------------------------------------------------------------------ 数组
+
+    public <A extends LongAccumulation<A>> A aggregate(long[] values, Supplier<A> factory) {
+        return aggregate(values, 0, values.length, factory);
+    }
+
+    /**
+     * 聚合 values[from, to)
+     */
+    public <A extends LongAccumulation<A>> A aggregate(long[] values, int from, int to, Supplier<A> factory) {
+        checkRange(values.length, from, to);
+        int threshold = (int) threshold(to - from);
+        if (pool.getParallelism() <= 1 || to - from <= threshold) {
+            A acc = factory.get();
+            acc.acceptRange(values, from, to);
+            return acc;
+        }
+        return pool.invoke(new LongArrayTask<>(values, from, to, threshold, factory));
+    }
+
+    public <A extends DoubleAccumulation<A>> A aggregate(double[] values, Supplier<A> factory) {
+        return aggregate(values, 0, values.length, factory);
+    }
+
+    /**
+     * 聚合 values[from, to)
+     */
+    public <A extends DoubleAccumulation<A>> A aggregate(double[] values, int from, int to, Supplier<A> factory) {
+        checkRange(values.length, from, to);
+        int threshold = (int) threshold(to - from);
+        if (pool.getParallelism() <= 1 || to - from <= threshold) {
+            A acc = factory.get();
+            acc.acceptRange(values, from, to);
+            return acc;
+        }
+        return pool.invoke(new DoubleArrayTask<>(values, from, to, threshold, factory));
+    }
+
+    // ------------------------------------------------------------------ Spliterator
+
+    /**
+     * 聚合 long 的 Spliterator，例如 {@code LongStream.range(0, n).spliterator()}。
+     * 切分效果取决于 Spliterator 的 trySplit 实现，数组、ArrayList、range 都能均匀切分
+     */
+    public <A extends LongAccumulation<A>> A aggregate(Spliterator.OfLong spliterator, Supplier<A> factory) {
+        return aggregate(spliterator, factory, LongAccumulation::merge);
+    }
+
+    public <A extends DoubleAccumulation<A>> A aggregate(Spliterator.OfDouble spliterator, Supplier<A> factory) {
+        return aggregate(spliterator, factory, DoubleAccumulation::merge);
+    }
+
+    /**
+     * 通用版本：任意元素类型的 Spliterator，累加与合并由调用方提供，
+     * 语义与 {@code Stream#collect(Supplier, BiConsumer, BiConsumer)} 相同
+     */
+    public <T, A> A aggregate(Spliterator<T> spliterator, Supplier<A> factory,
+                              BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner) {
+        return aggregate(spliterator, () -> {
+            A acc = factory.get();
+            return new Leaf<>(acc, accumulator);
+        }, (left, right) -> {
+            left.acc = combiner.apply(left.acc, right.acc);
+            return left;
+        }).acc;
+    }
+
+    /**
+     * Spliterator 版本的公共实现：A 本身就是该 Spliterator 接受的 Consumer
+     */
+    private <S extends Spliterator<?>, A> A aggregate(S spliterator, Supplier<A> factory, BinaryOperator<A> combiner) {
+        long threshold = threshold(spliterator.estimateSize());
+        if (pool.getParallelism() <= 1 || spliterator.estimateSize() <= threshold) {
+            A acc = factory.get();
+            forEachRemaining(spliterator, acc);
+            return acc;
+        }
+        return pool.invoke(new SpliteratorTask<>(spliterator, threshold, factory, combiner));
+    }
+
+    /**
+     * 原始类型的 Spliterator 走对应的原始类型 Consumer 重载，避免装箱
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void forEachRemaining(Spliterator<?> spliterator, Object consumer) {
+        if (spliterator instanceof Spliterator.OfLong && consumer instanceof LongConsumer) {
+            ((Spliterator.OfLong) spliterator).forEachRemaining((LongConsumer) consumer);
+        } else if (spliterator instanceof Spliterator.OfDouble && consumer instanceof DoubleConsumer) {
+            ((Spliterator.OfDouble) spliterator).forEachRemaining((DoubleConsumer) consumer);
+        } else {
+            ((Spliterator) spliterator).forEachRemaining((Consumer) consumer);
+        }
+    }
+
+    private static void checkRange(int length, int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + length);
+        }
+    }
+
+    // ------------------------------------------------------------------ 任务
+
+    static final class LongArrayTask<A extends LongAccumulation<A>> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] values;
+
+        private final int from;
+
+        private final int to;
+
+        private final int threshold;
+
+        private final Supplier<A> factory;
+
+        LongArrayTask(long[] values, int from, int to, int threshold, Supplier<A> factory) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.factory = factory;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= threshold) {
+                A acc = factory.get();
+                acc.acceptRange(values, from, to);
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            LongArrayTask<A> right = new LongArrayTask<>(values, mid, to, threshold, factory);
+            right.fork();
+            A left = new LongArrayTask<>(values, from, mid, threshold, factory).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    static final class DoubleArrayTask<A extends DoubleAccumulation<A>> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+
+        private final int from;
+
+        private final int to;
+
+        private final int threshold;
+
+        private final Supplier<A> factory;
+
+        DoubleArrayTask(double[] values, int from, int to, int threshold, Supplier<A> factory) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.factory = factory;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= threshold) {
+                A acc = factory.get();
+                acc.acceptRange(values, from, to);
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            DoubleArrayTask<A> right = new DoubleArrayTask<>(values, mid, to, threshold, factory);
+            right.fork();
+            A left = new DoubleArrayTask<>(values, from, mid, threshold, factory).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    /**
+     * trySplit 切出的前缀 fork 出去，剩余部分在当前线程循环继续切分（不递归，按批切分的 Spliterator 也不会栈溢出）；
+     * 合并时前缀在左，保持遇到顺序
+     */
+    static final class SpliteratorTask<S extends Spliterator<?>, A> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final S spliterator;
+
+        private final long threshold;
+
+        private final Supplier<A> factory;
+
+        private final BinaryOperator<A> combiner;
+
+        SpliteratorTask(S spliterator, long threshold, Supplier<A> factory, BinaryOperator<A> combiner) {
+            this.spliterator = spliterator;
+            this.threshold = threshold;
+            this.factory = factory;
+            this.combiner = combiner;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected A compute() {
+            Deque<SpliteratorTask<S, A>> forked = new ArrayDeque<>();
+            S prefix;
+            while (spliterator.estimateSize() > threshold && (prefix = (S) spliterator.trySplit()) != null) {
+                SpliteratorTask<S, A> task = new SpliteratorTask<>(prefix, threshold, factory, combiner);
+                task.fork();
+                forked.push(task);
+            }
+            A acc = factory.get();
+            forEachRemaining(spliterator, acc);
+            // 后 fork 的先 join：它离当前部分最近，也最可能还在本线程的队列顶部没被窃取
+            SpliteratorTask<S, A> task;
+            while ((task = forked.poll()) != null) {
+                acc = combiner.apply(task.join(), acc);
+            }
+            return acc;
+        }
+    }
+
+    /**
+     * 通用版本的叶子累加器，把 BiConsumer 适配为 Consumer
+     */
+    private static final class Leaf<T, A> implements Consumer<T> {
+
+        A acc;
+
+        private final BiConsumer<A, ? super T> accumulator;
+
+        Leaf(A acc, BiConsumer<A, ? super T> accumulator) {
+            this.acc = acc;
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public void accept(T t) {
+            accumulator.accept(acc, t);
+        }
+    }
+}
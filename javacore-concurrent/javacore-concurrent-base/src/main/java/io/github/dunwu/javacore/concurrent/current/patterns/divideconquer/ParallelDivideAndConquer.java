@@ -13,6 +13,9 @@ import java.util.stream.LongStream;
  * 描述:
  * 平行分治 fork/join
  *
+ * 这里用 BigInteger 列表演示 fork/join 的基本写法；原始类型数组、Spliterator 上的通用并行聚合
+ * （求和、最值、直方图、top-k）见 {@link ParallelAggregator}，性能对比见 JMH 基准 ParallelAggregatorBenchmark
+ *
  * @author zed
  * @since 2019-07-01 11:59 AM
  */
@@ -41,10 +44,10 @@ public class ParallelDivideAndConquer {
             } else {
                 ParallelSum x = new ParallelSum(bigIntegerList.subList(0, size / 2));
                 ParallelSum y = new ParallelSum(bigIntegerList.subList(size / 2, size));
+                // 只 fork 一半，另一半由当前线程直接计算，而不是 fork 两个子任务后在 join 上空等
                 x.fork();
-                y.fork();
+                BigInteger yResult = y.compute();
                 BigInteger xResult = x.join();
-                BigInteger yResult = y.join();
                 return yResult.add(xResult);
             }
         }
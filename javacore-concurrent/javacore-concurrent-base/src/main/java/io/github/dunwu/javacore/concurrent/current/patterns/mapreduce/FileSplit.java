@@ -0,0 +1,117 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.mapreduce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 输入文件的一个分片 [start, end)，按字节切分，记录（以 '\n' 分隔的行）边界在读取时对齐，与 Hadoop 的 LineRecordReader 相同：
+ * <p>
+ * 1. start 不为 0 的分片从 start - 1 开始读并跳过第一个换行符之前的内容，那部分属于上一个分片；
+ * <p>
+ * 2. 只读取起始位置小于 end 的记录，最后一条记录可以越过 end 读到下一个换行符，最多越过 {@link #MAX_RECORD_LENGTH} 字节。
+ * <p>
+ * 读取时把 [start - 1, end + MAX_RECORD_LENGTH) 映射到内存，记录直接以映射区的视图交给 {@link Mapper}，不复制到堆上。
+ */
+public final class FileSplit {
+
+    /**
+     * 单条记录的最大长度，超过时抛出 {@link IOException}
+     */
+    public static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private final Path path;
+
+    private final long start;
+
+    private final long end;
+
+    FileSplit(Path path, long start, long end) {
+        this.path = path;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * 把文件按 splitSize 切分，空文件不产生分片
+     */
+    public static List<FileSplit> split(List<Path> files, long splitSize) throws IOException {
+        if (splitSize <= 0 || splitSize > Integer.MAX_VALUE - MAX_RECORD_LENGTH - 1) {
+            throw new IllegalArgumentException("splitSize out of range: " + splitSize);
+        }
+        List<FileSplit> splits = new ArrayList<>();
+        for (Path file : files) {
+            long size = Files.size(file);
+            for (long offset = 0; offset < size; offset += splitSize) {
+                splits.add(new FileSplit(file, offset, Math.min(size, offset + splitSize)));
+            }
+        }
+        return splits;
+    }
+
+    /**
+     * 依次把分片中的每条记录交给 action，记录不包含结尾的 '\n' 和 '\r'。同一个 ByteBuffer 实例会被重复使用
+     */
+    public void forEachRecord(Consumer<ByteBuffer> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long mapStart = start == 0 ? 0 : start - 1;
+            long mapEnd = Math.min(fileSize, end + MAX_RECORD_LENGTH);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+            ByteBuffer record = mapped.duplicate();
+            int limit = (int) (mapEnd - mapStart);
+            int splitEnd = (int) (end - mapStart);
+            int pos = 0;
+            if (start != 0) {
+                while (pos < limit && mapped.get(pos) != '\n') {
+                    pos++;
+                }
+                pos++;
+            }
+            while (pos < splitEnd) {
+                int eol = pos;
+                while (eol < limit && mapped.get(eol) != '\n') {
+                    eol++;
+                }
+                if (eol == limit && mapEnd < fileSize) {
+                    throw new IOException("Record at " + path + ":" + (mapStart + pos) + " is longer than "
+                        + MAX_RECORD_LENGTH + " bytes");
+                }
+                int recordEnd = eol > pos && mapped.get(eol - 1) == '\r' ? eol - 1 : eol;
+                record.limit(recordEnd).position(pos);
+                action.accept(record);
+                // 复位，防止 action 改动了 limit 之后下一次 limit(recordEnd) 小于 position
+                record.clear();
+                pos = eol + 1;
+            }
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long length() {
+        return end - start;
+    }
+
+    @Override
+    public String toString() {
+        return path + "[" + start + ", " + end + ")";
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.mapreduce;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * key 的序列化方式，溢写到磁盘时使用
+ *
+ * @param <K> key 的类型
+ */
+public interface KeyCodec<K> {
+
+    /**
+     * UTF-8 字符串，长度不限（{@link DataOutput#writeUTF} 限制为 64KB）
+     */
+    KeyCodec<String> UTF8 = new KeyCodec<String>() {
+
+        @Override
+        public void write(DataOutput out, String key) throws IOException {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    KeyCodec<Long> LONG = new KeyCodec<Long>() {
+
+        @Override
+        public void write(DataOutput out, Long key) throws IOException {
+            out.writeLong(key);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    void write(DataOutput out, K key) throws IOException;
+
+    K read(DataInput in) throws IOException;
+}
@@ -0,0 +1,441 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.mapreduce;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * 进程内的 MapReduce，基于 {@link ForkJoinPool}，输出为 key → long，适合词频、计数、求和、最大值这类聚合。
+ * <p>
+ * 1. 输入：文件按字节切分为 {@link FileSplit}，记录边界在读取时对齐，分片以内存映射的方式读取；
+ * <p>
+ * 2. map：每个分片一个任务，map 输出立即在任务本地按 reducer 合并（combiner），合并表按 key 的哈希值分为
+ * {@link #partitions} 个分区，使用开放寻址、value 为 long 的 {@link ObjectLongMap}，不装箱；
+ * <p>
+ * 3. 溢写：一个 map 任务本地的 key 数超过 {@link #maxKeysInMemory} 时，把各分区写到一个溢写文件中并清空。
+ * map 任务结束后合并表要保留到 reduce，所有已结束任务保留的 key 数合计也不超过这个上限，超出时结束的任务把剩余的合并表溢写。
+ * 这个上限只针对 map/combine 阶段：该阶段内存中的 key 数最多为 (并行度 + 1) * maxKeysInMemory，与输入大小、分片数无关；
+ * <p>
+ * 4. reduce：每个分区一个任务，把所有 map 任务在该分区的合并表和溢写文件合并到一张表中。分区之间的 key 不相交，
+ * 各分区并行合并，不像两两合并那样最后几次合并只能由一个线程完成。
+ * 合并结果就是输出，所有分区的合并表合计持有全部不同的 key，不受 maxKeysInMemory 限制。
+ * <p>
+ * reducer 必须满足结合律和交换律（如 {@code Long::sum}、{@code Math::max}），因为合并顺序不确定。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * MapReduceResult&lt;String&gt; counts = new MapReduceEngine(ForkJoinPool.commonPool())
+ *     .run(files, MapReduceEngine.wordCountMapper(), Long::sum, KeyCodec.UTF8);
+ * </pre>
+ */
+public class MapReduceEngine {
+
+    /**
+     * 默认分片大小，足够摊薄任务调度和 mmap 的开销
+     */
+    static final long DEFAULT_SPLIT_SIZE = 64L << 20;
+
+    /**
+     * 分片的最小大小，输入很小时也不会切得太碎
+     */
+    static final long MIN_SPLIT_SIZE = 1L << 20;
+
+    /**
+     * 每个工作线程的目标分片数，与 ParallelAggregator 的叶子任务数同理
+     */
+    static final int SPLITS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    private long splitSize = DEFAULT_SPLIT_SIZE;
+
+    private int partitions;
+
+    private int maxKeysInMemory = 1 << 20;
+
+    private Path spillDirectory;
+
+    public MapReduceEngine(ForkJoinPool pool) {
+        this.pool = pool;
+        // 分区数取并行度的 2 倍并向上取整为 2 的幂，分区之间的大小差异可以由工作窃取平衡
+        this.partitions = Integer.highestOneBit(Math.max(1, pool.getParallelism() * 2 - 1)) << 1;
+    }
+
+    /**
+     * 分片大小的上限，实际大小还会按输入总量和并行度调小，保证每个线程有 {@link #SPLITS_PER_THREAD} 个分片
+     */
+    public MapReduceEngine splitSize(long splitSize) {
+        this.splitSize = splitSize;
+        return this;
+    }
+
+    /**
+     * reduce 分区数，向上取整为 2 的幂
+     */
+    public MapReduceEngine partitions(int partitions) {
+        if (partitions <= 0 || partitions > (1 << 16)) {
+            throw new IllegalArgumentException("partitions out of range: " + partitions);
+        }
+        this.partitions = partitions == 1 ? 1 : Integer.highestOneBit(partitions - 1) << 1;
+        return this;
+    }
+
+    /**
+     * map/combine 阶段内存中 key 数的上限：运行中的 map 任务各自不超过它，已结束的 map 任务留给 reduce 的合计也不超过它，
+     * 超过时溢写到磁盘。reduce 阶段的合并结果持有全部不同的 key，不受这个上限限制
+     */
+    public MapReduceEngine maxKeysInMemory(int maxKeysInMemory) {
+        if (maxKeysInMemory <= 0) {
+            throw new IllegalArgumentException("maxKeysInMemory must be positive: " + maxKeysInMemory);
+        }
+        this.maxKeysInMemory = maxKeysInMemory;
+        return this;
+    }
+
+    /**
+     * 溢写文件的目录，默认为系统临时目录
+     */
+    public MapReduceEngine spillDirectory(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+        return this;
+    }
+
+    public <K> MapReduceResult<K> run(List<Path> inputs, Mapper<K> mapper, LongBinaryOperator reducer,
+                                      KeyCodec<K> codec) throws IOException {
+        long total = 0;
+        for (Path input : inputs) {
+            total += Files.size(input);
+        }
+        long leaves = (long) pool.getParallelism() * SPLITS_PER_THREAD;
+        long size = Math.min(splitSize, Math.max(MIN_SPLIT_SIZE, (total + leaves - 1) / leaves));
+        List<FileSplit> splits = FileSplit.split(inputs, size);
+
+        Job<K> job = new Job<>(this, mapper, reducer, codec);
+        try {
+            List<MapTask<K>> mapTasks = new ArrayList<>(splits.size());
+            for (FileSplit split : splits) {
+                mapTasks.add(new MapTask<>(job, split));
+            }
+            invokeAll(mapTasks);
+
+            List<ReduceTask<K>> reduceTasks = new ArrayList<>(partitions);
+            for (int p = 0; p < partitions; p++) {
+                reduceTasks.add(new ReduceTask<>(job, mapTasks, p));
+            }
+            invokeAll(reduceTasks);
+
+            @SuppressWarnings("unchecked")
+            ObjectLongMap<K>[] result = new ObjectLongMap[partitions];
+            for (int p = 0; p < partitions; p++) {
+                result[p] = reduceTasks.get(p).result;
+            }
+            return new MapReduceResult<>(result);
+        } finally {
+            job.deleteSpills();
+        }
+    }
+
+    private void invokeAll(List<? extends ForkJoinTask<?>> tasks) throws IOException {
+        try {
+            pool.invoke(new RecursiveAction() {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 按空白字符切分单词的 Mapper，空白字符与正则 {@code \s} 相同，单词按 UTF-8 解码
+     */
+    public static Mapper<String> wordCountMapper() {
+        return (record, emitter) -> {
+            int limit = record.limit();
+            int i = record.position();
+            byte[] word = new byte[64];
+            while (i < limit) {
+                while (i < limit && isSpace(record.get(i))) {
+                    i++;
+                }
+                int begin = i;
+                while (i < limit && !isSpace(record.get(i))) {
+                    i++;
+                }
+                int length = i - begin;
+                if (length > 0) {
+                    if (length > word.length) {
+                        word = new byte[Math.max(length, word.length * 2)];
+                    }
+                    for (int j = 0; j < length; j++) {
+                        word[j] = record.get(begin + j);
+                    }
+                    emitter.emit(new String(word, 0, length, StandardCharsets.UTF_8), 1L);
+                }
+            }
+        };
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    // ------------------------------------------------------------------ 任务
+
+    /**
+     * 一次 run 的共享状态
+     */
+    private static final class Job<K> {
+
+        final Mapper<K> mapper;
+
+        final LongBinaryOperator reducer;
+
+        final KeyCodec<K> codec;
+
+        final int partitions;
+
+        final int partitionShift;
+
+        final int maxKeysInMemory;
+
+        final Path spillDirectory;
+
+        final List<Path> spills = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * 已结束的 map 任务留在内存中等待 reduce 的 key 数
+         */
+        final AtomicLong retainedKeys = new AtomicLong();
+
+        Job(MapReduceEngine engine, Mapper<K> mapper, LongBinaryOperator reducer, KeyCodec<K> codec) {
+            this.mapper = mapper;
+            this.reducer = reducer;
+            this.codec = codec;
+            this.partitions = engine.partitions;
+            this.partitionShift = 32 - Integer.numberOfTrailingZeros(engine.partitions);
+            this.maxKeysInMemory = engine.maxKeysInMemory;
+            this.spillDirectory = engine.spillDirectory;
+        }
+
+        /**
+         * 分区取哈希值的高位，哈希表的槽位取低位，两者互不相关
+         */
+        int partitionOf(int hash) {
+            return partitions == 1 ? 0 : hash >>> partitionShift;
+        }
+
+        /**
+         * 结束的 map 任务申请把 keys 个 key 留在内存中，超出总上限时返回 false，由任务溢写
+         */
+        boolean retain(int keys) {
+            while (true) {
+                long current = retainedKeys.get();
+                if (current + keys > maxKeysInMemory) {
+                    return false;
+                }
+                if (retainedKeys.compareAndSet(current, current + keys)) {
+                    return true;
+                }
+            }
+        }
+
+        Path newSpillFile() throws IOException {
+            Path file = spillDirectory == null ? Files.createTempFile("mapreduce-", ".spill")
+                : Files.createTempFile(spillDirectory, "mapreduce-", ".spill");
+            spills.add(file);
+            return file;
+        }
+
+        void deleteSpills() {
+            synchronized (spills) {
+                for (Path file : spills) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        // 临时文件删除失败不影响结果
+                    }
+                }
+                spills.clear();
+            }
+        }
+    }
+
+    /**
+     * 溢写文件：各分区依次写入，分区 p 从 offsets[p] 开始，共 counts[p] 个 (key, value)
+     */
+    private static final class Spill {
+
+        final Path file;
+
+        final long[] offsets;
+
+        final int[] counts;
+
+        Spill(Path file, long[] offsets, int[] counts) {
+            this.file = file;
+            this.offsets = offsets;
+            this.counts = counts;
+        }
+    }
+
+    private static final class MapTask<K> extends RecursiveAction implements Mapper.Emitter<K> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Job<K> job;
+
+        private final FileSplit split;
+
+        private final ObjectLongMap<K>[] combiners;
+
+        private final List<Spill> spills = new ArrayList<>();
+
+        private int keysInMemory;
+
+        @SuppressWarnings("unchecked")
+        MapTask(Job<K> job, FileSplit split) {
+            this.job = job;
+            this.split = split;
+            this.combiners = new ObjectLongMap[job.partitions];
+            for (int p = 0; p < combiners.length; p++) {
+                combiners[p] = new ObjectLongMap<>();
+            }
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                split.forEachRecord(record -> job.mapper.map(record, this));
+                if (keysInMemory > 0 && !job.retain(keysInMemory)) {
+                    spill();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void emit(K key, long value) {
+            int hash = ObjectLongMap.mix(key);
+            ObjectLongMap<K> combiner = combiners[job.partitionOf(hash)];
+            int before = combiner.size();
+            combiner.merge(key, hash, value, job.reducer);
+            keysInMemory += combiner.size() - before;
+            if (keysInMemory > job.maxKeysInMemory) {
+                try {
+                    spill();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void spill() throws IOException {
+            Path file = job.newSpillFile();
+            long[] offsets = new long[combiners.length];
+            int[] counts = new int[combiners.length];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16))) {
+                for (int p = 0; p < combiners.length; p++) {
+                    out.flush();
+                    offsets[p] = channel.position();
+                    counts[p] = combiners[p].size();
+                    combiners[p].forEach((key, value) -> {
+                        try {
+                            job.codec.write(out, key);
+                            out.writeLong(value);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    combiners[p].clear();
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            spills.add(new Spill(file, offsets, counts));
+            keysInMemory = 0;
+        }
+    }
+
+    private static final class ReduceTask<K> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Job<K> job;
+
+        private final List<MapTask<K>> mapTasks;
+
+        private final int partition;
+
+        ObjectLongMap<K> result;
+
+        ReduceTask(Job<K> job, List<MapTask<K>> mapTasks, int partition) {
+            this.job = job;
+            this.mapTasks = mapTasks;
+            this.partition = partition;
+        }
+
+        @Override
+        protected void compute() {
+            int expected = 0;
+            for (MapTask<K> task : mapTasks) {
+                expected = Math.max(expected, task.combiners[partition].size());
+            }
+            ObjectLongMap<K> merged = new ObjectLongMap<>(expected);
+            try {
+                for (MapTask<K> task : mapTasks) {
+                    merged.mergeAll(task.combiners[partition], job.reducer);
+                    // 合并后释放，reduce 过程中内存逐步归还
+                    task.combiners[partition] = null;
+                    for (Spill spill : task.spills) {
+                        readSpill(spill, merged);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            result = merged;
+        }
+
+        private void readSpill(Spill spill, ObjectLongMap<K> merged) throws IOException {
+            int count = spill.counts[partition];
+            if (count == 0) {
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(spill.file, StandardOpenOption.READ);
+                 DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(Channels.newInputStream(channel.position(spill.offsets[partition])),
+                         1 << 16))) {
+                for (int i = 0; i < count; i++) {
+                    K key = job.codec.read(in);
+                    merged.merge(key, in.readLong(), job.reducer);
+                }
+            }
+        }
+    }
+}
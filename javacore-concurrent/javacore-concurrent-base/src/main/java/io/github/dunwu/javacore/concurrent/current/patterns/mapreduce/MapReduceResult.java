@@ -0,0 +1,57 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.mapreduce;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * {@link MapReduceEngine#run} 的结果，按 reduce 分区保存，各分区的 key 不相交
+ *
+ * @param <K> key 的类型
+ */
+public final class MapReduceResult<K> {
+
+    private final ObjectLongMap<K>[] partitions;
+
+    private final int shift;
+
+    MapReduceResult(ObjectLongMap<K>[] partitions) {
+        this.partitions = partitions;
+        this.shift = 32 - Integer.numberOfTrailingZeros(partitions.length);
+    }
+
+    public long get(K key, long defaultValue) {
+        return partition(key).get(key, defaultValue);
+    }
+
+    public boolean containsKey(K key) {
+        return partition(key).containsKey(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (ObjectLongMap<K> partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    public void forEach(ObjLongConsumer<? super K> action) {
+        for (ObjectLongMap<K> partition : partitions) {
+            partition.forEach(action);
+        }
+    }
+
+    /**
+     * 复制为装箱的 {@link HashMap}，只适合结果不大的情况
+     */
+    public Map<K, Long> toMap() {
+        Map<K, Long> map = new HashMap<>(size() * 4 / 3 + 1);
+        forEach(map::put);
+        return map;
+    }
+
+    private ObjectLongMap<K> partition(K key) {
+        return partitions.length == 1 ? partitions[0] : partitions[ObjectLongMap.mix(key) >>> shift];
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.mapreduce;
+
+import java.nio.ByteBuffer;
+
+/**
+ * map 函数：把一条记录转换为若干 (key, long) 对。
+ * <p>
+ * record 是输入文件内存映射的一个视图，position 到 limit 是记录内容（不含换行符），只在本次调用中有效，
+ * 实现不能保存它的引用。同一个 Mapper 实例会被多个线程同时调用，实现应当无状态。
+ *
+ * @param <K> key 的类型
+ */
+@FunctionalInterface
+public interface Mapper<K> {
+
+    void map(ByteBuffer record, Emitter<K> emitter);
+
+    /**
+     * 接收 map 输出的 (key, value)，value 在本地立即按 reducer 合并（combiner），不会逐条保存
+     */
+    @FunctionalInterface
+    interface Emitter<K> {
+
+        void emit(K key, long value);
+    }
+}
@@ -0,0 +1,160 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.mapreduce;
+
+import java.util.function.LongBinaryOperator;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * combiner 使用的 key → long 哈希表：开放寻址、线性探测，value 存在 long[] 中，合并时不装箱，也没有 HashMap 的 Node 对象。
+ * <p>
+ * 不是线程安全的，一个实例只由一个任务使用。
+ */
+final class ObjectLongMap<K> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private Object[] keys;
+
+    private long[] values;
+
+    private int size;
+
+    private int mask;
+
+    private int resizeAt;
+
+    ObjectLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    ObjectLongMap(int expectedSize) {
+        allocate(tableSizeFor(Math.max(MIN_CAPACITY, expectedSize * 2)));
+    }
+
+    /**
+     * 与 HashMap 相同的扰动之后再乘以黄金分割常数，让低位也分布均匀，线性探测对此很敏感
+     */
+    static int mix(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) * 0x9E3779B9;
+    }
+
+    /**
+     * key 不存在时放入 value，存在时放入 reducer(旧值, value)
+     */
+    void merge(K key, long value, LongBinaryOperator reducer) {
+        merge(key, mix(key), value, reducer);
+    }
+
+    void merge(K key, int hash, long value, LongBinaryOperator reducer) {
+        int i = hash & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) {
+                values[i] = reducer.applyAsLong(values[i], value);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    long get(Object key, long defaultValue) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(ObjLongConsumer<? super K> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * 把 other 合并进当前表
+     */
+    @SuppressWarnings("unchecked")
+    void mergeAll(ObjectLongMap<K> other, LongBinaryOperator reducer) {
+        if (size + other.size > resizeAt) {
+            rehash(tableSizeFor((size + other.size) * 2));
+        }
+        Object[] otherKeys = other.keys;
+        long[] otherValues = other.values;
+        for (int i = 0; i < otherKeys.length; i++) {
+            if (otherKeys[i] != null) {
+                merge((K) otherKeys[i], otherValues[i], reducer);
+            }
+        }
+    }
+
+    /**
+     * 清空并收缩到初始容量，溢写之后调用，把内存还给堆
+     */
+    void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private int indexOf(Object key) {
+        int i = mix(key) & mask;
+        Object k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object key = oldKeys[i];
+            if (key != null) {
+                int j = mix(key) & mask;
+                while (keys[j] != null) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = key;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        // 装载因子 0.5，线性探测在更高的装载因子下探测长度增长很快
+        resizeAt = capacity >>> 1;
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n - 1, 1)) << 1;
+        return capacity < 0 ? 1 << 30 : capacity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((k, v) -> sb.append(sb.length() > 1 ? ", " : "").append(k).append('=').append(v));
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,480 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.resourcepool;
+
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongAdder;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.StripedHistogram;
+import io.github.dunwu.javacore.concurrent.current.features.threadPool.ThreadPoolBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import static io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.PoolEntry.BORROWED;
+import static io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.PoolEntry.IDLE;
+import static io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.PoolEntry.RESERVED;
+import static io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.PoolEntry.REMOVED;
+
+/**
+ * 有界对象池，用于连接、编解码器、Kryo 实例等创建代价高的对象，结构参考 HikariCP 的 ConcurrentBag。
+ * <p>
+ * 1. 借用依次尝试：本线程最近归还的对象（线程本地列表，通常无竞争）→ 扫描共享列表 → 未达上限时创建 → 等待归还。
+ * 每个对象的归属只由一次 CAS（IDLE → BORROWED）决定，借还路径上没有锁；
+ * <p>
+ * 2. 共享列表是 CopyOnWriteArrayList，只在创建/销毁对象时复制，借还时只读遍历；
+ * <p>
+ * 3. 有线程在等待时，归还的对象通过公平模式的 SynchronousQueue 直接交给等待最久的线程，而不是放回池中被新来的线程抢走；
+ * <p>
+ * 4. 超时抛出 {@link TimeoutException}，不会返回 null；对象损坏时调用 {@link PooledObject#invalidate()} 销毁，
+ * 腾出的名额由后台线程补建并交给等待者；
+ * <p>
+ * 5. 后台线程定期执行 {@link #evict()}：泄漏检测（打印借用方调用栈）、空闲驱逐、空闲校验、补齐 minIdle。
+ * <p>
+ * 使用方式见 {@link ObjectPoolBuilder}。
+ */
+public class ObjectPool<T> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObjectPool.class);
+
+    /**
+     * 每个线程最多记住的最近归还对象数
+     */
+    private static final int THREAD_LOCAL_CAPACITY = 16;
+
+    /**
+     * 等待者每次最多阻塞的时间，之后重新检查池是否已关闭
+     */
+    private static final long MAX_WAIT_SLICE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+
+    private final PooledObjectFactory<T> factory;
+
+    private final int maximumSize;
+
+    private final int minIdle;
+
+    private final boolean testOnBorrow;
+
+    private final boolean testWhileIdle;
+
+    private final long idleTimeoutNanos;
+
+    private final long leakDetectionThresholdNanos;
+
+    private final LongSupplier ticker;
+
+    private final CopyOnWriteArrayList<PoolEntry<T>> entries = new CopyOnWriteArrayList<>();
+
+    /**
+     * 对象总数，包括正在创建中的名额
+     */
+    private final AtomicInteger totalCount = new AtomicInteger();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final SynchronousQueue<PoolEntry<T>> handoffQueue = new SynchronousQueue<>(true);
+
+    /**
+     * 弱引用，线程池中的线程不会因为记住了对象而阻止已关闭的池被回收
+     */
+    private final ThreadLocal<List<WeakReference<PoolEntry<T>>>> threadLocalEntries =
+            ThreadLocal.withInitial(() -> new ArrayList<>(THREAD_LOCAL_CAPACITY));
+
+    private final ScheduledThreadPoolExecutor housekeeper;
+
+    private volatile boolean closed;
+
+    private final LongAdder borrowCount = new LongAdder();
+
+    private final LongAdder timeoutCount = new LongAdder();
+
+    private final LongAdder createCount = new LongAdder();
+
+    private final LongAdder destroyCount = new LongAdder();
+
+    private final LongAdder validationFailureCount = new LongAdder();
+
+    private final LongAdder leakCount = new LongAdder();
+
+    /**
+     * 借用耗时，微秒，1us ~ 67s
+     */
+    private final StripedHistogram borrowLatency = StripedHistogram.exponential(1, 2, 27);
+
+    ObjectPool(ObjectPoolBuilder<T> builder) {
+        this.name = builder.getName();
+        this.factory = builder.getFactory();
+        this.maximumSize = builder.getMaximumSize();
+        this.minIdle = builder.getMinIdle();
+        this.testOnBorrow = builder.isTestOnBorrow();
+        this.testWhileIdle = builder.isTestWhileIdle();
+        this.idleTimeoutNanos = builder.getIdleTimeoutNanos();
+        this.leakDetectionThresholdNanos = builder.getLeakDetectionThresholdNanos();
+        this.ticker = builder.getTicker();
+        this.housekeeper = ThreadPoolBuilder.scheduledPool().setThreadNamePrefix(name + "-housekeeper").build();
+        this.housekeeper.setRemoveOnCancelPolicy(true);
+        // 预热
+        fillIdle();
+        long period = builder.getHousekeepingPeriodNanos();
+        if (period > 0) {
+            housekeeper.scheduleWithFixedDelay(this::evictQuietly, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 借用对象，没有可用对象时一直等待
+     */
+    public PooledObject<T> borrow() throws InterruptedException {
+        try {
+            return borrow(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 借用对象，最多等待 timeout；timeout 为 0 时只尝试一次不等待
+     *
+     * @throws TimeoutException      超时仍没有可用对象
+     * @throws IllegalStateException 池已关闭，或创建对象失败
+     */
+    public PooledObject<T> borrow(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (closed) {
+            throw new IllegalStateException("pool closed: " + name);
+        }
+        long start = System.nanoTime();
+        PoolEntry<T> entry = acquire(start, unit.toNanos(timeout));
+        long elapsed = System.nanoTime() - start;
+        borrowLatency.record(TimeUnit.NANOSECONDS.toMicros(elapsed));
+        if (entry == null) {
+            timeoutCount.increment();
+            throw new TimeoutException("borrow from " + name + " timed out after "
+                    + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms, " + stats());
+        }
+        borrowCount.increment();
+        Throwable stack = leakDetectionThresholdNanos > 0
+                ? new Throwable("borrowed by thread " + Thread.currentThread().getName()) : null;
+        entry.borrowed(stack);
+        return new PooledObject<>(this, entry);
+    }
+
+    private PoolEntry<T> acquire(long start, long timeoutNanos) throws InterruptedException {
+        // 1. 本线程最近归还的对象，大概率仍然空闲，而且还在本 CPU 的缓存里
+        List<WeakReference<PoolEntry<T>>> local = threadLocalEntries.get();
+        for (int i = local.size() - 1; i >= 0; i--) {
+            PoolEntry<T> entry = local.remove(i).get();
+            if (entry != null && entry.tryBorrow(ticker.getAsLong()) && checkOnBorrow(entry)) {
+                return entry;
+            }
+        }
+
+        // 先登记为等待者再扫描，扫描之后归还的对象一定会走交接队列，不会丢失唤醒
+        waiters.incrementAndGet();
+        try {
+            for (;;) {
+                // 2. 共享列表
+                PoolEntry<T> entry = scan();
+                if (entry != null) {
+                    return entry;
+                }
+
+                // 3. 未达上限则创建；创建可能很慢，期间不算作等待者，以免归还线程空转等待交接
+                if (totalCount.get() < maximumSize) {
+                    waiters.decrementAndGet();
+                    try {
+                        entry = tryCreate(BORROWED);
+                    } finally {
+                        waiters.incrementAndGet();
+                    }
+                    if (entry != null) {
+                        return entry;
+                    }
+                    // 名额被其他线程抢先占用，重新扫描
+                    continue;
+                }
+
+                // 4. 等待归还
+                long remaining = timeoutNanos - (System.nanoTime() - start);
+                if (remaining <= 0) {
+                    return null;
+                }
+                entry = handoffQueue.poll(Math.min(remaining, MAX_WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+                if (closed) {
+                    throw new IllegalStateException("pool closed: " + name);
+                }
+                if (entry != null && entry.tryBorrow(ticker.getAsLong()) && checkOnBorrow(entry)) {
+                    return entry;
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private PoolEntry<T> scan() {
+        for (PoolEntry<T> entry : entries) {
+            if (entry.getState() == IDLE && entry.tryBorrow(ticker.getAsLong()) && checkOnBorrow(entry)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 占用一个名额并创建对象，已达上限时返回 null
+     */
+    private PoolEntry<T> tryCreate(int state) {
+        for (;;) {
+            int count = totalCount.get();
+            if (count >= maximumSize || closed) {
+                return null;
+            }
+            if (totalCount.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+        T object;
+        try {
+            object = factory.create();
+        } catch (Exception e) {
+            totalCount.decrementAndGet();
+            throw new IllegalStateException("failed to create pooled object for " + name, e);
+        }
+        PoolEntry<T> entry = new PoolEntry<>(object, state, ticker.getAsLong());
+        entries.add(entry);
+        createCount.increment();
+        return entry;
+    }
+
+    private boolean checkOnBorrow(PoolEntry<T> entry) {
+        if (!testOnBorrow || validate(entry)) {
+            return true;
+        }
+        remove(entry);
+        return false;
+    }
+
+    private boolean validate(PoolEntry<T> entry) {
+        boolean valid;
+        try {
+            valid = factory.validate(entry.object);
+        } catch (Exception e) {
+            logger.debug("Validation of {} in {} threw", entry.object, name, e);
+            valid = false;
+        }
+        if (!valid) {
+            validationFailureCount.increment();
+        }
+        return valid;
+    }
+
+    void release(PoolEntry<T> entry) {
+        try {
+            factory.passivate(entry.object);
+        } catch (Exception e) {
+            logger.warn("Failed to passivate {} in {}, destroying it", entry.object, name, e);
+            remove(entry);
+            return;
+        }
+        if (entry.leakReported) {
+            logger.info("Previously reported leaked object {} was returned to {}", entry.object, name);
+        }
+        entry.borrowStack = null;
+        entry.lastAccessNanos = ticker.getAsLong();
+        entry.setState(IDLE);
+        if (closed) {
+            if (entry.compareAndSet(IDLE, RESERVED)) {
+                remove(entry);
+            }
+            return;
+        }
+        if (handOff(entry)) {
+            return;
+        }
+        List<WeakReference<PoolEntry<T>>> local = threadLocalEntries.get();
+        if (local.size() < THREAD_LOCAL_CAPACITY) {
+            local.add(new WeakReference<>(entry));
+        }
+    }
+
+    void invalidate(PoolEntry<T> entry) {
+        remove(entry);
+    }
+
+    /**
+     * 有线程在等待时把空闲对象直接交给等待最久的线程，返回 true 表示已交出（或已被其他线程抢先借走）
+     */
+    private boolean handOff(PoolEntry<T> entry) {
+        for (int i = 0; waiters.get() > 0; i++) {
+            if (entry.getState() != IDLE || handoffQueue.offer(entry)) {
+                return true;
+            }
+            // 等待者还在扫描、尚未阻塞在队列上，让出 CPU 稍后再试
+            if ((i & 0xff) == 0xff) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+            } else {
+                Thread.yield();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 销毁调用方已独占（BORROWED / RESERVED）的对象，腾出的名额有等待者时由后台线程补建
+     */
+    private void remove(PoolEntry<T> entry) {
+        entry.setState(REMOVED);
+        if (!entries.remove(entry)) {
+            return;
+        }
+        totalCount.decrementAndGet();
+        destroyCount.increment();
+        try {
+            factory.destroy(entry.object);
+        } catch (Exception e) {
+            logger.warn("Failed to destroy {} in {}", entry.object, name, e);
+        }
+        if (waiters.get() > 0 && !closed) {
+            try {
+                housekeeper.execute(this::addForWaiters);
+            } catch (RejectedExecutionException ignored) {
+                // 已关闭
+            }
+        }
+    }
+
+    private void addForWaiters() {
+        if (waiters.get() == 0) {
+            return;
+        }
+        try {
+            PoolEntry<T> entry = tryCreate(IDLE);
+            if (entry != null) {
+                handOff(entry);
+            }
+        } catch (IllegalStateException e) {
+            logger.warn("Failed to add object for waiters of {}", name, e);
+        }
+    }
+
+    /**
+     * 执行一次维护：泄漏检测、空闲驱逐（不低于 minIdle）、空闲校验、补齐 minIdle。
+     * 后台线程按 housekeepingPeriod 周期调用，也可以手动调用
+     */
+    public void evict() {
+        if (closed) {
+            return;
+        }
+        long now = ticker.getAsLong();
+        int idle = idleCount();
+        for (PoolEntry<T> entry : entries) {
+            int state = entry.getState();
+            if (state == BORROWED) {
+                detectLeak(entry, now);
+            } else if (state == IDLE) {
+                if (idleTimeoutNanos > 0 && idle > minIdle && now - entry.lastAccessNanos > idleTimeoutNanos) {
+                    if (entry.compareAndSet(IDLE, RESERVED)) {
+                        idle--;
+                        remove(entry);
+                    }
+                } else if (testWhileIdle && entry.compareAndSet(IDLE, RESERVED)) {
+                    if (validate(entry)) {
+                        entry.setState(IDLE);
+                        handOff(entry);
+                    } else {
+                        idle--;
+                        remove(entry);
+                    }
+                }
+            }
+        }
+        fillIdle();
+    }
+
+    private void evictQuietly() {
+        try {
+            evict();
+        } catch (RuntimeException e) {
+            logger.warn("Housekeeping of {} failed", name, e);
+        }
+    }
+
+    private void detectLeak(PoolEntry<T> entry, long now) {
+        if (leakDetectionThresholdNanos <= 0 || entry.leakReported
+                || now - entry.borrowedNanos <= leakDetectionThresholdNanos) {
+            return;
+        }
+        entry.leakReported = true;
+        leakCount.increment();
+        logger.warn("Object {} borrowed from {} has not been returned for more than {}ms, possible leak",
+                entry.object, name, TimeUnit.NANOSECONDS.toMillis(leakDetectionThresholdNanos), entry.borrowStack);
+    }
+
+    private void fillIdle() {
+        for (int toAdd = minIdle - idleCount(); toAdd > 0 && !closed; toAdd--) {
+            PoolEntry<T> entry;
+            try {
+                entry = tryCreate(IDLE);
+            } catch (IllegalStateException e) {
+                logger.warn("Failed to fill idle objects of {}", name, e);
+                return;
+            }
+            if (entry == null) {
+                return;
+            }
+            handOff(entry);
+        }
+    }
+
+    private int idleCount() {
+        int idle = 0;
+        for (PoolEntry<T> entry : entries) {
+            if (entry.getState() == IDLE) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    public PoolStats stats() {
+        return new PoolStats(totalCount.get(), idleCount(), waiters.get(), borrowCount.sum(), timeoutCount.sum(),
+                createCount.sum(), destroyCount.sum(), validationFailureCount.sum(), leakCount.sum(),
+                borrowLatency.snapshot());
+    }
+
+    /**
+     * 关闭后空闲对象立即销毁，借出的对象在归还时销毁，正在等待的线程最迟 1 秒后抛出 IllegalStateException
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        for (PoolEntry<T> entry : entries) {
+            if (entry.compareAndSet(IDLE, RESERVED)) {
+                remove(entry);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectPool{name=" + name + ", " + stats() + '}';
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.resourcepool;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link ObjectPool} 的构建器。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * ObjectPool&lt;Kryo&gt; pool = ObjectPoolBuilder.newBuilder(kryoFactory)
+ *         .setMaximumSize(32)
+ *         .setMinIdle(4)
+ *         .setLeakDetectionThreshold(10, TimeUnit.SECONDS)
+ *         .build();
+ * try (PooledObject&lt;Kryo&gt; kryo = pool.borrow(100, TimeUnit.MILLISECONDS)) {
+ *     kryo.get().writeObject(output, message);
+ * }
+ * </pre>
+ */
+public class ObjectPoolBuilder<T> {
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final PooledObjectFactory<T> factory;
+
+    private String name;
+
+    private int maximumSize = 8;
+
+    private int minIdle = 0;
+
+    private boolean testOnBorrow = false;
+
+    private boolean testWhileIdle = false;
+
+    private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+
+    private long leakDetectionThresholdNanos = 0L;
+
+    private long housekeepingPeriodNanos = TimeUnit.SECONDS.toNanos(30);
+
+    private LongSupplier ticker = System::nanoTime;
+
+    private ObjectPoolBuilder(PooledObjectFactory<T> factory) {
+        this.factory = Validate.notNull(factory);
+    }
+
+    public static <T> ObjectPoolBuilder<T> newBuilder(PooledObjectFactory<T> factory) {
+        return new ObjectPoolBuilder<>(factory);
+    }
+
+    /**
+     * 池名称，用于日志和后台线程名，默认 object-pool-N
+     */
+    public ObjectPoolBuilder<T> setName(String name) {
+        this.name = Validate.notBlank(name);
+        return this;
+    }
+
+    /**
+     * 最多同时存在的对象数（空闲 + 借出），默认 8
+     */
+    public ObjectPoolBuilder<T> setMaximumSize(int maximumSize) {
+        Validate.isTrue(maximumSize > 0, "maximumSize must be positive");
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * 最少保持的空闲对象数，构建时预热，之后由后台线程补齐，默认 0
+     */
+    public ObjectPoolBuilder<T> setMinIdle(int minIdle) {
+        Validate.isTrue(minIdle >= 0, "minIdle must not be negative");
+        this.minIdle = minIdle;
+        return this;
+    }
+
+    /**
+     * 借出前校验，默认关闭；校验失败的对象销毁后继续借下一个
+     */
+    public ObjectPoolBuilder<T> setTestOnBorrow(boolean testOnBorrow) {
+        this.testOnBorrow = testOnBorrow;
+        return this;
+    }
+
+    /**
+     * 后台线程定期校验空闲对象，默认关闭
+     */
+    public ObjectPoolBuilder<T> setTestWhileIdle(boolean testWhileIdle) {
+        this.testWhileIdle = testWhileIdle;
+        return this;
+    }
+
+    /**
+     * 空闲超过 duration 的对象被驱逐（不低于 minIdle），0 表示不驱逐，默认 10 分钟
+     */
+    public ObjectPoolBuilder<T> setIdleTimeout(long duration, TimeUnit unit) {
+        Validate.isTrue(duration >= 0, "duration must not be negative");
+        this.idleTimeoutNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 借出超过 duration 未归还时打印借用方的调用栈，0 表示关闭，默认关闭。
+     * 开启后每次借用都要创建一个 Throwable 记录调用栈，有一定开销
+     */
+    public ObjectPoolBuilder<T> setLeakDetectionThreshold(long duration, TimeUnit unit) {
+        Validate.isTrue(duration >= 0, "duration must not be negative");
+        this.leakDetectionThresholdNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 后台线程执行驱逐、空闲校验、泄漏检测、补齐 minIdle 的周期，0 表示不启动定时任务（可以手动调用
+     * {@link ObjectPool#evict()}），默认 30 秒
+     */
+    public ObjectPoolBuilder<T> setHousekeepingPeriod(long duration, TimeUnit unit) {
+        Validate.isTrue(duration >= 0, "duration must not be negative");
+        this.housekeepingPeriodNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * 纳秒时钟，默认 System.nanoTime，测试时可以注入可控的时间，用于空闲驱逐和泄漏检测；借用等待的超时和借用耗时始终使用真实时间
+     */
+    public ObjectPoolBuilder<T> setTicker(LongSupplier ticker) {
+        this.ticker = Validate.notNull(ticker);
+        return this;
+    }
+
+    public ObjectPool<T> build() {
+        Validate.isTrue(minIdle <= maximumSize, "minIdle must not exceed maximumSize");
+        if (name == null) {
+            name = "object-pool-" + POOL_NUMBER.incrementAndGet();
+        }
+        return new ObjectPool<>(this);
+    }
+
+    PooledObjectFactory<T> getFactory() {
+        return factory;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getMaximumSize() {
+        return maximumSize;
+    }
+
+    int getMinIdle() {
+        return minIdle;
+    }
+
+    boolean isTestOnBorrow() {
+        return testOnBorrow;
+    }
+
+    boolean isTestWhileIdle() {
+        return testWhileIdle;
+    }
+
+    long getIdleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
+
+    long getLeakDetectionThresholdNanos() {
+        return leakDetectionThresholdNanos;
+    }
+
+    long getHousekeepingPeriodNanos() {
+        return housekeepingPeriodNanos;
+    }
+
+    LongSupplier getTicker() {
+        return ticker;
+    }
+}
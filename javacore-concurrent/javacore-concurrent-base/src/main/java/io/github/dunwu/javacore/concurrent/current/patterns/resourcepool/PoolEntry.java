@@ -0,0 +1,79 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.resourcepool;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 池中对象的包装，借出/归还/驱逐都通过对 state 的 CAS 竞争，谁 CAS 成功谁拥有该对象
+ */
+final class PoolEntry<T> {
+
+    static final int IDLE = 0;
+
+    static final int BORROWED = 1;
+
+    /**
+     * 被后台线程临时占用（空闲校验、驱逐），借用方会跳过
+     */
+    static final int RESERVED = 2;
+
+    static final int REMOVED = 3;
+
+    private static final AtomicIntegerFieldUpdater<PoolEntry> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(PoolEntry.class, "state");
+
+    final T object;
+
+    private volatile int state;
+
+    /**
+     * 最近一次归还（或创建）的时间，用于空闲驱逐
+     */
+    volatile long lastAccessNanos;
+
+    /**
+     * 本次借出的时间和调用栈，用于泄漏检测；未开启泄漏检测时不记录调用栈
+     */
+    volatile long borrowedNanos;
+
+    volatile Throwable borrowStack;
+
+    volatile boolean leakReported;
+
+    PoolEntry(T object, int state, long nowNanos) {
+        this.object = object;
+        this.state = state;
+        this.lastAccessNanos = nowNanos;
+        this.borrowedNanos = nowNanos;
+    }
+
+    int getState() {
+        return state;
+    }
+
+    boolean compareAndSet(int expect, int update) {
+        return STATE.compareAndSet(this, expect, update);
+    }
+
+    void setState(int update) {
+        state = update;
+    }
+
+    /**
+     * IDLE -> BORROWED。借出时间在 CAS 之前写入，驱逐线程看到 BORROWED 时读到的不会是上一次借出的时间。
+     * CAS 失败时不恢复：失败方写入的同样是当前时间，最多让泄漏检测稍晚触发；恢复旧值反而可能与成功方交错，写回上一次借出的时间
+     */
+    boolean tryBorrow(long nowNanos) {
+        borrowedNanos = nowNanos;
+        return STATE.compareAndSet(this, IDLE, BORROWED);
+    }
+
+    void borrowed(Throwable stack) {
+        borrowStack = stack;
+        leakReported = false;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolEntry{object=" + object + ", state=" + state + '}';
+    }
+}
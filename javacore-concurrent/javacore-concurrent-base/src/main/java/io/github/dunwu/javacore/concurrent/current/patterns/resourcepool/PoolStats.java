@@ -0,0 +1,108 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.resourcepool;
+
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.StripedHistogram;
+
+/**
+ * 对象池统计快照，不可变；各项分别读取，并发借还时彼此之间可能有少量出入
+ */
+public final class PoolStats {
+
+    private final int totalCount;
+
+    private final int idleCount;
+
+    private final int waitingCount;
+
+    private final long borrowCount;
+
+    private final long timeoutCount;
+
+    private final long createCount;
+
+    private final long destroyCount;
+
+    private final long validationFailureCount;
+
+    private final long leakCount;
+
+    private final StripedHistogram.Snapshot borrowLatencyMicros;
+
+    PoolStats(int totalCount, int idleCount, int waitingCount, long borrowCount, long timeoutCount,
+              long createCount, long destroyCount, long validationFailureCount, long leakCount,
+              StripedHistogram.Snapshot borrowLatencyMicros) {
+        this.totalCount = totalCount;
+        this.idleCount = idleCount;
+        this.waitingCount = waitingCount;
+        this.borrowCount = borrowCount;
+        this.timeoutCount = timeoutCount;
+        this.createCount = createCount;
+        this.destroyCount = destroyCount;
+        this.validationFailureCount = validationFailureCount;
+        this.leakCount = leakCount;
+        this.borrowLatencyMicros = borrowLatencyMicros;
+    }
+
+    /**
+     * 池中对象总数（空闲 + 借出）
+     */
+    public int totalCount() {
+        return totalCount;
+    }
+
+    public int idleCount() {
+        return idleCount;
+    }
+
+    public int activeCount() {
+        return Math.max(0, totalCount - idleCount);
+    }
+
+    /**
+     * 正在等待借用的线程数
+     */
+    public int waitingCount() {
+        return waitingCount;
+    }
+
+    public long borrowCount() {
+        return borrowCount;
+    }
+
+    public long timeoutCount() {
+        return timeoutCount;
+    }
+
+    public long createCount() {
+        return createCount;
+    }
+
+    public long destroyCount() {
+        return destroyCount;
+    }
+
+    public long validationFailureCount() {
+        return validationFailureCount;
+    }
+
+    /**
+     * 被判定为泄漏（借出超过阈值未归还）的次数
+     */
+    public long leakCount() {
+        return leakCount;
+    }
+
+    /**
+     * 借用耗时（含等待）的分布，单位微秒
+     */
+    public StripedHistogram.Snapshot borrowLatencyMicros() {
+        return borrowLatencyMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{total=" + totalCount + ", idle=" + idleCount + ", waiting=" + waitingCount
+                + ", borrow=" + borrowCount + ", timeout=" + timeoutCount + ", create=" + createCount
+                + ", destroy=" + destroyCount + ", validationFailure=" + validationFailureCount
+                + ", leak=" + leakCount + ", borrowP99Micros=" + borrowLatencyMicros.getValueAtQuantile(0.99) + '}';
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.resourcepool;
+
+/**
+ * 一次借用的句柄，close 时归还，配合 try-with-resources 使用。
+ * 句柄只属于借用它的线程，归还后再调用 get 抛出 IllegalStateException，重复 close 无副作用
+ */
+public final class PooledObject<T> implements AutoCloseable {
+
+    private final ObjectPool<T> pool;
+
+    private final PoolEntry<T> entry;
+
+    private boolean returned;
+
+    PooledObject(ObjectPool<T> pool, PoolEntry<T> entry) {
+        this.pool = pool;
+        this.entry = entry;
+    }
+
+    public T get() {
+        if (returned) {
+            throw new IllegalStateException("pooled object already returned");
+        }
+        return entry.object;
+    }
+
+    /**
+     * 对象已损坏（例如连接断开），销毁而不是归还
+     */
+    public void invalidate() {
+        if (!returned) {
+            returned = true;
+            pool.invalidate(entry);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!returned) {
+            returned = true;
+            pool.release(entry);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.dunwu.javacore.concurrent.current.patterns.resourcepool;
+
+/**
+ * {@link ObjectPool} 中对象的生命周期回调，除 create 外都有默认实现
+ */
+public interface PooledObjectFactory<T> {
+
+    /**
+     * 创建一个新对象，例如建立连接；抛出的异常会被包装为 IllegalStateException 抛给借用方
+     */
+    T create() throws Exception;
+
+    /**
+     * 校验对象是否仍然可用（开启 testOnBorrow / testWhileIdle 时调用），返回 false 或抛出异常时对象被销毁
+     */
+    default boolean validate(T object) {
+        return true;
+    }
+
+    /**
+     * 归还时重置对象状态，例如清空缓冲区、Kryo#reset；抛出异常时对象被销毁而不是放回池中
+     */
+    default void passivate(T object) throws Exception {
+    }
+
+    /**
+     * 销毁对象，例如关闭连接
+     */
+    default void destroy(T object) throws Exception {
+    }
+}
@@ -11,6 +11,8 @@ import java.util.concurrent.*;
  * 描述:
  * 对象资源池
  * 适用场景:当要创建某些有限资源的池时使用
+ * 信号量的许可数等于资源数，获取到许可就一定能取到资源，许可在归还资源时才释放。
+ * 生产环境使用带校验、驱逐、泄漏检测的 {@link ObjectPool}
  * @author zed
  * @since 2019-07-01 3:01 PM
  */
@@ -20,6 +22,9 @@ public class ResourcePool<T> {
     private BlockingQueue<T> resources;
 
     public ResourcePool(int poolSize, List<T> initializedResources) {
+        if (initializedResources.size() != poolSize) {
+            throw new IllegalArgumentException("expected " + poolSize + " resources, got " + initializedResources.size());
+        }
         //fail true 即 FIFO
         this.semaphore = new Semaphore(poolSize, true);
         this.resources = new LinkedBlockingQueue<>(poolSize);
@@ -32,7 +37,8 @@ public class ResourcePool<T> {
      * @throws InterruptedException e
      */
     public T get() throws InterruptedException {
-        return get(Integer.MAX_VALUE);
+        semaphore.acquire();
+        return resources.poll();
     }
 
     /**
@@ -40,14 +46,14 @@ public class ResourcePool<T> {
      * @param secondsToTimeout 超时时间
      * @return source
      * @throws InterruptedException e
+     * @throws TimeoutException 超时仍没有可用资源
      */
-    public T get(long secondsToTimeout) throws InterruptedException {
-        semaphore.acquire();
-        try {
-            return resources.poll(secondsToTimeout, TIME_UNIT);
-        } finally {
-            semaphore.release();
+    public T get(long secondsToTimeout) throws InterruptedException, TimeoutException {
+        if (!semaphore.tryAcquire(secondsToTimeout, TIME_UNIT)) {
+            throw new TimeoutException("no resource available in " + secondsToTimeout + "s");
         }
+        // 持有许可说明至少有一个资源已经放回队列
+        return resources.poll();
     }
 
     /**
@@ -74,7 +80,7 @@ public class ResourcePool<T> {
                     Thread.sleep(random.nextInt(5000));
                     pool.release(value);
                     System.out.println("Value released " + value);
-                } catch (InterruptedException e) {
+                } catch (InterruptedException | TimeoutException e) {
                     e.printStackTrace();
                 }
             });
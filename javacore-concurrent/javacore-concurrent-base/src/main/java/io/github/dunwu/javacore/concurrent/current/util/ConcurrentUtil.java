@@ -1,6 +1,10 @@
 package io.github.dunwu.javacore.concurrent.current.util;
 
 import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongAdder;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongAdderTable;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongMaxUpdater;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.RateMeter;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.StripedHistogram;
 import io.github.dunwu.javacore.concurrent.current.features.limiter.RateLimiterUtil;
 import io.github.dunwu.javacore.concurrent.current.features.limiter.Sampler;
 import io.github.dunwu.javacore.concurrent.current.features.limiter.TimeIntervalLimiter;
@@ -26,6 +30,34 @@ public class ConcurrentUtil {
 		return new LongAdder();
 	}
 
+	/**
+	 * 返回按 key 分组的 LongAdder 计数器集合
+	 */
+	public static <K> LongAdderTable<K> longAdderTable() {
+		return new LongAdderTable<>();
+	}
+
+	/**
+	 * 返回没有激烈CAS冲突的最大值统计，更新值不大于当前最大值时不写内存
+	 */
+	public static LongMaxUpdater longMaxUpdater() {
+		return new LongMaxUpdater();
+	}
+
+	/**
+	 * 返回按指数分桶的耗时直方图，单位毫秒，覆盖 1ms ~ 524s
+	 */
+	public static StripedHistogram latencyHistogram() {
+		return StripedHistogram.exponential(1, 2, 20);
+	}
+
+	/**
+	 * 返回统计最近一分钟、每秒一个窗口的速率计
+	 */
+	public static RateMeter rateMeter() {
+		return new RateMeter(60, 1000);
+	}
+
 	/**
 	 * 返回CountDownLatch, 每条线程减1，减到0时正在latch.wait()的进程继续进行
 	 */
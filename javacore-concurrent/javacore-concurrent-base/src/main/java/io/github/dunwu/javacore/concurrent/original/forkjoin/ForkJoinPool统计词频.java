@@ -1,19 +1,32 @@
 package io.github.dunwu.javacore.concurrent.original.forkjoin;
 
-import java.util.HashMap;
-import java.util.Map;
+import io.github.dunwu.javacore.concurrent.current.patterns.mapreduce.KeyCodec;
+import io.github.dunwu.javacore.concurrent.current.patterns.mapreduce.MapReduceEngine;
+import io.github.dunwu.javacore.concurrent.current.patterns.mapreduce.MapReduceResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveTask;
 
 /**
  * 利用 ForkJoinPool 实现类似 Hadoop MapReduce 统计词频的功能
+ * <p>
+ * 最初的实现是每行一个 RecursiveTask，各自创建 HashMap 再两两合并，合并时大量复制，最后几次合并只能由一个线程完成。
+ * 现在交给 {@link MapReduceEngine}：输入文件按分片内存映射读取，每个分片在本地按分区合并，各分区再并行 reduce。
+ * 用法：不带参数时统计内置的几行文本，带参数时统计参数指定的文件。
  *
  * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
  * @since 2020-07-03
  */
 public class ForkJoinPool统计词频 {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         String[] fc = {
             "hello world",
             "hello me",
@@ -21,73 +34,31 @@ public class ForkJoinPool统计词频 {
             "hello join",
             "fork join in world"
         };
-        // 创建 ForkJoin 线程池
-        ForkJoinPool fjp = new ForkJoinPool(3);
-        // 创建任务
-        MR mr = new MR(fc, 0, fc.length);
-        // 启动任务
-        Map<String, Long> result = fjp.invoke(mr);
-        // 输出结果
-        result.forEach((k, v) ->
-            System.out.println(k + ":" + v));
-    }
-
-    //MR 模拟类
-    static class MR extends RecursiveTask<Map<String, Long>> {
-
-        private String[] fc;
-        private int start, end;
-
-        // 构造函数
-        MR(String[] fc, int fr, int to) {
-            this.fc = fc;
-            this.start = fr;
-            this.end = to;
-        }
-
-        @Override
-        protected Map<String, Long> compute() {
-            if (end - start == 1) {
-                return calc(fc[start]);
-            } else {
-                int mid = (start + end) / 2;
-                MR mr1 = new MR(
-                    fc, start, mid);
-                mr1.fork();
-                MR mr2 = new MR(
-                    fc, mid, end);
-                // 计算子任务，并返回合并的结果
-                return merge(mr2.compute(),
-                    mr1.join());
+        Path temp = null;
+        try {
+            List<Path> inputs = new ArrayList<>();
+            if (args.length == 0) {
+                temp = Files.createTempFile("words-", ".txt");
+                Files.write(temp, Arrays.asList(fc), StandardCharsets.UTF_8);
+                inputs.add(temp);
             }
-        }
-
-        // 合并结果
-        private Map<String, Long> merge(
-            Map<String, Long> r1, Map<String, Long> r2) {
-            Map<String, Long> result = new HashMap<>();
-            result.putAll(r1);
-            // 合并结果
-            r2.forEach((k, v) -> {
-                Long c = result.get(k);
-                if (c != null) { result.put(k, c + v); } else { result.put(k, v); }
-            });
-            return result;
-        }
-
-        // 统计单词数量
-        private Map<String, Long> calc(String line) {
-            Map<String, Long> result = new HashMap<>();
-            // 分割单词
-            String[] words = line.split("\\s+");
-            // 统计单词数量
-            for (String w : words) {
-                Long v = result.get(w);
-                if (v != null) { result.put(w, v + 1); } else { result.put(w, 1L); }
+            for (String arg : args) {
+                inputs.add(Paths.get(arg));
+            }
+            // 创建 ForkJoin 线程池
+            ForkJoinPool fjp = new ForkJoinPool(3);
+            // 统计词频
+            MapReduceResult<String> result = new MapReduceEngine(fjp)
+                .run(inputs, MapReduceEngine.wordCountMapper(), Long::sum, KeyCodec.UTF8);
+            // 输出结果
+            result.forEach((k, v) ->
+                System.out.println(k + ":" + v));
+            fjp.shutdown();
+        } finally {
+            if (temp != null) {
+                Files.deleteIfExists(temp);
             }
-            return result;
         }
-
     }
 
 }
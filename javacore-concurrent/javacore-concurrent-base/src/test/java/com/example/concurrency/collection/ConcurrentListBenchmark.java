@@ -0,0 +1,138 @@
+package com.example.concurrency.collection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程下线程安全 List 的吞吐对比：CopyOnWriteArrayList、Collections.synchronizedList、Vector。
+ * <p>
+ * CopyOnWriteArrayList 的读取和遍历不加锁，每次写入复制整个数组，适合读多写少的小列表；
+ * 写入比例升高或列表变大时，复制的开销和 GC 分配速率（gc.alloc.rate.norm）会迅速上升。
+ * 运行方式和 {@link ConcurrentMapBenchmark} 相同。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentListBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    @Param({"CopyOnWriteArrayList", "SynchronizedList", "Vector"})
+    private String type;
+
+    @Param({"16", "1024"})
+    private int size;
+
+    private List<Integer> list;
+
+    @Setup
+    public void setUp() {
+        list = newList();
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+    }
+
+    private List<Integer> newList() {
+        switch (type) {
+            case "CopyOnWriteArrayList":
+                return new CopyOnWriteArrayList<>();
+            case "SynchronizedList":
+                return Collections.synchronizedList(new ArrayList<>());
+            case "Vector":
+                return new Vector<>();
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    /**
+     * 按 readPercent 的比例按下标读取或覆盖一个元素，列表的大小不变
+     */
+    @Benchmark
+    public Integer readWrite(Cursor cursor) {
+        int i = cursor.position++ & Workload.MASK;
+        int index = cursor.indices[i];
+        if (cursor.reads[i]) {
+            return list.get(index);
+        }
+        return list.set(index, index);
+    }
+
+    /**
+     * 遍历整个列表。synchronizedList 的迭代器不加锁，这里按它的文档在外面持有列表的锁，和实际的正确用法一致
+     */
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        if (list instanceof CopyOnWriteArrayList) {
+            for (Integer value : list) {
+                blackhole.consume(value);
+            }
+        } else {
+            synchronized (list) {
+                for (Integer value : list) {
+                    blackhole.consume(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * 每个线程一份访问序列。读写比例只对 readWrite 有意义，放在这里遍历不会因此多跑几轮
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        @Param({"90", "99", "100"})
+        private int readPercent;
+
+        private int[] indices;
+
+        private boolean[] reads;
+
+        private int position;
+
+        @Setup
+        public void setUp(ConcurrentListBenchmark benchmark, ThreadParams thread) {
+            indices = Workload.indices(benchmark.size, false, thread.getThreadIndex());
+            reads = Workload.reads(readPercent, thread.getThreadIndex() + 1000);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentListBenchmark.class.getSimpleName())
+                    .addProfiler(GCProfiler.class)
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.concurrency.collection;
+
+import io.github.dunwu.javacore.concurrent.current.features.readwritelock.CacheByReadWriteLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程读写混合下线程安全 Map 的吞吐对比：ConcurrentHashMap、{@link CacheByReadWriteLock}（整表一把读写锁）、
+ * Collections.synchronizedMap、Hashtable。
+ * <p>
+ * 不是单元测试，通过 main 方法运行，依次使用 1/2/4/8 个线程，同时输出 GC 分配速率：
+ * <pre>
+ * mvn -pl javacore-concurrent/javacore-concurrent-base test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=com.example.concurrency.collection.ConcurrentMapBenchmark
+ * </pre>
+ * 读写锁只在读远多于写、且临界区较长时才比互斥锁有优势；这里的临界区只是一次 HashMap 查找，
+ * 读锁本身的 CAS 就是瓶颈，ConcurrentHashMap 的读取完全不加锁。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentMapBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    @Param({"ConcurrentHashMap", "CacheByReadWriteLock", "SynchronizedMap", "Hashtable"})
+    private String type;
+
+    @Param({"1024", "65536"})
+    private int size;
+
+    @Param({"50", "90", "99"})
+    private int readPercent;
+
+    private MapOps map;
+
+    private Integer[] keys;
+
+    /**
+     * 被测 Map 的统一入口，CacheByReadWriteLock 没有实现 Map 接口
+     */
+    private interface MapOps {
+
+        Integer get(Integer key);
+
+        void put(Integer key, Integer value);
+    }
+
+    @Setup
+    public void setUp() {
+        map = newMap();
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+            map.put(keys[i], i);
+        }
+    }
+
+    private MapOps newMap() {
+        switch (type) {
+            case "ConcurrentHashMap":
+                return of(new ConcurrentHashMap<>());
+            case "CacheByReadWriteLock":
+                CacheByReadWriteLock<Integer, Integer> cache = new CacheByReadWriteLock<>();
+                return new MapOps() {
+                    @Override
+                    public Integer get(Integer key) {
+                        return cache.get1(key);
+                    }
+
+                    @Override
+                    public void put(Integer key, Integer value) {
+                        cache.put(key, value);
+                    }
+                };
+            case "SynchronizedMap":
+                return of(Collections.synchronizedMap(new HashMap<>()));
+            case "Hashtable":
+                return of(new Hashtable<>());
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    private static MapOps of(Map<Integer, Integer> map) {
+        return new MapOps() {
+            @Override
+            public Integer get(Integer key) {
+                return map.get(key);
+            }
+
+            @Override
+            public void put(Integer key, Integer value) {
+                map.put(key, value);
+            }
+        };
+    }
+
+    /**
+     * 按 readPercent 的比例读取或覆盖写入一个已有的 key，Map 的大小不变
+     */
+    @Benchmark
+    public Integer readWrite(Cursor cursor) {
+        int i = cursor.position++ & Workload.MASK;
+        Integer key = keys[cursor.indices[i]];
+        if (cursor.reads[i]) {
+            return map.get(key);
+        }
+        map.put(key, key);
+        return key;
+    }
+
+    /**
+     * 每个线程一份访问序列
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        @Param({"UNIFORM", "HOT"})
+        private String distribution;
+
+        private int[] indices;
+
+        private boolean[] reads;
+
+        private int position;
+
+        @Setup
+        public void setUp(ConcurrentMapBenchmark benchmark, ThreadParams thread) {
+            indices = Workload.indices(benchmark.size, "HOT".equals(distribution), thread.getThreadIndex());
+            reads = Workload.reads(benchmark.readPercent, thread.getThreadIndex() + 1000);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentMapBenchmark.class.getSimpleName())
+                    .addProfiler(GCProfiler.class)
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
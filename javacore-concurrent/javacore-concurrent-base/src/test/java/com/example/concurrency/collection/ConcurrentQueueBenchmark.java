@@ -0,0 +1,138 @@
+package com.example.concurrency.collection;
+
+import io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue.LockFreeQueue;
+import io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue.MpmcArrayBlockingQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程下队列的吞吐对比：{@link LockFreeQueue}（每个元素一个节点、共享的 size 计数器）、ConcurrentLinkedQueue、
+ * LinkedBlockingQueue、ArrayBlockingQueue 和环形数组实现的 {@link MpmcArrayBlockingQueue}。
+ * <p>
+ * 每个线程既是生产者也是消费者，每次操作入队一个元素再出队一个元素，队列长度稳定在 backlog 附近，
+ * 链表实现的每次入队都会分配节点，GC 分配速率（gc.alloc.rate.norm）可以直接看出这部分开销。
+ * 运行方式和 {@link ConcurrentMapBenchmark} 相同。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentQueueBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    private static final int CAPACITY = 1 << 16;
+
+    private static final Integer ELEMENT = 1;
+
+    @Param({"LockFreeQueue", "ConcurrentLinkedQueue", "LinkedBlockingQueue", "ArrayBlockingQueue",
+        "MpmcArrayBlockingQueue"})
+    private String type;
+
+    /**
+     * 测量开始前队列中已有的元素数
+     */
+    @Param({"0", "1024"})
+    private int backlog;
+
+    private QueueOps queue;
+
+    /**
+     * 被测队列的统一入口，LockFreeQueue 没有实现 Queue 接口
+     */
+    private interface QueueOps {
+
+        void offer(Integer e);
+
+        Integer poll();
+    }
+
+    @Setup
+    public void setUp() {
+        queue = newQueue();
+        for (int i = 0; i < backlog; i++) {
+            queue.offer(ELEMENT);
+        }
+    }
+
+    private QueueOps newQueue() {
+        switch (type) {
+            case "LockFreeQueue":
+                LockFreeQueue<Integer> lockFree = new LockFreeQueue<>();
+                return new QueueOps() {
+                    @Override
+                    public void offer(Integer e) {
+                        lockFree.addLast(e);
+                    }
+
+                    @Override
+                    public Integer poll() {
+                        return lockFree.removeFirst();
+                    }
+                };
+            case "ConcurrentLinkedQueue":
+                return of(new ConcurrentLinkedQueue<>());
+            case "LinkedBlockingQueue":
+                return of(new LinkedBlockingQueue<>(CAPACITY));
+            case "ArrayBlockingQueue":
+                return of(new ArrayBlockingQueue<>(CAPACITY));
+            case "MpmcArrayBlockingQueue":
+                return of(new MpmcArrayBlockingQueue<>(CAPACITY));
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    private static QueueOps of(Queue<Integer> queue) {
+        return new QueueOps() {
+            @Override
+            public void offer(Integer e) {
+                queue.offer(e);
+            }
+
+            @Override
+            public Integer poll() {
+                return queue.poll();
+            }
+        };
+    }
+
+    @Benchmark
+    public Integer offerPoll() {
+        queue.offer(ELEMENT);
+        return queue.poll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentQueueBenchmark.class.getSimpleName())
+                    .addProfiler(GCProfiler.class)
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.concurrency.collection;
+
+import java.util.Random;
+
+/**
+ * 并发集合基准测试的访问序列，在 Setup 阶段预先生成，测量时只做数组读取
+ */
+final class Workload {
+
+    /**
+     * 序列长度，2 的幂，取下一个位置时用位与代替取模
+     */
+    static final int LENGTH = 1 << 16;
+
+    static final int MASK = LENGTH - 1;
+
+    private Workload() {}
+
+    /**
+     * 访问的元素下标，hot 为 true 时 90% 的访问落在 10% 的元素上，否则均匀分布。
+     * 每个线程使用不同的种子，避免所有线程同时访问同一个元素
+     */
+    static int[] indices(int size, boolean hot, long seed) {
+        Random random = new Random(seed);
+        int hotSize = Math.max(1, size / 10);
+        int[] indices = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            indices[i] = hot && random.nextInt(10) < 9 ? random.nextInt(hotSize) : random.nextInt(size);
+        }
+        return indices;
+    }
+
+    /**
+     * 每次操作是读还是写，读的比例为 readPercent%
+     */
+    static boolean[] reads(int readPercent, long seed) {
+        Random random = new Random(seed);
+        boolean[] reads = new boolean[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            reads[i] = random.nextInt(100) < readPercent;
+        }
+        return reads;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.concurrency.features.cache;
+
+import io.github.dunwu.javacore.concurrent.current.features.cache.CacheBuilder;
+import io.github.dunwu.javacore.concurrent.current.features.cache.CacheStats;
+import io.github.dunwu.javacore.concurrent.current.features.cache.TinyLfuCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * W-TinyLFU 缓存测试：容量、扫描抗性、过期、单飞加载、统计
+ */
+public class TinyLfuCacheTest {
+
+    @Test
+    public void boundedBySize() {
+        TinyLfuCache<Integer, Integer> cache = CacheBuilder.newBuilder().setMaximumSize(100).build();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+        cache.cleanUp();
+        Assert.assertEquals(100, cache.estimatedSize());
+        Assert.assertEquals(100, cache.weightedSize());
+        Assert.assertEquals(900, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void boundedByWeight() {
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder()
+                .setMaximumWeight(100)
+                .setWeigher((String k, String v) -> v.length())
+                .build();
+        for (int i = 0; i < 50; i++) {
+            cache.put("k" + i, "0123456789");
+        }
+        cache.cleanUp();
+        Assert.assertTrue(cache.weightedSize() <= 100);
+        Assert.assertEquals(10, cache.estimatedSize());
+
+        // 单个条目超过总容量，直接淘汰
+        cache.put("huge", new String(new char[200]));
+        cache.cleanUp();
+        Assert.assertNull(cache.getIfPresent("huge"));
+    }
+
+    @Test
+    public void frequentKeysSurviveScan() {
+        TinyLfuCache<Integer, Integer> cache = CacheBuilder.newBuilder().setMaximumSize(100).build();
+        for (int round = 0; round < 20; round++) {
+            for (int hot = 0; hot < 50; hot++) {
+                cache.put(hot, hot);
+                cache.getIfPresent(hot);
+            }
+            cache.cleanUp();
+        }
+        // 一次性扫描 10000 个冷 key
+        for (int cold = 1000; cold < 11_000; cold++) {
+            cache.put(cold, cold);
+        }
+        cache.cleanUp();
+        int survived = 0;
+        for (int hot = 0; hot < 50; hot++) {
+            if (cache.getIfPresent(hot) != null) {
+                survived++;
+            }
+        }
+        Assert.assertTrue("hot keys survived: " + survived, survived >= 45);
+        Assert.assertTrue(cache.estimatedSize() <= 100);
+    }
+
+    @Test
+    public void expireAfterWrite() {
+        AtomicLong ticker = new AtomicLong();
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder()
+                .setExpireAfterWrite(10, TimeUnit.SECONDS)
+                .setTicker(ticker::get)
+                .build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        Assert.assertEquals("1", cache.getIfPresent("a"));
+        cache.put("b", "3");
+
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        // 读到已过期条目时立即删除
+        Assert.assertNull(cache.getIfPresent("a"));
+        Assert.assertEquals("3", cache.getIfPresent("b"));
+
+        // 时间轮清理无人读取的过期条目
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        cache.cleanUp();
+        Assert.assertEquals(0, cache.estimatedSize());
+        Assert.assertEquals(2, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void expireAfterAccess() {
+        AtomicLong ticker = new AtomicLong();
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder()
+                .setExpireAfterAccess(1, TimeUnit.MINUTES)
+                .setTicker(ticker::get)
+                .build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        for (int i = 0; i < 5; i++) {
+            ticker.addAndGet(TimeUnit.SECONDS.toNanos(40));
+            Assert.assertEquals("1", cache.getIfPresent("a"));
+            cache.cleanUp();
+        }
+        Assert.assertNull(cache.getIfPresent("b"));
+        Assert.assertEquals(1, cache.estimatedSize());
+
+        ticker.addAndGet(TimeUnit.HOURS.toNanos(3));
+        cache.cleanUp();
+        Assert.assertEquals(0, cache.estimatedSize());
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws InterruptedException {
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder().setMaximumSize(10).build();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                String value = cache.get("service", k -> {
+                    loads.incrementAndGet();
+                    sleep(200);
+                    return "instances";
+                });
+                synchronized (results) {
+                    results.add(value);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(8, results.size());
+        Assert.assertTrue(results.stream().allMatch("instances"::equals));
+        Assert.assertEquals(1, cache.stats().loadSuccessCount());
+    }
+
+    @Test
+    public void asyncLoadSharesFuture() {
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder().setMaximumSize(10).build();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AtomicInteger loads = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<String> first = cache.getAsync("k", k -> {
+                loads.incrementAndGet();
+                await(release);
+                return "v";
+            }, executor);
+            CompletableFuture<String> second = cache.getAsync("k", k -> {
+                loads.incrementAndGet();
+                return "other";
+            }, executor);
+            Assert.assertSame(first, second);
+            release.countDown();
+            Assert.assertEquals("v", first.join());
+            Assert.assertEquals(1, loads.get());
+            Assert.assertEquals("v", cache.getIfPresent("k"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void loaderFailureIsPropagatedAndNotCached() {
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder().setMaximumSize(10).build();
+        try {
+            cache.get("k", k -> {
+                throw new IllegalStateException("registry down");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("registry down", e.getMessage());
+        }
+        Assert.assertNull(cache.get("k", k -> null));
+        Assert.assertEquals("v", cache.get("k", k -> "v"));
+        CacheStats stats = cache.stats();
+        Assert.assertEquals(2, stats.loadFailureCount());
+        Assert.assertEquals(1, stats.loadSuccessCount());
+        Assert.assertEquals(3, stats.missCount());
+    }
+
+    @Test
+    public void recursiveLoadFailsInsteadOfDeadlocking() throws Exception {
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder().setMaximumSize(10).build();
+        try {
+            cache.get("k", k -> cache.get(k, k2 -> "v"));
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+        }
+        // 失败的加载不影响之后的加载，不同 key 的嵌套加载不受限制
+        Assert.assertEquals("v", cache.get("k", k -> "v"));
+        Assert.assertEquals("a-b", cache.get("a", k -> k + "-" + cache.get("b", k2 -> k2)));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<String> future = cache.getAsync("x", k -> cache.get(k, k2 -> "v"), executor);
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void hitMissStatsAndRemove() {
+        TinyLfuCache<String, String> cache = CacheBuilder.newBuilder().setMaximumSize(10).build();
+        cache.put("a", "1");
+        Assert.assertEquals("1", cache.getIfPresent("a"));
+        Assert.assertNull(cache.getIfPresent("b"));
+        Assert.assertEquals("1", cache.remove("a"));
+        Assert.assertNull(cache.getIfPresent("a"));
+        cache.cleanUp();
+        Assert.assertEquals(0, cache.weightedSize());
+        CacheStats stats = cache.stats();
+        Assert.assertEquals(1, stats.hitCount());
+        Assert.assertEquals(2, stats.missCount());
+        Assert.assertEquals(0, stats.evictionCount());
+    }
+
+    @Test
+    public void concurrentReadWriteKeepsBound() throws InterruptedException {
+        TinyLfuCache<Integer, Integer> cache = CacheBuilder.newBuilder().setMaximumSize(500).build();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    int key = (i * 31 + seed) % 2000;
+                    if (cache.getIfPresent(key) == null) {
+                        cache.put(key, key);
+                    }
+                    if (i % 97 == 0) {
+                        cache.remove(key);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        cache.cleanUp();
+        Assert.assertTrue(cache.estimatedSize() <= 500);
+        Assert.assertEquals(cache.estimatedSize(), cache.weightedSize());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.concurrency.features.jsr166e;
+
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongAdder;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongMaxUpdater;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.RateMeter;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.StripedHistogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 高竞争下 Striped64 系列与 AtomicLong 的吞吐对比，所有线程更新同一个实例。
+ * <p>
+ * 不是单元测试，通过 main 方法运行，依次使用 1/2/4/8/16/32/64 个线程：
+ * <pre>
+ * mvn -pl javacore-concurrent/javacore-concurrent-base test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=com.example.concurrency.features.jsr166e.StripedCounterBenchmark
+ * </pre>
+ * AtomicLong 的每次递增都要独占同一条缓存行，线程数超过 1 之后吞吐基本不再增长甚至下降；
+ * LongAdder 在竞争时把线程分散到不同的 Cell 上，吞吐随核数增长。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripedCounterBenchmark {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    private final AtomicLong atomicCounter = new AtomicLong();
+
+    private final LongAdder adder = new LongAdder();
+
+    private final AtomicLong atomicMax = new AtomicLong(Long.MIN_VALUE);
+
+    private final LongMaxUpdater maxUpdater = new LongMaxUpdater();
+
+    private final StripedHistogram histogram = StripedHistogram.exponential(1, 2, 20);
+
+    private final RateMeter rateMeter = new RateMeter(60, 1000);
+
+    @Benchmark
+    public long atomicLongIncrement() {
+        return atomicCounter.incrementAndGet();
+    }
+
+    @Benchmark
+    public void longAdderIncrement() {
+        adder.increment();
+    }
+
+    @Benchmark
+    public long atomicLongMax() {
+        return atomicMax.accumulateAndGet(ThreadLocalRandom.current().nextLong(1_000_000), Math::max);
+    }
+
+    @Benchmark
+    public void longMaxUpdater() {
+        maxUpdater.update(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1_000));
+    }
+
+    @Benchmark
+    public void rateMeterMark() {
+        rateMeter.mark();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(StripedCounterBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
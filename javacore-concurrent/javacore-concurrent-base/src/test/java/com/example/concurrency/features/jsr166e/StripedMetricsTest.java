@@ -0,0 +1,143 @@
+package com.example.concurrency.features.jsr166e;
+
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongAdderTable;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongMaxUpdater;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.LongMinUpdater;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.RateMeter;
+import io.github.dunwu.javacore.concurrent.current.features.jsr166e.StripedHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 Striped64 的计数器集合、最大/最小值、直方图、速率计测试
+ */
+public class StripedMetricsTest {
+
+    private static final int THREADS = 8;
+
+    private static final int PER_THREAD = 50_000;
+
+    @Test
+    public void adderTableCountsPerKey() throws InterruptedException {
+        LongAdderTable<String> table = new LongAdderTable<>();
+        runConcurrently(t -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                table.increment(i % 2 == 0 ? "success" : "failure");
+            }
+        });
+        Assert.assertEquals(THREADS * PER_THREAD / 2, table.sum("success"));
+        Assert.assertEquals(THREADS * PER_THREAD / 2, table.sum("failure"));
+        Assert.assertEquals(THREADS * PER_THREAD, table.sumAll());
+        Assert.assertEquals(0, table.sum("timeout"));
+
+        Assert.assertEquals(Long.valueOf(THREADS * PER_THREAD / 2), table.snapshotThenReset().get("success"));
+        Assert.assertEquals(0, table.sumAll());
+        Assert.assertEquals(2, table.keySet().size());
+    }
+
+    @Test
+    public void maxAndMinUpdater() throws InterruptedException {
+        LongMaxUpdater max = new LongMaxUpdater();
+        LongMinUpdater min = new LongMinUpdater();
+        Assert.assertEquals(Long.MIN_VALUE, max.max());
+        Assert.assertEquals(Long.MAX_VALUE, min.min());
+        runConcurrently(t -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                long v = (long) t * PER_THREAD + i;
+                max.update(v);
+                min.update(-v);
+            }
+        });
+        Assert.assertEquals((long) THREADS * PER_THREAD - 1, max.max());
+        Assert.assertEquals(-((long) THREADS * PER_THREAD - 1), min.min());
+        Assert.assertEquals((long) THREADS * PER_THREAD - 1, max.maxThenReset());
+        Assert.assertEquals(Long.MIN_VALUE, max.max());
+    }
+
+    @Test
+    public void histogramBucketsAndQuantiles() throws InterruptedException {
+        StripedHistogram histogram = new StripedHistogram(10, 100, 1000);
+        runConcurrently(t -> {
+            for (int i = 1; i <= 1000; i++) {
+                histogram.record(i);
+            }
+        });
+        StripedHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals(THREADS * 1000L, snapshot.getCount());
+        Assert.assertEquals(THREADS * 10L, snapshot.getBucketCount(0));
+        Assert.assertEquals(THREADS * 90L, snapshot.getBucketCount(1));
+        Assert.assertEquals(THREADS * 900L, snapshot.getBucketCount(2));
+        Assert.assertEquals(0L, snapshot.getBucketCount(3));
+        Assert.assertEquals(1L, snapshot.getMin());
+        Assert.assertEquals(1000L, snapshot.getMax());
+        Assert.assertEquals(500.5, snapshot.getMean(), 1e-9);
+        Assert.assertEquals(10L, snapshot.getValueAtQuantile(0.01));
+        Assert.assertEquals(100L, snapshot.getValueAtQuantile(0.1));
+        Assert.assertEquals(1000L, snapshot.getValueAtQuantile(0.99));
+
+        histogram.record(5000);
+        Assert.assertEquals(5000L, histogram.snapshotThenReset().getValueAtQuantile(1.0));
+        Assert.assertEquals(0L, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void exponentialBoundsAreStrictlyIncreasing() {
+        long[] bounds = StripedHistogram.exponential(1, 1.5, 10).snapshot().getBounds();
+        Assert.assertEquals(10, bounds.length);
+        for (int i = 1; i < bounds.length; i++) {
+            Assert.assertTrue(bounds[i] > bounds[i - 1]);
+        }
+    }
+
+    @Test
+    public void rateMeterSlidesWindows() {
+        AtomicLong now = new AtomicLong(10_000);
+        RateMeter meter = new RateMeter(10, 100, now::get);
+        meter.mark(5);
+        now.addAndGet(100);
+        meter.mark(5);
+        Assert.assertEquals(10, meter.count());
+        Assert.assertEquals(10.0, meter.ratePerSecond(), 1e-9);
+
+        // 第一个窗口滑出统计区间
+        now.addAndGet(900);
+        Assert.assertEquals(5, meter.count());
+        // 同一槽位被新窗口复用，旧计数不会残留
+        meter.mark(1);
+        Assert.assertEquals(6, meter.count());
+
+        now.addAndGet(10_000);
+        Assert.assertEquals(0, meter.count());
+    }
+
+    @Test
+    public void rateMeterConcurrentMarks() throws InterruptedException {
+        RateMeter meter = new RateMeter(60, 1000);
+        runConcurrently(t -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                meter.mark();
+            }
+        });
+        Assert.assertEquals((long) THREADS * PER_THREAD, meter.count());
+    }
+
+    private interface Body {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(Body body) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int id = t;
+            threads.add(new Thread(() -> body.run(id)));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.concurrency.features.limiter;
+
+import io.github.dunwu.javacore.concurrent.current.features.limiter.HierarchicalRateLimiter;
+import io.github.dunwu.javacore.concurrent.current.features.limiter.HierarchicalRateLimiterBuilder;
+import io.github.dunwu.javacore.concurrent.current.features.limiter.Quota;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分层限流器测试：全局上限、保证速率、按权重分享、空闲淘汰、等待获取
+ */
+public class HierarchicalRateLimiterTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private void advance(long duration, TimeUnit unit) {
+        time.addAndGet(unit.toNanos(duration));
+    }
+
+    private HierarchicalRateLimiterBuilder builder() {
+        return HierarchicalRateLimiterBuilder.newBuilder().setTicker(time::get);
+    }
+
+    @Test
+    public void globalCap() {
+        HierarchicalRateLimiter limiter = builder().setGlobalQuota(100, 100).build();
+        int granted = 0;
+        for (int i = 0; i < 1000; i++) {
+            granted += limiter.tryAcquire("a") ? 1 : 0;
+        }
+        Assert.assertEquals(100, granted);
+
+        advance(10, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(limiter.tryAcquire("a"));
+        Assert.assertFalse(limiter.tryAcquire("a"));
+        Assert.assertEquals(101, limiter.allowedCount());
+        Assert.assertEquals(901, limiter.rejectedCount());
+    }
+
+    @Test
+    public void guaranteedRateSurvivesNoisyNeighbour() {
+        HierarchicalRateLimiter limiter = builder()
+                .setGlobalQuota(100, 100)
+                .setTenantQuota(tenant -> "vip".equals(tenant) ? Quota.of(10, 10, 1) : Quota.FAIR_SHARE)
+                .build();
+        while (limiter.tryAcquire("noisy")) {
+        }
+        // 全局已经耗尽，vip 的保证速率不受影响
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(limiter.tryAcquire("vip"));
+        }
+        Assert.assertFalse(limiter.tryAcquire("vip"));
+        // vip 使用的令牌也计入全局，全局欠账期间其他租户拿不到
+        advance(50, TimeUnit.MILLISECONDS);
+        Assert.assertFalse(limiter.tryAcquire("noisy"));
+    }
+
+    @Test
+    public void weightedFairShare() {
+        HierarchicalRateLimiter limiter = builder()
+                .setGlobalQuota(1000, 1000)
+                .setTenantQuota(tenant -> Quota.of(0, 0, "a".equals(tenant) ? 3 : 1))
+                .build();
+        Assert.assertTrue(limiter.tryAcquire("a"));
+        Assert.assertTrue(limiter.tryAcquire("b"));
+        drain(limiter, "a", 10_000);
+        drain(limiter, "b", 10_000);
+
+        int a = 0;
+        int b = 0;
+        for (int ms = 0; ms < 1000; ms++) {
+            advance(1, TimeUnit.MILLISECONDS);
+            a += drain(limiter, "a", 10);
+            b += drain(limiter, "b", 10);
+        }
+        Assert.assertEquals(750, a, 40);
+        Assert.assertEquals(250, b, 40);
+
+        // b 不再请求时，a 可以用掉 b 的份额
+        a = 0;
+        for (int ms = 0; ms < 1000; ms++) {
+            advance(1, TimeUnit.MILLISECONDS);
+            a += drain(limiter, "a", 10);
+        }
+        Assert.assertTrue("a=" + a, a > 900);
+    }
+
+    @Test
+    public void apiKeysShareTenantQuota() {
+        HierarchicalRateLimiter limiter = builder()
+                .setGlobalQuota(1000, 1000)
+                .setTenantQuota(tenant -> "t".equals(tenant) ? Quota.of(100, 100, 1) : Quota.FAIR_SHARE)
+                .build();
+        // 其他租户先耗尽全局，t 借不到上级的容量，两个 key 合计只能拿到 t 的保证配额
+        drain(limiter, "noisy", 10_000);
+        int first = drain(limiter, "t", "k1", 1000);
+        Assert.assertEquals(100, first);
+        // k1 用完了租户的配额，k2 分不到
+        Assert.assertFalse(limiter.tryAcquire("t", "k2"));
+        Assert.assertEquals(100, first + drain(limiter, "t", "k2", 1000));
+        Assert.assertEquals(2, limiter.keyCount("t"));
+
+        // 两个 key 都在请求时各得一半左右
+        int k1 = 0;
+        int k2 = 0;
+        for (int ms = 0; ms < 2000; ms++) {
+            advance(1, TimeUnit.MILLISECONDS);
+            k1 += drain(limiter, "t", "k1", 10);
+            k2 += drain(limiter, "t", "k2", 10);
+        }
+        Assert.assertTrue("k1=" + k1 + ", k2=" + k2, Math.abs(k1 - k2) < (k1 + k2) / 5);
+    }
+
+    @Test
+    public void idleTenantsEvicted() {
+        HierarchicalRateLimiter limiter = builder()
+                .setGlobalQuota(1000, 1000)
+                .setIdleTimeout(1, TimeUnit.SECONDS)
+                .setMaximumTenants(2)
+                .build();
+        Assert.assertTrue(limiter.tryAcquire("a"));
+        Assert.assertTrue(limiter.tryAcquire("b"));
+        // 满了，又没有空闲租户，拒绝新租户
+        Assert.assertFalse(limiter.tryAcquire("c"));
+        Assert.assertEquals(2, limiter.tenantCount());
+
+        advance(2, TimeUnit.SECONDS);
+        Assert.assertTrue(limiter.tryAcquire("c"));
+        Assert.assertTrue(limiter.tenantCount() <= 2);
+
+        advance(2, TimeUnit.SECONDS);
+        limiter.cleanUp();
+        Assert.assertEquals(0, limiter.tenantCount());
+    }
+
+    @Test
+    public void acquireWaitsForReservation() throws InterruptedException {
+        HierarchicalRateLimiter limiter = HierarchicalRateLimiterBuilder.newBuilder()
+                .setGlobalQuota(100, 1)
+                .build();
+        Assert.assertTrue(limiter.tryAcquire("a"));
+        Assert.assertFalse(limiter.tryAcquire("a"));
+
+        long start = System.nanoTime();
+        Assert.assertTrue(limiter.acquire("a", null, 1, 1, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(5));
+
+        // 需要等 500ms，超过 timeout，立即返回
+        start = System.nanoTime();
+        Assert.assertFalse(limiter.acquire("a", null, 50, 10, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    private static int drain(HierarchicalRateLimiter limiter, String tenant, int max) {
+        return drain(limiter, tenant, null, max);
+    }
+
+    private static int drain(HierarchicalRateLimiter limiter, String tenant, String key, int max) {
+        int granted = 0;
+        while (granted < max && limiter.tryAcquire(tenant, key)) {
+            granted++;
+        }
+        return granted;
+    }
+}
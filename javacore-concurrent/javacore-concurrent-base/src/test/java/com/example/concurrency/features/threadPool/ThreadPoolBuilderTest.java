@@ -0,0 +1,90 @@
+package com.example.concurrency.features.threadPool;
+
+import io.github.dunwu.javacore.concurrent.current.features.threadPool.HybridThreadPool;
+import io.github.dunwu.javacore.concurrent.current.features.threadPool.ThreadPoolBuilder;
+import io.github.dunwu.javacore.concurrent.current.features.threadPool.ThreadPoolUtil;
+import io.github.dunwu.javacore.concurrent.current.features.threadPool.VirtualThreadPerTaskExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ThreadPoolBuilder 虚拟线程、ForkJoin、混合线程池测试
+ */
+public class ThreadPoolBuilderTest {
+
+    @Test
+    public void virtualThreadPerTaskLimitsConcurrency() throws InterruptedException {
+        VirtualThreadPerTaskExecutor executor = ThreadPoolBuilder.virtualThreadPerTask()
+                .setMaxConcurrency(2).setAcquireTimeoutMillis(0).build();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        started.await();
+        Assert.assertEquals(2, executor.getActiveCount());
+        try {
+            executor.execute(() -> { });
+            Assert.fail("third task should be rejected");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        // 调大并发上限后可以继续提交
+        executor.setMaximumPoolSize(3);
+        executor.execute(() -> { });
+
+        release.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    public void virtualThreadPerTaskCapsPlatformFallback() {
+        VirtualThreadPerTaskExecutor executor = ThreadPoolBuilder.virtualThreadPerTask().setMaxConcurrency(10000).build();
+        // 不支持虚拟线程时退化为平台线程, 并发上限(包括动态调大)不超过PLATFORM_THREAD_MAX_CONCURRENCY
+        int expected = ThreadPoolUtil.isVirtualThreadSupported() ? 10000
+                : VirtualThreadPerTaskExecutor.PLATFORM_THREAD_MAX_CONCURRENCY;
+        Assert.assertEquals(expected, executor.getMaximumPoolSize());
+        executor.setMaximumPoolSize(20000);
+        Assert.assertEquals(ThreadPoolUtil.isVirtualThreadSupported() ? 20000 : expected, executor.getMaximumPoolSize());
+        executor.shutdown();
+    }
+
+    @Test
+    public void forkJoinPoolAsyncMode() throws InterruptedException {
+        ForkJoinPool pool = ThreadPoolBuilder.forkJoinPool().setParallelism(2).setThreadNamePrefix("fj").build();
+        Assert.assertTrue(pool.getAsyncMode());
+        Assert.assertEquals(2, pool.getParallelism());
+        String name = pool.submit(() -> Thread.currentThread().getName()).join();
+        Assert.assertTrue(name.startsWith("fj-"));
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void hybridPoolSplitsBlockingAndCpuTasks() throws Exception {
+        HybridThreadPool pool = ThreadPoolBuilder.hybridPool().setCpuPoolSize(1).setThreadNamePrefix("h").build();
+        AtomicInteger counter = new AtomicInteger();
+        pool.submitBlocking(counter::incrementAndGet).get();
+        String cpuThread = pool.submit(() -> Thread.currentThread().getName()).get();
+        Assert.assertEquals(1, counter.get());
+        Assert.assertTrue(cpuThread.startsWith("h-cpu-"));
+        Assert.assertEquals(1, pool.getBlockingExecutor().getCompletedTaskCount());
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.concurrency.patterns;
+
+import io.github.dunwu.javacore.concurrent.current.features.threadPool.ThreadPoolBuilder;
+import io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue.AbstractRingBlockingQueue;
+import io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue.MpmcArrayBlockingQueue;
+import io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue.MpscArrayBlockingQueue;
+import io.github.dunwu.javacore.concurrent.current.patterns.LockFreeQueue.SpscArrayBlockingQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有界无锁环形队列测试：容量、批量操作、阻塞以及多线程下元素不丢不重
+ */
+public class RingBlockingQueueTest {
+
+    private static final int PER_PRODUCER = 100_000;
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        MpmcArrayBlockingQueue<Integer> queue = new MpmcArrayBlockingQueue<>(5);
+        Assert.assertEquals(8, queue.capacity());
+        for (int i = 0; i < 8; i++) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse(queue.offer(8));
+        Assert.assertEquals(8, queue.size());
+        Assert.assertEquals(0, queue.remainingCapacity());
+        Assert.assertEquals(Integer.valueOf(0), queue.peek());
+        Assert.assertEquals(Integer.valueOf(0), queue.poll());
+        Assert.assertEquals(7, queue.size());
+    }
+
+    @Test
+    public void offerAllAndDrainTo() {
+        for (AbstractRingBlockingQueue<Integer> queue : Arrays.<AbstractRingBlockingQueue<Integer>>asList(
+                new MpmcArrayBlockingQueue<>(8), new MpscArrayBlockingQueue<>(8), new SpscArrayBlockingQueue<>(8))) {
+            Assert.assertEquals(3, queue.offerAll(Arrays.asList(1, 2, 3)));
+            // 只剩 5 个空位
+            Assert.assertEquals(5, queue.offerAll(Arrays.asList(4, 5, 6, 7, 8, 9, 10)));
+            List<Integer> drained = new ArrayList<>();
+            Assert.assertEquals(2, queue.drainTo(drained, 2));
+            Assert.assertEquals(6, queue.drainTo(drained));
+            Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), drained);
+            Assert.assertTrue(queue.isEmpty());
+            Assert.assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void mpmcNoLossNoDuplicate() throws InterruptedException {
+        assertNoLossNoDuplicate(new MpmcArrayBlockingQueue<>(64), 4, 4);
+    }
+
+    @Test
+    public void mpscNoLossNoDuplicate() throws InterruptedException {
+        assertNoLossNoDuplicate(new MpscArrayBlockingQueue<>(64), 4, 1);
+    }
+
+    @Test
+    public void spscNoLossNoDuplicate() throws InterruptedException {
+        assertNoLossNoDuplicate(new SpscArrayBlockingQueue<>(64), 1, 1);
+    }
+
+    @Test
+    public void backsThreadPoolExecutor() throws InterruptedException {
+        ThreadPoolExecutor pool = ThreadPoolBuilder.fixedPool().setPoolSize(4)
+                .setWorkQueue(new MpmcArrayBlockingQueue<>(1024)).build();
+        CountDownLatch latch = new CountDownLatch(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            while (true) {
+                try {
+                    pool.execute(latch::countDown);
+                    break;
+                } catch (RejectedExecutionException e) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void removeCancelsSlot() {
+        for (AbstractRingBlockingQueue<Integer> queue : Arrays.<AbstractRingBlockingQueue<Integer>>asList(
+                new MpmcArrayBlockingQueue<>(8), new MpscArrayBlockingQueue<>(8))) {
+            queue.offerAll(Arrays.asList(1, 2, 3, 4, 5));
+            Assert.assertTrue(queue.remove(3));
+            Assert.assertFalse(queue.remove(3));
+            // 删除队头后 peek 跳过已取消的槽位
+            Assert.assertTrue(queue.remove(1));
+            Assert.assertEquals(Integer.valueOf(2), queue.peek());
+            Assert.assertTrue(queue.removeIf(e -> e == 5));
+            Assert.assertEquals(Arrays.asList(2, 4), new ArrayList<>(queue));
+            List<Integer> drained = new ArrayList<>();
+            queue.drainTo(drained);
+            Assert.assertEquals(Arrays.asList(2, 4), drained);
+            Assert.assertTrue(queue.isEmpty());
+            // 已取消的槽位归还后可以继续写满
+            Assert.assertEquals(8, queue.offerAll(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8)));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void spscRemoveUnsupported() {
+        SpscArrayBlockingQueue<Integer> queue = new SpscArrayBlockingQueue<>(8);
+        queue.offer(1);
+        queue.remove(1);
+    }
+
+    @Test
+    public void mpmcRemoveRacesWithTake() throws InterruptedException {
+        MpmcArrayBlockingQueue<Long> queue = new MpmcArrayBlockingQueue<>(64);
+        int total = PER_PRODUCER;
+        AtomicLong taken = new AtomicLong();
+        AtomicLong removed = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+        Thread producer = new Thread(() -> {
+            try {
+                for (long i = 1; i <= total; i++) {
+                    queue.put(i);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread consumer = new Thread(() -> {
+            while (taken.get() + removed.get() < total) {
+                Long e = queue.poll();
+                if (e != null) {
+                    sum.addAndGet(e);
+                    taken.incrementAndGet();
+                }
+            }
+        });
+        Thread remover = new Thread(() -> {
+            for (long i = 1; i <= total && taken.get() + removed.get() < total; i += 3) {
+                if (queue.remove(i)) {
+                    sum.addAndGet(i);
+                    removed.incrementAndGet();
+                }
+            }
+        });
+        producer.start();
+        consumer.start();
+        remover.start();
+        for (Thread thread : Arrays.asList(producer, consumer, remover)) {
+            thread.join(30_000);
+            Assert.assertFalse("worker did not finish", thread.isAlive());
+        }
+        // 每个元素只被出队或删除一次
+        Assert.assertEquals(total, taken.get() + removed.get());
+        Assert.assertEquals((long) total * (total + 1) / 2, sum.get());
+        Assert.assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void threadPoolExecutorRemoveAndPurge() throws InterruptedException {
+        ThreadPoolExecutor pool = ThreadPoolBuilder.fixedPool().setPoolSize(1)
+                .setWorkQueue(new MpmcArrayBlockingQueue<>(16)).build();
+        CountDownLatch release = new CountDownLatch(1);
+        pool.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runnable queued = () -> { };
+        pool.execute(queued);
+        Assert.assertTrue(pool.remove(queued));
+        Future<?> cancelled = pool.submit(() -> { });
+        Future<?> kept = pool.submit(() -> { });
+        cancelled.cancel(false);
+        pool.purge();
+        Assert.assertEquals(1, pool.getQueue().size());
+
+        List<Runnable> pending = pool.shutdownNow();
+        Assert.assertEquals(1, pending.size());
+        Assert.assertSame(kept, pending.get(0));
+        release.countDown();
+        Assert.assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 每个生产者 put 1..PER_PRODUCER，消费者 take 后求和，总和与个数都要一致
+     */
+    private void assertNoLossNoDuplicate(AbstractRingBlockingQueue<Long> queue, int producers, int consumers)
+            throws InterruptedException {
+        long total = (long) producers * PER_PRODUCER;
+        AtomicLong sum = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (long i = 1; i <= PER_PRODUCER; i++) {
+                        queue.put(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            int share = (int) (total / consumers) + (c == 0 ? (int) (total % consumers) : 0);
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < share; i++) {
+                        sum.addAndGet(queue.take());
+                        count.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+            Assert.assertFalse("worker did not finish", thread.isAlive());
+        }
+        Assert.assertEquals(total, count.get());
+        Assert.assertEquals(producers * ((long) PER_PRODUCER * (PER_PRODUCER + 1) / 2), sum.get());
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
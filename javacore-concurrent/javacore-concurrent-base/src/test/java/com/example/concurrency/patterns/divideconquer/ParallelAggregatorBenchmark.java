@@ -0,0 +1,101 @@
+package com.example.concurrency.patterns.divideconquer;
+
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.LongStatistics;
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.LongTopK;
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.ParallelAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.LongSummaryStatistics;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParallelAggregator 与串行循环、parallelStream 的对比。
+ * <p>
+ * 不是单元测试，通过 main 方法运行：
+ * <pre>
+ * mvn -pl javacore-concurrent/javacore-concurrent-base test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=com.example.concurrency.patterns.divideconquer.ParallelAggregatorBenchmark
+ * </pre>
+ * 取代 ParallelDivideAndConquer#main 中基于 StopWatch 的计时：JMH 负责预热、多次迭代和防止死代码消除。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ParallelAggregatorBenchmark {
+
+    @Param({"1000000", "100000000"})
+    private int size;
+
+    private long[] values;
+
+    @Setup
+    public void setUp() {
+        values = new Random(42).longs(size, 0, 1_000_000_000L).toArray();
+    }
+
+    @Benchmark
+    public long sequentialLoop() {
+        long sum = 0;
+        for (long v : values) {
+            sum += v;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long parallelStreamSum() {
+        return Arrays.stream(values).parallel().sum();
+    }
+
+    @Benchmark
+    public long aggregatorSum() {
+        return ParallelAggregator.common().aggregate(values, LongStatistics::new).getSum();
+    }
+
+    @Benchmark
+    public LongSummaryStatistics parallelStreamStatistics() {
+        return Arrays.stream(values).parallel().summaryStatistics();
+    }
+
+    @Benchmark
+    public LongStatistics aggregatorStatistics() {
+        return ParallelAggregator.common().aggregate(values, LongStatistics::new);
+    }
+
+    @Benchmark
+    public long[] parallelStreamTop100() {
+        return Arrays.stream(values).parallel().boxed()
+                .sorted((a, b) -> Long.compare(b, a)).limit(100).mapToLong(Long::longValue).toArray();
+    }
+
+    @Benchmark
+    public long[] aggregatorTop100() {
+        return ParallelAggregator.common().aggregate(values, () -> new LongTopK(100)).toSortedArray();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ParallelAggregatorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
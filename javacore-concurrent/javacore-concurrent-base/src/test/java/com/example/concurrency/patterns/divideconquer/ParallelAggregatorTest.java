@@ -0,0 +1,103 @@
+package com.example.concurrency.patterns.divideconquer;
+
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.DoubleStatistics;
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.LongHistogram;
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.LongStatistics;
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.LongTopK;
+import io.github.dunwu.javacore.concurrent.current.patterns.divideconquer.ParallelAggregator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * 并行聚合与串行计算结果一致性测试，使用 4 个线程的独立线程池保证确实发生了切分
+ */
+public class ParallelAggregatorTest {
+
+    private static final int SIZE = 1_000_000;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    private final ParallelAggregator aggregator = new ParallelAggregator(pool);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void longStatisticsMatchesSequential() {
+        long[] values = new Random(42).longs(SIZE, -1_000_000, 1_000_000).toArray();
+        LongStatistics stats = aggregator.aggregate(values, LongStatistics::new);
+        java.util.LongSummaryStatistics expected = Arrays.stream(values).summaryStatistics();
+        Assert.assertEquals(expected.getCount(), stats.getCount());
+        Assert.assertEquals(expected.getSum(), stats.getSum());
+        Assert.assertEquals(expected.getMin(), stats.getMin());
+        Assert.assertEquals(expected.getMax(), stats.getMax());
+
+        LongStatistics range = aggregator.aggregate(values, 10, 20, LongStatistics::new);
+        Assert.assertEquals(Arrays.stream(values, 10, 20).sum(), range.getSum());
+    }
+
+    @Test
+    public void doubleStatisticsIsCompensated() {
+        // 一个大数加上一百万个小数，朴素求和会把小数全部舍入掉
+        double[] values = new double[SIZE + 1];
+        values[0] = 1e16;
+        Arrays.fill(values, 1, values.length, 1.0);
+        DoubleStatistics stats = aggregator.aggregate(values, DoubleStatistics::new);
+        Assert.assertEquals(1e16 + SIZE, stats.getSum(), 0.0);
+        Assert.assertEquals(SIZE + 1, stats.getCount());
+        Assert.assertEquals(1.0, stats.getMin(), 0.0);
+        Assert.assertEquals(1e16, stats.getMax(), 0.0);
+    }
+
+    @Test
+    public void histogramAndTopK() {
+        long[] values = LongStream.range(0, SIZE).toArray();
+        long[] bounds = {99, 999, 99_999};
+        LongHistogram histogram = aggregator.aggregate(values, () -> new LongHistogram(bounds));
+        Assert.assertArrayEquals(new long[]{100, 900, 99_000, SIZE - 100_000}, histogram.getCounts());
+        Assert.assertEquals(99, histogram.getValueAtQuantile(0.0));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtQuantile(1.0));
+
+        long[] top = aggregator.aggregate(values, () -> new LongTopK(5)).toSortedArray();
+        Assert.assertArrayEquals(new long[]{SIZE - 1, SIZE - 2, SIZE - 3, SIZE - 4, SIZE - 5}, top);
+    }
+
+    @Test
+    public void spliteratorSources() {
+        LongStatistics range = aggregator.aggregate(LongStream.range(0, SIZE).spliterator(), LongStatistics::new);
+        Assert.assertEquals((long) SIZE * (SIZE - 1) / 2, range.getSum());
+
+        // 大小未知、按批切分的 Spliterator 也能正确聚合
+        LongStatistics iterated = aggregator.aggregate(
+                LongStream.iterate(0, i -> i + 1).limit(SIZE).spliterator(), LongStatistics::new);
+        Assert.assertEquals((long) SIZE * (SIZE - 1) / 2, iterated.getSum());
+
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            words.add("w" + i);
+        }
+        long[] totalLength = aggregator.aggregate(words.spliterator(), () -> new long[1],
+                (acc, w) -> acc[0] += w.length(), (l, r) -> {
+                    l[0] += r[0];
+                    return l;
+                });
+        Assert.assertEquals(words.stream().mapToLong(String::length).sum(), totalLength[0]);
+    }
+
+    @Test
+    public void emptyInput() {
+        LongStatistics stats = aggregator.aggregate(new long[0], LongStatistics::new);
+        Assert.assertEquals(0, stats.getCount());
+        Assert.assertEquals(0, aggregator.aggregate(new long[0], () -> new LongTopK(3)).size());
+    }
+}
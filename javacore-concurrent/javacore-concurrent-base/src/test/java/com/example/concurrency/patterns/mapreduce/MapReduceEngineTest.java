@@ -0,0 +1,138 @@
+package com.example.concurrency.patterns.mapreduce;
+
+import io.github.dunwu.javacore.concurrent.current.patterns.mapreduce.KeyCodec;
+import io.github.dunwu.javacore.concurrent.current.patterns.mapreduce.MapReduceEngine;
+import io.github.dunwu.javacore.concurrent.current.patterns.mapreduce.MapReduceResult;
+import io.github.dunwu.javacore.concurrent.current.patterns.mapreduce.Mapper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * MapReduce 与串行统计结果一致性测试：分片很小，保证记录跨越分片边界；内存上限很小，保证发生溢写
+ */
+public class MapReduceEngineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void wordCountMatchesSequential() throws IOException {
+        Path first = writeWords("first.txt", 20_000, 1);
+        Path second = writeWords("second.txt", 5_000, 2);
+        Map<String, Long> expected = countWords(first, second);
+
+        Path spills = folder.newFolder("spills").toPath();
+        MapReduceResult<String> result = new MapReduceEngine(pool)
+            .splitSize(4096)
+            .partitions(8)
+            .maxKeysInMemory(100)
+            .spillDirectory(spills)
+            .run(Arrays.asList(first, second), MapReduceEngine.wordCountMapper(), Long::sum, KeyCodec.UTF8);
+
+        Assert.assertEquals(expected, result.toMap());
+        Assert.assertEquals(expected.size(), result.size());
+        Assert.assertEquals(expected.get("w7").longValue(), result.get("w7", 0));
+        Assert.assertEquals(0, Files.list(spills).count());
+    }
+
+    @Test
+    public void finishedMapTasksSpillBeyondBudget() throws IOException {
+        Path input = writeWords("input.txt", 20_000, 3);
+        Path spills = folder.newFolder("spills").toPath();
+        // 单个分片远小于上限，不会在 map 过程中溢写；但上百个分片留给 reduce 的合计超出上限，结束的任务要溢写
+        AtomicBoolean spilled = new AtomicBoolean();
+        Mapper<String> words = MapReduceEngine.wordCountMapper();
+        MapReduceResult<String> result = new MapReduceEngine(pool)
+            .splitSize(4096)
+            .maxKeysInMemory(2_000)
+            .spillDirectory(spills)
+            .run(Collections.singletonList(input), (record, emitter) -> {
+                if (!spilled.get()) {
+                    try (Stream<Path> files = Files.list(spills)) {
+                        spilled.compareAndSet(false, files.findAny().isPresent());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                words.map(record, emitter);
+            }, Long::sum, KeyCodec.UTF8);
+
+        Assert.assertTrue(spilled.get());
+        Assert.assertEquals(countWords(input), result.toMap());
+        Assert.assertEquals(0, Files.list(spills).count());
+    }
+
+    @Test
+    public void emptyInputAndMaxReducer() throws IOException {
+        Path empty = folder.newFile("empty.txt").toPath();
+        Path numbers = folder.newFile("numbers.txt").toPath();
+        Files.write(numbers, Arrays.asList("a 3", "b 5", "a 9", "", "b 1"), StandardCharsets.UTF_8);
+        MapReduceResult<String> result = new MapReduceEngine(pool).run(Arrays.asList(empty, numbers),
+            (record, emitter) -> {
+                String line = StandardCharsets.UTF_8.decode(record).toString();
+                if (!line.isEmpty()) {
+                    String[] kv = line.split(" ");
+                    emitter.emit(kv[0], Long.parseLong(kv[1]));
+                }
+            }, Math::max, KeyCodec.UTF8);
+        Assert.assertEquals(9, result.get("a", 0));
+        Assert.assertEquals(5, result.get("b", 0));
+        Assert.assertFalse(result.containsKey("c"));
+    }
+
+    private static Map<String, Long> countWords(Path... files) throws IOException {
+        Map<String, Long> counts = new HashMap<>();
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                for (String word : line.trim().split("\\s+")) {
+                    if (!word.isEmpty()) {
+                        counts.merge(word, 1L, Long::sum);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    private Path writeWords(String name, int lines, long seed) throws IOException {
+        Path file = folder.newFile(name).toPath();
+        Random random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                int words = random.nextInt(12);
+                for (int j = 0; j < words; j++) {
+                    writer.write(j == 0 ? "" : random.nextBoolean() ? " " : "\t");
+                    // 长尾分布，既有高频词也有大量只出现一次的词
+                    writer.write(random.nextInt(4) == 0 ? "词" + random.nextInt(5000) : "w" + random.nextInt(50));
+                }
+                writer.write(random.nextInt(10) == 0 ? "\r\n" : "\n");
+            }
+        }
+        return file;
+    }
+}
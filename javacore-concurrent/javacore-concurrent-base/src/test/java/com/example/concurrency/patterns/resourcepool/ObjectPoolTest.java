@@ -0,0 +1,270 @@
+package com.example.concurrency.patterns.resourcepool;
+
+import io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.ObjectPool;
+import io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.ObjectPoolBuilder;
+import io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.PoolStats;
+import io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.PooledObject;
+import io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.PooledObjectFactory;
+import io.github.dunwu.javacore.concurrent.current.patterns.resourcepool.ResourcePool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对象池测试：上限与超时、交接、预热与驱逐、校验、泄漏检测、并发独占
+ */
+public class ObjectPoolTest {
+
+    @Test
+    public void boundedAndTimeout() throws Exception {
+        ObjectPool<Resource> pool = ObjectPoolBuilder.newBuilder(new ResourceFactory())
+                .setMaximumSize(2)
+                .build();
+        PooledObject<Resource> a = pool.borrow(0, TimeUnit.MILLISECONDS);
+        PooledObject<Resource> b = pool.borrow(0, TimeUnit.MILLISECONDS);
+        try {
+            pool.borrow(50, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (TimeoutException expected) {
+        }
+        Resource first = a.get();
+        a.close();
+        a.close();
+        try (PooledObject<Resource> c = pool.borrow(0, TimeUnit.MILLISECONDS)) {
+            Assert.assertSame(first, c.get());
+        }
+        b.close();
+        PoolStats stats = pool.stats();
+        Assert.assertEquals(2, stats.createCount());
+        Assert.assertEquals(3, stats.borrowCount());
+        Assert.assertEquals(1, stats.timeoutCount());
+        Assert.assertEquals(2, stats.idleCount());
+        Assert.assertEquals(0, stats.activeCount());
+        pool.close();
+    }
+
+    @Test
+    public void releaseHandsOffToWaiter() throws Exception {
+        ObjectPool<Resource> pool = ObjectPoolBuilder.newBuilder(new ResourceFactory()).setMaximumSize(1).build();
+        PooledObject<Resource> held = pool.borrow();
+        Resource resource = held.get();
+        CompletableFuture<Resource> waiter = CompletableFuture.supplyAsync(() -> {
+            try (PooledObject<Resource> object = pool.borrow(5, TimeUnit.SECONDS)) {
+                return object.get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitWaiters(pool, 1);
+        held.close();
+        Assert.assertSame(resource, waiter.get(5, TimeUnit.SECONDS));
+        pool.close();
+    }
+
+    @Test
+    public void invalidateFreesSlotForWaiter() throws Exception {
+        ResourceFactory factory = new ResourceFactory();
+        ObjectPool<Resource> pool = ObjectPoolBuilder.newBuilder(factory).setMaximumSize(1).build();
+        PooledObject<Resource> broken = pool.borrow();
+        CompletableFuture<Resource> waiter = CompletableFuture.supplyAsync(() -> {
+            try (PooledObject<Resource> object = pool.borrow(5, TimeUnit.SECONDS)) {
+                return object.get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitWaiters(pool, 1);
+        Resource old = broken.get();
+        broken.invalidate();
+        Resource replacement = waiter.get(5, TimeUnit.SECONDS);
+        Assert.assertNotSame(old, replacement);
+        Assert.assertTrue(old.destroyed);
+        Assert.assertEquals(2, factory.created.get());
+        pool.close();
+    }
+
+    @Test
+    public void minIdlePrewarmAndIdleEviction() throws Exception {
+        AtomicLong ticker = new AtomicLong();
+        ObjectPool<Resource> pool = ObjectPoolBuilder.newBuilder(new ResourceFactory())
+                .setMaximumSize(5)
+                .setMinIdle(2)
+                .setIdleTimeout(1, TimeUnit.MINUTES)
+                .setHousekeepingPeriod(0, TimeUnit.SECONDS)
+                .setTicker(ticker::get)
+                .build();
+        Assert.assertEquals(2, pool.stats().idleCount());
+
+        List<PooledObject<Resource>> borrowed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            borrowed.add(pool.borrow(0, TimeUnit.MILLISECONDS));
+        }
+        borrowed.forEach(PooledObject::close);
+        Assert.assertEquals(5, pool.stats().totalCount());
+
+        ticker.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        pool.evict();
+        PoolStats stats = pool.stats();
+        Assert.assertEquals(2, stats.totalCount());
+        Assert.assertEquals(2, stats.idleCount());
+        Assert.assertEquals(3, stats.destroyCount());
+        pool.close();
+        Assert.assertEquals(0, pool.stats().totalCount());
+    }
+
+    @Test
+    public void invalidObjectsAreDiscarded() throws Exception {
+        ObjectPool<Resource> pool = ObjectPoolBuilder.newBuilder(new ResourceFactory())
+                .setMaximumSize(2)
+                .setTestOnBorrow(true)
+                .setTestWhileIdle(true)
+                .setHousekeepingPeriod(0, TimeUnit.SECONDS)
+                .build();
+        Resource first;
+        try (PooledObject<Resource> object = pool.borrow()) {
+            first = object.get();
+        }
+        first.valid = false;
+        try (PooledObject<Resource> object = pool.borrow()) {
+            Assert.assertNotSame(first, object.get());
+            Assert.assertTrue(first.destroyed);
+        }
+
+        Resource second;
+        try (PooledObject<Resource> object = pool.borrow()) {
+            second = object.get();
+        }
+        second.valid = false;
+        pool.evict();
+        Assert.assertTrue(second.destroyed);
+        Assert.assertEquals(0, pool.stats().totalCount());
+        Assert.assertEquals(2, pool.stats().validationFailureCount());
+        pool.close();
+    }
+
+    @Test
+    public void leakDetection() throws Exception {
+        AtomicLong ticker = new AtomicLong();
+        ObjectPool<Resource> pool = ObjectPoolBuilder.newBuilder(new ResourceFactory())
+                .setLeakDetectionThreshold(1, TimeUnit.SECONDS)
+                .setHousekeepingPeriod(0, TimeUnit.SECONDS)
+                .setTicker(ticker::get)
+                .build();
+        PooledObject<Resource> leaked = pool.borrow();
+        try (PooledObject<Resource> ok = pool.borrow()) {
+            ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+            pool.evict();
+            Assert.assertEquals(0, pool.stats().leakCount());
+        }
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        pool.evict();
+        pool.evict();
+        Assert.assertEquals(1, pool.stats().leakCount());
+        leaked.close();
+        pool.close();
+    }
+
+    @Test
+    public void concurrentBorrowersNeverShareAnObject() throws InterruptedException {
+        ResourceFactory factory = new ResourceFactory();
+        ObjectPool<Resource> pool = ObjectPoolBuilder.newBuilder(factory).setMaximumSize(4).build();
+        AtomicInteger violations = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    try (PooledObject<Resource> object = pool.borrow(5, TimeUnit.SECONDS)) {
+                        Resource resource = object.get();
+                        if (!resource.inUse.compareAndSet(false, true)) {
+                            violations.incrementAndGet();
+                        }
+                        if (i % 100 == 0) {
+                            Thread.yield();
+                        }
+                        resource.inUse.set(false);
+                    } catch (Exception e) {
+                        violations.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        PoolStats stats = pool.stats();
+        Assert.assertEquals(0, violations.get());
+        Assert.assertEquals(80_000, stats.borrowCount());
+        Assert.assertTrue(factory.created.get() <= 4);
+        Assert.assertEquals(stats.totalCount(), stats.idleCount());
+        pool.close();
+    }
+
+    @Test
+    public void resourcePoolPermitsLimitBorrowers() throws Exception {
+        ResourcePool<Integer> pool = new ResourcePool<>(2, Arrays.asList(1, 2));
+        Integer a = pool.get(0);
+        Integer b = pool.get(0);
+        try {
+            pool.get(0);
+            Assert.fail();
+        } catch (TimeoutException expected) {
+        }
+        pool.release(a);
+        Assert.assertEquals(a, pool.get(0));
+        Assert.assertNotEquals(a, b);
+    }
+
+    private static void awaitWaiters(ObjectPool<?> pool, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.stats().waitingCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // 等待者登记后还要扫描一轮才阻塞在交接队列上
+        Thread.sleep(50);
+    }
+
+    static final class Resource {
+
+        final int id;
+
+        final AtomicBoolean inUse = new AtomicBoolean();
+
+        volatile boolean valid = true;
+
+        volatile boolean destroyed;
+
+        Resource(int id) {
+            this.id = id;
+        }
+    }
+
+    static final class ResourceFactory implements PooledObjectFactory<Resource> {
+
+        final AtomicInteger created = new AtomicInteger();
+
+        @Override
+        public Resource create() {
+            return new Resource(created.incrementAndGet());
+        }
+
+        @Override
+        public boolean validate(Resource object) {
+            return object.valid;
+        }
+
+        @Override
+        public void destroy(Resource object) {
+            object.destroyed = true;
+        }
+    }
+}
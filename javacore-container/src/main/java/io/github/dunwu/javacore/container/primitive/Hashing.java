@@ -0,0 +1,65 @@
+package io.github.dunwu.javacore.container.primitive;
+
+/**
+ * 开放寻址哈希表共用的散列函数和容量计算
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+final class Hashing {
+
+    /**
+     * 默认装载因子。线性探测在 0.75 以上时探测长度增长很快
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private static final int INT_PHI = 0x9E3779B9;
+
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    private Hashing() {}
+
+    /**
+     * 连续的整数 key（ID、下标）直接取低位会挤在一起，乘以黄金分割常数再把高位折叠下来，线性探测对此很敏感
+     */
+    static int mix(int x) {
+        int h = x * INT_PHI;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long x) {
+        long h = x * LONG_PHI;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * 放下 expected 个元素且不超过装载因子所需的最小 2 的幂容量
+     */
+    static int arraySize(int expected, float loadFactor) {
+        long needed = (long) Math.ceil(expected / (double) loadFactor);
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too large (" + expected + " expected elements with load factor "
+                + loadFactor + ")");
+        }
+        return Math.max(2, nextPowerOfTwo((int) needed));
+    }
+
+    /**
+     * 容量为 capacity 时最多存放的元素数，至少留一个空槽，保证探测一定能结束
+     */
+    static int maxFill(int capacity, float loadFactor) {
+        return Math.min((int) Math.ceil(capacity * loadFactor), capacity - 1);
+    }
+
+    static void checkLoadFactor(float loadFactor) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        }
+    }
+
+    private static int nextPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+}
@@ -0,0 +1,418 @@
+package io.github.dunwu.javacore.container.primitive;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * key 为 int 的哈希表，方法与 {@link java.util.HashMap} 对应。
+ * <p>
+ * key 和 value 分别存在 int[] 和 Object[] 中，开放寻址、线性探测，没有 HashMap.Node 和 Integer 对象；
+ * 查找时先比较 int[] 中的 key，命中后才访问 value。value 可以为 null，与 HashMap 一样用 {@link #containsKey} 区分。
+ * <p>
+ * 0 用来表示空槽，key 为 0 的映射单独存放；删除时前移后续元素，不留墓碑。不是线程安全的。
+ *
+ * @param <V> value 的类型
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+public class Int2ObjectOpenHashMap<V> {
+
+    private final float loadFactor;
+
+    private int[] keys;
+
+    private Object[] values;
+
+    private boolean containsZeroKey;
+
+    private V zeroValue;
+
+    /**
+     * 映射个数，包括 key 为 0 的映射
+     */
+    private int size;
+
+    private int mask;
+
+    private int maxFill;
+
+    /**
+     * 槽位布局（插入、删除、扩容、清空）的修改次数，{@link #computeIfAbsent} 用来判断探测到的槽位是否失效
+     */
+    private int modCount;
+
+    public Int2ObjectOpenHashMap() {
+        this(16, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    public Int2ObjectOpenHashMap(int expectedSize) {
+        this(expectedSize, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    public Int2ObjectOpenHashMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+        Hashing.checkLoadFactor(loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(Hashing.arraySize(expectedSize, loadFactor));
+    }
+
+    /**
+     * 遍历映射的回调，key 不装箱
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(int key, V value);
+    }
+
+    // ------------------------------------------------------------------ 读取
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return key 对应的值，不存在时返回 null
+     */
+    public V get(int key) {
+        return getOrDefault(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(int key, V defaultValue) {
+        if (key == 0) {
+            return containsZeroKey ? zeroValue : defaultValue;
+        }
+        int pos = find(key);
+        return pos >= 0 ? (V) values[pos] : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? containsZeroKey : find(key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        if (containsZeroKey && Objects.equals(zeroValue, value)) {
+            return true;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && Objects.equals(values[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------ 修改
+
+    /**
+     * @return 原来的值，原来没有映射时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            zeroValue = value;
+            if (!containsZeroKey) {
+                containsZeroKey = true;
+                size++;
+                return null;
+            }
+            return old;
+        }
+        int pos = Hashing.mix(key) & mask;
+        int current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                V old = (V) values[pos];
+                values[pos] = value;
+                return old;
+            }
+            pos = (pos + 1) & mask;
+        }
+        insert(pos, key, value);
+        return null;
+    }
+
+    /**
+     * key 没有映射（或映射到 null）时放入 value
+     *
+     * @return 原来的值
+     */
+    public V putIfAbsent(int key, V value) {
+        V old = get(key);
+        if (old == null) {
+            put(key, value);
+        }
+        return old;
+    }
+
+    /**
+     * key 没有映射（或映射到 null）时用 mappingFunction 计算并放入，计算结果为 null 时不放入。
+     * mappingFunction 没有修改这个 map 时只探测一次；修改了槽位布局（例如递归计算其他 key）时探测到的槽位可能已经失效，
+     * 计算结果按 {@link #put} 重新探测后放入
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+        if (key == 0) {
+            if (containsZeroKey && zeroValue != null) {
+                return zeroValue;
+            }
+            V value = mappingFunction.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+            return value;
+        }
+        int pos = Hashing.mix(key) & mask;
+        int current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                if (values[pos] != null) {
+                    return (V) values[pos];
+                }
+                break;
+            }
+            pos = (pos + 1) & mask;
+        }
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        if (value == null) {
+            return null;
+        }
+        if (modCount != expectedModCount) {
+            put(key, value);
+        } else if (keys[pos] == key) {
+            values[pos] = value;
+        } else {
+            insert(pos, key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return 被删除的值，原来没有映射时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == 0) {
+            if (!containsZeroKey) {
+                return null;
+            }
+            V old = zeroValue;
+            containsZeroKey = false;
+            zeroValue = null;
+            size--;
+            return old;
+        }
+        int pos = find(key);
+        if (pos < 0) {
+            return null;
+        }
+        V old = (V) values[pos];
+        size--;
+        shiftKeys(pos);
+        return old;
+    }
+
+    /**
+     * 清空映射，保留已分配的数组
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        containsZeroKey = false;
+        zeroValue = null;
+        size = 0;
+        modCount++;
+    }
+
+    // ------------------------------------------------------------------ 批量操作
+
+    public void putAll(Int2ObjectOpenHashMap<? extends V> other) {
+        ensureCapacity(size + other.size);
+        other.forEach(this::put);
+    }
+
+    /**
+     * 复制所有 key 为数组，顺序不确定
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int i = 0;
+        if (containsZeroKey) {
+            result[i++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------ 遍历
+
+    /**
+     * 不分配迭代器和 Entry 的遍历，顺序不确定
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (containsZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        int[] keys = this.keys;
+        Object[] values = this.values;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ 容量
+
+    /**
+     * 预留 expectedSize 个映射的空间，之后添加到这个数量之前不会再扩容
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = Hashing.arraySize(expectedSize, loadFactor);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    private int find(int key) {
+        int[] keys = this.keys;
+        int pos = Hashing.mix(key) & mask;
+        int current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int pos, int key, V value) {
+        keys[pos] = key;
+        values[pos] = value;
+        modCount++;
+        if (++size > maxFill) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        maxFill = Hashing.maxFill(capacity, loadFactor);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        modCount++;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int pos = Hashing.mix(key) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * 删除 pos 处的映射并前移后续元素，见 {@link LongHashSet} 中的同名方法
+     */
+    private void shiftKeys(int pos) {
+        modCount++;
+        int[] keys = this.keys;
+        Object[] values = this.values;
+        for (;;) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            int current;
+            for (;;) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    values[last] = null;
+                    return;
+                }
+                int slot = Hashing.mix(current) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    // ------------------------------------------------------------------ Object
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Int2ObjectOpenHashMap)) {
+            return false;
+        }
+        Int2ObjectOpenHashMap<?> other = (Int2ObjectOpenHashMap<?>) o;
+        if (size != other.size) {
+            return false;
+        }
+        if (containsZeroKey && !(other.containsZeroKey && Objects.equals(zeroValue, other.zeroValue))) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            int key = keys[i];
+            if (key != 0) {
+                int pos = other.find(key);
+                if (pos < 0 || !Objects.equals(values[i], other.values[pos])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与内容相同的 Map&lt;Integer, V&gt; 的 hashCode 相等
+     */
+    @Override
+    public int hashCode() {
+        int h = containsZeroKey ? Objects.hashCode(zeroValue) : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                h += keys[i] ^ Objects.hashCode(values[i]);
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> sb.append(sb.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return sb.append('}').toString();
+    }
+}
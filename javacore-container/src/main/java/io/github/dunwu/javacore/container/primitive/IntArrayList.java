@@ -0,0 +1,343 @@
+package io.github.dunwu.javacore.container.primitive;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * 元素为 int 的动态数组，方法与 {@link java.util.ArrayList} 对应。
+ * <p>
+ * ArrayList&lt;Integer&gt; 的每个元素是一个引用加一个 16 字节的 Integer 对象（-128~127 以外），
+ * 这里每个元素只占 4 字节，遍历时是连续的内存访问，没有指针跳转，也不产生装箱垃圾。
+ * <p>
+ * 与 List 接口的差异：{@link #remove(int)} 按下标删除，按值删除是 {@link #removeValue(int)}，避免 remove(int) 和 remove(Object) 的歧义。
+ * 不是线程安全的，也不做 fail-fast 检查。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+public class IntArrayList {
+
+    private static final int[] EMPTY = {};
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private int[] elements;
+
+    private int size;
+
+    public IntArrayList() {
+        this.elements = EMPTY;
+    }
+
+    public IntArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        this.elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    /**
+     * 复制 values 创建列表
+     */
+    public static IntArrayList of(int... values) {
+        IntArrayList list = new IntArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    // ------------------------------------------------------------------ 读取
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    public int indexOf(int value) {
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int lastIndexOf(int value) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (elements[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ------------------------------------------------------------------ 修改
+
+    public boolean add(int value) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = value;
+        return true;
+    }
+
+    public void add(int index, int value) {
+        checkPositionIndex(index);
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    /**
+     * @return 原来的值
+     */
+    public int set(int index, int value) {
+        checkIndex(index);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    /**
+     * 删除下标 index 处的元素
+     *
+     * @return 被删除的值
+     */
+    public int remove(int index) {
+        checkIndex(index);
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    /**
+     * 删除第一个等于 value 的元素
+     */
+    public boolean removeValue(int value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    /**
+     * 删除所有满足条件的元素，只移动一遍数组
+     */
+    public boolean removeIf(IntPredicate filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int value = elements[i];
+            if (!filter.test(value)) {
+                elements[kept++] = value;
+            }
+        }
+        boolean modified = kept != size;
+        size = kept;
+        return modified;
+    }
+
+    public void replaceAll(IntUnaryOperator operator) {
+        for (int i = 0; i < size; i++) {
+            elements[i] = operator.applyAsInt(elements[i]);
+        }
+    }
+
+    /**
+     * 清空元素，保留已分配的数组
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    // ------------------------------------------------------------------ 批量操作
+
+    public boolean addAll(int... values) {
+        return addAll(values, 0, values.length);
+    }
+
+    public boolean addAll(int[] values, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > values.length) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", array length: "
+                + values.length);
+        }
+        ensureCapacity(size + length);
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+        return length > 0;
+    }
+
+    public boolean addAll(IntArrayList other) {
+        return addAll(other.elements, 0, other.size);
+    }
+
+    /**
+     * 把 [from, to) 的元素复制到 dest 的 destOffset 处
+     */
+    public void getElements(int from, int to, int[] dest, int destOffset) {
+        if (from < 0 || from > to || to > size) {
+            throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+        }
+        System.arraycopy(elements, from, dest, destOffset, to - from);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    public void sort() {
+        Arrays.sort(elements, 0, size);
+    }
+
+    /**
+     * 在已排序的列表中二分查找，未找到时返回 -(插入位置) - 1，与 {@link Arrays#binarySearch(int[], int)} 相同
+     */
+    public int binarySearch(int value) {
+        return Arrays.binarySearch(elements, 0, size, value);
+    }
+
+    // ------------------------------------------------------------------ 遍历
+
+    /**
+     * 不分配迭代器的遍历
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(elements[i]);
+        }
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+
+            private int cursor;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (cursor >= size) {
+                    throw new NoSuchElementException();
+                }
+                return elements[cursor++];
+            }
+        };
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(elements, 0, size);
+    }
+
+    // ------------------------------------------------------------------ 容量
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * 把数组缩小到元素个数
+     */
+    public void trimToSize() {
+        if (elements.length > size) {
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    /**
+     * 与 ArrayList 相同，按 1.5 倍扩容
+     */
+    private void grow(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError("Required array size too large");
+        }
+        int oldCapacity = elements.length;
+        int newCapacity = Math.max(oldCapacity + (oldCapacity >> 1), Math.max(minCapacity, DEFAULT_CAPACITY));
+        if (newCapacity < 0 || newCapacity > Integer.MAX_VALUE - 8) {
+            newCapacity = Math.max(minCapacity, Integer.MAX_VALUE - 8);
+        }
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    // ------------------------------------------------------------------ Object
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntArrayList)) {
+            return false;
+        }
+        IntArrayList other = (IntArrayList) o;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (elements[i] != other.elements[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与内容相同的 List&lt;Integer&gt; 的 hashCode 相等
+     */
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) {
+            h = 31 * h + elements[i];
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,426 @@
+package io.github.dunwu.javacore.container.primitive;
+
+import java.util.Arrays;
+
+/**
+ * key 和 value 都是 long 的哈希表，方法与 {@link java.util.HashMap} 对应，常用于 ID → 计数、ID → 时间戳。
+ * <p>
+ * key 和 value 分别存在两个 long[] 中，开放寻址、线性探测。HashMap&lt;Long, Long&gt; 的每个映射需要
+ * 一个 Node（32 字节）和两个 Long（各 16 字节），这里装载因子 0.75 时每个映射占 21~42 字节（随数组的填充程度变化），
+ * 累加计数不产生任何垃圾（见 {@link #addTo}）。
+ * <p>
+ * 值是基本类型，没有 null，key 不存在时 {@link #get}、{@link #put}、{@link #remove} 返回 {@link #defaultReturnValue()}（默认为 0），
+ * 需要区分时使用 {@link #containsKey}。0 用来表示空槽，key 为 0 的映射单独存放；删除时前移后续元素，不留墓碑。不是线程安全的。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+public class Long2LongMap {
+
+    private final float loadFactor;
+
+    private long[] keys;
+
+    private long[] values;
+
+    private boolean containsZeroKey;
+
+    private long zeroValue;
+
+    /**
+     * 映射个数，包括 key 为 0 的映射
+     */
+    private int size;
+
+    private int mask;
+
+    private int maxFill;
+
+    private long defaultReturnValue;
+
+    public Long2LongMap() {
+        this(16, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    public Long2LongMap(int expectedSize) {
+        this(expectedSize, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    public Long2LongMap(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+        Hashing.checkLoadFactor(loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(Hashing.arraySize(expectedSize, loadFactor));
+    }
+
+    /**
+     * 遍历映射的回调，key 和 value 都不装箱
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(long key, long value);
+    }
+
+    /**
+     * key 不存在时 get、put、remove 的返回值
+     */
+    public long defaultReturnValue() {
+        return defaultReturnValue;
+    }
+
+    public Long2LongMap defaultReturnValue(long defaultReturnValue) {
+        this.defaultReturnValue = defaultReturnValue;
+        return this;
+    }
+
+    // ------------------------------------------------------------------ 读取
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(long key) {
+        return getOrDefault(key, defaultReturnValue);
+    }
+
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == 0) {
+            return containsZeroKey ? zeroValue : defaultValue;
+        }
+        int pos = find(key);
+        return pos >= 0 ? values[pos] : defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? containsZeroKey : find(key) >= 0;
+    }
+
+    public boolean containsValue(long value) {
+        if (containsZeroKey && zeroValue == value) {
+            return true;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------ 修改
+
+    /**
+     * @return 原来的值，原来没有映射时返回 {@link #defaultReturnValue()}
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long old = containsZeroKey ? zeroValue : defaultReturnValue;
+            if (!containsZeroKey) {
+                containsZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int pos = Hashing.mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                long old = values[pos];
+                values[pos] = value;
+                return old;
+            }
+            pos = (pos + 1) & mask;
+        }
+        insert(pos, key, value);
+        return defaultReturnValue;
+    }
+
+    /**
+     * key 不存在时放入 value
+     *
+     * @return 原来的值，原来没有映射时返回 {@link #defaultReturnValue()}
+     */
+    public long putIfAbsent(long key, long value) {
+        if (containsKey(key)) {
+            return get(key);
+        }
+        put(key, value);
+        return defaultReturnValue;
+    }
+
+    /**
+     * 把 increment 加到 key 的值上，key 不存在时从 {@link #defaultReturnValue()} 开始加，只探测一次。
+     * 相当于 map.merge(key, increment, Long::sum)，但不装箱
+     *
+     * @return 原来的值
+     */
+    public long addTo(long key, long increment) {
+        if (key == 0) {
+            long old = containsZeroKey ? zeroValue : defaultReturnValue;
+            if (!containsZeroKey) {
+                containsZeroKey = true;
+                size++;
+            }
+            zeroValue = old + increment;
+            return old;
+        }
+        int pos = Hashing.mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                long old = values[pos];
+                values[pos] = old + increment;
+                return old;
+            }
+            pos = (pos + 1) & mask;
+        }
+        insert(pos, key, defaultReturnValue + increment);
+        return defaultReturnValue;
+    }
+
+    /**
+     * @return 被删除的值，原来没有映射时返回 {@link #defaultReturnValue()}
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!containsZeroKey) {
+                return defaultReturnValue;
+            }
+            containsZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int pos = find(key);
+        if (pos < 0) {
+            return defaultReturnValue;
+        }
+        long old = values[pos];
+        size--;
+        shiftKeys(pos);
+        return old;
+    }
+
+    /**
+     * 清空映射，保留已分配的数组
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, 0);
+        containsZeroKey = false;
+        size = 0;
+    }
+
+    // ------------------------------------------------------------------ 批量操作
+
+    public void putAll(Long2LongMap other) {
+        ensureCapacity(size + other.size);
+        other.forEach(this::put);
+    }
+
+    /**
+     * 把 keys[i] → values[i] 逐个放入
+     */
+    public void putAll(long[] keys, long[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys.length " + keys.length + " != values.length " + values.length);
+        }
+        ensureCapacity(size + keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * 复制所有 key 为数组，顺序与 {@link #values()} 一致
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsZeroKey) {
+            result[i++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 复制所有 value 为数组，顺序与 {@link #keys()} 一致
+     */
+    public long[] values() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsZeroKey) {
+            result[i++] = zeroValue;
+        }
+        for (int pos = 0; pos < keys.length; pos++) {
+            if (keys[pos] != 0) {
+                result[i++] = values[pos];
+            }
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------ 遍历
+
+    /**
+     * 不分配迭代器和 Entry 的遍历，顺序不确定
+     */
+    public void forEach(EntryConsumer action) {
+        if (containsZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        long[] keys = this.keys;
+        long[] values = this.values;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ 容量
+
+    /**
+     * 预留 expectedSize 个映射的空间，之后添加到这个数量之前不会再扩容
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = Hashing.arraySize(expectedSize, loadFactor);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    private int find(long key) {
+        long[] keys = this.keys;
+        int pos = Hashing.mix(key) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == key) {
+                return pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int pos, long key, long value) {
+        keys[pos] = key;
+        values[pos] = value;
+        if (++size > maxFill) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        maxFill = Hashing.maxFill(capacity, loadFactor);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int pos = Hashing.mix(key) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = key;
+                values[pos] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * 删除 pos 处的映射并前移后续元素，见 {@link LongHashSet} 中的同名方法
+     */
+    private void shiftKeys(int pos) {
+        long[] keys = this.keys;
+        long[] values = this.values;
+        for (;;) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            for (;;) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                int slot = Hashing.mix(current) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+            values[last] = values[pos];
+        }
+    }
+
+    // ------------------------------------------------------------------ Object
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Long2LongMap)) {
+            return false;
+        }
+        Long2LongMap other = (Long2LongMap) o;
+        if (size != other.size) {
+            return false;
+        }
+        if (containsZeroKey && !(other.containsZeroKey && zeroValue == other.zeroValue)) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != 0) {
+                int pos = other.find(key);
+                if (pos < 0 || values[i] != other.values[pos]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与内容相同的 Map&lt;Long, Long&gt; 的 hashCode 相等
+     */
+    @Override
+    public int hashCode() {
+        int h = containsZeroKey ? Long.hashCode(zeroValue) : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                h += Long.hashCode(keys[i]) ^ Long.hashCode(values[i]);
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> sb.append(sb.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,373 @@
+package io.github.dunwu.javacore.container.primitive;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * 元素为 long 的哈希集合，方法与 {@link java.util.HashSet} 对应。
+ * <p>
+ * HashSet&lt;Long&gt; 的每个元素是一个 HashMap.Node（32 字节）加一个 Long（16 字节）再加上桶数组中的引用，
+ * 这里用开放寻址、线性探测，所有元素直接存在一个 long[] 中，查找时只访问一个数组。数组长度取 2 的幂，
+ * 装载因子 0.75 时每个元素占 10.7~21 字节（刚好装满时最少，刚扩容后最多），HashSet&lt;Long&gt; 约 55~66 字节。
+ * <p>
+ * 0 用来表示空槽，集合中的 0 单独用一个标志位记录。删除时把同一探测链上后面的元素前移（backward shift），不留墓碑，
+ * 删除很多元素之后查找也不会变慢。不是线程安全的。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+public class LongHashSet {
+
+    private final float loadFactor;
+
+    private long[] keys;
+
+    private boolean containsZero;
+
+    /**
+     * 元素个数，包括 0
+     */
+    private int size;
+
+    private int mask;
+
+    private int maxFill;
+
+    public LongHashSet() {
+        this(16, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongHashSet(int expectedSize) {
+        this(expectedSize, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongHashSet(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+        Hashing.checkLoadFactor(loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(Hashing.arraySize(expectedSize, loadFactor));
+    }
+
+    public static LongHashSet of(long... values) {
+        LongHashSet set = new LongHashSet(values.length);
+        set.addAll(values);
+        return set;
+    }
+
+    // ------------------------------------------------------------------ 读取
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        long[] keys = this.keys;
+        int pos = Hashing.mix(value) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == value) {
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------ 修改
+
+    /**
+     * @return 集合中原来没有 value 时返回 true
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int pos = Hashing.mix(value) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == value) {
+                return false;
+            }
+            pos = (pos + 1) & mask;
+        }
+        keys[pos] = value;
+        if (++size > maxFill) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int pos = Hashing.mix(value) & mask;
+        long current;
+        while ((current = keys[pos]) != 0) {
+            if (current == value) {
+                size--;
+                shiftKeys(pos);
+                return true;
+            }
+            pos = (pos + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 删除所有满足条件的元素。删除时后面的元素可能前移到已经检查过的位置，filter 可能对同一个元素调用多次，应当是无副作用的
+     */
+    public boolean removeIf(LongPredicate filter) {
+        int before = size;
+        if (containsZero && filter.test(0)) {
+            containsZero = false;
+            size--;
+        }
+        long[] keys = this.keys;
+        for (int pos = 0; pos < keys.length; ) {
+            long current = keys[pos];
+            if (current != 0 && filter.test(current)) {
+                size--;
+                // 前移后当前位置可能换成了另一个元素，不前进，再检查一次
+                shiftKeys(pos);
+            } else {
+                pos++;
+            }
+        }
+        return size != before;
+    }
+
+    /**
+     * 清空元素，保留已分配的数组
+     */
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(keys, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    // ------------------------------------------------------------------ 批量操作
+
+    /**
+     * @return 集合发生了变化时返回 true
+     */
+    public boolean addAll(long... values) {
+        ensureCapacity(size + values.length);
+        boolean modified = false;
+        for (long value : values) {
+            modified |= add(value);
+        }
+        return modified;
+    }
+
+    public boolean addAll(LongHashSet other) {
+        ensureCapacity(size + other.size);
+        boolean modified = other.containsZero && add(0);
+        for (long value : other.keys) {
+            if (value != 0) {
+                modified |= add(value);
+            }
+        }
+        return modified;
+    }
+
+    public boolean containsAll(long... values) {
+        for (long value : values) {
+            if (!contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 复制为数组，顺序不确定
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        if (containsZero) {
+            result[i++] = 0;
+        }
+        for (long value : keys) {
+            if (value != 0) {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------------------ 遍历
+
+    /**
+     * 不分配迭代器的遍历，顺序不确定
+     */
+    public void forEach(LongConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long value : keys) {
+            if (value != 0) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+
+            private boolean zeroPending = containsZero;
+
+            private int pos = nextSlot(0);
+
+            private int nextSlot(int from) {
+                while (from < keys.length && keys[from] == 0) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return zeroPending || pos < keys.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (zeroPending) {
+                    zeroPending = false;
+                    return 0;
+                }
+                if (pos >= keys.length) {
+                    throw new NoSuchElementException();
+                }
+                long value = keys[pos];
+                pos = nextSlot(pos + 1);
+                return value;
+            }
+        };
+    }
+
+    // ------------------------------------------------------------------ 容量
+
+    /**
+     * 预留 expectedSize 个元素的空间，之后添加到这个数量之前不会再扩容
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = Hashing.arraySize(expectedSize, loadFactor);
+        if (capacity > keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        maxFill = Hashing.maxFill(capacity, loadFactor);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        long[] keys = this.keys;
+        for (long value : oldKeys) {
+            if (value != 0) {
+                int pos = Hashing.mix(value) & mask;
+                while (keys[pos] != 0) {
+                    pos = (pos + 1) & mask;
+                }
+                keys[pos] = value;
+            }
+        }
+    }
+
+    /**
+     * 删除 pos 处的元素：依次检查后面同一探测链上的元素，能前移到空出的位置（不越过它的初始位置）就前移，直到遇到空槽
+     */
+    private void shiftKeys(int pos) {
+        long[] keys = this.keys;
+        for (;;) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            long current;
+            for (;;) {
+                if ((current = keys[pos]) == 0) {
+                    keys[last] = 0;
+                    return;
+                }
+                int slot = Hashing.mix(current) & mask;
+                // 初始位置 slot 不在 (last, pos] 之间（按环形计算）时，可以前移到 last
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+            keys[last] = current;
+        }
+    }
+
+    // ------------------------------------------------------------------ Object
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LongHashSet)) {
+            return false;
+        }
+        LongHashSet other = (LongHashSet) o;
+        if (size != other.size || containsZero != other.containsZero) {
+            return false;
+        }
+        for (long value : keys) {
+            if (value != 0 && !other.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与内容相同的 Set&lt;Long&gt; 的 hashCode 相等
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (long value : keys) {
+            h += Long.hashCode(value);
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach(value -> sb.append(sb.length() > 1 ? ", " : "").append(value));
+        return sb.append(']').toString();
+    }
+}
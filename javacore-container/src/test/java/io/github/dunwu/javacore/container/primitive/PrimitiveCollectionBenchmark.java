@@ -0,0 +1,254 @@
+package io.github.dunwu.javacore.container.primitive;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 基本类型集合与装箱集合的对比：构建（计数累加）、查找、遍历求和。
+ * <p>
+ * 不是单元测试，通过 main 方法运行。先粗略测量每个元素常驻的堆内存，再运行 JMH，
+ * gc.alloc.rate.norm（每次操作分配的字节数）反映构建时的分配量：
+ * <pre>
+ * mvn -pl javacore-container test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=io.github.dunwu.javacore.container.primitive.PrimitiveCollectionBenchmark
+ * </pre>
+ * key 是随机的 long（或 int），超出 Long/Integer 缓存的范围，和真实的 ID 一样每次装箱都会分配对象。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class PrimitiveCollectionBenchmark {
+
+    @Param({"1024", "1048576"})
+    private int size;
+
+    private long[] longKeys;
+
+    private int[] intKeys;
+
+    private Map<Long, Long> boxedCounts;
+
+    private Long2LongMap counts;
+
+    private Set<Long> boxedSet;
+
+    private LongHashSet set;
+
+    private Map<Integer, String> boxedIndex;
+
+    private Int2ObjectOpenHashMap<String> index;
+
+    private List<Integer> boxedList;
+
+    private IntArrayList list;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        longKeys = new long[size];
+        intKeys = new int[size];
+        for (int i = 0; i < size; i++) {
+            longKeys[i] = random.nextLong();
+            intKeys[i] = random.nextInt();
+        }
+        boxedCounts = boxedCounts();
+        counts = counts();
+        boxedSet = new HashSet<>();
+        set = new LongHashSet();
+        boxedIndex = new HashMap<>();
+        index = new Int2ObjectOpenHashMap<>();
+        boxedList = new ArrayList<>();
+        list = new IntArrayList();
+        for (int i = 0; i < size; i++) {
+            boxedSet.add(longKeys[i]);
+            set.add(longKeys[i]);
+            boxedIndex.put(intKeys[i], "v");
+            index.put(intKeys[i], "v");
+            boxedList.add(intKeys[i]);
+            list.add(intKeys[i]);
+        }
+    }
+
+    // ------------------------------------------------------------------ 构建
+
+    @Benchmark
+    public Map<Long, Long> boxedCounts() {
+        Map<Long, Long> map = new HashMap<>();
+        for (long key : longKeys) {
+            map.merge(key, 1L, Long::sum);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Long2LongMap counts() {
+        Long2LongMap map = new Long2LongMap();
+        for (long key : longKeys) {
+            map.addTo(key, 1);
+        }
+        return map;
+    }
+
+    // ------------------------------------------------------------------ 查找
+
+    @Benchmark
+    public long boxedCountsGet() {
+        long sum = 0;
+        for (long key : longKeys) {
+            sum += boxedCounts.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long countsGet() {
+        long sum = 0;
+        for (long key : longKeys) {
+            sum += counts.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int boxedSetContains() {
+        int hits = 0;
+        for (long key : longKeys) {
+            hits += boxedSet.contains(key) ? 1 : 0;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int setContains() {
+        int hits = 0;
+        for (long key : longKeys) {
+            hits += set.contains(key) ? 1 : 0;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int boxedIndexGet() {
+        int found = 0;
+        for (int key : intKeys) {
+            found += boxedIndex.get(key) != null ? 1 : 0;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int indexGet() {
+        int found = 0;
+        for (int key : intKeys) {
+            found += index.get(key) != null ? 1 : 0;
+        }
+        return found;
+    }
+
+    // ------------------------------------------------------------------ 遍历
+
+    @Benchmark
+    public long boxedListSum() {
+        long sum = 0;
+        for (Integer value : boxedList) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long listSum() {
+        long sum = 0;
+        for (int i = 0, n = list.size(); i < n; i++) {
+            sum += list.get(i);
+        }
+        return sum;
+    }
+
+    // ------------------------------------------------------------------ 内存
+
+    /**
+     * 粗略测量每个元素常驻的字节数：连续构建多份，GC 后比较已用堆内存
+     */
+    private static double bytesPerElement(int elements, Supplier<Object> builder) {
+        Object[] holder = new Object[8];
+        long before = usedMemory();
+        for (int i = 0; i < holder.length; i++) {
+            holder[i] = builder.get();
+        }
+        long after = usedMemory();
+        if (holder[holder.length - 1] == null) {
+            throw new IllegalStateException();
+        }
+        return (after - before) / (double) holder.length / elements;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        PrimitiveCollectionBenchmark data = new PrimitiveCollectionBenchmark();
+        data.size = 100_000;
+        data.setUp();
+        System.out.printf("HashMap<Long, Long>   %6.1f bytes/entry%n", bytesPerElement(data.size, data::boxedCounts));
+        System.out.printf("Long2LongMap          %6.1f bytes/entry%n", bytesPerElement(data.size, data::counts));
+        System.out.printf("HashSet<Long>         %6.1f bytes/entry%n", bytesPerElement(data.size, () -> {
+            Set<Long> set = new HashSet<>();
+            for (long key : data.longKeys) {
+                set.add(key);
+            }
+            return set;
+        }));
+        System.out.printf("LongHashSet           %6.1f bytes/entry%n",
+            bytesPerElement(data.size, () -> LongHashSet.of(data.longKeys)));
+        System.out.printf("ArrayList<Integer>    %6.1f bytes/entry%n", bytesPerElement(data.size, () -> {
+            List<Integer> list = new ArrayList<>(data.size);
+            for (int key : data.intKeys) {
+                list.add(key);
+            }
+            return list;
+        }));
+        System.out.printf("IntArrayList          %6.1f bytes/entry%n",
+            bytesPerElement(data.size, () -> IntArrayList.of(data.intKeys)));
+
+        Options options = new OptionsBuilder()
+                .include(PrimitiveCollectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
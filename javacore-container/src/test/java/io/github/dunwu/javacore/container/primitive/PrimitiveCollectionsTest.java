@@ -0,0 +1,287 @@
+package io.github.dunwu.javacore.container.primitive;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 基本类型集合与对应的 java.util 集合做随机操作对比，key 的范围很小，保证大量冲突、删除和 key 为 0 的情况都会出现
+ */
+public class PrimitiveCollectionsTest {
+
+    private static final int OPERATIONS = 200_000;
+
+    @Test
+    public void intArrayListMatchesArrayList() {
+        Random random = new Random(1);
+        IntArrayList list = new IntArrayList();
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int value = random.nextInt(100) - 50;
+            switch (random.nextInt(6)) {
+                case 0:
+                case 1:
+                    list.add(value);
+                    expected.add(value);
+                    break;
+                case 2:
+                    int index = random.nextInt(expected.size() + 1);
+                    list.add(index, value);
+                    expected.add(index, value);
+                    break;
+                case 3:
+                    if (!expected.isEmpty()) {
+                        index = random.nextInt(expected.size());
+                        assertEquals((int) expected.remove(index), list.remove(index));
+                    }
+                    break;
+                case 4:
+                    assertEquals(expected.remove(Integer.valueOf(value)), list.removeValue(value));
+                    break;
+                default:
+                    assertEquals(expected.indexOf(value), list.indexOf(value));
+                    break;
+            }
+        }
+        assertEquals(expected.size(), list.size());
+        assertEquals(expected.hashCode(), list.hashCode());
+        assertEquals(expected.toString(), list.toString());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), list.toArray());
+
+        list.removeIf(v -> v < 0);
+        expected.removeIf(v -> v < 0);
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), list.toArray());
+        assertEquals(expected.stream().mapToLong(Integer::longValue).sum(), list.stream().asLongStream().sum());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(list.size()));
+    }
+
+    @Test
+    public void longHashSetMatchesHashSet() {
+        Random random = new Random(2);
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            long value = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.add(value), set.add(value));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(value), set.remove(value));
+                    break;
+                default:
+                    assertEquals(expected.contains(value), set.contains(value));
+                    break;
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        assertEquals(expected.hashCode(), set.hashCode());
+        assertSameElements(expected, set);
+
+        set.removeIf(v -> v % 3 == 0);
+        expected.removeIf(v -> v % 3 == 0);
+        assertSameElements(expected, set);
+        assertEquals(LongHashSet.of(set.toArray()), set);
+
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(0));
+    }
+
+    @Test
+    public void int2ObjectMapMatchesHashMap() {
+        Random random = new Random(3);
+        Int2ObjectOpenHashMap<String> map = new Int2ObjectOpenHashMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            int key = random.nextInt(2000) - 1000;
+            String value = Integer.toString(random.nextInt(10));
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 2:
+                    assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+                    break;
+                default:
+                    assertEquals(expected.get(key), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected.hashCode(), map.hashCode());
+        Map<Integer, String> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertEquals(expected, copy);
+
+        Int2ObjectOpenHashMap<String> other = new Int2ObjectOpenHashMap<>();
+        other.putAll(map);
+        assertEquals(map, other);
+        assertEquals(expected.containsValue("0"), map.containsValue("0"));
+    }
+
+    @Test
+    public void int2ObjectComputeIfAbsentToleratesModifyingFunction() {
+        // 递归计算其他 key，插入和扩容都发生在 mappingFunction 内
+        Int2ObjectOpenHashMap<Long> fib = new Int2ObjectOpenHashMap<>(0);
+        assertEquals(Long.valueOf(12_586_269_025L), fibonacci(fib, 50));
+        assertEquals(49, fib.size());
+        for (int i = 2; i <= 50; i++) {
+            assertEquals(fibonacci(new Int2ObjectOpenHashMap<>(0), i), fib.get(i));
+        }
+
+        // 删除冲突链上的 key 会前移后续槽位
+        Int2ObjectOpenHashMap<String> map = new Int2ObjectOpenHashMap<>(64);
+        Map<Integer, String> expected = new HashMap<>();
+        for (int key = 1; key <= 40; key++) {
+            map.put(key, "v" + key);
+            expected.put(key, "v" + key);
+        }
+        map.put(41, null);
+        for (int key = 41; key <= 80; key++) {
+            int removed = key - 40;
+            String value = map.computeIfAbsent(key, k -> {
+                map.remove(removed);
+                return "v" + k;
+            });
+            assertEquals("v" + key, value);
+            expected.remove(removed);
+            expected.put(key, value);
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Integer, String> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertEquals(expected, copy);
+    }
+
+    @Test
+    public void int2ObjectComputeIfAbsentDetectsRemoveAndPut() {
+        // existing、chained 和 key 落在同一个初始槽位，fresh 落在别处：删除一个再插入一个，size 和数组都不变，但槽位已经移动
+        int capacity = Hashing.arraySize(8, Hashing.DEFAULT_LOAD_FACTOR);
+        int mask = capacity - 1;
+        int[] chain = new int[3];
+        int found = 0;
+        int home = Hashing.mix(1) & mask;
+        for (int candidate = 1; found < chain.length; candidate++) {
+            if ((Hashing.mix(candidate) & mask) == home) {
+                chain[found++] = candidate;
+            }
+        }
+        int other = 1;
+        while (((Hashing.mix(other) & mask) - home & mask) < chain.length) {
+            other++;
+        }
+        int fresh = other;
+        int existing = chain[0];
+        int chained = chain[1];
+        int key = chain[2];
+
+        Int2ObjectOpenHashMap<String> map = new Int2ObjectOpenHashMap<>(8);
+        map.put(existing, "existing");
+        map.put(chained, "chained");
+        String value = map.computeIfAbsent(key, k -> {
+            map.remove(existing);
+            map.put(fresh, "fresh");
+            return "new";
+        });
+
+        assertEquals("new", value);
+        assertEquals(3, map.size());
+        assertEquals("new", map.get(key));
+        assertEquals("chained", map.get(chained));
+        assertEquals("fresh", map.get(fresh));
+        assertFalse(map.containsKey(existing));
+    }
+
+    private static Long fibonacci(Int2ObjectOpenHashMap<Long> memo, int n) {
+        if (n <= 1) {
+            return (long) n;
+        }
+        return memo.computeIfAbsent(n, k -> fibonacci(memo, k - 1) + fibonacci(memo, k - 2));
+    }
+
+    @Test
+    public void long2LongMapMatchesHashMap() {
+        Random random = new Random(4);
+        Long2LongMap map = new Long2LongMap().defaultReturnValue(-1);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < OPERATIONS; i++) {
+            long key = random.nextInt(2000) - 1000;
+            long value = random.nextInt(100);
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.getOrDefault(key, -1L), map.put(key, value));
+                    expected.put(key, value);
+                    break;
+                case 1:
+                    Long removed = expected.remove(key);
+                    assertEquals(removed == null ? -1L : removed, map.remove(key));
+                    break;
+                case 2:
+                    long old = expected.getOrDefault(key, -1L);
+                    assertEquals(old, map.addTo(key, value));
+                    expected.put(key, old + value);
+                    break;
+                default:
+                    assertEquals(expected.getOrDefault(key, -1L), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                    break;
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected.hashCode(), map.hashCode());
+        Map<Long, Long> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertEquals(expected, copy);
+
+        long[] keys = map.keys();
+        long[] values = map.values();
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(expected.get(keys[i]).longValue(), values[i]);
+        }
+        Long2LongMap other = new Long2LongMap();
+        other.putAll(keys, values);
+        assertEquals(map, other);
+    }
+
+    @Test
+    public void growsFromMinimalCapacity() {
+        LongHashSet set = new LongHashSet(0);
+        Long2LongMap map = new Long2LongMap(0);
+        for (long i = 0; i < 100_000; i++) {
+            set.add(i * 31);
+            map.addTo(i * 31, 1);
+        }
+        assertEquals(100_000, set.size());
+        assertEquals(100_000, map.size());
+        for (long i = 0; i < 100_000; i++) {
+            assertTrue(set.contains(i * 31));
+            assertEquals(1, map.get(i * 31));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(16, 1f));
+    }
+
+    private static void assertSameElements(Set<Long> expected, LongHashSet actual) {
+        long[] array = actual.toArray();
+        Arrays.sort(array);
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), array);
+        long[] iterated = new long[actual.size()];
+        int[] i = {0};
+        actual.iterator().forEachRemaining((long v) -> iterated[i[0]++] = v);
+        Arrays.sort(iterated);
+        assertArrayEquals(array, iterated);
+    }
+}
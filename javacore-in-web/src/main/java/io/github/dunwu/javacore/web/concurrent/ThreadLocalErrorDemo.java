@@ -1,5 +1,9 @@
 package io.github.dunwu.javacore.web.concurrent;
 
+import io.github.dunwu.javacore.web.context.ContextAwareThreadFactory;
+import io.github.dunwu.javacore.web.context.ContextPropagation;
+import io.github.dunwu.javacore.web.context.RequestContext;
+import io.github.dunwu.javacore.web.context.RequestContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -7,6 +11,9 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
@@ -18,6 +25,9 @@ public class ThreadLocalErrorDemo {
 
     private ThreadLocal<Integer> currentUser = ThreadLocal.withInitial(() -> null);
 
+    private final ExecutorService executor =
+        ContextPropagation.wrap(Executors.newFixedThreadPool(2, new ContextAwareThreadFactory("context-demo", true)));
+
     @GetMapping("wrong")
     public Map<String, String> wrong(@RequestParam("id") Integer userId) {
         //设置用户信息之前先查询一次ThreadLocal中的用户信息
@@ -49,4 +59,24 @@ public class ThreadLocalErrorDemo {
         }
     }
 
+    /**
+     * 使用 {@link RequestContextHolder}：上下文由 RequestContextFilter 绑定和清理，业务代码只在需要时派生并绑定新的上下文，
+     * 交给线程池的任务也能读到
+     */
+    @GetMapping("context")
+    public Map<String, String> context(@RequestParam("id") Integer userId)
+        throws ExecutionException, InterruptedException {
+        String before = Thread.currentThread().getName() + ":" + RequestContextHolder.current();
+        RequestContext context = RequestContextHolder.current().with("userId", userId);
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+            String async = executor.submit(
+                () -> Thread.currentThread().getName() + ":" + RequestContextHolder.current().getAttribute("userId"))
+                                   .get();
+            Map<String, String> result = new HashMap<>();
+            result.put("before", before);
+            result.put("async", async);
+            return result;
+        }
+    }
+
 }
@@ -0,0 +1,19 @@
+package io.github.dunwu.javacore.web.context;
+
+/**
+ * 自带上下文槽位的线程，{@link RequestContextHolder} 直接读写 {@link #context} 字段，不经过 ThreadLocal
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public class ContextAwareThread extends Thread {
+
+    /**
+     * 只由本线程通过 {@link RequestContextHolder} 读写
+     */
+    RequestContext context;
+
+    public ContextAwareThread(Runnable target, String name) {
+        super(target, name);
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.dunwu.javacore.web.context;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 创建 {@link ContextAwareThread} 的线程工厂，业务线程池使用它之后读取上下文不再经过 ThreadLocal。
+ * <p>
+ * {@link ForkJoinPool} 的工作线程必须是 {@link ForkJoinWorkerThread}，不能用这个工厂创建，在那里退回到 ThreadLocal。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public class ContextAwareThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+
+    private final boolean daemon;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    public ContextAwareThreadFactory(String prefix) {
+        this(prefix, false);
+    }
+
+    public ContextAwareThreadFactory(String prefix, boolean daemon) {
+        this.prefix = prefix;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new ContextAwareThread(r, prefix + "-" + sequence.incrementAndGet());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+}
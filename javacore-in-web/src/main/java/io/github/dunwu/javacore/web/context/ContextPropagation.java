@@ -0,0 +1,109 @@
+package io.github.dunwu.javacore.web.context;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * 把 {@link RequestContext} 带过线程池的装饰器。
+ * <p>
+ * 任务在提交时（调用 wrap 的线程上）捕获当前上下文，执行时在工作线程上绑定、结束后恢复工作线程原来的值，
+ * 工作线程不会残留上一个任务的上下文。提交时没有上下文的任务原样返回，不增加任何开销。
+ * <p>
+ * 任务执行时请求已经结束，说明上下文被带到了请求之外，按 {@link RequestContextHolder.LeakDetection} 报告。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public final class ContextPropagation {
+
+    private ContextPropagation() {}
+
+    // ------------------------------------------------------------------ 任务
+
+    public static Runnable wrap(Runnable task) {
+        RequestContext context = RequestContextHolder.current();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+                task.run();
+            }
+        };
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestContext context = RequestContextHolder.current();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+                return task.call();
+            }
+        };
+    }
+
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        RequestContext context = RequestContextHolder.current();
+        if (context == null) {
+            return task;
+        }
+        return () -> {
+            try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+                return task.get();
+            }
+        };
+    }
+
+    // ------------------------------------------------------------------ 线程池
+
+    /**
+     * 装饰 executor，每个提交的任务都在提交时捕获上下文
+     */
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        return command -> executor.execute(wrap(command));
+    }
+
+    /**
+     * 装饰 ExecutorService（包括 {@link ForkJoinPool}），submit、invokeAll 等方法最终都经过装饰后的 execute
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        if (executor instanceof ContextPropagatingExecutorService) {
+            return executor;
+        }
+        return new ContextPropagatingExecutorService(executor);
+    }
+
+    // ------------------------------------------------------------------ CompletableFuture
+
+    /**
+     * 与 {@link CompletableFuture#supplyAsync(Supplier, Executor)} 相同，supplier 在当前上下文中执行。
+     * 之后的 thenApplyAsync 等阶段如果也需要上下文，应当传入 {@link #wrap(Executor)} 装饰过的线程池
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, Executor executor) {
+        return CompletableFuture.supplyAsync(wrap(supplier), executor);
+    }
+
+    /**
+     * 在 {@link ForkJoinPool#commonPool()} 中执行 supplier
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(wrap(supplier));
+    }
+
+    public static CompletableFuture<Void> runAsync(Runnable task, Executor executor) {
+        return CompletableFuture.runAsync(wrap(task), executor);
+    }
+
+    public static CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(wrap(task));
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.dunwu.javacore.web.context;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 带上下文的 {@link RecursiveTask}：构造时捕获当前上下文，{@link #compute()} 时在执行它的工作线程上绑定。
+ * <p>
+ * fork 出的子任务可能被其他工作线程窃取，装饰 ForkJoinPool 只对从外部提交的第一个任务有效，
+ * 子任务也继承这个类，才能保证窃取到它的线程上也有上下文。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public abstract class ContextRecursiveTask<V> extends RecursiveTask<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient RequestContext context = RequestContextHolder.current();
+
+    @Override
+    protected final V compute() {
+        if (context == null) {
+            return computeInContext();
+        }
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+            return computeInContext();
+        }
+    }
+
+    /**
+     * 代替 {@link #compute()} 实现计算逻辑
+     */
+    protected abstract V computeInContext();
+}
@@ -0,0 +1,80 @@
+package io.github.dunwu.javacore.web.context;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 一次请求的上下文：请求 ID 和少量属性（用户、租户等）。
+ * <p>
+ * 属性在创建后不可变，跨线程传递时只传引用，不需要复制；唯一可变的是"请求是否已结束"的标记，
+ * 由 {@link RequestContextFilter} 在请求结束时设置，{@link RequestContextHolder} 据此发现泄漏到请求之外的上下文。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public final class RequestContext {
+
+    private final String requestId;
+
+    private final Map<String, Object> attributes;
+
+    /**
+     * 同一个请求派生出的上下文共享同一个 origin，结束标记记在 origin 上
+     */
+    private final RequestContext origin;
+
+    private volatile boolean ended;
+
+    private RequestContext(String requestId, Map<String, Object> attributes, RequestContext origin) {
+        this.requestId = requestId;
+        this.attributes = attributes;
+        this.origin = origin == null ? this : origin;
+    }
+
+    public static RequestContext of(String requestId) {
+        return new RequestContext(requestId, Collections.emptyMap(), null);
+    }
+
+    public static RequestContext of(String requestId, Map<String, ?> attributes) {
+        return new RequestContext(requestId, Collections.unmodifiableMap(new HashMap<>(attributes)), null);
+    }
+
+    /**
+     * 返回多一个属性的新上下文，当前上下文不变。新上下文属于同一个请求，随请求一起结束
+     */
+    public RequestContext with(String name, Object value) {
+        Map<String, Object> copy = new HashMap<>(attributes);
+        copy.put(name, value);
+        return new RequestContext(requestId, Collections.unmodifiableMap(copy), origin);
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String name) {
+        return (T) attributes.get(name);
+    }
+
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * 标记请求已结束，之后还在使用这个上下文的线程会被当作泄漏
+     */
+    public void end() {
+        origin.ended = true;
+    }
+
+    public boolean isEnded() {
+        return origin.ended;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestContext{requestId=" + requestId + ", attributes=" + attributes + (isEnded() ? ", ended" : "") + '}';
+    }
+}
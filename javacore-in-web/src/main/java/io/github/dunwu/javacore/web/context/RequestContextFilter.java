@@ -0,0 +1,120 @@
+package io.github.dunwu.javacore.web.context;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 在 Servlet 过滤器边界绑定 {@link RequestContext}：请求进入时创建并绑定，filter chain 返回时在 finally 中解绑，
+ * Tomcat 复用工作线程处理下一个请求时线程上一定没有上一个请求的上下文。
+ * <p>
+ * 请求 ID 取自请求头 {@value #REQUEST_ID_HEADER}，没有或格式不合法时生成一个，并写回响应头。
+ * 同步请求在 chain 返回时结束；异步请求（Servlet 3.0 startAsync）在 {@link AsyncListener} 收到完成、超时或错误时结束，
+ * 异步处理期间提交到装饰过的线程池中的任务不会被误报为泄漏。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestContextFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        String requestId = requestId(request.getHeader(REQUEST_ID_HEADER));
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        RequestContext context = RequestContext.of(requestId)
+                                               .with("method", request.getMethod())
+                                               .with("uri", request.getRequestURI());
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                endOnComplete(request, context);
+            } else {
+                context.end();
+            }
+        }
+    }
+
+    /**
+     * 异步处理可能已经在其他线程上完成（检查 isAsyncStarted 之后、注册监听器之前），这时监听器收不到完成事件，
+     * 所以注册之后再检查一次，已经不在异步处理中就直接结束；重复 end 没有影响
+     */
+    private static void endOnComplete(HttpServletRequest request, RequestContext context) {
+        try {
+            request.getAsyncContext().addListener(new EndOnComplete(context));
+        } catch (IllegalStateException e) {
+            // 异步处理已经完成，AsyncContext 不可用
+            context.end();
+            return;
+        }
+        if (!request.isAsyncStarted()) {
+            context.end();
+        }
+    }
+
+    /**
+     * 只接受字母、数字、'-' 和 '_'，防止请求头注入日志
+     */
+    static String requestId(String header) {
+        if (header != null && !header.isEmpty() && header.length() <= MAX_REQUEST_ID_LENGTH) {
+            boolean valid = true;
+            for (int i = 0; i < header.length() && valid; i++) {
+                char c = header.charAt(i);
+                valid = Character.isLetterOrDigit(c) && c < 128 || c == '-' || c == '_';
+            }
+            if (valid) {
+                return header;
+            }
+        }
+        // 不用 UUID.randomUUID()，它依赖 SecureRandom，高并发下是瓶颈
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+    }
+
+    private static final class EndOnComplete implements AsyncListener {
+
+        private final RequestContext context;
+
+        EndOnComplete(RequestContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            context.end();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            context.end();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            context.end();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 再次 startAsync 时需要重新注册
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
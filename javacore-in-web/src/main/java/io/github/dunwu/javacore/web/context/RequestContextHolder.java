@@ -0,0 +1,158 @@
+package io.github.dunwu.javacore.web.context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 当前线程的 {@link RequestContext}。
+ * <p>
+ * 与 {@link io.github.dunwu.javacore.web.concurrent.ThreadLocalErrorDemo} 中直接 set/remove ThreadLocal 的区别：
+ * <p>
+ * 1. 绑定只能通过 {@link #bind} 得到的 {@link Scope} 完成，配合 try-with-resources 在 close 时恢复绑定前的值，
+ * 不会因为忘记 remove 而把上一个请求的数据留给复用这个线程的下一个请求；
+ * <p>
+ * 2. 线程是 {@link ContextAwareThread}（由 {@link ContextAwareThreadFactory} 创建）时上下文直接存在线程的字段里，
+ * 读取是一次类型检查加一次字段读取，不需要 ThreadLocalMap 的哈希查找；其他线程（Tomcat 工作线程、公共 ForkJoinPool 等）
+ * 退回到唯一一个静态 ThreadLocal；
+ * <p>
+ * 3. 解绑时调用 {@link ThreadLocal#remove()} 而不是 set(null)，线程的 ThreadLocalMap 中不留空条目。
+ * 整个子系统只有一个 ThreadLocal 实例，也不使用 InheritableThreadLocal，新建线程（包括虚拟线程）时不复制任何东西，
+ * 线程数再多，每个线程最多一个条目，且只在绑定期间存在；
+ * <p>
+ * 4. 读到已结束请求的上下文时按 {@link LeakDetection} 报告泄漏，测试中设置为 {@link LeakDetection#FAIL} 即可让泄漏的用例失败。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public final class RequestContextHolder {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestContextHolder.class);
+
+    /**
+     * 泄漏检测级别的系统属性，取值为 {@link LeakDetection} 的名字，默认 LOG
+     */
+    public static final String LEAK_DETECTION_PROPERTY = "javacore.request-context.leak-detection";
+
+    private static final ThreadLocal<RequestContext> FALLBACK = new ThreadLocal<>();
+
+    private static volatile LeakDetection leakDetection =
+        LeakDetection.valueOf(System.getProperty(LEAK_DETECTION_PROPERTY, LeakDetection.LOG.name()));
+
+    private RequestContextHolder() {}
+
+    /**
+     * 当前线程绑定的上下文，没有绑定时返回 null
+     */
+    public static RequestContext current() {
+        Thread thread = Thread.currentThread();
+        RequestContext context = thread instanceof ContextAwareThread
+                                 ? ((ContextAwareThread) thread).context
+                                 : FALLBACK.get();
+        if (context != null && context.isEnded()) {
+            reportLeak("Request context read after its request ended: " + context);
+        }
+        return context;
+    }
+
+    /**
+     * 把 context 绑定到当前线程，返回的 {@link Scope} 关闭时恢复绑定前的值。context 为 null 表示在 Scope 内解除绑定
+     */
+    public static Scope bind(RequestContext context) {
+        if (context != null && context.isEnded()) {
+            reportLeak("Request context bound after its request ended: " + context);
+        }
+        Thread thread = Thread.currentThread();
+        RequestContext previous = swap(thread, context);
+        return new Scope(thread, context, previous);
+    }
+
+    private static RequestContext swap(Thread thread, RequestContext context) {
+        if (thread instanceof ContextAwareThread) {
+            ContextAwareThread contextThread = (ContextAwareThread) thread;
+            RequestContext previous = contextThread.context;
+            contextThread.context = context;
+            return previous;
+        }
+        RequestContext previous = FALLBACK.get();
+        if (context == null) {
+            FALLBACK.remove();
+        } else {
+            FALLBACK.set(context);
+        }
+        return previous;
+    }
+
+    static void reportLeak(String message) {
+        LeakDetection mode = leakDetection;
+        if (mode == LeakDetection.OFF) {
+            return;
+        }
+        message = message + " (thread " + Thread.currentThread().getName() + ")";
+        if (mode == LeakDetection.FAIL) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    public static LeakDetection getLeakDetection() {
+        return leakDetection;
+    }
+
+    public static void setLeakDetection(LeakDetection leakDetection) {
+        RequestContextHolder.leakDetection = leakDetection;
+    }
+
+    /**
+     * 上下文泄漏的处理方式
+     */
+    public enum LeakDetection {
+        /**
+         * 不检查
+         */
+        OFF,
+        /**
+         * 打印告警日志
+         */
+        LOG,
+        /**
+         * 抛出 {@link IllegalStateException}，用于测试
+         */
+        FAIL
+    }
+
+    /**
+     * 一次绑定，必须在绑定它的线程上按后进先出的顺序关闭，重复关闭无效。
+     * 关闭顺序错误（内层 Scope 忘了关闭）时仍然恢复到本次绑定之前的值，再按泄漏报告，线程不会带着内层的上下文回到线程池
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Thread thread;
+
+        private final RequestContext context;
+
+        private final RequestContext previous;
+
+        private boolean closed;
+
+        private Scope(Thread thread, RequestContext context, RequestContext previous) {
+            this.thread = thread;
+            this.context = context;
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            if (Thread.currentThread() != thread) {
+                throw new IllegalStateException("Scope must be closed on the thread that opened it: " + thread);
+            }
+            closed = true;
+            RequestContext current = swap(thread, previous);
+            if (current != context) {
+                reportLeak("Scope closed out of order, expected " + context + " but was " + current);
+            }
+        }
+    }
+}
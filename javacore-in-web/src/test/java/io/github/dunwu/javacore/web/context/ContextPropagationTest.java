@@ -0,0 +1,199 @@
+package io.github.dunwu.javacore.web.context;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ContextPropagation} 跨线程池、CompletableFuture 和 ForkJoinPool 传递上下文的测试
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public class ContextPropagationTest {
+
+    private RequestContextHolder.LeakDetection leakDetection;
+
+    @BeforeEach
+    public void setUp() {
+        leakDetection = RequestContextHolder.getLeakDetection();
+        RequestContextHolder.setLeakDetection(RequestContextHolder.LeakDetection.FAIL);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.setLeakDetection(leakDetection);
+    }
+
+    @Test
+    public void executorServicePropagatesAndClears() throws Exception {
+        ExecutorService executor = ContextPropagation.wrap(Executors.newSingleThreadExecutor());
+        try {
+            assertPropagatesAndClears(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void contextAwareThreadsPropagateAndClear() throws Exception {
+        ExecutorService executor =
+            ContextPropagation.wrap(Executors.newSingleThreadExecutor(new ContextAwareThreadFactory("ctx-pool")));
+        try {
+            assertPropagatesAndClears(executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertPropagatesAndClears(ExecutorService executor) throws Exception {
+        RequestContext context = RequestContext.of("r1");
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+            assertSame(context, executor.submit(RequestContextHolder::current).get());
+            List<Callable<RequestContext>> tasks = new ArrayList<>();
+            tasks.add(RequestContextHolder::current);
+            tasks.add(RequestContextHolder::current);
+            for (Future<RequestContext> future : executor.invokeAll(tasks)) {
+                assertSame(context, future.get());
+            }
+        }
+        // 任务结束后工作线程上不留上下文
+        assertNull(executor.submit(RequestContextHolder::current).get());
+    }
+
+    @Test
+    public void completableFuturePropagates() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            RequestContext context = RequestContext.of("r2");
+            CompletableFuture<RequestContext> onExecutor;
+            CompletableFuture<RequestContext> onCommonPool;
+            CompletableFuture<RequestContext> withoutWrap;
+            CompletableFuture<Void> run;
+            RequestContext[] seen = new RequestContext[1];
+            try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+                onExecutor = ContextPropagation.supplyAsync(RequestContextHolder::current, executor);
+                onCommonPool = ContextPropagation.supplyAsync(RequestContextHolder::current);
+                run = ContextPropagation.runAsync(() -> seen[0] = RequestContextHolder.current(), executor);
+                withoutWrap = CompletableFuture.supplyAsync(RequestContextHolder::current, executor);
+            }
+            assertSame(context, onExecutor.get(5, TimeUnit.SECONDS));
+            assertSame(context, onCommonPool.get(5, TimeUnit.SECONDS));
+            run.get(5, TimeUnit.SECONDS);
+            assertSame(context, seen[0]);
+            // 没有装饰的任务看不到上下文
+            assertNull(withoutWrap.get(5, TimeUnit.SECONDS));
+            assertNull(CompletableFuture.supplyAsync(RequestContextHolder::current, executor).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void forkJoinSubtasksPropagate() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ExecutorService wrapped = ContextPropagation.wrap(pool);
+        try {
+            RequestContext context = RequestContext.of("r3");
+            long[] values = new long[10_000];
+            Arrays.fill(values, 1L);
+            Set<String> requestIds = ConcurrentHashMap.newKeySet();
+            try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+                assertSame(context, wrapped.submit(RequestContextHolder::current).get());
+                long sum = pool.invoke(new SumTask(values, 0, values.length, requestIds));
+                assertEquals(values.length, sum);
+            }
+            // 每个子任务（包括被窃取的）都看到了同一个上下文
+            assertEquals(1, requestIds.size());
+            assertTrue(requestIds.contains("r3"));
+            // 子任务结束后工作线程上不留上下文
+            for (int i = 0; i < 8; i++) {
+                assertNull(pool.submit(RequestContextHolder::current).get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void failModeDetectsTaskRunningAfterRequestEnded() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            RequestContext context = RequestContext.of("r4");
+            Future<RequestContext> late;
+            try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+                late = executor.submit(ContextPropagation.wrap((Callable<RequestContext>) RequestContextHolder::current));
+            }
+            // 请求结束时任务还在排队
+            context.end();
+            release.countDown();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertNull(executor.submit(RequestContextHolder::current).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static final class SumTask extends ContextRecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long[] values;
+
+        private final int from;
+
+        private final int to;
+
+        private final transient Set<String> requestIds;
+
+        SumTask(long[] values, int from, int to, Set<String> requestIds) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.requestIds = requestIds;
+        }
+
+        @Override
+        protected Long computeInContext() {
+            requestIds.add(RequestContextHolder.current().getRequestId());
+            if (to - from <= 100) {
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += values[i];
+                }
+                return sum;
+            }
+            int mid = (from + to) >>> 1;
+            SumTask left = new SumTask(values, from, mid, requestIds);
+            SumTask right = new SumTask(values, mid, to, requestIds);
+            left.fork();
+            return right.compute() + left.join();
+        }
+    }
+}
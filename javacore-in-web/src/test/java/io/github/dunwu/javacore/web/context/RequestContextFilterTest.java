@@ -0,0 +1,158 @@
+package io.github.dunwu.javacore.web.context;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link RequestContextFilter} 绑定、结束上下文和请求 ID 处理测试
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public class RequestContextFilterTest {
+
+    private final RequestContextFilter filter = new RequestContextFilter();
+
+    private RequestContextHolder.LeakDetection leakDetection;
+
+    @BeforeEach
+    public void setUp() {
+        leakDetection = RequestContextHolder.getLeakDetection();
+        RequestContextHolder.setLeakDetection(RequestContextHolder.LeakDetection.FAIL);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.setLeakDetection(leakDetection);
+    }
+
+    @Test
+    public void contextIsBoundDuringChainAndClearedAfter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1");
+        request.addHeader(RequestContextFilter.REQUEST_ID_HEADER, "abc-123_X");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<RequestContext> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> seen.set(RequestContextHolder.current()));
+
+        RequestContext context = seen.get();
+        assertNotNull(context);
+        assertEquals("abc-123_X", context.getRequestId());
+        assertEquals("GET", context.<String>getAttribute("method"));
+        assertEquals("/orders/1", context.<String>getAttribute("uri"));
+        assertEquals("abc-123_X", response.getHeader(RequestContextFilter.REQUEST_ID_HEADER));
+        assertTrue(context.isEnded());
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void contextIsClearedWhenChainThrows() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<RequestContext> seen = new AtomicReference<>();
+        FilterChain chain = (req, res) -> {
+            seen.set(RequestContextHolder.current());
+            throw new ServletException("boom");
+        };
+
+        assertThrows(ServletException.class, () -> filter.doFilter(request, response, chain));
+
+        assertTrue(seen.get().isEnded());
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void previousContextOnThreadIsRestored() throws Exception {
+        RequestContext outer = RequestContext.of("outer");
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(outer)) {
+            filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (req, res) -> {
+                assertNotSame(outer, RequestContextHolder.current());
+            });
+            assertSame(outer, RequestContextHolder.current());
+        }
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void invalidRequestIdIsReplaced() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(RequestContextFilter.REQUEST_ID_HEADER, "id\r\nX-Injected: 1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> { });
+
+        String requestId = response.getHeader(RequestContextFilter.REQUEST_ID_HEADER);
+        assertNotNull(requestId);
+        assertNotEquals("id\r\nX-Injected: 1", requestId);
+        assertEquals(requestId, RequestContextFilter.requestId(requestId));
+
+        assertEquals("ok", RequestContextFilter.requestId("ok"));
+        assertNotEquals("\u00fc", RequestContextFilter.requestId("\u00fc"));
+        assertFalse(RequestContextFilter.requestId(null).isEmpty());
+        assertFalse(RequestContextFilter.requestId("").isEmpty());
+        StringBuilder tooLong = new StringBuilder();
+        for (int i = 0; i < 65; i++) {
+            tooLong.append('a');
+        }
+        assertNotEquals(tooLong.toString(), RequestContextFilter.requestId(tooLong.toString()));
+    }
+
+    @Test
+    public void asyncRequestEndsOnComplete() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<RequestContext> seen = new AtomicReference<>();
+        AtomicReference<AsyncContext> async = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> {
+            seen.set(RequestContextHolder.current());
+            async.set(req.startAsync());
+        });
+
+        // 异步处理期间线程已解绑，上下文仍然有效
+        assertNull(RequestContextHolder.current());
+        assertFalse(seen.get().isEnded());
+
+        async.get().complete();
+        assertTrue(seen.get().isEnded());
+    }
+
+    @Test
+    public void asyncRequestCompletedBeforeListenerIsAddedIsEnded() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<RequestContext> seen = new AtomicReference<>();
+        // 模拟异步处理在其他线程上完成，恰好发生在过滤器注册监听器之前，监听器收不到完成事件
+        MockAsyncContext racing = new MockAsyncContext(request, response) {
+            @Override
+            public void addListener(AsyncListener listener) {
+                complete();
+                super.addListener(listener);
+            }
+        };
+
+        filter.doFilter(request, response, (req, res) -> {
+            seen.set(RequestContextHolder.current());
+            request.setAsyncStarted(true);
+            request.setAsyncContext(racing);
+        });
+
+        assertFalse(request.isAsyncStarted());
+        assertTrue(seen.get().isEnded());
+        assertNull(RequestContextHolder.current());
+    }
+}
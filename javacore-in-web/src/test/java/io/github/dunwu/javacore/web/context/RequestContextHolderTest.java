@@ -0,0 +1,146 @@
+package io.github.dunwu.javacore.web.context;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link RequestContextHolder} 绑定、恢复和泄漏检测测试
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2026-10-19
+ */
+public class RequestContextHolderTest {
+
+    private RequestContextHolder.LeakDetection leakDetection;
+
+    @BeforeEach
+    public void setUp() {
+        leakDetection = RequestContextHolder.getLeakDetection();
+        RequestContextHolder.setLeakDetection(RequestContextHolder.LeakDetection.FAIL);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        RequestContextHolder.setLeakDetection(leakDetection);
+    }
+
+    @Test
+    public void nestedScopesRestorePrevious() {
+        assertNestedScopesRestorePrevious();
+    }
+
+    @Test
+    public void nestedScopesRestorePreviousOnContextAwareThread() throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new ContextAwareThreadFactory("ctx-test").newThread(() -> {
+            try {
+                assertNestedScopesRestorePrevious();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        assertTrue(thread instanceof ContextAwareThread);
+        thread.start();
+        thread.join();
+        assertNull(failure.get());
+    }
+
+    private static void assertNestedScopesRestorePrevious() {
+        RequestContext outer = RequestContext.of("outer");
+        RequestContext inner = RequestContext.of("inner");
+        assertNull(RequestContextHolder.current());
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(outer)) {
+            assertSame(outer, RequestContextHolder.current());
+            try (RequestContextHolder.Scope ignored2 = RequestContextHolder.bind(inner)) {
+                assertSame(inner, RequestContextHolder.current());
+            }
+            assertSame(outer, RequestContextHolder.current());
+            // 绑定 null 表示在 Scope 内解除绑定
+            try (RequestContextHolder.Scope ignored2 = RequestContextHolder.bind(null)) {
+                assertNull(RequestContextHolder.current());
+            }
+            assertSame(outer, RequestContextHolder.current());
+        }
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void outOfOrderCloseRestoresValueBeforeBind() {
+        RequestContextHolder.Scope outer = RequestContextHolder.bind(RequestContext.of("outer"));
+        RequestContextHolder.bind(RequestContext.of("inner"));
+        // 内层 Scope 忘了关闭：外层关闭时仍然恢复到绑定之前，并报告泄漏
+        assertThrows(IllegalStateException.class, outer::close);
+        assertNull(RequestContextHolder.current());
+
+        // 重复关闭无效
+        outer.close();
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void outOfOrderCloseIsLoggedWhenNotFailing() {
+        RequestContextHolder.setLeakDetection(RequestContextHolder.LeakDetection.LOG);
+        RequestContext previous = RequestContext.of("previous");
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(previous)) {
+            RequestContextHolder.Scope outer = RequestContextHolder.bind(RequestContext.of("outer"));
+            RequestContextHolder.bind(RequestContext.of("inner"));
+            outer.close();
+            assertSame(previous, RequestContextHolder.current());
+        }
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void scopeMustBeClosedOnOwningThread() throws InterruptedException {
+        RequestContextHolder.Scope scope = RequestContextHolder.bind(RequestContext.of("owner"));
+        try {
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread thread = new Thread(() -> {
+                try {
+                    scope.close();
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            thread.start();
+            thread.join();
+            assertTrue(failure.get() instanceof IllegalStateException);
+        } finally {
+            scope.close();
+        }
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void failModeDetectsUseAfterRequestEnded() {
+        RequestContext context = RequestContext.of("ended");
+        RequestContext derived = context.with("user", "alice");
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(derived)) {
+            assertEquals("alice", RequestContextHolder.current().<String>getAttribute("user"));
+            // 派生的上下文与原上下文共享结束状态
+            context.end();
+            assertTrue(derived.isEnded());
+            assertThrows(IllegalStateException.class, RequestContextHolder::current);
+        }
+        assertNull(RequestContextHolder.current());
+
+        assertThrows(IllegalStateException.class, () -> RequestContextHolder.bind(context));
+        assertNull(RequestContextHolder.current());
+    }
+
+    @Test
+    public void endedContextIsReturnedWhenNotFailing() {
+        RequestContextHolder.setLeakDetection(RequestContextHolder.LeakDetection.OFF);
+        RequestContext context = RequestContext.of("ended");
+        context.end();
+        try (RequestContextHolder.Scope ignored = RequestContextHolder.bind(context)) {
+            assertSame(context, RequestContextHolder.current());
+        }
+        assertNull(RequestContextHolder.current());
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.dunwu.javacore.bio.bytes.zip;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.CRC32;
+
+/**
+ * 正在写入或已经写入的 ZIP 条目，写中央目录时使用
+ */
+final class ArchiveEntry {
+
+    /**
+     * 原始大小达到该值时使用 ZIP64：本地文件头在写数据之前就要确定格式，此时还不知道压缩后的大小，
+     * 留出余量保证不可压缩的数据压缩后也不会超过 4GB
+     */
+    static final long ZIP64_THRESHOLD = 0xF0000000L;
+
+    final byte[] name;
+
+    final int dosTime;
+
+    final boolean directory;
+
+    final boolean zip64;
+
+    final CRC32 crc = new CRC32();
+
+    long size;
+
+    long compressedSize;
+
+    long localHeaderOffset;
+
+    ArchiveEntry(String name, long lastModifiedMillis, boolean directory, boolean zip64) {
+        this.name = name.getBytes(StandardCharsets.UTF_8);
+        this.dosTime = toDosTime(lastModifiedMillis);
+        this.directory = directory;
+        this.zip64 = zip64;
+    }
+
+    /**
+     * MS-DOS 格式的时间：高 16 位是日期，低 16 位是时间（精度 2 秒），最早 1980 年
+     */
+    static int toDosTime(long millis) {
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (t.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (t.getYear() - 1980) << 25 | t.getMonthValue() << 21 | t.getDayOfMonth() << 16
+                | t.getHour() << 11 | t.getMinute() << 5 | t.getSecond() >> 1;
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.dunwu.javacore.bio.bytes.zip;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Deflater;
+
+/**
+ * 一个数据块的压缩任务（和 pigz 的做法相同）：
+ * <p>
+ * 1. 每块独立地做 raw deflate（不带 zlib 头），不是最后一块时以 SYNC_FLUSH 结束：输出对齐到字节边界、
+ * 不带结束标记，所有块的输出直接拼接起来就是一个合法的 deflate 流，解压端不需要知道分过块；
+ * <p>
+ * 2. 用前一块最后 32KB 作为预置字典，块开头的数据也能引用前面的内容，压缩率和单线程基本相同。
+ * <p>
+ * 块对象（输入输出缓冲区和 Deflater）循环使用，同时在途的块数有上限，内存占用固定
+ */
+final class DeflateChunk {
+
+    /**
+     * deflate 的回溯窗口大小
+     */
+    static final int DICTIONARY_SIZE = 32 * 1024;
+
+    final byte[] input;
+
+    int length;
+
+    final byte[] dictionary = new byte[DICTIONARY_SIZE];
+
+    int dictionaryLength;
+
+    byte[] output;
+
+    int outputLength;
+
+    /**
+     * 条目的第一块：写出之前先写本地文件头
+     */
+    boolean first;
+
+    /**
+     * 条目的最后一块：以 finish 结束 deflate 流，写出之后写数据描述符
+     */
+    boolean last;
+
+    ArchiveEntry entry;
+
+    ForkJoinTask<?> task;
+
+    private final Deflater deflater;
+
+    DeflateChunk(int chunkSize, int level) {
+        this.input = new byte[chunkSize];
+        // 不可压缩的数据每 16KB 多 5 字节的块头，再留出 SYNC_FLUSH 的空块和 finish 的余量
+        this.output = new byte[chunkSize + (chunkSize >>> 10) + 64];
+        this.deflater = new Deflater(level, true);
+    }
+
+    void compress() {
+        deflater.reset();
+        if (dictionaryLength > 0) {
+            deflater.setDictionary(dictionary, 0, dictionaryLength);
+        }
+        deflater.setInput(input, 0, length);
+        outputLength = 0;
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflate(Deflater.NO_FLUSH);
+            }
+        } else {
+            // 返回值等于剩余空间时，可能还有没输出完的数据，按文档要求用同样的 flush 参数再调用一次
+            while (deflate(Deflater.SYNC_FLUSH)) {
+                // 继续输出
+            }
+        }
+    }
+
+    /**
+     * 输出缓冲区被写满时返回 true
+     */
+    private boolean deflate(int flush) {
+        if (outputLength == output.length) {
+            output = Arrays.copyOf(output, output.length * 2);
+        }
+        int space = output.length - outputLength;
+        int n = deflater.deflate(output, outputLength, space, flush);
+        outputLength += n;
+        return n == space;
+    }
+
+    void end() {
+        deflater.end();
+    }
+}
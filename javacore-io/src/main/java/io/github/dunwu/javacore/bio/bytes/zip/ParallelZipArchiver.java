@@ -0,0 +1,340 @@
+package io.github.dunwu.javacore.bio.bytes.zip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * 多线程压缩的 ZIP 打包器，适合打包 GB 级的日志目录：单线程 deflate 只能用一个核，是打包的瓶颈。
+ * <p>
+ * 1. 调用线程顺序读文件（FileChannel，每次读一整块），把每个文件切成 chunkSize 大小的块；
+ * <p>
+ * 2. 各块在 ForkJoinPool 上并行压缩（见 {@link DeflateChunk}），小文件本身就是一块，多个小文件之间同样并行；
+ * <p>
+ * 3. 调用线程按提交顺序取回压缩结果写出，在途的块数有上限（并行度 * 2 + 2），读得比压缩快时在这里等待，内存占用固定；
+ * <p>
+ * 4. 输出是标准 ZIP（超过 4GB 时自动使用 ZIP64），用 unzip、{@link java.util.zip.ZipFile} 都能解压。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * try (ParallelZipArchiver archiver = new ParallelZipArchiver(Paths.get("logs.zip")).setParallelism(8).open()) {
+ *     archiver.addDirectory(Paths.get("/var/log/app"));
+ * }
+ * </pre>
+ * 非线程安全，只能在一个线程中调用。
+ */
+public class ParallelZipArchiver implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelZipArchiver.class);
+
+    private final Path target;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private int chunkSize = 1024 * 1024;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private ForkJoinPool pool;
+
+    private boolean ownPool;
+
+    private ZipOutput output;
+
+    private int maxInFlight;
+
+    private int created;
+
+    private final Deque<DeflateChunk> free = new ArrayDeque<>();
+
+    private final Deque<Pending> pending = new ArrayDeque<>();
+
+    /**
+     * 当前文件上一块的最后 32KB，作为下一块的字典
+     */
+    private final byte[] window = new byte[DeflateChunk.DICTIONARY_SIZE];
+
+    private int windowLength;
+
+    private long bytesIn;
+
+    public ParallelZipArchiver(Path target) {
+        this.target = target;
+    }
+
+    /**
+     * 压缩级别 0-9，默认 6
+     */
+    public ParallelZipArchiver setLevel(int level) {
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * 每块的大小，默认 1MB。块越小并行越均匀，但每块多一个 SYNC_FLUSH 标记，压缩率略降
+     */
+    public ParallelZipArchiver setChunkSize(int chunkSize) {
+        if (chunkSize < DeflateChunk.DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be at least " + DeflateChunk.DICTIONARY_SIZE);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * 压缩线程数，默认 CPU 核数，在 {@link #open} 时创建专用的 ForkJoinPool，关闭时销毁
+     */
+    public ParallelZipArchiver setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * 使用外部的线程池（例如 ForkJoinPool.commonPool()），关闭时不销毁
+     */
+    public ParallelZipArchiver setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        this.parallelism = pool.getParallelism();
+        return this;
+    }
+
+    public ParallelZipArchiver open() throws IOException {
+        if (output != null) {
+            throw new IllegalStateException("archiver already opened");
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+            ownPool = true;
+        }
+        maxInFlight = parallelism * 2 + 2;
+        output = new ZipOutput(target);
+        return this;
+    }
+
+    /**
+     * 递归添加目录，条目名以目录名开头（和 zip -r 相同），不跟随符号链接。
+     * 遍历过程中被删除的文件（例如日志滚动）跳过并记录警告
+     */
+    public ParallelZipArchiver addDirectory(Path dir) throws IOException {
+        Path base = dir.toAbsolutePath().normalize().getParent();
+        Path root = dir.toAbsolutePath().normalize();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                addEntry(new ArchiveEntry(entryName(base, d) + "/", attrs.lastModifiedTime().toMillis(), true,
+                        false), null);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    try {
+                        addFile(file, entryName(base, file), attrs);
+                    } catch (NoSuchFileException e) {
+                        logger.warn("file disappeared while archiving, skip {}", file);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) {
+                    logger.warn("file disappeared while archiving, skip {}", file);
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+        });
+        return this;
+    }
+
+    private static String entryName(Path base, Path path) {
+        Path relative = base == null ? path.getFileName() : base.relativize(path);
+        return relative.toString().replace(File.separatorChar, '/');
+    }
+
+    public ParallelZipArchiver addFile(Path file, String name) throws IOException {
+        return addFile(file, name, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    /**
+     * 按打开时的文件大小读取，正在追加的日志文件之后写入的部分不包含在内；
+     * 读取过程中文件被截断（例如 logrotate 的 copytruncate）时，条目在已读到的位置结束
+     */
+    private ParallelZipArchiver addFile(Path file, String name, BasicFileAttributes attrs) throws IOException {
+        ensureOpen();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = Math.min(attrs.size(), in.size());
+            ArchiveEntry entry = new ArchiveEntry(name, attrs.lastModifiedTime().toMillis(), false,
+                    size >= ArchiveEntry.ZIP64_THRESHOLD);
+            long remaining = size;
+            boolean first = true;
+            windowLength = 0;
+            do {
+                DeflateChunk chunk = acquire();
+                int expected = (int) Math.min(remaining, chunkSize);
+                int n = readFully(in, chunk.input, expected);
+                if (n < expected) {
+                    logger.warn("file truncated while archiving, {} ends at {} bytes", file, entry.size + n);
+                    remaining = n;
+                }
+                chunk.length = n;
+                chunk.first = first;
+                chunk.last = remaining == n;
+                entry.crc.update(chunk.input, 0, n);
+                entry.size += n;
+                // 字典是上一块的结尾，然后把这一块的结尾留给下一块
+                System.arraycopy(window, 0, chunk.dictionary, 0, windowLength);
+                chunk.dictionaryLength = windowLength;
+                windowLength = Math.min(n, window.length);
+                System.arraycopy(chunk.input, n - windowLength, window, 0, windowLength);
+                addEntry(entry, chunk);
+                remaining -= n;
+                first = false;
+            } while (remaining > 0);
+            bytesIn += entry.size;
+        }
+        return this;
+    }
+
+    /**
+     * 读满 length 字节，文件提前结束时返回实际读到的字节数
+     */
+    private static int readFully(FileChannel in, byte[] array, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(array, 0, length);
+        while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+            // 继续读
+        }
+        return buffer.position();
+    }
+
+    private void addEntry(ArchiveEntry entry, DeflateChunk chunk) throws IOException {
+        if (chunk != null) {
+            chunk.entry = entry;
+            chunk.task = pool.submit(chunk::compress);
+        }
+        pending.addLast(new Pending(entry, chunk));
+        while (pending.size() > maxInFlight) {
+            writeOldest();
+        }
+    }
+
+    private DeflateChunk acquire() throws IOException {
+        while (free.isEmpty() && created == maxInFlight) {
+            writeOldest();
+        }
+        if (!free.isEmpty()) {
+            return free.pop();
+        }
+        created++;
+        return new DeflateChunk(chunkSize, level);
+    }
+
+    /**
+     * 等待最早提交的块压缩完成并写出
+     */
+    private void writeOldest() throws IOException {
+        Pending p = pending.pollFirst();
+        DeflateChunk chunk = p.chunk;
+        if (chunk == null) {
+            output.writeLocalHeader(p.entry);
+            return;
+        }
+        chunk.task.join();
+        chunk.task = null;
+        if (chunk.first) {
+            output.writeLocalHeader(chunk.entry);
+        }
+        output.writeData(chunk.output, 0, chunk.outputLength);
+        chunk.entry.compressedSize += chunk.outputLength;
+        if (chunk.last) {
+            output.writeDataDescriptor(chunk.entry);
+        }
+        chunk.entry = null;
+        free.push(chunk);
+    }
+
+    private void ensureOpen() {
+        if (output == null) {
+            throw new IllegalStateException("archiver not opened");
+        }
+    }
+
+    /**
+     * 已读取的原始字节数
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * 已写出的 ZIP 文件字节数
+     */
+    public long getBytesOut() {
+        return output == null ? 0 : output.position();
+    }
+
+    /**
+     * 写出剩余的块和中央目录。中途出错时 ZIP 文件不完整，但线程池和文件都会被释放
+     */
+    @Override
+    public void close() throws IOException {
+        if (output == null) {
+            return;
+        }
+        try {
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+            output.finish();
+        } finally {
+            for (Pending p : pending) {
+                if (p.chunk != null) {
+                    // 等任务结束再释放 Deflater 的本地内存，任务本身的异常已经不重要
+                    p.chunk.task.quietlyJoin();
+                    p.chunk.end();
+                }
+            }
+            for (DeflateChunk chunk : free) {
+                chunk.end();
+            }
+            if (ownPool) {
+                pool.shutdown();
+            }
+            output.close();
+        }
+    }
+
+    private static final class Pending {
+
+        final ArchiveEntry entry;
+
+        final DeflateChunk chunk;
+
+        Pending(ArchiveEntry entry, DeflateChunk chunk) {
+            this.entry = entry;
+            this.chunk = chunk;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package io.github.dunwu.javacore.bio.bytes.zip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ZIP 文件格式（APPNOTE.TXT）的写入：本地文件头 + 数据 + 数据描述符，最后是中央目录。
+ * <p>
+ * 文件条目在写数据之前还不知道 CRC 和压缩后的大小，所以设置标志位 3，用数据描述符在数据之后补上；
+ * 大文件、超过 4GB 的偏移量或超过 65535 个条目时写 ZIP64 扩展字段和 ZIP64 目录结束记录。
+ * 所有数字都是小端序，经过 1MB 的直接缓冲区写到 FileChannel
+ */
+final class ZipOutput implements Closeable {
+
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+
+    /**
+     * 标志位 3：CRC 和大小在数据描述符中；标志位 11：文件名是 UTF-8
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final List<ArchiveEntry> entries = new ArrayList<>();
+
+    private long position;
+
+    ZipOutput(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    long position() {
+        return position;
+    }
+
+    int entryCount() {
+        return entries.size();
+    }
+
+    void writeLocalHeader(ArchiveEntry entry) throws IOException {
+        entry.localHeaderOffset = position;
+        entries.add(entry);
+        ensure(30 + entry.name.length + 20);
+        buffer.putInt(0x04034b50);
+        buffer.putShort((short) (entry.zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        buffer.putShort((short) (entry.directory ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR));
+        buffer.putShort((short) (entry.directory ? METHOD_STORED : METHOD_DEFLATED));
+        buffer.putInt(entry.dosTime);
+        // CRC、压缩后大小、原始大小：目录都是 0，文件在数据描述符中
+        buffer.putInt(0);
+        buffer.putInt(entry.zip64 ? (int) MAX_32 : 0);
+        buffer.putInt(entry.zip64 ? (int) MAX_32 : 0);
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) (entry.zip64 ? 20 : 0));
+        buffer.put(entry.name);
+        if (entry.zip64) {
+            buffer.putShort((short) ZIP64_EXTRA_ID);
+            buffer.putShort((short) 16);
+            buffer.putLong(0L);
+            buffer.putLong(0L);
+        }
+        position += 30 + entry.name.length + (entry.zip64 ? 20 : 0);
+    }
+
+    void writeData(byte[] data, int offset, int length) throws IOException {
+        if (length > buffer.remaining()) {
+            flushBuffer();
+        }
+        if (length >= buffer.capacity()) {
+            ByteBuffer src = ByteBuffer.wrap(data, offset, length);
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+        } else {
+            buffer.put(data, offset, length);
+        }
+        position += length;
+    }
+
+    void writeDataDescriptor(ArchiveEntry entry) throws IOException {
+        ensure(24);
+        buffer.putInt(0x08074b50);
+        buffer.putInt((int) entry.crc.getValue());
+        if (entry.zip64) {
+            buffer.putLong(entry.compressedSize);
+            buffer.putLong(entry.size);
+            position += 24;
+        } else {
+            if (entry.compressedSize >= MAX_32 || entry.size >= MAX_32) {
+                throw new IOException("entry exceeds 4GB without zip64: " + new String(entry.name));
+            }
+            buffer.putInt((int) entry.compressedSize);
+            buffer.putInt((int) entry.size);
+            position += 16;
+        }
+    }
+
+    /**
+     * 写中央目录和目录结束记录，之后不能再写条目
+     */
+    void finish() throws IOException {
+        long centralDirectoryOffset = position;
+        for (ArchiveEntry entry : entries) {
+            writeCentralHeader(entry);
+        }
+        long centralDirectorySize = position - centralDirectoryOffset;
+        int count = entries.size();
+        if (count >= MAX_16 || centralDirectoryOffset >= MAX_32 || centralDirectorySize >= MAX_32) {
+            long zip64EndOffset = position;
+            ensure(56 + 20);
+            buffer.putInt(0x06064b50);
+            buffer.putLong(44L);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putLong(count);
+            buffer.putLong(count);
+            buffer.putLong(centralDirectorySize);
+            buffer.putLong(centralDirectoryOffset);
+            // ZIP64 目录结束记录的定位器
+            buffer.putInt(0x07064b50);
+            buffer.putInt(0);
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1);
+            position += 56 + 20;
+        }
+        ensure(22);
+        buffer.putInt(0x06054b50);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) Math.min(count, MAX_16));
+        buffer.putShort((short) Math.min(count, MAX_16));
+        buffer.putInt((int) Math.min(centralDirectorySize, MAX_32));
+        buffer.putInt((int) Math.min(centralDirectoryOffset, MAX_32));
+        buffer.putShort((short) 0);
+        position += 22;
+        flushBuffer();
+    }
+
+    /**
+     * 中央目录中超出 32 位的字段写 0xFFFFFFFF，真实值按 原始大小、压缩后大小、偏移量 的顺序放在 ZIP64 扩展字段中
+     */
+    private void writeCentralHeader(ArchiveEntry entry) throws IOException {
+        boolean sizesInExtra = entry.zip64 || entry.size >= MAX_32 || entry.compressedSize >= MAX_32;
+        boolean offsetInExtra = entry.localHeaderOffset >= MAX_32;
+        int extraLength = (sizesInExtra ? 16 : 0) + (offsetInExtra ? 8 : 0);
+        if (extraLength > 0) {
+            extraLength += 4;
+        }
+        int version = sizesInExtra || offsetInExtra ? VERSION_ZIP64 : VERSION_DEFAULT;
+        ensure(46 + entry.name.length + extraLength);
+        buffer.putInt(0x02014b50);
+        buffer.putShort((short) version);
+        buffer.putShort((short) version);
+        buffer.putShort((short) (entry.directory ? FLAG_UTF8 : FLAG_UTF8 | FLAG_DATA_DESCRIPTOR));
+        buffer.putShort((short) (entry.directory ? METHOD_STORED : METHOD_DEFLATED));
+        buffer.putInt(entry.dosTime);
+        buffer.putInt((int) entry.crc.getValue());
+        buffer.putInt(sizesInExtra ? (int) MAX_32 : (int) entry.compressedSize);
+        buffer.putInt(sizesInExtra ? (int) MAX_32 : (int) entry.size);
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) extraLength);
+        // 注释长度、起始磁盘号、内部属性
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        // 外部属性：MS-DOS 目录属性
+        buffer.putInt(entry.directory ? 0x10 : 0);
+        buffer.putInt(offsetInExtra ? (int) MAX_32 : (int) entry.localHeaderOffset);
+        buffer.put(entry.name);
+        if (extraLength > 0) {
+            buffer.putShort((short) ZIP64_EXTRA_ID);
+            buffer.putShort((short) (extraLength - 4));
+            if (sizesInExtra) {
+                buffer.putLong(entry.size);
+                buffer.putLong(entry.compressedSize);
+            }
+            if (offsetInExtra) {
+                buffer.putLong(entry.localHeaderOffset);
+            }
+        }
+        position += 46 + entry.name.length + extraLength;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
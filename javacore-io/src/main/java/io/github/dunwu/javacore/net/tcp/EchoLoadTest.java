@@ -0,0 +1,126 @@
+package io.github.dunwu.javacore.net.tcp;
+
+import io.github.dunwu.javacore.nio.reactor.NioBenchmarkClient;
+import io.github.dunwu.javacore.nio.reactor.NioBenchmarkClient.LatencyHistogram;
+import io.github.dunwu.javacore.nio.reactor.NioBenchmarkClient.LineEchoConversation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回显服务的并发连接压测：先建立全部连接并保持住，再让每个连接串行地发 messages 行、等回显，最后发 bye 等服务端关闭。
+ * 用 {@link NioBenchmarkClient} 的少量客户端线程 + Selector 驱动所有连接，客户端本身不会成为线程数的瓶颈。
+ * <p>
+ * 用法：EchoLoadTest [connections] [messages] [target...]，默认 10000 10 thread virtual nio。target 可以是
+ * <ul>
+ * <li>thread / virtual / nio：在本进程中以对应模式启动 {@link ScalableEchoServer}（随机端口）再压测，
+ * 同时报告压测期间的线程数峰值和堆内存占用；</li>
+ * <li>host:port：压测已经启动的服务，例如 {@link EchoThreadServer} 的 localhost:8888。</li>
+ * </ul>
+ * 每个连接在客户端和服务端各占一个文件句柄，本机压测 1 万个连接需要 ulimit -n 大于 2 万，
+ * 连接数还受临时端口范围（net.ipv4.ip_local_port_range）限制。thread 模式下每个连接一个平台线程，
+ * 连接数大了之后会受 ulimit -u、内存限制而拒绝连接，这正是要对比的地方
+ */
+public class EchoLoadTest {
+
+    private static final String ECHO_PREFIX = "ECHO : ";
+
+    private static final String BYE = "bye";
+
+    private final InetSocketAddress address;
+
+    private final int messages;
+
+    public EchoLoadTest(InetSocketAddress address, int messages) {
+        this.address = address;
+        this.messages = messages;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<String> targets = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            targets.add(args[i]);
+        }
+        if (targets.isEmpty()) {
+            targets.add("thread");
+            targets.add("virtual");
+            targets.add("nio");
+        }
+        for (String target : targets) {
+            System.out.println("==== " + target + ", " + connections + " connections, " + messages + " messages each");
+            int colon = target.lastIndexOf(':');
+            if (colon > 0) {
+                InetSocketAddress address = new InetSocketAddress(target.substring(0, colon),
+                        Integer.parseInt(target.substring(colon + 1)));
+                new EchoLoadTest(address, messages).run(connections, null);
+                continue;
+            }
+            ScalableEchoServer server = new ScalableEchoServer(0)
+                    .setMode(ScalableEchoServer.parseMode(target))
+                    .setMaxConnections(connections)
+                    .setIdleTimeout(5, TimeUnit.MINUTES);
+            try {
+                server.start();
+            } catch (UnsupportedOperationException e) {
+                System.out.println("skipped: " + e.getMessage());
+                continue;
+            }
+            try {
+                new EchoLoadTest(new InetSocketAddress("127.0.0.1", server.getLocalPort()), messages)
+                        .run(connections, server);
+            } finally {
+                server.close();
+            }
+            // 让上一轮的线程、连接（TIME_WAIT 之外的资源）释放掉，避免影响下一轮的统计
+            System.gc();
+            Thread.sleep(1000);
+        }
+    }
+
+    /**
+     * @param server 本进程中的服务端，用于报告它的连接数；压测外部服务时为 null
+     */
+    public void run(int connections, ScalableEchoServer server) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        int loopCount = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        NioBenchmarkClient client = new NioBenchmarkClient(address,
+                name -> new LineEchoConversation(name, messages, ECHO_PREFIX, BYE));
+        long begin = System.nanoTime();
+        client.open(connections, loopCount, "echo-load-");
+        client.awaitConnected(60, TimeUnit.SECONDS);
+        // 连接建立后服务端不一定马上 accept 到，稍等一下再看服务端的连接数
+        Thread.sleep(500);
+        System.out.printf("connected: %d, failed: %d, in %d ms%s%n", client.getConnectedCount(),
+                client.getFailedCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin),
+                server == null ? "" : ", server connections: " + server.getConnectionCount()
+                        + ", rejected: " + server.getRejectedConnectionCount());
+        Runtime runtime = Runtime.getRuntime();
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+        long start = System.nanoTime();
+        client.startMeasuring();
+        client.start();
+        long deadline = start + TimeUnit.SECONDS.toNanos(120);
+        while (client.getFinishedCount() + client.getErrorCount() < client.getConnectedCount()
+                && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        LatencyHistogram histogram = client.stop();
+        System.out.printf("finished: %d, errors: %d, messages: %,d, throughput: %,.0f msg/s%n",
+                client.getFinishedCount(), client.getErrorCount(), histogram.count(),
+                histogram.count() * 1e9 / elapsed);
+        System.out.printf("latency(us) p50: %d, p99: %d, max: %d%n", histogram.percentile(0.5),
+                histogram.percentile(0.99), histogram.max());
+        System.out.printf("peak threads: %d, heap used with all connections open: %d MB%n",
+                threads.getPeakThreadCount(), heapUsed >> 20);
+    }
+}
@@ -0,0 +1,437 @@
+package io.github.dunwu.javacore.net.tcp;
+
+import io.github.dunwu.javacore.nio.reactor.Connection;
+import io.github.dunwu.javacore.nio.reactor.HandlerExecutors;
+import io.github.dunwu.javacore.nio.reactor.NioServer;
+import io.github.dunwu.javacore.nio.reactor.Pipeline;
+import io.github.dunwu.javacore.nio.reactor.codec.LineBasedFrameDecoder;
+import io.github.dunwu.javacore.nio.reactor.codec.StringLineEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 和 {@link EchoThreadServer} 协议相同的回显服务端（每行回复 "ECHO : " + 内容，收到 bye 或空行时关闭连接），
+ * 可以选择三种连接处理模型：
+ * <p>
+ * 1. {@link Mode#THREAD}：每个连接一个平台线程，即 EchoThreadServer 的做法。每个线程要预留栈空间、占一个内核线程，
+ * 几千个连接之后创建线程失败（unable to create native thread）或内存耗尽；
+ * <p>
+ * 2. {@link Mode#VIRTUAL_THREAD}：每个连接一个虚拟线程（JDK 21+），代码仍是同步阻塞的写法，
+ * 阻塞在 socket 读写上时只挂起虚拟线程，栈在堆上按需增长，几万个连接只需要 CPU 核数个平台线程；
+ * <p>
+ * 3. {@link Mode#NIO}：{@link NioServer} 的主从 Reactor，少量 I/O 线程用 Selector 管理所有连接。
+ * <p>
+ * 三种模式都支持连接数上限（超过时新连接 accept 之后立即关闭）和空闲超时（超时没有收到数据时关闭）。
+ * 使用示例如下：
+ * <pre>
+ * ScalableEchoServer server = new ScalableEchoServer(8888)
+ *         .setMode(ScalableEchoServer.Mode.VIRTUAL_THREAD)
+ *         .setMaxConnections(50_000)
+ *         .setIdleTimeout(60, TimeUnit.SECONDS)
+ *         .start();
+ * </pre>
+ * 压测见 {@link EchoLoadTest}，{@link EchoClient} 可以直接连接。
+ */
+public class ScalableEchoServer implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScalableEchoServer.class);
+
+    private static final byte[] ECHO_PREFIX = "ECHO : ".getBytes(StandardCharsets.UTF_8);
+
+    public enum Mode {
+        THREAD,
+        VIRTUAL_THREAD,
+        NIO
+    }
+
+    private final int port;
+
+    private Mode mode = Mode.VIRTUAL_THREAD;
+
+    private int maxConnections = 10_000;
+
+    private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(60);
+
+    private int maxLineLength = 8192;
+
+    private int backlog = 4096;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    private ServerSocket serverSocket;
+
+    private Thread acceptor;
+
+    private ThreadFactory threadFactory;
+
+    private NioServer nioServer;
+
+    private volatile boolean closed;
+
+    /**
+     * @param port 监听端口，0 表示随机端口
+     */
+    public ScalableEchoServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * 连接处理模型，默认虚拟线程
+     */
+    public ScalableEchoServer setMode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * 同时保持的连接数上限，默认 10000
+     */
+    public ScalableEchoServer setMaxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * 空闲超时，默认 60 秒，0 表示不超时。阻塞模式下是 socket 的读超时；NIO 模式下读写都算活动
+     */
+    public ScalableEchoServer setIdleTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        this.idleTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * 一行的最大字节数，超过时关闭连接，默认 8KB
+     */
+    public ScalableEchoServer setMaxLineLength(int maxLineLength) {
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("maxLineLength must be positive");
+        }
+        this.maxLineLength = maxLineLength;
+        return this;
+    }
+
+    /**
+     * accept 队列长度，默认 4096（受 somaxconn 限制），大量连接同时建立时太小会导致客户端连接超时
+     */
+    public ScalableEchoServer setBacklog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    public synchronized ScalableEchoServer start() throws IOException {
+        if (serverSocket != null || nioServer != null) {
+            throw new IllegalStateException("already started");
+        }
+        if (mode == Mode.NIO) {
+            Pipeline<String> pipeline = new Pipeline<String>(() -> new LineBasedFrameDecoder(maxLineLength),
+                    ScalableEchoServer::echo)
+                    .setEncoder(new StringLineEncoder(StandardCharsets.UTF_8, "\n"));
+            nioServer = new NioServer(port)
+                    .setBacklog(backlog)
+                    .setMaxConnections(maxConnections)
+                    .setIdleTimeout(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .setPipeline(pipeline)
+                    .start();
+            return this;
+        }
+        if (mode == Mode.VIRTUAL_THREAD) {
+            threadFactory = HandlerExecutors.virtualThreadFactory("echo");
+            if (threadFactory == null) {
+                throw new UnsupportedOperationException("virtual threads require JDK 21 or later");
+            }
+        } else {
+            AtomicInteger num = new AtomicInteger();
+            threadFactory = r -> new Thread(r, "echo-" + num.incrementAndGet());
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), backlog);
+        acceptor = new Thread(this::acceptLoop, "echo-acceptor");
+        acceptor.start();
+        return this;
+    }
+
+    private static void echo(Connection connection, String line) {
+        if (line.isEmpty() || "bye".equals(line)) {
+            connection.closeAfterFlush();
+        } else {
+            connection.send("ECHO : " + line);
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                // 通常是文件句柄耗尽，稍后重试
+                logger.warn("accept failed: {}", e.toString());
+                sleepQuietly(100);
+                continue;
+            }
+            if (connections.incrementAndGet() > maxConnections) {
+                reject(socket);
+                continue;
+            }
+            try {
+                threadFactory.newThread(() -> serve(socket)).start();
+            } catch (OutOfMemoryError e) {
+                // 平台线程数到了操作系统的上限：thread-per-connection 模型的极限，拒绝连接而不是让 acceptor 退出
+                logger.warn("cannot start thread for connection, {} connections: {}", connections.get(), e.toString());
+                reject(socket);
+            }
+        }
+    }
+
+    private void reject(Socket socket) {
+        connections.decrementAndGet();
+        rejected.increment();
+        closeQuietly(socket);
+    }
+
+    /**
+     * 一个连接的处理逻辑，阻塞式的读写。同一批到达的多行（客户端流水线发送）全部回复后才 flush 一次
+     */
+    private void serve(Socket socket) {
+        sockets.add(socket);
+        try {
+            if (closed) {
+                return;
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) Math.min(idleTimeoutMillis, Integer.MAX_VALUE));
+            LineReader reader = new LineReader(socket.getInputStream(), maxLineLength);
+            OutputStream out = socket.getOutputStream();
+            byte[] response = new byte[256];
+            int length = 0;
+            byte[] line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length == 0 || isBye(line)) {
+                    break;
+                }
+                int size = ECHO_PREFIX.length + line.length + 1;
+                if (length + size > response.length) {
+                    response = Arrays.copyOf(response, Math.max(response.length * 2, length + size));
+                }
+                System.arraycopy(ECHO_PREFIX, 0, response, length, ECHO_PREFIX.length);
+                System.arraycopy(line, 0, response, length + ECHO_PREFIX.length, line.length);
+                response[length + size - 1] = '\n';
+                length += size;
+                if (!reader.hasLine()) {
+                    out.write(response, 0, length);
+                    length = 0;
+                }
+            }
+            if (length > 0) {
+                out.write(response, 0, length);
+            }
+        } catch (SocketTimeoutException e) {
+            logger.debug("close idle connection {}", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            logger.debug("connection {} failed: {}", socket.getRemoteSocketAddress(), e.toString());
+        } finally {
+            sockets.remove(socket);
+            closeQuietly(socket);
+            connections.decrementAndGet();
+        }
+    }
+
+    private static boolean isBye(byte[] line) {
+        return line.length == 3 && line[0] == 'b' && line[1] == 'y' && line[2] == 'e';
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int getLocalPort() {
+        return nioServer != null ? nioServer.getLocalPort() : serverSocket.getLocalPort();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 当前的连接数
+     */
+    public int getConnectionCount() {
+        return nioServer != null ? nioServer.getConnectionCount() : connections.get();
+    }
+
+    /**
+     * 因超过连接数上限（或无法创建线程）而被拒绝的连接数
+     */
+    public long getRejectedConnectionCount() {
+        return nioServer != null ? nioServer.getRejectedConnectionCount() : rejected.sum();
+    }
+
+    /**
+     * 停止 accept 并关闭所有连接，阻塞在读上的线程随之退出
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (nioServer != null) {
+            nioServer.close();
+            return;
+        }
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        if (acceptor != null) {
+            try {
+                acceptor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 已经断开
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 参数：端口（默认 8888）、模式 thread / virtual / nio（默认 virtual）、连接数上限（默认 10000）
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8888;
+        Mode mode = args.length > 1 ? parseMode(args[1]) : Mode.VIRTUAL_THREAD;
+        int maxConnections = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        ScalableEchoServer server = new ScalableEchoServer(port).setMode(mode).setMaxConnections(maxConnections)
+                .start();
+        System.out.println("服务器运行，模式：" + mode + "，端口：" + server.getLocalPort());
+    }
+
+    static Mode parseMode(String name) {
+        switch (name.toLowerCase()) {
+            case "thread":
+                return Mode.THREAD;
+            case "virtual":
+                return Mode.VIRTUAL_THREAD;
+            case "nio":
+                return Mode.NIO;
+            default:
+                return Mode.valueOf(name.toUpperCase());
+        }
+    }
+
+    /**
+     * 按行读取字节，行的长度有上限（BufferedReader.readLine 没有，一个不发换行符的客户端可以耗尽内存）。
+     * 缓冲区从 256 字节开始按需增长，空闲连接占用的内存很小
+     */
+    private static final class LineReader {
+
+        private final InputStream in;
+
+        private final int maxLineLength;
+
+        private byte[] buffer = new byte[256];
+
+        private int start;
+
+        private int end;
+
+        LineReader(InputStream in, int maxLineLength) {
+            this.in = in;
+            this.maxLineLength = maxLineLength;
+        }
+
+        /**
+         * 读一行，不含 \n 或 \r\n，连接关闭时返回 null
+         */
+        byte[] readLine() throws IOException {
+            int scanned = start;
+            while (true) {
+                for (int i = scanned; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        int lineEnd = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+                        byte[] line = Arrays.copyOfRange(buffer, start, lineEnd);
+                        start = i + 1;
+                        return line;
+                    }
+                }
+                scanned = end;
+                if (end - start > maxLineLength) {
+                    throw new IOException("line exceeds " + maxLineLength + " bytes");
+                }
+                if (end == buffer.length) {
+                    if (start > 0) {
+                        System.arraycopy(buffer, start, buffer, 0, end - start);
+                        scanned -= start;
+                        end -= start;
+                        start = 0;
+                    } else {
+                        buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxLineLength + 2));
+                    }
+                }
+                int n = in.read(buffer, end, buffer.length - end);
+                if (n < 0) {
+                    return null;
+                }
+                end += n;
+            }
+        }
+
+        /**
+         * 缓冲区中是否还有一个完整的行，有的话不必 flush，处理完再一起写出
+         */
+        boolean hasLine() {
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
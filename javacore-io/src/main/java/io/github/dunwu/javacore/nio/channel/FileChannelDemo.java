@@ -17,6 +17,8 @@ import java.nio.channels.FileChannel;
  * - 写入文件：`main("write")`
  * - 复制文件：`main("copy")`
  * - 读取文件：`main("read")`
+ * <p>
+ * 基于内存映射和 transferTo 的可复用存储结构见 {@link io.github.dunwu.javacore.nio.log.SegmentLog}。
  *
  * @author
  */
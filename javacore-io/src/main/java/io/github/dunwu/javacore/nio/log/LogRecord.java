@@ -0,0 +1,112 @@
+package io.github.dunwu.javacore.nio.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * 日志中的一条记录。磁盘格式（也是 {@link LogSlice#transferTo} 发出的网络格式）：
+ * <pre>
+ * +----------------+----------------+-----------------+
+ * | length (int32) | crc32 (int32)  | payload (length) |
+ * +----------------+----------------+-----------------+
+ * </pre>
+ * offset 不写入记录，由它在段中的顺序决定；但 CRC 覆盖 offset + payload，所以段文件中预分配的全零区域、
+ * 或者截断后残留的旧数据都不会被误认为有效记录，恢复时遇到第一条校验失败的记录就是日志的结尾。
+ */
+public final class LogRecord {
+
+    /**
+     * 记录头：4 字节 payload 长度 + 4 字节 CRC32
+     */
+    public static final int HEADER_SIZE = 8;
+
+    private final long offset;
+
+    private final ByteBuffer payload;
+
+    LogRecord(long offset, ByteBuffer payload) {
+        this.offset = offset;
+        this.payload = payload;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * 只读的 payload。从 {@link SegmentLog} 读出时是段文件映射内存的视图，没有拷贝
+     */
+    public ByteBuffer getPayload() {
+        return payload;
+    }
+
+    public byte[] getPayloadBytes() {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 从 in 的 position 处解出一条 offset 为 expectedOffset 的记录并移动 position，
+     * 用于解析 {@link LogSlice#transferTo} 收到的数据。数据不完整时返回 null，position 不变
+     *
+     * @throws IOException 校验失败
+     */
+    public static LogRecord decode(ByteBuffer in, long expectedOffset) throws IOException {
+        int position = in.position();
+        if (in.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int length = in.getInt(position);
+        if (length < 0) {
+            throw new IOException("corrupt record at offset " + expectedOffset + ": length " + length);
+        }
+        if (in.remaining() - HEADER_SIZE < length) {
+            return null;
+        }
+        ByteBuffer payload = view(in, position + HEADER_SIZE, length);
+        if (crc(expectedOffset, payload) != in.getInt(position + 4)) {
+            throw new IOException("corrupt record at offset " + expectedOffset + ": crc mismatch");
+        }
+        in.position(position + HEADER_SIZE + length);
+        return new LogRecord(expectedOffset, payload.asReadOnlyBuffer());
+    }
+
+    @Override
+    public String toString() {
+        return "LogRecord(offset=" + offset + ", size=" + payload.remaining() + ")";
+    }
+
+    // ------------------------------------------------------------------ 段文件读写共用
+
+    static int crc(long offset, ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (offset >>> shift));
+        }
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * buffer 的 position 处，在 limit 之内是否有一条 offset 为 expectedOffset 的有效记录，有则返回 payload 长度，否则返回 -1
+     */
+    static int validate(ByteBuffer buffer, int position, int limit, long expectedOffset) {
+        if (limit - position < HEADER_SIZE) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length < 0 || length > limit - position - HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer payload = view(buffer, position + HEADER_SIZE, length);
+        return crc(expectedOffset, payload) == buffer.getInt(position + 4) ? length : -1;
+    }
+
+    static ByteBuffer view(ByteBuffer buffer, int position, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(position + length).position(position);
+        return view.slice();
+    }
+}
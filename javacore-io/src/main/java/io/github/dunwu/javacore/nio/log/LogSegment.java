@@ -0,0 +1,294 @@
+package io.github.dunwu.javacore.nio.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 一个日志段：固定大小、预分配并整体内存映射的数据文件 + 稀疏索引文件，文件名是段的起始 offset。
+ * <p>
+ * 1. 追加只是往映射内存里写（没有系统调用），由 {@link #force} 统一刷盘；
+ * <p>
+ * 2. 只有一个写线程（{@link SegmentLog} 加锁保证）；读线程不加锁，只读 nextOffset 之前的记录：
+ * 追加时先写数据、再更新 size、最后更新 nextOffset，读线程看到新的 nextOffset 时数据一定已经写好；
+ * <p>
+ * 3. 预分配的文件是稀疏的，没写到的部分不占磁盘。Java 8 没有公开的 unmap 方法，映射在段对象被回收时释放。
+ */
+final class LogSegment implements Closeable {
+
+    static final String LOG_SUFFIX = ".log";
+    static final String INDEX_SUFFIX = ".index";
+
+    private final long baseOffset;
+
+    private final Path logFile;
+
+    private final Path indexFile;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer mmap;
+
+    /**
+     * 写线程专用的视图，追加 payload 时不用每次 duplicate
+     */
+    private final ByteBuffer writeBuffer;
+
+    private final OffsetIndex index;
+
+    private final int capacity;
+
+    private final int indexIntervalBytes;
+
+    private volatile int size;
+
+    private volatile long nextOffset;
+
+    private int bytesSinceLastIndexEntry;
+
+    private volatile long lastAppendMs;
+
+    /**
+     * 打开或创建段，已有的段需要再调用 {@link #recover}
+     */
+    LogSegment(Path dir, long baseOffset, int segmentBytes, int indexIntervalBytes) throws IOException {
+        this.baseOffset = baseOffset;
+        this.logFile = dir.resolve(fileName(baseOffset, LOG_SUFFIX));
+        this.indexFile = dir.resolve(fileName(baseOffset, INDEX_SUFFIX));
+        this.indexIntervalBytes = indexIntervalBytes;
+        boolean exists = Files.exists(logFile);
+        RandomAccessFile file = new RandomAccessFile(logFile.toFile(), "rw");
+        try {
+            // 段大小调小后重新打开，已有的段保持原来的大小
+            long length = Math.max(file.length(), segmentBytes);
+            if (file.length() < length) {
+                file.setLength(length);
+            }
+            this.capacity = (int) length;
+            this.channel = file.getChannel();
+            this.mmap = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+        this.writeBuffer = mmap.duplicate();
+        this.index = new OffsetIndex(indexFile, capacity / indexIntervalBytes + 1);
+        this.nextOffset = baseOffset;
+        this.lastAppendMs = exists ? Files.getLastModifiedTime(logFile).toMillis() : System.currentTimeMillis();
+    }
+
+    /**
+     * 找到最后一条有效记录，确定 size 和 nextOffset。
+     *
+     * @param full true 时从头扫描、重建索引并丢弃结尾之后的残留数据（恢复点之后的段，崩溃时可能有写了一半的记录，
+     *             索引也可能和数据不一致）；false 时从最后一个索引项开始扫描（已经刷过盘的段，只需扫描最多一个索引间隔）
+     */
+    void recover(boolean full) throws IOException {
+        if (!full) {
+            long last = index.last();
+            int relative = (int) (last >>> 32);
+            int position = (int) last;
+            if (LogRecord.validate(mmap, position, capacity, baseOffset + relative) >= 0) {
+                scan(relative, position, false);
+                return;
+            }
+        }
+        index.truncateTo(0);
+        scan(0, 0, true);
+        discardTail();
+    }
+
+    /**
+     * 结尾之后可能还有崩溃前写了一半的记录，以及它后面已经落盘的完整记录。新记录的长度恰好和半条记录相同时，
+     * 后面那条旧记录的 offset 和 CRC 都对得上，下次恢复会被当成有效记录。
+     * 把文件截断到 size 再扩回原大小，尾部变成空洞（读出来是 0），不像逐字节清零那样把稀疏文件写满。
+     * 此时还没有读线程拿到映射的视图，截断期间不会访问被截掉的部分
+     */
+    private void discardTail() throws IOException {
+        if (size < capacity) {
+            channel.truncate(size);
+            channel.write(ByteBuffer.allocate(1), capacity - 1);
+        }
+    }
+
+    private void scan(int relative, int position, boolean rebuildIndex) {
+        bytesSinceLastIndexEntry = 0;
+        int length;
+        while ((length = LogRecord.validate(mmap, position, capacity, baseOffset + relative)) >= 0) {
+            int recordSize = LogRecord.HEADER_SIZE + length;
+            if (rebuildIndex) {
+                maybeIndex(relative, position);
+            }
+            bytesSinceLastIndexEntry += recordSize;
+            position += recordSize;
+            relative++;
+        }
+        size = position;
+        nextOffset = baseOffset + relative;
+    }
+
+    /**
+     * 追加一条记录并消费 payload（position 移到 limit），段剩余空间不够时返回 -1
+     */
+    long append(ByteBuffer payload) {
+        int length = payload.remaining();
+        int position = size;
+        if (LogRecord.HEADER_SIZE + length > capacity - position) {
+            return -1;
+        }
+        long offset = nextOffset;
+        mmap.putInt(position, length);
+        mmap.putInt(position + 4, LogRecord.crc(offset, payload));
+        writeBuffer.limit(capacity).position(position + LogRecord.HEADER_SIZE);
+        writeBuffer.put(payload);
+        maybeIndex((int) (offset - baseOffset), position);
+        bytesSinceLastIndexEntry += LogRecord.HEADER_SIZE + length;
+        size = position + LogRecord.HEADER_SIZE + length;
+        lastAppendMs = System.currentTimeMillis();
+        nextOffset = offset + 1;
+        return offset;
+    }
+
+    private void maybeIndex(int relative, int position) {
+        if (relative > 0 && bytesSinceLastIndexEntry >= indexIntervalBytes) {
+            index.append(relative, position);
+            bytesSinceLastIndexEntry = 0;
+        }
+    }
+
+    /**
+     * offset 对应记录的文件位置，不在本段时返回 -1
+     */
+    int positionOf(long offset) {
+        if (offset < baseOffset || offset >= nextOffset) {
+            return -1;
+        }
+        int target = (int) (offset - baseOffset);
+        long entry = index.lookup(target);
+        int relative = (int) (entry >>> 32);
+        int position = (int) entry;
+        while (relative < target) {
+            position += LogRecord.HEADER_SIZE + mmap.getInt(position);
+            relative++;
+        }
+        return position;
+    }
+
+    /**
+     * 从 offset 开始读出最多 maxRecords 条记录追加到 out，payload 是映射内存的只读视图，返回读出的条数
+     */
+    int read(long offset, int maxRecords, List<LogRecord> out) {
+        int position = positionOf(offset);
+        if (position < 0) {
+            return 0;
+        }
+        long end = nextOffset;
+        int count = 0;
+        ByteBuffer view = mmap.asReadOnlyBuffer();
+        for (long o = offset; o < end && count < maxRecords; o++, count++) {
+            int length = mmap.getInt(position);
+            out.add(new LogRecord(o, LogRecord.view(view, position + LogRecord.HEADER_SIZE, length)));
+            position += LogRecord.HEADER_SIZE + length;
+        }
+        return count;
+    }
+
+    /**
+     * 从 offset 开始、总大小不超过 maxBytes（至少一条）的连续记录，不在本段时返回 null
+     */
+    LogSlice slice(long offset, int maxBytes) {
+        int start = positionOf(offset);
+        if (start < 0) {
+            return null;
+        }
+        long end = nextOffset;
+        int position = start;
+        long o = offset;
+        while (o < end) {
+            int recordSize = LogRecord.HEADER_SIZE + mmap.getInt(position);
+            if (o > offset && position + recordSize - start > maxBytes) {
+                break;
+            }
+            position += recordSize;
+            o++;
+        }
+        return new LogSlice(channel, start, position - start, offset, o);
+    }
+
+    /**
+     * 删除 offset 及之后的记录。被删除的区域清零，否则恢复时旧记录会因为 offset 和 CRC 都对得上而"复活"
+     */
+    void truncateTo(long offset) {
+        if (offset >= nextOffset) {
+            return;
+        }
+        int position = offset <= baseOffset ? 0 : positionOf(offset);
+        int end = size;
+        nextOffset = Math.max(offset, baseOffset);
+        size = position;
+        int i = position;
+        for (; i + 8 <= end; i += 8) {
+            mmap.putLong(i, 0L);
+        }
+        for (; i < end; i++) {
+            mmap.put(i, (byte) 0);
+        }
+        int relative = (int) (nextOffset - baseOffset);
+        index.truncateTo(relative);
+        long last = index.last();
+        bytesSinceLastIndexEntry = position - (int) last;
+    }
+
+    void force() {
+        mmap.force();
+        index.force();
+    }
+
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    long getNextOffset() {
+        return nextOffset;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long getLastAppendMs() {
+        return lastAppendMs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        index.close();
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(logFile);
+        Files.deleteIfExists(indexFile);
+    }
+
+    static String fileName(long baseOffset, String suffix) {
+        return String.format("%020d%s", baseOffset, suffix);
+    }
+
+    @Override
+    public String toString() {
+        return "LogSegment(" + logFile.getFileName() + ", offsets " + baseOffset + "-" + nextOffset + ", size " + size
+                + ")";
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.dunwu.javacore.nio.log;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 一个段中连续的若干条完整记录（磁盘格式，见 {@link LogRecord}），用 {@link FileChannel#transferTo} 零拷贝发送：
+ * 数据从页缓存直接进入 socket 缓冲区（Linux 上是 sendfile），不经过用户态。
+ * <p>
+ * 目标是非阻塞 socket 时一次可能只发出一部分，在 OP_WRITE 就绪后再次调用 {@link #transferTo}，直到 {@link #isDone}。
+ * 发送期间所在的段被保留策略删除时，后续调用抛出 ClosedChannelException
+ */
+public final class LogSlice {
+
+    private final FileChannel channel;
+
+    private final long position;
+
+    private final long count;
+
+    private final long firstOffset;
+
+    private final long nextOffset;
+
+    private long transferred;
+
+    LogSlice(FileChannel channel, long position, long count, long firstOffset, long nextOffset) {
+        this.channel = channel;
+        this.position = position;
+        this.count = count;
+        this.firstOffset = firstOffset;
+        this.nextOffset = nextOffset;
+    }
+
+    /**
+     * 把剩余的字节写到 target，返回本次写出的字节数
+     */
+    public long transferTo(WritableByteChannel target) throws IOException {
+        long n = channel.transferTo(position + transferred, count - transferred, target);
+        transferred += n;
+        return n;
+    }
+
+    public boolean isDone() {
+        return transferred == count;
+    }
+
+    /**
+     * 第一条记录的 offset，接收方用它和 {@link LogRecord#decode} 逐条解析
+     */
+    public long getFirstOffset() {
+        return firstOffset;
+    }
+
+    /**
+     * 最后一条记录之后的 offset，也就是下一次读取的起点
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public long getTransferred() {
+        return transferred;
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.dunwu.javacore.nio.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 段的稀疏 offset 索引：每隔 indexIntervalBytes 字节记录一项 (相对 offset, 文件位置)，8 字节一项，内存映射。
+ * <p>
+ * 查找时先二分找到不大于目标的最近一项，再从该位置顺序扫描最多 indexIntervalBytes 字节。
+ * 第一条记录（相对 offset 0、位置 0）不写入索引，所以全零的项就是索引的结尾，索引文件不需要单独记录长度。
+ * <p>
+ * 只有写线程修改索引；entries 是 volatile 的，先写项再增加 entries，读线程看到的项总是完整的
+ */
+final class OffsetIndex implements Closeable {
+
+    static final int ENTRY_SIZE = 8;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer mmap;
+
+    private final int maxEntries;
+
+    private volatile int entries;
+
+    OffsetIndex(Path file, int maxEntries) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        // 索引间隔调小后重新打开，已有的索引文件可能比按新配置算出的大
+        long size = Math.max((long) maxEntries * ENTRY_SIZE, channel.size() / ENTRY_SIZE * ENTRY_SIZE);
+        this.mmap = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.maxEntries = (int) (size / ENTRY_SIZE);
+        int n = 0;
+        while (n < this.maxEntries && mmap.getInt(n * ENTRY_SIZE) != 0) {
+            n++;
+        }
+        this.entries = n;
+    }
+
+    int entries() {
+        return entries;
+    }
+
+    /**
+     * 追加一项，relativeOffset 必须大于 0 且大于已有的项；索引满了就不再追加，只是查找会多扫描一些
+     */
+    void append(int relativeOffset, int position) {
+        int n = entries;
+        if (n == maxEntries) {
+            return;
+        }
+        mmap.putInt(n * ENTRY_SIZE, relativeOffset);
+        mmap.putInt(n * ENTRY_SIZE + 4, position);
+        entries = n + 1;
+    }
+
+    /**
+     * 不大于 relativeOffset 的最近一项，高 32 位是相对 offset，低 32 位是文件位置；没有时返回 0（段的开头）
+     */
+    long lookup(int relativeOffset) {
+        int low = 0;
+        int high = entries - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (mmap.getInt(mid * ENTRY_SIZE) <= relativeOffset) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? 0 : entry(found);
+    }
+
+    /**
+     * 最后一项，格式同 {@link #lookup}
+     */
+    long last() {
+        int n = entries;
+        return n == 0 ? 0 : entry(n - 1);
+    }
+
+    /**
+     * 删除相对 offset 不小于 relativeOffset 的项
+     */
+    void truncateTo(int relativeOffset) {
+        int n = entries;
+        int keep = 0;
+        while (keep < n && mmap.getInt(keep * ENTRY_SIZE) < relativeOffset) {
+            keep++;
+        }
+        entries = keep;
+        for (int i = keep; i < n; i++) {
+            mmap.putLong(i * ENTRY_SIZE, 0L);
+        }
+    }
+
+    void force() {
+        mmap.force();
+    }
+
+    private long entry(int n) {
+        return ((long) mmap.getInt(n * ENTRY_SIZE) << 32) | (mmap.getInt(n * ENTRY_SIZE + 4) & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,547 @@
+package io.github.dunwu.javacore.nio.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分段的只追加日志，可以作为 Raft 日志或消息队列的存储层。
+ * <p>
+ * 1. 日志由多个固定大小的 {@link LogSegment} 组成，当前段写满后滚动出新段。追加只是写映射内存，没有系统调用；
+ * <p>
+ * 2. 刷盘是组提交：按字节数（{@link #setFlushIntervalBytes}）或时间（{@link #setFlushIntervalMs}）触发，
+ * 一次 force 覆盖之前所有追加；需要确认落盘的调用方（例如 Raft 在回复投票/追加请求之前）调用 {@link #sync}，
+ * 并发的 sync 共享同一次 force；
+ * <p>
+ * 3. 读不加锁：{@link #read} 返回映射内存的视图，{@link #slice} / {@link #transferTo} 用 sendfile 零拷贝发给 socket；
+ * <p>
+ * 4. 旧段按总大小（{@link #setRetentionBytes}）或时间（{@link #setRetentionMs}）整段删除，{@link #truncateTo}
+ * 删除某个 offset 之后的记录（Raft 中 follower 与 leader 冲突时）；
+ * <p>
+ * 5. 每次刷盘后记录恢复点，重新打开时恢复点之后的段全量校验 CRC，找到最后一条完整的记录。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * SegmentLog log = new SegmentLog(Paths.get("data/raft"))
+ *         .setSegmentBytes(64 * 1024 * 1024)
+ *         .setFlushIntervalMs(200)
+ *         .open();
+ * long offset = log.append(entry);
+ * log.sync(offset);
+ * </pre>
+ * 写线程之间互斥（一把锁），{@link #truncateTo} 不能和正在读被删除区域的读线程并发。
+ */
+public class SegmentLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentLog.class);
+
+    private static final String CHECKPOINT_FILE = "recovery-point";
+
+    private static final long RETENTION_CHECK_INTERVAL_MS = 60_000L;
+
+    private final Path dir;
+
+    private int segmentBytes = 64 * 1024 * 1024;
+
+    private int indexIntervalBytes = 4096;
+
+    private long flushIntervalBytes = 0;
+
+    private long flushIntervalMs = 1000;
+
+    private long retentionBytes = -1;
+
+    private long retentionMs = -1;
+
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+
+    private final Object appendLock = new Object();
+
+    private final Object flushLock = new Object();
+
+    private volatile LogSegment active;
+
+    private volatile long nextOffset;
+
+    private volatile long appendedBytes;
+
+    private volatile long flushedBytes;
+
+    /**
+     * 该 offset 之前的记录都已经落盘
+     */
+    private volatile long flushedOffset;
+
+    private FileChannel checkpoint;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean closed;
+
+    public SegmentLog(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * 段的大小（整个段预分配并内存映射），也是单条记录的上限，默认 64MB
+     */
+    public SegmentLog setSegmentBytes(int segmentBytes) {
+        if (segmentBytes <= LogRecord.HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        }
+        this.segmentBytes = segmentBytes;
+        return this;
+    }
+
+    /**
+     * 每隔多少字节写一个索引项，越小索引越大、按 offset 查找时扫描越少，默认 4KB
+     */
+    public SegmentLog setIndexIntervalBytes(int indexIntervalBytes) {
+        if (indexIntervalBytes <= 0) {
+            throw new IllegalArgumentException("indexIntervalBytes must be positive");
+        }
+        this.indexIntervalBytes = indexIntervalBytes;
+        return this;
+    }
+
+    /**
+     * 未刷盘的数据达到多少字节时在追加线程中刷盘，0 表示不按字节数刷盘（默认）
+     */
+    public SegmentLog setFlushIntervalBytes(long flushIntervalBytes) {
+        this.flushIntervalBytes = flushIntervalBytes;
+        return this;
+    }
+
+    /**
+     * 后台线程刷盘的间隔，0 表示不定时刷盘，默认 1 秒
+     */
+    public SegmentLog setFlushIntervalMs(long flushIntervalMs) {
+        this.flushIntervalMs = flushIntervalMs;
+        return this;
+    }
+
+    /**
+     * 所有段的总大小超过多少字节时删除最旧的段，-1 表示不限制（默认）
+     */
+    public SegmentLog setRetentionBytes(long retentionBytes) {
+        this.retentionBytes = retentionBytes;
+        return this;
+    }
+
+    /**
+     * 段最后一次追加之后保留多久，-1 表示不限制（默认）
+     */
+    public SegmentLog setRetentionMs(long retentionMs) {
+        this.retentionMs = retentionMs;
+        return this;
+    }
+
+    /**
+     * 打开目录中已有的日志（没有则创建），并恢复到最后一条完整的记录
+     */
+    public SegmentLog open() throws IOException {
+        if (active != null) {
+            throw new IllegalStateException("log already opened");
+        }
+        Files.createDirectories(dir);
+        checkpoint = FileChannel.open(dir.resolve(CHECKPOINT_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long recoveryPoint = readCheckpoint();
+        for (long baseOffset : listBaseOffsets()) {
+            segments.put(baseOffset, new LogSegment(dir, baseOffset, segmentBytes, indexIntervalBytes));
+        }
+        recover(recoveryPoint);
+        if (segments.isEmpty()) {
+            segments.put(0L, new LogSegment(dir, 0L, segmentBytes, indexIntervalBytes));
+        }
+        active = segments.lastEntry().getValue();
+        nextOffset = active.getNextOffset();
+        flushedOffset = Math.min(recoveryPoint, nextOffset);
+        logger.info("opened log {}: offsets {}-{}, {} segments", dir, getStartOffset(), nextOffset, segments.size());
+
+        if (flushIntervalMs > 0 || retentionMs >= 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "segment-log-" + dir.getFileName());
+                t.setDaemon(true);
+                return t;
+            });
+            if (flushIntervalMs > 0) {
+                scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs,
+                        TimeUnit.MILLISECONDS);
+            }
+            if (retentionMs >= 0) {
+                scheduler.scheduleWithFixedDelay(this::deleteExpiredQuietly, RETENTION_CHECK_INTERVAL_MS,
+                        RETENTION_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 恢复点所在的段及之后的段全量恢复，之前的段已经落盘，只从最后一个索引项开始扫描。
+     * 某个段没有写满就结束了（崩溃时后面的段先落了盘），之后的段接不上 offset，全部删除
+     */
+    private void recover(long recoveryPoint) throws IOException {
+        Long fullFrom = segments.floorKey(recoveryPoint);
+        LogSegment previous = null;
+        for (Iterator<LogSegment> it = segments.values().iterator(); it.hasNext(); ) {
+            LogSegment segment = it.next();
+            if (previous != null && previous.getNextOffset() != segment.getBaseOffset()) {
+                logger.warn("log {} has a gap after {}, deleting {}", dir, previous, segment);
+                it.remove();
+                segment.delete();
+                continue;
+            }
+            segment.recover(fullFrom == null || segment.getBaseOffset() >= fullFrom);
+            previous = segment;
+        }
+    }
+
+    private List<Long> listBaseOffsets() throws IOException {
+        List<Long> baseOffsets = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + LogSegment.LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    baseOffsets.add(Long.parseLong(name.substring(0, name.length() - LogSegment.LOG_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("ignore unknown file {}", file);
+                }
+            }
+        }
+        Collections.sort(baseOffsets);
+        return baseOffsets;
+    }
+
+    /**
+     * 追加一条记录并消费 payload（position 移到 limit），返回它的 offset。返回时记录已经可读，但不一定已经落盘
+     *
+     * @throws IllegalArgumentException 记录比一个段还大
+     */
+    public long append(ByteBuffer payload) throws IOException {
+        int recordSize = LogRecord.HEADER_SIZE + payload.remaining();
+        if (recordSize > segmentBytes) {
+            throw new IllegalArgumentException("record size " + recordSize + " exceeds segmentBytes " + segmentBytes);
+        }
+        long offset;
+        synchronized (appendLock) {
+            ensureOpen();
+            offset = active.append(payload);
+            if (offset < 0) {
+                roll();
+                offset = active.append(payload);
+            }
+            appendedBytes += recordSize;
+            nextOffset = offset + 1;
+        }
+        if (flushIntervalBytes > 0 && appendedBytes - flushedBytes >= flushIntervalBytes) {
+            flush();
+        }
+        return offset;
+    }
+
+    public long append(byte[] payload) throws IOException {
+        return append(ByteBuffer.wrap(payload));
+    }
+
+    private void roll() throws IOException {
+        LogSegment segment = new LogSegment(dir, nextOffset, segmentBytes, indexIntervalBytes);
+        segments.put(segment.getBaseOffset(), segment);
+        active = segment;
+        logger.debug("rolled new segment {}", segment);
+        if (retentionBytes >= 0 || retentionMs >= 0) {
+            deleteExpired();
+        }
+    }
+
+    /**
+     * 把已追加的记录全部刷盘
+     */
+    public void flush() throws IOException {
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * 等待 offset 及之前的记录落盘。已经被别的线程刷过时直接返回，否则由当前线程做一次覆盖所有已追加记录的 force
+     */
+    public void sync(long offset) throws IOException {
+        if (offset >= flushedOffset) {
+            flush(offset);
+        }
+    }
+
+    private void flush(long offset) throws IOException {
+        synchronized (flushLock) {
+            long target = nextOffset;
+            long bytes = appendedBytes;
+            if (offset < flushedOffset || target <= flushedOffset || checkpoint == null || !checkpoint.isOpen()) {
+                return;
+            }
+            // 上次刷盘之后可能已经滚动过多个段
+            Long from = segments.floorKey(flushedOffset);
+            Map<Long, LogSegment> dirty = from == null ? segments : segments.tailMap(from);
+            for (LogSegment segment : dirty.values()) {
+                if (segment.getBaseOffset() >= target) {
+                    break;
+                }
+                segment.force();
+            }
+            flushedOffset = target;
+            flushedBytes = bytes;
+            writeCheckpoint(target);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.warn("failed to flush log {}", dir, e);
+        }
+    }
+
+    /**
+     * 读取一条记录，offset 还没有写入时返回 null
+     *
+     * @throws IllegalArgumentException offset 已被保留策略删除
+     */
+    public LogRecord read(long offset) {
+        List<LogRecord> records = read(offset, 1);
+        return records.isEmpty() ? null : records.get(0);
+    }
+
+    /**
+     * 从 offset 开始顺序读取最多 maxRecords 条记录，可以跨段。payload 是映射内存的只读视图，没有拷贝
+     *
+     * @throws IllegalArgumentException offset 已被保留策略删除
+     */
+    public List<LogRecord> read(long offset, int maxRecords) {
+        checkOffset(offset);
+        List<LogRecord> records = new ArrayList<>(Math.min(maxRecords, 64));
+        while (records.size() < maxRecords) {
+            Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+            int n = entry == null ? 0 : entry.getValue().read(offset, maxRecords - records.size(), records);
+            if (n == 0) {
+                break;
+            }
+            offset += n;
+        }
+        return records;
+    }
+
+    /**
+     * 从 offset 开始、总大小不超过 maxBytes（至少一条）、位于同一个段中的连续记录，offset 还没有写入时返回 null
+     *
+     * @throws IllegalArgumentException offset 已被保留策略删除
+     */
+    public LogSlice slice(long offset, int maxBytes) {
+        checkOffset(offset);
+        Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+        return entry == null ? null : entry.getValue().slice(offset, maxBytes);
+    }
+
+    /**
+     * 把从 offset 开始、最多 maxBytes 的记录零拷贝写到阻塞的 target（例如阻塞模式的 SocketChannel），返回下一次读取的 offset。
+     * 非阻塞 socket 用 {@link #slice} 按 OP_WRITE 分多次发送
+     */
+    public long transferTo(long offset, int maxBytes, WritableByteChannel target) throws IOException {
+        LogSlice slice = slice(offset, maxBytes);
+        if (slice == null) {
+            return offset;
+        }
+        while (!slice.isDone()) {
+            slice.transferTo(target);
+        }
+        return slice.getNextOffset();
+    }
+
+    private void checkOffset(long offset) {
+        long start = getStartOffset();
+        if (offset < start) {
+            throw new IllegalArgumentException("offset " + offset + " has been deleted, log starts at " + start);
+        }
+    }
+
+    /**
+     * 删除 offset 及之后的所有记录，之后从 offset 继续追加；被删除的区域立即刷盘，崩溃后不会恢复出来
+     */
+    public void truncateTo(long offset) throws IOException {
+        synchronized (appendLock) {
+            ensureOpen();
+            if (offset >= nextOffset) {
+                return;
+            }
+            checkOffset(offset);
+            Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+            for (LogSegment segment : new ArrayList<>(segments.tailMap(entry.getKey(), false).values())) {
+                segments.remove(segment.getBaseOffset());
+                segment.delete();
+            }
+            LogSegment segment = entry.getValue();
+            segment.truncateTo(offset);
+            segment.force();
+            active = segment;
+            nextOffset = offset;
+            synchronized (flushLock) {
+                if (flushedOffset > offset) {
+                    flushedOffset = offset;
+                    writeCheckpoint(offset);
+                }
+            }
+            logger.info("truncated log {} to offset {}", dir, offset);
+        }
+    }
+
+    /**
+     * 按保留策略删除旧段（当前段不删），返回删除的段数。滚动新段时和后台线程会自动调用
+     */
+    public int deleteExpiredSegments() throws IOException {
+        synchronized (appendLock) {
+            ensureOpen();
+            return deleteExpired();
+        }
+    }
+
+    private int deleteExpired() throws IOException {
+        long total = 0;
+        for (LogSegment segment : segments.values()) {
+            total += segment.size();
+        }
+        long now = System.currentTimeMillis();
+        int deleted = 0;
+        for (LogSegment segment : segments.values()) {
+            if (segment == active) {
+                break;
+            }
+            boolean overSize = retentionBytes >= 0 && total - segment.size() >= retentionBytes;
+            boolean expired = retentionMs >= 0 && now - segment.getLastAppendMs() > retentionMs;
+            if (!overSize && !expired) {
+                break;
+            }
+            segments.remove(segment.getBaseOffset());
+            segment.delete();
+            total -= segment.size();
+            deleted++;
+        }
+        if (deleted > 0) {
+            logger.info("deleted {} expired segments of log {}, log starts at {}", deleted, dir, getStartOffset());
+        }
+        return deleted;
+    }
+
+    private void deleteExpiredQuietly() {
+        try {
+            deleteExpiredSegments();
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("failed to delete expired segments of log {}", dir, e);
+        }
+    }
+
+    /**
+     * 恢复点只是缩小下次恢复的范围，不单独 fsync：丢失时读到旧值，只会多恢复几个段
+     */
+    private void writeCheckpoint(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(0, offset);
+        checkpoint.write(buffer, 0);
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (checkpoint.size() < 8) {
+            return 0L;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        while (buffer.hasRemaining() && checkpoint.read(buffer, buffer.position()) >= 0) {
+            // 读满 8 字节
+        }
+        return buffer.getLong(0);
+    }
+
+    private void ensureOpen() {
+        if (active == null) {
+            throw new IllegalStateException("log not opened");
+        }
+        if (closed) {
+            throw new IllegalStateException("log closed");
+        }
+    }
+
+    /**
+     * 第一条未被删除的记录的 offset
+     */
+    public long getStartOffset() {
+        Map.Entry<Long, LogSegment> first = segments.firstEntry();
+        return first == null ? 0L : first.getKey();
+    }
+
+    /**
+     * 下一条追加的记录的 offset
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * 该 offset 之前的记录都已经落盘
+     */
+    public long getFlushedOffset() {
+        return flushedOffset;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * 所有段中记录的总字节数（不是预分配的文件大小）
+     */
+    public long size() {
+        long size = 0;
+        for (LogSegment segment : segments.values()) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 刷盘后关闭文件。映射内存在 Java 8 中无法主动释放，之前读出的 payload 视图仍然可以访问
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (active == null || closed) {
+                return;
+            }
+            closed = true;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        flush();
+        synchronized (flushLock) {
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+            checkpoint.close();
+        }
+        logger.info("closed log {} at offset {}", dir, nextOffset);
+    }
+}
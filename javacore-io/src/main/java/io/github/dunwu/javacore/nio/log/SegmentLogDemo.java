@@ -0,0 +1,80 @@
+package io.github.dunwu.javacore.nio.log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * {@link SegmentLog} 示例：顺序追加、组提交刷盘、按 offset 读取、零拷贝发送到 socket、重新打开后恢复。
+ * <p>
+ * 参数：记录数（默认 1000000）、每条记录字节数（默认 100）
+ */
+public class SegmentLogDemo {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int recordBytes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        Path dir = Files.createTempDirectory("segment-log");
+
+        long last;
+        try (SegmentLog log = new SegmentLog(dir)
+                .setSegmentBytes(16 * 1024 * 1024)
+                .setFlushIntervalBytes(4 * 1024 * 1024)
+                .setFlushIntervalMs(100)
+                .open()) {
+            ByteBuffer payload = ByteBuffer.allocate(recordBytes);
+            long begin = System.nanoTime();
+            last = -1;
+            for (int i = 0; i < count; i++) {
+                payload.clear();
+                payload.putInt(0, i);
+                last = log.append(payload);
+            }
+            log.sync(last);
+            long elapsed = System.nanoTime() - begin;
+            System.out.printf("追加 %,d 条 %d 字节的记录（含刷盘）：%,d ms，%,d 条/秒，%d 个段%n", count, recordBytes,
+                    elapsed / 1_000_000, count * 1_000_000_000L / elapsed, log.getSegmentCount());
+
+            LogRecord record = log.read(count / 2);
+            System.out.println("read(" + record.getOffset() + ") = " + record.getPayload().getInt(0));
+            List<LogRecord> records = log.read(count - 3, 10);
+            System.out.println("read(" + (count - 3) + ", 10) 读到 " + records.size() + " 条");
+
+            transferDemo(log, count / 2);
+        }
+
+        try (SegmentLog reopened = new SegmentLog(dir).open()) {
+            System.out.println("重新打开后 nextOffset = " + reopened.getNextOffset() + "，期望 " + (last + 1));
+        }
+    }
+
+    /**
+     * 从 offset 开始发送最多 64KB 的记录，接收方按同样的格式逐条解析
+     */
+    private static void transferDemo(SegmentLog log, long offset) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+             SocketChannel client = SocketChannel.open(server.getLocalAddress());
+             SocketChannel peer = server.accept()) {
+            long next = log.transferTo(offset, 64 * 1024, peer);
+            peer.shutdownOutput();
+
+            ByteBuffer in = ByteBuffer.allocate(128 * 1024);
+            while (client.read(in) >= 0) {
+                // 读到对端关闭
+            }
+            in.flip();
+            long expected = offset;
+            LogRecord record;
+            while ((record = LogRecord.decode(in, expected)) != null) {
+                expected++;
+            }
+            System.out.println("transferTo 发送 offset " + offset + "-" + (next - 1) + "，接收方校验通过 "
+                    + (expected - offset) + " 条");
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个客户端连接，绑定在一个 {@link SubReactorThread} 上。
+ * <p>
+ * 1. 读：先读到 I/O 线程共用的直接内存读缓冲区，由 {@link Pipeline} 的解码器解出所有完整的消息；只有剩下半包时才从
+ * {@link DirectBufferPool} 取一个 chunk 保存，下次直接读进这个 chunk 继续累积。大部分连接在两次请求之间不占用任何缓冲区；
+ * 消息交给业务线程池时，ByteBuffer 消息（缓冲区的视图）在这里拷贝一次，在 I/O 线程中直接处理时不拷贝；
+ * <p>
+ * 2. 写：任意线程调用 {@link #write}，数据先放进无锁的 outbound 队列，每个连接最多只有一个待执行的 flush 任务，
+ * 多次写在 I/O 线程中合并为一次 gathering write；只有 socket 发送缓冲区写满时才注册 OP_WRITE，写完立即取消；
+ * <p>
+ * 3. 背压：未写出的字节数超过高水位时 {@link #isWritable()} 返回 false，并暂停读取这个连接（不读新请求就不会产生新响应），
+ * 降到低水位以下再恢复，避免不读响应的客户端让服务端无限堆积内存；业务线程池中尚未处理完的帧数达到上限时同样暂停读取，
+ * 否则一次读到的大量小请求会在水位生效之前全部派发出去。
+ */
+public class Connection {
+
+    private static final Logger logger = LoggerFactory.getLogger(Connection.class);
+
+    /**
+     * 串行执行业务任务时，一次最多连续执行的任务数，之后重新提交，避免一个连接长期占用线程池中的线程
+     */
+    private static final int MAX_TASKS_PER_DRAIN = 64;
+
+    /**
+     * 一次 gathering write 最多合并的缓冲区数
+     */
+    static final int MAX_GATHER = 64;
+
+    /**
+     * 一次读事件最多读几次，避免一个繁忙的连接饿死同一 I/O 线程上的其他连接
+     */
+    private static final int MAX_READS_PER_EVENT = 16;
+
+    private final SocketChannel channel;
+
+    private final SelectionKey key;
+
+    private final SubReactorThread reactor;
+
+    private final MessageDecoder<Object> decoder;
+
+    private final Handler<Object> handler;
+
+    private final MessageEncoder<Object> encoder;
+
+    /**
+     * 执行 onMessage 的线程池，null 表示在 I/O 线程中执行
+     */
+    private final Executor executor;
+
+    private final boolean ordered;
+
+    /**
+     * 按顺序串行执行的业务任务，同一时刻最多一个线程在消费
+     */
+    private final Queue<Runnable> handlerTasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean handlerRunning = new AtomicBoolean();
+
+    private final Runnable handlerDrainer = this::drainHandlerTasks;
+
+    private final int lowWaterMark;
+
+    private final int highWaterMark;
+
+    private final int maxInFlightMessages;
+
+    /**
+     * 半包，写模式，只在 I/O 线程中访问；为 null 表示没有残留数据
+     */
+    private ByteBuffer cumulation;
+
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Runnable flushTask = () -> {
+        flushScheduled.set(false);
+        flush();
+    };
+
+    /**
+     * 已经提交但还没写到 socket 的数据，只在 I/O 线程中访问
+     */
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private volatile boolean writable = true;
+
+    private boolean readSuspended;
+
+    /**
+     * 已派发到业务线程池、还没处理完的帧数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 因 inFlight 达到上限而暂停读取，由业务线程在处理完一帧后检查并安排恢复
+     */
+    private volatile boolean pausedForInFlight;
+
+    private final Runnable resumeTask = () -> {
+        try {
+            maybeResumeRead();
+        } catch (IOException e) {
+            doClose();
+        }
+    };
+
+    private volatile boolean closed;
+
+    /**
+     * 写完后关闭，只在 I/O 线程中访问
+     */
+    private boolean closeAfterFlush;
+
+    private volatile Object attachment;
+
+    /**
+     * 最后一次读到或写出数据的时间（System.nanoTime），只在 I/O 线程中访问
+     */
+    private long lastActivity = System.nanoTime();
+
+    Connection(SocketChannel channel, SelectionKey key, SubReactorThread reactor, Pipeline<?> pipeline,
+               int lowWaterMark, int highWaterMark, int maxInFlightMessages) {
+        this.channel = channel;
+        this.key = key;
+        this.reactor = reactor;
+        this.decoder = pipeline.newDecoder();
+        this.handler = pipeline.getHandler();
+        this.encoder = pipeline.getEncoder();
+        this.executor = pipeline.getExecutor();
+        this.ordered = pipeline.isOrdered();
+        this.lowWaterMark = lowWaterMark;
+        this.highWaterMark = highWaterMark;
+        this.maxInFlightMessages = maxInFlightMessages;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public SocketAddress getRemoteAddress() {
+        try {
+            return channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 未写出的数据低于高水位；为 false 时调用方应暂停产生新数据
+     */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * 未写出的字节数
+     */
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * 异步写出 data（读模式），可以在任意线程调用；data 交给连接后调用方不能再修改。
+     *
+     * @return 连接已关闭时返回 false，数据被丢弃
+     */
+    public boolean write(ByteBuffer data) {
+        if (closed) {
+            return false;
+        }
+        if (pendingBytes.addAndGet(data.remaining()) > highWaterMark) {
+            writable = false;
+        }
+        outbound.offer(data);
+        if (flushScheduled.compareAndSet(false, true)) {
+            reactor.execute(flushTask);
+        }
+        return true;
+    }
+
+    /**
+     * 用 {@link Pipeline} 的编码器编码 message 后异步写出，可以在任意线程调用
+     *
+     * @return 连接已关闭时返回 false，数据被丢弃
+     */
+    public boolean send(Object message) {
+        if (encoder == null) {
+            throw new IllegalStateException("no encoder in pipeline, use write(ByteBuffer) instead");
+        }
+        if (closed) {
+            return false;
+        }
+        List<ByteBuffer> out = new ArrayList<>(2);
+        encoder.encode(message, out);
+        for (ByteBuffer buffer : out) {
+            write(buffer);
+        }
+        return true;
+    }
+
+    /**
+     * 关闭连接，可以在任意线程调用，已排队未写出的数据被丢弃
+     */
+    public void close() {
+        if (reactor.inEventLoop()) {
+            doClose();
+        } else {
+            reactor.execute(this::doClose);
+        }
+    }
+
+    /**
+     * 已提交的数据全部写出后再关闭连接，例如 HTTP 的 Connection: close，可以在任意线程调用
+     */
+    public void closeAfterFlush() {
+        if (reactor.inEventLoop()) {
+            // inline 模式下立即生效，同一批数据中后续的消息不再解码
+            closeAfterFlush = true;
+        }
+        reactor.execute(() -> {
+            closeAfterFlush = true;
+            flush();
+        });
+    }
+
+    // ------------------------------------------------------------------ 以下方法只在 I/O 线程中调用
+
+    void onOpen() {
+        handler.onOpen(this);
+    }
+
+    void read() throws IOException {
+        ByteBuffer readBuffer = reactor.getReadBuffer();
+        for (int i = 0; i < MAX_READS_PER_EVENT && !closed && !closeAfterFlush && !readSuspended; i++) {
+            if (pauseIfBusy()) {
+                return;
+            }
+            ByteBuffer target;
+            if (cumulation == null) {
+                target = readBuffer;
+                target.clear();
+            } else {
+                if (!cumulation.hasRemaining()) {
+                    growCumulation();
+                }
+                target = cumulation;
+            }
+            int n = channel.read(target);
+            if (n < 0) {
+                doClose();
+                return;
+            }
+            if (n == 0) {
+                return;
+            }
+            lastActivity = System.nanoTime();
+            boolean drained = target.hasRemaining();
+            target.flip();
+            decodeFrames(target);
+            keepRemainder(target, readBuffer);
+            if (drained) {
+                // 没读满说明 socket 接收缓冲区已经空了，不用再发一次注定返回 0 的 read；
+                // 因背压停止解码时半包中还有完整的帧，必须暂停读取，恢复时再解码
+                pauseIfBusy();
+                return;
+            }
+        }
+    }
+
+    private void decodeFrames(ByteBuffer in) throws IOException {
+        Object message;
+        while (!closed && !closeAfterFlush && writable && inFlight.get() < maxInFlightMessages && in.hasRemaining()
+                && (message = decoder.decode(in)) != null) {
+            fireMessage(message);
+        }
+    }
+
+    private void fireMessage(Object message) {
+        if (executor == null) {
+            invokeHandler(message);
+            return;
+        }
+        // 解码器返回的 ByteBuffer 可能是读缓冲区的视图，离开 I/O 线程前必须拷贝
+        Object owned = message instanceof ByteBuffer ? copy((ByteBuffer) message) : message;
+        inFlight.incrementAndGet();
+        Runnable task = () -> {
+            try {
+                invokeHandler(owned);
+            } finally {
+                messageDone();
+            }
+        };
+        try {
+            if (ordered) {
+                handlerTasks.offer(task);
+                scheduleDrain();
+            } else {
+                executor.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.warn("executor rejected message, closing {}", this);
+            doClose();
+        }
+    }
+
+    private void invokeHandler(Object message) {
+        try {
+            handler.onMessage(this, message);
+        } catch (Throwable e) {
+            logger.warn("handler failed, closing {}", this, e);
+            close();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (handlerRunning.compareAndSet(false, true)) {
+            try {
+                executor.execute(handlerDrainer);
+            } catch (RejectedExecutionException e) {
+                handlerRunning.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void drainHandlerTasks() {
+        Runnable task;
+        for (int i = 0; i < MAX_TASKS_PER_DRAIN && (task = handlerTasks.poll()) != null; i++) {
+            task.run();
+        }
+        handlerRunning.set(false);
+        // 放弃执行权之后新到的任务，或者本轮没执行完的任务
+        if (!handlerTasks.isEmpty()) {
+            try {
+                scheduleDrain();
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer source) {
+        ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+        copy.put(source.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * 业务线程处理完一帧（无论成功与否）后调用
+     */
+    private void messageDone() {
+        if (inFlight.decrementAndGet() < maxInFlightMessages && pausedForInFlight) {
+            pausedForInFlight = false;
+            reactor.execute(resumeTask);
+        }
+    }
+
+    /**
+     * 响应积压或在途帧过多时暂停读取，返回是否已暂停
+     */
+    private boolean pauseIfBusy() {
+        if (!writable) {
+            // 由 flush 在降到低水位时恢复
+            suspendRead();
+            return true;
+        }
+        if (inFlight.get() >= maxInFlightMessages) {
+            // 先置标记再复查，业务线程要么看到标记并安排恢复，要么在复查前已经减少了 inFlight
+            pausedForInFlight = true;
+            if (inFlight.get() >= maxInFlightMessages) {
+                suspendRead();
+                return true;
+            }
+            pausedForInFlight = false;
+        }
+        return false;
+    }
+
+    /**
+     * 解码后剩下的半包：读缓冲区是 I/O 线程共用的，残留数据要搬到连接自己的 chunk 中
+     */
+    private void keepRemainder(ByteBuffer target, ByteBuffer readBuffer) {
+        if (closed) {
+            return;
+        }
+        if (target == readBuffer) {
+            if (target.hasRemaining()) {
+                DirectBufferPool pool = reactor.getBufferPool();
+                cumulation = target.remaining() <= pool.getChunkSize()
+                        ? pool.acquire() : ByteBuffer.allocate(target.remaining() * 2);
+                cumulation.put(target);
+            }
+        } else if (target.hasRemaining()) {
+            target.compact();
+        } else {
+            releaseCumulation();
+        }
+    }
+
+    /**
+     * 一帧比当前 chunk 还大，换成两倍大小的堆缓冲区；帧长度的上限由解码器保证
+     */
+    private void growCumulation() {
+        ByteBuffer larger = ByteBuffer.allocate(cumulation.capacity() * 2);
+        cumulation.flip();
+        larger.put(cumulation);
+        releaseCumulation();
+        cumulation = larger;
+    }
+
+    private void releaseCumulation() {
+        if (cumulation != null) {
+            reactor.getBufferPool().release(cumulation);
+            cumulation = null;
+        }
+    }
+
+    void flush() {
+        if (closed) {
+            return;
+        }
+        ByteBuffer data;
+        while ((data = outbound.poll()) != null) {
+            writeQueue.addLast(data);
+        }
+        try {
+            ByteBuffer[] gather = reactor.getGatherBuffers();
+            while (!writeQueue.isEmpty()) {
+                int n = 0;
+                long requested = 0;
+                for (ByteBuffer buffer : writeQueue) {
+                    gather[n++] = buffer;
+                    requested += buffer.remaining();
+                    if (n == gather.length) {
+                        break;
+                    }
+                }
+                long written = channel.write(gather, 0, n);
+                Arrays.fill(gather, 0, n, null);
+                if (written > 0) {
+                    lastActivity = System.nanoTime();
+                }
+                pendingBytes.addAndGet(-written);
+                while (!writeQueue.isEmpty() && !writeQueue.peekFirst().hasRemaining()) {
+                    writeQueue.pollFirst();
+                }
+                if (written < requested) {
+                    // 发送缓冲区满了，等 OP_WRITE 再继续
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            doClose();
+            return;
+        }
+        if (closeAfterFlush && writeQueue.isEmpty() && outbound.isEmpty()) {
+            doClose();
+            return;
+        }
+        setInterest(SelectionKey.OP_WRITE, !writeQueue.isEmpty());
+        try {
+            applyBackPressure();
+        } catch (IOException e) {
+            doClose();
+        }
+    }
+
+    private void applyBackPressure() throws IOException {
+        long pending = pendingBytes.get();
+        if (pending > highWaterMark) {
+            writable = false;
+            suspendRead();
+        } else if (pending <= lowWaterMark) {
+            writable = true;
+            maybeResumeRead();
+        }
+    }
+
+    private void suspendRead() {
+        if (!readSuspended) {
+            readSuspended = true;
+            setInterest(SelectionKey.OP_READ, false);
+        }
+    }
+
+    /**
+     * 暂停期间半包里可能已经有完整的帧，不会再有读事件触发它们，恢复时先解码
+     */
+    private void maybeResumeRead() throws IOException {
+        if (closed || !readSuspended || pauseIfBusy()) {
+            return;
+        }
+        readSuspended = false;
+        setInterest(SelectionKey.OP_READ, true);
+        if (cumulation != null) {
+            ByteBuffer target = cumulation;
+            target.flip();
+            decodeFrames(target);
+            keepRemainder(target, reactor.getReadBuffer());
+            pauseIfBusy();
+        }
+    }
+
+    /**
+     * 超过 timeout 没有读写，并且业务线程池中没有这个连接正在处理的消息（慢业务不算空闲）
+     */
+    boolean isIdle(long now, long timeout) {
+        return now - lastActivity > timeout && inFlight.get() == 0;
+    }
+
+    private void setInterest(int op, boolean on) {
+        if (!key.isValid()) {
+            return;
+        }
+        int ops = key.interestOps();
+        int update = on ? ops | op : ops & ~op;
+        if (update != ops) {
+            key.interestOps(update);
+        }
+    }
+
+    void doClose() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writable = false;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 已经断开
+        }
+        releaseCumulation();
+        writeQueue.clear();
+        outbound.clear();
+        handlerTasks.clear();
+        reactor.connectionClosed(this);
+        handler.onClose(this);
+    }
+
+    @Override
+    public String toString() {
+        return "Connection{remote=" + getRemoteAddress() + ", pending=" + pendingBytes.get() + ", closed=" + closed + '}';
+    }
+}
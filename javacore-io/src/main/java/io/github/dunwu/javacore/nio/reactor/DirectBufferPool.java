@@ -0,0 +1,84 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * 直接内存缓冲区池，每个 {@link SubReactorThread} 一个，只在所属的 I/O 线程中使用，不加锁。
+ * <p>
+ * allocateDirect 本身很慢（要预留内存、注册 Cleaner），直接内存又只在 GC 时释放，按请求分配很容易触发
+ * -XX:MaxDirectMemorySize 上限。这里一次分配一整块（slab），切成等长的 chunk 复用；
+ * 归还时后进先出，刚用过的 chunk 大概率还在 CPU 缓存里。
+ */
+public class DirectBufferPool {
+
+    private final int chunkSize;
+
+    private final int chunksPerSlab;
+
+    private final int maxPooledChunks;
+
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    private long allocatedBytes;
+
+    /**
+     * @param chunkSize       每个 chunk 的字节数
+     * @param chunksPerSlab   每次向操作系统申请的 chunk 数
+     * @param maxPooledChunks 空闲 chunk 的上限，超过的直接丢弃交给 GC
+     */
+    public DirectBufferPool(int chunkSize, int chunksPerSlab, int maxPooledChunks) {
+        if (chunkSize <= 0 || chunksPerSlab <= 0 || maxPooledChunks < 0) {
+            throw new IllegalArgumentException("chunkSize > 0, chunksPerSlab > 0, maxPooledChunks >= 0 required");
+        }
+        this.chunkSize = chunkSize;
+        this.chunksPerSlab = chunksPerSlab;
+        this.maxPooledChunks = maxPooledChunks;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 已经向操作系统申请的直接内存字节数
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int getPooledCount() {
+        return free.size();
+    }
+
+    /**
+     * 取一个处于写模式（position = 0, limit = capacity）的 chunk
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollFirst();
+        if (buffer == null) {
+            allocateSlab();
+            buffer = free.pollFirst();
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还 chunk，不是本池分配的缓冲区直接忽略
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null && buffer.isDirect() && buffer.capacity() == chunkSize && free.size() < maxPooledChunks) {
+            free.addFirst(buffer);
+        }
+    }
+
+    private void allocateSlab() {
+        ByteBuffer slab = ByteBuffer.allocateDirect(chunkSize * chunksPerSlab);
+        allocatedBytes += slab.capacity();
+        for (int i = 0; i < chunksPerSlab; i++) {
+            slab.limit((i + 1) * chunkSize).position(i * chunkSize);
+            free.addLast(slab.slice());
+        }
+    }
+}
@@ -1,32 +1,30 @@
 package io.github.dunwu.javacore.nio.reactor;
 
-import java.nio.ByteBuffer;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.SocketChannel;
+/**
+ * 业务处理器，整个服务端共用一个实例，需要线程安全。
+ * <p>
+ * onMessage 在 {@link Pipeline#setExecutor} 指定的线程池中执行，未指定时直接在 I/O 线程中执行（不能阻塞）；
+ * onOpen / onClose 总是在连接所属的 I/O 线程中执行
+ *
+ * @param <I> 解码器产出的消息类型
+ */
+@FunctionalInterface
+public interface Handler<I> {
 
-public class Handler implements Runnable{
-
-    private static final byte[] b = "hello,服务器收到了你的信息。".getBytes(); // 服务端给客户端的响应
-
-    private SocketChannel sc;
-    private ByteBuffer reqBuffer;
-    private SubReactorThread parent;
-
-    public Handler(SocketChannel sc, ByteBuffer reqBuffer,
-                   SubReactorThread parent) {
-        super();
-        this.sc = sc;
-        this.reqBuffer = reqBuffer;
-        this.parent = parent;
+    /**
+     * 连接注册到 sub reactor 之后调用
+     */
+    default void onOpen(Connection connection) {
     }
 
-    public void run() {
-        System.out.println("业务在handler中开始执行。。。");
-        // TODO Auto-generated method stub
-        //业务处理
-        reqBuffer.put(b);
-        parent.register(new NioTask(sc, SelectionKey.OP_WRITE, reqBuffer));
-        System.out.println("业务在handler中执行结束。。。");
-    }
+    /**
+     * 收到一条完整的消息，通过 {@link Connection#send}（经过编码器）或 {@link Connection#write}（原始字节）响应
+     */
+    void onMessage(Connection connection, I message);
 
+    /**
+     * 连接关闭之后调用，无论是对端关闭、读写出错还是服务端主动关闭
+     */
+    default void onClose(Connection connection) {
+    }
 }
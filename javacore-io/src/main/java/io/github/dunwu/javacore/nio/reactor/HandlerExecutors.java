@@ -0,0 +1,57 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Pipeline#setExecutor} 常用的线程池
+ */
+public final class HandlerExecutors {
+
+    private HandlerExecutors() {
+    }
+
+    /**
+     * 每条消息一个虚拟线程，适合会阻塞的业务逻辑：阻塞时只挂起虚拟线程，不占用平台线程。
+     * 本模块按 Java 8 编译，通过反射调用 JDK 21 的 Executors.newVirtualThreadPerTaskExecutor；
+     * 运行在低版本 JDK 上时退化为 CPU 核数 * 2 的固定线程池
+     */
+    public static ExecutorService virtualThreadPerTask() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return fixed(Runtime.getRuntime().availableProcessors() * 2, "handler");
+        }
+    }
+
+    /**
+     * 创建虚拟线程的 ThreadFactory，线程名为 namePrefix-N，用于每个连接一个线程的阻塞式服务端；
+     * 同样通过反射调用 JDK 21 的 Thread.ofVirtual()，低版本 JDK 上返回 null
+     */
+    public static ThreadFactory virtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 固定大小的守护线程池，线程名为 namePrefix-N
+     */
+    public static ExecutorService fixed(int threads, String namePrefix) {
+        AtomicInteger num = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, namePrefix + "-" + num.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -1,5 +1,8 @@
 package io.github.dunwu.javacore.nio.reactor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
@@ -8,47 +11,75 @@ import java.nio.channels.SocketChannel;
 import java.util.Iterator;
 import java.util.Set;
 
-public class MainReactor implements Runnable{
-    private Selector selector;
-    private SubReactorThreadGroup subReactorThreadGroup;
-    private static final int DEFAULT_IO_THREAD_COUNT = 4;
-    private int ioThreadCount = DEFAULT_IO_THREAD_COUNT;
-    public MainReactor(ServerSocketChannel channel) {
-        try {
-            selector = Selector.open();
-            channel.register(selector, SelectionKey.OP_ACCEPT);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        subReactorThreadGroup = new SubReactorThreadGroup(ioThreadCount);
+/**
+ * main reactor：只负责 accept，接入的连接轮询交给 {@link SubReactorThreadGroup}
+ */
+public class MainReactor implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MainReactor.class);
+
+    /**
+     * accept 失败（通常是文件句柄耗尽）后暂停的时间，避免空转
+     */
+    private static final long ACCEPT_BACKOFF_MILLIS = 100L;
+
+    private final Selector selector;
+    private final SubReactorThreadGroup subReactorThreadGroup;
+    private volatile boolean running = true;
+
+    public MainReactor(ServerSocketChannel channel, SubReactorThreadGroup subReactorThreadGroup) throws IOException {
+        this.selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_ACCEPT);
+        this.subReactorThreadGroup = subReactorThreadGroup;
     }
+
+    @Override
     public void run() {
-        System.out.println("MainReactor is running");
-        while (!Thread.interrupted()) {
-            Set<SelectionKey> ops = null;
+        while (running) {
             try {
                 selector.select(1000);
-                ops = selector.selectedKeys();
             } catch (IOException e) {
-                e.printStackTrace();
+                logger.warn("select failed", e);
+                continue;
             }
-            // 处理相关事件
-            for (Iterator<SelectionKey> it = ops.iterator(); it.hasNext();) {
+            Set<SelectionKey> ops = selector.selectedKeys();
+            for (Iterator<SelectionKey> it = ops.iterator(); it.hasNext(); ) {
                 SelectionKey key = it.next();
                 it.remove();
-                try {
-                    if (key.isAcceptable()) { // 客户端建立连接
-                        System.out.println("收到客户端的连接请求。。。");
-                        ServerSocketChannel serverSc = (ServerSocketChannel) key.channel();// 这里其实，可以直接使用ssl这个变量
-                        SocketChannel clientChannel = serverSc.accept();
-                        clientChannel.configureBlocking(false);
-                        subReactorThreadGroup.dispatch(clientChannel); // 转发该请求
-                    }
-                } catch (Throwable e) {
-                    e.printStackTrace();
-                    System.out.println("客户端主动断开连接。。。。。。。");
+                if (key.isValid() && key.isAcceptable()) {
+                    accept((ServerSocketChannel) key.channel());
                 }
             }
         }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // 关闭中
+        }
+    }
+
+    /**
+     * 一次把 backlog 中的连接全部取完，连接风暴时不必每个连接都走一轮 select
+     */
+    private void accept(ServerSocketChannel serverChannel) {
+        try {
+            SocketChannel clientChannel;
+            while ((clientChannel = serverChannel.accept()) != null) {
+                subReactorThreadGroup.dispatch(clientChannel);
+            }
+        } catch (IOException e) {
+            logger.warn("accept failed: {}", e.toString());
+            try {
+                Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
     }
 }
@@ -0,0 +1,22 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 解码器：从累积的字节流中切出完整的消息，解决 TCP 的半包和粘包，是 {@link Pipeline} 的第一环。
+ * 每个连接一个实例，只在连接所属的 I/O 线程中调用，可以有状态（例如已扫描过的位置、解析到一半的请求头）
+ */
+public interface MessageDecoder<T> {
+
+    /**
+     * 从 in（读模式）中解出一条消息。数据不足时返回 null，已读取的数据可以保存在解码器内部，
+     * 没有保存的部分不能移动 position；解出一条消息时 position 移到该消息之后。
+     * <p>
+     * 返回 ByteBuffer 时可以是 in 的视图（不拷贝），它只在本次 {@link Handler#onMessage} 调用期间有效；
+     * 需要交给业务线程池时由连接负责拷贝
+     *
+     * @throws IOException 数据不符合协议，连接会被关闭
+     */
+    T decode(ByteBuffer in) throws IOException;
+}
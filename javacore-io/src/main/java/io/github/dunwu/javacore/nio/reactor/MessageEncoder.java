@@ -0,0 +1,17 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 编码器：把业务响应转为待写出的字节，是 {@link Pipeline} 的最后一环。
+ * 整个服务端共用一个实例，在调用 {@link Connection#send} 的线程中执行，必须线程安全（通常是无状态的）
+ */
+public interface MessageEncoder<T> {
+
+    /**
+     * 把 message 编码为一个或多个读模式的缓冲区追加到 out。多个缓冲区（例如头部 + 原样引用的消息体）
+     * 会被合并为一次 gathering write，不必为了拼接而拷贝
+     */
+    void encode(T message, List<ByteBuffer> out);
+}
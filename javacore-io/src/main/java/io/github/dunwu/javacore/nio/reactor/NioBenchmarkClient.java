@@ -0,0 +1,615 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import io.github.dunwu.javacore.nio.reactor.codec.LengthFieldFrameDecoder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * {@link NioServer} 的压测客户端：建立大量长连接，每个连接串行地发请求、等响应（闭环），统计每秒请求数和延迟分布。
+ * <p>
+ * 用法：NioBenchmarkClient [host] [port] [connections] [threads] [seconds] [payloadBytes]，
+ * 默认 127.0.0.1 9080 10000 4 30 64。
+ * <p>
+ * 1 万个连接需要客户端和服务端都调大文件句柄上限（ulimit -n），本机压测还受临时端口范围
+ * （net.ipv4.ip_local_port_range）限制；服务端的 backlog 太小时建连阶段会有大量重传，延迟统计从全部连接建立后才开始。
+ * <p>
+ * 连接上的协议由 {@link Conversation} 决定，默认是 4 字节长度字段 + payload 的请求；
+ * {@link LineEchoConversation} 是按行回显的协议，供 {@link io.github.dunwu.javacore.net.tcp.EchoLoadTest} 使用。
+ * 作为组件使用时的步骤：{@link #open} 建立连接，{@link #start()} 开始发送（可以等全部连接建立后再调用），
+ * {@link #startMeasuring()} 开始统计，{@link #stop()} 关闭所有连接并返回延迟直方图
+ */
+public class NioBenchmarkClient {
+
+    /**
+     * 读缓冲区大小，也是单个响应的长度上限
+     */
+    private static final int IN_BUFFER_SIZE = 4096;
+
+    private final InetSocketAddress address;
+
+    private final Function<String, Conversation> conversations;
+
+    private final LongAdder connected = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder finished = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final List<ClientLoop> loops = new ArrayList<>();
+
+    private int connections;
+
+    private volatile boolean started;
+
+    private volatile boolean measuring;
+
+    private volatile boolean running = true;
+
+    public NioBenchmarkClient(InetSocketAddress address, int payloadBytes) {
+        this(address, name -> new LengthFieldConversation(new byte[payloadBytes]));
+    }
+
+    /**
+     * @param conversations 按连接名称（线程名-序号）创建每个连接的协议
+     */
+    public NioBenchmarkClient(InetSocketAddress address, Function<String, Conversation> conversations) {
+        this.address = address;
+        this.conversations = conversations;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 9080;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 30;
+        int payloadBytes = args.length > 5 ? Integer.parseInt(args[5]) : 64;
+        new NioBenchmarkClient(new InetSocketAddress(host, port), payloadBytes).run(connections, threads, seconds);
+    }
+
+    public void run(int connections, int threads, int seconds) throws Exception {
+        open(connections, threads, "bench-client-");
+        start();
+        awaitConnected(60, TimeUnit.SECONDS);
+        System.out.printf("connected: %d, failed: %d%n", connected.sum(), failed.sum());
+
+        startMeasuring();
+        long start = System.nanoTime();
+        long last = 0;
+        for (int i = 1; i <= seconds; i++) {
+            Thread.sleep(1000);
+            long total = completed.sum();
+            System.out.printf("[%2ds] %,d req/s%n", i, total - last);
+            last = total;
+        }
+        measuring = false;
+        long elapsed = System.nanoTime() - start;
+
+        LatencyHistogram histogram = stop();
+        System.out.printf("connections: %d, requests: %,d, throughput: %,.0f req/s%n",
+                connected.sum(), histogram.count(), histogram.count() * 1e9 / elapsed);
+        System.out.printf("latency(us) p50: %d, p90: %d, p99: %d, p99.9: %d, max: %d%n",
+                histogram.percentile(0.5), histogram.percentile(0.9), histogram.percentile(0.99),
+                histogram.percentile(0.999), histogram.max());
+    }
+
+    /**
+     * 启动 threads 个客户端线程，平均分配 connections 个连接并开始建连，只能调用一次
+     */
+    public void open(int connections, int threads, String threadNamePrefix) throws IOException {
+        if (!loops.isEmpty()) {
+            throw new IllegalStateException("already opened");
+        }
+        this.connections = connections;
+        for (int i = 0; i < threads; i++) {
+            int count = connections / threads + (i < connections % threads ? 1 : 0);
+            ClientLoop loop = new ClientLoop(threadNamePrefix + (i + 1), count);
+            loops.add(loop);
+            loop.start();
+        }
+    }
+
+    /**
+     * 等待所有连接建立成功或失败
+     *
+     * @return 超时前全部连接都有了结果时返回 true
+     */
+    public boolean awaitConnected(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (connected.sum() + failed.sum() < connections) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(100);
+        }
+        return true;
+    }
+
+    /**
+     * 已建立的连接开始发送，之后建立的连接马上开始发送
+     */
+    public void start() {
+        started = true;
+        for (ClientLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * 清零请求计数，之后的响应计入 {@link #getCompletedCount()} 和延迟直方图
+     */
+    public void startMeasuring() {
+        completed.reset();
+        measuring = true;
+    }
+
+    /**
+     * 停止统计，关闭所有连接，等待客户端线程退出
+     *
+     * @return 所有线程合并后的延迟直方图（微秒）
+     */
+    public LatencyHistogram stop() throws InterruptedException {
+        measuring = false;
+        running = false;
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (ClientLoop loop : loops) {
+            loop.selector.wakeup();
+            loop.join();
+            histogram.merge(loop.histogram);
+        }
+        return histogram;
+    }
+
+    public long getConnectedCount() {
+        return connected.sum();
+    }
+
+    /**
+     * 建连失败的连接数
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 协议正常结束（{@link Conversation#onClose()} 返回 true）的连接数
+     */
+    public long getFinishedCount() {
+        return finished.sum();
+    }
+
+    /**
+     * 建立之后因读写异常、响应不符合预期而关闭的连接数
+     */
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * 一个连接上的请求/响应协议，只在连接所属的客户端线程中调用，可以有状态
+     */
+    public interface Conversation {
+
+        /**
+         * 下一个请求（读模式），连接会把它写完；返回 null 表示不再发送，等服务端关闭连接
+         */
+        ByteBuffer nextRequest();
+
+        /**
+         * 从 in（读模式）中解出一个响应并校验，position 移到响应之后；数据不足时返回 false
+         *
+         * @throws IOException 响应不符合预期，连接会被关闭并计为错误
+         */
+        boolean readResponse(ByteBuffer in) throws IOException;
+
+        /**
+         * 服务端关闭了连接
+         *
+         * @return true 表示协议正常结束，false 表示异常断开
+         */
+        boolean onClose();
+    }
+
+    /**
+     * 4 字节长度字段 + payload 的请求，收到一个完整的帧即为一个响应，连接一直保持到压测结束
+     */
+    public static final class LengthFieldConversation implements Conversation {
+
+        private final ByteBuffer request;
+
+        private final MessageDecoder<ByteBuffer> decoder = new LengthFieldFrameDecoder(IN_BUFFER_SIZE);
+
+        public LengthFieldConversation(byte[] payload) {
+            this.request = LengthFieldFrameDecoder.frame(payload);
+        }
+
+        @Override
+        public ByteBuffer nextRequest() {
+            request.rewind();
+            return request;
+        }
+
+        @Override
+        public boolean readResponse(ByteBuffer in) throws IOException {
+            return decoder.decode(in) != null;
+        }
+
+        @Override
+        public boolean onClose() {
+            return false;
+        }
+    }
+
+    /**
+     * 按行回显的协议：依次发 messages 行（name #序号），校验回显是否为 responsePrefix + 原文，
+     * 最后发 lastLine，等服务端关闭连接
+     */
+    public static final class LineEchoConversation implements Conversation {
+
+        private final String name;
+
+        private final int messages;
+
+        private final byte[] responsePrefix;
+
+        private final String lastLine;
+
+        private byte[] expected;
+
+        private int sent;
+
+        public LineEchoConversation(String name, int messages, String responsePrefix, String lastLine) {
+            this.name = name;
+            this.messages = messages;
+            this.responsePrefix = responsePrefix.getBytes(StandardCharsets.UTF_8);
+            this.lastLine = lastLine;
+        }
+
+        @Override
+        public ByteBuffer nextRequest() {
+            if (sent > messages) {
+                return null;
+            }
+            String line = sent < messages ? name + " #" + sent : lastLine;
+            expected = line.getBytes(StandardCharsets.UTF_8);
+            sent++;
+            return ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean readResponse(ByteBuffer in) throws IOException {
+            int lineEnd = -1;
+            for (int i = in.position(); i < in.limit(); i++) {
+                if (in.get(i) == '\n') {
+                    lineEnd = i;
+                    break;
+                }
+            }
+            if (lineEnd < 0) {
+                return false;
+            }
+            if (!matches(in, lineEnd)) {
+                throw new IOException("unexpected response");
+            }
+            in.position(lineEnd + 1);
+            return true;
+        }
+
+        private boolean matches(ByteBuffer buffer, int lineEnd) {
+            int p = buffer.position();
+            if (expected == null || lineEnd - p != responsePrefix.length + expected.length) {
+                return false;
+            }
+            for (byte b : responsePrefix) {
+                if (buffer.get(p++) != b) {
+                    return false;
+                }
+            }
+            for (byte b : expected) {
+                if (buffer.get(p++) != b) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean onClose() {
+            // lastLine 之后服务端关闭连接
+            return sent > messages;
+        }
+    }
+
+    /**
+     * 一个客户端线程 + 一个 Selector 管理一组连接
+     */
+    private final class ClientLoop extends Thread {
+
+        private final int count;
+
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private final List<ClientConnection> established = new ArrayList<>();
+
+        private final Selector selector;
+
+        /**
+         * 本线程是否已经开始发送，之后建立的连接马上开始发
+         */
+        private boolean sending;
+
+        ClientLoop(String name, int count) throws IOException {
+            super(name);
+            this.count = count;
+            this.selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < count; i++) {
+                    connect(i);
+                }
+                while (running) {
+                    selector.select(100);
+                    if (started && !sending) {
+                        sending = true;
+                        for (ClientConnection connection : established) {
+                            connection.next();
+                        }
+                        established.clear();
+                    }
+                    for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext(); ) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        ClientConnection connection = (ClientConnection) key.attachment();
+                        try {
+                            if (key.isConnectable()) {
+                                connection.finishConnect();
+                            } else {
+                                if (key.isWritable()) {
+                                    connection.flush();
+                                }
+                                if (key.isValid() && key.isReadable()) {
+                                    connection.read();
+                                }
+                            }
+                        } catch (IOException e) {
+                            connection.fail();
+                        }
+                    }
+                }
+                for (SelectionKey key : selector.keys()) {
+                    ((ClientConnection) key.attachment()).close();
+                }
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void connect(int id) {
+            try {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+                ClientConnection connection = new ClientConnection(channel, conversations.apply(getName() + "-" + id));
+                connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                if (channel.connect(address)) {
+                    connection.finishConnect();
+                }
+            } catch (IOException e) {
+                failed.increment();
+            }
+        }
+
+        private final class ClientConnection {
+
+            private final SocketChannel channel;
+
+            private final Conversation conversation;
+
+            private final ByteBuffer in = ByteBuffer.allocate(IN_BUFFER_SIZE);
+
+            private ByteBuffer out;
+
+            private SelectionKey key;
+
+            private boolean established;
+
+            private boolean done;
+
+            private long sentAt;
+
+            ClientConnection(SocketChannel channel, Conversation conversation) {
+                this.channel = channel;
+                this.conversation = conversation;
+            }
+
+            void finishConnect() {
+                try {
+                    if (!channel.finishConnect()) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    failed.increment();
+                    close();
+                    return;
+                }
+                connected.increment();
+                established = true;
+                key.interestOps(SelectionKey.OP_READ);
+                if (sending) {
+                    next();
+                } else {
+                    ClientLoop.this.established.add(this);
+                }
+            }
+
+            /**
+             * 发下一个请求，协议不再发送时只等服务端关闭连接
+             */
+            void next() {
+                if (done) {
+                    return;
+                }
+                out = conversation.nextRequest();
+                if (out == null) {
+                    return;
+                }
+                sentAt = System.nanoTime();
+                try {
+                    flush();
+                } catch (IOException e) {
+                    fail();
+                }
+            }
+
+            void flush() throws IOException {
+                channel.write(out);
+                key.interestOps(out.hasRemaining()
+                        ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+
+            void read() throws IOException {
+                if (channel.read(in) < 0) {
+                    if (conversation.onClose()) {
+                        done = true;
+                        finished.increment();
+                        close();
+                        return;
+                    }
+                    throw new IOException("closed by server");
+                }
+                in.flip();
+                while (conversation.readResponse(in)) {
+                    if (measuring) {
+                        histogram.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt));
+                        completed.increment();
+                    }
+                    next();
+                }
+                if (in.position() == 0 && in.limit() == in.capacity()) {
+                    throw new IOException("response too long");
+                }
+                in.compact();
+            }
+
+            void fail() {
+                if (!done) {
+                    done = true;
+                    if (established) {
+                        errors.increment();
+                    }
+                }
+                close();
+            }
+
+            void close() {
+                key.cancel();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // 已经断开
+                }
+            }
+        }
+    }
+
+    /**
+     * 对数分桶的延迟直方图：每个 2 的幂区间再均分为 16 个子桶，相对误差不超过 1/16，只在单个线程中记录
+     */
+    public static final class LatencyHistogram {
+
+        private static final int SUB_BUCKET_BITS = 4;
+
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        /**
+         * 小于 2 * SUB_BUCKETS 的值每个值一个桶
+         */
+        private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+        private final long[] counts = new long[LINEAR_LIMIT + (64 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS];
+
+        private long count;
+
+        private long max;
+
+        public void record(long value) {
+            counts[index(Math.max(0L, value))]++;
+            count++;
+            max = Math.max(max, value);
+        }
+
+        public void merge(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public long percentile(double quantile) {
+            if (count == 0) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < LINEAR_LIMIT) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < LINEAR_LIMIT) {
+                return index;
+            }
+            int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+            int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.dunwu.javacore.nio.reactor;
 
+import io.github.dunwu.javacore.nio.reactor.codec.LengthFieldFrameDecoder;
+
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
@@ -9,75 +11,79 @@ import java.nio.channels.SocketChannel;
 import java.util.Iterator;
 import java.util.Set;
 
+/**
+ * {@link NioServer} 的演示客户端，请求和响应都是 4 字节长度前缀的帧
+ */
 public class NioClient {
 
-
     public static void main(String[] args) {
         SocketChannel clientClient;
         Selector selector = null;
+        // 一次 read 可能只读到半个响应，也可能读到多个响应，未解码的部分留在 buffer 中
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        MessageDecoder<ByteBuffer> decoder = new LengthFieldFrameDecoder(1024);
         try {
             clientClient = SocketChannel.open();
             clientClient.configureBlocking(false);
             selector = Selector.open();
             clientClient.register(selector, SelectionKey.OP_CONNECT);
-            clientClient.connect(new InetSocketAddress("127.0.0.1",9080));
+            clientClient.connect(new InetSocketAddress("127.0.0.1", 9080));
             Set<SelectionKey> ops = null;
-            while(true) {
+            while (true) {
                 try {
                     selector.select();
                     ops = selector.selectedKeys();
-                    for (Iterator<SelectionKey> it = ops.iterator(); it.hasNext();) {
+                    for (Iterator<SelectionKey> it = ops.iterator(); it.hasNext(); ) {
                         SelectionKey key = it.next();
                         it.remove();
-                        if(key.isConnectable()) {
+                        if (key.isConnectable()) {
                             System.out.println("client connect");
-                            SocketChannel sc =  (SocketChannel) key.channel();
+                            SocketChannel sc = (SocketChannel) key.channel();
                             // 判断此通道上是否正在进行连接操作。
                             // 完成套接字通道的连接过程。
                             if (sc.isConnectionPending()) {
                                 sc.finishConnect();
                                 System.out.println("完成连接!");
-                                ByteBuffer buffer = ByteBuffer.allocate(1024);
-                                buffer.put("Hello,Server".getBytes());
-                                buffer.flip();
-                                sc.write(buffer);
+                                writeFully(sc, LengthFieldFrameDecoder.frame("Hello,Server".getBytes()));
                             }
                             sc.register(selector, SelectionKey.OP_READ);
-                        } else if(key.isWritable()) {
-                            System.out.println("客户端写");
-                            SocketChannel sc = (SocketChannel)key.channel();
-                            ByteBuffer buffer = ByteBuffer.allocate(1024);
-                            buffer.put("hello server.".getBytes());
-                            buffer.flip();
-                            sc.write(buffer);
-                        } else if(key.isReadable()) {
-                            System.out.println("客户端收到服务器的响应....");
-                            SocketChannel sc = (SocketChannel)key.channel();
-                            ByteBuffer buffer = ByteBuffer.allocate(1024);
-                            int count = sc.read(buffer);
-                            if(count > 0 ) {
-                                buffer.flip();
-                                byte[] response = new byte[buffer.remaining()];
-                                buffer.get(response);
-                                System.out.println(new String(response));
+                        } else if (key.isReadable()) {
+                            SocketChannel sc = (SocketChannel) key.channel();
+                            if (sc.read(buffer) < 0) {
+                                System.out.println("服务端关闭了连接");
+                                sc.close();
+                                return;
                             }
-
-                            // 再次发送消息，重复输出
-                            buffer = ByteBuffer.allocate(1024);
-                            buffer.put("hello server.".getBytes());
                             buffer.flip();
-                            sc.write(buffer);
+                            ByteBuffer frame;
+                            while ((frame = decoder.decode(buffer)) != null) {
+                                byte[] response = new byte[frame.remaining()];
+                                frame.get(response);
+                                System.out.println("客户端收到服务器的响应：" + new String(response));
 
+                                // 再次发送消息，重复输出
+                                Thread.sleep(1000);
+                                writeFully(sc, LengthFieldFrameDecoder.frame("hello server.".getBytes()));
+                            }
+                            buffer.compact();
                         }
                     }
-                } catch(Throwable e) {
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Throwable e) {
                     e.printStackTrace();
+                    return;
                 }
             }
         } catch (IOException e) {
-            // TODO Auto-generated catch block
             e.printStackTrace();
         }
     }
 
+    private static void writeFully(SocketChannel sc, ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            sc.write(data);
+        }
+    }
 }
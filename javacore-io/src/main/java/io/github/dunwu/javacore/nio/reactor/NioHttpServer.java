@@ -0,0 +1,57 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import io.github.dunwu.javacore.nio.reactor.codec.HttpRequest;
+import io.github.dunwu.javacore.nio.reactor.codec.HttpRequestDecoder;
+import io.github.dunwu.javacore.nio.reactor.codec.HttpResponse;
+import io.github.dunwu.javacore.nio.reactor.codec.HttpResponseEncoder;
+import io.github.dunwu.javacore.nio.reactor.codec.HttpServerHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基于 {@link NioServer} 的 HTTP/1.1 keep-alive 服务端示例：
+ * <pre>
+ * curl -v http://127.0.0.1:8080/ http://127.0.0.1:8080/hello   # 两个请求复用同一个连接
+ * wrk -t2 -c100 -d10s http://127.0.0.1:8080/
+ * </pre>
+ * 传入参数 blocking 时业务逻辑模拟 10ms 的阻塞调用，交给虚拟线程（JDK 21+，低版本为固定线程池）执行，
+ * 否则直接在 I/O 线程中执行。
+ */
+public class NioHttpServer {
+
+    private static final ByteBuffer HELLO = ByteBuffer.wrap("hello, world\n".getBytes(StandardCharsets.UTF_8));
+
+    public static void main(String[] args) throws IOException {
+        boolean blocking = args.length > 0 && "blocking".equals(args[0]);
+        Pipeline<HttpRequest> pipeline = new Pipeline<>(HttpRequestDecoder::new,
+                new HttpServerHandler(blocking ? NioHttpServer::blockingHandle : NioHttpServer::handle))
+                .setEncoder(new HttpResponseEncoder());
+        if (blocking) {
+            pipeline.setExecutor(HandlerExecutors.virtualThreadPerTask());
+        }
+        NioServer server = new NioServer(8080).setPipeline(pipeline).start();
+        System.out.println("http server listening on " + server.getLocalPort() + (blocking ? " (blocking)" : ""));
+    }
+
+    private static HttpResponse handle(HttpRequest request) {
+        if ("/".equals(request.getUri())) {
+            // 响应体共用一个缓冲区，编码器每次 duplicate，不拷贝
+            return new HttpResponse().setHeader("Content-Type", "text/plain").setBody(HELLO);
+        }
+        if (request.getUri().startsWith("/hello")) {
+            return HttpResponse.ok(request.getMethod() + " " + request.getUri() + "\n");
+        }
+        return HttpResponse.status(404, "Not Found");
+    }
+
+    private static HttpResponse blockingHandle(HttpRequest request) {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return handle(request);
+    }
+}
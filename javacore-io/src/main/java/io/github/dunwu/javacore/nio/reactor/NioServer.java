@@ -1,55 +1,286 @@
 package io.github.dunwu.javacore.nio.reactor;
 
+import io.github.dunwu.javacore.nio.reactor.codec.LengthFieldFrameDecoder;
+import io.github.dunwu.javacore.nio.reactor.codec.LengthFieldPrepender;
+
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.ServerSocketChannel;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-public class NioServer {
+/**
+ * 主从 Reactor 服务端：一个 main reactor 线程 accept，多个 sub reactor 线程读写，协议和业务由 {@link Pipeline} 定义。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * NioServer server = new NioServer(9080)
+ *         .setIoThreadCount(4)
+ *         .setPipeline(new Pipeline&lt;ByteBuffer&gt;(() -&gt; new LengthFieldFrameDecoder(1024 * 1024),
+ *                 (connection, frame) -&gt; connection.send(response))
+ *                 .setEncoder(new LengthFieldPrepender()))
+ *         .start();
+ * </pre>
+ * HTTP 示例见 {@link NioHttpServer}，压测见 {@link NioBenchmarkClient}。
+ */
+public class NioServer implements Closeable {
 
     private static final int SERVER_PORT = 9080;
 
-    public static void main(String[] args) {
-        (new Thread(new Acceptor())).start();
+    private static final ByteBuffer RESPONSE = ByteBuffer.wrap("hello,服务器收到了你的信息。".getBytes()); // 服务端给客户端的响应
+
+    private final int port;
+
+    private int ioThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    private int backlog = 4096;
+
+    private Pipeline<?> pipeline;
+
+    private int readBufferSize = 64 * 1024;
+
+    private int cumulationChunkSize = 4 * 1024;
+
+    private int lowWaterMark = 32 * 1024;
+
+    private int highWaterMark = 64 * 1024;
+
+    private int maxInFlightMessages = 256;
+
+    private int maxConnections = Integer.MAX_VALUE;
+
+    private long idleTimeoutNanos;
+
+    /**
+     * accept 时占用、连接关闭时释放的名额，比各 I/O 线程上的连接数更早生效，连接风暴时不会超过上限
+     */
+    private final AtomicInteger connectionSlots = new AtomicInteger();
+
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    private ServerSocketChannel serverChannel;
+
+    private MainReactor mainReactor;
+
+    private Thread mainReactorThread;
+
+    private SubReactorThreadGroup subReactorThreadGroup;
+
+    /**
+     * @param port 监听端口，0 表示随机端口
+     */
+    public NioServer(int port) {
+        this.port = port;
     }
 
-    private static class Acceptor implements Runnable {
+    /**
+     * I/O 线程数，默认 CPU 核数
+     */
+    public NioServer setIoThreadCount(int ioThreadCount) {
+        if (ioThreadCount < 1) {
+            throw new IllegalArgumentException("ioThreadCount must be positive");
+        }
+        this.ioThreadCount = ioThreadCount;
+        return this;
+    }
+
+    /**
+     * accept 队列长度，大量连接同时建立时太小会导致客户端连接超时，默认 4096（受 somaxconn 限制）
+     */
+    public NioServer setBacklog(int backlog) {
+        this.backlog = backlog;
+        return this;
+    }
+
+    /**
+     * 解码器 → 业务处理器 → 编码器，必须设置
+     */
+    public NioServer setPipeline(Pipeline<?> pipeline) {
+        this.pipeline = pipeline;
+        return this;
+    }
+
+    /**
+     * 每个 I/O 线程共用的读缓冲区大小，默认 64KB
+     */
+    public NioServer setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+        return this;
+    }
+
+    /**
+     * 保存半包的 chunk 大小，默认 4KB；更大的半包使用按需扩容的堆缓冲区
+     */
+    public NioServer setCumulationChunkSize(int cumulationChunkSize) {
+        this.cumulationChunkSize = cumulationChunkSize;
+        return this;
+    }
 
-        // main Reactor 线程池，用于处理客户端的连接请求
-        private static ExecutorService mainReactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
-            private AtomicInteger num = new AtomicInteger(0);
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r);
-                t.setName("main-reactor-" + num.incrementAndGet());
-                return t;
+    /**
+     * 写缓冲水位：未写出的字节数超过 high 时暂停读取该连接，降到 low 以下时恢复，默认 32KB / 64KB
+     */
+    public NioServer setWriteBufferWaterMark(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException("0 <= low <= high required");
+        }
+        this.lowWaterMark = low;
+        this.highWaterMark = high;
+        return this;
+    }
+
+    /**
+     * 每个连接已派发到 {@link Pipeline#setExecutor 业务线程池}、尚未处理完的消息数上限，达到上限时暂停读取该连接，默认 256
+     */
+    public NioServer setMaxInFlightMessages(int maxInFlightMessages) {
+        if (maxInFlightMessages < 1) {
+            throw new IllegalArgumentException("maxInFlightMessages must be positive");
+        }
+        this.maxInFlightMessages = maxInFlightMessages;
+        return this;
+    }
+
+    /**
+     * 同时保持的连接数上限，超过时新连接 accept 之后立即关闭，默认不限制（受文件句柄上限约束）
+     */
+    public NioServer setMaxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be positive");
+        }
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * 空闲超时：连接在这段时间内既没有读到也没有写出数据，并且没有正在处理的消息时关闭，0 表示不检测（默认）。
+     * 各 I/O 线程定期扫描自己的连接，精度是超时时间的一半，最多 1 秒
+     */
+    public NioServer setIdleTimeout(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        this.idleTimeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    public synchronized NioServer start() throws IOException {
+        if (pipeline == null) {
+            throw new IllegalStateException("pipeline is required");
+        }
+        if (serverChannel != null) {
+            throw new IllegalStateException("already started");
+        }
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(new InetSocketAddress(port), backlog);
+            subReactorThreadGroup = new SubReactorThreadGroup(this);
+            mainReactor = new MainReactor(serverChannel, subReactorThreadGroup);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        mainReactorThread = new Thread(mainReactor, "main-reactor");
+        mainReactorThread.start();
+        return this;
+    }
+
+    /**
+     * 实际监听的端口
+     */
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int getConnectionCount() {
+        return subReactorThreadGroup == null ? 0 : subReactorThreadGroup.getConnectionCount();
+    }
+
+    /**
+     * 因超过 {@link #setMaxConnections 连接数上限} 而被拒绝的连接数
+     */
+    public long getRejectedConnectionCount() {
+        return rejectedConnections.sum();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (mainReactor != null) {
+            mainReactor.shutdown();
+        }
+        try {
+            if (mainReactorThread != null) {
+                mainReactorThread.join();
             }
-        });
-
-        public void run() {
-            ServerSocketChannel ssc = null;
-            try {
-                ssc = ServerSocketChannel.open();
-                ssc.configureBlocking(false);
-                ssc.bind(new InetSocketAddress(SERVER_PORT));
-
-                //转发到 MainReactor反应堆
-                dispatch(ssc);
-                System.out.println("服务端成功启动。。。。。。");
-            } catch (IOException e) {
-                e.printStackTrace();
+            if (subReactorThreadGroup != null) {
+                subReactorThreadGroup.shutdown();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (serverChannel != null) {
+                serverChannel.close();
             }
         }
+    }
 
-        private void dispatch(ServerSocketChannel ssc) {
-            mainReactor.submit(new MainReactor(ssc));
-        }
+    int getIoThreadCount() {
+        return ioThreadCount;
+    }
+
+    Pipeline<?> getPipeline() {
+        return pipeline;
+    }
+
+    int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    int getCumulationChunkSize() {
+        return cumulationChunkSize;
+    }
+
+    int getLowWaterMark() {
+        return lowWaterMark;
+    }
 
+    int getHighWaterMark() {
+        return highWaterMark;
     }
 
+    int getMaxInFlightMessages() {
+        return maxInFlightMessages;
+    }
 
+    long getIdleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
 
+    /**
+     * 占用一个连接名额，达到上限时返回 false
+     */
+    boolean tryAcquireConnection() {
+        if (connectionSlots.incrementAndGet() > maxConnections) {
+            connectionSlots.decrementAndGet();
+            rejectedConnections.increment();
+            return false;
+        }
+        return true;
+    }
+
+    void releaseConnection() {
+        connectionSlots.decrementAndGet();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : SERVER_PORT;
+        // 只在内存中拼响应，直接在 I/O 线程中处理；响应体共用一个只读缓冲区，每次写出时 duplicate
+        Pipeline<ByteBuffer> pipeline = new Pipeline<ByteBuffer>(() -> new LengthFieldFrameDecoder(1024 * 1024),
+                (connection, frame) -> connection.send(RESPONSE.duplicate()))
+                .setEncoder(new LengthFieldPrepender());
+        NioServer server = new NioServer(port).setPipeline(pipeline).start();
+        System.out.println("服务端成功启动，端口：" + server.getLocalPort() + "，I/O 线程数：" + server.getIoThreadCount());
+    }
 }
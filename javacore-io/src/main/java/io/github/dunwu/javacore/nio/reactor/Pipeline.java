@@ -0,0 +1,95 @@
+package io.github.dunwu.javacore.nio.reactor;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 协议处理链：解码器 → 业务处理器 → 编码器。
+ * <p>
+ * 1. 解码器每个连接一个（由 decoderFactory 创建），直接在 I/O 线程的累积缓冲区上解码；
+ * <p>
+ * 2. 业务处理器默认在 I/O 线程中直接执行（inline）：没有线程切换，ByteBuffer 消息也不用拷贝，
+ * 适合纯内存计算的短逻辑；会阻塞的逻辑（数据库、远程调用）通过 {@link #setExecutor} 交给线程池或虚拟线程
+ * （见 {@link HandlerExecutors}）；
+ * <p>
+ * 3. 交给线程池时默认保证同一连接的消息按到达顺序串行处理（{@link #setOrdered}），请求流水线的响应顺序不会错乱；
+ * <p>
+ * 4. 编码器在 {@link Connection#send} 的调用线程中执行。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * Pipeline&lt;HttpRequest&gt; pipeline = new Pipeline&lt;&gt;(HttpRequestDecoder::new, new HttpServerHandler(this::handle))
+ *         .setEncoder(new HttpResponseEncoder())
+ *         .setExecutor(HandlerExecutors.virtualThreadPerTask());
+ * </pre>
+ *
+ * @param <I> 解码器产出、业务处理器接收的消息类型
+ */
+public class Pipeline<I> {
+
+    private final Supplier<? extends MessageDecoder<? extends I>> decoderFactory;
+
+    private final Handler<? super I> handler;
+
+    private MessageEncoder<?> encoder;
+
+    private Executor executor;
+
+    private boolean ordered = true;
+
+    public Pipeline(Supplier<? extends MessageDecoder<? extends I>> decoderFactory, Handler<? super I> handler) {
+        if (decoderFactory == null || handler == null) {
+            throw new NullPointerException("decoderFactory and handler are required");
+        }
+        this.decoderFactory = decoderFactory;
+        this.handler = handler;
+    }
+
+    /**
+     * {@link Connection#send} 使用的编码器，不设置时只能用 {@link Connection#write} 写原始字节
+     */
+    public Pipeline<I> setEncoder(MessageEncoder<?> encoder) {
+        this.encoder = encoder;
+        return this;
+    }
+
+    /**
+     * 执行 onMessage 的线程池，null（默认）表示在 I/O 线程中直接执行。线程池由调用方管理，服务端关闭时不会关闭它
+     */
+    public Pipeline<I> setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * 使用线程池时，同一连接的消息是否按顺序串行处理，默认 true；
+     * 设为 false 时同一连接的消息可能并发处理，响应顺序由业务自己保证
+     */
+    public Pipeline<I> setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    MessageDecoder<Object> newDecoder() {
+        return (MessageDecoder<Object>) decoderFactory.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    Handler<Object> getHandler() {
+        return (Handler<Object>) handler;
+    }
+
+    @SuppressWarnings("unchecked")
+    MessageEncoder<Object> getEncoder() {
+        return (MessageEncoder<Object>) encoder;
+    }
+
+    Executor getExecutor() {
+        return executor;
+    }
+
+    boolean isOrdered() {
+        return ordered;
+    }
+}
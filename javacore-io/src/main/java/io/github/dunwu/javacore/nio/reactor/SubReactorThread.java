@@ -1,145 +1,253 @@
 package io.github.dunwu.javacore.nio.reactor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.locks.ReentrantLock;
-
-public class SubReactorThread extends Thread{
-    private Selector selector;
-    private ExecutorService businessExecutorPool;
-    private List<NioTask> taskList = new ArrayList<NioTask>(512);
-    private ReentrantLock taskMainLock = new ReentrantLock();
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * sub reactor：一个线程 + 一个 Selector，负责一组连接的读写。
+ * <p>
+ * 1. 其他线程（main reactor 注册新连接、业务线程写响应、关闭连接）提交的任务放进无锁的 MPSC 队列，
+ * 只有本线程消费；提交后通过 wakenUp 标记保证每轮 select 最多调用一次 selector.wakeup()，
+ * 避免任务在 select 阻塞期间滞留，也避免每次提交都付出 wakeup 的系统调用；
+ * <p>
+ * 2. 连接的 interestOps 只在本线程中修改，不会重复 register；
+ * <p>
+ * 3. 读缓冲区（直接内存）和 gathering write 用的数组都是本线程所有连接共用的；
+ * <p>
+ * 4. 业务逻辑在哪个线程执行由 {@link Pipeline} 决定。
+ */
+public class SubReactorThread extends Thread {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubReactorThread.class);
+
+    private static final long SELECT_TIMEOUT_MILLIS = 1000L;
+
+    private final Selector selector;
+
+    private final NioServer config;
+
+    private final Queue<Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean wakenUp = new AtomicBoolean();
+
+    private final DirectBufferPool bufferPool;
+
+    private final ByteBuffer readBuffer;
+
+    private final ByteBuffer[] gatherBuffers = new ByteBuffer[Connection.MAX_GATHER];
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private volatile boolean running = true;
+
     /**
-     * 业务线程池
-     * @param businessExecutorPool
+     * 空闲超时，0 表示不检测
      */
-    public SubReactorThread(ExecutorService businessExecutorPool) {
-        try {
-            this.businessExecutorPool = businessExecutorPool;
-            this.selector = Selector.open();
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
+    private final long idleTimeoutNanos;
+
+    private final long selectTimeoutMillis;
+
+    private long lastIdleCheck = System.nanoTime();
+
+    /**
+     * @param config 服务端配置
+     */
+    public SubReactorThread(String name, NioServer config) throws IOException {
+        super(name);
+        this.config = config;
+        this.selector = Selector.open();
+        this.bufferPool = new DirectBufferPool(config.getCumulationChunkSize(), 64, 1024);
+        this.readBuffer = ByteBuffer.allocateDirect(config.getReadBufferSize());
+        this.idleTimeoutNanos = config.getIdleTimeoutNanos();
+        // 扫描间隔是超时时间的一半，select 不能阻塞得比这更久
+        this.selectTimeoutMillis = idleTimeoutNanos == 0 ? SELECT_TIMEOUT_MILLIS
+                : Math.max(1L, Math.min(SELECT_TIMEOUT_MILLIS, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos / 2)));
     }
+
     /**
-     * socket channel
-     *
-     * @param socketChannel
+     * 提交任务到本线程执行，可以在任意线程调用
      */
-    public void register(NioTask task) {
-        if (task != null) {
-            try {
-                taskMainLock.lock();
-                taskList.add(task);
-            } finally {
-                taskMainLock.unlock();
-            }
+    public void execute(Runnable task) {
+        taskQueue.offer(task);
+        if (!inEventLoop() && wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
         }
     }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == this;
+    }
+
     /**
-     * 此处的reqBuffer处于可写状态
-     * @param sc
-     * @param reqBuffer
+     * 注册新连接，由 main reactor 调用
      */
-    private void dispatch(SocketChannel sc, ByteBuffer reqBuffer) {
-        businessExecutorPool.submit( new Handler(sc, reqBuffer, this)  );
+    public void register(SocketChannel channel) {
+        execute(() -> doRegister(channel));
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    private void doRegister(SocketChannel channel) {
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Connection connection = new Connection(channel, key, this, config.getPipeline(),
+                    config.getLowWaterMark(), config.getHighWaterMark(), config.getMaxInFlightMessages());
+            key.attach(connection);
+            connectionCount.incrementAndGet();
+            connection.onOpen();
+        } catch (IOException e) {
+            logger.warn("register {} failed", channel, e);
+            closeQuietly(channel);
+            config.releaseConnection();
+        }
+    }
+
+    void connectionClosed(Connection connection) {
+        connectionCount.decrementAndGet();
+        config.releaseConnection();
     }
 
+    DirectBufferPool getBufferPool() {
+        return bufferPool;
+    }
 
+    ByteBuffer getReadBuffer() {
+        return readBuffer;
+    }
+
+    ByteBuffer[] getGatherBuffers() {
+        return gatherBuffers;
+    }
 
+    @Override
     public void run() {
-        while (!Thread.interrupted()) {
-            Set<SelectionKey> ops = null;
+        while (running) {
             try {
-                selector.select(1000);
-                ops = selector.selectedKeys();
-            } catch (IOException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-                continue;
-            }
-            // 处理相关事件
-            for (Iterator<SelectionKey> it = ops.iterator(); it.hasNext();) {
-                SelectionKey key = it.next();
-                it.remove();
-                try {
-                    if (key.isWritable()) { // 向客户端发送请求
-                        SocketChannel clientChannel = (SocketChannel) key.channel();
-                        ByteBuffer buf = (ByteBuffer) key.attachment();
-                        clientChannel.write(buf);// 这里其实要和taskList的实现一样，需要处理缓存区满的情况
-                        System.out.println("服务端向客户端发送数据。。。");
-                        // 重新注册读事件
-                        clientChannel.register(selector, SelectionKey.OP_READ);
-                    } else if (key.isReadable()) { // 接受客户端请求
-                        System.out.println("服务端接收客户端连接请求。。。");
-                        SocketChannel clientChannel = (SocketChannel) key.channel();
-                        ByteBuffer buf = ByteBuffer.allocate(1024);
-                        System.out.println(buf.capacity());
-                        /**
-                         * 这里其实实现的非常不优雅，需要对读取处理办关闭，而且一次读取，并不一定能将一个请求读取
-                         * 一个请求，也不要会刚好读取到一个完整对请求，
-                         * 这里其实是需要编码，解码，也就是通信协议  @todo
-                         * 这里如何做，大家可以思考一下，后面我们可以体验netty是否如何优雅处理的。
-                         */
-                        int rc = clientChannel.read(buf);//解析请求完毕
-                        //转发请求到具体的业务线程；当然，这里其实可以向dubbo那样，支持转发策略，如果执行时间短，
-                        //，比如没有数据库操作等，可以在io线程中执行。本实例，转发到业务线程池
-                        dispatch(clientChannel, buf);
-                    }
-                } catch (Throwable e) {
-                    e.printStackTrace();
-                    System.out.println("客户端主动断开连接。。。。。。。");
+                wakenUp.set(false);
+                if (taskQueue.isEmpty()) {
+                    selector.select(selectTimeoutMillis);
+                } else {
+                    selector.selectNow();
+                }
+                processSelectedKeys();
+                runAllTasks();
+                if (idleTimeoutNanos > 0) {
+                    closeIdleConnections();
                 }
+            } catch (Throwable e) {
+                logger.warn("unexpected exception in {}", getName(), e);
             }
+        }
+        closeAll();
+    }
 
-            // 注册事件
-            if (!taskList.isEmpty()) {
-                try {
-                    taskMainLock.lock();
-                    for (Iterator<NioTask> it = taskList
-                            .iterator(); it.hasNext();) {
-                        NioTask task = it.next();
-                        try {
-                            SocketChannel sc = task.getSc();
-                            if(task.getData() != null ) { // 写操作
-                                ByteBuffer byteBuffer = (ByteBuffer)task.getData();
-                                byteBuffer.flip();
-                                int wc = sc.write(byteBuffer);
-                                System.out.println("服务端向客户端发送数据。。。");
-                                if(wc < 1 && byteBuffer.hasRemaining()) { // 说明写缓存区已满，需要注册写事件
-                                    sc.register(selector, task.getOp(), task.getData());
-                                    continue;
-                                }
-                                byteBuffer = null;//释放内存
-                            } else {
-                                sc.register(selector, task.getOp());
-                            }
-                        } catch (Throwable e) {
-                            e.printStackTrace();// ignore
-                        }
-                        it.remove();
-                    }
-
-                } finally {
-                    taskMainLock.unlock();
+    private void processSelectedKeys() {
+        Set<SelectionKey> keys = selector.selectedKeys();
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (Iterator<SelectionKey> it = keys.iterator(); it.hasNext(); ) {
+            SelectionKey key = it.next();
+            it.remove();
+            Connection connection = (Connection) key.attachment();
+            try {
+                int ready = key.readyOps();
+                // 先写后读，尽快释放发送队列
+                if ((ready & SelectionKey.OP_WRITE) != 0) {
+                    connection.flush();
+                }
+                if ((ready & SelectionKey.OP_READ) != 0 && key.isValid()) {
+                    connection.read();
                 }
+            } catch (CancelledKeyException | IOException e) {
+                connection.doClose();
             }
-
         }
     }
 
+    private void runAllTasks() {
+        Runnable task;
+        while ((task = taskQueue.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.warn("task failed in {}", getName(), e);
+            }
+        }
+    }
 
+    /**
+     * 每隔超时时间的一半扫描一次本线程的连接。一万个连接扫描一次不到一毫秒，比为每个连接维护定时任务简单
+     */
+    private void closeIdleConnections() {
+        long now = System.nanoTime();
+        if (now - lastIdleCheck < idleTimeoutNanos / 2) {
+            return;
+        }
+        lastIdleCheck = now;
+        List<Connection> idle = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection && ((Connection) attachment).isIdle(now, idleTimeoutNanos)) {
+                idle.add((Connection) attachment);
+            }
+        }
+        for (Connection connection : idle) {
+            logger.debug("close idle {}", connection);
+            connection.doClose();
+        }
+    }
 
+    /**
+     * 停止事件循环并关闭所有连接
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
 
+    private void closeAll() {
+        runAllTasks();
+        List<Connection> connections = new ArrayList<>();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                connections.add((Connection) key.attachment());
+            }
+        }
+        connections.forEach(Connection::doClose);
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // 关闭中
+        }
+    }
 
-
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 已经断开
+        }
+    }
 }
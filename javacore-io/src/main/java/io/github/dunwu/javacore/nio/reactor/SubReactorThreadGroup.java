@@ -1,61 +1,78 @@
 package io.github.dunwu.javacore.nio.reactor;
 
-import java.nio.channels.SelectionKey;
+import java.io.IOException;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 一组 sub reactor，新连接轮询分配，分配后连接的所有读写都固定在同一个 I/O 线程上
+ */
 public class SubReactorThreadGroup {
-    private static final AtomicInteger requestCounter = new AtomicInteger();  //请求计数器
+
+    private final AtomicInteger requestCounter = new AtomicInteger();  //连接计数器，用于轮询
     private final int ioThreadCount;  // 线程池IO线程的数量
-    private final int businessTheadCout; // 业务线程池大小
-    private static final int DEFAULT_NIO_THREAD_COUNT;
-    private SubReactorThread[] ioThreads;
-    private ExecutorService businessExecutePool; //业务线程池
+    private final SubReactorThread[] ioThreads;
 
-    static {
-        DEFAULT_NIO_THREAD_COUNT = 4;
-    }
+    private final NioServer config;
 
-    public SubReactorThreadGroup() {
-        this(DEFAULT_NIO_THREAD_COUNT);
-    }
-    public SubReactorThreadGroup(int ioThreadCount) {
-        if(ioThreadCount < 1) {
-            ioThreadCount = DEFAULT_NIO_THREAD_COUNT;
-        }
-        //暂时固定为10
-        businessTheadCout = 10;
-        businessExecutePool = Executors.newFixedThreadPool(businessTheadCout, new ThreadFactory() {
-            private AtomicInteger num = new AtomicInteger(0);
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r);
-                t.setName("bussiness-thread-" + num.incrementAndGet());
-                return t;
-            }
-        });
+    public SubReactorThreadGroup(NioServer config) throws IOException {
+        this.config = config;
+        int ioThreadCount = config.getIoThreadCount();
         this.ioThreadCount = ioThreadCount;
         this.ioThreads = new SubReactorThread[ioThreadCount];
-        for(int i = 0; i < ioThreadCount; i ++ ) {
-            this.ioThreads[i] = new SubReactorThread(businessExecutePool);
-            this.ioThreads[i].start(); //构造方法中启动线程，由于nioThreads不会对外暴露，故不会引起线程逃逸
+        for (int i = 0; i < ioThreadCount; i++) {
+            this.ioThreads[i] = new SubReactorThread("sub-reactor-" + (i + 1), config);
+        }
+        for (SubReactorThread ioThread : ioThreads) {
+            //全部创建成功后再启动，避免某个Selector打开失败时留下已启动的线程
+            ioThread.start();
         }
-        System.out.println("Nio 线程数量：" + ioThreadCount);
     }
+
+    /**
+     * 把新连接交给下一个 I/O 线程，超过连接数上限时直接关闭
+     */
     public void dispatch(SocketChannel socketChannel) {
-        if(socketChannel != null ) {
-            next().register(new NioTask(socketChannel, SelectionKey.OP_READ));
+        if (socketChannel == null) {
+            return;
+        }
+        if (!config.tryAcquireConnection()) {
+            try {
+                socketChannel.close();
+            } catch (IOException ignored) {
+                // 已经断开
+            }
+            return;
         }
+        next().register(socketChannel);
     }
+
     protected SubReactorThread next() {
-        return this.ioThreads[ requestCounter.getAndIncrement() %  ioThreadCount ];
+        // 计数器溢出为负数后取模仍要落在 [0, ioThreadCount)
+        return this.ioThreads[(requestCounter.getAndIncrement() & Integer.MAX_VALUE) % ioThreadCount];
+    }
+
+    public int getIoThreadCount() {
+        return ioThreadCount;
     }
 
-    public static void main(String[] args) {
-        // TODO Auto-generated method stub
+    /**
+     * 当前所有 I/O 线程上的连接数
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (SubReactorThread ioThread : ioThreads) {
+            count += ioThread.getConnectionCount();
+        }
+        return count;
+    }
 
+    public void shutdown() throws InterruptedException {
+        for (SubReactorThread ioThread : ioThreads) {
+            ioThread.shutdown();
+        }
+        for (SubReactorThread ioThread : ioThreads) {
+            ioThread.join();
+        }
     }
 }
@@ -0,0 +1,76 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link HttpRequestDecoder} 解出的 HTTP/1.x 请求，请求头名称不区分大小写
+ */
+public class HttpRequest {
+
+    private final String method;
+    private final String uri;
+    private final String version;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    /**
+     * @param headers 键为小写的请求头名称，同名请求头的值以 ", " 连接
+     */
+    HttpRequest(String method, String uri, String version, Map<String, String> headers, byte[] body) {
+        this.method = method;
+        this.uri = uri;
+        this.version = version;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 所有请求头，键为小写
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBodyAsString(Charset charset) {
+        return new String(body, charset);
+    }
+
+    /**
+     * HTTP/1.1 默认长连接，除非 Connection: close；HTTP/1.0 只有 Connection: keep-alive 时才是长连接
+     */
+    public boolean isKeepAlive() {
+        String connection = getHeader("Connection");
+        if ("HTTP/1.1".equals(version)) {
+            return connection == null || !connection.equalsIgnoreCase("close");
+        }
+        return connection != null && connection.equalsIgnoreCase("keep-alive");
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri + " " + version;
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import io.github.dunwu.javacore.nio.reactor.MessageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * HTTP/1.x 请求解码器，支持 keep-alive 和流水线（一个读缓冲区中的多个请求依次解出）。
+ * <p>
+ * 1. 先找请求头结尾的 \r\n\r\n，半包时记住已扫描过的字节数，下次从断点继续；
+ * <p>
+ * 2. 请求头解析完就从缓冲区中移走，保存在解码器中，再按 Content-Length 等待请求体；
+ * <p>
+ * 3. 只支持 Content-Length 请求体，不支持 chunked（示例服务端够用，完整实现见 Netty 的 HttpObjectDecoder）。
+ */
+public class HttpRequestDecoder implements MessageDecoder<HttpRequest> {
+
+    private static final byte[] EMPTY_BODY = new byte[0];
+
+    private final int maxHeaderSize;
+
+    private final int maxContentLength;
+
+    /**
+     * 相对 position 已经扫描过、确认不含请求头结尾的字节数
+     */
+    private int scanned;
+
+    /**
+     * 已解析完请求头、正在等待请求体的请求
+     */
+    private String[] requestLine;
+    private Map<String, String> headers;
+    private int contentLength;
+
+    public HttpRequestDecoder() {
+        this(8 * 1024, 1024 * 1024);
+    }
+
+    /**
+     * @param maxHeaderSize    请求行 + 请求头的最大字节数
+     * @param maxContentLength 请求体的最大字节数
+     */
+    public HttpRequestDecoder(int maxHeaderSize, int maxContentLength) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxContentLength = maxContentLength;
+    }
+
+    @Override
+    public HttpRequest decode(ByteBuffer in) throws IOException {
+        if (requestLine == null && !decodeHead(in)) {
+            return null;
+        }
+        if (in.remaining() < contentLength) {
+            return null;
+        }
+        byte[] body = EMPTY_BODY;
+        if (contentLength > 0) {
+            body = new byte[contentLength];
+            in.get(body);
+        }
+        HttpRequest request = new HttpRequest(requestLine[0], requestLine[1], requestLine[2], headers, body);
+        requestLine = null;
+        headers = null;
+        contentLength = 0;
+        return request;
+    }
+
+    /**
+     * 找到完整的请求头时解析它并移动 position，返回 true
+     */
+    private boolean decodeHead(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int limit = in.limit();
+        // 上次结尾的 3 个字节可能是 \r\n\r\n 的前半部分
+        for (int i = start + Math.max(0, scanned - 3); i + 3 < limit; i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                int headEnd = i + 4;
+                if (headEnd - start > maxHeaderSize) {
+                    throw new IOException("request header exceeds " + maxHeaderSize + " bytes");
+                }
+                ByteBuffer head = in.duplicate();
+                head.limit(i);
+                parseHead(StandardCharsets.ISO_8859_1.decode(head).toString());
+                in.position(headEnd);
+                scanned = 0;
+                return true;
+            }
+        }
+        scanned = limit - start;
+        if (scanned > maxHeaderSize) {
+            throw new IOException("request header exceeds " + maxHeaderSize + " bytes");
+        }
+        return false;
+    }
+
+    private void parseHead(String head) throws IOException {
+        String[] lines = head.split("\r\n");
+        int index = 0;
+        // RFC 7230 3.5：请求行之前的空行应当忽略
+        while (index < lines.length && lines[index].isEmpty()) {
+            index++;
+        }
+        if (index == lines.length) {
+            throw new IOException("missing request line");
+        }
+        String[] parts = lines[index++].split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/1.")) {
+            throw new IOException("malformed request line");
+        }
+        Map<String, String> parsed = new LinkedHashMap<>();
+        for (; index < lines.length; index++) {
+            String line = lines[index];
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IOException("malformed header: " + line);
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            parsed.merge(name, value, (a, b) -> a + ", " + b);
+        }
+        if (parsed.containsKey("transfer-encoding")) {
+            throw new IOException("transfer-encoding is not supported");
+        }
+        int length = 0;
+        String value = parsed.get("content-length");
+        if (value != null) {
+            try {
+                length = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IOException("invalid content-length: " + value);
+            }
+            if (length < 0 || length > maxContentLength) {
+                throw new IOException("invalid content-length: " + value + ", max: " + maxContentLength);
+            }
+        }
+        this.requestLine = parts;
+        this.headers = parsed;
+        this.contentLength = length;
+    }
+}
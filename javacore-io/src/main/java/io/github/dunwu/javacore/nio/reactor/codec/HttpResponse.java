@@ -0,0 +1,79 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 由 {@link HttpResponseEncoder} 编码的 HTTP/1.1 响应，Content-Length 和 Connection 响应头由编码器生成
+ */
+public class HttpResponse {
+
+    private int status = 200;
+    private String reason = "OK";
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private ByteBuffer body = ByteBuffer.allocate(0);
+    private boolean keepAlive = true;
+
+    public static HttpResponse ok(String text) {
+        return new HttpResponse()
+                .setHeader("Content-Type", "text/plain; charset=utf-8")
+                .setBody(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HttpResponse status(int status, String reason) {
+        return new HttpResponse().setStatus(status, reason);
+    }
+
+    public HttpResponse setStatus(int status, String reason) {
+        this.status = status;
+        this.reason = reason;
+        return this;
+    }
+
+    public HttpResponse setHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public HttpResponse setBody(byte[] body) {
+        return setBody(ByteBuffer.wrap(body));
+    }
+
+    /**
+     * 响应体原样引用、不拷贝，编码时使用它的 duplicate()，同一个缓冲区可以被多个响应共用
+     */
+    public HttpResponse setBody(ByteBuffer body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * 为 false 时响应带 Connection: close，写完后关闭连接；{@link HttpServerHandler} 会根据请求设置它
+     */
+    public HttpResponse setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+        return this;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public ByteBuffer getBody() {
+        return body;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import io.github.dunwu.javacore.nio.reactor.MessageEncoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP/1.1 响应编码器：状态行和响应头编码为一个缓冲区，响应体原样引用，由一次 gathering write 写出
+ */
+public class HttpResponseEncoder implements MessageEncoder<HttpResponse> {
+
+    @Override
+    public void encode(HttpResponse response, List<ByteBuffer> out) {
+        ByteBuffer body = response.getBody().duplicate();
+        StringBuilder head = new StringBuilder(128);
+        head.append("HTTP/1.1 ").append(response.getStatus()).append(' ').append(response.getReason()).append("\r\n");
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        head.append("Content-Length: ").append(body.remaining()).append("\r\n");
+        if (!response.isKeepAlive()) {
+            head.append("Connection: close\r\n");
+        }
+        head.append("\r\n");
+        out.add(ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)));
+        if (body.hasRemaining()) {
+            out.add(body);
+        }
+    }
+}
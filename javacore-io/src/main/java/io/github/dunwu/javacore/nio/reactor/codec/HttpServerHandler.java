@@ -0,0 +1,31 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import io.github.dunwu.javacore.nio.reactor.Connection;
+import io.github.dunwu.javacore.nio.reactor.Handler;
+
+import java.util.function.Function;
+
+/**
+ * 把 "请求 → 响应" 的函数适配为 {@link Handler}，并处理 keep-alive：
+ * 请求不是长连接时，响应带 Connection: close，写完后关闭连接。需要与 {@link HttpResponseEncoder} 配合使用
+ */
+public class HttpServerHandler implements Handler<HttpRequest> {
+
+    private final Function<HttpRequest, HttpResponse> service;
+
+    public HttpServerHandler(Function<HttpRequest, HttpResponse> service) {
+        this.service = service;
+    }
+
+    @Override
+    public void onMessage(Connection connection, HttpRequest request) {
+        HttpResponse response = service.apply(request);
+        if (!request.isKeepAlive()) {
+            response.setKeepAlive(false);
+        }
+        connection.send(response);
+        if (!response.isKeepAlive()) {
+            connection.closeAfterFlush();
+        }
+    }
+}
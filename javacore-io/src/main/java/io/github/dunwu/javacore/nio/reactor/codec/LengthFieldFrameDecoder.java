@@ -0,0 +1,110 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import io.github.dunwu.javacore.nio.reactor.MessageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 长度字段帧解码器，参数含义与 Netty 的 LengthFieldBasedFrameDecoder 相同：
+ * <pre>
+ * 帧总长度 = lengthFieldOffset + lengthFieldLength + 长度字段的值 + lengthAdjustment
+ * </pre>
+ * 默认（{@link #LengthFieldFrameDecoder(int)}）是 4 字节大端长度 + 消息体，解码后去掉长度字段。
+ * <p>
+ * 返回的是累积缓冲区的切片（不拷贝），只在本次 onMessage 期间有效，见 {@link MessageDecoder#decode}
+ */
+public class LengthFieldFrameDecoder implements MessageDecoder<ByteBuffer> {
+
+    public static final int LENGTH_FIELD_SIZE = 4;
+
+    private final int maxFrameLength;
+    private final int lengthFieldOffset;
+    private final int lengthFieldLength;
+    private final int lengthAdjustment;
+    private final int initialBytesToStrip;
+    private final int lengthFieldEnd;
+
+    /**
+     * @param maxFrameLength 消息体的最大长度，超过时关闭连接，防止恶意的长度字段耗尽内存
+     */
+    public LengthFieldFrameDecoder(int maxFrameLength) {
+        this((int) Math.min((long) maxFrameLength + LENGTH_FIELD_SIZE, Integer.MAX_VALUE),
+                0, LENGTH_FIELD_SIZE, 0, LENGTH_FIELD_SIZE);
+    }
+
+    /**
+     * @param maxFrameLength      帧总长度（剥离前）的上限
+     * @param lengthFieldOffset   长度字段在帧中的偏移
+     * @param lengthFieldLength   长度字段的字节数：1、2、4 或 8，大端无符号
+     * @param lengthAdjustment    长度字段的值需要加上的修正量，例如长度字段包含了头部长度时为负数
+     * @param initialBytesToStrip 解码后从帧头部去掉的字节数
+     */
+    public LengthFieldFrameDecoder(int maxFrameLength, int lengthFieldOffset, int lengthFieldLength,
+                                   int lengthAdjustment, int initialBytesToStrip) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength must be positive");
+        }
+        if (lengthFieldLength != 1 && lengthFieldLength != 2 && lengthFieldLength != 4 && lengthFieldLength != 8) {
+            throw new IllegalArgumentException("lengthFieldLength must be 1, 2, 4 or 8: " + lengthFieldLength);
+        }
+        if (lengthFieldOffset < 0 || initialBytesToStrip < 0) {
+            throw new IllegalArgumentException("lengthFieldOffset and initialBytesToStrip must not be negative");
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.lengthFieldOffset = lengthFieldOffset;
+        this.lengthFieldLength = lengthFieldLength;
+        this.lengthAdjustment = lengthAdjustment;
+        this.initialBytesToStrip = initialBytesToStrip;
+        this.lengthFieldEnd = lengthFieldOffset + lengthFieldLength;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer in) throws IOException {
+        if (in.remaining() < lengthFieldEnd) {
+            return null;
+        }
+        int start = in.position();
+        long frameLength = readLength(in, start + lengthFieldOffset) + lengthAdjustment + lengthFieldEnd;
+        if (frameLength < lengthFieldEnd || frameLength > maxFrameLength) {
+            throw new IOException("invalid frame length: " + frameLength + ", max: " + maxFrameLength);
+        }
+        if (frameLength < initialBytesToStrip) {
+            throw new IOException("frame length " + frameLength + " less than initialBytesToStrip "
+                    + initialBytesToStrip);
+        }
+        if (in.remaining() < frameLength) {
+            return null;
+        }
+        int end = start + (int) frameLength;
+        ByteBuffer frame = in.duplicate();
+        frame.position(start + initialBytesToStrip).limit(end);
+        in.position(end);
+        return frame.slice();
+    }
+
+    private long readLength(ByteBuffer in, int index) {
+        switch (lengthFieldLength) {
+            case 1:
+                return in.get(index) & 0xFFL;
+            case 2:
+                return in.getShort(index) & 0xFFFFL;
+            case 4:
+                return in.getInt(index) & 0xFFFFFFFFL;
+            default:
+                long length = in.getLong(index);
+                // 负数按超长处理
+                return length < 0 ? Long.MAX_VALUE / 2 : length;
+        }
+    }
+
+    /**
+     * 给消息体加上 4 字节长度前缀，返回读模式的缓冲区；不想拷贝消息体时用 {@link LengthFieldPrepender}
+     */
+    public static ByteBuffer frame(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_FIELD_SIZE + body.length);
+        buffer.putInt(body.length).put(body);
+        buffer.flip();
+        return buffer;
+    }
+}
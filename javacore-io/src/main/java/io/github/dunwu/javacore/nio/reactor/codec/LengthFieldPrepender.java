@@ -0,0 +1,25 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import io.github.dunwu.javacore.nio.reactor.MessageEncoder;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 与 {@link LengthFieldFrameDecoder#LengthFieldFrameDecoder(int)} 配对的编码器：写出 4 字节大端长度 + 消息体。
+ * 长度头单独一个缓冲区，消息体原样引用，两者由一次 gathering write 写出，消息体不拷贝。
+ * <p>
+ * 消息体的 position 会在写出时被移动，多个连接共用同一个响应时每次传入 duplicate()
+ */
+public class LengthFieldPrepender implements MessageEncoder<ByteBuffer> {
+
+    @Override
+    public void encode(ByteBuffer message, List<ByteBuffer> out) {
+        ByteBuffer header = ByteBuffer.allocate(LengthFieldFrameDecoder.LENGTH_FIELD_SIZE);
+        header.putInt(0, message.remaining());
+        out.add(header);
+        if (message.hasRemaining()) {
+            out.add(message);
+        }
+    }
+}
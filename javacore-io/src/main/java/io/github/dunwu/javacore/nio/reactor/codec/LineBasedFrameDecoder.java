@@ -0,0 +1,67 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import io.github.dunwu.javacore.nio.reactor.MessageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按行切分的文本协议（例如 telnet、Redis inline 命令），以 \n 或 \r\n 结尾，解码结果不含换行符。
+ * <p>
+ * 半包时记住已扫描过的字节数，下次只扫描新到的数据，长行分多次到达时不会重复扫描（O(n) 而不是 O(n²)）
+ */
+public class LineBasedFrameDecoder implements MessageDecoder<String> {
+
+    private final int maxLength;
+
+    private final Charset charset;
+
+    /**
+     * 相对 position 已经扫描过、确认不含 \n 的字节数。累积缓冲区 compact 后 position 会变，所以记相对值
+     */
+    private int scanned;
+
+    public LineBasedFrameDecoder(int maxLength) {
+        this(maxLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param maxLength 一行的最大字节数（不含换行符），超过时关闭连接
+     */
+    public LineBasedFrameDecoder(int maxLength, Charset charset) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("maxLength must be positive");
+        }
+        this.maxLength = maxLength;
+        this.charset = charset;
+    }
+
+    @Override
+    public String decode(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int limit = in.limit();
+        for (int i = start + scanned; i < limit; i++) {
+            if (in.get(i) == '\n') {
+                int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                checkLength(end - start);
+                scanned = 0;
+                ByteBuffer line = in.duplicate();
+                line.limit(end);
+                in.position(i + 1);
+                return charset.decode(line).toString();
+            }
+        }
+        scanned = limit - start;
+        // 还没遇到换行符，多留 1 个字节给可能的 \r
+        checkLength(scanned - 1);
+        return null;
+    }
+
+    private void checkLength(int length) throws IOException {
+        if (length > maxLength) {
+            throw new IOException("line length exceeds " + maxLength);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.dunwu.javacore.nio.reactor.codec;
+
+import io.github.dunwu.javacore.nio.reactor.MessageEncoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 与 {@link LineBasedFrameDecoder} 配对的编码器：字符串 + 换行符
+ */
+public class StringLineEncoder implements MessageEncoder<CharSequence> {
+
+    private final Charset charset;
+
+    private final String delimiter;
+
+    public StringLineEncoder() {
+        this(StandardCharsets.UTF_8, "\r\n");
+    }
+
+    public StringLineEncoder(Charset charset, String delimiter) {
+        this.charset = charset;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public void encode(CharSequence message, List<ByteBuffer> out) {
+        out.add(ByteBuffer.wrap((message + delimiter).getBytes(charset)));
+    }
+}
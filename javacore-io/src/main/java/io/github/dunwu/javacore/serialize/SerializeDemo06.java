@@ -0,0 +1,55 @@
+package io.github.dunwu.javacore.serialize;
+
+import io.github.dunwu.javacore.serialize.binary.BinarySerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+
+/**
+ * 序列化示例：用 {@link BinarySerializer} 代替 ObjectOutputStream。
+ * <p>
+ * 类在读写两端按同样的顺序注册，消息中只有类 ID 和字段值；transient 字段不写，
+ * 有 readResolve 的单例读出来仍是同一个实例（对比 {@link SerializeDemo05}）
+ *
+ * @see SerializeDemo05
+ */
+public class SerializeDemo06 {
+
+    public static void main(String[] args) throws IOException {
+        BinarySerializer serializer = new BinarySerializer()
+                .register(Employee.class)
+                .register(SerializeDemo05.Person.class)
+                .register(SerializeDemo05.Sex.class);
+
+        Employee employee = new Employee();
+        employee.name = "Reyan Ali";
+        employee.address = "Phokka Kuan, Ambehta Peer";
+        employee.SSN = 11122333;
+        employee.number = 101;
+        byte[] bytes = serializer.serialize(employee);
+        Employee copy = serializer.deserialize(bytes, Employee.class);
+        System.out.println("BinarySerializer: " + bytes.length + " bytes, ObjectOutputStream: " + jdkSize(employee)
+                + " bytes");
+        System.out.println("name: " + copy.name + ", address: " + copy.address + ", SSN: " + copy.SSN + ", number: "
+                + copy.number);
+
+        Object person = serializer.deserialize(serializer.serialize(SerializeDemo05.Person.getInstance()));
+        System.out.println(person);
+        System.out.println(person == SerializeDemo05.Person.getInstance());
+    }
+
+    private static int jdkSize(Object obj) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(obj);
+        }
+        return bytes.size();
+    }
+
+}
+// Output:
+// BinarySerializer: 44 bytes, ObjectOutputStream: 171 bytes
+// name: Reyan Ali, address: Phokka Kuan, Ambehta Peer, SSN: 0, number: 101
+// name: Tom, age: 31, sex: MALE
+// true
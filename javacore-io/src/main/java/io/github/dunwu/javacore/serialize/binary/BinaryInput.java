@@ -0,0 +1,295 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 反序列化的输入，格式见 {@link BinaryOutput}。
+ * <p>
+ * 所有长度在分配内存之前都和剩余字节数比较，损坏或恶意构造的数据不会导致分配巨大的数组
+ */
+public final class BinaryInput {
+
+    private final BinarySerializer serializer;
+
+    byte[] buffer;
+
+    int position;
+
+    int limit;
+
+    /**
+     * 本条消息中已经校验过指纹的类，见 {@link BinaryOutput}
+     */
+    private int[] stamps = new int[64];
+
+    private int epoch;
+
+    private ArrayList<Object> references;
+
+    /**
+     * 正在读取内容的对象的引用序号，栈顶是 {@link #reference} 要填写的位置
+     */
+    private int[] pending = new int[16];
+
+    private int pendingSize;
+
+    private int depth;
+
+    /**
+     * 正在被某次反序列化使用，见 {@link BinarySerializer}
+     */
+    boolean busy;
+
+    BinaryInput(BinarySerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    void reset(byte[] data, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", size " + data.length);
+        }
+        buffer = data;
+        position = offset;
+        limit = offset + length;
+        depth = 0;
+        pendingSize = 0;
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+        if (!serializer.isReferences()) {
+            references = null;
+        } else if (references == null || references.size() > 1024) {
+            references = new ArrayList<>();
+        } else {
+            references.clear();
+        }
+    }
+
+    /**
+     * 释放对输入数组和读出对象的引用
+     */
+    void clear() {
+        buffer = null;
+        if (references != null) {
+            references.clear();
+        }
+    }
+
+    /**
+     * 读一个对象槽位，格式见 {@link BinaryOutput#writeObject}
+     */
+    public Object readObject() throws IOException {
+        int id = readVarInt();
+        if (id == BinarySerializer.NULL) {
+            return null;
+        }
+        if (id == BinarySerializer.REFERENCE) {
+            return readReference();
+        }
+        Registration registration = serializer.registrationOf(id);
+        if (registration.fingerprinted && firstInMessage(id)) {
+            int fingerprint = readFixedInt();
+            if (fingerprint != registration.fingerprint) {
+                throw new InvalidClassException(registration.type.getName(),
+                        "local class incompatible: stream fingerprint " + Integer.toHexString(fingerprint)
+                                + ", local fingerprint " + Integer.toHexString(registration.fingerprint));
+            }
+        }
+        if (++depth > BinaryOutput.MAX_DEPTH && references == null) {
+            throw new StreamCorruptedException("object graph deeper than " + BinaryOutput.MAX_DEPTH);
+        }
+        try {
+            if (!registration.tracked || references == null) {
+                return registration.codec.read(this);
+            }
+            int handle = references.size();
+            references.add(null);
+            if (pendingSize == pending.length) {
+                pending = Arrays.copyOf(pending, pendingSize * 2);
+            }
+            pending[pendingSize++] = handle;
+            try {
+                Object value = registration.codec.read(this);
+                // readResolve 可能换成了另一个对象，之后的引用都指向替换后的对象
+                references.set(handle, value);
+                return value;
+            } finally {
+                pendingSize--;
+            }
+        } finally {
+            depth--;
+        }
+    }
+
+    private Object readReference() throws IOException {
+        int handle = readVarInt();
+        if (references == null || handle < 0 || handle >= references.size()) {
+            throw new StreamCorruptedException("invalid back reference " + handle);
+        }
+        Object value = references.get(handle);
+        if (value == null) {
+            throw new InvalidObjectException("back reference " + handle
+                    + " to an object whose codec does not support cycles");
+        }
+        return value;
+    }
+
+    /**
+     * 登记正在读取的对象，codec 在创建出实例之后、读取内容之前调用，见 {@link Codec}。
+     * 未开启引用跟踪时什么也不做
+     */
+    public void reference(Object value) {
+        if (references != null && pendingSize > 0) {
+            references.set(pending[pendingSize - 1], value);
+        }
+    }
+
+    private boolean firstInMessage(int id) {
+        if (id >= stamps.length) {
+            stamps = Arrays.copyOf(stamps, Math.max(stamps.length * 2, id + 1));
+        }
+        if (stamps[id] == epoch) {
+            return false;
+        }
+        stamps[id] = epoch;
+        return true;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public byte readByte() throws IOException {
+        if (position == limit) {
+            throw new EOFException();
+        }
+        return buffer[position++];
+    }
+
+    public short readShort() throws IOException {
+        return (short) readInt();
+    }
+
+    public char readChar() throws IOException {
+        return (char) readVarInt();
+    }
+
+    public int readInt() throws IOException {
+        int n = readVarInt();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    public int readVarInt() throws IOException {
+        byte[] b = buffer;
+        int p = position;
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (p == limit) {
+                throw new EOFException();
+            }
+            byte x = b[p++];
+            result |= (x & 0x7F) << shift;
+            if (x >= 0) {
+                position = p;
+                return result;
+            }
+        }
+        throw new StreamCorruptedException("malformed varint");
+    }
+
+    public long readLong() throws IOException {
+        long n = readVarLong();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    public long readVarLong() throws IOException {
+        byte[] b = buffer;
+        int p = position;
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (p == limit) {
+                throw new EOFException();
+            }
+            byte x = b[p++];
+            result |= (long) (x & 0x7F) << shift;
+            if (x >= 0) {
+                position = p;
+                return result;
+            }
+        }
+        throw new StreamCorruptedException("malformed varint");
+    }
+
+    public int readFixedInt() throws IOException {
+        require(4);
+        byte[] b = buffer;
+        int p = position;
+        position = p + 4;
+        return (b[p] & 0xFF) << 24 | (b[p + 1] & 0xFF) << 16 | (b[p + 2] & 0xFF) << 8 | b[p + 3] & 0xFF;
+    }
+
+    public long readFixedLong() throws IOException {
+        return (long) readFixedInt() << 32 | readFixedInt() & 0xFFFFFFFFL;
+    }
+
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readFixedLong());
+    }
+
+    public String readString() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            if (length == -1) {
+                return null;
+            }
+            throw new StreamCorruptedException("invalid string length " + length);
+        }
+        require(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public void readBytes(byte[] bytes, int offset, int length) throws IOException {
+        require(length);
+        System.arraycopy(buffer, position, bytes, offset, length);
+        position += length;
+    }
+
+    /**
+     * 读一个元素个数，每个元素至少占 minElementSize 字节，个数超过剩余字节数能容纳的上限时说明数据已损坏
+     */
+    public int readLength(int minElementSize) throws IOException {
+        int length = readVarInt();
+        if (length < 0 || (long) length * minElementSize > limit - position) {
+            throw new StreamCorruptedException("invalid length " + length + ", " + (limit - position)
+                    + " bytes remaining");
+        }
+        return length;
+    }
+
+    /**
+     * 剩余未读的字节数
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+    void require(int bytes) throws IOException {
+        if (limit - position < bytes) {
+            throw new EOFException("need " + bytes + " bytes, " + (limit - position) + " remaining");
+        }
+    }
+}
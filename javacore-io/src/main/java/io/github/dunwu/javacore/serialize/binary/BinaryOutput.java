@@ -0,0 +1,324 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * 序列化的输出缓冲区，由 {@link BinarySerializer} 创建，每个线程复用一个。
+ * <p>
+ * 整数使用 varint 编码（每字节 7 位，最高位表示后面还有字节），有符号数先做 zigzag 变换
+ * （-1 → 1，1 → 2），绝对值小的数只占 1 字节；float/double 是定长的大端序；
+ * 字符串是 UTF-8 字节数 + 1（0 表示 null）加 UTF-8 字节。
+ * <p>
+ * 对象槽位的格式见 {@link #writeObject}
+ */
+public final class BinaryOutput {
+
+    /**
+     * 未开启引用跟踪时对象嵌套深度的上限，超过时通常是循环引用
+     */
+    static final int MAX_DEPTH = 1000;
+
+    private final BinarySerializer serializer;
+
+    byte[] buffer;
+
+    int position;
+
+    /**
+     * 本条消息中已经写过指纹的类：stamps[id] == epoch，换消息时 epoch 加一，不用清空数组
+     */
+    private int[] stamps = new int[64];
+
+    private int epoch;
+
+    private IdentityHashMap<Object, Integer> references;
+
+    private int depth;
+
+    /**
+     * 正在被某次序列化使用，见 {@link BinarySerializer}
+     */
+    boolean busy;
+
+    BinaryOutput(BinarySerializer serializer, int capacity) {
+        this.serializer = serializer;
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * 开始一条新消息
+     */
+    void reset() {
+        position = 0;
+        depth = 0;
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+        if (!serializer.isReferences()) {
+            references = null;
+        } else if (references == null || references.size() > 1024) {
+            // clear 的代价和容量成正比，写过大对象图之后换一个新的
+            references = new IdentityHashMap<>();
+        } else {
+            references.clear();
+        }
+    }
+
+    /**
+     * 释放对已写出对象的引用
+     */
+    void clear() {
+        if (references != null) {
+            references.clear();
+        }
+    }
+
+    /**
+     * 写一个对象槽位：varint 的类型标记，后面是该类型的内容。
+     * <ul>
+     * <li>0：null</li>
+     * <li>1：引用同一条消息中已经写过的对象，后面是它的序号（只在开启引用跟踪时出现）</li>
+     * <li>2：未注册的类，后面是 JDK 序列化的字节</li>
+     * <li>其他：注册的类 ID，类在本条消息中第一次出现时后面跟 4 字节的结构指纹</li>
+     * </ul>
+     */
+    public void writeObject(Object value) throws IOException {
+        if (value == null) {
+            writeVarInt(BinarySerializer.NULL);
+            return;
+        }
+        Registration registration = serializer.registrationOf(value.getClass());
+        if (registration.tracked && references != null) {
+            Integer handle = references.putIfAbsent(value, references.size());
+            if (handle != null) {
+                writeVarInt(BinarySerializer.REFERENCE);
+                writeVarInt(handle);
+                return;
+            }
+        }
+        writeVarInt(registration.id);
+        if (registration.fingerprinted && firstInMessage(registration.id)) {
+            writeFixedInt(registration.fingerprint);
+        }
+        if (++depth > MAX_DEPTH && references == null) {
+            throw new StreamCorruptedException("object graph deeper than " + MAX_DEPTH
+                    + ", enable setReferences(true) if it contains cycles");
+        }
+        try {
+            registration.codec.write(this, value);
+        } finally {
+            depth--;
+        }
+    }
+
+    private boolean firstInMessage(int id) {
+        if (id >= stamps.length) {
+            stamps = Arrays.copyOf(stamps, Math.max(stamps.length * 2, id + 1));
+        }
+        if (stamps[id] == epoch) {
+            return false;
+        }
+        stamps[id] = epoch;
+        return true;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeShort(short value) {
+        writeInt(value);
+    }
+
+    public void writeChar(char value) {
+        writeVarInt(value);
+    }
+
+    /**
+     * zigzag + varint
+     */
+    public void writeInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * 无符号 varint，负数占 5 字节，负数多的字段用 {@link #writeInt}
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        byte[] b = buffer;
+        int p = position;
+        while ((value & ~0x7F) != 0) {
+            b[p++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        b[p++] = (byte) value;
+        position = p;
+    }
+
+    /**
+     * zigzag + varint
+     */
+    public void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        byte[] b = buffer;
+        int p = position;
+        while ((value & ~0x7FL) != 0) {
+            b[p++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        b[p++] = (byte) value;
+        position = p;
+    }
+
+    public void writeFixedInt(int value) {
+        ensureCapacity(4);
+        byte[] b = buffer;
+        int p = position;
+        b[p] = (byte) (value >>> 24);
+        b[p + 1] = (byte) (value >>> 16);
+        b[p + 2] = (byte) (value >>> 8);
+        b[p + 3] = (byte) value;
+        position = p + 4;
+    }
+
+    public void writeFixedLong(long value) {
+        writeFixedInt((int) (value >>> 32));
+        writeFixedInt((int) value);
+    }
+
+    public void writeFloat(float value) {
+        writeFixedInt(Float.floatToIntBits(value));
+    }
+
+    public void writeDouble(double value) {
+        writeFixedLong(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * 直接编码到缓冲区，不经过 String.getBytes 的临时数组。孤立的代理字符写为 '?'，和 String.getBytes 相同
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        int length = value.length();
+        int ascii = 0;
+        while (ascii < length && value.charAt(ascii) < 0x80) {
+            ascii++;
+        }
+        int utf8Length = ascii == length ? length : utf8Length(value, ascii);
+        writeVarInt(utf8Length + 1);
+        ensureCapacity(utf8Length);
+        byte[] b = buffer;
+        int p = position;
+        if (ascii == length) {
+            for (int i = 0; i < length; i++) {
+                b[p++] = (byte) value.charAt(i);
+            }
+            position = p;
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                b[p++] = (byte) c;
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | c >> 6);
+                b[p++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                int cp = Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(value.charAt(i + 1))
+                        ? Character.toCodePoint(c, value.charAt(++i)) : -1;
+                if (cp < 0) {
+                    b[p++] = '?';
+                } else {
+                    b[p++] = (byte) (0xF0 | cp >> 18);
+                    b[p++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    b[p++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    b[p++] = (byte) (0x80 | cp & 0x3F);
+                }
+            } else {
+                b[p++] = (byte) (0xE0 | c >> 12);
+                b[p++] = (byte) (0x80 | c >> 6 & 0x3F);
+                b[p++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        position = p;
+    }
+
+    /**
+     * 从第一个非 ASCII 字符 from 开始计算 UTF-8 字节数
+     */
+    private static int utf8Length(String value, int from) {
+        int length = value.length();
+        int n = from;
+        for (int i = from; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                n++;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                n += 4;
+                i++;
+            } else {
+                // 孤立的代理字符写为 1 字节的 '?'
+                n += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return n;
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.length - position < bytes) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public int size() {
+        return position;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, position);
+    }
+
+    /**
+     * 缓存回线程之前，把大消息撑大的缓冲区缩回去
+     */
+    void trim(int maxCapacity) {
+        if (buffer.length > maxCapacity) {
+            buffer = new byte[maxCapacity];
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于类 ID 注册表的二进制序列化，用于替代 ObjectOutputStream 在 RPC、缓存中传输 POJO。
+ * <p>
+ * JDK 序列化的每条消息都带完整的类描述（类名、serialVersionUID、每个字段的名称和类型），
+ * 一个只有几个字段的对象也要一两百字节，读写时还要逐个字段反射。这里的做法（和 Kryo、protobuf 类似）：
+ * <p>
+ * 1. 读写两端按同样的顺序（或同样的 ID）注册类，消息中只写 varint 的类 ID，通常 1 字节；
+ * <p>
+ * 2. 注册时为每个类生成编解码器（{@link ObjectCodec}），字段直接用 MethodHandle 读写，整数用 varint；
+ * transient、serialVersionUID、readResolve 的语义和 JDK 序列化相同，每条消息中每个类第一次出现时
+ * 带 4 字节的结构指纹，两端的类不兼容时抛出 InvalidClassException；
+ * <p>
+ * 3. 有 writeObject/readObject、Externalizable 等自定义逻辑的类，以及没有注册的 Serializable 类，
+ * 退回 JDK 序列化（{@link JdkCodec}），行为和 ObjectOutputStream 完全一致，只是没有加速；
+ * 不想接收任意类的 JDK 序列化数据时用 {@link #setFallback} 关闭。
+ * <p>
+ * 使用示例如下：
+ * <pre>
+ * BinarySerializer serializer = new BinarySerializer()
+ *         .register(Employee.class)
+ *         .register(Sex.class);
+ * byte[] bytes = serializer.serialize(employee);
+ * Employee copy = serializer.deserialize(bytes, Employee.class);
+ * </pre>
+ * 注册应在使用前完成，之后可以在多个线程中共用一个实例，每个线程复用自己的缓冲区。
+ */
+public class BinarySerializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinarySerializer.class);
+
+    static final int NULL = 0;
+
+    static final int REFERENCE = 1;
+
+    static final int FALLBACK = 2;
+
+    /**
+     * 之前的 ID 是预先注册的常用类型（见 {@link BuiltinCodecs}），{@link #register(Class)} 从这里开始分配
+     */
+    public static final int FIRST_USER_ID = 32;
+
+    private static final int MAX_ID = 65535;
+
+    /**
+     * 缓存在线程中的缓冲区的上限，更大的消息用完之后缩回这个大小
+     */
+    private static final int MAX_CACHED_BUFFER = 64 * 1024;
+
+    private final ConcurrentHashMap<Class<?>, Registration> byClass = new ConcurrentHashMap<>();
+
+    private volatile Registration[] byId = new Registration[FIRST_USER_ID];
+
+    private final Registration fallbackRegistration = new Registration(FALLBACK, Object.class, JdkCodec.INSTANCE,
+            true);
+
+    private int nextId = FIRST_USER_ID;
+
+    private volatile boolean references;
+
+    private volatile boolean fallback = true;
+
+    private final ThreadLocal<BinaryOutput> outputs = ThreadLocal.withInitial(() -> new BinaryOutput(this, 256));
+
+    private final ThreadLocal<BinaryInput> inputs = ThreadLocal.withInitial(() -> new BinaryInput(this));
+
+    public BinarySerializer() {
+        BuiltinCodecs.registerAll(this);
+    }
+
+    /**
+     * 是否跟踪对象引用，默认关闭。
+     * <p>
+     * 关闭时同一个对象被引用几次就写几次，读出来是几个不同的对象，对象图中有环时抛出异常；
+     * 开启后和 JDK 序列化一样保持共享和循环引用，代价是每个对象一次 IdentityHashMap 查找。
+     * 读写两端的设置必须相同
+     */
+    public BinarySerializer setReferences(boolean references) {
+        this.references = references;
+        return this;
+    }
+
+    public boolean isReferences() {
+        return references;
+    }
+
+    /**
+     * 是否允许未注册的 Serializable 类退回 JDK 序列化，默认允许。
+     * <p>
+     * 关闭后写未注册的类抛出 NotSerializableException，读到 JDK 序列化的数据抛出 InvalidClassException，
+     * 反序列化不可信的数据时应当关闭，避免反序列化任意类带来的安全问题
+     */
+    public BinarySerializer setFallback(boolean fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    /**
+     * 用下一个可用的 ID 注册，读写两端必须按同样的顺序注册
+     */
+    public synchronized BinarySerializer register(Class<?> type) {
+        return register(type, nextId);
+    }
+
+    /**
+     * 注册一个类，编解码器按类型选择：
+     * <ul>
+     * <li>枚举：按序号编码（{@link EnumCodec}）</li>
+     * <li>只有字段的 Serializable 类：生成按字段编码的编解码器（{@link ObjectCodec}）</li>
+     * <li>有自定义序列化逻辑或字段无法访问的类：仍用 JDK 序列化，只是省去了未注册时的类型标记</li>
+     * </ul>
+     *
+     * @throws IllegalArgumentException 类没有实现 Serializable（需要用 {@link #register(Class, int, Codec)}
+     *                                  提供编解码器），或者 ID、类已经注册过
+     */
+    public synchronized BinarySerializer register(Class<?> type, int id) {
+        checkId(type, id);
+        if (type.isEnum()) {
+            return add(new Registration(id, type, new EnumCodec(type), false));
+        }
+        if (!Serializable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(type.getName() + " is not Serializable, register it with a Codec");
+        }
+        Codec<?> codec = JdkCodec.INSTANCE;
+        if (ObjectCodec.supports(type)) {
+            try {
+                codec = ObjectCodec.create(type);
+            } catch (RuntimeException e) {
+                // 例如其他模块中没有开放反射的类，交给 ObjectInputStream 处理
+                logger.warn("cannot generate codec for {}, fall back to JDK serialization: {}", type.getName(),
+                        e.toString());
+            }
+        }
+        return add(new Registration(id, type, codec, true));
+    }
+
+    /**
+     * 用自定义的编解码器注册一个类，类不需要实现 Serializable
+     */
+    public synchronized <T> BinarySerializer register(Class<T> type, int id, Codec<? super T> codec) {
+        checkId(type, id);
+        return add(new Registration(id, type, codec, true));
+    }
+
+    void registerBuiltin(int id, Class<?> type, boolean tracked, Codec<?> codec) {
+        add(new Registration(id, type, codec, tracked));
+    }
+
+    private void checkId(Class<?> type, int id) {
+        if (id < FIRST_USER_ID || id > MAX_ID) {
+            throw new IllegalArgumentException("class id must be in [" + FIRST_USER_ID + ", " + MAX_ID + "]: " + id);
+        }
+        if (id < byId.length && byId[id] != null) {
+            throw new IllegalArgumentException("class id " + id + " already registered for "
+                    + byId[id].type.getName());
+        }
+        Registration existing = byClass.get(type);
+        if (existing != null && existing != fallbackRegistration) {
+            throw new IllegalArgumentException(type.getName() + " already registered with id " + existing.id);
+        }
+    }
+
+    private synchronized BinarySerializer add(Registration registration) {
+        Registration[] table = byId;
+        if (registration.id >= table.length) {
+            table = Arrays.copyOf(table, Math.max(table.length * 2, registration.id + 1));
+        } else {
+            table = table.clone();
+        }
+        table[registration.id] = registration;
+        // 之前退回 JDK 序列化的缓存（包括带方法体的枚举常量的子类）可能因为这次注册而改变
+        byClass.values().removeIf(r -> r == fallbackRegistration);
+        byClass.put(registration.type, registration);
+        byId = table;
+        nextId = Math.max(nextId, registration.id + 1);
+        return this;
+    }
+
+    Registration registrationOf(Class<?> type) throws NotSerializableException {
+        Registration registration = byClass.get(type);
+        if (registration == null) {
+            registration = resolve(type);
+        }
+        if (registration == fallbackRegistration && !fallback) {
+            throw new NotSerializableException(type.getName() + " is not registered and JDK fallback is disabled");
+        }
+        return registration;
+    }
+
+    private Registration resolve(Class<?> type) throws NotSerializableException {
+        Registration registration = null;
+        if (Enum.class.isAssignableFrom(type) && !type.isEnum()) {
+            // 带方法体的枚举常量是枚举类的匿名子类
+            registration = byClass.get(type.getSuperclass());
+        }
+        if (registration == null) {
+            if (!Serializable.class.isAssignableFrom(type)) {
+                throw new NotSerializableException(type.getName());
+            }
+            registration = fallbackRegistration;
+        }
+        byClass.putIfAbsent(type, registration);
+        return registration;
+    }
+
+    Registration registrationOf(int id) throws InvalidClassException {
+        if (id == FALLBACK) {
+            if (!fallback) {
+                throw new InvalidClassException("JDK serialized data is not accepted, fallback is disabled");
+            }
+            return fallbackRegistration;
+        }
+        Registration[] table = byId;
+        if (id < 0 || id >= table.length || table[id] == null) {
+            throw new InvalidClassException("unknown class id " + id);
+        }
+        return table[id];
+    }
+
+    public byte[] serialize(Object value) throws IOException {
+        BinaryOutput out = acquireOutput();
+        try {
+            out.writeObject(value);
+            return out.toByteArray();
+        } finally {
+            release(out);
+        }
+    }
+
+    public void serialize(Object value, OutputStream stream) throws IOException {
+        BinaryOutput out = acquireOutput();
+        try {
+            out.writeObject(value);
+            out.writeTo(stream);
+        } finally {
+            release(out);
+        }
+    }
+
+    public Object deserialize(byte[] data) throws IOException {
+        return deserialize(data, 0, data.length);
+    }
+
+    public <T> T deserialize(byte[] data, Class<T> type) throws IOException {
+        Object value = deserialize(data, 0, data.length);
+        if (value != null && !type.isInstance(value)) {
+            throw new InvalidClassException(value.getClass().getName(), "expected " + type.getName());
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * 读出一个对象，数据必须恰好是一条完整的消息
+     */
+    public Object deserialize(byte[] data, int offset, int length) throws IOException {
+        BinaryInput in = inputs.get();
+        if (in.busy) {
+            // 编解码器中递归调用了 deserialize
+            in = new BinaryInput(this);
+        }
+        in.busy = true;
+        in.reset(data, offset, length);
+        try {
+            Object value = in.readObject();
+            if (in.remaining() > 0) {
+                throw new StreamCorruptedException(in.remaining() + " trailing bytes after object");
+            }
+            return value;
+        } finally {
+            in.clear();
+            in.busy = false;
+        }
+    }
+
+    private BinaryOutput acquireOutput() {
+        BinaryOutput out = outputs.get();
+        if (out.busy) {
+            out = new BinaryOutput(this, 256);
+        }
+        out.busy = true;
+        out.reset();
+        return out;
+    }
+
+    private static void release(BinaryOutput out) {
+        out.clear();
+        out.trim(MAX_CACHED_BUFFER);
+        out.busy = false;
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * 预先注册的常用类型，类 ID 在 3 到 {@link BinarySerializer#FIRST_USER_ID} 之间，读写两端固定相同。
+ * 其他 JDK 类型（例如 Collections.unmodifiableList 的结果）没有注册，按 JDK 序列化处理。
+ * 集合只按确切的类匹配，LinkedHashMap 读出来是插入顺序（accessOrder 不保留）
+ */
+final class BuiltinCodecs {
+
+    private BuiltinCodecs() {
+    }
+
+    static void registerAll(BinarySerializer s) {
+        s.registerBuiltin(3, String.class, false, codec(BinaryOutput::writeString, BinaryInput::readString));
+        s.registerBuiltin(4, Integer.class, false, codec(BinaryOutput::writeInt, BinaryInput::readInt));
+        s.registerBuiltin(5, Long.class, false, codec(BinaryOutput::writeLong, BinaryInput::readLong));
+        s.registerBuiltin(6, Boolean.class, false, codec(BinaryOutput::writeBoolean, BinaryInput::readBoolean));
+        s.registerBuiltin(7, Double.class, false, codec(BinaryOutput::writeDouble, BinaryInput::readDouble));
+        s.registerBuiltin(8, Float.class, false, codec(BinaryOutput::writeFloat, BinaryInput::readFloat));
+        s.registerBuiltin(9, Short.class, false, codec(BinaryOutput::writeShort, BinaryInput::readShort));
+        s.registerBuiltin(10, Byte.class, false, codec((out, v) -> out.writeByte(v), BinaryInput::readByte));
+        s.registerBuiltin(11, Character.class, false, codec(BinaryOutput::writeChar, BinaryInput::readChar));
+        s.registerBuiltin(12, Date.class, false,
+                codec((out, v) -> out.writeLong(v.getTime()), in -> new Date(in.readLong())));
+        s.registerBuiltin(13, BigInteger.class, false, codec(BuiltinCodecs::writeBigInteger,
+                BuiltinCodecs::readBigInteger));
+        s.registerBuiltin(14, BigDecimal.class, false, codec((out, v) -> {
+            writeBigInteger(out, v.unscaledValue());
+            out.writeInt(v.scale());
+        }, in -> new BigDecimal(readBigInteger(in), in.readInt())));
+        s.registerBuiltin(15, byte[].class, true, codec((out, v) -> {
+            out.writeVarInt(v.length);
+            out.writeBytes(v, 0, v.length);
+        }, in -> {
+            byte[] v = new byte[in.readLength(1)];
+            in.readBytes(v, 0, v.length);
+            return v;
+        }));
+        s.registerBuiltin(16, int[].class, true, codec((out, v) -> {
+            out.writeVarInt(v.length);
+            for (int x : v) {
+                out.writeInt(x);
+            }
+        }, in -> {
+            int[] v = new int[in.readLength(1)];
+            for (int i = 0; i < v.length; i++) {
+                v[i] = in.readInt();
+            }
+            return v;
+        }));
+        s.registerBuiltin(17, long[].class, true, codec((out, v) -> {
+            out.writeVarInt(v.length);
+            for (long x : v) {
+                out.writeLong(x);
+            }
+        }, in -> {
+            long[] v = new long[in.readLength(1)];
+            for (int i = 0; i < v.length; i++) {
+                v[i] = in.readLong();
+            }
+            return v;
+        }));
+        s.registerBuiltin(18, double[].class, true, codec((out, v) -> {
+            out.writeVarInt(v.length);
+            for (double x : v) {
+                out.writeDouble(x);
+            }
+        }, in -> {
+            double[] v = new double[in.readLength(8)];
+            for (int i = 0; i < v.length; i++) {
+                v[i] = in.readDouble();
+            }
+            return v;
+        }));
+        s.registerBuiltin(19, String[].class, true, codec((out, v) -> {
+            out.writeVarInt(v.length);
+            for (String x : v) {
+                out.writeString(x);
+            }
+        }, in -> {
+            String[] v = new String[in.readLength(1)];
+            for (int i = 0; i < v.length; i++) {
+                v[i] = in.readString();
+            }
+            return v;
+        }));
+        s.registerBuiltin(20, ArrayList.class, true, new CollectionCodec(ArrayList::new));
+        s.registerBuiltin(21, LinkedList.class, true, new CollectionCodec(n -> new LinkedList<>()));
+        s.registerBuiltin(22, HashSet.class, true, new CollectionCodec(n -> new HashSet<>(capacity(n))));
+        s.registerBuiltin(23, LinkedHashSet.class, true, new CollectionCodec(n -> new LinkedHashSet<>(capacity(n))));
+        s.registerBuiltin(24, HashMap.class, true, new MapCodec(n -> new HashMap<>(capacity(n))));
+        s.registerBuiltin(25, LinkedHashMap.class, true, new MapCodec(n -> new LinkedHashMap<>(capacity(n))));
+    }
+
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1);
+    }
+
+    private static void writeBigInteger(BinaryOutput out, BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        out.writeVarInt(bytes.length);
+        out.writeBytes(bytes, 0, bytes.length);
+    }
+
+    private static BigInteger readBigInteger(BinaryInput in) throws IOException {
+        byte[] bytes = new byte[in.readLength(1)];
+        if (bytes.length == 0) {
+            throw new InvalidObjectException("empty BigInteger");
+        }
+        in.readBytes(bytes, 0, bytes.length);
+        return new BigInteger(bytes);
+    }
+
+    private interface Writer<T> {
+
+        void write(BinaryOutput out, T value) throws IOException;
+    }
+
+    private interface Reader<T> {
+
+        T read(BinaryInput in) throws IOException;
+    }
+
+    private static <T> Codec<T> codec(Writer<T> writer, Reader<T> reader) {
+        return new Codec<T>() {
+            @Override
+            public void write(BinaryOutput out, T value) throws IOException {
+                writer.write(out, value);
+            }
+
+            @Override
+            public T read(BinaryInput in) throws IOException {
+                return reader.read(in);
+            }
+        };
+    }
+
+    private static final class CollectionCodec implements Codec<Collection<Object>> {
+
+        private final IntFunction<Collection<Object>> factory;
+
+        CollectionCodec(IntFunction<Collection<Object>> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public void write(BinaryOutput out, Collection<Object> value) throws IOException {
+            out.writeVarInt(value.size());
+            for (Object element : value) {
+                out.writeObject(element);
+            }
+        }
+
+        @Override
+        public Collection<Object> read(BinaryInput in) throws IOException {
+            int size = in.readLength(1);
+            Collection<Object> value = factory.apply(size);
+            in.reference(value);
+            for (int i = 0; i < size; i++) {
+                value.add(in.readObject());
+            }
+            return value;
+        }
+    }
+
+    private static final class MapCodec implements Codec<Map<Object, Object>> {
+
+        private final IntFunction<Map<Object, Object>> factory;
+
+        MapCodec(IntFunction<Map<Object, Object>> factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public void write(BinaryOutput out, Map<Object, Object> value) throws IOException {
+            out.writeVarInt(value.size());
+            for (Map.Entry<Object, Object> entry : value.entrySet()) {
+                out.writeObject(entry.getKey());
+                out.writeObject(entry.getValue());
+            }
+        }
+
+        @Override
+        public Map<Object, Object> read(BinaryInput in) throws IOException {
+            int size = in.readLength(2);
+            Map<Object, Object> value = factory.apply(size);
+            in.reference(value);
+            for (int i = 0; i < size; i++) {
+                value.put(in.readObject(), in.readObject());
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import java.io.IOException;
+
+/**
+ * 一个类型的编解码器，通过 {@link BinarySerializer#register(Class, int, Codec)} 注册。
+ * 注册后所有线程共用一个实例，必须是无状态的；字段中的对象用 {@link BinaryOutput#writeObject} /
+ * {@link BinaryInput#readObject} 递归读写。
+ * <p>
+ * 开启引用跟踪时，可变的容器类型应当在创建出实例、读取内容之前调用 {@link BinaryInput#reference}，
+ * 这样内容中指回自身的引用（循环引用）才能解析到同一个实例
+ */
+public interface Codec<T> {
+
+    void write(BinaryOutput out, T value) throws IOException;
+
+    T read(BinaryInput in) throws IOException;
+}
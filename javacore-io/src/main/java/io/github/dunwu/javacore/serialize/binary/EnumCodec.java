@@ -0,0 +1,34 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+
+/**
+ * 枚举按序号写出（通常 1 字节），读出的是同一个枚举常量。
+ * JDK 序列化写的是常量名，这里写序号换取体积：新增常量只能加在最后，和 protobuf 的枚举一样
+ */
+final class EnumCodec implements Codec<Enum<?>> {
+
+    private final Class<?> type;
+
+    private final Enum<?>[] constants;
+
+    EnumCodec(Class<?> type) {
+        this.type = type;
+        this.constants = (Enum<?>[]) type.getEnumConstants();
+    }
+
+    @Override
+    public void write(BinaryOutput out, Enum<?> value) {
+        out.writeVarInt(value.ordinal());
+    }
+
+    @Override
+    public Enum<?> read(BinaryInput in) throws IOException {
+        int ordinal = in.readVarInt();
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new InvalidObjectException("no constant of " + type.getName() + " with ordinal " + ordinal);
+        }
+        return constants[ordinal];
+    }
+}
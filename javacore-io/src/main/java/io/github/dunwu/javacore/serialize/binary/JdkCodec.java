@@ -0,0 +1,45 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * 退回 JDK 序列化：内容是长度 + 一个完整的 ObjectOutputStream 流。
+ * <p>
+ * 用于未注册的 Serializable 类，以及有自定义序列化逻辑（writeObject、Externalizable 等）的注册类，
+ * 这些类的语义完全由 ObjectOutputStream/ObjectInputStream 保证，代价是 JDK 序列化的体积和速度。
+ * 流中对象之间的引用关系在流内保持，和外面的对象之间不共享
+ */
+final class JdkCodec implements Codec<Object> {
+
+    static final JdkCodec INSTANCE = new JdkCodec();
+
+    private JdkCodec() {
+    }
+
+    @Override
+    public void write(BinaryOutput out, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        out.writeVarInt(bytes.size());
+        out.writeBytes(bytes.toByteArray(), 0, bytes.size());
+    }
+
+    @Override
+    public Object read(BinaryInput in) throws IOException {
+        int length = in.readLength(1);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(in.buffer, in.position, length))) {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw (IOException) new InvalidClassException(e.getMessage(), "class not found").initCause(e);
+        } finally {
+            in.position += length;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 运行时为一个 Serializable 类生成的编解码器：字段依次写出，没有字段名和类描述，每个字段通过
+ * MethodHandle 直接读写（创建时 setAccessible 一次，之后不再做访问检查）。和 JDK 序列化的语义保持一致：
+ * <p>
+ * 1. 序列化哪些字段由 {@link ObjectStreamClass} 决定：static 和 transient 字段不写，
+ * 从最上层的 Serializable 父类开始，每个类的字段按 JDK 的顺序（基本类型在前，再按名称排序）；
+ * <p>
+ * 2. 反序列化不调用类自己的构造器，和 ObjectInputStream 一样只执行第一个非 Serializable 父类的无参构造器，
+ * transient 字段是默认值；
+ * <p>
+ * 3. 有 readResolve 时读完字段后调用，单例类读出来仍是同一个实例；
+ * <p>
+ * 4. 结构指纹由各层的 serialVersionUID 和字段名、字段类型计算，读端指纹不同时抛出 InvalidClassException。
+ * 和 JDK 序列化不同的是，serialVersionUID 相同但字段有增减也视为不兼容，不会按名称匹配字段。
+ * <p>
+ * 有 writeObject/readObject/writeReplace、serialPersistentFields 或实现了 Externalizable 的类，
+ * 字段之外还有自定义的内容，{@link #supports} 返回 false，注册时改用 JDK 序列化（{@link JdkCodec}）
+ */
+final class ObjectCodec implements Codec<Object> {
+
+    private static final int BOOLEAN = 0;
+    private static final int BYTE = 1;
+    private static final int CHAR = 2;
+    private static final int SHORT = 3;
+    private static final int INT = 4;
+    private static final int LONG = 5;
+    private static final int FLOAT = 6;
+    private static final int DOUBLE = 7;
+    private static final int STRING = 8;
+    private static final int OBJECT = 9;
+
+    /**
+     * sun.reflect.ReflectionFactory#newConstructorForSerialization，ObjectInputStream 也是用它创建实例的。
+     * 不是标准 API，没有时（非 HotSpot 的 JVM）退回类自己的无参构造器
+     */
+    private static final Object REFLECTION_FACTORY;
+
+    private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+
+    static {
+        Object factory = null;
+        Method method = null;
+        try {
+            Class<?> c = Class.forName("sun.reflect.ReflectionFactory");
+            factory = c.getMethod("getReflectionFactory").invoke(null);
+            method = c.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            factory = null;
+            method = null;
+        }
+        REFLECTION_FACTORY = factory;
+        NEW_CONSTRUCTOR_FOR_SERIALIZATION = method;
+    }
+
+    private final Class<?> type;
+
+    private final Constructor<?> constructor;
+
+    private final FieldCodec[] fields;
+
+    private final MethodHandle readResolve;
+
+    final int fingerprint;
+
+    private ObjectCodec(Class<?> type) throws IllegalAccessException {
+        this.type = type;
+        this.constructor = serializationConstructor(type);
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        List<FieldCodec> list = new ArrayList<>();
+        int hash = 1;
+        for (Class<?> c : hierarchy) {
+            ObjectStreamClass descriptor = ObjectStreamClass.lookup(c);
+            hash = 31 * hash + Long.hashCode(descriptor.getSerialVersionUID());
+            for (ObjectStreamField f : descriptor.getFields()) {
+                Field field;
+                try {
+                    field = c.getDeclaredField(f.getName());
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalStateException(e);
+                }
+                field.setAccessible(true);
+                list.add(new FieldCodec(field));
+                hash = 31 * hash + f.getName().hashCode();
+                hash = 31 * hash + (f.isPrimitive() ? f.getTypeCode() : f.getTypeString().hashCode());
+            }
+        }
+        this.fields = list.toArray(new FieldCodec[0]);
+        this.fingerprint = hash;
+        Method resolve = inheritableMethod(type, "readResolve");
+        if (resolve != null) {
+            resolve.setAccessible(true);
+            this.readResolve = MethodHandles.lookup().unreflect(resolve)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } else {
+            this.readResolve = null;
+        }
+    }
+
+    /**
+     * 为 type 生成编解码器，调用前先用 {@link #supports} 检查
+     *
+     * @throws IllegalArgumentException 类不能反序列化（抽象类、没有可用的无参构造器）或字段无法访问
+     */
+    static ObjectCodec create(Class<?> type) {
+        try {
+            return new ObjectCodec(type);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("cannot access fields of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * 类的序列化内容是否只有字段
+     */
+    static boolean supports(Class<?> type) {
+        if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+                || type.isArray() || type.isEnum() || inheritableMethod(type, "writeReplace") != null) {
+            return false;
+        }
+        for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            if (hasPrivateMethod(c, "writeObject", ObjectOutputStream.class)
+                    || hasPrivateMethod(c, "readObject", ObjectInputStream.class)
+                    || hasPrivateMethod(c, "readObjectNoData")) {
+                return false;
+            }
+            try {
+                c.getDeclaredField("serialPersistentFields");
+                return false;
+            } catch (NoSuchFieldException e) {
+                // 没有声明，按字段序列化
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasPrivateMethod(Class<?> c, String name, Class<?>... parameterTypes) {
+        try {
+            Method m = c.getDeclaredMethod(name, parameterTypes);
+            return m.getReturnType() == void.class && Modifier.isPrivate(m.getModifiers())
+                    && !Modifier.isStatic(m.getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 和 ObjectStreamClass 查找 writeReplace/readResolve 的规则相同：可以继承，但父类中 private 的方法
+     * 不算，包可见的方法只在同一个包中算
+     */
+    private static Method inheritableMethod(Class<?> type, String name) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            Method m;
+            try {
+                m = c.getDeclaredMethod(name);
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            int modifiers = m.getModifiers();
+            if (m.getReturnType() != Object.class || Modifier.isStatic(modifiers) || Modifier.isAbstract(modifiers)) {
+                return null;
+            }
+            if (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers)) {
+                return m;
+            }
+            if (Modifier.isPrivate(modifiers)) {
+                return c == type ? m : null;
+            }
+            return samePackage(c, type) ? m : null;
+        }
+        return null;
+    }
+
+    private static boolean samePackage(Class<?> a, Class<?> b) {
+        String na = a.getName();
+        String nb = b.getName();
+        int ia = na.lastIndexOf('.');
+        int ib = nb.lastIndexOf('.');
+        return a.getClassLoader() == b.getClassLoader() && ia == ib && na.regionMatches(0, nb, 0, Math.max(ia, 0));
+    }
+
+    /**
+     * 执行第一个非 Serializable 父类的无参构造器、但创建出 type 实例的构造器，规则和 ObjectInputStream 相同：
+     * 该构造器不能是 private 的，包可见时必须和 type 在同一个包中
+     */
+    private static Constructor<?> serializationConstructor(Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers()) || type.isInterface()) {
+            throw new IllegalArgumentException("cannot instantiate abstract class " + type.getName());
+        }
+        Class<?> base = type;
+        while (Serializable.class.isAssignableFrom(base)) {
+            base = base.getSuperclass();
+        }
+        Constructor<?> baseConstructor;
+        try {
+            baseConstructor = base.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + ": no valid constructor, " + base.getName()
+                    + " has no no-arg constructor");
+        }
+        int modifiers = baseConstructor.getModifiers();
+        if (Modifier.isPrivate(modifiers) || !Modifier.isPublic(modifiers) && !Modifier.isProtected(modifiers)
+                && !samePackage(base, type)) {
+            throw new IllegalArgumentException(type.getName() + ": no valid constructor, no-arg constructor of "
+                    + base.getName() + " is not accessible");
+        }
+        Constructor<?> constructor;
+        try {
+            if (NEW_CONSTRUCTOR_FOR_SERIALIZATION != null) {
+                constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(REFLECTION_FACTORY, type,
+                        baseConstructor);
+            } else {
+                constructor = type.getDeclaredConstructor();
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(type.getName() + ": no valid constructor", e);
+        }
+        constructor.setAccessible(true);
+        return constructor;
+    }
+
+    @Override
+    public void write(BinaryOutput out, Object value) throws IOException {
+        try {
+            for (FieldCodec field : fields) {
+                field.write(out, value);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+    @Override
+    public Object read(BinaryInput in) throws IOException {
+        Object value;
+        try {
+            value = constructor.newInstance();
+        } catch (InvocationTargetException e) {
+            throw (IOException) new InvalidObjectException("constructor of " + type.getName() + " failed")
+                    .initCause(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+        in.reference(value);
+        FieldCodec field = null;
+        try {
+            for (FieldCodec f : fields) {
+                field = f;
+                f.read(in, value);
+            }
+            return readResolve == null ? value : (Object) readResolve.invokeExact(value);
+        } catch (ClassCastException e) {
+            // 数据中的对象类型和字段类型不符
+            String name = field == null ? type.getName() : type.getName() + "." + field.name;
+            throw (IOException) new InvalidObjectException("incompatible value for " + name).initCause(e);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IOException(t);
+        }
+    }
+
+    /**
+     * 一个字段的读写，getter/setter 在创建时适配为 (Object)T 和 (Object, T)void，调用时用 invokeExact
+     */
+    private static final class FieldCodec {
+
+        final String name;
+
+        private final int kind;
+
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        FieldCodec(Field field) throws IllegalAccessException {
+            Class<?> t = field.getType();
+            this.name = field.getName();
+            this.kind = kindOf(t);
+            Class<?> exposed = kind == OBJECT ? Object.class : t;
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            this.getter = lookup.unreflectGetter(field).asType(MethodType.methodType(exposed, Object.class));
+            // final 字段在 setAccessible 之后也能写，和 ObjectInputStream 相同
+            this.setter = lookup.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, exposed));
+        }
+
+        private static int kindOf(Class<?> t) {
+            if (t == boolean.class) {
+                return BOOLEAN;
+            } else if (t == byte.class) {
+                return BYTE;
+            } else if (t == char.class) {
+                return CHAR;
+            } else if (t == short.class) {
+                return SHORT;
+            } else if (t == int.class) {
+                return INT;
+            } else if (t == long.class) {
+                return LONG;
+            } else if (t == float.class) {
+                return FLOAT;
+            } else if (t == double.class) {
+                return DOUBLE;
+            } else if (t == String.class) {
+                // 声明为 String 的字段不写类型标记
+                return STRING;
+            }
+            return OBJECT;
+        }
+
+        void write(BinaryOutput out, Object owner) throws Throwable {
+            switch (kind) {
+                case BOOLEAN:
+                    out.writeBoolean((boolean) getter.invokeExact(owner));
+                    break;
+                case BYTE:
+                    out.writeByte((byte) getter.invokeExact(owner));
+                    break;
+                case CHAR:
+                    out.writeChar((char) getter.invokeExact(owner));
+                    break;
+                case SHORT:
+                    out.writeShort((short) getter.invokeExact(owner));
+                    break;
+                case INT:
+                    out.writeInt((int) getter.invokeExact(owner));
+                    break;
+                case LONG:
+                    out.writeLong((long) getter.invokeExact(owner));
+                    break;
+                case FLOAT:
+                    out.writeFloat((float) getter.invokeExact(owner));
+                    break;
+                case DOUBLE:
+                    out.writeDouble((double) getter.invokeExact(owner));
+                    break;
+                case STRING:
+                    out.writeString((String) getter.invokeExact(owner));
+                    break;
+                default:
+                    out.writeObject((Object) getter.invokeExact(owner));
+            }
+        }
+
+        void read(BinaryInput in, Object owner) throws Throwable {
+            switch (kind) {
+                case BOOLEAN:
+                    setter.invokeExact(owner, in.readBoolean());
+                    break;
+                case BYTE:
+                    setter.invokeExact(owner, in.readByte());
+                    break;
+                case CHAR:
+                    setter.invokeExact(owner, in.readChar());
+                    break;
+                case SHORT:
+                    setter.invokeExact(owner, in.readShort());
+                    break;
+                case INT:
+                    setter.invokeExact(owner, in.readInt());
+                    break;
+                case LONG:
+                    setter.invokeExact(owner, in.readLong());
+                    break;
+                case FLOAT:
+                    setter.invokeExact(owner, in.readFloat());
+                    break;
+                case DOUBLE:
+                    setter.invokeExact(owner, in.readDouble());
+                    break;
+                case STRING:
+                    setter.invokeExact(owner, in.readString());
+                    break;
+                default:
+                    setter.invokeExact(owner, in.readObject());
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+/**
+ * 一个类的注册信息：类 ID、编解码器，以及读写两端按同样规则决定的两个标志
+ */
+final class Registration {
+
+    final int id;
+
+    final Class<?> type;
+
+    final Codec<Object> codec;
+
+    /**
+     * 开启引用跟踪时是否跟踪该类型的对象：字符串、包装类型这些值对象不跟踪
+     */
+    final boolean tracked;
+
+    /**
+     * 是否在消息中写结构指纹，只有按字段生成的 {@link ObjectCodec} 需要
+     */
+    final boolean fingerprinted;
+
+    final int fingerprint;
+
+    @SuppressWarnings("unchecked")
+    Registration(int id, Class<?> type, Codec<?> codec, boolean tracked) {
+        this.id = id;
+        this.type = type;
+        this.codec = (Codec<Object>) codec;
+        this.tracked = tracked;
+        this.fingerprinted = codec instanceof ObjectCodec;
+        this.fingerprint = fingerprinted ? ((ObjectCodec) codec).fingerprint : 0;
+    }
+}
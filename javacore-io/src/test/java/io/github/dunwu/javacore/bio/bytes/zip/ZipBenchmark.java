@@ -0,0 +1,255 @@
+package io.github.dunwu.javacore.bio.bytes.zip;
+
+import io.github.dunwu.javacore.bio.bytes.ZipStreamDemo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 打包耗时对比：{@link ZipStreamDemo#compressFile} 的写法（单线程 ZipOutputStream，1KB 缓冲区）、
+ * 同样写法换成 64KB 缓冲区、{@link ParallelZipArchiver} 单线程和多线程，由 {@link #method} 选择。
+ * <p>
+ * 每次调用打包整个目录；{@link #dir} 为空时生成 {@link #sizeMb} MB 的模拟日志，{@link #parallelism} 为 0 时取 CPU 核数。
+ * 目录大小在 {@link #setup()} 中打印，压缩率在 {@link #tearDown()} 中打印，并用 ZipFile 逐个条目解压校验 CRC。
+ * <p>
+ * 不是单元测试，通过 main 方法运行，参数用 JMH 的 -p 覆盖：
+ * <pre>
+ * mvn -pl javacore-io test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=io.github.dunwu.javacore.bio.bytes.zip.ZipBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipBenchmark {
+
+    @Param({"zipOutputStream1k", "zipOutputStream64k", "parallel1", "parallel"})
+    private String method;
+
+    @Param({""})
+    private String dir;
+
+    @Param({"256"})
+    private int sizeMb;
+
+    @Param({"0"})
+    private int parallelism;
+
+    private int threads;
+
+    private Path source;
+
+    private Path generated;
+
+    private Path out;
+
+    private long total;
+
+    @Setup
+    public void setup() throws IOException {
+        threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (dir.isEmpty()) {
+            generated = generateLogs(sizeMb);
+            source = generated;
+        } else {
+            source = Paths.get(dir);
+        }
+        out = Files.createTempFile("zip-benchmark", ".zip");
+        total = directorySize(source);
+        System.out.printf("%n目录 %s，%,d MB，并行度 %d%n", source, total >> 20, threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.out.printf("%n%s 压缩率 %.1f%%，校验通过，共 %d 个条目%n", method, Files.size(out) * 100.0 / total,
+                verify(out));
+        Files.delete(out);
+        if (generated != null) {
+            deleteDirectory(generated);
+        }
+    }
+
+    /**
+     * @return 压缩包的大小
+     */
+    @Benchmark
+    public long archive() throws IOException {
+        switch (method) {
+            case "zipOutputStream1k":
+                zipOutputStream(source, out, 1024);
+                break;
+            case "zipOutputStream64k":
+                zipOutputStream(source, out, 64 * 1024);
+                break;
+            case "parallel1":
+                parallel(source, out, 1);
+                break;
+            case "parallel":
+                parallel(source, out, threads);
+                break;
+            default:
+                throw new IllegalArgumentException(method);
+        }
+        return Files.size(out);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ZipBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * ZipStreamDemo.compressFile 的写法，扩展到整个目录
+     */
+    private static void zipOutputStream(Path dir, Path out, int bufferSize) throws IOException {
+        Path base = dir.toAbsolutePath().getParent();
+        try (OutputStream os = Files.newOutputStream(out);
+             ZipOutputStream zos = new ZipOutputStream(os)) {
+            byte[] buffer = new byte[bufferSize];
+            Files.walkFileTree(dir.toAbsolutePath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    String name = base.relativize(file).toString().replace(File.separatorChar, '/');
+                    zos.putNextEntry(new ZipEntry(name));
+                    try (InputStream in = Files.newInputStream(file)) {
+                        int length;
+                        while ((length = in.read(buffer)) != -1) {
+                            zos.write(buffer, 0, length);
+                        }
+                    }
+                    zos.closeEntry();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    private static void parallel(Path dir, Path out, int parallelism) throws IOException {
+        try (ParallelZipArchiver archiver = new ParallelZipArchiver(out).setParallelism(parallelism).open()) {
+            archiver.addDirectory(dir);
+        }
+    }
+
+    private static int verify(Path zip) throws IOException {
+        int count = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (ZipFile file = new ZipFile(zip.toFile())) {
+            for (Enumeration<? extends ZipEntry> it = file.entries(); it.hasMoreElements(); ) {
+                ZipEntry entry = it.nextElement();
+                // ZipFile 读完条目时校验 CRC，不一致会抛出 ZipException
+                try (InputStream in = file.getInputStream(entry)) {
+                    while (in.read(buffer) != -1) {
+                        // 读到结尾
+                    }
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 生成模拟的应用日志：几个大文件 + 一批小文件
+     */
+    private static Path generateLogs(int sizeMb) throws IOException {
+        Path dir = Files.createTempDirectory("zip-benchmark-logs");
+        String[] levels = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+        String[] loggers = {"c.e.order.OrderService", "c.e.user.UserController", "c.e.pay.PaymentClient",
+                "o.s.web.servlet.DispatcherServlet", "c.z.hikari.pool.HikariPool"};
+        Random random = new Random(42);
+        long target = (long) sizeMb << 20;
+        long written = 0;
+        int fileNo = 0;
+        while (written < target) {
+            // 大约 80% 的数据在 64MB 的大文件中，其余是 256KB 的小文件
+            long fileSize = fileNo % 5 == 0 ? 64L << 20 : 256L << 10;
+            Path file = dir.resolve(fileSize > (1 << 20) ? "app-" + fileNo + ".log" : "small/app-" + fileNo + ".log");
+            Files.createDirectories(file.getParent());
+            long fileWritten = 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                StringBuilder line = new StringBuilder(200);
+                while (fileWritten < fileSize && written + fileWritten < target) {
+                    line.setLength(0);
+                    line.append("2024-03-").append(10 + random.nextInt(20)).append(' ')
+                            .append(10 + random.nextInt(14)).append(':').append(10 + random.nextInt(50)).append(':')
+                            .append(10 + random.nextInt(50)).append('.').append(100 + random.nextInt(900)).append(' ')
+                            .append(levels[random.nextInt(levels.length)]).append(" [http-nio-8080-exec-")
+                            .append(random.nextInt(200)).append("] ").append(loggers[random.nextInt(loggers.length)])
+                            .append(" - request id=").append(Long.toHexString(random.nextLong()))
+                            .append(" user=").append(random.nextInt(100_000)).append(" took ")
+                            .append(random.nextInt(2000)).append("ms\n");
+                    writer.append(line);
+                    fileWritten += line.length();
+                }
+            }
+            written += fileWritten;
+            fileNo++;
+        }
+        return dir;
+    }
+
+    private static long directorySize(Path dir) throws IOException {
+        long[] size = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                size[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return size[0];
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
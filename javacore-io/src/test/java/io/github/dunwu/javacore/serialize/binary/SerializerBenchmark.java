@@ -0,0 +1,291 @@
+package io.github.dunwu.javacore.serialize.binary;
+
+import io.github.dunwu.javacore.serialize.Employee;
+import io.github.dunwu.javacore.serialize.stream.DemoProtos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化的体积和速度对比：JDK 序列化（Serializable、Externalizable）、protobuf 和 {@link BinarySerializer}。
+ * <p>
+ * 数据是 demo.proto 中的 User（id、name、email、枚举、两个电话号码、两个标签），以及 {@link Employee}，
+ * 每种方式用结构相同的类，由 {@link #format} 选择。序列化后的字节数在 {@link #setup()} 中打印；
+ * 反序列化的 JDK 方式包括读类描述、按名称匹配字段的开销。
+ * <p>
+ * 不是单元测试，通过 main 方法运行：
+ * <pre>
+ * mvn -pl javacore-io test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=io.github.dunwu.javacore.serialize.binary.SerializerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"userJdk", "userExternalizable", "userProtobuf", "userBinary",
+            "employeeJdk", "employeeBinary", "employeeBinaryRefs"})
+    private String format;
+
+    private Writer writer;
+
+    private Reader reader;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws Exception {
+        BinarySerializer serializer = new BinarySerializer()
+                .register(User.class)
+                .register(PhoneNumber.class)
+                .register(Gender.class)
+                .register(PhoneType.class)
+                .register(Employee.class);
+        User user = sampleUser();
+        Employee employee = sampleEmployee();
+        switch (format) {
+            case "userJdk":
+                writer = () -> jdkWrite(user);
+                reader = SerializerBenchmark::jdkRead;
+                break;
+            case "userExternalizable":
+                ExternalizableUser externalizable = new ExternalizableUser(user);
+                writer = () -> jdkWrite(externalizable);
+                reader = SerializerBenchmark::jdkRead;
+                break;
+            case "userProtobuf":
+                DemoProtos.User proto = sampleProto(user);
+                writer = proto::toByteArray;
+                reader = DemoProtos.User::parseFrom;
+                break;
+            case "userBinary":
+                writer = () -> serializer.serialize(user);
+                reader = serializer::deserialize;
+                break;
+            case "employeeJdk":
+                writer = () -> jdkWrite(employee);
+                reader = SerializerBenchmark::jdkRead;
+                break;
+            case "employeeBinaryRefs":
+                serializer.setReferences(true);
+                // fall through
+            case "employeeBinary":
+                writer = () -> serializer.serialize(employee);
+                reader = serializer::deserialize;
+                break;
+            default:
+                throw new IllegalArgumentException(format);
+        }
+        bytes = writer.write();
+        System.out.printf("%n%s: %d bytes%n", format, bytes.length);
+    }
+
+    @Benchmark
+    public void serialize(Blackhole blackhole) throws Exception {
+        blackhole.consume(writer.write());
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) throws Exception {
+        blackhole.consume(reader.read(bytes));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SerializerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    private interface Writer {
+
+        byte[] write() throws Exception;
+    }
+
+    private interface Reader {
+
+        Object read(byte[] bytes) throws Exception;
+    }
+
+    private static byte[] jdkWrite(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object jdkRead(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+
+    private static User sampleUser() {
+        User user = new User();
+        user.id = 10086;
+        user.name = "Zhang Peng";
+        user.email = "forbreak@163.com";
+        user.gender = Gender.MALE;
+        user.phones = new ArrayList<>();
+        user.phones.add(new PhoneNumber("13800138000", PhoneType.MOBILE));
+        user.phones.add(new PhoneNumber("010-88886666", PhoneType.WORK));
+        user.tags = new HashMap<>();
+        user.tags.put("level", "vip");
+        user.tags.put("city", "Beijing");
+        return user;
+    }
+
+    private static Employee sampleEmployee() {
+        Employee employee = new Employee();
+        employee.name = "Reyan Ali";
+        employee.address = "Phokka Kuan, Ambehta Peer";
+        employee.SSN = 11122333;
+        employee.number = 101;
+        return employee;
+    }
+
+    private static DemoProtos.User sampleProto(User user) {
+        DemoProtos.User.Builder builder = DemoProtos.User.newBuilder()
+                .setId(user.id)
+                .setName(user.name)
+                .setEmail(user.email)
+                .setGender(DemoProtos.User.Gender.MALE)
+                .putAllTags(user.tags);
+        for (PhoneNumber phone : user.phones) {
+            builder.addPhone(DemoProtos.User.PhoneNumber.newBuilder()
+                    .setNumber(phone.number)
+                    .setType(DemoProtos.User.PhoneNumber.PhoneType.forNumber(phone.type.ordinal())));
+        }
+        return builder.build();
+    }
+
+    enum Gender {
+        DEFAULT,
+        MALE,
+        FEMALE
+    }
+
+    enum PhoneType {
+        MOBILE,
+        HOME,
+        WORK
+    }
+
+    static class PhoneNumber implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        String number;
+
+        PhoneType type;
+
+        PhoneNumber(String number, PhoneType type) {
+            this.number = number;
+            this.type = type;
+        }
+    }
+
+    static class User implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        int id;
+
+        String name;
+
+        String email;
+
+        Gender gender;
+
+        List<PhoneNumber> phones;
+
+        Map<String, String> tags;
+    }
+
+    /**
+     * 手写 writeExternal/readExternal 的版本，没有字段描述，但每个对象仍然带类描述
+     */
+    public static class ExternalizableUser implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private User user;
+
+        public ExternalizableUser() {
+        }
+
+        ExternalizableUser(User user) {
+            this.user = user;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(user.id);
+            out.writeUTF(user.name);
+            out.writeUTF(user.email);
+            out.writeByte(user.gender.ordinal());
+            out.writeShort(user.phones.size());
+            for (PhoneNumber phone : user.phones) {
+                out.writeUTF(phone.number);
+                out.writeByte(phone.type.ordinal());
+            }
+            out.writeShort(user.tags.size());
+            for (Map.Entry<String, String> tag : user.tags.entrySet()) {
+                out.writeUTF(tag.getKey());
+                out.writeUTF(tag.getValue());
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            user = new User();
+            user.id = in.readInt();
+            user.name = in.readUTF();
+            user.email = in.readUTF();
+            user.gender = Gender.values()[in.readByte()];
+            int phones = in.readShort();
+            user.phones = new ArrayList<>(phones);
+            for (int i = 0; i < phones; i++) {
+                user.phones.add(new PhoneNumber(in.readUTF(), PhoneType.values()[in.readByte()]));
+            }
+            int tags = in.readShort();
+            user.tags = new HashMap<>();
+            for (int i = 0; i < tags; i++) {
+                user.tags.put(in.readUTF(), in.readUTF());
+            }
+        }
+    }
+}
@@ -0,0 +1,762 @@
+/**
+ * The Apache License 2.0 Copyright (c) 2016 Zhang Peng
+ */
+package io.github.dunwu.javacore.util.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 基于 DFA 的整串匹配器，语义与 {@code Pattern.compile(regex).matcher(input).matches()} 一致，匹配耗时与输入长度成线性关系，
+ * 不会像回溯引擎那样被 {@code (a+)*!} 之类的输入拖入指数级回溯。
+ * <p>
+ * 1. 支持的语法（正则语言的子集）：字面量、转义字符、{@code .}、字符类 {@code [a-z]}/{@code [^...]}、{@code \d \D \w \W \s \S}、
+ * 分组 {@code (...)}/{@code (?:...)}、选择 {@code |}、量词 {@code * + ? {n} {n,} {n,m}}（及其懒惰形式）、{@code ^} 和 {@code $}。
+ * <p>
+ * 2. 不支持的语法：反向引用、环视、possessive 量词、内联标志、{@code \b}、{@code \p{...}}、嵌套字符类等。
+ * 遇到这些语法或构造出的状态数超过 {@link #MAX_STATES} 时 {@link #compile} 抛出 {@link IllegalArgumentException}，
+ * {@link #tryCompile} 返回 null，调用方应回退到 {@link java.util.regex.Pattern}。
+ * <p>
+ * 3. 实现：正则先解析为语法树，再用 Thompson 构造转为 NFA，最后在编译期用子集构造得到完整的 DFA。
+ * 字符按所有字符类的边界划分为等价类，转移表的列是等价类而不是字符；ASCII 字符的等价类查表得到。
+ * 编译后的实例不可变，可以在线程间共享。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2016/10/27.
+ */
+public final class DfaMatcher {
+
+    /**
+     * DFA 状态数上限
+     */
+    public static final int MAX_STATES = 10000;
+
+    /**
+     * NFA 状态数上限，计数量词展开后超过时放弃编译
+     */
+    private static final int MAX_NFA_STATES = 20000;
+
+    private static final int MAX_REPEAT = 1000;
+
+    private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    private static final int DEAD = 0;
+
+    private static final int[] DIGIT = { '0', '9' };
+
+    private static final int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+
+    private static final int[] SPACE = { '\t', '\r', ' ', ' ' };
+
+    private static final int[] DOT = negate(new int[] { '\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029 });
+
+    private final String regex;
+
+    /**
+     * 等价类分界点，码点 cp 的等价类是不大于 cp 的分界点个数
+     */
+    private final int[] boundaries;
+
+    private final int[] asciiClasses;
+
+    private final int classCount;
+
+    private final int[] transitions;
+
+    private final boolean[] accepting;
+
+    private final int start;
+
+    private DfaMatcher(String regex, int[] boundaries, int[] transitions, boolean[] accepting, int start) {
+        this.regex = regex;
+        this.boundaries = boundaries;
+        this.classCount = boundaries.length + 1;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.start = start;
+        this.asciiClasses = new int[128];
+        for (int c = 0; c < 128; c++) {
+            asciiClasses[c] = classOf(boundaries, c);
+        }
+    }
+
+    /**
+     * 编译正则，不支持的语法或状态数超限时抛出 {@link IllegalArgumentException}
+     */
+    public static DfaMatcher compile(String regex) {
+        Node root = new Parser(regex).parse();
+        Nfa nfa = new Nfa();
+        int match = nfa.add(Nfa.MATCH, -1, -1, null);
+        int entry = nfa.build(root, match);
+        return new Builder(regex, nfa, entry).build();
+    }
+
+    /**
+     * 编译正则，不支持时返回 null
+     */
+    public static DfaMatcher tryCompile(String regex) {
+        try {
+            return compile(regex);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 整串匹配
+     */
+    public boolean matches(CharSequence input) {
+        int state = start;
+        int length = input.length();
+        for (int i = 0; i < length; ) {
+            char c = input.charAt(i);
+            int cls;
+            if (c < 128) {
+                cls = asciiClasses[c];
+                i++;
+            } else {
+                int cp = Character.codePointAt(input, i);
+                cls = classOf(boundaries, cp);
+                i += Character.charCount(cp);
+            }
+            state = transitions[state * classCount + cls];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    public String pattern() {
+        return regex;
+    }
+
+    /**
+     * DFA 状态数（包括死状态）
+     */
+    public int stateCount() {
+        return accepting.length;
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    private static int classOf(int[] boundaries, int cp) {
+        int i = Arrays.binarySearch(boundaries, cp);
+        return i >= 0 ? i + 1 : -(i + 1);
+    }
+
+    private static IllegalArgumentException unsupported(String regex, String reason) {
+        return new IllegalArgumentException("Unsupported regex for DfaMatcher (" + reason + "): " + regex);
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // 字符集：按码点排序的闭区间 [lo0, hi0, lo1, hi1, ...]
+    // ------------------------------------------------------------------------------------------
+
+    private static int[] normalize(List<int[]> ranges) {
+        ranges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int[] out = new int[ranges.size() * 2];
+        int n = 0;
+        for (int[] r : ranges) {
+            if (n > 0 && r[0] <= out[n - 1] + 1) {
+                out[n - 1] = Math.max(out[n - 1], r[1]);
+            } else {
+                out[n++] = r[0];
+                out[n++] = r[1];
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] negate(int[] set) {
+        int[] out = new int[set.length + 2];
+        int n = 0;
+        int next = 0;
+        for (int i = 0; i < set.length; i += 2) {
+            if (set[i] > next) {
+                out[n++] = next;
+                out[n++] = set[i] - 1;
+            }
+            next = set[i + 1] + 1;
+        }
+        if (next <= MAX_CODE_POINT) {
+            out[n++] = next;
+            out[n++] = MAX_CODE_POINT;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static boolean contains(int[] set, int cp) {
+        for (int i = 0; i < set.length && set[i] <= cp; i += 2) {
+            if (cp <= set[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // 语法树
+    // ------------------------------------------------------------------------------------------
+
+    private static final class Node {
+
+        static final int CHARS = 0;
+
+        static final int CONCAT = 1;
+
+        static final int ALT = 2;
+
+        static final int REPEAT = 3;
+
+        static final int BOL = 4;
+
+        static final int EOL = 5;
+
+        final int kind;
+
+        final int[] set;
+
+        final List<Node> children;
+
+        final int min;
+
+        final int max;
+
+        private Node(int kind, int[] set, List<Node> children, int min, int max) {
+            this.kind = kind;
+            this.set = set;
+            this.children = children;
+            this.min = min;
+            this.max = max;
+        }
+
+        static Node chars(int[] set) {
+            return new Node(CHARS, set, null, 0, 0);
+        }
+
+        static Node of(int kind, List<Node> children) {
+            return new Node(kind, null, children, 0, 0);
+        }
+
+        static Node repeat(Node child, int min, int max) {
+            return new Node(REPEAT, null, Collections.singletonList(child), min, max);
+        }
+
+    }
+
+    private static final class Parser {
+
+        private final String regex;
+
+        private int pos;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        Node parse() {
+            Node node = alternation();
+            if (pos < regex.length()) {
+                throw unsupported(regex, "unmatched ')'");
+            }
+            return node;
+        }
+
+        private Node alternation() {
+            List<Node> branches = new ArrayList<>();
+            branches.add(sequence());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                branches.add(sequence());
+            }
+            return branches.size() == 1 ? branches.get(0) : Node.of(Node.ALT, branches);
+        }
+
+        private Node sequence() {
+            List<Node> items = new ArrayList<>();
+            while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+                items.add(quantified(atom()));
+            }
+            return items.size() == 1 ? items.get(0) : Node.of(Node.CONCAT, items);
+        }
+
+        private Node quantified(Node atom) {
+            if (pos >= regex.length()) {
+                return atom;
+            }
+            int min;
+            int max;
+            char c = regex.charAt(pos);
+            if (c == '*') {
+                min = 0;
+                max = -1;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+                pos++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                pos++;
+            } else if (c == '{') {
+                pos++;
+                min = number();
+                max = min;
+                if (peek(',')) {
+                    pos++;
+                    max = peek('}') ? -1 : number();
+                }
+                expect('}');
+                if (max >= 0 && max < min) {
+                    throw unsupported(regex, "illegal repetition range");
+                }
+                if (min > MAX_REPEAT || max > MAX_REPEAT) {
+                    throw unsupported(regex, "repetition too large");
+                }
+            } else {
+                return atom;
+            }
+            if (peek('+')) {
+                throw unsupported(regex, "possessive quantifier");
+            }
+            if (peek('?')) {
+                // 懒惰量词只影响捕获的位置，整串匹配的结果不变
+                pos++;
+            }
+            return Node.repeat(atom, min, max);
+        }
+
+        private Node atom() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (peek('?')) {
+                        if (pos + 1 < regex.length() && regex.charAt(pos + 1) == ':') {
+                            pos += 2;
+                        } else {
+                            throw unsupported(regex, "lookaround, named group or inline flag");
+                        }
+                    }
+                    Node inner = alternation();
+                    expect(')');
+                    return inner;
+                case '[':
+                    return Node.chars(charClass());
+                case '.':
+                    return Node.chars(DOT);
+                case '^':
+                    return Node.of(Node.BOL, null);
+                case '$':
+                    return Node.of(Node.EOL, null);
+                case '\\':
+                    return Node.chars(escape(false));
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw unsupported(regex, "dangling meta character '" + c + "'");
+                default:
+                    pos--;
+                    int cp = regex.codePointAt(pos);
+                    pos += Character.charCount(cp);
+                    return Node.chars(new int[] { cp, cp });
+            }
+        }
+
+        private int[] charClass() {
+            boolean negated = peek('^');
+            if (negated) {
+                pos++;
+            }
+            List<int[]> ranges = new ArrayList<>();
+            boolean first = true;
+            while (true) {
+                if (pos >= regex.length()) {
+                    throw unsupported(regex, "unclosed character class");
+                }
+                char c = regex.charAt(pos);
+                if (c == ']') {
+                    if (first) {
+                        throw unsupported(regex, "empty character class");
+                    }
+                    pos++;
+                    break;
+                }
+                if (c == '[' || (c == '&' && pos + 1 < regex.length() && regex.charAt(pos + 1) == '&')) {
+                    throw unsupported(regex, "nested character class");
+                }
+                first = false;
+                int lo = classAtom(ranges);
+                if (lo < 0) {
+                    continue;
+                }
+                int hi = lo;
+                if (peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    hi = classAtom(null);
+                    if (hi < lo) {
+                        throw unsupported(regex, "illegal character range");
+                    }
+                }
+                ranges.add(new int[] { lo, hi });
+            }
+            int[] set = normalize(ranges);
+            return negated ? negate(set) : set;
+        }
+
+        /**
+         * 读取字符类中的一项，是单个字符时返回其码点；是 \d 之类的预定义字符类时加入 ranges 并返回 -1
+         */
+        private int classAtom(List<int[]> ranges) {
+            char c = regex.charAt(pos);
+            if (c == '[') {
+                throw unsupported(regex, "nested character class");
+            }
+            if (c != '\\') {
+                int cp = regex.codePointAt(pos);
+                pos += Character.charCount(cp);
+                return cp;
+            }
+            pos++;
+            int[] set = escape(true);
+            if (set.length == 2 && set[0] == set[1]) {
+                return set[0];
+            }
+            if (ranges == null) {
+                throw unsupported(regex, "illegal character range");
+            }
+            for (int i = 0; i < set.length; i += 2) {
+                ranges.add(new int[] { set[i], set[i + 1] });
+            }
+            return -1;
+        }
+
+        private int[] escape(boolean inClass) {
+            if (pos >= regex.length()) {
+                throw unsupported(regex, "trailing backslash");
+            }
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case 'd':
+                    return DIGIT;
+                case 'D':
+                    return negate(DIGIT);
+                case 'w':
+                    return WORD;
+                case 'W':
+                    return negate(WORD);
+                case 's':
+                    return SPACE;
+                case 'S':
+                    return negate(SPACE);
+                case 't':
+                    return single('\t');
+                case 'n':
+                    return single('\n');
+                case 'r':
+                    return single('\r');
+                case 'f':
+                    return single('\f');
+                case 'a':
+                    return single('\u0007');
+                case 'e':
+                    return single('\u001B');
+                case 'x':
+                    return single(hex(2));
+                case 'u':
+                    return single(hex(4));
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        throw unsupported(regex, "escape '\\" + c + "'" + (inClass ? " in character class" : ""));
+                    }
+                    return single(c);
+            }
+        }
+
+        private int hex(int digits) {
+            if (pos + digits > regex.length()) {
+                throw unsupported(regex, "illegal hexadecimal escape");
+            }
+            try {
+                int value = Integer.parseInt(regex.substring(pos, pos + digits), 16);
+                pos += digits;
+                return value;
+            } catch (NumberFormatException e) {
+                throw unsupported(regex, "illegal hexadecimal escape");
+            }
+        }
+
+        private int number() {
+            int begin = pos;
+            while (pos < regex.length() && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '9' && pos - begin < 9) {
+                pos++;
+            }
+            if (pos == begin) {
+                throw unsupported(regex, "illegal repetition");
+            }
+            return Integer.parseInt(regex.substring(begin, pos));
+        }
+
+        private boolean peek(char c) {
+            return pos < regex.length() && regex.charAt(pos) == c;
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) {
+                throw unsupported(regex, "expected '" + c + "' at index " + pos);
+            }
+            pos++;
+        }
+
+        private static int[] single(int cp) {
+            return new int[] { cp, cp };
+        }
+
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Thompson NFA
+    // ------------------------------------------------------------------------------------------
+
+    private static final class Nfa {
+
+        static final int SET = 0;
+
+        static final int SPLIT = 1;
+
+        static final int BOL = 2;
+
+        static final int EOL = 3;
+
+        static final int MATCH = 4;
+
+        int[] kind = new int[64];
+
+        int[] out1 = new int[64];
+
+        int[] out2 = new int[64];
+
+        int[][] sets = new int[64][];
+
+        int size;
+
+        int add(int k, int o1, int o2, int[] set) {
+            if (size == MAX_NFA_STATES) {
+                throw new IllegalArgumentException("NFA too large");
+            }
+            if (size == kind.length) {
+                int n = size * 2;
+                kind = Arrays.copyOf(kind, n);
+                out1 = Arrays.copyOf(out1, n);
+                out2 = Arrays.copyOf(out2, n);
+                sets = Arrays.copyOf(sets, n);
+            }
+            kind[size] = k;
+            out1[size] = o1;
+            out2[size] = o2;
+            sets[size] = set;
+            return size++;
+        }
+
+        /**
+         * 从后往前构造：生成匹配 node 后转到 next 的状态，返回入口状态
+         */
+        int build(Node node, int next) {
+            switch (node.kind) {
+                case Node.CHARS:
+                    return add(SET, next, -1, node.set);
+                case Node.BOL:
+                    return add(BOL, next, -1, null);
+                case Node.EOL:
+                    return add(EOL, next, -1, null);
+                case Node.CONCAT:
+                    for (int i = node.children.size() - 1; i >= 0; i--) {
+                        next = build(node.children.get(i), next);
+                    }
+                    return next;
+                case Node.ALT:
+                    int last = node.children.size() - 1;
+                    int entry = build(node.children.get(last), next);
+                    for (int i = last - 1; i >= 0; i--) {
+                        entry = add(SPLIT, build(node.children.get(i), next), entry, null);
+                    }
+                    return entry;
+                case Node.REPEAT:
+                    Node child = node.children.get(0);
+                    int current = next;
+                    if (node.max < 0) {
+                        int loop = add(SPLIT, -1, next, null);
+                        // 先构造循环体再赋值，构造过程中数组可能扩容
+                        int body = build(child, loop);
+                        out1[loop] = body;
+                        current = loop;
+                    } else {
+                        for (int i = node.min; i < node.max; i++) {
+                            current = add(SPLIT, build(child, current), next, null);
+                        }
+                    }
+                    for (int i = 0; i < node.min; i++) {
+                        current = build(child, current);
+                    }
+                    return current;
+                default:
+                    throw new IllegalStateException("unknown node: " + node.kind);
+            }
+        }
+
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // 子集构造
+    // ------------------------------------------------------------------------------------------
+
+    private static final class Builder {
+
+        private final String regex;
+
+        private final Nfa nfa;
+
+        private final int entry;
+
+        private final int[] boundaries;
+
+        private final int classCount;
+
+        private final Map<BitSet, Integer> ids = new HashMap<>();
+
+        private final List<BitSet> states = new ArrayList<>();
+
+        private int[] transitions;
+
+        Builder(String regex, Nfa nfa, int entry) {
+            this.regex = regex;
+            this.nfa = nfa;
+            this.entry = entry;
+            TreeSet<Integer> points = new TreeSet<>();
+            for (int s = 0; s < nfa.size; s++) {
+                int[] set = nfa.sets[s];
+                if (set == null) {
+                    continue;
+                }
+                for (int i = 0; i < set.length; i += 2) {
+                    points.add(set[i]);
+                    if (set[i + 1] < MAX_CODE_POINT) {
+                        points.add(set[i + 1] + 1);
+                    }
+                }
+            }
+            points.remove(0);
+            this.boundaries = points.stream().mapToInt(Integer::intValue).toArray();
+            this.classCount = boundaries.length + 1;
+        }
+
+        DfaMatcher build() {
+            // 0 号状态是死状态：没有可继续的 NFA 状态，也不可接受
+            stateOf(new BitSet());
+            int start = stateOf(closure(new int[] { entry }, 1, true));
+            transitions = new int[Math.max(states.size(), 16) * classCount];
+            int[] seeds = new int[nfa.size];
+            for (int id = 1; id < states.size(); id++) {
+                BitSet key = states.get(id);
+                for (int cls = 0; cls < classCount; cls++) {
+                    int representative = cls == 0 ? 0 : boundaries[cls - 1];
+                    int n = 0;
+                    for (int s = key.nextSetBit(0); s >= 0 && s < nfa.size; s = key.nextSetBit(s + 1)) {
+                        if (contains(nfa.sets[s], representative)) {
+                            seeds[n++] = nfa.out1[s];
+                        }
+                    }
+                    int target = n == 0 ? DEAD : stateOf(closure(seeds, n, false));
+                    while (transitions.length < states.size() * classCount) {
+                        transitions = Arrays.copyOf(transitions, transitions.length * 2);
+                    }
+                    transitions[id * classCount + cls] = target;
+                }
+            }
+            boolean[] accepting = new boolean[states.size()];
+            for (int id = 0; id < accepting.length; id++) {
+                accepting[id] = states.get(id).get(nfa.size);
+            }
+            return new DfaMatcher(regex, boundaries, Arrays.copyOf(transitions, states.size() * classCount),
+                accepting, start);
+        }
+
+        private int stateOf(BitSet key) {
+            Integer id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+            if (states.size() == MAX_STATES) {
+                throw unsupported(regex, "more than " + MAX_STATES + " DFA states");
+            }
+            id = states.size();
+            ids.put(key, id);
+            states.add(key);
+            return id;
+        }
+
+        /**
+         * ε 闭包：返回闭包中能继续消耗字符的 SET 状态，可接受时额外置位第 nfa.size 位。
+         * 越过 $ 之后只可能在输入结尾接受，不再收集 SET 状态。
+         */
+        private BitSet closure(int[] seeds, int count, boolean atStart) {
+            BitSet key = new BitSet(nfa.size + 1);
+            BitSet seen = new BitSet(nfa.size * 2);
+            Deque<Integer> stack = new ArrayDeque<>();
+            for (int i = 0; i < count; i++) {
+                stack.push(seeds[i] << 1);
+            }
+            while (!stack.isEmpty()) {
+                int item = stack.pop();
+                if (seen.get(item)) {
+                    continue;
+                }
+                seen.set(item);
+                int s = item >>> 1;
+                int afterEol = item & 1;
+                switch (nfa.kind[s]) {
+                    case Nfa.SET:
+                        if (afterEol != 0) {
+                            // Pattern 中的 $ 可以匹配结尾换行符之前的位置，这里不模拟这种用法
+                            throw unsupported(regex, "'$' followed by more input");
+                        }
+                        key.set(s);
+                        break;
+                    case Nfa.MATCH:
+                        key.set(nfa.size);
+                        break;
+                    case Nfa.SPLIT:
+                        stack.push(nfa.out2[s] << 1 | afterEol);
+                        stack.push(nfa.out1[s] << 1 | afterEol);
+                        break;
+                    case Nfa.BOL:
+                        if (atStart) {
+                            stack.push(nfa.out1[s] << 1 | afterEol);
+                        }
+                        break;
+                    case Nfa.EOL:
+                        stack.push(nfa.out1[s] << 1 | 1);
+                        break;
+                    default:
+                        throw new IllegalStateException("unknown state: " + nfa.kind[s]);
+                }
+            }
+            return key;
+        }
+
+    }
+
+}
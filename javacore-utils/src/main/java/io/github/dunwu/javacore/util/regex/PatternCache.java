@@ -0,0 +1,151 @@
+/**
+ * The Apache License 2.0 Copyright (c) 2016 Zhang Peng
+ */
+package io.github.dunwu.javacore.util.regex;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 已编译正则的有界并发缓存，{@link Pattern} 以（正则, flags）为键，{@link DfaMatcher} 以正则为键。
+ * <p>
+ * 命中时只有一次 {@link ConcurrentHashMap#get}，不加锁；未命中时在锁外编译，并发未命中同一个键时可能重复编译，
+ * 但只有一个结果会被缓存。超过容量时按插入顺序淘汰最早的条目（FIFO），正则的来源通常是代码中的常量，
+ * 工作集远小于容量，FIFO 足够且没有 LRU 在每次命中时维护顺序的开销。
+ * <p>
+ * {@link DfaMatcher} 不支持的正则也会被缓存（值为空），避免每次调用都重新解析一遍。
+ *
+ * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
+ * @since 2016/10/27.
+ */
+public final class PatternCache {
+
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private static final PatternCache DEFAULT = new PatternCache(DEFAULT_MAX_SIZE);
+
+    private final Store<Key, Pattern> patterns;
+
+    private final Store<String, Optional<DfaMatcher>> matchers;
+
+    public PatternCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.patterns = new Store<>(maxSize);
+        this.matchers = new Store<>(maxSize);
+    }
+
+    /**
+     * 进程内共享的缓存，{@link RegexUtil} 使用的就是它
+     */
+    public static PatternCache getDefault() {
+        return DEFAULT;
+    }
+
+    public Pattern pattern(String regex) {
+        return pattern(regex, 0);
+    }
+
+    /**
+     * 返回缓存的 {@link Pattern}，正则语法错误时抛出 {@link java.util.regex.PatternSyntaxException}，错误不会被缓存
+     */
+    public Pattern pattern(String regex, int flags) {
+        return patterns.get(new Key(regex, flags), key -> Pattern.compile(key.regex, key.flags));
+    }
+
+    /**
+     * 返回缓存的 {@link DfaMatcher}，正则不在 {@link DfaMatcher} 支持的范围内时返回 null
+     */
+    public DfaMatcher dfa(String regex) {
+        Objects.requireNonNull(regex, "regex");
+        return matchers.get(regex, key -> Optional.ofNullable(DfaMatcher.tryCompile(key))).orElse(null);
+    }
+
+    public int size() {
+        return patterns.map.size() + matchers.map.size();
+    }
+
+    public void clear() {
+        patterns.clear();
+        matchers.clear();
+    }
+
+    private static final class Store<K, V> {
+
+        private final int maxSize;
+
+        private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+
+        private final ConcurrentLinkedQueue<K> order = new ConcurrentLinkedQueue<>();
+
+        Store(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        V get(K key, Function<K, V> loader) {
+            V value = map.get(key);
+            if (value != null) {
+                return value;
+            }
+            value = loader.apply(key);
+            V previous = map.putIfAbsent(key, value);
+            if (previous != null) {
+                return previous;
+            }
+            order.add(key);
+            while (map.size() > maxSize) {
+                K eldest = order.poll();
+                if (eldest == null) {
+                    break;
+                }
+                map.remove(eldest);
+            }
+            return value;
+        }
+
+        void clear() {
+            map.clear();
+            order.clear();
+        }
+
+    }
+
+    private static final class Key {
+
+        private final String regex;
+
+        private final int flags;
+
+        private final int hash;
+
+        Key(String regex, int flags) {
+            this.regex = Objects.requireNonNull(regex, "regex");
+            this.flags = flags;
+            this.hash = regex.hashCode() * 31 + flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return flags == other.flags && regex.equals(other.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
@@ -3,11 +3,17 @@
  */
 package io.github.dunwu.javacore.util.regex;
 
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 正则工具类
+ * <p>
+ * 内置的校验方法在类加载时预编译：{@link DfaMatcher} 支持的正则编译为 DFA，匹配耗时与输入长度成线性关系，
+ * 不受恶意构造的输入影响；其余正则（如带反向引用的日期校验）编译为 {@link Pattern}。
+ * 按正则字符串调用的 {@link #checkMatches(String, String)} 从 {@link PatternCache} 取已编译的 {@link Pattern}，
+ * 需要线性时间保证时使用 {@link #checkMatchesLinear(String, String)}。
  *
  * @author <a href="mailto:forbreak@163.com">Zhang Peng</a>
  * @since 2016/10/27.
@@ -54,12 +60,6 @@ public class RegexUtil {
 
     private static final String REGEX_NUM_NONE = "^[\\D]*$";
 
-    private static final String REGEX_N_NUMBER = "^\\d{%d}$";
-
-    private static final String REGEX_MORE_THAN_N_NUMBER = "^\\d{%d,}$";
-
-    private static final String REGEX_M_TO_N_NUMBER = "^\\d{%d,%d}$";
-
     /**
      * 特定字符
      */
@@ -73,6 +73,56 @@ public class RegexUtil {
 
     private static final String REGEX_CHAR_UNI_WORD_NONE = "^\\W+$";
 
+    /**
+     * 预编译的校验器
+     */
+    private static final Predicate<CharSequence> ONLY_CHINESE_CHAR = precompile(REGEX_ONLY_CHINESE_CHAR);
+
+    private static final Predicate<CharSequence> ID_CARD_15 = precompile(REGEX_ID_CARD_15);
+
+    private static final Predicate<CharSequence> ID_CARD_18 = precompile(REGEX_ID_CARD_18);
+
+    private static final Predicate<CharSequence> USERNAME = precompile(REGEX_USERNAME);
+
+    private static final Predicate<CharSequence> EMAIL = precompile(REGEX_EMAIL);
+
+    private static final Predicate<CharSequence> URI = precompile(REGEX_URI);
+
+    private static final Predicate<CharSequence> IPV4 = precompile(REGEX_IPV4);
+
+    private static final Predicate<CharSequence> IPV6 = precompile(REGEX_IPV6);
+
+    private static final Predicate<CharSequence> TIME = precompile(REGEX_TIME);
+
+    private static final Predicate<CharSequence> DATE = precompile(REGEX_DATE);
+
+    private static final Predicate<CharSequence> MOBILE = precompile(REGEX_MOBILE);
+
+    private static final Predicate<CharSequence> PHONE = precompile(REGEX_PHONE);
+
+    private static final Predicate<CharSequence> NUM_ALL = precompile(REGEX_NUM_ALL);
+
+    private static final Predicate<CharSequence> NUM_NONE = precompile(REGEX_NUM_NONE);
+
+    private static final Predicate<CharSequence> CHAR_EN_ALL = precompile(REGEX_CHAR_EN_ALL);
+
+    private static final Predicate<CharSequence> CHAR_EN_UPPER_ALL = precompile(REGEX_CHAR_EN_UPPER_ALL);
+
+    private static final Predicate<CharSequence> CHAR_EN_LOWER_ALL = precompile(REGEX_CHAR_EN_LOWER_ALL);
+
+    private static final Predicate<CharSequence> CHAR_UNI_WORD_ALL = precompile(REGEX_CHAR_UNI_WORD_ALL);
+
+    private static final Predicate<CharSequence> CHAR_UNI_WORD_NONE = precompile(REGEX_CHAR_UNI_WORD_NONE);
+
+    private static Predicate<CharSequence> precompile(String regex) {
+        DfaMatcher dfa = DfaMatcher.tryCompile(regex);
+        if (dfa != null) {
+            return dfa::matches;
+        }
+        Pattern pattern = Pattern.compile(regex);
+        return content -> pattern.matcher(content).matches();
+    }
+
     /********************************************
      * 最常用的正则
      ********************************************/
@@ -80,14 +130,26 @@ public class RegexUtil {
      * 验证全是汉字字符 描述：校验字符串中只能有中文字符（不包括中文标点符号）。 匹配： 春眠不觉晓 不匹配：春眠不觉晓，
      */
     public static boolean isAllChineseChar(String content) {
-        return checkMatches(RegexUtil.REGEX_ONLY_CHINESE_CHAR, content);
+        return ONLY_CHINESE_CHAR.test(content);
     }
 
     /**
-     * 判断content是否匹配pattern的正则表达式
+     * 判断content是否匹配pattern的正则表达式，编译结果缓存在 {@link PatternCache#getDefault()} 中
      */
     public static boolean checkMatches(String regex, String content) {
-        return checkMatches(Pattern.compile(regex), content);
+        return checkMatches(PatternCache.getDefault().pattern(regex), content);
+    }
+
+    /**
+     * 与 {@link #checkMatches(String, String)} 结果相同，但使用 {@link DfaMatcher} 匹配，耗时与 content 的长度成线性关系，
+     * 适合校验不可信的输入。regex 不在 {@link DfaMatcher} 支持的范围内时抛出 {@link IllegalArgumentException}
+     */
+    public static boolean checkMatchesLinear(String regex, String content) {
+        DfaMatcher dfa = PatternCache.getDefault().dfa(regex);
+        if (dfa == null) {
+            throw new IllegalArgumentException("regex is not supported by DfaMatcher: " + regex);
+        }
+        return dfa.matches(content);
     }
 
     public static boolean checkMatches(Pattern p, String content) {
@@ -99,73 +161,90 @@ public class RegexUtil {
      * 验证全是英文字母
      */
     public static boolean isAllEnglishChar(String content) {
-        return checkMatches(RegexUtil.REGEX_CHAR_EN_ALL, content);
+        return CHAR_EN_ALL.test(content);
     }
 
     /**
      * 验证全是小写字母
      */
     public static boolean isAllLowerEnglishChar(String content) {
-        return checkMatches(RegexUtil.REGEX_CHAR_EN_LOWER_ALL, content);
+        return CHAR_EN_LOWER_ALL.test(content);
     }
 
     /**
      * 验证全是数字 正确格式：任意位数的数字
      */
     public static boolean isAllNumber(String content) {
-        return checkMatches(RegexUtil.REGEX_NUM_ALL, content);
+        return NUM_ALL.test(content);
     }
 
     /**
      * 验证全是大写字母
      */
     public static boolean isAllUpperEnglishChar(String content) {
-        return checkMatches(RegexUtil.REGEX_CHAR_EN_UPPER_ALL, content);
+        return CHAR_EN_UPPER_ALL.test(content);
     }
 
     /**
      * 验证全是单词字符，即只能由数字、26个英文字母或者下划线组成
      */
     public static boolean isAllWordChar(String content) {
-        return checkMatches(RegexUtil.REGEX_CHAR_UNI_WORD_ALL, content);
+        return CHAR_UNI_WORD_ALL.test(content);
     }
 
     /**
      * 验证字符串至少是N位的数字
      */
     public static boolean isLeastNDigitNumber(String content, int n) {
-        String format = String.format(RegexUtil.REGEX_MORE_THAN_N_NUMBER, n);
-        return checkMatches(format, content);
+        return isDigits(content, n, Integer.MAX_VALUE);
     }
 
     /**
      * 验证字符串是M到N位之间的数字
      */
     public static boolean isMToNDigitNumber(String content, int m, int n) {
-        String format = String.format(RegexUtil.REGEX_M_TO_N_NUMBER, m, n);
-        return checkMatches(format, content);
+        return isDigits(content, m, n);
     }
 
     /**
      * 验证是否为N位的数字
      */
     public static boolean isNDigitNumber(String content, int n) {
-        String format = String.format(RegexUtil.REGEX_N_NUMBER, n);
-        return checkMatches(format, content);
+        return isDigits(content, n, n);
+    }
+
+    /**
+     * 等价于 {@code ^\d{min,max}$}（{@code \d} 只匹配 ASCII 数字），不需要为每组参数构造和编译正则
+     */
+    private static boolean isDigits(String content, int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Illegal repetition range: {" + min + "," + max + "}");
+        }
+        int length = content.length();
+        if (length < min || length > max) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * 验证不含任何数字
      */
     public static boolean isNoneNumber(String content) {
-        return checkMatches(RegexUtil.REGEX_NUM_NONE, content);
+        return NUM_NONE.test(content);
     }
 
     /**
      * 验证全部都不是单词字符，即不能由数字、26个英文字母或者下划线组成
      */
     public static boolean isNoneWordChar(String content) {
-        return checkMatches(RegexUtil.REGEX_CHAR_UNI_WORD_NONE, content);
+        return CHAR_UNI_WORD_NONE.test(content);
     }
 
     /********************************************
@@ -176,7 +255,7 @@ public class RegexUtil {
      * 校验时间。 描述：时、分、秒必须是有效数字，如果数值不是两位数，十位需要补零。 匹配：00:00:00 | 23:59:59 | 17:06:30 不匹配：17:6:30 | 24:16:30
      */
     public static boolean isValidTime(String content) {
-        return checkMatches(RegexUtil.REGEX_TIME, content);
+        return TIME.test(content);
     }
 
     /**
@@ -185,7 +264,7 @@ public class RegexUtil {
      * 不匹配：2001-02-29 | 2016/12/32 | 2016/6/31 | 2016/13/1 | 2016/0/1
      */
     public static boolean isValidateDate(String content) {
-        return checkMatches(RegexUtil.REGEX_DATE, content);
+        return DATE.test(content);
     }
 
     /**
@@ -194,7 +273,7 @@ public class RegexUtil {
      * h1ello@123.com 不匹配：hello@worl_d.com | he&llo@world.co1 | .hello@wor#.co.uk
      */
     public static boolean isValidateEmail(String content) {
-        return checkMatches(RegexUtil.REGEX_EMAIL, content);
+        return EMAIL.test(content);
     }
 
     /**
@@ -202,7 +281,7 @@ public class RegexUtil {
      * 不匹配：110001701501031
      */
     public static boolean isValidateIdCard15(String content) {
-        return checkMatches(RegexUtil.REGEX_ID_CARD_15, content);
+        return ID_CARD_15.test(content);
     }
 
     /**
@@ -210,7 +289,7 @@ public class RegexUtil {
      * 11000019900101015X 不匹配：990000199001010310 | 110001199013010310
      */
     public static boolean isValidateIdCard18(String content) {
-        return checkMatches(RegexUtil.REGEX_ID_CARD_18, content);
+        return ID_CARD_18.test(content);
     }
 
     /********************************************
@@ -222,7 +301,7 @@ public class RegexUtil {
      * 匹配：0.0.0.0 | 255.255.255.255 | 127.0.0.1 不匹配：10.10.10 | 10.10.10.256
      */
     public static boolean isValidateIpv4(String content) {
-        return checkMatches(RegexUtil.REGEX_IPV4, content);
+        return IPV4.test(content);
     }
 
     /**
@@ -234,7 +313,7 @@ public class RegexUtil {
      * 不匹配：1.2.3.4.5.6.7.8 | 1::2::3
      */
     public static boolean isValidateIpv6(String content) {
-        return checkMatches(RegexUtil.REGEX_IPV6, content);
+        return IPV6.test(content);
     }
 
     /**
@@ -244,14 +323,14 @@ public class RegexUtil {
      * 18012345678 | 15812345678 不匹配：15412345678 | 12912345678 | 180123456789
      */
     public static boolean isValidateMobile(String content) {
-        return checkMatches(RegexUtil.REGEX_MOBILE, content);
+        return MOBILE.test(content);
     }
 
     /**
      * 校验中国固话号码（大陆地区） 描述：固话号码，必须加区号（以0开头）。 3位有效区号：010、020~029，固话位数为8位 4位有效区号：03xx开头到09xx，固话位数为7
      */
     public static boolean isValidatePhone(String content) {
-        return checkMatches(RegexUtil.REGEX_PHONE, content);
+        return PHONE.test(content);
     }
 
     /**
@@ -259,14 +338,14 @@ public class RegexUtil {
      * https://www.google.com/help.asp | ftp://www.google.com | ftps://google.org 不匹配：http://un/www.google.com/index.asp
      */
     public static boolean isValidateUrl(String content) {
-        return checkMatches(RegexUtil.REGEX_URI, content);
+        return URI.test(content);
     }
 
     /**
      * 验证密码有效
      */
     public static boolean isValidateUsername(String content) {
-        return checkMatches(RegexUtil.REGEX_USERNAME, content);
+        return USERNAME.test(content);
     }
 
     public static void main(String[] args) {
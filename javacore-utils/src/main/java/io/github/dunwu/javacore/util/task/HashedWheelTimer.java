@@ -0,0 +1,460 @@
+package io.github.dunwu.javacore.util.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 分层哈希时间轮，用来替代 {@link java.util.Timer} 调度大量的超时任务（RPC 超时、租约到期等）。
+ * <p>
+ * 1. 结构：第 L 层有 wheelSize 个槽，每个槽跨 wheelSize^L 个 tick。到期 tick 与当前 tick 相差小于 wheelSize 的任务放在第 0 层，
+ * 更远的放在能容纳它的最低一层；每当低 L 层转完一圈，第 L 层当前槽里的任务重新分配到更低的层（cascade），最终在第 0 层到期。
+ * 每个槽是一个双向链表，新增、取消、到期都是 O(1)，不像 Timer 的二叉堆那样是 O(log n)。
+ * <p>
+ * 2. 线程：时间轮只由一个工作线程修改。{@link #newTimeout} 和 {@link Timeout#cancel} 只把任务放进无锁队列，
+ * 工作线程在每个 tick 开始时批量处理，调用方不加锁也不会与工作线程竞争。
+ * <p>
+ * 3. 执行：到期的任务交给构造时传入的 {@link Executor}，默认在工作线程上直接执行（任务应当很短）。
+ * 任务抛出的异常、执行器的拒绝或其他异常只记录日志并计入 {@link #getFailedTasks()}，不会影响其他任务，也不会像 Timer 那样让整个调度器失效。
+ * <p>
+ * 4. 精度：任务不会提前执行，最多推迟一个 tick；工作线程来不及处理时会连续处理落后的 tick，落后的程度见 {@link #getLagNanos()}。
+ */
+public class HashedWheelTimer {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private static final AtomicLong THREAD_ID = new AtomicLong();
+
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY =
+        r -> new Thread(r, "hashed-wheel-timer-" + THREAD_ID.incrementAndGet());
+
+    private final long tickNanos;
+
+    private final int bits;
+
+    private final int mask;
+
+    /**
+     * 按层分配，第一次用到时创建
+     */
+    private final Bucket[][] wheels;
+
+    private final Executor executor;
+
+    private final long maxPendingTimeouts;
+
+    private final Queue<WheelTimeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+
+    private final AtomicLong failedTasks = new AtomicLong();
+
+    private final long startTime;
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    private volatile long lagNanos;
+
+    /**
+     * 最近一个已处理的 tick，只由工作线程修改
+     */
+    private long tick;
+
+    public HashedWheelTimer() {
+        this(10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize) {
+        this(tickDuration, unit, wheelSize, DIRECT, DEFAULT_THREAD_FACTORY, -1);
+    }
+
+    /**
+     * @param tickDuration       tick 的长度，也是调度精度
+     * @param wheelSize          每层的槽数，向上取整为 2 的幂
+     * @param executor           执行到期任务的执行器
+     * @param threadFactory      创建工作线程
+     * @param maxPendingTimeouts 未到期任务数的上限，超过时 {@link #newTimeout} 抛出 {@link RejectedExecutionException}，
+     *                           不大于 0 表示不限制
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, Executor executor,
+        ThreadFactory threadFactory, long maxPendingTimeouts) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (wheelSize <= 1 || wheelSize > (1 << 16)) {
+            throw new IllegalArgumentException("wheelSize must be in (1, 65536]: " + wheelSize);
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.bits = 32 - Integer.numberOfLeadingZeros(wheelSize - 1);
+        this.mask = (1 << bits) - 1;
+        // 最高一层要覆盖 long 能表示的所有 tick
+        this.wheels = new Bucket[(63 + bits - 1) / bits][];
+        this.executor = executor;
+        this.maxPendingTimeouts = maxPendingTimeouts;
+        this.startTime = System.nanoTime();
+        this.worker = threadFactory.newThread(this::runWorker);
+        this.worker.start();
+    }
+
+    /**
+     * 在 delay 之后执行 task，O(1)
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (!running) {
+            throw new IllegalStateException("cannot be started once stopped");
+        }
+        long pending = pendingTimeouts.incrementAndGet();
+        if (maxPendingTimeouts > 0 && pending > maxPendingTimeouts) {
+            pendingTimeouts.decrementAndGet();
+            throw new RejectedExecutionException(
+                "Number of pending timeouts (" + pending + ") is greater than " + maxPendingTimeouts);
+        }
+        long deadline = System.nanoTime() - startTime + Math.max(unit.toNanos(delay), 0);
+        // 溢出时视为永不到期
+        if (deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        WheelTimeout timeout = new WheelTimeout(this, task, deadline);
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 停止工作线程，返回尚未到期也未取消的任务
+     */
+    public Set<Timeout> stop() {
+        if (Thread.currentThread() == worker) {
+            throw new IllegalStateException("stop() cannot be called from a timer task");
+        }
+        running = false;
+        LockSupport.unpark(worker);
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join(100);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Set<Timeout> unprocessed = new HashSet<>();
+        for (Bucket[] wheel : wheels) {
+            if (wheel == null) {
+                continue;
+            }
+            for (Bucket bucket : wheel) {
+                for (WheelTimeout t = bucket.head; t != null; t = t.next) {
+                    unprocessed.add(t);
+                }
+            }
+        }
+        for (WheelTimeout t; (t = newTimeouts.poll()) != null; ) {
+            unprocessed.add(t);
+        }
+        unprocessed.removeIf(Timeout::isCancelled);
+        pendingTimeouts.set(0);
+        return Collections.unmodifiableSet(unprocessed);
+    }
+
+    /**
+     * 尚未到期也未取消的任务数
+     */
+    public long getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * 工作线程处理最近一个 tick 时比该 tick 的理论时间晚了多少纳秒，持续增大说明工作线程或执行器跟不上
+     */
+    public long getLagNanos() {
+        return lagNanos;
+    }
+
+    /**
+     * 抛出异常或被执行器拒绝的任务数
+     */
+    public long getFailedTasks() {
+        return failedTasks.get();
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    public int getWheelSize() {
+        return mask + 1;
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // 工作线程
+    // ------------------------------------------------------------------------------------------
+
+    private void runWorker() {
+        while (running) {
+            long tickDeadline = (tick + 1) * tickNanos;
+            long now = System.nanoTime() - startTime;
+            if (now < tickDeadline) {
+                LockSupport.parkNanos(this, tickDeadline - now);
+                continue;
+            }
+            tick++;
+            lagNanos = now - tickDeadline;
+            processCancelled();
+            transferNewTimeouts();
+            cascade();
+            expire(bucket(0, (int) (tick & mask)));
+        }
+    }
+
+    private void transferNewTimeouts() {
+        // 每个 tick 最多转移 10 万个，避免调用方持续提交时工作线程一直停留在这里
+        for (int i = 0; i < 100000; i++) {
+            WheelTimeout timeout = newTimeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.state == WheelTimeout.ST_INIT) {
+                timeout.deadlineTick = timeout.deadline == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : (timeout.deadline + tickNanos - 1) / tickNanos;
+                place(timeout);
+            }
+        }
+    }
+
+    private void processCancelled() {
+        for (WheelTimeout timeout; (timeout = cancelledTimeouts.poll()) != null; ) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * 从高到低，把低位全部为 0 的那些层的当前槽重新分配
+     */
+    private void cascade() {
+        for (int level = wheels.length - 1; level >= 1; level--) {
+            int shift = level * bits;
+            if ((tick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            Bucket[] wheel = wheels[level];
+            if (wheel == null) {
+                continue;
+            }
+            Bucket bucket = wheel[(int) ((tick >>> shift) & mask)];
+            for (WheelTimeout timeout; (timeout = bucket.poll()) != null; ) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void place(WheelTimeout timeout) {
+        long delta = timeout.deadlineTick - tick;
+        if (delta <= 0) {
+            bucket(0, (int) (tick & mask)).add(timeout);
+            return;
+        }
+        int level = 0;
+        while (level < wheels.length - 1 && (delta >>> ((level + 1) * bits)) != 0) {
+            level++;
+        }
+        bucket(level, (int) ((timeout.deadlineTick >>> (level * bits)) & mask)).add(timeout);
+    }
+
+    private Bucket bucket(int level, int index) {
+        Bucket[] wheel = wheels[level];
+        if (wheel == null) {
+            wheel = new Bucket[mask + 1];
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+            wheels[level] = wheel;
+        }
+        return wheel[index];
+    }
+
+    private void expire(Bucket bucket) {
+        for (WheelTimeout timeout; (timeout = bucket.poll()) != null; ) {
+            if (timeout.deadlineTick > tick) {
+                place(timeout);
+                continue;
+            }
+            if (!timeout.compareAndSetState(WheelTimeout.ST_INIT, WheelTimeout.ST_EXPIRED)) {
+                continue;
+            }
+            pendingTimeouts.decrementAndGet();
+            try {
+                executor.execute(timeout);
+            } catch (Throwable e) {
+                // 执行器的拒绝或其他异常（包括 Error）都只算这个任务失败，工作线程继续推进
+                failedTasks.incrementAndGet();
+                log.warn("Timer task {} could not be handed to the executor", timeout.task, e);
+            }
+        }
+    }
+
+    private void onTaskFailure(WheelTimeout timeout, Throwable t) {
+        failedTasks.incrementAndGet();
+        log.warn("Timer task {} threw an exception", timeout.task, t);
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // 槽和任务
+    // ------------------------------------------------------------------------------------------
+
+    /**
+     * 槽内的双向链表，只由工作线程访问
+     */
+    private static final class Bucket {
+
+        private WheelTimeout head;
+
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(WheelTimeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        WheelTimeout poll() {
+            WheelTimeout timeout = head;
+            if (timeout != null) {
+                remove(timeout);
+            }
+            return timeout;
+        }
+
+    }
+
+    private static final class WheelTimeout implements Timeout, Runnable {
+
+        static final int ST_INIT = 0;
+
+        static final int ST_CANCELLED = 1;
+
+        static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final HashedWheelTimer timer;
+
+        private final Runnable task;
+
+        /**
+         * 相对 startTime 的到期时间（纳秒）
+         */
+        private final long deadline;
+
+        private volatile int state = ST_INIT;
+
+        // 以下字段只由工作线程访问
+
+        private long deadlineTick;
+
+        private Bucket bucket;
+
+        private WheelTimeout prev;
+
+        private WheelTimeout next;
+
+        WheelTimeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        boolean compareAndSetState(int expected, int state) {
+            return STATE.compareAndSet(this, expected, state);
+        }
+
+        @Override
+        public Runnable task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!compareAndSetState(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            // 从槽中摘除留给工作线程，这里不碰链表
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                timer.onTaskFailure(this, t);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Timeout(task=" + task + ", state=" + state + ")";
+        }
+
+    }
+
+}
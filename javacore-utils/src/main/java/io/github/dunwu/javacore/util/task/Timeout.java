@@ -0,0 +1,19 @@
+package io.github.dunwu.javacore.util.task;
+
+/**
+ * {@link HashedWheelTimer#newTimeout} 返回的句柄，用来取消尚未到期的任务
+ */
+public interface Timeout {
+
+    Runnable task();
+
+    /**
+     * 取消任务，O(1)。任务已到期或已取消时返回 false
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+
+    boolean isExpired();
+
+}
@@ -1,26 +1,38 @@
 package io.github.dunwu.javacore.util.task;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 任务调度类都要继承TimerTask
+ * 使用 {@link HashedWheelTimer} 调度任务：1 秒后开始，每 2 秒重复。
+ * <p>
+ * 时间轮只支持一次性任务，周期任务在每次执行时重新提交自己。DateTimeFormatter 是线程安全的，
+ * 不用像 SimpleDateFormat 那样每次执行都新建一个。
  */
-class TimerTaskDemo extends TimerTask {
+class TimerTaskDemo implements Runnable {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final HashedWheelTimer timer;
+
+    private final long period;
+
+    TimerTaskDemo(HashedWheelTimer timer, long period) {
+        this.timer = timer;
+        this.period = period;
+    }
 
     public static void main(String[] args) {
-        Timer timer = new Timer(); // 建立Timer类对象
-        TimerTaskDemo mytask = new TimerTaskDemo(); // 定义任务
-        timer.schedule(mytask, 1000, 2000); // 设置任务的执行，1秒后开始，每2秒重复
+        HashedWheelTimer timer = new HashedWheelTimer(); // 建立时间轮，默认 tick 为 10 毫秒
+        TimerTaskDemo mytask = new TimerTaskDemo(timer, 2000); // 定义任务
+        timer.newTimeout(mytask, 1000, TimeUnit.MILLISECONDS); // 设置任务的执行，1秒后开始，每2秒重复
     }
 
     @Override
     public void run() {
-        SimpleDateFormat sdf = null;
-        sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-        System.out.println("当前系统时间为：" + sdf.format(new Date()));
+        timer.newTimeout(this, period, TimeUnit.MILLISECONDS);
+        System.out.println("当前系统时间为：" + FORMATTER.format(LocalDateTime.now()));
     }
 
 }
@@ -0,0 +1,82 @@
+package io.github.dunwu.javacore.util.regex;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DfaMatcherTest {
+
+    private static final String[] REGEXES = {
+        "", "a", "a*", "(a|b)*abb", "^[a-zA-Z]\\w{5,17}$", "x{2,4}y?", "(?:ab|a)(?:c|bc)", "(a*)*b", "[^a-c]+",
+        "\\d+\\.\\d{1,2}", "a.c", "[-a]|[a-]", "[\\.\\-]x", "^a|b$", "(ab)+?c", "\\s*\\S\\W",
+        "^[A-Za-z0-9](([_\\.\\-]?[a-zA-Z0-9]+)*)@([A-Za-z0-9]+)(([\\.\\-]?[a-zA-Z0-9]+)*)\\.([A-Za-z]{2,})$",
+        "^([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])$",
+        "^(010|02[0-9])(\\s|-)\\d{8}|(0[3-9]\\d{2})(\\s|-)\\d{7}$"
+    };
+
+    private static final char[] ALPHABET = "abcxy019_.-@ \n中".toCharArray();
+
+    @Test
+    public void testSameResultAsPattern() {
+        Random random = new Random(42);
+        for (String regex : REGEXES) {
+            Pattern pattern = Pattern.compile(regex);
+            DfaMatcher dfa = DfaMatcher.compile(regex);
+            for (int i = 0; i < 5000; i++) {
+                char[] chars = new char[random.nextInt(12)];
+                for (int j = 0; j < chars.length; j++) {
+                    chars[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+                }
+                String input = new String(chars);
+                assertEquals(regex + " <- " + input, pattern.matcher(input).matches(), dfa.matches(input));
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertNull(DfaMatcher.tryCompile("(a)\\1"));
+        assertNull(DfaMatcher.tryCompile("(?!a)b"));
+        assertNull(DfaMatcher.tryCompile("a*+"));
+        assertNull(DfaMatcher.tryCompile("\\bword"));
+        assertNull(DfaMatcher.tryCompile("a$\\n"));
+        assertNull(DfaMatcher.tryCompile("(a|b)*a(a|b){20}"));
+    }
+
+    @Test
+    public void testNoCatastrophicBacktracking() {
+        String regex = "^([a-z]+)*$";
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            input.append('a');
+        }
+        input.append('!');
+        assertFalse(DfaMatcher.compile(regex).matches(input));
+        assertFalse(RegexUtil.checkMatchesLinear(regex, input.toString()));
+    }
+
+    @Test
+    public void testRegexUtil() {
+        assertTrue(RegexUtil.isValidateEmail("he_llo@worl.d.com"));
+        assertFalse(RegexUtil.isValidateEmail("hello@worl_d.com"));
+        assertTrue(RegexUtil.isValidateIpv4("255.255.255.255"));
+        assertFalse(RegexUtil.isValidateIpv4("10.10.10.256"));
+        assertTrue(RegexUtil.isValidateIpv6("fe80::7:8%1"));
+        assertFalse(RegexUtil.isValidateIpv6("1::2::3"));
+        assertTrue(RegexUtil.isValidateIdCard18("11000019900101015X"));
+        assertFalse(RegexUtil.isValidateIdCard18("110001199013010310"));
+        assertTrue(RegexUtil.isValidateDate("2000-02-29"));
+        assertFalse(RegexUtil.isValidateDate("2001-02-29"));
+        assertTrue(RegexUtil.isMToNDigitNumber("1234", 2, 4));
+        assertFalse(RegexUtil.isNDigitNumber("123a", 4));
+        assertSame(PatternCache.getDefault().pattern("\\d+"), PatternCache.getDefault().pattern("\\d+"));
+    }
+
+}
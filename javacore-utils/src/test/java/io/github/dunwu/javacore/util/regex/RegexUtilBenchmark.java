@@ -0,0 +1,119 @@
+package io.github.dunwu.javacore.util.regex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * RegexUtil 校验方法在不同编译策略下的耗时对比：每次调用都编译 Pattern（改造前的做法）、从 {@link PatternCache} 取 Pattern、
+ * 预编译的校验方法、{@link DfaMatcher}。
+ * <p>
+ * adversarial 输入是邮箱正则 {@code ([_\.\-]?[a-zA-Z0-9]+)*} 的最坏情况：一串字母后跟一个非法字符，
+ * 在 JDK 8 上回溯引擎的耗时随长度指数增长（JDK 9 起 Pattern 对部分贪婪循环做了记忆化，增长放缓），DFA 只与长度成线性关系。
+ * <p>
+ * 不是单元测试，通过 main 方法运行：
+ * <pre>
+ * mvn -pl javacore-utils test-compile exec:java \
+ *     -Dexec.classpathScope=test -Dexec.mainClass=io.github.dunwu.javacore.util.regex.RegexUtilBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegexUtilBenchmark {
+
+    private static final String REGEX_EMAIL =
+        "^[A-Za-z0-9](([_\\.\\-]?[a-zA-Z0-9]+)*)@([A-Za-z0-9]+)(([\\.\\-]?[a-zA-Z0-9]+)*)\\.([A-Za-z]{2,})$";
+
+    private static final String REGEX_IPV4 =
+        "^([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])\\.([01]?\\d\\d?|2[0-4]\\d|25[0-5])$";
+
+    private static final String REGEX_ID_CARD_18 =
+        "^((1[1-5]|2[1-3]|3[1-7]|4[1-3]|5[0-4]|6[1-5])\\d{4})((\\d{4}((0[13578]|1[02])(0[1-9]|[12]\\d|3[01])|(0[13456789]|1[012])(0[1-9]|[12]\\d|30)|02(0[1-9]|1\\d|2[0-8])))|([02468][048]|[13579][26])0229)(\\d{3}(\\d|X))$";
+
+    @Param({"email", "ipv4", "idCard18", "adversarial"})
+    private String validator;
+
+    private String regex;
+
+    private String input;
+
+    private Predicate<String> precompiled;
+
+    private DfaMatcher dfa;
+
+    @Setup
+    public void setup() {
+        switch (validator) {
+            case "email":
+                regex = REGEX_EMAIL;
+                input = "hel.l-o@wor-ld.museum";
+                precompiled = RegexUtil::isValidateEmail;
+                break;
+            case "ipv4":
+                regex = REGEX_IPV4;
+                input = "192.168.100.254";
+                precompiled = RegexUtil::isValidateIpv4;
+                break;
+            case "idCard18":
+                regex = REGEX_ID_CARD_18;
+                input = "11000019900101015X";
+                precompiled = RegexUtil::isValidateIdCard18;
+                break;
+            case "adversarial":
+                regex = REGEX_EMAIL;
+                input = "aaaaaaaaaaaaaaaaaaaaaaaa!";
+                precompiled = RegexUtil::isValidateEmail;
+                break;
+            default:
+                throw new IllegalArgumentException(validator);
+        }
+        dfa = DfaMatcher.compile(regex);
+    }
+
+    @Benchmark
+    public boolean compilePerCall() {
+        return Pattern.compile(regex).matcher(input).matches();
+    }
+
+    @Benchmark
+    public boolean cachedPattern() {
+        return RegexUtil.checkMatches(regex, input);
+    }
+
+    @Benchmark
+    public boolean precompiledValidator() {
+        return precompiled.test(input);
+    }
+
+    @Benchmark
+    public boolean dfa() {
+        return dfa.matches(input);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RegexUtilBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
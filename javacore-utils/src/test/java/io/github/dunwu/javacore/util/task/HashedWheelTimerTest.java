@@ -0,0 +1,116 @@
+package io.github.dunwu.javacore.util.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    private ExecutorService executor;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (timer != null) {
+            timer.stop();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testNeverExpiresEarlyAcrossLevels() throws InterruptedException {
+        // 每层只有 4 个槽，300ms 的延迟会经过多层 cascade
+        timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 4);
+        int count = 200;
+        CountDownLatch latch = new CountDownLatch(count);
+        ConcurrentLinkedQueue<String> early = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < count; i++) {
+            long delay = (i * 37) % 300;
+            long scheduledAt = System.nanoTime();
+            timer.newTimeout(() -> {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scheduledAt);
+                if (elapsed < delay) {
+                    early.add(delay + " ms task ran after " + elapsed + " ms");
+                }
+                latch.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(early.toString(), early.isEmpty());
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch latch = new CountDownLatch(1);
+        Timeout cancelled = timer.newTimeout(latch::countDown, 20, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.getPendingTimeouts());
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(0, timer.getPendingTimeouts());
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+        assertTrue(cancelled.isCancelled());
+        assertFalse(cancelled.isExpired());
+    }
+
+    @Test
+    public void testTaskFailureIsIsolated() throws InterruptedException {
+        executor = Executors.newSingleThreadExecutor();
+        timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8, executor, Thread::new, -1);
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(() -> {
+            throw new IllegalStateException("boom");
+        }, 1, TimeUnit.MILLISECONDS);
+        Timeout timeout = timer.newTimeout(latch::countDown, 5, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(timeout.isExpired());
+        assertEquals(1, timer.getFailedTasks());
+    }
+
+    @Test
+    public void testExecutorFailureKeepsTicking() throws InterruptedException {
+        // 第一次 execute 抛出 Error，工作线程不能因此退出
+        AtomicInteger executions = new AtomicInteger();
+        Executor failingOnce = task -> {
+            if (executions.getAndIncrement() == 0) {
+                throw new OutOfMemoryError("unable to create native thread");
+            }
+            task.run();
+        };
+        timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8, failingOnce, Thread::new, -1);
+        CountDownLatch latch = new CountDownLatch(1);
+        Timeout lost = timer.newTimeout(() -> { }, 1, TimeUnit.MILLISECONDS);
+        Thread.sleep(20);
+        timer.newTimeout(latch::countDown, 5, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(lost.isExpired());
+        assertEquals(1, timer.getFailedTasks());
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    public void testStopReturnsUnprocessed() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 16);
+        timer.newTimeout(() -> { }, 1, TimeUnit.HOURS);
+        timer.newTimeout(() -> { }, 1, TimeUnit.HOURS).cancel();
+        assertEquals(1, timer.stop().size());
+        timer = null;
+    }
+
+}